@@ -0,0 +1,160 @@
+package com.alibaba.datax.plugin.writer.cassandrawriter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BatchStatement.Type;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.QueryValidationException;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 滑动窗口式的异步写入：用信号量限制在途请求数，每个请求完成时在回调中归还许可，
+ * 不再等一批 future 全部返回后才发送下一批。
+ * <p/>
+ * 失败的 batch 拆成单条重新写入，单条语句最多重试 retryTimes 次，仍失败的记为脏数据。
+ * 回调运行在驱动的 IO 线程上，只负责归还许可和登记失败的语句，重试和脏数据收集都在 task 线程完成。
+ */
+public class CassandraWriteWindow {
+  private static final Logger LOG = LoggerFactory
+      .getLogger(CassandraWriteWindow.class);
+
+  private static final long RETRY_INTERVAL_MS = 100L;
+  private static final long MAX_RETRY_INTERVAL_MS = 3000L;
+
+  static final class PendingWrite {
+    final BoundStatement statement;
+    final Record record;
+    int attempts = 0;
+    Throwable lastError;
+
+    PendingWrite(BoundStatement statement, Record record) {
+      this.statement = statement;
+      this.record = record;
+    }
+  }
+
+  private final Session session;
+  private final int maxInFlight;
+  private final int retryTimes;
+  private final TaskPluginCollector taskPluginCollector;
+  private final Semaphore permits;
+  private final Queue<PendingWrite> failedWrite = new ConcurrentLinkedQueue<PendingWrite>();
+  private long retryCount = 0;
+  private long dirtyCount = 0;
+
+  public CassandraWriteWindow(Session session, int maxInFlight, int retryTimes,
+      TaskPluginCollector taskPluginCollector) {
+    this.session = session;
+    this.maxInFlight = Math.max(1, maxInFlight);
+    this.retryTimes = Math.max(0, retryTimes);
+    this.taskPluginCollector = taskPluginCollector;
+    this.permits = new Semaphore(this.maxInFlight);
+  }
+
+  /**
+   * 提交一组语句，多于一条时作为一个 UNLOGGED batch 发送。窗口已满时阻塞到有请求完成为止。
+   */
+  public void submit(List<PendingWrite> writes) throws InterruptedException {
+    drainFailed();
+    send(writes);
+  }
+
+  /**
+   * 等待所有在途请求以及由它们产生的重试全部结束
+   */
+  public void awaitAll() throws InterruptedException {
+    while (true) {
+      permits.acquire(maxInFlight);
+      permits.release(maxInFlight);
+      if (failedWrite.isEmpty()) {
+        break;
+      }
+      drainFailed();
+    }
+    if (retryCount > 0 || dirtyCount > 0) {
+      LOG.warn("异步写入结束，重试语句数:{}，写入失败记为脏数据的记录数:{}.", retryCount, dirtyCount);
+    }
+  }
+
+  private void send(final List<PendingWrite> writes) throws InterruptedException {
+    Statement stmt;
+    if (writes.size() == 1) {
+      stmt = writes.get(0).statement;
+    } else {
+      BatchStatement batch = new BatchStatement(Type.UNLOGGED);
+      for (PendingWrite write : writes) {
+        batch.add(write.statement);
+      }
+      // batch 不会继承其中语句的一致性级别
+      batch.setConsistencyLevel(writes.get(0).statement.getConsistencyLevel());
+      stmt = batch;
+    }
+
+    permits.acquire();
+    ResultSetFuture future;
+    try {
+      future = session.executeAsync(stmt);
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+    Futures.addCallback(future, new FutureCallback<ResultSet>() {
+      @Override public void onSuccess(ResultSet result) {
+        permits.release();
+      }
+
+      @Override public void onFailure(Throwable t) {
+        // batch 失败时拆成单条重写，不计入重试次数
+        boolean single = writes.size() == 1;
+        for (PendingWrite write : writes) {
+          if (single) {
+            write.attempts++;
+          }
+          write.lastError = t;
+          failedWrite.add(write);
+        }
+        // 先登记再归还许可，awaitAll 拿回全部许可时失败语句一定已经入队
+        permits.release();
+      }
+    }, MoreExecutors.directExecutor());
+  }
+
+  private void drainFailed() throws InterruptedException {
+    int maxAttempts = 0;
+    PendingWrite write;
+    while ((write = failedWrite.poll()) != null) {
+      if (write.attempts > retryTimes
+          || write.lastError instanceof QueryValidationException) {
+        dirtyCount++;
+        taskPluginCollector.collectDirtyRecord(write.record, write.lastError);
+        continue;
+      }
+      if (write.attempts > maxAttempts) {
+        // 每一轮只退避一次，避免节点故障时逐条 sleep
+        maxAttempts = write.attempts;
+        Thread.sleep(Math.min(MAX_RETRY_INTERVAL_MS, RETRY_INTERVAL_MS * maxAttempts));
+      }
+      if (write.attempts > 0) {
+        retryCount++;
+        LOG.debug("写入失败，第{}次重试.", write.attempts, write.lastError);
+      }
+      send(Collections.singletonList(write));
+    }
+  }
+}
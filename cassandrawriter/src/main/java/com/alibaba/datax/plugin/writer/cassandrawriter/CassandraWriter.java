@@ -1,8 +1,12 @@
 package com.alibaba.datax.plugin.writer.cassandrawriter;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.Set;
 
 import com.alibaba.datax.common.element.Column;
 import com.alibaba.datax.common.element.Record;
@@ -11,17 +15,18 @@ import com.alibaba.datax.common.plugin.RecordReceiver;
 import com.alibaba.datax.common.spi.Writer;
 import com.alibaba.datax.common.util.Configuration;
 
-import com.datastax.driver.core.BatchStatement;
-import com.datastax.driver.core.BatchStatement.Type;
+import com.alibaba.datax.plugin.writer.cassandrawriter.CassandraWriteWindow.PendingWrite;
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.CodecRegistry;
 import com.datastax.driver.core.ColumnMetadata;
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.Host;
 import com.datastax.driver.core.HostDistance;
 import com.datastax.driver.core.PoolingOptions;
 import com.datastax.driver.core.PreparedStatement;
-import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.ProtocolVersion;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.TableMetadata;
 import com.datastax.driver.core.querybuilder.Insert;
@@ -59,6 +64,12 @@ public class CassandraWriter extends Writer {
   }
 
   public static class Task extends Writer.Task {
+    /**
+     * 分组缓冲的记录总数达到 batchSize 的这个倍数时，把所有分组都提交出去
+     */
+    private static final int BATCH_BUFFER_FACTOR = 10;
+    private static final Object NO_ROUTING_KEY = new Object();
+
     private Configuration taskConfig;
     private Cluster cluster = null;
     private Session session = null;
@@ -69,10 +80,24 @@ public class CassandraWriter extends Writer {
     private int writeTimeCol = -1;
     private boolean asyncWrite = false;
     private long batchSize = 1;
-    private List<ResultSetFuture> unConfirmedWrite;
-    private List<BoundStatement> bufferedWrite;
+    private String keyspace;
+    private boolean groupByReplica = true;
+    private int maxInFlight;
+    private int retryTimes;
+    private ProtocolVersion protocolVersion;
+    private CodecRegistry codecRegistry;
+    private CassandraWriteWindow writeWindow;
+    private Map<Object, List<PendingWrite>> groupedWrite;
+    private long bufferedCount = 0;
 
     @Override public void startWrite(RecordReceiver lineReceiver) {
+      if( batchSize > 1 ) {
+        writeWindow = new CassandraWriteWindow(session, maxInFlight, retryTimes,
+            super.getTaskPluginCollector());
+        if( !asyncWrite ) {
+          groupedWrite = new HashMap<Object, List<PendingWrite>>();
+        }
+      }
       try {
         Record record;
         while ((record = lineReceiver.getFromReader()) != null) {
@@ -105,53 +130,70 @@ public class CassandraWriter extends Writer {
           }
           if( batchSize <= 1 ) {
             session.execute(boundStmt);
+          } else if( asyncWrite ) {
+            writeWindow.submit(Collections.singletonList(new PendingWrite(boundStmt, record)));
           } else {
-            if( asyncWrite ) {
-              unConfirmedWrite.add(session.executeAsync(boundStmt));
-              if (unConfirmedWrite.size() >= batchSize) {
-                for (ResultSetFuture write : unConfirmedWrite) {
-                  write.getUninterruptibly(10000, TimeUnit.MILLISECONDS);
-                }
-                unConfirmedWrite.clear();
-              }
-            } else {
-              bufferedWrite.add(boundStmt);
-              if( bufferedWrite.size() >= batchSize ) {
-                BatchStatement batchStatement = new BatchStatement(Type.UNLOGGED);
-                batchStatement.addAll(bufferedWrite);
-                try {
-                  session.execute(batchStatement);
-                } catch (Exception e ) {
-                  LOG.error("batch写入失败，尝试逐条写入.",e);
-                  for( BoundStatement stmt: bufferedWrite ) {
-                    session.execute(stmt);
-                  }
-                }
-                ///LOG.info("batch finished. size = " + bufferedWrite.size());
-                bufferedWrite.clear();
-              }
-            }
+            addToBatch(new PendingWrite(boundStmt, record));
           }
 
         }
-        if( unConfirmedWrite != null && unConfirmedWrite.size() > 0 ) {
-          for( ResultSetFuture write : unConfirmedWrite ) {
-            write.getUninterruptibly(10000, TimeUnit.MILLISECONDS);
+        if( writeWindow != null ) {
+          if( groupedWrite != null ) {
+            flushBatches();
           }
-          unConfirmedWrite.clear();
-        }
-        if( bufferedWrite !=null && bufferedWrite.size() > 0 ) {
-          BatchStatement batchStatement = new BatchStatement(Type.UNLOGGED);
-          batchStatement.addAll(bufferedWrite);
-          session.execute(batchStatement);
-          bufferedWrite.clear();
+          writeWindow.awaitAll();
         }
+      } catch (DataXException e) {
+        throw e;
       } catch (Exception e) {
         throw DataXException.asDataXException(
             CassandraWriterErrorCode.WRITE_DATA_ERROR, e);
       }
     }
 
+    /**
+     * 按分区键或副本集合把语句分组，某个分组满 batchSize 条时作为一个 UNLOGGED batch 提交，
+     * 避免一个 batch 跨越多个分区导致 coordinator 向其他节点扇出。
+     */
+    private void addToBatch(PendingWrite write) throws InterruptedException {
+      Object key = groupKey(write.statement);
+      List<PendingWrite> group = groupedWrite.get(key);
+      if( group == null ) {
+        group = new ArrayList<PendingWrite>();
+        groupedWrite.put(key, group);
+      }
+      group.add(write);
+      bufferedCount++;
+      if( group.size() >= batchSize ) {
+        groupedWrite.remove(key);
+        bufferedCount -= group.size();
+        writeWindow.submit(group);
+      }
+      if( bufferedCount >= batchSize * BATCH_BUFFER_FACTOR ) {
+        flushBatches();
+      }
+    }
+
+    private void flushBatches() throws InterruptedException {
+      for( List<PendingWrite> group : groupedWrite.values() ) {
+        writeWindow.submit(group);
+      }
+      groupedWrite.clear();
+      bufferedCount = 0;
+    }
+
+    private Object groupKey(BoundStatement boundStmt) {
+      ByteBuffer routingKey = boundStmt.getRoutingKey(protocolVersion, codecRegistry);
+      if( routingKey == null ) {
+        return NO_ROUTING_KEY;
+      }
+      if( !groupByReplica ) {
+        return routingKey;
+      }
+      Set<Host> replicas = cluster.getMetadata().getReplicas(keyspace, routingKey);
+      return replicas.isEmpty() ? NO_ROUTING_KEY : replicas;
+    }
+
 
     @Override public void init() {
       this.taskConfig = super.getPluginJobConf();
@@ -160,7 +202,7 @@ public class CassandraWriter extends Writer {
       String hosts = taskConfig.getString(Key.HOST);
       Integer port = taskConfig.getInt(Key.PORT,9042);
       boolean useSSL = taskConfig.getBool(Key.USESSL);
-      String keyspace = taskConfig.getString(Key.KEYSPACE);
+      keyspace = taskConfig.getString(Key.KEYSPACE);
       String table = taskConfig.getString(Key.TABLE);
       batchSize = taskConfig.getLong(Key.BATCH_SIZE,1);
       this.columnMeta = taskConfig.getList(Key.COLUMN,String.class);
@@ -170,6 +212,20 @@ public class CassandraWriter extends Writer {
 
       int connectionsPerHost = taskConfig.getInt(Key.CONNECTIONS_PER_HOST,8);
       int maxPendingPerConnection = taskConfig.getInt(Key.MAX_PENDING_CONNECTION,128);
+      maxInFlight = taskConfig.getInt(Key.MAX_IN_FLIGHT,
+          asyncWrite ? (int) Math.min(batchSize, Integer.MAX_VALUE) : connectionsPerHost);
+      retryTimes = taskConfig.getInt(Key.RETRY_TIMES,3);
+      String groupBy = taskConfig.getString(Key.BATCH_GROUP_BY,Key.BATCH_GROUP_BY_REPLICA);
+      if( Key.BATCH_GROUP_BY_PARTITION.equalsIgnoreCase(groupBy) ) {
+        groupByReplica = false;
+      } else if( !Key.BATCH_GROUP_BY_REPLICA.equalsIgnoreCase(groupBy) ) {
+        throw DataXException
+            .asDataXException(
+                CassandraWriterErrorCode.CONF_ERROR,
+                String.format(
+                    "batchGroupBy配置错误. 只支持 replica 或 partition，当前配置为 '%s' .",
+                    groupBy));
+      }
       PoolingOptions poolingOpts = new PoolingOptions()
           .setConnectionsPerHost(HostDistance.LOCAL, connectionsPerHost, connectionsPerHost)
           .setMaxRequestsPerConnection(HostDistance.LOCAL, maxPendingPerConnection)
@@ -224,14 +280,8 @@ public class CassandraWriter extends Writer {
       }
 
       statement = session.prepare(insertStmt);
-
-      if( batchSize > 1 ) {
-        if( asyncWrite ) {
-          unConfirmedWrite = new ArrayList<ResultSetFuture>();
-        } else {
-          bufferedWrite = new ArrayList<BoundStatement>();
-        }
-      }
+      protocolVersion = cluster.getConfiguration().getProtocolOptions().getProtocolVersion();
+      codecRegistry = cluster.getConfiguration().getCodecRegistry();
 
     }
 
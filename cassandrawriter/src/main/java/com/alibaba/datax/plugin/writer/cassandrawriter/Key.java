@@ -23,6 +23,20 @@ public class Key {
    * 异步写入的批次大小，默认1（不异步写入）
    */
   public final static String BATCH_SIZE = "batchSize";
+  /**
+   * 同时在途的异步请求数上限，asyncWrite时默认为batchSize，batch写入时默认为connectionsPerHost
+   */
+  public final static String MAX_IN_FLIGHT = "maxInFlight";
+  /**
+   * 单条语句写入失败后的重试次数，默认3
+   */
+  public final static String RETRY_TIMES = "retryTimes";
+  /**
+   * batch写入时语句的分组方式：replica（按副本集合，默认）或 partition（按分区键）
+   */
+  public final static String BATCH_GROUP_BY = "batchGroupBy";
+  public final static String BATCH_GROUP_BY_REPLICA = "replica";
+  public final static String BATCH_GROUP_BY_PARTITION = "partition";
 
   /**
    * 每个列的名字
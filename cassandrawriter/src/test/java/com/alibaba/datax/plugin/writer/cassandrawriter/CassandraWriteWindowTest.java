@@ -0,0 +1,286 @@
+package com.alibaba.datax.plugin.writer.cassandrawriter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+import com.alibaba.datax.plugin.writer.cassandrawriter.CassandraWriteWindow.PendingWrite;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.google.common.util.concurrent.AbstractFuture;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CassandraWriteWindowTest {
+
+  private Session session;
+  private final List<Statement> executed = Collections.synchronizedList(new ArrayList<Statement>());
+  private final List<FakeFuture> futures = Collections.synchronizedList(new ArrayList<FakeFuture>());
+  private final List<Record> dirtyRecords = Collections.synchronizedList(new ArrayList<Record>());
+  private final List<Throwable> dirtyErrors = Collections.synchronizedList(new ArrayList<Throwable>());
+  private final TaskPluginCollector collector = new TaskPluginCollector() {
+    @Override public void collectDirtyRecord(Record dirtyRecord, Throwable t, String errorMessage) {
+      dirtyRecords.add(dirtyRecord);
+      dirtyErrors.add(t);
+    }
+
+    @Override public void collectMessage(String key, String value) {
+    }
+  };
+
+  /**
+   * 决定每次 executeAsync 的结果：返回 null 表示写入成功；未设置时请求一直挂起，由用例自己完成 future
+   */
+  private interface Outcome {
+    Throwable apply(Statement stmt);
+  }
+
+  private Outcome outcome;
+
+  @Before
+  public void setUp() {
+    session = mock(Session.class);
+    when(session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+      @Override public ResultSetFuture answer(InvocationOnMock invocation) {
+        Statement stmt = (Statement) invocation.getArguments()[0];
+        executed.add(stmt);
+        FakeFuture future = new FakeFuture();
+        futures.add(future);
+        if (outcome != null) {
+          Throwable error = outcome.apply(stmt);
+          if (error == null) {
+            future.set(null);
+          } else {
+            future.setException(error);
+          }
+        }
+        return future;
+      }
+    });
+  }
+
+  @Test
+  public void testGroupedWritesSentAsOneBatch() throws Exception {
+    outcome = succeed();
+    CassandraWriteWindow window = new CassandraWriteWindow(session, 4, 3, collector);
+    List<PendingWrite> group = newWrites(3);
+    window.submit(group);
+    PendingWrite single = newWrites(1).get(0);
+    window.submit(Collections.singletonList(single));
+    window.awaitAll();
+
+    Assert.assertEquals(2, executed.size());
+    Assert.assertTrue(executed.get(0) instanceof BatchStatement);
+    BatchStatement batch = (BatchStatement) executed.get(0);
+    Assert.assertEquals(BatchStatement.Type.UNLOGGED, batch.getBatchType());
+    Assert.assertEquals(statementsOf(group), new ArrayList<Statement>(batch.getStatements()));
+    Assert.assertSame(single.statement, executed.get(1));
+    Assert.assertTrue(dirtyRecords.isEmpty());
+  }
+
+  @Test
+  public void testSubmitBlocksWhenWindowFull() throws Exception {
+    final CassandraWriteWindow window = new CassandraWriteWindow(session, 2, 0, collector);
+    window.submit(newWrites(1));
+    window.submit(newWrites(1));
+
+    final List<PendingWrite> third = newWrites(1);
+    Thread submitter = new Thread(new Runnable() {
+      @Override public void run() {
+        try {
+          window.submit(third);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    submitter.start();
+    submitter.join(200L);
+    Assert.assertTrue(submitter.isAlive());
+    Assert.assertEquals(2, executed.size());
+
+    // 任意一个请求完成后归还许可，第三个请求才能发出
+    futures.get(1).set(null);
+    submitter.join(TimeUnit.SECONDS.toMillis(10));
+    Assert.assertFalse(submitter.isAlive());
+    Assert.assertEquals(3, executed.size());
+
+    futures.get(0).set(null);
+    futures.get(2).set(null);
+    window.awaitAll();
+    Assert.assertTrue(dirtyRecords.isEmpty());
+  }
+
+  @Test
+  public void testFailedBatchRetriedAsSingleStatements() throws Exception {
+    // 只有 batch 失败，拆开后的单条写入成功
+    outcome = new Outcome() {
+      @Override public Throwable apply(Statement stmt) {
+        return stmt instanceof BatchStatement ? new RuntimeException("batch too large") : null;
+      }
+    };
+    CassandraWriteWindow window = new CassandraWriteWindow(session, 4, 0, collector);
+    List<PendingWrite> group = newWrites(3);
+    window.submit(group);
+    window.awaitAll();
+
+    Assert.assertEquals(4, executed.size());
+    Assert.assertEquals(statementsOf(group), new ArrayList<Statement>(executed.subList(1, 4)));
+    for (PendingWrite write : group) {
+      Assert.assertEquals(0, write.attempts);
+    }
+    Assert.assertTrue(dirtyRecords.isEmpty());
+  }
+
+  @Test
+  public void testSingleStatementRetriedThenDirty() throws Exception {
+    final RuntimeException error = new RuntimeException("timeout");
+    outcome = new Outcome() {
+      @Override public Throwable apply(Statement stmt) {
+        return error;
+      }
+    };
+    CassandraWriteWindow window = new CassandraWriteWindow(session, 4, 2, collector);
+    List<PendingWrite> group = newWrites(2);
+    window.submit(group);
+    window.awaitAll();
+
+    // 1 个 batch，拆开后每条首次写入 1 次，再各重试 2 次
+    Assert.assertEquals(1 + 2 * 3, executed.size());
+    Assert.assertEquals(recordsOf(group), sorted(dirtyRecords, group));
+    for (Throwable t : dirtyErrors) {
+      Assert.assertSame(error, t);
+    }
+  }
+
+  @Test
+  public void testRetrySucceeds() throws Exception {
+    final int[] failures = new int[]{2};
+    outcome = new Outcome() {
+      @Override public Throwable apply(Statement stmt) {
+        return failures[0]-- > 0 ? new RuntimeException("overloaded") : null;
+      }
+    };
+    CassandraWriteWindow window = new CassandraWriteWindow(session, 4, 2, collector);
+    PendingWrite write = newWrites(1).get(0);
+    window.submit(Collections.singletonList(write));
+    window.awaitAll();
+
+    Assert.assertEquals(3, executed.size());
+    Assert.assertEquals(2, write.attempts);
+    Assert.assertTrue(dirtyRecords.isEmpty());
+  }
+
+  @Test
+  public void testValidationErrorNotRetried() throws Exception {
+    outcome = new Outcome() {
+      @Override public Throwable apply(Statement stmt) {
+        return new InvalidQueryException("unconfigured table");
+      }
+    };
+    CassandraWriteWindow window = new CassandraWriteWindow(session, 4, 5, collector);
+    PendingWrite write = newWrites(1).get(0);
+    window.submit(Collections.singletonList(write));
+    window.awaitAll();
+
+    Assert.assertEquals(1, executed.size());
+    Assert.assertEquals(Collections.singletonList(write.record), dirtyRecords);
+    Assert.assertTrue(dirtyErrors.get(0) instanceof InvalidQueryException);
+  }
+
+  @Test
+  public void testExecuteFailureReleasesPermit() throws Exception {
+    Session brokenSession = mock(Session.class);
+    when(brokenSession.executeAsync(any(Statement.class))).thenThrow(new IllegalStateException("closed"));
+    CassandraWriteWindow window = new CassandraWriteWindow(brokenSession, 1, 0, collector);
+    for (int i = 0; i < 2; i++) {
+      try {
+        window.submit(newWrites(1));
+        Assert.fail();
+      } catch (IllegalStateException e) {
+        Assert.assertEquals("closed", e.getMessage());
+      }
+    }
+    window.awaitAll();
+  }
+
+  private Outcome succeed() {
+    return new Outcome() {
+      @Override public Throwable apply(Statement stmt) {
+        return null;
+      }
+    };
+  }
+
+  private static List<PendingWrite> newWrites(int count) {
+    List<PendingWrite> writes = new ArrayList<PendingWrite>();
+    for (int i = 0; i < count; i++) {
+      writes.add(new PendingWrite(mock(BoundStatement.class), mock(Record.class)));
+    }
+    return writes;
+  }
+
+  private static List<Statement> statementsOf(List<PendingWrite> writes) {
+    List<Statement> statements = new ArrayList<Statement>();
+    for (PendingWrite write : writes) {
+      statements.add(write.statement);
+    }
+    return statements;
+  }
+
+  private static List<Record> recordsOf(List<PendingWrite> writes) {
+    List<Record> records = new ArrayList<Record>();
+    for (PendingWrite write : writes) {
+      records.add(write.record);
+    }
+    return records;
+  }
+
+  /**
+   * 重试的先后顺序不固定，按提交顺序排列后再比较
+   */
+  private static List<Record> sorted(List<Record> records, List<PendingWrite> order) {
+    List<Record> result = new ArrayList<Record>();
+    for (Record record : recordsOf(order)) {
+      if (records.contains(record)) {
+        result.add(record);
+      }
+    }
+    Assert.assertEquals(records.size(), result.size());
+    return result;
+  }
+
+  private static class FakeFuture extends AbstractFuture<ResultSet> implements ResultSetFuture {
+    @Override public boolean set(ResultSet value) {
+      return super.set(value);
+    }
+
+    @Override public boolean setException(Throwable throwable) {
+      return super.setException(throwable);
+    }
+
+    @Override public ResultSet getUninterruptibly() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public ResultSet getUninterruptibly(long timeout, TimeUnit unit) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
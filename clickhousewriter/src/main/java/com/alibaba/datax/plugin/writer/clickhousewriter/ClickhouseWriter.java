@@ -10,6 +10,7 @@ import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.datax.plugin.rdbms.util.DBUtilErrorCode;
 import com.alibaba.datax.plugin.rdbms.util.DataBaseType;
 import com.alibaba.datax.plugin.rdbms.writer.CommonRdbmsWriter;
+import com.alibaba.datax.plugin.writer.clickhousewriter.rowbinary.RowBinaryWriter;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 
@@ -62,10 +63,23 @@ public class ClickhouseWriter extends Writer {
 
 		private CommonRdbmsWriter.Task commonRdbmsWriterSlave;
 
+		/**
+		 * writeFormat 为 rowBinary 时不为 null, 写入数据不再经过 JDBC, preSql/postSql 仍由 commonRdbmsWriterSlave 执行
+		 */
+		private RowBinaryWriter rowBinaryWriter;
+
 		@Override
 		public void init() {
 			this.writerSliceConfig = super.getPluginJobConf();
 
+			String writeFormat = this.writerSliceConfig.getString(Key.WRITE_FORMAT, Constant.WRITE_FORMAT_JDBC);
+			if (Constant.WRITE_FORMAT_ROW_BINARY.equalsIgnoreCase(writeFormat)) {
+				this.rowBinaryWriter = new RowBinaryWriter(this.writerSliceConfig);
+			} else if (!Constant.WRITE_FORMAT_JDBC.equalsIgnoreCase(writeFormat)) {
+				throw DataXException.asDataXException(DBUtilErrorCode.CONF_ERROR,
+						String.format("不支持的写入方式 writeFormat:[%s], 仅支持 jdbc 或 rowBinary.", writeFormat));
+			}
+
 			this.commonRdbmsWriterSlave = new CommonRdbmsWriter.Task(DATABASE_TYPE) {
 				@Override
 				protected PreparedStatement fillPreparedStatementColumnType(PreparedStatement preparedStatement, int columnIndex, int columnSqltype, Column column) throws SQLException {
@@ -303,6 +317,9 @@ public class ClickhouseWriter extends Writer {
 			};
 
 			this.commonRdbmsWriterSlave.init(this.writerSliceConfig);
+			if (this.rowBinaryWriter != null) {
+				this.rowBinaryWriter.init();
+			}
 		}
 
 		@Override
@@ -312,6 +329,10 @@ public class ClickhouseWriter extends Writer {
 
 		@Override
 		public void startWrite(RecordReceiver recordReceiver) {
+			if (this.rowBinaryWriter != null) {
+				this.rowBinaryWriter.startWrite(recordReceiver, super.getTaskPluginCollector());
+				return;
+			}
 			this.commonRdbmsWriterSlave.startWrite(recordReceiver, this.writerSliceConfig, super.getTaskPluginCollector());
 		}
 
@@ -4,6 +4,9 @@ import com.alibaba.datax.common.spi.ErrorCode;
 
 public enum ClickhouseWriterErrorCode implements ErrorCode {
 	TUPLE_NOT_SUPPORTED_ERROR("ClickhouseWriter-00", "不支持TUPLE类型导入."),
+	UNSUPPORTED_TYPE_ERROR("ClickhouseWriter-01", "RowBinary写入不支持该字段类型."),
+	VALUE_CONVERT_ERROR("ClickhouseWriter-02", "字段值无法转换为目标字段类型."),
+	INSERT_ERROR("ClickhouseWriter-03", "RowBinary写入ClickHouse失败."),
 	;
 
 	private final String code;
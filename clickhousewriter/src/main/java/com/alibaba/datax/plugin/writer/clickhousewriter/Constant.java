@@ -0,0 +1,24 @@
+package com.alibaba.datax.plugin.writer.clickhousewriter;
+
+public final class Constant {
+	public static final String WRITE_FORMAT_JDBC = "jdbc";
+
+	public static final String WRITE_FORMAT_ROW_BINARY = "rowBinary";
+
+	public static final String COMPRESS_NONE = "none";
+
+	public static final String COMPRESS_GZIP = "gzip";
+
+	public static final long DEFAULT_BLOCK_BYTE_SIZE = 256L * 1024 * 1024;
+
+	/**
+	 * 编码缓冲区超过该大小时写出到 HTTP 流
+	 */
+	public static final int FLUSH_BUFFER_SIZE = 1024 * 1024;
+
+	public static final int HTTP_CHUNK_SIZE = 64 * 1024;
+
+	public static final int CONNECT_TIMEOUT_MS = 60 * 1000;
+
+	public static final int DEFAULT_SOCKET_TIMEOUT_MS = 30 * 60 * 1000;
+}
@@ -0,0 +1,18 @@
+package com.alibaba.datax.plugin.writer.clickhousewriter;
+
+public final class Key {
+	/**
+	 * 写入方式: jdbc(默认, 逐行绑定参数) 或 rowBinary(按表结构直接编码为 RowBinary, 通过 HTTP 流式写入)
+	 */
+	public final static String WRITE_FORMAT = "writeFormat";
+
+	/**
+	 * rowBinary 写入时请求体的压缩方式: none(默认) 或 gzip
+	 */
+	public final static String COMPRESS = "compress";
+
+	/**
+	 * rowBinary 写入时单次 INSERT 的编码后字节数上限, 默认 256m
+	 */
+	public final static String BLOCK_BYTE_SIZE = "blockByteSize";
+}
@@ -0,0 +1,104 @@
+package com.alibaba.datax.plugin.writer.clickhousewriter.rowbinary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * RowBinary 编码缓冲区, 数值均为小端序。
+ * 编码失败的行通过 truncate 回退到行首, 不会写出半行数据。
+ */
+public class RowBinaryBuffer {
+	private byte[] buf;
+
+	private int size = 0;
+
+	public RowBinaryBuffer(int initialCapacity) {
+		this.buf = new byte[Math.max(64, initialCapacity)];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public void truncate(int newSize) {
+		this.size = newSize;
+	}
+
+	public void reset() {
+		this.size = 0;
+	}
+
+	private void ensureCapacity(int extra) {
+		int required = this.size + extra;
+		if (required > this.buf.length) {
+			this.buf = Arrays.copyOf(this.buf, Math.max(required, this.buf.length << 1));
+		}
+	}
+
+	public void writeByte(int v) {
+		ensureCapacity(1);
+		this.buf[this.size++] = (byte) v;
+	}
+
+	public void writeShort(int v) {
+		ensureCapacity(2);
+		this.buf[this.size++] = (byte) v;
+		this.buf[this.size++] = (byte) (v >>> 8);
+	}
+
+	public void writeInt(int v) {
+		ensureCapacity(4);
+		this.buf[this.size++] = (byte) v;
+		this.buf[this.size++] = (byte) (v >>> 8);
+		this.buf[this.size++] = (byte) (v >>> 16);
+		this.buf[this.size++] = (byte) (v >>> 24);
+	}
+
+	public void writeLong(long v) {
+		ensureCapacity(8);
+		for (int i = 0; i < 8; i++) {
+			this.buf[this.size++] = (byte) (v >>> (i * 8));
+		}
+	}
+
+	public void writeFloat(float v) {
+		writeInt(Float.floatToIntBits(v));
+	}
+
+	public void writeDouble(double v) {
+		writeLong(Double.doubleToLongBits(v));
+	}
+
+	/**
+	 * 无符号 LEB128, 用于 String 与 Array 的长度
+	 */
+	public void writeVarUInt(long v) {
+		ensureCapacity(10);
+		while ((v & ~0x7FL) != 0) {
+			this.buf[this.size++] = (byte) ((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		this.buf[this.size++] = (byte) v;
+	}
+
+	public void writeBytes(byte[] bytes) {
+		writeBytes(bytes, 0, bytes.length);
+	}
+
+	public void writeBytes(byte[] bytes, int offset, int length) {
+		ensureCapacity(length);
+		System.arraycopy(bytes, offset, this.buf, this.size, length);
+		this.size += length;
+	}
+
+	public void writeZeros(int length) {
+		ensureCapacity(length);
+		Arrays.fill(this.buf, this.size, this.size + length, (byte) 0);
+		this.size += length;
+	}
+
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(this.buf, 0, this.size);
+	}
+}
@@ -0,0 +1,589 @@
+package com.alibaba.datax.plugin.writer.clickhousewriter.rowbinary;
+
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.plugin.writer.clickhousewriter.ClickhouseWriterErrorCode;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 单列的 RowBinary 编码器, 由 ClickHouse 字段类型(DESCRIBE TABLE 的 type 列)解析得到, 每个 task 只解析一次。
+ * <p/>
+ * 非 Nullable 字段写入 null 时按 ClickHouse 的 null_as_default 语义写入类型默认值(0、空串、空数组, Enum 为第一个枚举值)。
+ * Date 按 JVM 默认时区计算日期, DateTime/DateTime64 写入绝对时间戳, 与 JDBC 写入方式一致。
+ */
+public abstract class RowBinaryColumnEncoder {
+	private static final long MILLIS_PER_DAY = 24L * 3600 * 1000;
+
+	private static final Pattern ENUM_ENTRY = Pattern.compile("'((?:[^'\\\\]|\\\\.)*)'\\s*=\\s*(-?\\d+)");
+
+	private static final Pattern DECIMAL_PS = Pattern.compile("Decimal\\(\\s*(\\d+)\\s*,\\s*(\\d+)\\s*\\)");
+
+	private static final Pattern DECIMAL_N = Pattern.compile("Decimal(32|64|128|256)\\(\\s*(\\d+)\\s*\\)");
+
+	private static final Pattern DATETIME64 = Pattern.compile("DateTime64\\(\\s*(\\d+)\\s*(,.*)?\\)");
+
+	private static final Pattern FIXED_STRING = Pattern.compile("FixedString\\(\\s*(\\d+)\\s*\\)");
+
+	protected final String type;
+
+	/**
+	 * 数值与时间类型遇到空字符串时是否按 null 处理, 对应 emptyAsNull 配置
+	 */
+	protected final boolean emptyAsNull;
+
+	protected RowBinaryColumnEncoder(String type, boolean emptyAsNull) {
+		this.type = type;
+		this.emptyAsNull = emptyAsNull;
+	}
+
+	public String getType() {
+		return this.type;
+	}
+
+	public void write(Column column, RowBinaryBuffer out) {
+		if (isNull(column)) {
+			writeDefault(out);
+		} else {
+			writeValue(column, out);
+		}
+	}
+
+	protected boolean isNull(Column column) {
+		if (column == null || column.getRawData() == null) {
+			return true;
+		}
+		return this.emptyAsNull && column.getType() == Column.Type.STRING && "".equals(column.getRawData());
+	}
+
+	protected abstract void writeValue(Column column, RowBinaryBuffer out);
+
+	protected abstract void writeDefault(RowBinaryBuffer out);
+
+	public static RowBinaryColumnEncoder create(String type, boolean emptyAsNull) {
+		String t = type.trim();
+		if (t.startsWith("Nullable(")) {
+			return new NullableEncoder(t, create(unwrap(t, "Nullable"), emptyAsNull));
+		}
+		if (t.startsWith("LowCardinality(")) {
+			// RowBinary 中 LowCardinality 与其内部类型编码相同
+			return create(unwrap(t, "LowCardinality"), emptyAsNull);
+		}
+		if (t.startsWith("Array(")) {
+			return new ArrayEncoder(t, create(unwrap(t, "Array"), emptyAsNull));
+		}
+		if (t.startsWith("Tuple(")) {
+			throw DataXException.asDataXException(ClickhouseWriterErrorCode.TUPLE_NOT_SUPPORTED_ERROR,
+					ClickhouseWriterErrorCode.TUPLE_NOT_SUPPORTED_ERROR.getDescription());
+		}
+		if (t.startsWith("Enum8(") || t.startsWith("Enum16(")) {
+			return new EnumEncoder(t, t.startsWith("Enum8(") ? 1 : 2);
+		}
+		if (t.startsWith("FixedString(")) {
+			return new FixedStringEncoder(t, Integer.parseInt(matchOrFail(FIXED_STRING, t).group(1)));
+		}
+		if (t.startsWith("DateTime64(")) {
+			return new DateTime64Encoder(t, emptyAsNull, Integer.parseInt(matchOrFail(DATETIME64, t).group(1)));
+		}
+		if (t.equals("DateTime") || t.startsWith("DateTime(")) {
+			return new DateTimeEncoder(t, emptyAsNull);
+		}
+		if (t.startsWith("Decimal(")) {
+			Matcher m = matchOrFail(DECIMAL_PS, t);
+			int precision = Integer.parseInt(m.group(1));
+			int bytes = precision <= 9 ? 4 : precision <= 18 ? 8 : precision <= 38 ? 16 : 32;
+			return new DecimalEncoder(t, emptyAsNull, Integer.parseInt(m.group(2)), bytes);
+		}
+		if (t.startsWith("Decimal")) {
+			Matcher m = matchOrFail(DECIMAL_N, t);
+			return new DecimalEncoder(t, emptyAsNull, Integer.parseInt(m.group(2)), Integer.parseInt(m.group(1)) / 8);
+		}
+		if (t.equals("String")) {
+			return new StringEncoder(t);
+		}
+		if (t.equals("Int8") || t.equals("UInt8")) {
+			return new IntegerEncoder(t, emptyAsNull, 1, t.startsWith("U"));
+		}
+		if (t.equals("Int16") || t.equals("UInt16")) {
+			return new IntegerEncoder(t, emptyAsNull, 2, t.startsWith("U"));
+		}
+		if (t.equals("Int32") || t.equals("UInt32")) {
+			return new IntegerEncoder(t, emptyAsNull, 4, t.startsWith("U"));
+		}
+		if (t.equals("Int64") || t.equals("UInt64")) {
+			return new IntegerEncoder(t, emptyAsNull, 8, t.startsWith("U"));
+		}
+		if (t.equals("Float32")) {
+			return new FloatEncoder(t, emptyAsNull, false);
+		}
+		if (t.equals("Float64")) {
+			return new FloatEncoder(t, emptyAsNull, true);
+		}
+		if (t.equals("Bool") || t.equals("Boolean")) {
+			return new BoolEncoder(t, emptyAsNull);
+		}
+		if (t.equals("Date")) {
+			return new DateEncoder(t, emptyAsNull, false);
+		}
+		if (t.equals("Date32")) {
+			return new DateEncoder(t, emptyAsNull, true);
+		}
+		if (t.equals("UUID")) {
+			return new UuidEncoder(t, emptyAsNull);
+		}
+		throw DataXException.asDataXException(ClickhouseWriterErrorCode.UNSUPPORTED_TYPE_ERROR,
+				String.format("RowBinary 写入不支持字段类型:[%s], 请改用 writeFormat=jdbc 或者不同步该字段.", type));
+	}
+
+	private static String unwrap(String t, String wrapper) {
+		return t.substring(wrapper.length() + 1, t.length() - 1).trim();
+	}
+
+	private static Matcher matchOrFail(Pattern pattern, String t) {
+		Matcher m = pattern.matcher(t);
+		if (!m.matches()) {
+			throw DataXException.asDataXException(ClickhouseWriterErrorCode.UNSUPPORTED_TYPE_ERROR,
+					String.format("无法解析字段类型:[%s].", t));
+		}
+		return m;
+	}
+
+	protected DataXException convertError(Column column, String reason) {
+		return DataXException.asDataXException(ClickhouseWriterErrorCode.VALUE_CONVERT_ERROR,
+				String.format("值[%s]无法写入类型[%s]: %s", column.getRawData(), this.type, reason));
+	}
+
+	/**
+	 * 把任意精度整数按小端补码写入 bytes 字节, 超出范围时报错
+	 */
+	protected static boolean writeBigInteger(BigInteger value, int bytes, RowBinaryBuffer out) {
+		byte[] be = value.toByteArray();
+		if (be.length > bytes) {
+			return false;
+		}
+		byte pad = (byte) (value.signum() < 0 ? 0xFF : 0x00);
+		for (int i = be.length - 1; i >= 0; i--) {
+			out.writeByte(be[i]);
+		}
+		for (int i = be.length; i < bytes; i++) {
+			out.writeByte(pad);
+		}
+		return true;
+	}
+
+	static class NullableEncoder extends RowBinaryColumnEncoder {
+		private final RowBinaryColumnEncoder inner;
+
+		NullableEncoder(String type, RowBinaryColumnEncoder inner) {
+			super(type, inner.emptyAsNull);
+			this.inner = inner;
+		}
+
+		@Override
+		public void write(Column column, RowBinaryBuffer out) {
+			if (this.inner.isNull(column)) {
+				out.writeByte(1);
+			} else {
+				out.writeByte(0);
+				this.inner.writeValue(column, out);
+			}
+		}
+
+		@Override
+		protected void writeValue(Column column, RowBinaryBuffer out) {
+			write(column, out);
+		}
+
+		@Override
+		protected void writeDefault(RowBinaryBuffer out) {
+			out.writeByte(1);
+		}
+	}
+
+	static class ArrayEncoder extends RowBinaryColumnEncoder {
+		private final RowBinaryColumnEncoder element;
+
+		ArrayEncoder(String type, RowBinaryColumnEncoder element) {
+			super(type, false);
+			this.element = element;
+		}
+
+		@Override
+		protected void writeValue(Column column, RowBinaryBuffer out) {
+			JSONArray values;
+			try {
+				values = JSON.parseArray(column.asString());
+			} catch (Exception e) {
+				throw convertError(column, "Array 类型的值需要是 JSON 数组");
+			}
+			out.writeVarUInt(values.size());
+			for (Object value : values) {
+				this.element.write(toColumn(value), out);
+			}
+		}
+
+		@Override
+		protected void writeDefault(RowBinaryBuffer out) {
+			out.writeVarUInt(0);
+		}
+
+		private static Column toColumn(Object value) {
+			if (value == null) {
+				return new StringColumn(null);
+			} else if (value instanceof Boolean) {
+				return new BoolColumn((Boolean) value);
+			} else if (value instanceof BigDecimal) {
+				return new DoubleColumn((BigDecimal) value);
+			} else if (value instanceof Float || value instanceof Double) {
+				return new DoubleColumn(value.toString());
+			} else if (value instanceof BigInteger) {
+				return new LongColumn((BigInteger) value);
+			} else if (value instanceof Number) {
+				return new LongColumn(((Number) value).longValue());
+			} else if (value instanceof JSONArray) {
+				return new StringColumn(((JSONArray) value).toJSONString());
+			}
+			return new StringColumn(value.toString());
+		}
+	}
+
+	static class StringEncoder extends RowBinaryColumnEncoder {
+		StringEncoder(String type) {
+			super(type, false);
+		}
+
+		@Override
+		protected void writeValue(Column column, RowBinaryBuffer out) {
+			byte[] bytes = column.getType() == Column.Type.BYTES
+					? column.asBytes() : column.asString().getBytes(StandardCharsets.UTF_8);
+			out.writeVarUInt(bytes.length);
+			out.writeBytes(bytes);
+		}
+
+		@Override
+		protected void writeDefault(RowBinaryBuffer out) {
+			out.writeVarUInt(0);
+		}
+	}
+
+	static class FixedStringEncoder extends RowBinaryColumnEncoder {
+		private final int length;
+
+		FixedStringEncoder(String type, int length) {
+			super(type, false);
+			this.length = length;
+		}
+
+		@Override
+		protected void writeValue(Column column, RowBinaryBuffer out) {
+			byte[] bytes = column.getType() == Column.Type.BYTES
+					? column.asBytes() : column.asString().getBytes(StandardCharsets.UTF_8);
+			if (bytes.length > this.length) {
+				throw convertError(column, "长度超过 " + this.length + " 字节");
+			}
+			out.writeBytes(bytes);
+			out.writeZeros(this.length - bytes.length);
+		}
+
+		@Override
+		protected void writeDefault(RowBinaryBuffer out) {
+			out.writeZeros(this.length);
+		}
+	}
+
+	static class IntegerEncoder extends RowBinaryColumnEncoder {
+		private final int bytes;
+
+		private final boolean unsigned;
+
+		IntegerEncoder(String type, boolean emptyAsNull, int bytes, boolean unsigned) {
+			super(type, emptyAsNull);
+			this.bytes = bytes;
+			this.unsigned = unsigned;
+		}
+
+		@Override
+		protected void writeValue(Column column, RowBinaryBuffer out) {
+			if (this.bytes == 8) {
+				BigInteger value = column.asBigInteger();
+				boolean inRange = this.unsigned
+						? value.signum() >= 0 && value.bitLength() <= 64
+						: value.bitLength() <= 63;
+				if (!inRange) {
+					throw convertError(column, "超出取值范围");
+				}
+				out.writeLong(value.longValue());
+				return;
+			}
+			long value = column.asLong();
+			int bits = this.bytes * 8;
+			long min = this.unsigned ? 0 : -(1L << (bits - 1));
+			long max = this.unsigned ? (1L << bits) - 1 : (1L << (bits - 1)) - 1;
+			if (value < min || value > max) {
+				throw convertError(column, "超出取值范围");
+			}
+			switch (this.bytes) {
+				case 1:
+					out.writeByte((int) value);
+					break;
+				case 2:
+					out.writeShort((int) value);
+					break;
+				default:
+					out.writeInt((int) value);
+					break;
+			}
+		}
+
+		@Override
+		protected void writeDefault(RowBinaryBuffer out) {
+			out.writeZeros(this.bytes);
+		}
+	}
+
+	static class FloatEncoder extends RowBinaryColumnEncoder {
+		private final boolean isDouble;
+
+		FloatEncoder(String type, boolean emptyAsNull, boolean isDouble) {
+			super(type, emptyAsNull);
+			this.isDouble = isDouble;
+		}
+
+		@Override
+		protected void writeValue(Column column, RowBinaryBuffer out) {
+			if (this.isDouble) {
+				out.writeDouble(column.asDouble());
+			} else {
+				out.writeFloat(column.asDouble().floatValue());
+			}
+		}
+
+		@Override
+		protected void writeDefault(RowBinaryBuffer out) {
+			out.writeZeros(this.isDouble ? 8 : 4);
+		}
+	}
+
+	static class BoolEncoder extends RowBinaryColumnEncoder {
+		BoolEncoder(String type, boolean emptyAsNull) {
+			super(type, emptyAsNull);
+		}
+
+		@Override
+		protected void writeValue(Column column, RowBinaryBuffer out) {
+			out.writeByte(column.asBoolean() ? 1 : 0);
+		}
+
+		@Override
+		protected void writeDefault(RowBinaryBuffer out) {
+			out.writeByte(0);
+		}
+	}
+
+	static class DecimalEncoder extends RowBinaryColumnEncoder {
+		private final int scale;
+
+		private final int bytes;
+
+		DecimalEncoder(String type, boolean emptyAsNull, int scale, int bytes) {
+			super(type, emptyAsNull);
+			this.scale = scale;
+			this.bytes = bytes;
+		}
+
+		@Override
+		protected void writeValue(Column column, RowBinaryBuffer out) {
+			BigInteger unscaled = column.asBigDecimal().setScale(this.scale, RoundingMode.HALF_UP).unscaledValue();
+			if (this.bytes == 4 && unscaled.bitLength() <= 31) {
+				out.writeInt(unscaled.intValue());
+			} else if (this.bytes == 8 && unscaled.bitLength() <= 63) {
+				out.writeLong(unscaled.longValue());
+			} else if (this.bytes <= 8 || !writeBigInteger(unscaled, this.bytes, out)) {
+				throw convertError(column, "超出精度范围");
+			}
+		}
+
+		@Override
+		protected void writeDefault(RowBinaryBuffer out) {
+			out.writeZeros(this.bytes);
+		}
+	}
+
+	static class DateEncoder extends RowBinaryColumnEncoder {
+		private final boolean date32;
+
+		DateEncoder(String type, boolean emptyAsNull, boolean date32) {
+			super(type, emptyAsNull);
+			this.date32 = date32;
+		}
+
+		@Override
+		protected void writeValue(Column column, RowBinaryBuffer out) {
+			Date date = column.asDate();
+			long millis = date.getTime();
+			long localMillis = millis + TimeZone.getDefault().getOffset(millis);
+			long days = Math.floorDiv(localMillis, MILLIS_PER_DAY);
+			if (this.date32) {
+				out.writeInt((int) days);
+			} else {
+				if (days < 0 || days > 0xFFFF) {
+					throw convertError(column, "超出 Date 取值范围");
+				}
+				out.writeShort((int) days);
+			}
+		}
+
+		@Override
+		protected void writeDefault(RowBinaryBuffer out) {
+			out.writeZeros(this.date32 ? 4 : 2);
+		}
+	}
+
+	static class DateTimeEncoder extends RowBinaryColumnEncoder {
+		DateTimeEncoder(String type, boolean emptyAsNull) {
+			super(type, emptyAsNull);
+		}
+
+		@Override
+		protected void writeValue(Column column, RowBinaryBuffer out) {
+			long seconds = Math.floorDiv(column.asDate().getTime(), 1000L);
+			if (seconds < 0 || seconds > 0xFFFFFFFFL) {
+				throw convertError(column, "超出 DateTime 取值范围");
+			}
+			out.writeInt((int) seconds);
+		}
+
+		@Override
+		protected void writeDefault(RowBinaryBuffer out) {
+			out.writeZeros(4);
+		}
+	}
+
+	static class DateTime64Encoder extends RowBinaryColumnEncoder {
+		private final int precision;
+
+		DateTime64Encoder(String type, boolean emptyAsNull, int precision) {
+			super(type, emptyAsNull);
+			this.precision = precision;
+		}
+
+		@Override
+		protected void writeValue(Column column, RowBinaryBuffer out) {
+			long millis = column.asDate().getTime();
+			long ticks;
+			if (this.precision >= 3) {
+				ticks = millis * BigInteger.TEN.pow(this.precision - 3).longValue();
+			} else {
+				ticks = Math.floorDiv(millis, BigInteger.TEN.pow(3 - this.precision).longValue());
+			}
+			out.writeLong(ticks);
+		}
+
+		@Override
+		protected void writeDefault(RowBinaryBuffer out) {
+			out.writeZeros(8);
+		}
+	}
+
+	static class UuidEncoder extends RowBinaryColumnEncoder {
+		UuidEncoder(String type, boolean emptyAsNull) {
+			super(type, emptyAsNull);
+		}
+
+		@Override
+		protected void writeValue(Column column, RowBinaryBuffer out) {
+			UUID uuid;
+			try {
+				uuid = UUID.fromString(column.asString());
+			} catch (IllegalArgumentException e) {
+				throw convertError(column, "不是合法的 UUID");
+			}
+			out.writeLong(uuid.getMostSignificantBits());
+			out.writeLong(uuid.getLeastSignificantBits());
+		}
+
+		@Override
+		protected void writeDefault(RowBinaryBuffer out) {
+			out.writeZeros(16);
+		}
+	}
+
+	static class EnumEncoder extends RowBinaryColumnEncoder {
+		private final int bytes;
+
+		private final Map<String, Integer> nameToValue = new HashMap<String, Integer>();
+
+		private final Map<Integer, String> valueToName = new HashMap<Integer, String>();
+
+		private int defaultValue;
+
+		EnumEncoder(String type, int bytes) {
+			super(type, false);
+			this.bytes = bytes;
+			Matcher m = ENUM_ENTRY.matcher(type);
+			boolean first = true;
+			while (m.find()) {
+				String name = m.group(1).replace("\\'", "'").replace("\\\\", "\\");
+				int value = Integer.parseInt(m.group(2));
+				this.nameToValue.put(name, value);
+				this.valueToName.put(value, name);
+				if (first) {
+					this.defaultValue = value;
+					first = false;
+				}
+			}
+			if (first) {
+				throw DataXException.asDataXException(ClickhouseWriterErrorCode.UNSUPPORTED_TYPE_ERROR,
+						String.format("无法解析枚举类型:[%s].", type));
+			}
+		}
+
+		@Override
+		protected void writeValue(Column column, RowBinaryBuffer out) {
+			String name = column.asString();
+			Integer value = this.nameToValue.get(name);
+			if (value == null) {
+				try {
+					int number = Integer.parseInt(name.trim());
+					if (this.valueToName.containsKey(number)) {
+						value = number;
+					}
+				} catch (NumberFormatException ignored) {
+				}
+			}
+			if (value == null) {
+				throw convertError(column, "不是合法的枚举值");
+			}
+			writeEnum(value, out);
+		}
+
+		@Override
+		protected void writeDefault(RowBinaryBuffer out) {
+			writeEnum(this.defaultValue, out);
+		}
+
+		private void writeEnum(int value, RowBinaryBuffer out) {
+			if (this.bytes == 1) {
+				out.writeByte(value);
+			} else {
+				out.writeShort(value);
+			}
+		}
+	}
+}
@@ -0,0 +1,295 @@
+package com.alibaba.datax.plugin.writer.clickhousewriter.rowbinary;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.RecordReceiver;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.plugin.rdbms.util.DBUtil;
+import com.alibaba.datax.plugin.rdbms.util.DBUtilErrorCode;
+import com.alibaba.datax.plugin.rdbms.util.DataBaseType;
+import com.alibaba.datax.plugin.rdbms.writer.Key;
+import com.alibaba.datax.plugin.writer.clickhousewriter.ClickhouseWriterErrorCode;
+import com.alibaba.datax.plugin.writer.clickhousewriter.Constant;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 把 record 按表结构编码为 RowBinary, 通过 ClickHouse HTTP 接口流式 INSERT, 不经过 JDBC 的逐行参数绑定与 VALUES 文本拼接。
+ * <p/>
+ * 编码计划在 task 开始时根据 DESCRIBE TABLE 的结果计算一次; 编码后的数据先写入内存缓冲区, 每满 1m 写出到分块传输的 HTTP 请求,
+ * 单个请求累计达到 blockByteSize 后结束该次 INSERT 并开启下一次。某条记录编码失败时回退该行并记为脏数据;
+ * 服务端写入失败时整个 task 失败。注意 ClickHouse 会按 max_insert_block_size 分块落盘, 单次 INSERT 失败时之前的块可能已经写入。
+ */
+public class RowBinaryWriter {
+	private static final Logger LOG = LoggerFactory.getLogger(RowBinaryWriter.class);
+
+	private static final DataBaseType DATABASE_TYPE = DataBaseType.ClickHouse;
+
+	private static final Pattern JDBC_URL_PATTERN = Pattern.compile("jdbc:clickhouse://([^/?]+)(?:/([^?]*))?(?:\\?(.*))?");
+
+	private final String jdbcUrl;
+
+	private final String username;
+
+	private final String password;
+
+	private final String table;
+
+	private final List<String> columns;
+
+	private final boolean emptyAsNull;
+
+	private final boolean gzip;
+
+	private final long blockByteSize;
+
+	private String insertUrl;
+
+	private int readTimeout = Constant.DEFAULT_SOCKET_TIMEOUT_MS;
+
+	private RowBinaryColumnEncoder[] encoders;
+
+	private final RowBinaryBuffer buffer = new RowBinaryBuffer(Constant.FLUSH_BUFFER_SIZE * 2);
+
+	private HttpURLConnection connection;
+
+	private OutputStream out;
+
+	private long blockBytes = 0;
+
+	private long blockRows = 0;
+
+	public RowBinaryWriter(Configuration writerSliceConfig) {
+		this.jdbcUrl = writerSliceConfig.getString(Key.JDBC_URL);
+		this.username = writerSliceConfig.getString(Key.USERNAME);
+		this.password = writerSliceConfig.getString(Key.PASSWORD);
+		this.table = writerSliceConfig.getString(Key.TABLE);
+		this.columns = writerSliceConfig.getList(Key.COLUMN, String.class);
+		this.emptyAsNull = writerSliceConfig.getBool(Key.EMPTY_AS_NULL, true);
+		this.blockByteSize = writerSliceConfig.getLong(
+				com.alibaba.datax.plugin.writer.clickhousewriter.Key.BLOCK_BYTE_SIZE, Constant.DEFAULT_BLOCK_BYTE_SIZE);
+
+		String compress = writerSliceConfig.getString(
+				com.alibaba.datax.plugin.writer.clickhousewriter.Key.COMPRESS, Constant.COMPRESS_NONE);
+		if (Constant.COMPRESS_GZIP.equalsIgnoreCase(compress)) {
+			this.gzip = true;
+		} else if (Constant.COMPRESS_NONE.equalsIgnoreCase(compress)) {
+			this.gzip = false;
+		} else {
+			throw DataXException.asDataXException(DBUtilErrorCode.CONF_ERROR,
+					String.format("不支持的压缩方式 compress:[%s], 仅支持 none 或 gzip.", compress));
+		}
+	}
+
+	public void init() {
+		this.insertUrl = buildInsertUrl();
+		this.encoders = buildEncoders();
+	}
+
+	/**
+	 * 直接指定编码计划, 不查询 DESCRIBE TABLE, 用于测试
+	 */
+	void init(RowBinaryColumnEncoder[] encoders) {
+		this.insertUrl = buildInsertUrl();
+		this.encoders = encoders;
+	}
+
+	private String buildInsertUrl() {
+		Matcher m = JDBC_URL_PATTERN.matcher(this.jdbcUrl.trim());
+		if (!m.matches()) {
+			throw DataXException.asDataXException(DBUtilErrorCode.CONF_ERROR,
+					String.format("无法从 jdbcUrl:[%s] 解析 ClickHouse HTTP 地址.", this.jdbcUrl));
+		}
+		// 多个地址时使用第一个, JDBC 连接本身也是 HTTP 协议, 端口相同
+		String host = m.group(1).split(",")[0].trim();
+		String database = m.group(2);
+		Map<String, String> params = new HashMap<String, String>();
+		if (StringUtils.isNotBlank(m.group(3))) {
+			for (String pair : m.group(3).split("&")) {
+				int idx = pair.indexOf('=');
+				if (idx > 0) {
+					params.put(pair.substring(0, idx), pair.substring(idx + 1));
+				}
+			}
+		}
+		if (params.containsKey("socket_timeout")) {
+			this.readTimeout = Integer.parseInt(params.get("socket_timeout"));
+		}
+
+		StringBuilder sql = new StringBuilder("INSERT INTO ").append(this.table)
+				.append(" (").append(StringUtils.join(this.columns, ",")).append(") FORMAT RowBinary");
+		StringBuilder url = new StringBuilder("true".equalsIgnoreCase(params.get("ssl")) ? "https://" : "http://")
+				.append(host).append("/?");
+		try {
+			if (StringUtils.isNotBlank(database)) {
+				url.append("database=").append(URLEncoder.encode(database, "UTF-8")).append('&');
+			}
+			url.append("query=").append(URLEncoder.encode(sql.toString(), "UTF-8"));
+		} catch (IOException e) {
+			throw DataXException.asDataXException(DBUtilErrorCode.CONF_ERROR, e);
+		}
+		LOG.info("RowBinary insert sql:[{}], host:[{}], database:[{}], compress:[{}].",
+				sql, host, database, this.gzip ? Constant.COMPRESS_GZIP : Constant.COMPRESS_NONE);
+		return url.toString();
+	}
+
+	private RowBinaryColumnEncoder[] buildEncoders() {
+		Map<String, String> columnTypes = new HashMap<String, String>();
+		Connection conn = DBUtil.getConnection(DATABASE_TYPE, this.jdbcUrl, this.username, this.password);
+		Statement stmt = null;
+		ResultSet rs = null;
+		try {
+			stmt = conn.createStatement();
+			rs = stmt.executeQuery("DESCRIBE TABLE " + this.table);
+			while (rs.next()) {
+				columnTypes.put(rs.getString("name"), rs.getString("type"));
+			}
+		} catch (Exception e) {
+			throw DataXException.asDataXException(DBUtilErrorCode.READ_RECORD_FAIL,
+					String.format("获取表:[%s]的字段类型失败.", this.table), e);
+		} finally {
+			DBUtil.closeDBResources(rs, stmt, conn);
+		}
+
+		RowBinaryColumnEncoder[] result = new RowBinaryColumnEncoder[this.columns.size()];
+		for (int i = 0; i < result.length; i++) {
+			String column = StringUtils.strip(this.columns.get(i).trim(), "`\"");
+			String type = columnTypes.get(column);
+			if (type == null) {
+				throw DataXException.asDataXException(DBUtilErrorCode.CONF_ERROR,
+						String.format("表:[%s]中不存在字段:[%s], 请检查您的配置.", this.table, column));
+			}
+			result[i] = RowBinaryColumnEncoder.create(type, this.emptyAsNull);
+		}
+		return result;
+	}
+
+	public void startWrite(RecordReceiver recordReceiver, TaskPluginCollector taskPluginCollector) {
+		int columnNumber = this.encoders.length;
+		try {
+			Record record;
+			while ((record = recordReceiver.getFromReader()) != null) {
+				if (record.getColumnNumber() != columnNumber) {
+					throw DataXException.asDataXException(DBUtilErrorCode.CONF_ERROR,
+							String.format("列配置信息有错误. 因为您配置的任务中，源头读取字段数:%s 与 目的表要写入的字段数:%s 不相等. 请检查您的配置并作出修改.",
+									record.getColumnNumber(), columnNumber));
+				}
+
+				int rowStart = this.buffer.size();
+				try {
+					for (int i = 0; i < columnNumber; i++) {
+						this.encoders[i].write(record.getColumn(i), this.buffer);
+					}
+				} catch (Exception e) {
+					this.buffer.truncate(rowStart);
+					taskPluginCollector.collectDirtyRecord(record, e);
+					continue;
+				}
+				this.blockRows++;
+
+				if (this.buffer.size() >= Constant.FLUSH_BUFFER_SIZE) {
+					flushBuffer();
+				}
+			}
+			if (this.buffer.size() > 0 || this.connection != null) {
+				flushBuffer();
+				finishBlock();
+			}
+		} catch (DataXException e) {
+			abort();
+			throw e;
+		} catch (Exception e) {
+			abort();
+			throw DataXException.asDataXException(ClickhouseWriterErrorCode.INSERT_ERROR, e);
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		if (this.connection == null) {
+			openBlock();
+		}
+		this.buffer.writeTo(this.out);
+		this.blockBytes += this.buffer.size();
+		this.buffer.reset();
+		if (this.blockBytes >= this.blockByteSize) {
+			finishBlock();
+		}
+	}
+
+	private void openBlock() throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) new URL(this.insertUrl).openConnection();
+		conn.setRequestMethod("POST");
+		conn.setDoOutput(true);
+		conn.setChunkedStreamingMode(Constant.HTTP_CHUNK_SIZE);
+		conn.setConnectTimeout(Constant.CONNECT_TIMEOUT_MS);
+		conn.setReadTimeout(this.readTimeout);
+		conn.setRequestProperty("Content-Type", "application/octet-stream");
+		if (StringUtils.isNotBlank(this.username)) {
+			conn.setRequestProperty("X-ClickHouse-User", this.username);
+		}
+		if (this.password != null) {
+			conn.setRequestProperty("X-ClickHouse-Key", this.password);
+		}
+		if (this.gzip) {
+			conn.setRequestProperty("Content-Encoding", "gzip");
+		}
+		this.connection = conn;
+		OutputStream stream = conn.getOutputStream();
+		this.out = this.gzip ? new GZIPOutputStream(stream, Constant.HTTP_CHUNK_SIZE) : stream;
+		this.blockBytes = 0;
+	}
+
+	private void finishBlock() throws IOException {
+		long start = System.currentTimeMillis();
+		HttpURLConnection conn = this.connection;
+		this.out.close();
+		int code = conn.getResponseCode();
+		if (code != HttpURLConnection.HTTP_OK) {
+			InputStream error = conn.getErrorStream();
+			String message = error == null ? "" : IOUtils.toString(error, StandardCharsets.UTF_8);
+			throw DataXException.asDataXException(ClickhouseWriterErrorCode.INSERT_ERROR,
+					String.format("HTTP %d, 表:[%s], 返回信息:%s", code, this.table, message));
+		}
+		InputStream response = conn.getInputStream();
+		IOUtils.toString(response, StandardCharsets.UTF_8);
+		response.close();
+		LOG.info("RowBinary insert finished, table:[{}], rows:[{}], bytes:[{}], wait server:[{}ms].",
+				this.table, this.blockRows, this.blockBytes, System.currentTimeMillis() - start);
+		this.connection = null;
+		this.out = null;
+		this.blockRows = 0;
+		this.blockBytes = 0;
+	}
+
+	/**
+	 * 出错时断开未完成的请求, 服务端会因请求体不完整而放弃该次 INSERT 中尚未落盘的数据
+	 */
+	private void abort() {
+		this.buffer.reset();
+		if (this.connection != null) {
+			this.connection.disconnect();
+			this.connection = null;
+			this.out = null;
+		}
+	}
+}
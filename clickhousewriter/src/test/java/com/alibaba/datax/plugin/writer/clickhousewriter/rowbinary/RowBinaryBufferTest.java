@@ -0,0 +1,80 @@
+package com.alibaba.datax.plugin.writer.clickhousewriter.rowbinary;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class RowBinaryBufferTest {
+
+	@Test
+	public void testLittleEndian() throws IOException {
+		RowBinaryBuffer buffer = new RowBinaryBuffer(0);
+		buffer.writeByte(0xAB);
+		buffer.writeShort(0x1234);
+		buffer.writeInt(0x01020304);
+		buffer.writeLong(0x0102030405060708L);
+		buffer.writeFloat(1.0f);
+		buffer.writeDouble(-2.0d);
+		Assert.assertArrayEquals(bytes(0xAB,
+				0x34, 0x12,
+				0x04, 0x03, 0x02, 0x01,
+				0x08, 0x07, 0x06, 0x05, 0x04, 0x03, 0x02, 0x01,
+				0x00, 0x00, 0x80, 0x3F,
+				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0xC0), toBytes(buffer));
+	}
+
+	@Test
+	public void testVarUInt() throws IOException {
+		assertVarUInt(0L, 0x00);
+		assertVarUInt(1L, 0x01);
+		assertVarUInt(127L, 0x7F);
+		assertVarUInt(128L, 0x80, 0x01);
+		assertVarUInt(300L, 0xAC, 0x02);
+		assertVarUInt(16384L, 0x80, 0x80, 0x01);
+		// 按无符号处理, 最多 10 个字节
+		assertVarUInt(-1L, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x01);
+	}
+
+	@Test
+	public void testGrowTruncateAndReset() throws IOException {
+		RowBinaryBuffer buffer = new RowBinaryBuffer(0);
+		byte[] block = new byte[1000];
+		for (int i = 0; i < block.length; i++) {
+			block[i] = (byte) i;
+		}
+		buffer.writeBytes(block);
+		buffer.writeZeros(3);
+		Assert.assertEquals(1003, buffer.size());
+
+		// 回退到行首后继续写入, 之前的半行不会写出
+		buffer.truncate(2);
+		buffer.writeBytes(new byte[]{9, 8, 7}, 1, 2);
+		Assert.assertArrayEquals(bytes(0, 1, 8, 7), toBytes(buffer));
+
+		buffer.reset();
+		Assert.assertEquals(0, buffer.size());
+		Assert.assertArrayEquals(new byte[0], toBytes(buffer));
+	}
+
+	private static void assertVarUInt(long value, int... expected) throws IOException {
+		RowBinaryBuffer buffer = new RowBinaryBuffer(0);
+		buffer.writeVarUInt(value);
+		Assert.assertArrayEquals(String.valueOf(value), bytes(expected), toBytes(buffer));
+	}
+
+	static byte[] toBytes(RowBinaryBuffer buffer) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		buffer.writeTo(out);
+		return out.toByteArray();
+	}
+
+	static byte[] bytes(int... values) {
+		byte[] result = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = (byte) values[i];
+		}
+		return result;
+	}
+}
@@ -0,0 +1,263 @@
+package com.alibaba.datax.plugin.writer.clickhousewriter.rowbinary;
+
+import com.alibaba.datax.common.element.BytesColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.plugin.writer.clickhousewriter.ClickhouseWriterErrorCode;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+import static com.alibaba.datax.plugin.writer.clickhousewriter.rowbinary.RowBinaryBufferTest.bytes;
+
+public class RowBinaryColumnEncoderTest {
+
+	/**
+	 * 2019-12-31 16:30:00.123 UTC, 即 2020-01-01 00:30:00.123 +08:00
+	 */
+	private static final long MILLIS = 1577809800123L;
+
+	private TimeZone defaultTimeZone;
+
+	@Before
+	public void setUp() {
+		this.defaultTimeZone = TimeZone.getDefault();
+		TimeZone.setDefault(TimeZone.getTimeZone("Asia/Shanghai"));
+	}
+
+	@After
+	public void tearDown() {
+		TimeZone.setDefault(this.defaultTimeZone);
+	}
+
+	@Test
+	public void testDecimalScaleAndRounding() throws IOException {
+		// precision <= 9 为 Decimal32, 按 HALF_UP 舍入到 scale
+		assertEncoded("Decimal(9, 2)", new DoubleColumn("12.345"), le(1235L, 4));
+		assertEncoded("Decimal(9,2)", new DoubleColumn("-1.005"), le(-101L, 4));
+		assertEncoded("Decimal32(4)", new DoubleColumn("0.00005"), le(1L, 4));
+		assertEncoded("Decimal32(2)", new LongColumn(7L), le(700L, 4));
+		// precision <= 18 为 Decimal64
+		assertEncoded("Decimal(18,4)", new DoubleColumn("123456789012.34565"), le(1234567890123457L, 8));
+		assertEncoded("Decimal64(0)", new DoubleColumn("-2.5"), le(-3L, 8));
+		// precision <= 38 为 Decimal128, 小端补码
+		assertEncoded("Decimal(38,10)", new DoubleColumn("-1.5"), le(-15000000000L, 16));
+		assertEncoded("Decimal128(3)", new DoubleColumn("-1.5"), concat(bytes(0x24, 0xFA), repeat(0xFF, 14)));
+		assertEncoded("Decimal128(0)", new DoubleColumn("18446744073709551616"),
+				concat(repeat(0x00, 8), bytes(0x01), repeat(0x00, 7)));
+		assertEncoded("Decimal256(2)", new DoubleColumn("1"), concat(bytes(0x64), repeat(0x00, 31)));
+		// null 写入 0
+		assertEncoded("Decimal(9,2)", new StringColumn(null), le(0L, 4));
+		assertEncoded("Decimal(38,2)", new StringColumn(""), le(0L, 16));
+	}
+
+	@Test
+	public void testDecimalOverflow() {
+		assertConvertError("Decimal(9,2)", new DoubleColumn("30000000"));
+		assertConvertError("Decimal64(2)", new DoubleColumn("92233720368547758.08"));
+		assertConvertError("Decimal128(0)", new DoubleColumn(BigInteger.ONE.shiftLeft(127)));
+	}
+
+	@Test
+	public void testDateTime64Precision() throws IOException {
+		assertEncoded("DateTime64(3)", new DateColumn(MILLIS), le(MILLIS, 8));
+		assertEncoded("DateTime64(6)", new DateColumn(MILLIS), le(MILLIS * 1000L, 8));
+		assertEncoded("DateTime64(9, 'Asia/Shanghai')", new DateColumn(MILLIS), le(MILLIS * 1000000L, 8));
+		assertEncoded("DateTime64(1)", new DateColumn(MILLIS), le(MILLIS / 100L, 8));
+		assertEncoded("DateTime64(0)", new DateColumn(MILLIS), le(MILLIS / 1000L, 8));
+		// 1970 年之前向下取整
+		assertEncoded("DateTime64(0)", new DateColumn(-1500L), le(-2L, 8));
+		assertEncoded("DateTime64(3)", new DateColumn((Long) null), le(0L, 8));
+	}
+
+	@Test
+	public void testDateUsesDefaultTimeZone() throws IOException {
+		// +08:00 下已是 2020-01-01, 即 epoch 后第 18262 天
+		assertEncoded("Date", new DateColumn(MILLIS), bytes(0x56, 0x47));
+		assertEncoded("Date32", new DateColumn(MILLIS), le(18262L, 4));
+		// DateTime 写入绝对时间戳, 与时区无关
+		assertEncoded("DateTime", new DateColumn(MILLIS), le(MILLIS / 1000L, 4));
+		assertEncoded("DateTime('Asia/Shanghai')", new DateColumn(MILLIS), le(MILLIS / 1000L, 4));
+
+		TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+		assertEncoded("Date", new DateColumn(MILLIS), le(18261L, 2));
+		assertEncoded("DateTime", new DateColumn(MILLIS), le(MILLIS / 1000L, 4));
+
+		TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+		assertEncoded("Date", new DateColumn(MILLIS), le(18261L, 2));
+		assertEncoded("Date32", new DateColumn(-2L * 24 * 3600 * 1000), le(-2L, 4));
+		assertConvertError("Date", new DateColumn(-2L * 24 * 3600 * 1000));
+		assertConvertError("DateTime", new DateColumn(-1000L));
+	}
+
+	@Test
+	public void testUuidByteOrder() throws IOException {
+		// 高 64 位与低 64 位各自按小端写入
+		assertEncoded("UUID", new StringColumn("00112233-4455-6677-8899-aabbccddeeff"),
+				bytes(0x77, 0x66, 0x55, 0x44, 0x33, 0x22, 0x11, 0x00,
+						0xFF, 0xEE, 0xDD, 0xCC, 0xBB, 0xAA, 0x99, 0x88));
+		assertEncoded("UUID", new StringColumn(null), repeat(0x00, 16));
+		assertConvertError("UUID", new StringColumn("not-a-uuid"));
+	}
+
+	@Test
+	public void testNullable() throws IOException {
+		assertEncoded("Nullable(Int32)", new LongColumn(5L), bytes(0x00, 0x05, 0x00, 0x00, 0x00));
+		assertEncoded("Nullable(Int32)", new LongColumn((Long) null), bytes(0x01));
+		// emptyAsNull 时数值类型的空串按 null 处理
+		assertEncoded("Nullable(Int32)", new StringColumn(""), bytes(0x01));
+		assertEncoded("Int32", new StringColumn(""), le(0L, 4));
+		// 字符串类型的空串不是 null
+		assertEncoded("Nullable(String)", new StringColumn(""), bytes(0x00, 0x00));
+		assertEncoded("Nullable(String)", new StringColumn(null), bytes(0x01));
+	}
+
+	@Test
+	public void testArray() throws IOException {
+		assertEncoded("Array(Int32)", new StringColumn("[1,2,3]"),
+				concat(bytes(0x03), le(1L, 4), le(2L, 4), le(3L, 4)));
+		assertEncoded("Array(Int32)", new StringColumn("[]"), bytes(0x00));
+		assertEncoded("Array(Int32)", new StringColumn(null), bytes(0x00));
+		assertEncoded("Array(Nullable(String))", new StringColumn("[\"a\",null]"),
+				bytes(0x02, 0x00, 0x01, 'a', 0x01));
+		assertEncoded("Array(Array(Int8))", new StringColumn("[[1],[2,3]]"),
+				bytes(0x02, 0x01, 0x01, 0x02, 0x02, 0x03));
+		assertEncoded("Array(Float64)", new StringColumn("[1.5]"), concat(bytes(0x01), le(0x3FF8000000000000L, 8)));
+
+		// 元素个数为 varint
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < 200; i++) {
+			json.append(i == 0 ? "" : ",").append(i % 100);
+		}
+		byte[] encoded = encode("Array(UInt8)", true, new StringColumn(json.append("]").toString()));
+		Assert.assertEquals(202, encoded.length);
+		Assert.assertArrayEquals(bytes(0xC8, 0x01, 0x00, 0x01), Arrays.copyOf(encoded, 4));
+
+		assertConvertError("Array(Int32)", new StringColumn("1,2"));
+	}
+
+	@Test
+	public void testEnum() throws IOException {
+		String enum8 = "Enum8('a' = 1, 'b' = -2, 'it\\'s' = 3)";
+		assertEncoded(enum8, new StringColumn("b"), bytes(0xFE));
+		assertEncoded(enum8, new StringColumn("it's"), bytes(0x03));
+		// 也接受枚举值对应的数字
+		assertEncoded(enum8, new LongColumn(1L), bytes(0x01));
+		// null 写入第一个枚举值
+		assertEncoded(enum8, new StringColumn(null), bytes(0x01));
+		assertConvertError(enum8, new StringColumn("c"));
+		assertConvertError(enum8, new LongColumn(2L));
+
+		String enum16 = "Enum16('x' = 1000, 'y' = -1000)";
+		assertEncoded(enum16, new StringColumn("x"), bytes(0xE8, 0x03));
+		assertEncoded(enum16, new StringColumn("y"), bytes(0x18, 0xFC));
+	}
+
+	@Test
+	public void testStringLengths() throws IOException {
+		assertEncoded("String", new StringColumn("abc"), bytes(0x03, 'a', 'b', 'c'));
+		assertEncoded("String", new StringColumn("中文"), concat(bytes(0x06), "中文".getBytes(StandardCharsets.UTF_8)));
+		assertEncoded("String", new BytesColumn(new byte[]{0x00, (byte) 0xFF}), bytes(0x02, 0x00, 0xFF));
+		assertEncoded("String", new StringColumn(null), bytes(0x00));
+
+		char[] chars = new char[300];
+		Arrays.fill(chars, 'x');
+		byte[] encoded = encode("String", true, new StringColumn(new String(chars)));
+		Assert.assertEquals(302, encoded.length);
+		Assert.assertArrayEquals(bytes(0xAC, 0x02, 'x'), Arrays.copyOf(encoded, 3));
+
+		// LowCardinality 与内部类型编码相同
+		assertEncoded("LowCardinality(String)", new StringColumn("abc"), bytes(0x03, 'a', 'b', 'c'));
+		assertEncoded("LowCardinality(Nullable(String))", new StringColumn(null), bytes(0x01));
+		assertEncoded("LowCardinality(Nullable(String))", new StringColumn("a"), bytes(0x00, 0x01, 'a'));
+
+		assertEncoded("FixedString(4)", new StringColumn("ab"), bytes('a', 'b', 0x00, 0x00));
+		assertEncoded("FixedString(4)", new StringColumn(null), repeat(0x00, 4));
+		assertConvertError("FixedString(4)", new StringColumn("abcde"));
+	}
+
+	@Test
+	public void testIntegerRange() throws IOException {
+		assertEncoded("Int8", new LongColumn(-1L), bytes(0xFF));
+		assertEncoded("UInt8", new LongColumn(255L), bytes(0xFF));
+		assertEncoded("Int16", new LongColumn(-2L), bytes(0xFE, 0xFF));
+		assertEncoded("UInt32", new LongColumn(4294967295L), bytes(0xFF, 0xFF, 0xFF, 0xFF));
+		assertEncoded("UInt64", new LongColumn(new BigInteger("18446744073709551615")), repeat(0xFF, 8));
+		assertEncoded("Int64", new LongColumn(Long.MIN_VALUE), le(Long.MIN_VALUE, 8));
+		assertConvertError("UInt8", new LongColumn(256L));
+		assertConvertError("Int8", new LongColumn(-129L));
+		assertConvertError("UInt64", new LongColumn(-1L));
+		assertConvertError("Int64", new LongColumn(new BigInteger("9223372036854775808")));
+	}
+
+	@Test
+	public void testUnsupportedType() {
+		for (String type : new String[]{"Tuple(Int32, String)", "Map(String, Int32)", "Decimal(abc)"}) {
+			try {
+				RowBinaryColumnEncoder.create(type, true);
+				Assert.fail(type);
+			} catch (DataXException e) {
+				Assert.assertNotEquals(ClickhouseWriterErrorCode.VALUE_CONVERT_ERROR, e.getErrorCode());
+			}
+		}
+	}
+
+	private static void assertEncoded(String type, Column column, byte[] expected) throws IOException {
+		Assert.assertArrayEquals(type + " " + column.getRawData(), expected, encode(type, true, column));
+	}
+
+	private static void assertConvertError(String type, Column column) {
+		try {
+			encode(type, true, column);
+			Assert.fail(type + " " + column.getRawData());
+		} catch (DataXException e) {
+			Assert.assertEquals(ClickhouseWriterErrorCode.VALUE_CONVERT_ERROR, e.getErrorCode());
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static byte[] encode(String type, boolean emptyAsNull, Column column) throws IOException {
+		RowBinaryBuffer buffer = new RowBinaryBuffer(0);
+		RowBinaryColumnEncoder.create(type, emptyAsNull).write(column, buffer);
+		return RowBinaryBufferTest.toBytes(buffer);
+	}
+
+	/**
+	 * 小端补码, 超过 8 字节的部分按符号位补齐
+	 */
+	private static byte[] le(long value, int length) {
+		byte[] result = new byte[length];
+		for (int i = 0; i < length; i++) {
+			result[i] = i < 8 ? (byte) (value >>> (i * 8)) : (byte) (value < 0 ? 0xFF : 0x00);
+		}
+		return result;
+	}
+
+	private static byte[] repeat(int value, int length) {
+		byte[] result = new byte[length];
+		Arrays.fill(result, (byte) value);
+		return result;
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		byte[] result = new byte[0];
+		for (byte[] part : parts) {
+			int offset = result.length;
+			result = Arrays.copyOf(result, offset + part.length);
+			System.arraycopy(part, 0, result, offset, part.length);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,230 @@
+package com.alibaba.datax.plugin.writer.clickhousewriter.rowbinary;
+
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.RecordReceiver;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.core.transport.record.DefaultRecord;
+import com.alibaba.datax.plugin.rdbms.writer.Key;
+import com.alibaba.datax.plugin.writer.clickhousewriter.ClickhouseWriterErrorCode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static com.alibaba.datax.plugin.writer.clickhousewriter.rowbinary.RowBinaryBufferTest.bytes;
+
+/**
+ * 用本地 HTTP 服务模拟 ClickHouse, 校验 RowBinaryWriter 发出的请求体
+ */
+public class RowBinaryWriterTest {
+
+	private HttpServer server;
+
+	private final List<Request> requests = Collections.synchronizedList(new ArrayList<Request>());
+
+	private volatile int responseCode = 200;
+
+	private volatile String responseBody = "";
+
+	@Before
+	public void setUp() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		this.server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				Request request = new Request();
+				request.query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+				request.user = exchange.getRequestHeaders().getFirst("X-ClickHouse-User");
+				request.key = exchange.getRequestHeaders().getFirst("X-ClickHouse-Key");
+				request.encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+				InputStream in = exchange.getRequestBody();
+				if ("gzip".equals(request.encoding)) {
+					in = new GZIPInputStream(in);
+				}
+				request.body = IOUtils.toByteArray(in);
+				requests.add(request);
+
+				byte[] response = responseBody.getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(responseCode, response.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(response);
+				out.close();
+			}
+		});
+		this.server.start();
+	}
+
+	@After
+	public void tearDown() {
+		this.server.stop(0);
+	}
+
+	@Test
+	public void testRowsEncodedAndDirtyRowRolledBack() {
+		CollectingTaskPluginCollector collector = new CollectingTaskPluginCollector();
+		RowBinaryWriter writer = newWriter("none", null);
+		writer.startWrite(receiver(
+				record(new LongColumn(1L), new StringColumn("a"), new LongColumn(1L)),
+				// 第三列超出 UInt8 范围, 已编码的前两列被回退
+				record(new LongColumn(2L), new StringColumn("b"), new LongColumn(300L)),
+				record(new LongColumn(3L), new StringColumn("中"), new LongColumn(255L))), collector);
+
+		Assert.assertEquals(1, this.requests.size());
+		Request request = this.requests.get(0);
+		Assert.assertTrue(request.query, request.query.startsWith("database=db&query="));
+		Assert.assertTrue(request.query, request.query.endsWith("INSERT INTO t (id,name,flag) FORMAT RowBinary"));
+		Assert.assertEquals("default", request.user);
+		Assert.assertEquals("pwd", request.key);
+		Assert.assertNull(request.encoding);
+		Assert.assertArrayEquals(bytes(0x01, 0x00, 0x00, 0x00, 0x01, 'a', 0x01,
+				0x03, 0x00, 0x00, 0x00, 0x03, 0xE4, 0xB8, 0xAD, 0xFF), request.body);
+
+		Assert.assertEquals(1, collector.dirtyRecords.size());
+		Assert.assertEquals(Long.valueOf(2L), collector.dirtyRecords.get(0).getColumn(0).asLong());
+	}
+
+	@Test
+	public void testGzip() {
+		RowBinaryWriter writer = newWriter("gzip", null);
+		writer.startWrite(receiver(record(new LongColumn(1L), new StringColumn("a"), new LongColumn(1L))),
+				new CollectingTaskPluginCollector());
+
+		Assert.assertEquals(1, this.requests.size());
+		Assert.assertEquals("gzip", this.requests.get(0).encoding);
+		Assert.assertArrayEquals(bytes(0x01, 0x00, 0x00, 0x00, 0x01, 'a', 0x01), this.requests.get(0).body);
+	}
+
+	@Test
+	public void testBlockByteSizeSplitsInsert() {
+		// 缓冲区每满 1m 写出一次, 写出后累计字节数超过 blockByteSize 即结束本次 INSERT
+		char[] chars = new char[600 * 1024];
+		Arrays.fill(chars, 'x');
+		String value = new String(chars);
+		List<Record> records = new ArrayList<Record>();
+		for (int i = 0; i < 4; i++) {
+			records.add(record(new LongColumn((long) i), new StringColumn(value), new LongColumn(0L)));
+		}
+		RowBinaryWriter writer = newWriter("none", 1L);
+		writer.startWrite(receiver(records.toArray(new Record[0])), new CollectingTaskPluginCollector());
+
+		int rowSize = 4 + 3 + chars.length + 1;
+		Assert.assertEquals(2, this.requests.size());
+		Assert.assertEquals(2 * rowSize, this.requests.get(0).body.length);
+		Assert.assertEquals(2 * rowSize, this.requests.get(1).body.length);
+		Assert.assertEquals(0x02, this.requests.get(1).body[0]);
+	}
+
+	@Test
+	public void testEmptyInputSendsNothing() {
+		newWriter("none", null).startWrite(receiver(), new CollectingTaskPluginCollector());
+		Assert.assertTrue(this.requests.isEmpty());
+	}
+
+	@Test
+	public void testServerErrorFailsTask() {
+		this.responseCode = 500;
+		this.responseBody = "Code: 27. DB::Exception: Cannot parse input";
+		try {
+			newWriter("none", null).startWrite(receiver(record(new LongColumn(1L), new StringColumn("a"),
+					new LongColumn(1L))), new CollectingTaskPluginCollector());
+			Assert.fail();
+		} catch (DataXException e) {
+			Assert.assertEquals(ClickhouseWriterErrorCode.INSERT_ERROR, e.getErrorCode());
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("Cannot parse input"));
+		}
+	}
+
+	@Test(expected = DataXException.class)
+	public void testColumnNumberMismatch() {
+		newWriter("none", null).startWrite(receiver(record(new LongColumn(1L))), new CollectingTaskPluginCollector());
+	}
+
+	private RowBinaryWriter newWriter(String compress, Long blockByteSize) {
+		Configuration configuration = Configuration.newDefault();
+		configuration.set(Key.JDBC_URL, "jdbc:clickhouse://127.0.0.1:" + this.server.getAddress().getPort()
+				+ "/db?socket_timeout=10000");
+		configuration.set(Key.USERNAME, "default");
+		configuration.set(Key.PASSWORD, "pwd");
+		configuration.set(Key.TABLE, "t");
+		configuration.set(Key.COLUMN, Arrays.asList("id", "name", "flag"));
+		configuration.set(com.alibaba.datax.plugin.writer.clickhousewriter.Key.COMPRESS, compress);
+		if (blockByteSize != null) {
+			configuration.set(com.alibaba.datax.plugin.writer.clickhousewriter.Key.BLOCK_BYTE_SIZE, blockByteSize);
+		}
+		RowBinaryWriter writer = new RowBinaryWriter(configuration);
+		writer.init(new RowBinaryColumnEncoder[]{
+				RowBinaryColumnEncoder.create("Int32", true),
+				RowBinaryColumnEncoder.create("String", true),
+				RowBinaryColumnEncoder.create("UInt8", true)});
+		return writer;
+	}
+
+	private static Record record(Column... columns) {
+		Record record = new DefaultRecord();
+		for (Column column : columns) {
+			record.addColumn(column);
+		}
+		return record;
+	}
+
+	private static RecordReceiver receiver(Record... records) {
+		final Iterator<Record> iterator = Arrays.asList(records).iterator();
+		return new RecordReceiver() {
+			@Override
+			public Record getFromReader() {
+				return iterator.hasNext() ? iterator.next() : null;
+			}
+
+			@Override
+			public void shutdown() {
+			}
+		};
+	}
+
+	private static class Request {
+		private String query;
+
+		private String user;
+
+		private String key;
+
+		private String encoding;
+
+		private byte[] body;
+	}
+
+	private static class CollectingTaskPluginCollector extends TaskPluginCollector {
+		private final List<Record> dirtyRecords = new ArrayList<Record>();
+
+		@Override
+		public void collectDirtyRecord(Record dirtyRecord, Throwable t, String errorMessage) {
+			this.dirtyRecords.add(dirtyRecord);
+		}
+
+		@Override
+		public void collectMessage(String key, String value) {
+		}
+	}
+}
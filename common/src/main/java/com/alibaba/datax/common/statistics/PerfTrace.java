@@ -259,8 +259,11 @@ public class PerfTrace {
 
 
     public synchronized ConcurrentHashMap<PHASE, SumPerfRecord4Print> getPerfRecordMaps4print() {
-        if (totalEndReport.size() > 0) {
-            sumPerf4EndPrint(totalEndReport);
+        // 运行中也可能被调用(如metrics接口), 需要与tracePerfRecord对totalEndReport的写入互斥
+        synchronized (totalEndReport) {
+            if (totalEndReport.size() > 0) {
+                sumPerf4EndPrint(totalEndReport);
+            }
         }
         return perfRecordMaps4print;
     }
@@ -8,6 +8,7 @@ import com.alibaba.datax.common.statistics.VMInfo;
 import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.datax.common.util.MessageSource;
 import com.alibaba.datax.core.job.JobContainer;
+import com.alibaba.datax.core.statistics.metrics.MetricsRegistry;
 import com.alibaba.datax.core.taskgroup.TaskGroupContainer;
 import com.alibaba.datax.core.util.ConfigParser;
 import com.alibaba.datax.core.util.ConfigurationValidate;
@@ -90,7 +91,14 @@ public class Engine {
         //初始化PerfTrace
         PerfTrace perfTrace = PerfTrace.getInstance(isJob, instanceId, taskGroupId, priority, traceEnable);
         perfTrace.setJobInfo(jobInfoConfig,perfReportEnable,channelNumber);
-        container.start();
+
+        //实时指标(JMX/Prometheus), 默认关闭
+        MetricsRegistry.getInstance().start(allConf);
+        try {
+            container.start();
+        } finally {
+            MetricsRegistry.getInstance().stop();
+        }
 
     }
 
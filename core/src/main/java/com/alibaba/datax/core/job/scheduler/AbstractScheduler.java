@@ -5,6 +5,7 @@ import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.datax.core.statistics.communication.Communication;
 import com.alibaba.datax.core.statistics.communication.CommunicationTool;
 import com.alibaba.datax.core.statistics.container.communicator.AbstractContainerCommunicator;
+import com.alibaba.datax.core.statistics.metrics.MetricsRegistry;
 import com.alibaba.datax.core.util.ErrorRecordChecker;
 import com.alibaba.datax.core.util.FrameworkErrorCode;
 import com.alibaba.datax.core.util.container.CoreConstant;
@@ -82,6 +83,7 @@ public abstract class AbstractScheduler {
                             .getReportCommunication(nowJobContainerCommunication, lastJobContainerCommunication, totalTasks);
 
                     this.containerCommunicator.report(reportCommunication);
+                    MetricsRegistry.getInstance().updateJob(reportCommunication);
                     lastReportTimeStamp = now;
                     lastJobContainerCommunication = nowJobContainerCommunication;
                 }
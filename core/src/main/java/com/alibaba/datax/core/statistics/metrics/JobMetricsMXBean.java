@@ -0,0 +1,27 @@
+package com.alibaba.datax.core.statistics.metrics;
+
+/**
+ * 整个job的实时指标, 注册为 com.alibaba.datax:type=Job, 数据来自最近一次汇报的job Communication
+ */
+public interface JobMetricsMXBean {
+
+    long getJobId();
+
+    long getTotalReadRecords();
+
+    long getTotalReadBytes();
+
+    long getTotalErrorRecords();
+
+    long getRecordSpeed();
+
+    long getByteSpeed();
+
+    double getPercentage();
+
+    long getWaitReaderTimeMillis();
+
+    long getWaitWriterTimeMillis();
+
+    int getRunningTasks();
+}
@@ -0,0 +1,104 @@
+package com.alibaba.datax.core.statistics.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定分桶的耗时直方图, 记录时只做一次分桶查找和计数累加, 可以在reader/writer线程的热路径上使用。
+ * 分桶上界与Prometheus histogram的le含义一致(小于等于)。
+ */
+public class LatencyHistogram {
+
+    /**
+     * 分桶上界, 单位纳秒: 100us ~ 60s
+     */
+    static final long[] BUCKET_BOUNDS = new long[]{
+            TimeUnit.MICROSECONDS.toNanos(100),
+            TimeUnit.MICROSECONDS.toNanos(500),
+            TimeUnit.MILLISECONDS.toNanos(1),
+            TimeUnit.MILLISECONDS.toNanos(5),
+            TimeUnit.MILLISECONDS.toNanos(10),
+            TimeUnit.MILLISECONDS.toNanos(50),
+            TimeUnit.MILLISECONDS.toNanos(100),
+            TimeUnit.MILLISECONDS.toNanos(500),
+            TimeUnit.SECONDS.toNanos(1),
+            TimeUnit.SECONDS.toNanos(5),
+            TimeUnit.SECONDS.toNanos(10),
+            TimeUnit.SECONDS.toNanos(30),
+            TimeUnit.SECONDS.toNanos(60)
+    };
+
+    private final String name;
+
+    /**
+     * 最后一个桶为+Inf
+     */
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+        for (int i = 0; i < this.buckets.length; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        int i = 0;
+        while (i < BUCKET_BOUNDS.length && nanos > BUCKET_BOUNDS[i]) {
+            i++;
+        }
+        this.buckets[i].increment();
+        this.count.increment();
+        this.sumNanos.add(nanos);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public long getSumNanos() {
+        return this.sumNanos.sum();
+    }
+
+    /**
+     * @return 各桶的累计计数(cumulative), 长度为分桶数+1, 最后一个为+Inf
+     */
+    public long[] getCumulativeCounts() {
+        long[] result = new long[this.buckets.length];
+        long cumulative = 0;
+        for (int i = 0; i < this.buckets.length; i++) {
+            cumulative += this.buckets[i].sum();
+            result[i] = cumulative;
+        }
+        return result;
+    }
+
+    /**
+     * 按分桶估算的分位数, 返回所在桶的上界(毫秒), 落在+Inf桶时返回最后一个上界; 无数据时返回0
+     */
+    public double getPercentileMillis(double quantile) {
+        long[] cumulative = this.getCumulativeCounts();
+        long total = cumulative[cumulative.length - 1];
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (cumulative[i] >= rank) {
+                return BUCKET_BOUNDS[i] / 1000000.0;
+            }
+        }
+        return BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1] / 1000000.0;
+    }
+}
@@ -0,0 +1,404 @@
+package com.alibaba.datax.core.statistics.metrics;
+
+import com.alibaba.datax.common.statistics.PerfRecord;
+import com.alibaba.datax.common.statistics.PerfTrace;
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.core.statistics.communication.Communication;
+import com.alibaba.datax.core.statistics.communication.CommunicationTool;
+import com.alibaba.datax.core.transport.channel.Channel;
+import com.alibaba.datax.core.util.container.CoreConstant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内的实时指标注册中心, 由 core.metrics.enable 开启, 默认关闭; 关闭时各注册方法均为空操作。
+ *
+ * 开启后通过JMX(com.alibaba.datax:type=Job / type=Task)暴露job与各task的指标,
+ * 并可在 core.metrics.http.port 上提供Prometheus文本格式的 /metrics 接口。
+ */
+public final class MetricsRegistry {
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private static final String JMX_DOMAIN = "com.alibaba.datax";
+
+    private volatile boolean enabled = false;
+
+    private boolean jmxEnabled = false;
+
+    private long jobId = -1;
+
+    private volatile Communication jobCommunication;
+
+    private final Map<String, TaskMetrics> tasks = new ConcurrentHashMap<String, TaskMetrics>();
+
+    private MetricsHttpServer httpServer;
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void start(Configuration configuration) {
+        if (this.enabled || !configuration.getBool(CoreConstant.DATAX_CORE_METRICS_ENABLE, false)) {
+            return;
+        }
+        this.jobId = configuration.getLong(CoreConstant.DATAX_CORE_CONTAINER_JOB_ID, -1L);
+        this.jmxEnabled = configuration.getBool(CoreConstant.DATAX_CORE_METRICS_JMX_ENABLE, true);
+        if (this.jmxEnabled) {
+            registerMBean(jobObjectName(), new JobMetrics());
+        }
+
+        int port = configuration.getInt(CoreConstant.DATAX_CORE_METRICS_HTTP_PORT, -1);
+        if (port >= 0) {
+            String host = configuration.getString(CoreConstant.DATAX_CORE_METRICS_HTTP_HOST, "127.0.0.1");
+            try {
+                this.httpServer = new MetricsHttpServer(host, port, this);
+                this.httpServer.start();
+                LOG.info("metrics http server started at http://{}:{}/metrics", host, this.httpServer.getPort());
+            } catch (Exception e) {
+                // 指标接口不影响任务本身
+                LOG.warn(String.format("启动metrics http服务[%s:%s]失败, 只通过JMX暴露指标.", host, port), e);
+                this.httpServer = null;
+            }
+        }
+        this.enabled = true;
+    }
+
+    public synchronized void stop() {
+        if (!this.enabled) {
+            return;
+        }
+        this.enabled = false;
+        if (null != this.httpServer) {
+            this.httpServer.stop();
+            this.httpServer = null;
+        }
+        for (TaskMetrics taskMetrics : this.tasks.values()) {
+            unregisterMBean(objectNameOf(taskMetrics.getTaskGroupId(), taskMetrics.getTaskId()));
+        }
+        this.tasks.clear();
+        if (this.jmxEnabled) {
+            unregisterMBean(jobObjectName());
+        }
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * @return 未开启时返回null
+     */
+    public TaskMetrics registerTask(int taskGroupId, int taskId, Communication communication, Channel channel) {
+        if (!this.enabled) {
+            return null;
+        }
+        TaskMetrics taskMetrics = new TaskMetrics(taskGroupId, taskId, communication, channel);
+        // failover时同一个task会重新注册, 覆盖上一次的指标
+        this.tasks.put(taskKey(taskGroupId, taskId), taskMetrics);
+        if (this.jmxEnabled) {
+            ObjectName objectName = objectNameOf(taskGroupId, taskId);
+            unregisterMBean(objectName);
+            registerMBean(objectName, taskMetrics);
+        }
+        return taskMetrics;
+    }
+
+    public void unregisterTask(int taskGroupId, int taskId) {
+        if (!this.enabled) {
+            return;
+        }
+        if (null != this.tasks.remove(taskKey(taskGroupId, taskId)) && this.jmxEnabled) {
+            unregisterMBean(objectNameOf(taskGroupId, taskId));
+        }
+    }
+
+    /**
+     * 由调度器在每次汇报时调用
+     */
+    public void updateJob(Communication reportCommunication) {
+        if (this.enabled) {
+            this.jobCommunication = reportCommunication;
+        }
+    }
+
+    /**
+     * @return Prometheus text exposition format (0.0.4)
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        String jobLabel = "job_id=\"" + this.jobId + "\"";
+
+        Communication job = this.jobCommunication;
+        if (null != job) {
+            gauge(sb, "datax_job_read_records_total", "counter", "records read by the job",
+                    jobLabel, CommunicationTool.getTotalReadRecords(job));
+            gauge(sb, "datax_job_read_bytes_total", "counter", "bytes read by the job",
+                    jobLabel, CommunicationTool.getTotalReadBytes(job));
+            gauge(sb, "datax_job_error_records_total", "counter", "dirty records of the job",
+                    jobLabel, CommunicationTool.getTotalErrorRecords(job));
+            gauge(sb, "datax_job_record_speed", "gauge", "records per second in the last report interval",
+                    jobLabel, job.getLongCounter(CommunicationTool.RECORD_SPEED));
+            gauge(sb, "datax_job_byte_speed", "gauge", "bytes per second in the last report interval",
+                    jobLabel, job.getLongCounter(CommunicationTool.BYTE_SPEED));
+            gauge(sb, "datax_job_progress_ratio", "gauge", "finished task ratio",
+                    jobLabel, job.getDoubleCounter(CommunicationTool.PERCENTAGE));
+            gauge(sb, "datax_job_wait_reader_seconds_total", "counter", "time writers waited for readers",
+                    jobLabel, job.getLongCounter(CommunicationTool.WAIT_READER_TIME) / 1e9);
+            gauge(sb, "datax_job_wait_writer_seconds_total", "counter", "time readers waited for writers",
+                    jobLabel, job.getLongCounter(CommunicationTool.WAIT_WRITER_TIME) / 1e9);
+        }
+
+        this.scrapeTasks(sb, jobLabel);
+        this.scrapePerfTrace(sb, jobLabel);
+        this.scrapeJvm(sb);
+        return sb.toString();
+    }
+
+    private void scrapeTasks(StringBuilder sb, String jobLabel) {
+        if (this.tasks.isEmpty()) {
+            return;
+        }
+        header(sb, "datax_task_read_records_total", "counter", "records pushed into the channel by the reader");
+        for (TaskMetrics t : this.tasks.values()) {
+            sample(sb, "datax_task_read_records_total", taskLabels(jobLabel, t), t.getReadSucceedRecords());
+        }
+        header(sb, "datax_task_read_bytes_total", "counter", "bytes pushed into the channel by the reader");
+        for (TaskMetrics t : this.tasks.values()) {
+            sample(sb, "datax_task_read_bytes_total", taskLabels(jobLabel, t), t.getReadSucceedBytes());
+        }
+        header(sb, "datax_task_write_received_records_total", "counter", "records taken from the channel by the writer");
+        for (TaskMetrics t : this.tasks.values()) {
+            sample(sb, "datax_task_write_received_records_total", taskLabels(jobLabel, t), t.getWriteReceivedRecords());
+        }
+        header(sb, "datax_task_error_records_total", "counter", "dirty records of the task");
+        for (TaskMetrics t : this.tasks.values()) {
+            sample(sb, "datax_task_error_records_total", taskLabels(jobLabel, t), t.getErrorRecords());
+        }
+        header(sb, "datax_task_wait_reader_seconds_total", "counter", "time the writer waited for the reader");
+        for (TaskMetrics t : this.tasks.values()) {
+            sample(sb, "datax_task_wait_reader_seconds_total", taskLabels(jobLabel, t),
+                    t.getCommunication().getLongCounter(CommunicationTool.WAIT_READER_TIME) / 1e9);
+        }
+        header(sb, "datax_task_wait_writer_seconds_total", "counter", "time the reader waited for the writer");
+        for (TaskMetrics t : this.tasks.values()) {
+            sample(sb, "datax_task_wait_writer_seconds_total", taskLabels(jobLabel, t),
+                    t.getCommunication().getLongCounter(CommunicationTool.WAIT_WRITER_TIME) / 1e9);
+        }
+        header(sb, "datax_channel_records", "gauge", "records buffered in the channel");
+        for (TaskMetrics t : this.tasks.values()) {
+            sample(sb, "datax_channel_records", taskLabels(jobLabel, t), t.getChannelSize());
+        }
+        header(sb, "datax_channel_capacity_records", "gauge", "channel capacity in records");
+        for (TaskMetrics t : this.tasks.values()) {
+            sample(sb, "datax_channel_capacity_records", taskLabels(jobLabel, t), t.getChannelCapacity());
+        }
+        header(sb, "datax_channel_memory_bytes", "gauge", "bytes buffered in the channel");
+        for (TaskMetrics t : this.tasks.values()) {
+            sample(sb, "datax_channel_memory_bytes", taskLabels(jobLabel, t), t.getChannelMemoryBytes());
+        }
+
+        header(sb, "datax_task_latency_seconds", "histogram",
+                "reader_batch/writer_batch: time to produce/consume one exchanger batch; "
+                        + "channel_push/channel_pull: time blocked on the channel; transformer: per record");
+        for (TaskMetrics t : this.tasks.values()) {
+            String labels = taskLabels(jobLabel, t);
+            for (LatencyHistogram histogram : t.getHistograms()) {
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                String stageLabels = labels + ",stage=\"" + histogram.getName() + "\"";
+                long[] cumulative = histogram.getCumulativeCounts();
+                for (int i = 0; i < LatencyHistogram.BUCKET_BOUNDS.length; i++) {
+                    sample(sb, "datax_task_latency_seconds_bucket",
+                            stageLabels + ",le=\"" + LatencyHistogram.BUCKET_BOUNDS[i] / 1e9 + "\"", cumulative[i]);
+                }
+                sample(sb, "datax_task_latency_seconds_bucket", stageLabels + ",le=\"+Inf\"",
+                        cumulative[cumulative.length - 1]);
+                sample(sb, "datax_task_latency_seconds_sum", stageLabels, histogram.getSumNanos() / 1e9);
+                sample(sb, "datax_task_latency_seconds_count", stageLabels, histogram.getCount());
+            }
+        }
+    }
+
+    private void scrapePerfTrace(StringBuilder sb, String jobLabel) {
+        PerfTrace perfTrace;
+        try {
+            perfTrace = PerfTrace.getInstance();
+        } catch (Exception e) {
+            return;
+        }
+        if (null == perfTrace || !perfTrace.isEnable()) {
+            return;
+        }
+        // 已结束的PerfRecord按阶段的汇总, PerfTrace按批次合并, 因此会有一定延迟
+        Map<PerfRecord.PHASE, PerfTrace.SumPerfRecord4Print> phases = perfTrace.getPerfRecordMaps4print();
+        if (phases.isEmpty()) {
+            return;
+        }
+        header(sb, "datax_perf_phase_seconds_total", "counter", "time spent in each PerfRecord phase");
+        for (Map.Entry<PerfRecord.PHASE, PerfTrace.SumPerfRecord4Print> entry : phases.entrySet()) {
+            sample(sb, "datax_perf_phase_seconds_total", jobLabel + ",phase=\"" + entry.getKey() + "\"",
+                    entry.getValue().getPerfTimeTotal() / 1e9);
+        }
+        header(sb, "datax_perf_phase_records_total", "counter", "records counted in each PerfRecord phase");
+        for (Map.Entry<PerfRecord.PHASE, PerfTrace.SumPerfRecord4Print> entry : phases.entrySet()) {
+            sample(sb, "datax_perf_phase_records_total", jobLabel + ",phase=\"" + entry.getKey() + "\"",
+                    entry.getValue().getRecordsTotal());
+        }
+    }
+
+    private void scrapeJvm(StringBuilder sb) {
+        header(sb, "jvm_gc_collection_seconds_count", "counter", "GC count by collector");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(sb, "jvm_gc_collection_seconds_count", "gc=\"" + gc.getName() + "\"", gc.getCollectionCount());
+        }
+        header(sb, "jvm_gc_collection_seconds_sum", "counter", "GC time by collector");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(sb, "jvm_gc_collection_seconds_sum", "gc=\"" + gc.getName() + "\"", gc.getCollectionTime() / 1e3);
+        }
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        gauge(sb, "jvm_memory_heap_used_bytes", "gauge", "used heap", null, heap.getUsed());
+        gauge(sb, "jvm_memory_heap_max_bytes", "gauge", "max heap", null, heap.getMax());
+    }
+
+    private static void gauge(StringBuilder sb, String name, String type, String help, String labels, double value) {
+        header(sb, name, type, help);
+        sample(sb, name, labels, value);
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name);
+        if (null != labels) {
+            sb.append('{').append(labels).append('}');
+        }
+        sb.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            sb.append((long) value);
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+
+    private static String taskLabels(String jobLabel, TaskMetrics t) {
+        return jobLabel + ",task_group=\"" + t.getTaskGroupId() + "\",task=\"" + t.getTaskId() + "\"";
+    }
+
+    private static String taskKey(int taskGroupId, int taskId) {
+        return taskGroupId + "-" + taskId;
+    }
+
+    private static ObjectName objectNameOf(int taskGroupId, int taskId) {
+        return objectNameOf(String.format("%s:type=Task,taskGroup=%d,task=%d", JMX_DOMAIN, taskGroupId, taskId));
+    }
+
+    private static ObjectName jobObjectName() {
+        return objectNameOf(JMX_DOMAIN + ":type=Job");
+    }
+
+    private static ObjectName objectNameOf(String name) {
+        try {
+            return new ObjectName(name);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void registerMBean(ObjectName objectName, Object mBean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(mBean, objectName);
+            }
+        } catch (Exception e) {
+            LOG.warn(String.format("注册MBean[%s]失败.", objectName), e);
+        }
+    }
+
+    private static void unregisterMBean(ObjectName objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            LOG.warn(String.format("注销MBean[%s]失败.", objectName), e);
+        }
+    }
+
+    private class JobMetrics implements JobMetricsMXBean {
+
+        private Communication job() {
+            Communication job = jobCommunication;
+            return null == job ? new Communication() : job;
+        }
+
+        @Override
+        public long getJobId() {
+            return jobId;
+        }
+
+        @Override
+        public long getTotalReadRecords() {
+            return CommunicationTool.getTotalReadRecords(job());
+        }
+
+        @Override
+        public long getTotalReadBytes() {
+            return CommunicationTool.getTotalReadBytes(job());
+        }
+
+        @Override
+        public long getTotalErrorRecords() {
+            return CommunicationTool.getTotalErrorRecords(job());
+        }
+
+        @Override
+        public long getRecordSpeed() {
+            return job().getLongCounter(CommunicationTool.RECORD_SPEED);
+        }
+
+        @Override
+        public long getByteSpeed() {
+            return job().getLongCounter(CommunicationTool.BYTE_SPEED);
+        }
+
+        @Override
+        public double getPercentage() {
+            return job().getDoubleCounter(CommunicationTool.PERCENTAGE);
+        }
+
+        @Override
+        public long getWaitReaderTimeMillis() {
+            return job().getLongCounter(CommunicationTool.WAIT_READER_TIME) / 1000000L;
+        }
+
+        @Override
+        public long getWaitWriterTimeMillis() {
+            return job().getLongCounter(CommunicationTool.WAIT_WRITER_TIME) / 1000000L;
+        }
+
+        @Override
+        public int getRunningTasks() {
+            return tasks.size();
+        }
+    }
+}
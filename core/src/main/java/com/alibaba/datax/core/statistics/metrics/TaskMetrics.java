@@ -0,0 +1,176 @@
+package com.alibaba.datax.core.statistics.metrics;
+
+import com.alibaba.datax.core.statistics.communication.Communication;
+import com.alibaba.datax.core.statistics.communication.CommunicationTool;
+import com.alibaba.datax.core.transport.channel.Channel;
+
+/**
+ * 单个task的指标: 计数来自task的Communication, 通道占用来自Channel, 耗时分布由Channel和TransformerExchanger记录。
+ *
+ * readerBatch: reader产出一批(exchanger bufferSize条)记录的耗时, 即相邻两次写入channel之间的间隔, 反映源端读取与解析速度;
+ * writerBatch: writer处理一批记录的耗时, 即相邻两次从channel取数之间的间隔, 反映目标端写入速度;
+ * channelPush/channelPull: 写入/取出channel时的等待耗时, 反映背压;
+ * transformer: 单条记录经过全部transformer的耗时。
+ */
+public class TaskMetrics implements TaskMetricsMXBean {
+
+    private final int taskGroupId;
+
+    private final int taskId;
+
+    private final Communication communication;
+
+    private final Channel channel;
+
+    private final LatencyHistogram readerBatch = new LatencyHistogram("reader_batch");
+
+    private final LatencyHistogram writerBatch = new LatencyHistogram("writer_batch");
+
+    private final LatencyHistogram channelPush = new LatencyHistogram("channel_push");
+
+    private final LatencyHistogram channelPull = new LatencyHistogram("channel_pull");
+
+    private final LatencyHistogram transformer = new LatencyHistogram("transformer");
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[]{
+            readerBatch, writerBatch, channelPush, channelPull, transformer};
+
+    private long lastSpeedRecords = 0;
+
+    private long lastSpeedTimestamp = System.currentTimeMillis();
+
+    private volatile long recordSpeed = 0;
+
+    public TaskMetrics(int taskGroupId, int taskId, Communication communication, Channel channel) {
+        this.taskGroupId = taskGroupId;
+        this.taskId = taskId;
+        this.communication = communication;
+        this.channel = channel;
+    }
+
+    public int getTaskGroupId() {
+        return this.taskGroupId;
+    }
+
+    public int getTaskId() {
+        return this.taskId;
+    }
+
+    public Communication getCommunication() {
+        return this.communication;
+    }
+
+    public LatencyHistogram getReaderBatch() {
+        return this.readerBatch;
+    }
+
+    public LatencyHistogram getWriterBatch() {
+        return this.writerBatch;
+    }
+
+    public LatencyHistogram getChannelPush() {
+        return this.channelPush;
+    }
+
+    public LatencyHistogram getChannelPull() {
+        return this.channelPull;
+    }
+
+    public LatencyHistogram getTransformer() {
+        return this.transformer;
+    }
+
+    public LatencyHistogram[] getHistograms() {
+        return this.histograms;
+    }
+
+    @Override
+    public long getReadSucceedRecords() {
+        return this.communication.getLongCounter(CommunicationTool.READ_SUCCEED_RECORDS);
+    }
+
+    @Override
+    public long getReadSucceedBytes() {
+        return this.communication.getLongCounter(CommunicationTool.READ_SUCCEED_BYTES);
+    }
+
+    @Override
+    public long getWriteReceivedRecords() {
+        return this.communication.getLongCounter(CommunicationTool.WRITE_RECEIVED_RECORDS);
+    }
+
+    @Override
+    public long getErrorRecords() {
+        return CommunicationTool.getTotalErrorRecords(this.communication);
+    }
+
+    /**
+     * 由TaskGroupContainer的汇报循环每个reportInterval调用一次, 读取指标不会改变速度的计算区间
+     */
+    public void updateRecordSpeed(long now) {
+        long records = CommunicationTool.getTotalReadRecords(this.communication);
+        long interval = now - this.lastSpeedTimestamp;
+        if (interval <= 0) {
+            return;
+        }
+        long speed = (records - this.lastSpeedRecords) * 1000 / interval;
+        this.lastSpeedRecords = records;
+        this.lastSpeedTimestamp = now;
+        this.recordSpeed = speed < 0 ? 0 : speed;
+    }
+
+    @Override
+    public long getRecordSpeed() {
+        return this.recordSpeed;
+    }
+
+    @Override
+    public int getChannelSize() {
+        return this.channel.size();
+    }
+
+    @Override
+    public int getChannelCapacity() {
+        return this.channel.getCapacity();
+    }
+
+    @Override
+    public long getChannelMemoryBytes() {
+        return this.channel.getMemoryBytes();
+    }
+
+    @Override
+    public long getWaitReaderTimeMillis() {
+        return this.communication.getLongCounter(CommunicationTool.WAIT_READER_TIME) / 1000000L;
+    }
+
+    @Override
+    public long getWaitWriterTimeMillis() {
+        return this.communication.getLongCounter(CommunicationTool.WAIT_WRITER_TIME) / 1000000L;
+    }
+
+    @Override
+    public double getReaderBatchP50Millis() {
+        return this.readerBatch.getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getReaderBatchP99Millis() {
+        return this.readerBatch.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getWriterBatchP50Millis() {
+        return this.writerBatch.getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getWriterBatchP99Millis() {
+        return this.writerBatch.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getTransformerP99Millis() {
+        return this.transformer.getPercentileMillis(0.99);
+    }
+}
@@ -0,0 +1,40 @@
+package com.alibaba.datax.core.statistics.metrics;
+
+/**
+ * 单个task的实时指标, 注册为 com.alibaba.datax:type=Task,taskGroup={taskGroupId},task={taskId}
+ */
+public interface TaskMetricsMXBean {
+
+    long getReadSucceedRecords();
+
+    long getReadSucceedBytes();
+
+    long getWriteReceivedRecords();
+
+    long getErrorRecords();
+
+    /**
+     * 最近一个汇报周期内的平均读取速度, 记录/秒
+     */
+    long getRecordSpeed();
+
+    int getChannelSize();
+
+    int getChannelCapacity();
+
+    long getChannelMemoryBytes();
+
+    long getWaitReaderTimeMillis();
+
+    long getWaitWriterTimeMillis();
+
+    double getReaderBatchP50Millis();
+
+    double getReaderBatchP99Millis();
+
+    double getWriterBatchP50Millis();
+
+    double getWriterBatchP99Millis();
+
+    double getTransformerP99Millis();
+}
@@ -6,6 +6,7 @@ import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.datax.core.statistics.communication.Communication;
 import com.alibaba.datax.core.util.container.CoreConstant;
 import com.alibaba.datax.core.statistics.plugin.task.util.DirtyRecord;
+import com.alibaba.datax.core.statistics.plugin.task.util.DirtyRecordSink;
 import com.alibaba.fastjson.JSON;
 
 import org.apache.commons.lang3.StringUtils;
@@ -29,6 +30,11 @@ public class StdoutPluginCollector extends AbstractTaskPluginCollector {
 
     private AtomicInteger currentLogNum = new AtomicInteger(0);
 
+    /**
+     * 未配置脏数据持久化路径时为null
+     */
+    private DirtyRecordSink dirtyRecordSink;
+
     public StdoutPluginCollector(Configuration configuration, Communication communication,
                                  PluginType type) {
         super(configuration, communication, type);
@@ -36,10 +42,16 @@ public class StdoutPluginCollector extends AbstractTaskPluginCollector {
                 configuration.getInt(
                         CoreConstant.DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_MAXDIRTYNUM,
                         DEFAULT_MAX_DIRTYNUM));
+        dirtyRecordSink = DirtyRecordSink.getInstance(configuration);
     }
 
     private String formatDirty(final Record dirty, final Throwable t,
                                final String msg) {
+        return JSON.toJSONString(this.buildDirty(dirty, t, msg));
+    }
+
+    private Map<String, Object> buildDirty(final Record dirty, final Throwable t,
+                                           final String msg) {
         Map<String, Object> msgGroup = new HashMap<String, Object>();
 
         msgGroup.put("type", super.getPluginType().toString());
@@ -54,7 +66,7 @@ public class StdoutPluginCollector extends AbstractTaskPluginCollector {
                     .getColumns());
         }
 
-        return JSON.toJSONString(msgGroup);
+        return msgGroup;
     }
 
     @Override
@@ -68,6 +80,9 @@ public class StdoutPluginCollector extends AbstractTaskPluginCollector {
             LOG.error("脏数据: \n"
                     + this.formatDirty(dirtyRecord, t, errorMessage));
         }
+        if (null != dirtyRecordSink) {
+            dirtyRecordSink.write(this.buildDirty(dirtyRecord, t, errorMessage));
+        }
 
         super.collectDirtyRecord(dirtyRecord, t, errorMessage);
     }
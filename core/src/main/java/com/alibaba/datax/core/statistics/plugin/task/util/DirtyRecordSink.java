@@ -0,0 +1,70 @@
+package com.alibaba.datax.core.statistics.plugin.task.util;
+
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.core.util.ClassUtil;
+import com.alibaba.datax.core.util.container.CoreConstant;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * 脏数据的持久化出口, 进程内所有task共享一个实例。
+ *
+ * 配置了 core.statistics.collector.plugin.dirtyRecord.path 时启用,
+ * 实现类由 core.statistics.collector.plugin.dirtyRecord.sinkClass 指定, 需要提供 (Configuration) 构造函数。
+ */
+public abstract class DirtyRecordSink {
+    private static final Logger LOG = LoggerFactory.getLogger(DirtyRecordSink.class);
+
+    private static final String DEFAULT_SINK_CLASS = FileDirtyRecordSink.class.getName();
+
+    private static volatile DirtyRecordSink instance;
+
+    private static volatile boolean initialized = false;
+
+    /**
+     * @return 未配置脏数据路径时返回null
+     */
+    public static DirtyRecordSink getInstance(Configuration configuration) {
+        if (initialized) {
+            return instance;
+        }
+        synchronized (DirtyRecordSink.class) {
+            if (initialized) {
+                return instance;
+            }
+            String path = configuration.getString(
+                    CoreConstant.DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_DIRTYRECORD_PATH);
+            if (StringUtils.isNotBlank(path)) {
+                String sinkClass = configuration.getString(
+                        CoreConstant.DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_DIRTYRECORD_SINKCLASS,
+                        DEFAULT_SINK_CLASS);
+                final DirtyRecordSink sink = ClassUtil.instantiate(sinkClass, DirtyRecordSink.class, configuration);
+                Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        sink.close();
+                    }
+                }, "dirty-record-sink-shutdown"));
+                LOG.info("脏数据将由[{}]写入[{}].", sinkClass, path);
+                instance = sink;
+            }
+            initialized = true;
+            return instance;
+        }
+    }
+
+    /**
+     * 由reader/writer线程调用, 实现需要尽快返回, 序列化与IO应放在后台完成
+     *
+     * @param dirty 与脏数据日志相同结构的内容: type, message, exception, record
+     */
+    public abstract void write(Map<String, Object> dirty);
+
+    /**
+     * 写出所有已接收的脏数据并释放资源, 可重复调用
+     */
+    public abstract void close();
+}
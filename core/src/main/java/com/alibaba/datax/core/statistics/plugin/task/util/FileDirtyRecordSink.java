@@ -0,0 +1,198 @@
+package com.alibaba.datax.core.statistics.plugin.task.util;
+
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.core.util.container.CoreConstant;
+import com.alibaba.fastjson.JSON;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.time.FastDateFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 把脏数据异步写入本地文件, 每条一行JSON(JSON Lines), 格式与脏数据日志一致, 可以由 dirtyrecordreader 回放。
+ *
+ * reader/writer线程只把脏数据放入有界队列, 由后台线程序列化并写文件; 队列满时写入线程阻塞等待, 不丢弃脏数据。
+ * 文件名为 dirty_{jobId}_{时间}_{序号}.jsonl[.gz], 未压缩大小超过 maxFileSize 时滚动到新文件。
+ */
+public class FileDirtyRecordSink extends DirtyRecordSink {
+    private static final Logger LOG = LoggerFactory.getLogger(FileDirtyRecordSink.class);
+
+    private static final int DEFAULT_QUEUE_SIZE = 4096;
+
+    private static final long DEFAULT_MAX_FILE_SIZE = 128L * 1024 * 1024;
+
+    private static final byte[] LINE_SEPARATOR = "\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 通知后台线程结束的标记
+     */
+    private static final Map<String, Object> END = new HashMap<String, Object>();
+
+    private final File directory;
+
+    private final String filePrefix;
+
+    private final boolean compress;
+
+    private final long maxFileSize;
+
+    private final BlockingQueue<Map<String, Object>> queue;
+
+    private final Thread writerThread;
+
+    private volatile boolean closed = false;
+
+    private OutputStream out;
+
+    private long currentFileSize;
+
+    private int fileSequence = 0;
+
+    private long writtenCount = 0;
+
+    public FileDirtyRecordSink(Configuration configuration) {
+        this.directory = new File(configuration.getString(
+                CoreConstant.DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_DIRTYRECORD_PATH));
+        this.compress = configuration.getBool(
+                CoreConstant.DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_DIRTYRECORD_COMPRESS, true);
+        this.maxFileSize = configuration.getLong(
+                CoreConstant.DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_DIRTYRECORD_MAXFILESIZE, DEFAULT_MAX_FILE_SIZE);
+        this.queue = new ArrayBlockingQueue<Map<String, Object>>(configuration.getInt(
+                CoreConstant.DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_DIRTYRECORD_QUEUESIZE, DEFAULT_QUEUE_SIZE));
+        this.filePrefix = String.format("dirty_%s_%s",
+                configuration.getLong(CoreConstant.DATAX_CORE_CONTAINER_JOB_ID, -1L),
+                FastDateFormat.getInstance("yyyyMMddHHmmss").format(new Date()));
+
+        if (!this.directory.exists() && !this.directory.mkdirs()) {
+            throw new IllegalArgumentException(String.format("无法创建脏数据目录[%s].", this.directory));
+        }
+
+        this.writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "dirty-record-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public void write(Map<String, Object> dirty) {
+        if (this.closed) {
+            LOG.error("脏数据: \n" + JSON.toJSONString(dirty));
+            return;
+        }
+        try {
+            while (!this.queue.offer(dirty, 1, TimeUnit.SECONDS)) {
+                if (!this.writerThread.isAlive()) {
+                    LOG.error("脏数据: \n" + JSON.toJSONString(dirty));
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("脏数据: \n" + JSON.toJSONString(dirty));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.queue.put(END);
+            this.writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.info("共写入脏数据[{}]条到目录[{}].", this.writtenCount, this.directory.getAbsolutePath());
+    }
+
+    private void drain() {
+        boolean failed = false;
+        try {
+            while (true) {
+                Map<String, Object> dirty = this.queue.poll(1, TimeUnit.SECONDS);
+                if (null == dirty) {
+                    // 空闲时刷盘, 保证进程异常退出时已写入的脏数据尽量完整
+                    if (null != this.out && !failed) {
+                        flushQuietly();
+                    }
+                    continue;
+                }
+                if (END == dirty) {
+                    break;
+                }
+                if (failed) {
+                    LOG.error("脏数据: \n" + JSON.toJSONString(dirty));
+                    continue;
+                }
+                try {
+                    writeLine(JSON.toJSONBytes(dirty));
+                    this.writtenCount++;
+                } catch (IOException e) {
+                    // 写文件失败后退化为写日志, 不影响任务本身
+                    LOG.error(String.format("写脏数据文件失败, 后续脏数据将只输出到日志. 目录[%s].",
+                            this.directory.getAbsolutePath()), e);
+                    LOG.error("脏数据: \n" + JSON.toJSONString(dirty));
+                    failed = true;
+                    IOUtils.closeQuietly(this.out);
+                    this.out = null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            IOUtils.closeQuietly(this.out);
+            this.out = null;
+        }
+    }
+
+    private void writeLine(byte[] line) throws IOException {
+        if (null == this.out || this.currentFileSize >= this.maxFileSize) {
+            rollFile();
+        }
+        this.out.write(line);
+        this.out.write(LINE_SEPARATOR);
+        this.currentFileSize += line.length + LINE_SEPARATOR.length;
+    }
+
+    private void rollFile() throws IOException {
+        if (null != this.out) {
+            this.out.close();
+        }
+        File file = new File(this.directory, String.format("%s_%05d.jsonl%s",
+                this.filePrefix, this.fileSequence++, this.compress ? ".gz" : ""));
+        LOG.info("写入脏数据文件[{}].", file.getAbsolutePath());
+        OutputStream fileOut = new FileOutputStream(file);
+        this.out = this.compress
+                ? new BufferedOutputStream(new GZIPOutputStream(fileOut, 64 * 1024, true), 64 * 1024)
+                : new BufferedOutputStream(fileOut, 64 * 1024);
+        this.currentFileSize = 0;
+    }
+
+    private void flushQuietly() {
+        try {
+            this.out.flush();
+        } catch (IOException e) {
+            LOG.warn("刷新脏数据文件失败.", e);
+        }
+    }
+}
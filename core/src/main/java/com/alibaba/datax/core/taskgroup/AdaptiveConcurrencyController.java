@@ -0,0 +1,214 @@
+package com.alibaba.datax.core.taskgroup;
+
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.core.statistics.communication.Communication;
+import com.alibaba.datax.core.statistics.communication.CommunicationTool;
+import com.alibaba.datax.core.util.container.CoreConstant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * taskGroup内同时运行task数的自适应控制, 由 core.container.taskGroup.adaptive.enable 开启, 默认关闭。
+ *
+ * 每个观察周期根据taskGroup的吞吐做一次爬山: 吞吐提升则沿上一次调整的方向继续, 下降则撤回上一次调整;
+ * 增加并发后吞吐持平则回退, 其余情况持平时保持当前并发;
+ * 周期内出现新的脏数据或task失败时按比例降低并发; 吞吐提升但writer单条耗时明显变长时视为目标端接近饱和, 不再继续增加。
+ * 并发在[minChannel, maxChannel]之间变化, 默认从taskGroup分配到的channel数开始, 第一次探测在上限时向下、否则向上。
+ * maxChannel默认即taskGroup分配到的channel数, 可以配置得更大; 但作业设置了byte或record限速时, 单个channel的限速
+ * 是按channel数均分的, 超过channel数运行会突破作业限速, 此时上限仍为channel数。
+ *
+ * 降低并发不会中断正在运行的task, 只是在task结束后不再补足, 因此只对task数多于channel数的作业生效。
+ */
+public class AdaptiveConcurrencyController {
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveConcurrencyController.class);
+
+    private final int taskGroupId;
+
+    private final boolean enable;
+
+    private final int minConcurrency;
+
+    private final int maxConcurrency;
+
+    private final long intervalInMillSec;
+
+    /**
+     * 吞吐变化在该比例以内视为持平
+     */
+    private final double tolerance;
+
+    /**
+     * writer单条耗时增长超过该比例时视为目标端接近饱和
+     */
+    private final double latencyTolerance;
+
+    private volatile int concurrency;
+
+    /**
+     * 上一个周期实际调整的并发数, 正数为增加, 负数为减少, 0为未调整
+     */
+    private int lastStep = 0;
+
+    private boolean failedInWindow = false;
+
+    private long lastTimestamp = -1;
+
+    private long lastRecords;
+
+    private long lastErrorRecords;
+
+    private long lastWaitReaderTime;
+
+    private long lastWaitWriterTime;
+
+    private double lastThroughput = -1;
+
+    private double lastWriterLatency = -1;
+
+    private double lastErrorRatio = 0;
+
+    public AdaptiveConcurrencyController(Configuration configuration, int taskGroupId, int channelNumber) {
+        this.taskGroupId = taskGroupId;
+        this.enable = configuration.getBool(
+                CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_ENABLE, false);
+        int maxChannel = configuration.getInt(
+                CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_MAXCHANNEL, channelNumber);
+        boolean isSpeedLimit = configuration.getInt(CoreConstant.DATAX_JOB_SETTING_SPEED_BYTE, 0) > 0
+                || configuration.getInt(CoreConstant.DATAX_JOB_SETTING_SPEED_RECORD, 0) > 0;
+        if (isSpeedLimit && maxChannel > channelNumber) {
+            LOG.info("taskGroup[{}] job speed is limited, adaptive maxChannel {} is capped to channel number {}.",
+                    taskGroupId, maxChannel, channelNumber);
+            maxChannel = channelNumber;
+        }
+        this.maxConcurrency = Math.max(1, maxChannel);
+        this.minConcurrency = Math.max(1, Math.min(this.maxConcurrency, configuration.getInt(
+                CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_MINCHANNEL, 1)));
+        this.intervalInMillSec = configuration.getLong(
+                CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_INTERVALINMSEC, 30000);
+        this.tolerance = configuration.getDouble(
+                CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_TOLERANCE, 0.05);
+        this.latencyTolerance = configuration.getDouble(
+                CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_LATENCYTOLERANCE, 0.5);
+
+        if (this.enable) {
+            // 从分配到的channel数开始, 不会比固定并发的吞吐更低
+            int initial = configuration.getInt(CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_INITIALCHANNEL,
+                    channelNumber);
+            this.concurrency = clamp(initial);
+            LOG.info("taskGroup[{}] adaptive concurrency enabled, range=[{}, {}], initial={}.",
+                    taskGroupId, this.minConcurrency, this.maxConcurrency, this.concurrency);
+        } else {
+            this.concurrency = channelNumber;
+        }
+    }
+
+    /**
+     * @return 当前允许同时运行的task数
+     */
+    public int getConcurrency() {
+        return this.concurrency;
+    }
+
+    public boolean isDue(long now) {
+        return this.enable && (this.lastTimestamp < 0 || now - this.lastTimestamp >= this.intervalInMillSec);
+    }
+
+    /**
+     * task失败重试时调用, 作为目标端出错的信号
+     */
+    public void onTaskFailed() {
+        this.failedInWindow = true;
+    }
+
+    /**
+     * @param taskGroupCommunication taskGroup下所有task的汇总
+     * @param runningTasks           周期结束时正在运行的task数
+     * @param pendingTasks           还未开始的task数
+     */
+    public void adjust(Communication taskGroupCommunication, int runningTasks, int pendingTasks, long now) {
+        long records = CommunicationTool.getTotalReadRecords(taskGroupCommunication);
+        long errorRecords = CommunicationTool.getTotalErrorRecords(taskGroupCommunication);
+        long waitReaderTime = taskGroupCommunication.getLongCounter(CommunicationTool.WAIT_READER_TIME);
+        long waitWriterTime = taskGroupCommunication.getLongCounter(CommunicationTool.WAIT_WRITER_TIME);
+
+        if (this.lastTimestamp < 0 || records < this.lastRecords || now <= this.lastTimestamp) {
+            // 第一个周期或failover重置了计数, 只记录基线
+            this.resetBaseline(records, errorRecords, waitReaderTime, waitWriterTime, now);
+            return;
+        }
+
+        long elapsed = now - this.lastTimestamp;
+        long deltaRecords = records - this.lastRecords;
+        long deltaErrors = errorRecords - this.lastErrorRecords;
+        double throughput = deltaRecords * 1000.0 / elapsed;
+        // 各task的writer没有在等待reader的时间, 均摊到每条记录上, 近似目标端写入耗时(ns)
+        double writerBusy = Math.max(0, (double) elapsed * 1000000L * Math.max(1, runningTasks)
+                - (waitReaderTime - this.lastWaitReaderTime));
+        double writerLatency = deltaRecords > 0 ? writerBusy / deltaRecords : -1;
+        double readerWaitRatio = (waitWriterTime - this.lastWaitWriterTime) / (elapsed * 1000000.0 * Math.max(1, runningTasks));
+        // 源数据本身的脏数据比例是稳定的, 只有比例明显升高才认为是目标端出错
+        double errorRatio = deltaRecords > 0 ? (double) deltaErrors / deltaRecords : 0;
+        boolean errorRising = deltaErrors > 0 && errorRatio > this.lastErrorRatio * 2;
+
+        int before = this.concurrency;
+        String reason;
+        if (pendingTasks == 0) {
+            // 已没有待启动的task, 调整并发不再有作用
+            reason = "no pending task";
+        } else if (this.failedInWindow || errorRising) {
+            this.concurrency = clamp(this.concurrency - Math.max(1, this.concurrency / 4));
+            reason = this.failedInWindow ? "task failed" : "dirty records increased";
+        } else if (this.lastThroughput < 0) {
+            // 已在上限时向下探测
+            this.concurrency = clamp(this.concurrency + (this.concurrency < this.maxConcurrency ? 1 : -1));
+            reason = "probe";
+        } else {
+            double change = this.lastThroughput > 0
+                    ? (throughput - this.lastThroughput) / this.lastThroughput
+                    : (throughput > 0 ? 1 : 0);
+            boolean latencyRising = this.lastWriterLatency > 0 && writerLatency > 0
+                    && (writerLatency - this.lastWriterLatency) / this.lastWriterLatency > this.latencyTolerance;
+            if (change > this.tolerance && !latencyRising) {
+                // 沿上一次调整的方向继续, 上一次没有调整时向上探测
+                this.concurrency = clamp(this.concurrency + (this.lastStep < 0 ? -1 : 1));
+                reason = "throughput improved";
+            } else if (change < -this.tolerance) {
+                // 撤回上一次调整, 上一次没有调整时说明两端负载升高, 降低并发
+                this.concurrency = clamp(this.concurrency + (this.lastStep < 0 ? 1 : -1));
+                reason = "throughput dropped";
+            } else if (this.lastStep > 0) {
+                // 增加并发没有带来收益, 回退
+                this.concurrency = clamp(this.concurrency - 1);
+                reason = latencyRising ? "target latency rising" : "throughput flat";
+            } else {
+                // 减少并发后或者保持并发时吞吐持平, 保持当前并发
+                reason = "throughput flat";
+            }
+        }
+
+        if (before != this.concurrency) {
+            LOG.info(String.format("taskGroup[%d] adaptive concurrency %d -> %d: %s, %d records/s, "
+                            + "writer %.3fms/record, reader wait ratio %.2f.",
+                    this.taskGroupId, before, this.concurrency, reason, (long) throughput,
+                    writerLatency / 1000000.0, readerWaitRatio));
+        }
+        this.lastStep = this.concurrency - before;
+        this.resetBaseline(records, errorRecords, waitReaderTime, waitWriterTime, now);
+        this.lastThroughput = throughput;
+        this.lastWriterLatency = writerLatency;
+        this.lastErrorRatio = errorRatio;
+    }
+
+    private void resetBaseline(long records, long errorRecords, long waitReaderTime, long waitWriterTime, long now) {
+        this.lastRecords = records;
+        this.lastErrorRecords = errorRecords;
+        this.lastWaitReaderTime = waitReaderTime;
+        this.lastWaitWriterTime = waitWriterTime;
+        this.lastTimestamp = now;
+        this.failedInWindow = false;
+    }
+
+    private int clamp(int value) {
+        return Math.max(this.minConcurrency, Math.min(this.maxConcurrency, value));
+    }
+}
@@ -13,6 +13,8 @@ import com.alibaba.datax.core.AbstractContainer;
 import com.alibaba.datax.core.statistics.communication.Communication;
 import com.alibaba.datax.core.statistics.communication.CommunicationTool;
 import com.alibaba.datax.core.statistics.container.communicator.taskgroup.StandaloneTGContainerCommunicator;
+import com.alibaba.datax.core.statistics.metrics.MetricsRegistry;
+import com.alibaba.datax.core.statistics.metrics.TaskMetrics;
 import com.alibaba.datax.core.statistics.plugin.task.AbstractTaskPluginCollector;
 import com.alibaba.datax.core.taskgroup.runner.AbstractRunner;
 import com.alibaba.datax.core.taskgroup.runner.ReaderRunner;
@@ -134,6 +136,10 @@ public class TaskGroupContainer extends AbstractContainer {
             
             this.containerCommunicator.registerCommunication(taskConfigs);
 
+            // 未开启自适应时并发固定为channelNumber
+            AdaptiveConcurrencyController concurrencyController = new AdaptiveConcurrencyController(
+                    this.configuration, this.taskGroupId, channelNumber);
+
             Map<Integer, Configuration> taskConfigMap = buildTaskConfigMap(taskConfigs); //taskId与task配置
             List<Configuration> taskQueue = buildRemainTasks(taskConfigs); //待运行task列表
             Map<Integer, TaskExecutor> taskFailedExecutorMap = new HashMap<Integer, TaskExecutor>(); //taskId与上次失败实例
@@ -154,15 +160,22 @@ public class TaskGroupContainer extends AbstractContainer {
                         continue;
                     }
                     TaskExecutor taskExecutor = removeTask(runTasks, taskId);
+                    //已经处理过的task, 其Communication会一直保持结束状态
+                    if(taskExecutor == null){
+                        continue;
+                    }
 
                     //上面从runTasks里移除了，因此对应在monitor里移除
                     taskMonitor.removeTask(taskId);
+                    MetricsRegistry.getInstance().unregisterTask(this.taskGroupId, taskId);
 
                     //失败，看task是否支持failover，重试次数未超过最大限制
             		if(taskCommunication.getState() == State.FAILED){
                         taskFailedExecutorMap.put(taskId, taskExecutor);
             			if(taskExecutor.supportFailOver() && taskExecutor.getAttemptCount() < taskMaxRetryTimes){
+                            concurrencyController.onTaskFailed();
                             taskExecutor.shutdown(); //关闭老的executor
+                            taskExecutor.destroyChannel(); //reader/writer已被中断, 再释放channel占用的本地文件
                             containerCommunicator.resetCommunication(taskId); //将task的状态重置
             				Configuration taskConfig = taskConfigMap.get(taskId);
             				taskQueue.add(taskConfig); //重新加入任务列表
@@ -174,6 +187,7 @@ public class TaskGroupContainer extends AbstractContainer {
             			failedOrKilled = true;
             			break;
             		}else if(taskCommunication.getState() == State.SUCCEEDED){
+                        taskExecutor.destroyChannel();
                         Long taskStartTime = taskStartTimeMap.get(taskId);
                         if(taskStartTime != null){
                             Long usedTime = System.currentTimeMillis() - taskStartTime;
@@ -198,7 +212,7 @@ public class TaskGroupContainer extends AbstractContainer {
                 
                 //3.有任务未执行，且正在运行的任务数小于最大通道限制
                 Iterator<Configuration> iterator = taskQueue.iterator();
-                while(iterator.hasNext() && runTasks.size() < channelNumber){
+                while(iterator.hasNext() && runTasks.size() < concurrencyController.getConcurrency()){
                     Configuration taskConfig = iterator.next();
                     Integer taskId = taskConfig.getInt(CoreConstant.TASK_ID);
                     int attemptCount = 1;
@@ -252,6 +266,10 @@ public class TaskGroupContainer extends AbstractContainer {
 
                 // 5.如果当前时间已经超出汇报时间的interval，那么我们需要马上汇报
                 long now = System.currentTimeMillis();
+                if (concurrencyController.isDue(now)) {
+                    concurrencyController.adjust(this.containerCommunicator.collect(),
+                            runTasks.size(), taskQueue.size(), now);
+                }
                 if (now - lastReportTimeStamp > reportIntervalInMillSec) {
                     lastTaskGroupContainerCommunication = reportTaskGroupCommunication(
                             lastTaskGroupContainerCommunication, taskCountInThisTaskGroup);
@@ -261,6 +279,7 @@ public class TaskGroupContainer extends AbstractContainer {
                     //taskMonitor对于正在运行的task，每reportIntervalInMillSec进行检查
                     for(TaskExecutor taskExecutor:runTasks){
                         taskMonitor.report(taskExecutor.getTaskId(),this.containerCommunicator.getCommunication(taskExecutor.getTaskId()));
+                        taskExecutor.updateMetrics(now);
                     }
 
                 }
@@ -378,6 +397,11 @@ public class TaskGroupContainer extends AbstractContainer {
          */
         private Communication taskCommunication;
 
+        /**
+         * 未开启core.metrics时为null
+         */
+        private TaskMetrics taskMetrics;
+
         public TaskExecutor(Configuration taskConf, int attemptCount) {
             // 获取该taskExecutor的配置
             this.taskConfig = taskConf;
@@ -400,6 +424,9 @@ public class TaskGroupContainer extends AbstractContainer {
             this.channel = ClassUtil.instantiate(channelClazz,
                     Channel.class, configuration);
             this.channel.setCommunication(this.taskCommunication);
+            this.taskMetrics = MetricsRegistry.getInstance().registerTask(
+                    taskGroupId, this.taskId, this.taskCommunication, this.channel);
+            this.channel.setMetrics(this.taskMetrics);
 
             /**
              * 获取transformer的参数
@@ -479,7 +506,11 @@ public class TaskGroupContainer extends AbstractContainer {
 
                     RecordSender recordSender;
                     if (transformerInfoExecs != null && transformerInfoExecs.size() > 0) {
-                        recordSender = new BufferedRecordTransformerExchanger(taskGroupId, this.taskId, this.channel,this.taskCommunication ,pluginCollector, transformerInfoExecs);
+                        BufferedRecordTransformerExchanger transformerExchanger = new BufferedRecordTransformerExchanger(taskGroupId, this.taskId, this.channel,this.taskCommunication ,pluginCollector, transformerInfoExecs);
+                        if (this.taskMetrics != null) {
+                            transformerExchanger.setTransformerHistogram(this.taskMetrics.getTransformer());
+                        }
+                        recordSender = transformerExchanger;
                     } else {
                         recordSender = new BufferedRecordExchanger(this.channel, pluginCollector);
                     }
@@ -560,8 +591,18 @@ public class TaskGroupContainer extends AbstractContainer {
             }
         }
 
+        private void destroyChannel(){
+            this.channel.destroy();
+        }
+
         private boolean isShutdown(){
             return !readerThread.isAlive() && !writerThread.isAlive();
         }
+
+        private void updateMetrics(long now){
+            if (null != this.taskMetrics) {
+                this.taskMetrics.updateRecordSpeed(now);
+            }
+        }
     }
 }
@@ -4,6 +4,7 @@ import com.alibaba.datax.common.element.Record;
 import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.datax.core.statistics.communication.Communication;
 import com.alibaba.datax.core.statistics.communication.CommunicationTool;
+import com.alibaba.datax.core.statistics.metrics.TaskMetrics;
 import com.alibaba.datax.core.transport.record.TerminateRecord;
 import com.alibaba.datax.core.util.container.CoreConstant;
 import org.apache.commons.lang.Validate;
@@ -47,6 +48,18 @@ public abstract class Channel {
 
     private Communication lastCommunication = new Communication();
 
+    /**
+     * 未开启core.metrics时为null
+     */
+    private TaskMetrics metrics;
+
+    /**
+     * 上一次pushAll/pullAll结束的时间, 分别只在reader/writer线程中读写
+     */
+    private long lastPushEndNanos = 0;
+
+    private long lastPullEndNanos = 0;
+
     public Channel(final Configuration configuration) {
         //channel的queue里默认record为1万条。原来为512条
         int capacity = configuration.getInt(
@@ -96,6 +109,12 @@ public abstract class Channel {
         return isClosed;
     }
 
+    /**
+     * task结束(成功、失败或者准备重试)后调用, 释放channel在内存以外占用的资源, 如本地文件
+     */
+    public void destroy() {
+    }
+
     public int getTaskGroupId() {
         return this.taskGroupId;
     }
@@ -112,6 +131,17 @@ public abstract class Channel {
         return this.configuration;
     }
 
+    public void setMetrics(final TaskMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return 当前缓存在channel中的记录占用的内存, 不支持统计的实现返回0
+     */
+    public long getMemoryBytes() {
+        return 0;
+    }
+
     public void setCommunication(final Communication communication) {
         this.currentCommunication = communication;
         this.lastCommunication.reset();
@@ -135,7 +165,17 @@ public abstract class Channel {
     public void pushAll(final Collection<Record> rs) {
         Validate.notNull(rs);
         Validate.noNullElements(rs);
-        this.doPushAll(rs);
+        if (null == this.metrics) {
+            this.doPushAll(rs);
+        } else {
+            long start = System.nanoTime();
+            if (this.lastPushEndNanos > 0) {
+                this.metrics.getReaderBatch().record(start - this.lastPushEndNanos);
+            }
+            this.doPushAll(rs);
+            this.lastPushEndNanos = System.nanoTime();
+            this.metrics.getChannelPush().record(this.lastPushEndNanos - start);
+        }
         this.statPush(rs.size(), this.getByteSize(rs));
     }
 
@@ -147,7 +187,17 @@ public abstract class Channel {
 
     public void pullAll(final Collection<Record> rs) {
         Validate.notNull(rs);
-        this.doPullAll(rs);
+        if (null == this.metrics) {
+            this.doPullAll(rs);
+        } else {
+            long start = System.nanoTime();
+            if (this.lastPullEndNanos > 0) {
+                this.metrics.getWriterBatch().record(start - this.lastPullEndNanos);
+            }
+            this.doPullAll(rs);
+            this.lastPullEndNanos = System.nanoTime();
+            this.metrics.getChannelPull().record(this.lastPullEndNanos - start);
+        }
         this.statPull(rs.size(), this.getByteSize(rs));
     }
 
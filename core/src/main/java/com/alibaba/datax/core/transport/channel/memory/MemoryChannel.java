@@ -133,6 +133,11 @@ public class MemoryChannel extends Channel {
 		return bytes;
 	}
 
+	@Override
+	public long getMemoryBytes() {
+		return this.memoryBytes.get();
+	}
+
 	@Override
 	public int size() {
 		return this.queue.size();
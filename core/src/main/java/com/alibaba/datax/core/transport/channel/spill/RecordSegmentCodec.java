@@ -0,0 +1,340 @@
+package com.alibaba.datax.core.transport.channel.spill;
+
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.BytesColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.core.util.FrameworkErrorCode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * SpillChannel 溢出文件(segment)的二进制格式, 一个文件保存一批按顺序排列的 record:
+ * <pre>
+ * 文件头(不压缩): magic(int) version(byte) compressed(byte) recordCount(int)
+ * 每条 record:   columnCount(varint) column* metaCount(varint) (key value)*
+ * 每个 column:   tag(byte) [value]
+ * </pre>
+ * 整数使用 zigzag varint, 字符串和二进制使用 varint 长度加 UTF-8/原始字节. 列的类型和空值都编码在 tag 中,
+ * 读取时按 tag 还原为对应的 Column 实现, DateColumn 保留子类型.
+ */
+public class RecordSegmentCodec {
+
+    private static final int MAGIC = 0x44585350;
+
+    private static final byte VERSION = 1;
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    // record 中该位置没有 column
+    private static final byte TAG_ABSENT = 0;
+
+    // column 存在但值为 null, 后跟 Column.Type 序号和 DateType 序号
+    private static final byte TAG_NULL_VALUE = 1;
+
+    private static final byte TAG_LONG = 2;
+
+    private static final byte TAG_BIG_INTEGER = 3;
+
+    private static final byte TAG_DOUBLE = 4;
+
+    private static final byte TAG_STRING = 5;
+
+    private static final byte TAG_DATE = 6;
+
+    private static final byte TAG_TRUE = 7;
+
+    private static final byte TAG_FALSE = 8;
+
+    private static final byte TAG_BYTES = 9;
+
+    private static final DateColumn.DateType[] DATE_TYPES = DateColumn.DateType.values();
+
+    private final boolean compress;
+
+    private final Class<? extends Record> recordClass;
+
+    public RecordSegmentCodec(boolean compress, Class<? extends Record> recordClass) {
+        this.compress = compress;
+        this.recordClass = recordClass;
+    }
+
+    /**
+     * @return 写入文件的字节数
+     */
+    public long write(File file, List<Record> records) throws IOException {
+        FileOutputStream fileOut = new FileOutputStream(file);
+        Deflater deflater = null;
+        try {
+            DataOutputStream header = new DataOutputStream(fileOut);
+            header.writeInt(MAGIC);
+            header.writeByte(VERSION);
+            header.writeByte(this.compress ? 1 : 0);
+            header.writeInt(records.size());
+
+            OutputStream body = fileOut;
+            if (this.compress) {
+                deflater = new Deflater(Deflater.BEST_SPEED);
+                body = new DeflaterOutputStream(fileOut, deflater, IO_BUFFER_SIZE);
+            }
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(body, IO_BUFFER_SIZE));
+            for (Record record : records) {
+                writeRecord(out, record);
+            }
+            out.close();
+        } finally {
+            fileOut.close();
+            if (null != deflater) {
+                deflater.end();
+            }
+        }
+        return file.length();
+    }
+
+    public List<Record> read(File file) throws IOException {
+        InputStream fileIn = new FileInputStream(file);
+        Inflater inflater = null;
+        try {
+            DataInputStream header = new DataInputStream(fileIn);
+            if (header.readInt() != MAGIC || header.readByte() != VERSION) {
+                throw new IOException(String.format("文件[%s]不是合法的channel溢出文件.", file.getAbsolutePath()));
+            }
+            boolean compressed = header.readByte() == 1;
+            int recordCount = header.readInt();
+
+            InputStream body = fileIn;
+            if (compressed) {
+                inflater = new Inflater();
+                body = new InflaterInputStream(fileIn, inflater, IO_BUFFER_SIZE);
+            }
+            DataInputStream in = new DataInputStream(new BufferedInputStream(body, IO_BUFFER_SIZE));
+            List<Record> records = new ArrayList<Record>(recordCount);
+            for (int i = 0; i < recordCount; i++) {
+                records.add(readRecord(in));
+            }
+            in.close();
+            return records;
+        } finally {
+            fileIn.close();
+            if (null != inflater) {
+                inflater.end();
+            }
+        }
+    }
+
+    private void writeRecord(DataOutputStream out, Record record) throws IOException {
+        int columnNumber = record.getColumnNumber();
+        writeVarLong(out, columnNumber);
+        for (int i = 0; i < columnNumber; i++) {
+            writeColumn(out, record.getColumn(i));
+        }
+        Map<String, String> meta = record.getMeta();
+        if (null == meta || meta.isEmpty()) {
+            writeVarLong(out, 0);
+        } else {
+            writeVarLong(out, meta.size());
+            for (Map.Entry<String, String> entry : meta.entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+        }
+    }
+
+    private void writeColumn(DataOutputStream out, Column column) throws IOException {
+        if (null == column) {
+            out.writeByte(TAG_ABSENT);
+            return;
+        }
+        Object rawData = column.getRawData();
+        if (null == rawData) {
+            out.writeByte(TAG_NULL_VALUE);
+            out.writeByte(column.getType().ordinal());
+            out.writeByte(column instanceof DateColumn ? ((DateColumn) column).getSubType().ordinal() : 0);
+            return;
+        }
+        switch (column.getType()) {
+            case LONG:
+                BigInteger value = column.asBigInteger();
+                if (value.bitLength() < 64) {
+                    out.writeByte(TAG_LONG);
+                    writeVarLong(out, zigzag(value.longValue()));
+                } else {
+                    out.writeByte(TAG_BIG_INTEGER);
+                    writeBytes(out, value.toByteArray());
+                }
+                break;
+            case DOUBLE:
+                out.writeByte(TAG_DOUBLE);
+                writeString(out, column.asString());
+                break;
+            case STRING:
+                out.writeByte(TAG_STRING);
+                writeString(out, column.asString());
+                break;
+            case DATE:
+                out.writeByte(TAG_DATE);
+                out.writeByte(column instanceof DateColumn ? ((DateColumn) column).getSubType().ordinal()
+                        : DateColumn.DateType.DATETIME.ordinal());
+                writeVarLong(out, zigzag(column.asLong()));
+                break;
+            case BOOL:
+                out.writeByte(column.asBoolean() ? TAG_TRUE : TAG_FALSE);
+                break;
+            case BYTES:
+                out.writeByte(TAG_BYTES);
+                writeBytes(out, column.asBytes());
+                break;
+            default:
+                throw DataXException.asDataXException(FrameworkErrorCode.RUNTIME_ERROR,
+                        String.format("channel溢出到磁盘时不支持类型为[%s]的列.", column.getType()));
+        }
+    }
+
+    private Record readRecord(DataInputStream in) throws IOException {
+        Record record;
+        try {
+            record = this.recordClass.newInstance();
+        } catch (Exception e) {
+            throw DataXException.asDataXException(FrameworkErrorCode.CONFIG_ERROR, e);
+        }
+        int columnNumber = (int) readVarLong(in);
+        for (int i = 0; i < columnNumber; i++) {
+            record.addColumn(readColumn(in));
+        }
+        int metaCount = (int) readVarLong(in);
+        if (metaCount > 0) {
+            Map<String, String> meta = new HashMap<String, String>(metaCount * 2);
+            for (int i = 0; i < metaCount; i++) {
+                meta.put(readString(in), readString(in));
+            }
+            record.setMeta(meta);
+        }
+        return record;
+    }
+
+    private Column readColumn(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_ABSENT:
+                return null;
+            case TAG_NULL_VALUE:
+                Column.Type type = Column.Type.values()[in.readByte()];
+                DateColumn.DateType subType = DATE_TYPES[in.readByte()];
+                return nullColumn(type, subType);
+            case TAG_LONG:
+                return new LongColumn(unzigzag(readVarLong(in)));
+            case TAG_BIG_INTEGER:
+                return new LongColumn(new BigInteger(readBytes(in)));
+            case TAG_DOUBLE:
+                return new DoubleColumn(readString(in));
+            case TAG_STRING:
+                return new StringColumn(readString(in));
+            case TAG_DATE:
+                DateColumn.DateType dateType = DATE_TYPES[in.readByte()];
+                DateColumn date = new DateColumn(unzigzag(readVarLong(in)));
+                date.setSubType(dateType);
+                return date;
+            case TAG_TRUE:
+                return new BoolColumn(true);
+            case TAG_FALSE:
+                return new BoolColumn(false);
+            case TAG_BYTES:
+                return new BytesColumn(readBytes(in));
+            default:
+                throw new IOException(String.format("channel溢出文件中存在不合法的列标记[%s].", tag));
+        }
+    }
+
+    private static Column nullColumn(Column.Type type, DateColumn.DateType subType) throws IOException {
+        switch (type) {
+            case LONG:
+                return new LongColumn();
+            case DOUBLE:
+                return new DoubleColumn();
+            case STRING:
+                return new StringColumn();
+            case DATE:
+                DateColumn date = new DateColumn();
+                date.setSubType(subType);
+                return date;
+            case BOOL:
+                return new BoolColumn();
+            case BYTES:
+                return new BytesColumn();
+            default:
+                throw new IOException(String.format("channel溢出文件中存在不支持的空值列类型[%s].", type));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        writeVarLong(out, value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] value = new byte[(int) readVarLong(in)];
+        in.readFully(value);
+        return value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new EOFException("channel溢出文件中的整数编码不合法.");
+    }
+}
@@ -0,0 +1,475 @@
+package com.alibaba.datax.core.transport.channel.spill;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.CommonErrorCode;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.core.transport.channel.Channel;
+import com.alibaba.datax.core.transport.record.TerminateRecord;
+import com.alibaba.datax.core.util.FrameworkErrorCode;
+import com.alibaba.datax.core.util.container.CoreConstant;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 可以溢出到本地磁盘的Channel: 内存部分与MemoryChannel相同, 受capacity和byteCapacity限制;
+ * 内存放满后reader不再阻塞, 后续record先攒在溢出缓冲中, 攒够segmentSize后压缩写成一个segment文件,
+ * writer消费完内存中的数据后按顺序回放segment, 最后直接接管尚未落盘的溢出缓冲. record的顺序与写入顺序一致.
+ * <p/>
+ * 写入较慢时reader可以提前读完源端, 尽早释放源端的事务、快照和游标.
+ * 进程内所有SpillChannel共享quota指定的磁盘配额, 超过配额后reader重新等待writer, 与MemoryChannel的行为一致.
+ * segment在回放后立即删除, task结束时删除整个溢出目录, 进程退出时兜底清理.
+ */
+public class SpillChannel extends Channel {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillChannel.class);
+
+    private static final long DEFAULT_SEGMENT_SIZE = 8L * 1024 * 1024;
+
+    private static final long DEFAULT_QUOTA = 10L * 1024 * 1024 * 1024;
+
+    // 进程内所有 SpillChannel 已占用的磁盘空间
+    private static final AtomicLong usedDiskBytes = new AtomicLong(0);
+
+    private static final Set<File> liveDirectories = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (File directory : liveDirectories) {
+                FileUtils.deleteQuietly(directory);
+            }
+        }, "spill-channel-cleaner"));
+    }
+
+    private final int bufferSize;
+
+    private final long segmentSize;
+
+    private final long quota;
+
+    private final File rootDirectory;
+
+    private final String directoryPrefix;
+
+    private final RecordSegmentCodec codec;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition quotaAvailable = lock.newCondition();
+
+    // 以下状态由 lock 保护
+
+    private final ArrayDeque<Record> queue = new ArrayDeque<Record>();
+
+    private final ArrayDeque<Segment> segments = new ArrayDeque<Segment>();
+
+    private List<Record> spillBuffer = new ArrayList<Record>();
+
+    private volatile long spillBufferBytes = 0;
+
+    private volatile long memoryBytes = 0;
+
+    // reader 线程正在把溢出缓冲写成 segment
+    private boolean sealing = false;
+
+    // writer 线程正在读取一个 segment
+    private boolean loading = false;
+
+    // 正在写入、读取的 segment 中的记录数
+    private int sealingRecords = 0;
+
+    private int loadingRecords = 0;
+
+    private int diskRecords = 0;
+
+    private boolean terminated = false;
+
+    private volatile boolean destroyed = false;
+
+    private volatile Throwable spillError = null;
+
+    private File directory = null;
+
+    private int segmentSequence = 0;
+
+    private long spilledRecords = 0;
+
+    private long spilledSegments = 0;
+
+    private long spilledDiskBytes = 0;
+
+    private boolean quotaWarned = false;
+
+    public SpillChannel(final Configuration configuration) {
+        super(configuration);
+        this.bufferSize = configuration.getInt(CoreConstant.DATAX_CORE_TRANSPORT_EXCHANGER_BUFFERSIZE);
+        this.segmentSize = configuration.getLong(
+                CoreConstant.DATAX_CORE_TRANSPORT_CHANNEL_SPILL_SEGMENTSIZE, DEFAULT_SEGMENT_SIZE);
+        this.quota = configuration.getLong(CoreConstant.DATAX_CORE_TRANSPORT_CHANNEL_SPILL_QUOTA, DEFAULT_QUOTA);
+        this.rootDirectory = new File(configuration.getString(CoreConstant.DATAX_CORE_TRANSPORT_CHANNEL_SPILL_DIR,
+                new File(System.getProperty("java.io.tmpdir"), "datax-spill").getPath()));
+        this.directoryPrefix = String.format("spill_%s_%s_",
+                configuration.getLong(CoreConstant.DATAX_CORE_CONTAINER_JOB_ID, -1L), this.taskGroupId);
+        if (this.segmentSize <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "channel溢出文件大小[%d]必须大于0.", this.segmentSize));
+        }
+
+        Class<? extends Record> recordClass;
+        try {
+            recordClass = Class.forName(configuration.getString(CoreConstant.DATAX_CORE_TRANSPORT_RECORD_CLASS,
+                    "com.alibaba.datax.core.transport.record.DefaultRecord")).asSubclass(Record.class);
+        } catch (Exception e) {
+            throw DataXException.asDataXException(FrameworkErrorCode.CONFIG_ERROR, e);
+        }
+        this.codec = new RecordSegmentCodec(configuration.getBool(
+                CoreConstant.DATAX_CORE_TRANSPORT_CHANNEL_SPILL_COMPRESS, true), recordClass);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        markTerminated();
+    }
+
+    @Override
+    public void clear() {
+        this.lock.lock();
+        try {
+            this.queue.clear();
+            this.memoryBytes = 0;
+            this.spillBuffer = new ArrayList<Record>();
+            this.spillBufferBytes = 0;
+            while (!this.segments.isEmpty()) {
+                deleteSegment(this.segments.pollFirst());
+            }
+            this.diskRecords = 0;
+            this.quotaAvailable.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        this.lock.lock();
+        try {
+            if (this.destroyed) {
+                return;
+            }
+            this.destroyed = true;
+        } finally {
+            this.lock.unlock();
+        }
+        clear();
+        if (null != this.directory) {
+            FileUtils.deleteQuietly(this.directory);
+            liveDirectories.remove(this.directory);
+        }
+        if (this.spilledSegments > 0) {
+            LOG.info("channel共溢出{}条记录到磁盘, {}个文件, 压缩后{}字节.",
+                    this.spilledRecords, this.spilledSegments, this.spilledDiskBytes);
+        }
+    }
+
+    @Override
+    protected void doPush(Record r) {
+        if (r instanceof TerminateRecord) {
+            markTerminated();
+            return;
+        }
+        doPushAll(Collections.singletonList(r));
+    }
+
+    @Override
+    protected void doPushAll(Collection<Record> rs) {
+        long startTime = System.nanoTime();
+        int bytes = getRecordBytes(rs);
+        List<Record> toSeal = null;
+        try {
+            this.lock.lockInterruptibly();
+            try {
+                checkState();
+                if (!isSpilling() && this.queue.size() + rs.size() <= this.capacity
+                        && this.memoryBytes + bytes <= this.byteCapacity) {
+                    this.queue.addAll(rs);
+                    this.memoryBytes += bytes;
+                    this.notEmpty.signalAll();
+                    return;
+                }
+                this.spillBuffer.addAll(rs);
+                this.spillBufferBytes += bytes;
+                if (this.spillBufferBytes >= this.segmentSize) {
+                    // 磁盘配额用完时等待writer回放segment, writer也可能直接接管溢出缓冲
+                    while (usedDiskBytes.get() >= this.quota && !this.spillBuffer.isEmpty()) {
+                        if (!this.quotaWarned) {
+                            LOG.warn("channel溢出文件已达到磁盘配额[{}]字节, reader将等待writer消费.", this.quota);
+                            this.quotaWarned = true;
+                        }
+                        this.quotaAvailable.await(200L, TimeUnit.MILLISECONDS);
+                        checkState();
+                    }
+                    if (!this.spillBuffer.isEmpty()) {
+                        toSeal = this.spillBuffer;
+                        this.spillBuffer = new ArrayList<Record>();
+                        this.spillBufferBytes = 0;
+                        this.sealing = true;
+                        this.sealingRecords = toSeal.size();
+                    }
+                }
+            } finally {
+                this.lock.unlock();
+            }
+            if (null != toSeal) {
+                seal(toSeal);
+            }
+        } catch (InterruptedException e) {
+            throw DataXException.asDataXException(
+                    FrameworkErrorCode.RUNTIME_ERROR, e);
+        } finally {
+            waitWriterTime += System.nanoTime() - startTime;
+        }
+    }
+
+    @Override
+    protected Record doPull() {
+        List<Record> rs = new ArrayList<Record>(1);
+        pull(rs, 1);
+        return rs.get(0);
+    }
+
+    @Override
+    protected void doPullAll(Collection<Record> rs) {
+        assert rs != null;
+        rs.clear();
+        pull(rs, this.bufferSize);
+    }
+
+    @Override
+    public long getMemoryBytes() {
+        return this.memoryBytes + this.spillBufferBytes;
+    }
+
+    @Override
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.queue.size() + this.spillBuffer.size() + this.diskRecords + this.sealingRecords
+                    + this.loadingRecords;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private void pull(Collection<Record> rs, int maxRecords) {
+        long startTime = System.nanoTime();
+        Segment toLoad = null;
+        try {
+            this.lock.lockInterruptibly();
+            try {
+                while (true) {
+                    checkState();
+                    if (!this.queue.isEmpty()) {
+                        drainTo(rs, maxRecords);
+                        return;
+                    }
+                    if (!this.segments.isEmpty()) {
+                        toLoad = this.segments.pollFirst();
+                        this.diskRecords -= toLoad.recordCount;
+                        this.loadingRecords = toLoad.recordCount;
+                        this.loading = true;
+                        break;
+                    }
+                    if (!this.sealing) {
+                        if (!this.spillBuffer.isEmpty()) {
+                            // 磁盘上的数据已经回放完, 直接接管尚未落盘的记录
+                            this.queue.addAll(this.spillBuffer);
+                            this.memoryBytes += this.spillBufferBytes;
+                            this.spillBuffer = new ArrayList<Record>();
+                            this.spillBufferBytes = 0;
+                            this.quotaAvailable.signalAll();
+                            continue;
+                        }
+                        if (this.terminated) {
+                            rs.add(TerminateRecord.get());
+                            return;
+                        }
+                    }
+                    this.notEmpty.await(200L, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                this.lock.unlock();
+            }
+
+            List<Record> records = load(toLoad);
+            this.lock.lockInterruptibly();
+            try {
+                this.loading = false;
+                this.loadingRecords = 0;
+                checkState();
+                // 只有 queue 为空时才会回放, 回放期间 reader 只写溢出缓冲, 顺序不变
+                this.queue.addAll(records);
+                this.memoryBytes += getRecordBytes(records);
+                drainTo(rs, maxRecords);
+            } finally {
+                this.lock.unlock();
+            }
+        } catch (InterruptedException e) {
+            throw DataXException.asDataXException(
+                    FrameworkErrorCode.RUNTIME_ERROR, e);
+        } finally {
+            waitReaderTime += System.nanoTime() - startTime;
+        }
+    }
+
+    private void drainTo(Collection<Record> rs, int maxRecords) {
+        int bytes = 0;
+        for (int i = 0; i < maxRecords && !this.queue.isEmpty(); i++) {
+            Record r = this.queue.pollFirst();
+            bytes += r.getMemorySize();
+            rs.add(r);
+        }
+        this.memoryBytes -= bytes;
+    }
+
+    /**
+     * 在 reader 线程中、锁外把溢出缓冲写成 segment
+     */
+    private void seal(List<Record> records) throws InterruptedException {
+        Segment segment = null;
+        Throwable error = null;
+        try {
+            File file = new File(getDirectory(), String.format("segment_%08d.bin", this.segmentSequence++));
+            long fileBytes = this.codec.write(file, records);
+            segment = new Segment(file, records.size(), fileBytes);
+            usedDiskBytes.addAndGet(fileBytes);
+        } catch (Throwable t) {
+            error = t;
+        }
+
+        this.lock.lockInterruptibly();
+        try {
+            this.sealing = false;
+            this.sealingRecords = 0;
+            if (null != error) {
+                // 这批记录已经无法按顺序交给 writer, 整个 task 失败
+                this.spillError = error;
+            } else if (this.destroyed) {
+                deleteSegment(segment);
+            } else {
+                this.segments.addLast(segment);
+                this.diskRecords += segment.recordCount;
+                this.spilledRecords += segment.recordCount;
+                this.spilledSegments++;
+                this.spilledDiskBytes += segment.fileBytes;
+            }
+            this.notEmpty.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        checkState();
+    }
+
+    private List<Record> load(Segment segment) {
+        try {
+            return this.codec.read(segment.file);
+        } catch (IOException e) {
+            throw DataXException.asDataXException(FrameworkErrorCode.RUNTIME_ERROR,
+                    String.format("读取channel溢出文件[%s]失败.", segment.file.getAbsolutePath()), e);
+        } finally {
+            deleteSegment(segment);
+        }
+    }
+
+    private File getDirectory() throws IOException {
+        if (null == this.directory) {
+            if (!this.rootDirectory.exists() && !this.rootDirectory.mkdirs()) {
+                throw new IOException(String.format("无法创建channel溢出目录[%s].", this.rootDirectory));
+            }
+            this.directory = Files.createTempDirectory(this.rootDirectory.toPath(), this.directoryPrefix).toFile();
+            liveDirectories.add(this.directory);
+            LOG.info("channel内存已满, 开始溢出到磁盘目录[{}].", this.directory.getAbsolutePath());
+        }
+        return this.directory;
+    }
+
+    private void deleteSegment(Segment segment) {
+        if (!segment.file.delete() && segment.file.exists()) {
+            LOG.warn("删除channel溢出文件[{}]失败.", segment.file.getAbsolutePath());
+        }
+        usedDiskBytes.addAndGet(-segment.fileBytes);
+        this.lock.lock();
+        try {
+            this.quotaAvailable.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void markTerminated() {
+        this.lock.lock();
+        try {
+            this.terminated = true;
+            this.notEmpty.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private boolean isSpilling() {
+        return this.sealing || this.loading || !this.segments.isEmpty() || !this.spillBuffer.isEmpty();
+    }
+
+    private void checkState() {
+        if (null != this.spillError) {
+            throw DataXException.asDataXException(FrameworkErrorCode.RUNTIME_ERROR,
+                    "channel溢出到磁盘失败.", this.spillError);
+        }
+        if (this.destroyed) {
+            throw DataXException.asDataXException(CommonErrorCode.SHUT_DOWN_TASK, "channel已销毁.");
+        }
+    }
+
+    private int getRecordBytes(Collection<Record> rs) {
+        int bytes = 0;
+        for (Record r : rs) {
+            bytes += r.getMemorySize();
+        }
+        return bytes;
+    }
+
+    private static class Segment {
+        private final File file;
+        private final int recordCount;
+        private final long fileBytes;
+
+        Segment(File file, int recordCount, long fileBytes) {
+            this.file = file;
+            this.recordCount = recordCount;
+            this.fileBytes = fileBytes;
+        }
+    }
+}
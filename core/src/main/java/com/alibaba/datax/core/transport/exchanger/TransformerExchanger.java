@@ -5,6 +5,7 @@ import com.alibaba.datax.common.exception.DataXException;
 import com.alibaba.datax.common.plugin.TaskPluginCollector;
 import com.alibaba.datax.core.statistics.communication.Communication;
 import com.alibaba.datax.core.statistics.communication.CommunicationTool;
+import com.alibaba.datax.core.statistics.metrics.LatencyHistogram;
 import com.alibaba.datax.core.transport.transformer.TransformerErrorCode;
 import com.alibaba.datax.core.transport.transformer.TransformerExecution;
 import com.alibaba.datax.core.util.container.ClassLoaderSwapper;
@@ -31,6 +32,10 @@ public abstract class TransformerExchanger {
     private long totalSuccessRecords = 0;
     private long totalFailedRecords = 0;
 
+    /**
+     * 未开启core.metrics时为null
+     */
+    private LatencyHistogram transformerHistogram;
 
     private List<TransformerExecution> transformerExecs;
 
@@ -50,6 +55,10 @@ public abstract class TransformerExchanger {
     }
 
 
+    public void setTransformerHistogram(LatencyHistogram transformerHistogram) {
+        this.transformerHistogram = transformerHistogram;
+    }
+
     public Record doTransformer(Record record) {
         if (transformerExecs == null || transformerExecs.size() == 0) {
             return record;
@@ -115,6 +124,9 @@ public abstract class TransformerExchanger {
         }
 
         totalExaustedTime += diffExaustedTime;
+        if (transformerHistogram != null) {
+            transformerHistogram.record(diffExaustedTime);
+        }
 
         if (failed) {
             totalFailedRecords++;
@@ -31,6 +31,20 @@ public class CoreConstant {
 
 	public static final String DATAX_CORE_CONTAINER_TASKGROUP_REPORTINTERVAL = "core.container.taskGroup.reportInterval";
 
+	public static final String DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_ENABLE = "core.container.taskGroup.adaptive.enable";
+
+	public static final String DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_MINCHANNEL = "core.container.taskGroup.adaptive.minChannel";
+
+	public static final String DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_MAXCHANNEL = "core.container.taskGroup.adaptive.maxChannel";
+
+	public static final String DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_INITIALCHANNEL = "core.container.taskGroup.adaptive.initialChannel";
+
+	public static final String DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_INTERVALINMSEC = "core.container.taskGroup.adaptive.intervalInMsec";
+
+	public static final String DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_TOLERANCE = "core.container.taskGroup.adaptive.tolerance";
+
+	public static final String DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_LATENCYTOLERANCE = "core.container.taskGroup.adaptive.latencyTolerance";
+
 	public static final String DATAX_CORE_CONTAINER_TASK_FAILOVER_MAXRETRYTIMES = "core.container.task.failOver.maxRetryTimes";
 
 	public static final String DATAX_CORE_CONTAINER_TASK_FAILOVER_RETRYINTERVALINMSEC = "core.container.task.failOver.retryIntervalInMsec";
@@ -59,6 +73,14 @@ public class CoreConstant {
 
 	public static final String DATAX_CORE_TRANSPORT_CHANNEL_FLOWCONTROLINTERVAL = "core.transport.channel.flowControlInterval";
 
+	public static final String DATAX_CORE_TRANSPORT_CHANNEL_SPILL_DIR = "core.transport.channel.spill.dir";
+
+	public static final String DATAX_CORE_TRANSPORT_CHANNEL_SPILL_SEGMENTSIZE = "core.transport.channel.spill.segmentSize";
+
+	public static final String DATAX_CORE_TRANSPORT_CHANNEL_SPILL_QUOTA = "core.transport.channel.spill.quota";
+
+	public static final String DATAX_CORE_TRANSPORT_CHANNEL_SPILL_COMPRESS = "core.transport.channel.spill.compress";
+
 	public static final String DATAX_CORE_TRANSPORT_EXCHANGER_BUFFERSIZE = "core.transport.exchanger.bufferSize";
 
     public static final String DATAX_CORE_TRANSPORT_RECORD_CLASS = "core.transport.record.class";
@@ -67,6 +89,24 @@ public class CoreConstant {
 
 	public static final String DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_MAXDIRTYNUM = "core.statistics.collector.plugin.maxDirtyNumber";
 
+	public static final String DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_DIRTYRECORD_PATH = "core.statistics.collector.plugin.dirtyRecord.path";
+
+	public static final String DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_DIRTYRECORD_SINKCLASS = "core.statistics.collector.plugin.dirtyRecord.sinkClass";
+
+	public static final String DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_DIRTYRECORD_QUEUESIZE = "core.statistics.collector.plugin.dirtyRecord.queueSize";
+
+	public static final String DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_DIRTYRECORD_MAXFILESIZE = "core.statistics.collector.plugin.dirtyRecord.maxFileSize";
+
+	public static final String DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_DIRTYRECORD_COMPRESS = "core.statistics.collector.plugin.dirtyRecord.compress";
+
+	public static final String DATAX_CORE_METRICS_ENABLE = "core.metrics.enable";
+
+	public static final String DATAX_CORE_METRICS_JMX_ENABLE = "core.metrics.jmx.enable";
+
+	public static final String DATAX_CORE_METRICS_HTTP_HOST = "core.metrics.http.host";
+
+	public static final String DATAX_CORE_METRICS_HTTP_PORT = "core.metrics.http.port";
+
 	public static final String DATAX_JOB_CONTENT_READER_NAME = "job.content[0].reader.name";
 
 	public static final String DATAX_JOB_CONTENT_READER_PARAMETER = "job.content[0].reader.parameter";
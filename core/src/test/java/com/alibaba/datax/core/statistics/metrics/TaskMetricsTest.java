@@ -0,0 +1,34 @@
+package com.alibaba.datax.core.statistics.metrics;
+
+import com.alibaba.datax.core.statistics.communication.Communication;
+import com.alibaba.datax.core.statistics.communication.CommunicationTool;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TaskMetricsTest {
+
+    @Test
+    public void testRecordSpeedOnlyChangesOnReport() {
+        Communication communication = new Communication();
+        TaskMetrics metrics = new TaskMetrics(0, 0, communication, null);
+        long now = System.currentTimeMillis() + 1000L;
+        metrics.updateRecordSpeed(now);
+        Assert.assertEquals(0L, metrics.getRecordSpeed());
+
+        communication.setLongCounter(CommunicationTool.READ_SUCCEED_RECORDS, 400L);
+        communication.setLongCounter(CommunicationTool.READ_FAILED_RECORDS, 100L);
+        metrics.updateRecordSpeed(now + 1000L);
+        Assert.assertEquals(500L, metrics.getRecordSpeed());
+
+        // JMX 或 prometheus 多次读取不影响速度
+        communication.setLongCounter(CommunicationTool.READ_SUCCEED_RECORDS, 2400L);
+        Assert.assertEquals(500L, metrics.getRecordSpeed());
+        Assert.assertEquals(500L, metrics.getRecordSpeed());
+
+        metrics.updateRecordSpeed(now + 3000L);
+        Assert.assertEquals(1000L, metrics.getRecordSpeed());
+        // 同一时刻重复汇报不会得到 0
+        metrics.updateRecordSpeed(now + 3000L);
+        Assert.assertEquals(1000L, metrics.getRecordSpeed());
+    }
+}
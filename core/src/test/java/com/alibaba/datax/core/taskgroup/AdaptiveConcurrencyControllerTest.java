@@ -0,0 +1,147 @@
+package com.alibaba.datax.core.taskgroup;
+
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.core.statistics.communication.Communication;
+import com.alibaba.datax.core.statistics.communication.CommunicationTool;
+import com.alibaba.datax.core.util.container.CoreConstant;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AdaptiveConcurrencyControllerTest {
+
+    private static final long INTERVAL = 1000L;
+
+    private static final int PENDING_TASKS = 100;
+
+    private AdaptiveConcurrencyController controller;
+
+    private Communication communication;
+
+    private long now;
+
+    private long records;
+
+    @Before
+    public void setUp() {
+        Configuration configuration = adaptiveConfiguration();
+        configuration.set(CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_INITIALCHANNEL, 4);
+        // 第一个周期只记录基线
+        restart(configuration, 8);
+        Assert.assertEquals(4, this.controller.getConcurrency());
+    }
+
+    @Test
+    public void testFlatThroughputHolds() {
+        window(1000, PENDING_TASKS);
+        Assert.assertEquals(5, this.controller.getConcurrency());
+        // 增加并发没有收益, 回退一次后保持不变
+        window(1000, PENDING_TASKS);
+        Assert.assertEquals(4, this.controller.getConcurrency());
+        for (int i = 0; i < 20; i++) {
+            window(1000, PENDING_TASKS);
+            Assert.assertEquals(4, this.controller.getConcurrency());
+        }
+    }
+
+    @Test
+    public void testImprovingThroughputClimbsToMax() {
+        long throughput = 1000;
+        for (int i = 0; i < 10; i++) {
+            window(throughput, PENDING_TASKS);
+            throughput = throughput * 11 / 10;
+        }
+        Assert.assertEquals(8, this.controller.getConcurrency());
+        // 到达上限后没有实际调整, 吞吐持平时保持不变
+        for (int i = 0; i < 5; i++) {
+            window(throughput, PENDING_TASKS);
+            Assert.assertEquals(8, this.controller.getConcurrency());
+        }
+    }
+
+    @Test
+    public void testDroppedThroughputRevertsLastStep() {
+        window(1000, PENDING_TASKS);
+        Assert.assertEquals(5, this.controller.getConcurrency());
+        window(800, PENDING_TASKS);
+        Assert.assertEquals(4, this.controller.getConcurrency());
+        // 回退后吞吐恢复, 继续向下
+        window(1000, PENDING_TASKS);
+        Assert.assertEquals(3, this.controller.getConcurrency());
+        window(1000, PENDING_TASKS);
+        Assert.assertEquals(3, this.controller.getConcurrency());
+    }
+
+    @Test
+    public void testTaskFailureCutsConcurrency() {
+        window(1000, PENDING_TASKS);
+        Assert.assertEquals(5, this.controller.getConcurrency());
+        this.controller.onTaskFailed();
+        window(1000, PENDING_TASKS);
+        Assert.assertEquals(4, this.controller.getConcurrency());
+    }
+
+    @Test
+    public void testNoPendingTaskKeepsConcurrency() {
+        for (int i = 0; i < 5; i++) {
+            window(1000 * (i + 1), 0);
+            Assert.assertEquals(4, this.controller.getConcurrency());
+        }
+    }
+
+    @Test
+    public void testStartsAtChannelNumberAndClimbsAboveIt() {
+        Configuration configuration = adaptiveConfiguration();
+        configuration.set(CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_MAXCHANNEL, 12);
+        restart(configuration, 8);
+        Assert.assertEquals(8, this.controller.getConcurrency());
+
+        long throughput = 1000;
+        for (int i = 0; i < 10; i++) {
+            window(throughput, PENDING_TASKS);
+            throughput = throughput * 11 / 10;
+        }
+        Assert.assertEquals(12, this.controller.getConcurrency());
+    }
+
+    @Test
+    public void testSpeedLimitCapsAtChannelNumber() {
+        Configuration configuration = adaptiveConfiguration();
+        configuration.set(CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_MAXCHANNEL, 12);
+        configuration.set(CoreConstant.DATAX_JOB_SETTING_SPEED_BYTE, 1048576);
+        restart(configuration, 8);
+        Assert.assertEquals(8, this.controller.getConcurrency());
+
+        // 已在上限, 向下探测
+        window(1000, PENDING_TASKS);
+        Assert.assertEquals(7, this.controller.getConcurrency());
+        window(800, PENDING_TASKS);
+        Assert.assertEquals(8, this.controller.getConcurrency());
+        window(1000, PENDING_TASKS);
+        Assert.assertEquals(8, this.controller.getConcurrency());
+    }
+
+    private Configuration adaptiveConfiguration() {
+        Configuration configuration = Configuration.newDefault();
+        configuration.set(CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_ENABLE, true);
+        configuration.set(CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_MINCHANNEL, 1);
+        configuration.set(CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ADAPTIVE_INTERVALINMSEC, INTERVAL);
+        return configuration;
+    }
+
+    private void restart(Configuration configuration, int channelNumber) {
+        this.controller = new AdaptiveConcurrencyController(configuration, 0, channelNumber);
+        this.communication = new Communication();
+        this.now = 0;
+        this.records = 0;
+        window(0, PENDING_TASKS);
+    }
+
+    private void window(long recordsPerSecond, int pendingTasks) {
+        this.now += INTERVAL;
+        this.records += recordsPerSecond * INTERVAL / 1000;
+        this.communication.setLongCounter(CommunicationTool.READ_SUCCEED_RECORDS, this.records);
+        Assert.assertTrue(this.controller.isDue(this.now));
+        this.controller.adjust(this.communication, this.controller.getConcurrency(), pendingTasks, this.now);
+    }
+}
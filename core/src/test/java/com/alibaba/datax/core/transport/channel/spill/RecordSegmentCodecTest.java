@@ -0,0 +1,132 @@
+package com.alibaba.datax.core.transport.channel.spill;
+
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.BytesColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.core.transport.record.DefaultRecord;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class RecordSegmentCodecTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTripCompressed() throws Exception {
+        assertRoundTrip(true);
+    }
+
+    @Test
+    public void testRoundTripUncompressed() throws Exception {
+        assertRoundTrip(false);
+    }
+
+    @Test
+    public void testEmptySegment() throws Exception {
+        File file = folder.newFile();
+        RecordSegmentCodec codec = new RecordSegmentCodec(true, DefaultRecord.class);
+        codec.write(file, Collections.<Record>emptyList());
+        Assert.assertTrue(codec.read(file).isEmpty());
+    }
+
+    private void assertRoundTrip(boolean compress) throws Exception {
+        List<Record> records = new ArrayList<Record>();
+
+        Record values = new DefaultRecord();
+        values.addColumn(new LongColumn(0L));
+        values.addColumn(new LongColumn(-1L));
+        values.addColumn(new LongColumn(Long.MAX_VALUE));
+        values.addColumn(new LongColumn(Long.MIN_VALUE));
+        values.addColumn(new LongColumn(new BigInteger("-123456789012345678901234567890")));
+        values.addColumn(new DoubleColumn("3.1415926535897932384626"));
+        values.addColumn(new StringColumn("datax 数据同步 😀"));
+        values.addColumn(new StringColumn(""));
+        values.addColumn(new BoolColumn(true));
+        values.addColumn(new BoolColumn(false));
+        values.addColumn(new BytesColumn(new byte[]{0, 1, -1, 127, -128}));
+        values.addColumn(dateColumn(-86400000L, DateColumn.DateType.DATE));
+        values.addColumn(dateColumn(3723000L, DateColumn.DateType.TIME));
+        values.addColumn(dateColumn(1600000000123L, DateColumn.DateType.DATETIME));
+        records.add(values);
+
+        Record nulls = new DefaultRecord();
+        nulls.addColumn(new LongColumn());
+        nulls.addColumn(new DoubleColumn());
+        nulls.addColumn(new StringColumn());
+        nulls.addColumn(new BoolColumn());
+        nulls.addColumn(new BytesColumn());
+        DateColumn nullDate = new DateColumn();
+        nullDate.setSubType(DateColumn.DateType.TIME);
+        nulls.addColumn(nullDate);
+        records.add(nulls);
+
+        // 中间位置没有 column
+        Record sparse = new DefaultRecord();
+        sparse.setColumn(2, new StringColumn("c"));
+        records.add(sparse);
+
+        Record withMeta = new DefaultRecord();
+        withMeta.addColumn(new LongColumn(42L));
+        withMeta.setMeta(Collections.singletonMap("table", "t_order"));
+        records.add(withMeta);
+
+        records.add(new DefaultRecord());
+
+        File file = folder.newFile();
+        RecordSegmentCodec codec = new RecordSegmentCodec(compress, DefaultRecord.class);
+        Assert.assertEquals(file.length(), codec.write(file, records));
+        List<Record> actual = codec.read(file);
+
+        Assert.assertEquals(records.size(), actual.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertRecordEquals(records.get(i), actual.get(i));
+        }
+        Assert.assertEquals("t_order", actual.get(3).getMeta().get("table"));
+        Assert.assertNull(actual.get(0).getMeta());
+    }
+
+    private static DateColumn dateColumn(long stamp, DateColumn.DateType subType) {
+        DateColumn column = new DateColumn(stamp);
+        column.setSubType(subType);
+        return column;
+    }
+
+    private static void assertRecordEquals(Record expected, Record actual) {
+        Assert.assertEquals(expected.getColumnNumber(), actual.getColumnNumber());
+        for (int i = 0; i < expected.getColumnNumber(); i++) {
+            Column e = expected.getColumn(i);
+            Column a = actual.getColumn(i);
+            if (null == e) {
+                Assert.assertNull(a);
+                continue;
+            }
+            Assert.assertEquals(e.getClass(), a.getClass());
+            Assert.assertEquals(e.getType(), a.getType());
+            if (e instanceof DateColumn) {
+                Assert.assertEquals(((DateColumn) e).getSubType(), ((DateColumn) a).getSubType());
+            }
+            if (null == e.getRawData()) {
+                Assert.assertNull(a.getRawData());
+            } else if (e instanceof BytesColumn) {
+                Assert.assertArrayEquals(e.asBytes(), a.asBytes());
+            } else {
+                Assert.assertEquals(e.getRawData(), a.getRawData());
+            }
+        }
+        Assert.assertEquals(expected.getByteSize(), actual.getByteSize());
+    }
+}
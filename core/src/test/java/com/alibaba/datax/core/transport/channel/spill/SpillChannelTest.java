@@ -0,0 +1,168 @@
+package com.alibaba.datax.core.transport.channel.spill;
+
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.core.statistics.communication.Communication;
+import com.alibaba.datax.core.transport.record.DefaultRecord;
+import com.alibaba.datax.core.transport.record.TerminateRecord;
+import com.alibaba.datax.core.util.container.CoreConstant;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SpillChannelTest {
+
+    private static final int CAPACITY = 4;
+
+    private static final int BATCH_SIZE = 3;
+
+    private static final int BATCH_COUNT = 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<SpillChannel> channels = new ArrayList<SpillChannel>();
+
+    @After
+    public void tearDown() {
+        // 磁盘配额在进程内共享, 每个用例结束后都要释放
+        for (SpillChannel channel : this.channels) {
+            channel.destroy();
+        }
+    }
+
+    @Test
+    public void testOrderKeptAcrossSegments() throws Exception {
+        SpillChannel channel = newChannel(1L, Long.MAX_VALUE);
+        for (int i = 0; i < BATCH_COUNT; i++) {
+            channel.pushAll(batch(i));
+        }
+        channel.pushTerminate(TerminateRecord.get());
+
+        // 第一批在内存中, 其余每批都写成一个 segment
+        Assert.assertEquals(BATCH_COUNT - 1, countSegments());
+        Assert.assertEquals(BATCH_SIZE * BATCH_COUNT, channel.size());
+
+        assertDrainedInOrder(channel);
+        Assert.assertEquals(0, countSegments());
+        Assert.assertTrue(channel.isEmpty());
+    }
+
+    @Test
+    public void testTakeOverSpillBufferWithoutSegment() throws Exception {
+        SpillChannel channel = newChannel(Long.MAX_VALUE, Long.MAX_VALUE);
+        for (int i = 0; i < BATCH_COUNT; i++) {
+            channel.pushAll(batch(i));
+        }
+        channel.close();
+
+        Assert.assertEquals(BATCH_SIZE * BATCH_COUNT, channel.size());
+        assertDrainedInOrder(channel);
+        Assert.assertEquals(0, countSegments());
+    }
+
+    @Test
+    public void testReaderBlockedByQuota() throws Exception {
+        final SpillChannel channel = newChannel(1L, 1L);
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        Thread reader = new Thread(() -> {
+            try {
+                for (int i = 0; i < BATCH_COUNT; i++) {
+                    channel.pushAll(batch(i));
+                }
+                channel.pushTerminate(TerminateRecord.get());
+            } catch (Throwable t) {
+                errors.add(t);
+            }
+        });
+        reader.start();
+
+        // 第一个 segment 用完配额, reader 等待 writer 回放
+        reader.join(1000L);
+        Assert.assertTrue(reader.isAlive());
+        Assert.assertEquals(1, countSegments());
+
+        assertDrainedInOrder(channel);
+        reader.join(10000L);
+        Assert.assertFalse(reader.isAlive());
+        Assert.assertTrue(errors.isEmpty());
+        Assert.assertEquals(0, countSegments());
+    }
+
+    @Test
+    public void testDestroyDeletesSegments() throws Exception {
+        SpillChannel channel = newChannel(1L, Long.MAX_VALUE);
+        for (int i = 0; i < BATCH_COUNT; i++) {
+            channel.pushAll(batch(i));
+        }
+        Assert.assertTrue(countSegments() > 0);
+
+        channel.destroy();
+        Assert.assertEquals(0, countSegments());
+        Assert.assertEquals(0, channel.size());
+        try {
+            channel.pushAll(batch(BATCH_COUNT));
+            Assert.fail();
+        } catch (DataXException e) {
+            // channel 销毁后不能再写入
+        }
+        // 重复销毁没有影响
+        channel.destroy();
+    }
+
+    private SpillChannel newChannel(long segmentSize, long quota) {
+        Configuration configuration = Configuration.newDefault();
+        configuration.set(CoreConstant.DATAX_CORE_CONTAINER_TASKGROUP_ID, 0);
+        configuration.set(CoreConstant.DATAX_CORE_TRANSPORT_CHANNEL_CAPACITY, CAPACITY);
+        configuration.set(CoreConstant.DATAX_CORE_TRANSPORT_CHANNEL_CAPACITY_BYTE, 1024 * 1024);
+        configuration.set(CoreConstant.DATAX_CORE_TRANSPORT_CHANNEL_SPEED_BYTE, -1);
+        configuration.set(CoreConstant.DATAX_CORE_TRANSPORT_CHANNEL_SPEED_RECORD, -1);
+        configuration.set(CoreConstant.DATAX_CORE_TRANSPORT_EXCHANGER_BUFFERSIZE, BATCH_SIZE);
+        configuration.set(CoreConstant.DATAX_CORE_TRANSPORT_CHANNEL_SPILL_DIR, this.folder.getRoot().getPath());
+        configuration.set(CoreConstant.DATAX_CORE_TRANSPORT_CHANNEL_SPILL_SEGMENTSIZE, segmentSize);
+        configuration.set(CoreConstant.DATAX_CORE_TRANSPORT_CHANNEL_SPILL_QUOTA, quota);
+
+        SpillChannel channel = new SpillChannel(configuration);
+        channel.setCommunication(new Communication());
+        this.channels.add(channel);
+        return channel;
+    }
+
+    private static List<Record> batch(int index) {
+        List<Record> records = new ArrayList<Record>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Record record = new DefaultRecord();
+            record.addColumn(new LongColumn((long) (index * BATCH_SIZE + i)));
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static void assertDrainedInOrder(SpillChannel channel) {
+        List<Record> buffer = new ArrayList<Record>(BATCH_SIZE);
+        long expected = 0;
+        while (true) {
+            channel.pullAll(buffer);
+            for (Record record : buffer) {
+                if (record instanceof TerminateRecord) {
+                    Assert.assertEquals(BATCH_SIZE * BATCH_COUNT, expected);
+                    return;
+                }
+                Assert.assertEquals(expected++, record.getColumn(0).asLong().longValue());
+            }
+        }
+    }
+
+    private int countSegments() {
+        return FileUtils.listFiles(this.folder.getRoot(), new String[]{"bin"}, true).size();
+    }
+}
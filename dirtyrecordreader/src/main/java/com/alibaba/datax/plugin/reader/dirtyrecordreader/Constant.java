@@ -0,0 +1,15 @@
+package com.alibaba.datax.plugin.reader.dirtyrecordreader;
+
+public class Constant {
+
+    public static final String GZIP_SUFFIX = ".gz";
+
+    public static final String DIRTY_TYPE = "type";
+
+    public static final String DIRTY_RECORD = "record";
+
+    public static final String COLUMN_TYPE = "type";
+
+    public static final String COLUMN_RAW_DATA = "rawData";
+
+}
@@ -0,0 +1,207 @@
+package com.alibaba.datax.plugin.reader.dirtyrecordreader;
+
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.BytesColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.RecordSender;
+import com.alibaba.datax.common.spi.Reader;
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.common.util.RangeSplitUtil;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 回放 core.statistics.collector.plugin.dirtyRecord 持久化的脏数据文件(JSON Lines, 可gzip压缩),
+ * 按脏数据中记录的column类型重建record交给writer, 修复目标端问题后可以把脏数据重新写入。
+ */
+public class DirtyRecordReader extends Reader {
+
+    public static class Job extends Reader.Job {
+        private static final Logger LOG = LoggerFactory.getLogger(Job.class);
+
+        private Configuration originalConfig;
+
+        private List<String> sourceFiles;
+
+        @Override
+        public void init() {
+            this.originalConfig = super.getPluginJobConf();
+
+            List<String> paths = this.originalConfig.getList(Key.PATH, String.class);
+            if (null == paths || paths.isEmpty()) {
+                throw DataXException.asDataXException(DirtyRecordReaderErrorCode.REQUIRED_VALUE,
+                        "没有设置参数[path].");
+            }
+
+            String type = this.originalConfig.getString(Key.TYPE);
+            if (StringUtils.isNotBlank(type)) {
+                if (!"READER".equalsIgnoreCase(type) && !"WRITER".equalsIgnoreCase(type)) {
+                    throw DataXException.asDataXException(DirtyRecordReaderErrorCode.ILLEGAL_VALUE,
+                            String.format("参数[type]只支持READER或WRITER, 您配置的是[%s].", type));
+                }
+                // 脏数据中的 type 为 PluginType 的小写形式 reader/writer
+                this.originalConfig.set(Key.TYPE, type.toLowerCase());
+            }
+
+            this.sourceFiles = new ArrayList<String>();
+            for (String path : paths) {
+                File file = new File(path);
+                if (!file.exists()) {
+                    throw DataXException.asDataXException(DirtyRecordReaderErrorCode.FILE_NOT_EXISTS,
+                            String.format("脏数据路径[%s]不存在.", path));
+                }
+                if (file.isFile()) {
+                    this.sourceFiles.add(file.getAbsolutePath());
+                    continue;
+                }
+                File[] children = file.listFiles();
+                if (null == children) {
+                    continue;
+                }
+                Arrays.sort(children);
+                for (File child : children) {
+                    if (child.isFile()) {
+                        this.sourceFiles.add(child.getAbsolutePath());
+                    }
+                }
+            }
+            LOG.info("共找到[{}]个脏数据文件.", this.sourceFiles.size());
+        }
+
+        @Override
+        public List<Configuration> split(int adviceNumber) {
+            List<Configuration> configurations = new ArrayList<Configuration>();
+            if (this.sourceFiles.isEmpty()) {
+                LOG.warn("没有需要回放的脏数据文件.");
+                Configuration splitConfig = this.originalConfig.clone();
+                splitConfig.set(Key.SOURCE_FILES, new ArrayList<String>());
+                configurations.add(splitConfig);
+                return configurations;
+            }
+
+            for (List<String> files : RangeSplitUtil.doListSplit(this.sourceFiles, adviceNumber)) {
+                Configuration splitConfig = this.originalConfig.clone();
+                splitConfig.set(Key.SOURCE_FILES, files);
+                configurations.add(splitConfig);
+            }
+            return configurations;
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    public static class Task extends Reader.Task {
+        private static final Logger LOG = LoggerFactory.getLogger(Task.class);
+
+        private List<String> sourceFiles;
+
+        private String type;
+
+        @Override
+        public void init() {
+            Configuration readerSliceConfig = super.getPluginJobConf();
+            this.sourceFiles = readerSliceConfig.getList(Key.SOURCE_FILES, String.class);
+            this.type = readerSliceConfig.getString(Key.TYPE);
+        }
+
+        @Override
+        public void startRead(RecordSender recordSender) {
+            for (String file : this.sourceFiles) {
+                LOG.info("读取脏数据文件[{}].", file);
+                this.readFile(file, recordSender);
+                recordSender.flush();
+            }
+        }
+
+        private void readFile(String file, RecordSender recordSender) {
+            InputStream input = null;
+            BufferedReader reader = null;
+            try {
+                input = new FileInputStream(file);
+                if (file.endsWith(Constant.GZIP_SUFFIX)) {
+                    input = new GZIPInputStream(input, 64 * 1024);
+                }
+                reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (StringUtils.isBlank(line)) {
+                        continue;
+                    }
+                    JSONObject dirty = JSON.parseObject(line);
+                    if (null != this.type && !this.type.equalsIgnoreCase(dirty.getString(Constant.DIRTY_TYPE))) {
+                        continue;
+                    }
+                    JSONArray columns = dirty.getJSONArray(Constant.DIRTY_RECORD);
+                    if (null == columns) {
+                        continue;
+                    }
+                    Record record = recordSender.createRecord();
+                    for (int i = 0; i < columns.size(); i++) {
+                        record.addColumn(buildColumn(columns.getJSONObject(i)));
+                    }
+                    recordSender.sendToWriter(record);
+                }
+            } catch (IOException e) {
+                throw DataXException.asDataXException(DirtyRecordReaderErrorCode.READ_FILE_ERROR,
+                        String.format("读取脏数据文件[%s]失败.", file), e);
+            } finally {
+                IOUtils.closeQuietly(reader);
+                IOUtils.closeQuietly(input);
+            }
+        }
+
+        private Column buildColumn(JSONObject column) {
+            String rawData = column.getString(Constant.COLUMN_RAW_DATA);
+            Column.Type columnType = Column.Type.valueOf(column.getString(Constant.COLUMN_TYPE));
+            switch (columnType) {
+                case NULL:
+                    return new StringColumn(null);
+                case STRING:
+                    return new StringColumn(rawData);
+                case INT:
+                case LONG:
+                    return new LongColumn(rawData);
+                case DOUBLE:
+                    return new DoubleColumn(rawData);
+                case BOOL:
+                    return new BoolColumn(null == rawData ? null : Boolean.valueOf(rawData));
+                case DATE:
+                    return new DateColumn(column.getLong(Constant.COLUMN_RAW_DATA));
+                case BYTES:
+                    return new BytesColumn(column.getBytes(Constant.COLUMN_RAW_DATA));
+                default:
+                    throw DataXException.asDataXException(DirtyRecordReaderErrorCode.NOT_SUPPORT_TYPE,
+                            String.format("不支持的column类型[%s].", columnType));
+            }
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
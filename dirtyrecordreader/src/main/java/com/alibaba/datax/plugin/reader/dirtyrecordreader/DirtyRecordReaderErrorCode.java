@@ -0,0 +1,36 @@
+package com.alibaba.datax.plugin.reader.dirtyrecordreader;
+
+import com.alibaba.datax.common.spi.ErrorCode;
+
+public enum DirtyRecordReaderErrorCode implements ErrorCode {
+    REQUIRED_VALUE("DirtyRecordReader-00", "缺失必要的值"),
+    ILLEGAL_VALUE("DirtyRecordReader-01", "值非法"),
+    FILE_NOT_EXISTS("DirtyRecordReader-02", "脏数据文件不存在"),
+    READ_FILE_ERROR("DirtyRecordReader-03", "读取脏数据文件失败"),
+    NOT_SUPPORT_TYPE("DirtyRecordReader-04", "不支持的column类型"),;
+
+
+    private final String code;
+    private final String description;
+
+    private DirtyRecordReaderErrorCode(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    @Override
+    public String getCode() {
+        return this.code;
+    }
+
+    @Override
+    public String getDescription() {
+        return this.description;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Code:[%s], Description:[%s]. ", this.code,
+                this.description);
+    }
+}
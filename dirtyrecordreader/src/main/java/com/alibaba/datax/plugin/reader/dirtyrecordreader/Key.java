@@ -0,0 +1,20 @@
+package com.alibaba.datax.plugin.reader.dirtyrecordreader;
+
+public class Key {
+
+    /**
+     * 脏数据文件或目录, 可配置多个
+     */
+    public static final String PATH = "path";
+
+    /**
+     * 只回放指定来源的脏数据: reader 或 writer, 不区分大小写, 不配置时全部回放
+     */
+    public static final String TYPE = "type";
+
+    /**
+     * split后每个task要读取的文件, 内部使用
+     */
+    public static final String SOURCE_FILES = "sourceFiles";
+
+}
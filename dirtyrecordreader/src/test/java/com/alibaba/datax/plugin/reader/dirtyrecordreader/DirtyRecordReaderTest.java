@@ -0,0 +1,184 @@
+package com.alibaba.datax.plugin.reader.dirtyrecordreader;
+
+import com.alibaba.datax.common.constant.PluginType;
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.BytesColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.plugin.RecordSender;
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.core.statistics.plugin.task.util.DirtyRecord;
+import com.alibaba.datax.core.statistics.plugin.task.util.FileDirtyRecordSink;
+import com.alibaba.datax.core.transport.record.DefaultRecord;
+import com.alibaba.datax.core.util.container.CoreConstant;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DirtyRecordReaderTest {
+
+    private static final long TIMESTAMP = 1600000000123L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplayAll() throws Exception {
+        File dir = writeDirtyFiles(true);
+        List<Record> records = replay(dir, null);
+        Assert.assertEquals(4, records.size());
+    }
+
+    @Test
+    public void testReplayByType() throws Exception {
+        File dir = writeDirtyFiles(true);
+        // type 不区分大小写, 与脏数据中小写的 reader/writer 匹配
+        for (String type : new String[]{"writer", "WRITER", "Writer"}) {
+            List<Record> records = replay(dir, type);
+            Assert.assertEquals(3, records.size());
+            for (int i = 0; i < records.size(); i++) {
+                assertRecord(records.get(i), i);
+            }
+        }
+        List<Record> records = replay(dir, "READER");
+        Assert.assertEquals(1, records.size());
+        Assert.assertEquals("from reader", records.get(0).getColumn(1).asString());
+    }
+
+    @Test
+    public void testReplayUncompressed() throws Exception {
+        File dir = writeDirtyFiles(false);
+        File[] files = dir.listFiles();
+        Assert.assertEquals(1, files.length);
+        Assert.assertTrue(files[0].getName().endsWith(".jsonl"));
+        Assert.assertEquals(3, replay(files[0], "writer").size());
+    }
+
+    @Test(expected = com.alibaba.datax.common.exception.DataXException.class)
+    public void testIllegalType() throws Exception {
+        replay(folder.newFolder("empty"), "transformer");
+    }
+
+    /**
+     * 写端 3 条, 读端 1 条, 与 StdoutPluginCollector 写入的结构一致
+     */
+    private File writeDirtyFiles(boolean compress) throws Exception {
+        File dir = this.folder.newFolder("dirty");
+        Configuration configuration = Configuration.newDefault();
+        configuration.set(CoreConstant.DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_DIRTYRECORD_PATH, dir.getAbsolutePath());
+        configuration.set(CoreConstant.DATAX_CORE_STATISTICS_COLLECTOR_PLUGIN_DIRTYRECORD_COMPRESS, compress);
+        configuration.set(CoreConstant.DATAX_CORE_CONTAINER_JOB_ID, 1L);
+        FileDirtyRecordSink sink = new FileDirtyRecordSink(configuration);
+        try {
+            for (int i = 0; i < 3; i++) {
+                sink.write(buildDirty(PluginType.WRITER, newRecord(i), "Data too long"));
+                if (i == 1) {
+                    Record record = new DefaultRecord();
+                    record.addColumn(new LongColumn(-1L));
+                    record.addColumn(new StringColumn("from reader"));
+                    sink.write(buildDirty(PluginType.READER, record, null));
+                }
+            }
+        } finally {
+            sink.close();
+        }
+        return dir;
+    }
+
+    private static Map<String, Object> buildDirty(PluginType type, Record record, String message) {
+        Map<String, Object> dirty = new HashMap<String, Object>();
+        dirty.put("type", type.toString());
+        if (null != message) {
+            dirty.put("message", message);
+        }
+        dirty.put("record", DirtyRecord.asDirtyRecord(record).getColumns());
+        return dirty;
+    }
+
+    private static Record newRecord(int i) {
+        Record record = new DefaultRecord();
+        record.addColumn(new LongColumn((long) i));
+        record.addColumn(new StringColumn("中文-" + i));
+        record.addColumn(new DoubleColumn(i + 0.5d));
+        record.addColumn(new BoolColumn(i % 2 == 0));
+        record.addColumn(new DateColumn(TIMESTAMP + i));
+        record.addColumn(new BytesColumn(("bytes-" + i).getBytes(StandardCharsets.UTF_8)));
+        record.addColumn(new StringColumn(null));
+        return record;
+    }
+
+    private static void assertRecord(Record record, int i) {
+        Assert.assertEquals(7, record.getColumnNumber());
+        Assert.assertEquals(Column.Type.LONG, record.getColumn(0).getType());
+        Assert.assertEquals(Long.valueOf(i), record.getColumn(0).asLong());
+        Assert.assertEquals("中文-" + i, record.getColumn(1).asString());
+        Assert.assertEquals(Column.Type.DOUBLE, record.getColumn(2).getType());
+        Assert.assertEquals(i + 0.5d, record.getColumn(2).asDouble(), 0d);
+        Assert.assertEquals(i % 2 == 0, record.getColumn(3).asBoolean());
+        Assert.assertEquals(Column.Type.DATE, record.getColumn(4).getType());
+        Assert.assertEquals(TIMESTAMP + i, record.getColumn(4).asDate().getTime());
+        Assert.assertArrayEquals(("bytes-" + i).getBytes(StandardCharsets.UTF_8), record.getColumn(5).asBytes());
+        Assert.assertNull(record.getColumn(6).getRawData());
+    }
+
+    private static List<Record> replay(File path, String type) {
+        Configuration jobConf = Configuration.newDefault();
+        jobConf.set(Key.PATH, Collections.singletonList(path.getAbsolutePath()));
+        if (null != type) {
+            jobConf.set(Key.TYPE, type);
+        }
+        DirtyRecordReader.Job job = new DirtyRecordReader.Job();
+        job.setPluginJobConf(jobConf);
+        job.init();
+
+        CollectingRecordSender recordSender = new CollectingRecordSender();
+        for (Configuration taskConf : job.split(2)) {
+            DirtyRecordReader.Task task = new DirtyRecordReader.Task();
+            task.setPluginJobConf(taskConf);
+            task.init();
+            task.startRead(recordSender);
+            task.destroy();
+        }
+        job.destroy();
+        return recordSender.records;
+    }
+
+    private static class CollectingRecordSender implements RecordSender {
+        private final List<Record> records = new ArrayList<Record>();
+
+        @Override
+        public Record createRecord() {
+            return new DefaultRecord();
+        }
+
+        @Override
+        public void sendToWriter(Record record) {
+            this.records.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void terminate() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
@@ -35,6 +35,12 @@ public class DrdsReaderSplitUtil {
 
             originalSliceConfig.set(Key.JDBC_URL, DataBaseType.DRDS.appendJDBCSuffixForReader(jdbcUrl));
 
+            // 增量抽取时使用合并了水位区间的 where
+            String incrementalWhere = originalSliceConfig.getString(String.format("%s[0].%s[0]", Constant.CONN_MARK, Key.INCREMENTAL_WHERE), null);
+            if (null != incrementalWhere) {
+                originalSliceConfig.set(Key.WHERE, incrementalWhere);
+            }
+
             originalSliceConfig.remove(Constant.CONN_MARK);
             return doDrdsReaderSplit(originalSliceConfig);
         } else {
@@ -9,6 +9,10 @@ public class Constant {
 	public static final int DEFAULT_TIMEOUT = 60000;
 	public static final int DEFAULT_MAX_TRAVERSAL_LEVEL = 100;
 	public static final String  DEFAULT_FTP_CONNECT_PATTERN = "PASV";
+	// 并发遍历目录时使用的连接数
+	public static final int DEFAULT_LIST_CONCURRENCY = 4;
+	// 切分时探测换行符的缓冲区大小
+	public static final int SPLIT_PROBE_BUFFER_SIZE = 8 * 1024;
 	
 
 }
@@ -0,0 +1,153 @@
+package com.alibaba.datax.plugin.reader.ftpreader;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.datax.common.exception.DataXException;
+
+/**
+ * 使用多个已登录的连接并发遍历目录: 每个目录的列举是一个任务, 执行时从连接池借用一个连接,
+ * 列举出的子目录再作为新任务提交. 每个连接独立登录, 互不影响各自的工作目录.
+ * 校验规则与 {@link FtpHelper#getListFiles(String, int, int)} 相同.
+ */
+public class FtpConcurrentLister {
+	private static final Logger LOG = LoggerFactory.getLogger(FtpConcurrentLister.class);
+
+	private final BlockingQueue<FtpHelper> connections;
+
+	private final int maxTraversalLevel;
+
+	private final ExecutorService executor;
+
+	private final Set<String> sourceFiles = ConcurrentHashMap.newKeySet();
+
+	private final Map<String, Long> fileSizes = new ConcurrentHashMap<String, Long>();
+
+	private final AtomicInteger pendingDirectories = new AtomicInteger(0);
+
+	private final Object lock = new Object();
+
+	private volatile Throwable error;
+
+	public FtpConcurrentLister(List<FtpHelper> ftpHelpers, int maxTraversalLevel) {
+		this.connections = new ArrayBlockingQueue<FtpHelper>(ftpHelpers.size(), false, ftpHelpers);
+		this.maxTraversalLevel = maxTraversalLevel;
+		final AtomicInteger threadIndex = new AtomicInteger(0);
+		this.executor = Executors.newFixedThreadPool(ftpHelpers.size(), r -> {
+			Thread t = new Thread(r, "ftp-list-" + threadIndex.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	public HashSet<String> getAllFiles(List<String> srcPaths) {
+		long start = System.currentTimeMillis();
+		try {
+			for (String eachPath : srcPaths) {
+				submit(eachPath, 0);
+			}
+			synchronized (lock) {
+				while (pendingDirectories.get() > 0 && null == error) {
+					lock.wait();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw DataXException.asDataXException(FtpReaderErrorCode.RUNTIME_EXCEPTION, "遍历目录时被中断", e);
+		} finally {
+			executor.shutdownNow();
+		}
+		Throwable e = error;
+		if (e instanceof DataXException) {
+			throw (DataXException) e;
+		} else if (null != e) {
+			String message = String.format("获取path：%s 下文件列表时发生异常,请确认与ftp服务器的连接正常", srcPaths);
+			throw DataXException.asDataXException(FtpReaderErrorCode.COMMAND_FTP_IO_EXCEPTION, message, e);
+		}
+		LOG.info(String.format("并发遍历目录结束, 连接数: [%s], 文件数: [%s], 耗时: [%s]ms", connections.size(),
+				sourceFiles.size(), System.currentTimeMillis() - start));
+		return new HashSet<String>(sourceFiles);
+	}
+
+	/**
+	 * 列举时得到的文件大小
+	 */
+	public Map<String, Long> getFileSizes() {
+		return fileSizes;
+	}
+
+	private void submit(final String directoryPath, final int parentLevel) {
+		pendingDirectories.incrementAndGet();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (null == error) {
+						list(directoryPath, parentLevel);
+					}
+				} catch (Throwable e) {
+					synchronized (lock) {
+						if (null == error) {
+							error = e;
+						}
+					}
+				} finally {
+					// 子目录在本目录计数减一之前已经提交, 计数归零即全部遍历完成
+					int pending = pendingDirectories.decrementAndGet();
+					if (0 == pending || null != error) {
+						synchronized (lock) {
+							lock.notifyAll();
+						}
+					}
+				}
+			}
+		});
+	}
+
+	private void list(String directoryPath, int parentLevel) throws InterruptedException {
+		if (parentLevel >= maxTraversalLevel) {
+			//超出最大递归层数
+			String message = String.format("获取path：[%s] 下文件列表时超出最大层数,请确认路径[%s]下不存在软连接文件", directoryPath, directoryPath);
+			LOG.error(message);
+			throw DataXException.asDataXException(FtpReaderErrorCode.OUT_MAX_DIRECTORY_LEVEL, message);
+		}
+		Map<String, Long> files = new HashMap<String, Long>();
+		List<String> subDirectories = new ArrayList<String>();
+		FtpHelper ftpHelper = connections.take();
+		try {
+			String parentPath;
+			if (0 == parentLevel) {
+				// 只有用户配置的path需要校验类型, 子目录已经由列举结果确定
+				parentPath = ftpHelper.getParentPath(directoryPath);
+				if (null == parentPath) {
+					sourceFiles.add(directoryPath);
+					return;
+				}
+			} else {
+				parentPath = directoryPath + IOUtils.DIR_SEPARATOR;
+			}
+			ftpHelper.listDirectory(directoryPath, parentPath, files, subDirectories);
+		} finally {
+			connections.offer(ftpHelper);
+		}
+		fileSizes.putAll(files);
+		sourceFiles.addAll(files.keySet());
+		for (String subDirectory : subDirectories) {
+			submit(subDirectory, parentLevel + 1);
+		}
+	}
+}
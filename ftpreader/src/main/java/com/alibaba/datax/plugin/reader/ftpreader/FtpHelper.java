@@ -1,10 +1,28 @@
 package com.alibaba.datax.plugin.reader.ftpreader;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.datax.common.exception.DataXException;
 
 public abstract class FtpHelper {
+	private static final Logger LOG = LoggerFactory.getLogger(FtpHelper.class);
+
+	HashSet<String> sourceFiles = new HashSet<String>();
+
+	/**
+	 * 列举目录时得到的文件大小, 切分大文件时不需要再逐个查询
+	 */
+	Map<String, Long> fileSizes = new ConcurrentHashMap<String, Long>();
+
 	/**
 	 * 
 	* @Title: LoginFtpServer 
@@ -70,7 +88,76 @@ public abstract class FtpHelper {
 	* @return HashSet<String> 
 	* @throws
 	 */
-	public abstract HashSet<String> getListFiles(String directoryPath, int parentLevel, int maxTraversalLevel);
+	public HashSet<String> getListFiles(String directoryPath, int parentLevel, int maxTraversalLevel) {
+		if (parentLevel < maxTraversalLevel) {
+			String parentPath = getParentPath(directoryPath);
+			if (null == parentPath) {
+				// path指向具体文件
+				sourceFiles.add(directoryPath);
+				return sourceFiles;
+			}
+			Map<String, Long> files = new HashMap<String, Long>();
+			List<String> subDirectories = new ArrayList<String>();
+			listDirectory(directoryPath, parentPath, files, subDirectories);
+			fileSizes.putAll(files);
+			sourceFiles.addAll(files.keySet());
+			for (String subDirectory : subDirectories) {
+				//递归处理
+				getListFiles(subDirectory, parentLevel + 1, maxTraversalLevel);
+			}
+			return sourceFiles;
+		} else {
+			//超出最大递归层数
+			String message = String.format("获取path：[%s] 下文件列表时超出最大层数,请确认路径[%s]下不存在软连接文件", directoryPath, directoryPath);
+			LOG.error(message);
+			throw DataXException.asDataXException(FtpReaderErrorCode.OUT_MAX_DIRECTORY_LEVEL, message);
+		}
+	}
+
+	/**
+	 * 
+	* @Title: getParentPath 
+	* @Description: 校验path并返回需要列举的父级目录(以'/'结尾); path指向具体文件时返回null
+	* @param @param directoryPath 目录、文件或带通配符的路径
+	* @param @return     
+	* @return String 
+	* @throws
+	 */
+	public abstract String getParentPath(String directoryPath);
+
+	/**
+	 * 
+	* @Title: listDirectory 
+	* @Description: 列举一层目录, 文件及其大小放入files, 子目录放入subDirectories, 不递归
+	* @param @param directoryPath 目录或带通配符的路径
+	* @param @param parentPath getParentPath的返回值
+	* @param @param files 文件绝对路径 -> 文件字节数
+	* @param @param subDirectories 子目录绝对路径
+	* @return void 
+	* @throws
+	 */
+	public abstract void listDirectory(String directoryPath, String parentPath, Map<String, Long> files,
+			List<String> subDirectories);
+
+	/**
+	 * 
+	* @Title: getFileSize 
+	* @Description: 获取文件字节数, 优先使用列举目录时得到的大小
+	* @param @param filePath
+	* @param @return     
+	* @return long 
+	* @throws
+	 */
+	public long getFileSize(String filePath) {
+		Long size = fileSizes.get(filePath);
+		return null != size ? size : getRemoteFileSize(filePath);
+	}
+
+	protected abstract long getRemoteFileSize(String filePath);
+
+	public Map<String, Long> getFileSizes() {
+		return fileSizes;
+	}
 	
 	/**
 	 * 
@@ -83,6 +170,19 @@ public abstract class FtpHelper {
 	 */
 	public abstract InputStream getInputStream(String filePath);
 	
+	/**
+	 * 
+	* @Title: getInputStream 
+	* @Description: 从offset处开始读取指定路径的输入流, ftp使用REST命令, sftp使用断点续传的偏移量;
+	* 输入流关闭后才能在同一连接上执行其他命令
+	* @param @param filePath
+	* @param @param offset 起始字节偏移量
+	* @param @return     
+	* @return InputStream 
+	* @throws
+	 */
+	public abstract InputStream getInputStream(String filePath, long offset);
+	
 	/**
 	 * 
 	* @Title: getAllFiles 
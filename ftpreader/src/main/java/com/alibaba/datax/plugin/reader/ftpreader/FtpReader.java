@@ -5,6 +5,9 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,6 +16,10 @@ import com.alibaba.datax.common.plugin.RecordSender;
 import com.alibaba.datax.common.spi.Reader;
 import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.datax.plugin.unstructuredstorage.reader.UnstructuredStorageReaderUtil;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.StartEndPair;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.UnstructuredSplitUtil;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
 
 public class FtpReader extends Reader {
 	public static class Job extends Reader.Job {
@@ -33,6 +40,7 @@ public class FtpReader extends Reader {
 		private int timeout;
 		private String connectPattern;
 		private int maxTraversalLevel;
+		private int listConcurrency;
 
 		private FtpHelper ftpHelper = null;
 
@@ -47,16 +55,20 @@ public class FtpReader extends Reader {
 			if ("sftp".equals(protocol)) {
 				//sftp协议
 				this.port = originConfig.getInt(Key.PORT, Constant.DEFAULT_SFTP_PORT);
-				this.ftpHelper = new SftpHelper();
 			} else if ("ftp".equals(protocol)) {
 				// ftp 协议
 				this.port = originConfig.getInt(Key.PORT, Constant.DEFAULT_FTP_PORT);
-				this.ftpHelper = new StandardFtpHelper();
 			}		
-			ftpHelper.loginFtpServer(host, username, password, port, timeout, connectPattern);
+			this.ftpHelper = this.createFtpHelper();
 
 		}
 
+		private FtpHelper createFtpHelper() {
+			FtpHelper helper = "sftp".equals(protocol) ? new SftpHelper() : new StandardFtpHelper();
+			helper.loginFtpServer(host, username, password, port, timeout, connectPattern);
+			return helper;
+		}
+
 		private void validateParameter() {
 			//todo 常量
 			this.protocol = this.originConfig.getNecessaryValue(Key.PROTOCOL, FtpReaderErrorCode.REQUIRED_VALUE);
@@ -70,6 +82,7 @@ public class FtpReader extends Reader {
 			this.password = this.originConfig.getNecessaryValue(Key.PASSWORD, FtpReaderErrorCode.REQUIRED_VALUE);
 			this.timeout = originConfig.getInt(Key.TIMEOUT, Constant.DEFAULT_TIMEOUT);
 			this.maxTraversalLevel = originConfig.getInt(Key.MAXTRAVERSALLEVEL, Constant.DEFAULT_MAX_TRAVERSAL_LEVEL);
+			this.listConcurrency = originConfig.getInt(Key.LIST_CONCURRENCY, Constant.DEFAULT_LIST_CONCURRENCY);
 			
 			// only support connect pattern
 			this.connectPattern = this.originConfig.getUnnecessaryValue(Key.CONNECTPATTERN, Constant.DEFAULT_FTP_CONNECT_PATTERN, null);
@@ -106,11 +119,49 @@ public class FtpReader extends Reader {
 		public void prepare() {
 			LOG.debug("prepare() begin...");
 			
-			this.sourceFiles = ftpHelper.getAllFiles(path, 0, maxTraversalLevel);
+			if (this.listConcurrency > 1) {
+				this.sourceFiles = this.getAllFilesConcurrently();
+			} else {
+				this.sourceFiles = ftpHelper.getAllFiles(path, 0, maxTraversalLevel);
+			}
 			
 			LOG.info(String.format("您即将读取的文件数为: [%s]", this.sourceFiles.size()));
 		}
 
+		/**
+		 * 额外建立 listConcurrency - 1 个连接并发遍历目录, 服务端限制了单用户连接数时按实际建立成功的连接数执行
+		 */
+		private HashSet<String> getAllFilesConcurrently() {
+			List<FtpHelper> ftpHelpers = new ArrayList<FtpHelper>();
+			ftpHelpers.add(this.ftpHelper);
+			try {
+				for (int i = 1; i < this.listConcurrency; i++) {
+					try {
+						ftpHelpers.add(this.createFtpHelper());
+					} catch (DataXException e) {
+						LOG.warn(String.format("建立第 [%s] 个遍历目录的连接失败, 使用已建立的 [%s] 个连接: %s", i + 1,
+								ftpHelpers.size(), e.getMessage()));
+						break;
+					}
+				}
+				FtpConcurrentLister lister = new FtpConcurrentLister(ftpHelpers, this.maxTraversalLevel);
+				HashSet<String> allFiles = lister.getAllFiles(this.path);
+				this.ftpHelper.getFileSizes().putAll(lister.getFileSizes());
+				return allFiles;
+			} finally {
+				for (FtpHelper helper : ftpHelpers) {
+					if (helper == this.ftpHelper) {
+						continue;
+					}
+					try {
+						helper.logoutFtpServer();
+					} catch (Exception e) {
+						LOG.warn(String.format("关闭遍历目录的连接失败: [%s]", e.getMessage()));
+					}
+				}
+			}
+		}
+
 		@Override
 		public void post() {
 		}
@@ -141,6 +192,14 @@ public class FtpReader extends Reader {
 						String.format("未能找到待读取的文件,请确认您的配置项path: %s", this.originConfig.getString(Key.PATH)));
 			}
 
+			// 未压缩的text文件可以按换行符切分为多个字节区间, 大文件的读取可以随channel数扩展
+			if (UnstructuredSplitUtil.canSplitSingleFile(this.originConfig)) {
+				readerSplitConfigs = new FtpSplitUtil(this.ftpHelper).getSplitConfiguration(
+						this.originConfig, new ArrayList<String>(this.sourceFiles), adviceNumber);
+				LOG.debug("split() ok and end...");
+				return readerSplitConfigs;
+			}
+
 			List<List<String>> splitedSourceFiles = this.splitSourceFiles(new ArrayList(this.sourceFiles), splitNumber);
 			for (List<String> files : splitedSourceFiles) {
 				Configuration splitedConfig = this.originConfig.clone();
@@ -180,7 +239,8 @@ public class FtpReader extends Reader {
 		private String connectPattern;
 
 		private Configuration readerSliceConfig;
-		private List<String> sourceFiles;
+		private List<StartEndPair> allWorksForTask;
+		private boolean originSkipHeader;
 
 		private FtpHelper ftpHelper = null;
 
@@ -194,7 +254,23 @@ public class FtpReader extends Reader {
 			this.password = readerSliceConfig.getString(Key.PASSWORD);
 			this.timeout = readerSliceConfig.getInt(Key.TIMEOUT, Constant.DEFAULT_TIMEOUT);
 
-			this.sourceFiles = this.readerSliceConfig.getList(Constant.SOURCE_FILES, String.class);
+			this.originSkipHeader = this.readerSliceConfig.getBool(
+					com.alibaba.datax.plugin.unstructuredstorage.reader.Key.SKIP_HEADER,
+					com.alibaba.datax.plugin.unstructuredstorage.reader.Constant.DEFAULT_SKIP_HEADER);
+			String allWorksForTaskStr = this.readerSliceConfig
+					.getString(com.alibaba.datax.plugin.unstructuredstorage.reader.Key.SPLIT_SLICE_CONFIG);
+			if (StringUtils.isNotBlank(allWorksForTaskStr)) {
+				this.allWorksForTask = JSON.parseObject(allWorksForTaskStr,
+						new TypeReference<List<StartEndPair>>() {
+						});
+			} else {
+				// 未做文件内部切分时, 每个文件整体读取
+				this.allWorksForTask = new ArrayList<StartEndPair>();
+				List<String> sourceFiles = this.readerSliceConfig.getList(Constant.SOURCE_FILES, String.class);
+				for (String fileName : sourceFiles) {
+					this.allWorksForTask.add(new StartEndPair(0L, -1L, fileName));
+				}
+			}
 
 			if ("sftp".equals(protocol)) {
 				//sftp协议
@@ -235,19 +311,38 @@ public class FtpReader extends Reader {
 		@Override
 		public void startRead(RecordSender recordSender) {
 			LOG.debug("start read source files...");
-			for (String fileName : this.sourceFiles) {
-				LOG.info(String.format("reading file : [%s]", fileName));
-				InputStream inputStream = null;
-				
-				inputStream = ftpHelper.getInputStream(fileName);
-	
-				UnstructuredStorageReaderUtil.readFromStream(inputStream, fileName, this.readerSliceConfig,
-						recordSender, this.getTaskPluginCollector());
-				recordSender.flush();
+			for (StartEndPair eachSlice : this.allWorksForTask) {
+				String fileName = eachSlice.getFilePath();
+				long start = eachSlice.getStart() == null ? 0L : eachSlice.getStart();
+				long end = eachSlice.getEnd() == null ? -1L : eachSlice.getEnd();
+				LOG.info(String.format("reading file : [%s], range: [start=%s, end=%s]", fileName, start, end));
+				// 只有从文件头开始读取的分片才需要跳过表头
+				this.readerSliceConfig.set(com.alibaba.datax.plugin.unstructuredstorage.reader.Key.SKIP_HEADER,
+						this.originSkipHeader && 0L == start);
+				InputStream inputStream = openRange(this.ftpHelper, fileName, start, end);
+				try {
+					UnstructuredStorageReaderUtil.readFromStream(inputStream, fileName, this.readerSliceConfig,
+							recordSender, this.getTaskPluginCollector());
+					recordSender.flush();
+				} finally {
+					IOUtils.closeQuietly(inputStream);
+				}
 			}
 
 			LOG.debug("end read source files...");
 		}
 
+		/**
+		 * 打开文件 [start, end] 闭区间的输入流, end 小于 0 时读到文件末尾
+		 */
+		static InputStream openRange(FtpHelper ftpHelper, String fileName, long start, long end) {
+			InputStream inputStream = ftpHelper.getInputStream(fileName, start);
+			if (end >= 0) {
+				// 读到 end 后关闭流, 服务端结束本次传输
+				inputStream = new BoundedInputStream(inputStream, end - start + 1);
+			}
+			return inputStream;
+		}
+
 	}
 }
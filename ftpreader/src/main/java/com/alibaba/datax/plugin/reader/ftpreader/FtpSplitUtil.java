@@ -0,0 +1,59 @@
+package com.alibaba.datax.plugin.reader.ftpreader;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.StartEndPair;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.UnstructuredSplitUtil;
+
+/**
+ * 远程文件的内部切分, 复用 UnstructuredSplitUtil 中按换行符校准切分点的逻辑;
+ * 分块的起始位置通过 ftp 的 REST 偏移量或 sftp 的 skip 直接定位, 不需要从文件头读起.
+ */
+public class FtpSplitUtil extends UnstructuredSplitUtil {
+
+	private final FtpHelper ftpHelper;
+
+	public FtpSplitUtil(FtpHelper ftpHelper) {
+		super(true);
+		this.ftpHelper = ftpHelper;
+	}
+
+	@Override
+	public Long getFileTotalLength(String filePath) {
+		return this.ftpHelper.getFileSize(filePath);
+	}
+
+	/**
+	 * 校准切分点时只需要分块开头到第一个换行符为止的字节. 读到换行符后立即结束本次传输,
+	 * 使同一个连接可以依次探测所有分块, 返回的是已经读出的这部分字节.
+	 */
+	@Override
+	public InputStream getFileInputStream(StartEndPair startEndPair) {
+		String filePath = startEndPair.getFilePath();
+		ByteArrayOutputStream firstLine = new ByteArrayOutputStream();
+		InputStream inputStream = new BufferedInputStream(
+				this.ftpHelper.getInputStream(filePath, startEndPair.getStart()), Constant.SPLIT_PROBE_BUFFER_SIZE);
+		try {
+			int ch;
+			while ((ch = inputStream.read()) != -1) {
+				firstLine.write(ch);
+				if (ch == '\n') {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			throw DataXException.asDataXException(FtpReaderErrorCode.READ_FILE_IO_ERROR,
+					String.format("读取文件 : [%s] 偏移量 [%s] 处的数据时出错", filePath, startEndPair.getStart()), e);
+		} finally {
+			IOUtils.closeQuietly(inputStream);
+		}
+		return new ByteArrayInputStream(firstLine.toByteArray());
+	}
+}
@@ -10,4 +10,5 @@ public class Key {
 	public static final String CONNECTPATTERN = "connectPattern";
 	public static final String PATH = "path";
 	public static final String MAXTRAVERSALLEVEL = "maxTraversalLevel";
+	public static final String LIST_CONCURRENCY = "listConcurrency";
 }
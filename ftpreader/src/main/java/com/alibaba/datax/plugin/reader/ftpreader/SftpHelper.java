@@ -1,7 +1,8 @@
 package com.alibaba.datax.plugin.reader.ftpreader;
 
 import java.io.InputStream;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Vector;
 
@@ -149,86 +150,92 @@ public class SftpHelper extends FtpHelper {
 		}
 	}
 
-	HashSet<String> sourceFiles = new HashSet<String>();
 	@Override
-	public HashSet<String> getListFiles(String directoryPath, int parentLevel, int maxTraversalLevel) {
-		if(parentLevel < maxTraversalLevel){
-			String parentPath = null;// 父级目录,以'/'结尾
-			int pathLen = directoryPath.length();
-			if (directoryPath.contains("*") || directoryPath.contains("?")) {//*和？的限制
-				// path是正则表达式
-				String subPath  = UnstructuredStorageReaderUtil.getRegexPathParentPath(directoryPath);
-				if (isDirExist(subPath)) {
-					parentPath = subPath;
-				} else {
-					String message = String.format("不能进入目录：[%s]," + "请确认您的配置项path:[%s]存在，且配置的用户有权限进入", subPath,
-							directoryPath);
-					LOG.error(message);
-					throw DataXException.asDataXException(FtpReaderErrorCode.FILE_NOT_EXISTS, message);
-				}
-	
-			} else if (isDirExist(directoryPath)) {
-				// path是目录
-				if (directoryPath.charAt(pathLen - 1) == IOUtils.DIR_SEPARATOR) {
-					parentPath = directoryPath;
-				} else {
-					parentPath = directoryPath + IOUtils.DIR_SEPARATOR;
-				}
-			} else if(isSymbolicLink(directoryPath)){
-				//path是链接文件
-				String message = String.format("文件:[%s]是链接文件，当前不支持链接文件的读取", directoryPath);
-				LOG.error(message);
-				throw DataXException.asDataXException(FtpReaderErrorCode.LINK_FILE, message);
-			}else if (isFileExist(directoryPath)) {
-				// path指向具体文件
-				sourceFiles.add(directoryPath);
-				return sourceFiles;
+	public String getParentPath(String directoryPath) {
+		String parentPath = null;// 父级目录,以'/'结尾
+		int pathLen = directoryPath.length();
+		if (directoryPath.contains("*") || directoryPath.contains("?")) {//*和？的限制
+			// path是正则表达式
+			String subPath  = UnstructuredStorageReaderUtil.getRegexPathParentPath(directoryPath);
+			if (isDirExist(subPath)) {
+				parentPath = subPath;
 			} else {
-				String message = String.format("请确认您的配置项path:[%s]存在，且配置的用户有权限读取", directoryPath);
+				String message = String.format("不能进入目录：[%s]," + "请确认您的配置项path:[%s]存在，且配置的用户有权限进入", subPath,
+						directoryPath);
 				LOG.error(message);
 				throw DataXException.asDataXException(FtpReaderErrorCode.FILE_NOT_EXISTS, message);
 			}
-	
-			try {
-				Vector vector = channelSftp.ls(directoryPath);
-				for (int i = 0; i < vector.size(); i++) {
-					LsEntry le = (LsEntry) vector.get(i);
-					String strName = le.getFilename();
-					String filePath = parentPath + strName;
-	
-					if (isDirExist(filePath)) {
-						// 是子目录
-						if (!(strName.equals(".") || strName.equals(".."))) {
-							//递归处理
-							getListFiles(filePath, parentLevel+1, maxTraversalLevel);
-						}
-					} else if(isSymbolicLink(filePath)){
-						//是链接文件
-						String message = String.format("文件:[%s]是链接文件，当前不支持链接文件的读取", filePath);
-						LOG.error(message);
-						throw DataXException.asDataXException(FtpReaderErrorCode.LINK_FILE, message);
-					}else if (isFileExist(filePath)) {
-						// 是文件
-						sourceFiles.add(filePath);
-					} else {
-						String message = String.format("请确认path:[%s]存在，且配置的用户有权限读取", filePath);
-						LOG.error(message);
-						throw DataXException.asDataXException(FtpReaderErrorCode.FILE_NOT_EXISTS, message);
-					}
-	
-				} // end for vector
-			} catch (SftpException e) {
-				String message = String.format("获取path：[%s] 下文件列表时发生I/O异常,请确认与ftp服务器的连接正常", directoryPath);
-				LOG.error(message);
-				throw DataXException.asDataXException(FtpReaderErrorCode.COMMAND_FTP_IO_EXCEPTION, message, e);
+
+		} else if (isDirExist(directoryPath)) {
+			// path是目录
+			if (directoryPath.charAt(pathLen - 1) == IOUtils.DIR_SEPARATOR) {
+				parentPath = directoryPath;
+			} else {
+				parentPath = directoryPath + IOUtils.DIR_SEPARATOR;
 			}
-			
-			return sourceFiles;
-		}else{
-			//超出最大递归层数
-			String message = String.format("获取path：[%s] 下文件列表时超出最大层数,请确认路径[%s]下不存在软连接文件", directoryPath, directoryPath);
+		} else if(isSymbolicLink(directoryPath)){
+			//path是链接文件
+			String message = String.format("文件:[%s]是链接文件，当前不支持链接文件的读取", directoryPath);
+			LOG.error(message);
+			throw DataXException.asDataXException(FtpReaderErrorCode.LINK_FILE, message);
+		}else if (isFileExist(directoryPath)) {
+			// path指向具体文件
+			return null;
+		} else {
+			String message = String.format("请确认您的配置项path:[%s]存在，且配置的用户有权限读取", directoryPath);
+			LOG.error(message);
+			throw DataXException.asDataXException(FtpReaderErrorCode.FILE_NOT_EXISTS, message);
+		}
+		return parentPath;
+	}
+
+	@Override
+	public void listDirectory(String directoryPath, String parentPath, Map<String, Long> files,
+			List<String> subDirectories) {
+		try {
+			Vector vector = channelSftp.ls(directoryPath);
+			for (int i = 0; i < vector.size(); i++) {
+				LsEntry le = (LsEntry) vector.get(i);
+				String strName = le.getFilename();
+				String filePath = parentPath + strName;
+				// ls 返回的属性与 lstat 相同, 不需要再逐个查询
+				SftpATTRS attrs = le.getAttrs();
+
+				if (attrs.isDir()) {
+					// 是子目录
+					if (!(strName.equals(".") || strName.equals(".."))) {
+						subDirectories.add(filePath);
+					}
+				} else if(attrs.isLink()){
+					//是链接文件
+					String message = String.format("文件:[%s]是链接文件，当前不支持链接文件的读取", filePath);
+					LOG.error(message);
+					throw DataXException.asDataXException(FtpReaderErrorCode.LINK_FILE, message);
+				}else if (attrs.getSize() >= 0) {
+					// 是文件
+					files.put(filePath, attrs.getSize());
+				} else {
+					String message = String.format("请确认path:[%s]存在，且配置的用户有权限读取", filePath);
+					LOG.error(message);
+					throw DataXException.asDataXException(FtpReaderErrorCode.FILE_NOT_EXISTS, message);
+				}
+
+			} // end for vector
+		} catch (SftpException e) {
+			String message = String.format("获取path：[%s] 下文件列表时发生I/O异常,请确认与ftp服务器的连接正常", directoryPath);
+			LOG.error(message);
+			throw DataXException.asDataXException(FtpReaderErrorCode.COMMAND_FTP_IO_EXCEPTION, message, e);
+		}
+	}
+
+	@Override
+	protected long getRemoteFileSize(String filePath) {
+		try {
+			return channelSftp.lstat(filePath).getSize();
+		} catch (SftpException e) {
+			String message = String.format("获取文件：[%s] 属性时发生I/O异常,请确认与ftp服务器的连接正常", filePath);
 			LOG.error(message);
-			throw DataXException.asDataXException(FtpReaderErrorCode.OUT_MAX_DIRECTORY_LEVEL, message);
+			throw DataXException.asDataXException(FtpReaderErrorCode.COMMAND_FTP_IO_EXCEPTION, message, e);
 		}
 	}
 
@@ -243,4 +250,16 @@ public class SftpHelper extends FtpHelper {
 		}
 	}
 
+	@Override
+	public InputStream getInputStream(String filePath, long offset) {
+		try {
+			// skip 参数使服务端直接从偏移量处开始读取
+			return channelSftp.get(filePath, null, offset);
+		} catch (SftpException e) {
+			String message = String.format("读取文件 : [%s] 时出错,请确认文件：[%s]存在且配置的用户有权限读取", filePath, filePath);
+			LOG.error(message);
+			throw DataXException.asDataXException(FtpReaderErrorCode.OPEN_FILE_ERROR, message);
+		}
+	}
+
 }
@@ -1,9 +1,11 @@
 package com.alibaba.datax.plugin.reader.ftpreader;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.UnknownHostException;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.net.ftp.FTP;
@@ -137,93 +139,131 @@ public class StandardFtpHelper extends FtpHelper {
 		return isExitFlag;
 	}
 
-	HashSet<String> sourceFiles = new HashSet<String>();
 	@Override
-	public HashSet<String> getListFiles(String directoryPath, int parentLevel, int maxTraversalLevel) {
-		if(parentLevel < maxTraversalLevel){
-			String parentPath = null;// 父级目录,以'/'结尾
-			int pathLen = directoryPath.length();
-			if (directoryPath.contains("*") || directoryPath.contains("?")) {
-				// path是正则表达式				
-				String subPath  = UnstructuredStorageReaderUtil.getRegexPathParentPath(directoryPath);
-				if (isDirExist(subPath)) {
-					parentPath = subPath;
-				} else {
-					String message = String.format("不能进入目录：[%s]," + "请确认您的配置项path:[%s]存在，且配置的用户有权限进入", subPath,
-							directoryPath);
-					LOG.error(message);
-					throw DataXException.asDataXException(FtpReaderErrorCode.FILE_NOT_EXISTS, message);
-				}
-			} else if (isDirExist(directoryPath)) {
-				// path是目录
-				if (directoryPath.charAt(pathLen - 1) == IOUtils.DIR_SEPARATOR) {
-					parentPath = directoryPath;
-				} else {
-					parentPath = directoryPath + IOUtils.DIR_SEPARATOR;
-				}
-			} else if (isFileExist(directoryPath)) {
-				// path指向具体文件
-				sourceFiles.add(directoryPath);
-				return sourceFiles;
-			} else if(isSymbolicLink(directoryPath)){
-				//path是链接文件
-				String message = String.format("文件:[%s]是链接文件，当前不支持链接文件的读取", directoryPath);
-				LOG.error(message);
-				throw DataXException.asDataXException(FtpReaderErrorCode.LINK_FILE, message);
-			}else {
-				String message = String.format("请确认您的配置项path:[%s]存在，且配置的用户有权限读取", directoryPath);
+	public String getParentPath(String directoryPath) {
+		String parentPath = null;// 父级目录,以'/'结尾
+		int pathLen = directoryPath.length();
+		if (directoryPath.contains("*") || directoryPath.contains("?")) {
+			// path是正则表达式				
+			String subPath  = UnstructuredStorageReaderUtil.getRegexPathParentPath(directoryPath);
+			if (isDirExist(subPath)) {
+				parentPath = subPath;
+			} else {
+				String message = String.format("不能进入目录：[%s]," + "请确认您的配置项path:[%s]存在，且配置的用户有权限进入", subPath,
+						directoryPath);
 				LOG.error(message);
 				throw DataXException.asDataXException(FtpReaderErrorCode.FILE_NOT_EXISTS, message);
 			}
+		} else if (isDirExist(directoryPath)) {
+			// path是目录
+			if (directoryPath.charAt(pathLen - 1) == IOUtils.DIR_SEPARATOR) {
+				parentPath = directoryPath;
+			} else {
+				parentPath = directoryPath + IOUtils.DIR_SEPARATOR;
+			}
+		} else if (isFileExist(directoryPath)) {
+			// path指向具体文件
+			return null;
+		} else if(isSymbolicLink(directoryPath)){
+			//path是链接文件
+			String message = String.format("文件:[%s]是链接文件，当前不支持链接文件的读取", directoryPath);
+			LOG.error(message);
+			throw DataXException.asDataXException(FtpReaderErrorCode.LINK_FILE, message);
+		}else {
+			String message = String.format("请确认您的配置项path:[%s]存在，且配置的用户有权限读取", directoryPath);
+			LOG.error(message);
+			throw DataXException.asDataXException(FtpReaderErrorCode.FILE_NOT_EXISTS, message);
+		}
+		return parentPath;
+	}
 
-			try {
-				FTPFile[] fs = ftpClient.listFiles(new String(directoryPath.getBytes(),FTP.DEFAULT_CONTROL_ENCODING));
-				for (FTPFile ff : fs) {
-					String strName = ff.getName();
-					String filePath = parentPath + strName;
-					if (ff.isDirectory()) {
-						if (!(strName.equals(".") || strName.equals(".."))) {
-							//递归处理
-							getListFiles(filePath, parentLevel+1, maxTraversalLevel);
-						}
-					} else if (ff.isFile()) {
-						// 是文件
-						sourceFiles.add(filePath);						
-					} else if(ff.isSymbolicLink()){
-						//是链接文件
-						String message = String.format("文件:[%s]是链接文件，当前不支持链接文件的读取", filePath);
-						LOG.error(message);
-						throw DataXException.asDataXException(FtpReaderErrorCode.LINK_FILE, message);
-					}else {
-						String message = String.format("请确认path:[%s]存在，且配置的用户有权限读取", filePath);
-						LOG.error(message);
-						throw DataXException.asDataXException(FtpReaderErrorCode.FILE_NOT_EXISTS, message);
+	@Override
+	public void listDirectory(String directoryPath, String parentPath, Map<String, Long> files,
+			List<String> subDirectories) {
+		try {
+			FTPFile[] fs = ftpClient.listFiles(new String(directoryPath.getBytes(),FTP.DEFAULT_CONTROL_ENCODING));
+			for (FTPFile ff : fs) {
+				String strName = ff.getName();
+				String filePath = parentPath + strName;
+				if (ff.isDirectory()) {
+					if (!(strName.equals(".") || strName.equals(".."))) {
+						subDirectories.add(filePath);
 					}
-				} // end for FTPFile
-			} catch (IOException e) {
-				String message = String.format("获取path：[%s] 下文件列表时发生I/O异常,请确认与ftp服务器的连接正常", directoryPath);
-				LOG.error(message);
-				throw DataXException.asDataXException(FtpReaderErrorCode.COMMAND_FTP_IO_EXCEPTION, message, e);
+				} else if (ff.isFile()) {
+					// 是文件
+					files.put(filePath, ff.getSize());
+				} else if(ff.isSymbolicLink()){
+					//是链接文件
+					String message = String.format("文件:[%s]是链接文件，当前不支持链接文件的读取", filePath);
+					LOG.error(message);
+					throw DataXException.asDataXException(FtpReaderErrorCode.LINK_FILE, message);
+				}else {
+					String message = String.format("请确认path:[%s]存在，且配置的用户有权限读取", filePath);
+					LOG.error(message);
+					throw DataXException.asDataXException(FtpReaderErrorCode.FILE_NOT_EXISTS, message);
+				}
+			} // end for FTPFile
+		} catch (IOException e) {
+			String message = String.format("获取path：[%s] 下文件列表时发生I/O异常,请确认与ftp服务器的连接正常", directoryPath);
+			LOG.error(message);
+			throw DataXException.asDataXException(FtpReaderErrorCode.COMMAND_FTP_IO_EXCEPTION, message, e);
+		}
+	}
+
+	@Override
+	protected long getRemoteFileSize(String filePath) {
+		try {
+			FTPFile[] ftpFiles = ftpClient.listFiles(new String(filePath.getBytes(),FTP.DEFAULT_CONTROL_ENCODING));
+			if (ftpFiles.length == 1 && ftpFiles[0].isFile()) {
+				return ftpFiles[0].getSize();
 			}
-			return sourceFiles;
-			
-		} else{
-			//超出最大递归层数
-			String message = String.format("获取path：[%s] 下文件列表时超出最大层数,请确认路径[%s]下不存在软连接文件", directoryPath, directoryPath);
+		} catch (IOException e) {
+			String message = String.format("获取文件：[%s] 属性时发生I/O异常,请确认与ftp服务器的连接正常", filePath);
 			LOG.error(message);
-			throw DataXException.asDataXException(FtpReaderErrorCode.OUT_MAX_DIRECTORY_LEVEL, message);
+			throw DataXException.asDataXException(FtpReaderErrorCode.COMMAND_FTP_IO_EXCEPTION, message, e);
 		}
+		String message = String.format("请确认文件:[%s]存在，且配置的用户有权限读取", filePath);
+		LOG.error(message);
+		throw DataXException.asDataXException(FtpReaderErrorCode.FILE_NOT_EXISTS, message);
 	}
 
 	@Override
 	public InputStream getInputStream(String filePath) {
+		return getInputStream(filePath, 0L);
+	}
+
+	@Override
+	public InputStream getInputStream(String filePath, long offset) {
+		InputStream inputStream;
 		try {
-			return ftpClient.retrieveFileStream(new String(filePath.getBytes(),FTP.DEFAULT_CONTROL_ENCODING));
+			// REST 只对紧接着的一次 RETR 生效
+			ftpClient.setRestartOffset(offset);
+			inputStream = ftpClient.retrieveFileStream(new String(filePath.getBytes(),FTP.DEFAULT_CONTROL_ENCODING));
 		} catch (IOException e) {
 			String message = String.format("读取文件 : [%s] 时出错,请确认文件：[%s]存在且配置的用户有权限读取", filePath, filePath);
 			LOG.error(message);
 			throw DataXException.asDataXException(FtpReaderErrorCode.OPEN_FILE_ERROR, message);
 		}
+		if (null == inputStream) {
+			String message = String.format("读取文件 : [%s] 时出错,请确认文件：[%s]存在且配置的用户有权限读取, ftp服务器返回: %s",
+					filePath, filePath, ftpClient.getReplyString());
+			LOG.error(message);
+			throw DataXException.asDataXException(FtpReaderErrorCode.OPEN_FILE_ERROR, message);
+		}
+		return new FilterInputStream(inputStream) {
+			private boolean closed = false;
+
+			@Override
+			public void close() throws IOException {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				super.close();
+				// 读取本次传输完成(提前关闭时为中止)的应答, 之后才能在控制连接上执行下一条命令
+				ftpClient.completePendingCommand();
+			}
+		};
 	}
 
 }
@@ -0,0 +1,193 @@
+package com.alibaba.datax.plugin.reader.ftpreader;
+
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.StartEndPair;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.UnstructuredSplitUtil;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+public class FtpSplitUtilTest {
+
+	private static final String FILE = "/data/big.txt";
+
+	// 37 字节一行, 与 64MB 的分块大小不对齐
+	private static final byte[] LINE = "0123456789abcdefghijklmnopqrstuvwxyz\n".getBytes(StandardCharsets.UTF_8);
+
+	private static final long FILE_SIZE = 150L * 1024 * 1024 / LINE.length * LINE.length;
+
+	@Test
+	public void testRangesAlignedToNewlines() throws Exception {
+		FakeFtpHelper ftpHelper = new FakeFtpHelper();
+		List<Configuration> configs = new FtpSplitUtil(ftpHelper).getSplitConfiguration(
+				Configuration.newDefault(), Collections.singletonList(FILE), 2);
+		Assert.assertEquals(2, configs.size());
+
+		List<StartEndPair> ranges = new ArrayList<StartEndPair>();
+		for (Configuration config : configs) {
+			ranges.addAll(JSON.parseObject(
+					config.getString(com.alibaba.datax.plugin.unstructuredstorage.reader.Key.SPLIT_SLICE_CONFIG),
+					new TypeReference<List<StartEndPair>>() {
+					}));
+		}
+		// 150MB 切为 3 个 64MB 的分块
+		Assert.assertEquals(3, ranges.size());
+		Collections.sort(ranges, new Comparator<StartEndPair>() {
+			@Override
+			public int compare(StartEndPair left, StartEndPair right) {
+				return left.getStart().compareTo(right.getStart());
+			}
+		});
+
+		long expectedStart = 0;
+		for (StartEndPair range : ranges) {
+			Assert.assertEquals(FILE, range.getFilePath());
+			Assert.assertEquals(expectedStart, range.getStart().longValue());
+			Assert.assertEquals(0, range.getStart() % LINE.length);
+			Assert.assertEquals(LINE.length - 1, range.getEnd() % LINE.length);
+
+			InputStream in = FtpReader.Task.openRange(ftpHelper, FILE, range.getStart(), range.getEnd());
+			long[] stats;
+			try {
+				stats = readLines(in);
+			} finally {
+				in.close();
+			}
+			// 读到的都是完整的行, 结束位置之后的数据不会读出
+			Assert.assertEquals(range.getEnd() - range.getStart() + 1, stats[0]);
+			Assert.assertEquals(stats[0] / LINE.length, stats[1]);
+			expectedStart = range.getEnd() + 1;
+		}
+		Assert.assertEquals(FILE_SIZE, expectedStart);
+	}
+
+	@Test
+	public void testUnboundedRangeReadsToEnd() throws Exception {
+		FakeFtpHelper ftpHelper = new FakeFtpHelper();
+		InputStream in = FtpReader.Task.openRange(ftpHelper, FILE, FILE_SIZE - 2 * LINE.length, -1L);
+		try {
+			byte[] tail = IOUtils.toByteArray(in);
+			Assert.assertEquals(2 * LINE.length, tail.length);
+			Assert.assertEquals('0', tail[0]);
+			Assert.assertEquals('\n', tail[tail.length - 1]);
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void testOnlyUncompressedTextCanSplit() {
+		Configuration config = Configuration.newDefault();
+		Assert.assertFalse(UnstructuredSplitUtil.canSplitSingleFile(config));
+		config.set(com.alibaba.datax.plugin.unstructuredstorage.reader.Key.FILE_FORMAT, "text");
+		Assert.assertTrue(UnstructuredSplitUtil.canSplitSingleFile(config));
+		config.set(com.alibaba.datax.plugin.unstructuredstorage.reader.Key.COMPRESS, "gzip");
+		Assert.assertFalse(UnstructuredSplitUtil.canSplitSingleFile(config));
+	}
+
+	/**
+	 * @return {读到的字节数, 完整的行数}, 每一行都需要与 LINE 相同
+	 */
+	private static long[] readLines(InputStream in) throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		long bytes = 0;
+		long lines = 0;
+		int n;
+		while ((n = in.read(buffer)) != -1) {
+			for (int i = 0; i < n; i++) {
+				Assert.assertEquals(LINE[(int) (bytes % LINE.length)], buffer[i]);
+				bytes++;
+				if (buffer[i] == '\n') {
+					lines++;
+				}
+			}
+		}
+		return new long[]{bytes, lines};
+	}
+
+	/**
+	 * 文件内容由 LINE 重复组成, 按偏移量即时生成, 不占用内存
+	 */
+	private static class FakeFtpHelper extends FtpHelper {
+
+		@Override
+		protected long getRemoteFileSize(String filePath) {
+			return FILE_SIZE;
+		}
+
+		@Override
+		public InputStream getInputStream(String filePath) {
+			return getInputStream(filePath, 0L);
+		}
+
+		@Override
+		public InputStream getInputStream(String filePath, final long offset) {
+			return new InputStream() {
+				private long position = offset;
+
+				@Override
+				public int read() {
+					return position < FILE_SIZE ? LINE[(int) (position++ % LINE.length)] : -1;
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) {
+					if (position >= FILE_SIZE) {
+						return -1;
+					}
+					int n = (int) Math.min(len, FILE_SIZE - position);
+					for (int i = 0; i < n; i++) {
+						b[off + i] = LINE[(int) (position++ % LINE.length)];
+					}
+					return n;
+				}
+			};
+		}
+
+		@Override
+		public void loginFtpServer(String host, String username, String password, int port, int timeout,
+								   String connectMode) {
+		}
+
+		@Override
+		public void logoutFtpServer() {
+		}
+
+		@Override
+		public boolean isDirExist(String directoryPath) {
+			return false;
+		}
+
+		@Override
+		public boolean isFileExist(String filePath) {
+			return FILE.equals(filePath);
+		}
+
+		@Override
+		public boolean isSymbolicLink(String filePath) {
+			return false;
+		}
+
+		@Override
+		public String getParentPath(String directoryPath) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void listDirectory(String directoryPath, String parentPath, Map<String, Long> files,
+								  List<String> subDirectories) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
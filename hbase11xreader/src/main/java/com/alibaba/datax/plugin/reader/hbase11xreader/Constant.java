@@ -12,5 +12,7 @@ public final class Constant {
     public static final int DEFAULT_SCAN_CACHE_SIZE = 256;
 
     public static final int DEFAULT_SCAN_BATCH_SIZE = 100;
+
+    public static final String SNAPSHOT_NAME_PREFIX = "datax_snapshot_";
     
 }
@@ -8,16 +8,20 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HRegionLocation;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
+import org.apache.hadoop.hbase.util.RegionSizeCalculator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,7 +35,7 @@ public class Hbase11xHelper {
 
     private static final Logger LOG = LoggerFactory.getLogger(Hbase11xHelper.class);
 
-    public static org.apache.hadoop.hbase.client.Connection getHbaseConnection(String hbaseConfig) {
+    public static org.apache.hadoop.conf.Configuration getHbaseConfiguration(String hbaseConfig) {
         if (StringUtils.isBlank(hbaseConfig)) {
             throw DataXException.asDataXException(Hbase11xReaderErrorCode.REQUIRED_VALUE, "读 Hbase 时需要配置hbaseConfig，其内容为 Hbase 连接信息，请联系 Hbase PE 获取该信息.");
         }
@@ -46,6 +50,11 @@ public class Hbase11xHelper {
         } catch (Exception e) {
             throw DataXException.asDataXException(Hbase11xReaderErrorCode.GET_HBASE_CONNECTION_ERROR, e);
         }
+        return hConfiguration;
+    }
+
+    public static org.apache.hadoop.hbase.client.Connection getHbaseConnection(String hbaseConfig) {
+        org.apache.hadoop.conf.Configuration hConfiguration = Hbase11xHelper.getHbaseConfiguration(hbaseConfig);
         org.apache.hadoop.hbase.client.Connection hConnection = null;
         try {
             hConnection = ConnectionFactory.createConnection(hConfiguration);
@@ -287,7 +296,7 @@ public class Hbase11xHelper {
         return familyQualifierMap;
     }
 
-    public static List<Configuration> split(Configuration configuration) {
+    public static List<Configuration> split(Configuration configuration, int adviceNumber) {
         byte[] startRowkeyByte = Hbase11xHelper.convertUserStartRowkey(configuration);
         byte[] endRowkeyByte = Hbase11xHelper.convertUserEndRowkey(configuration);
 
@@ -296,15 +305,41 @@ public class Hbase11xHelper {
                 && Bytes.compareTo(startRowkeyByte, endRowkeyByte) > 0) {
             throw DataXException.asDataXException(Hbase11xReaderErrorCode.ILLEGAL_VALUE, "Hbasereader 中 startRowkey 不得大于 endRowkey.");
         }
-        RegionLocator regionLocator = Hbase11xHelper.getRegionLocator(configuration);
+        org.apache.hadoop.hbase.client.Connection hConnection = Hbase11xHelper.getHbaseConnection(configuration.getString(Key.HBASE_CONFIG));
+        TableName hTableName = TableName.valueOf(configuration.getString(Key.TABLE));
+        Admin admin = null;
+        RegionLocator regionLocator = null;
         List<Configuration> resultConfigurations ;
         try {
-            Pair<byte[][], byte[][]> regionRanges = regionLocator.getStartEndKeys();
-            if (null == regionRanges) {
+            admin = hConnection.getAdmin();
+            Hbase11xHelper.checkHbaseTable(admin, hTableName);
+            regionLocator = hConnection.getRegionLocator(hTableName);
+            List<HRegionLocation> regionLocations = regionLocator.getAllRegionLocations();
+            if (null == regionLocations) {
                 throw DataXException.asDataXException(Hbase11xReaderErrorCode.SPLIT_ERROR, "获取源头 Hbase 表的 rowkey 范围失败.");
             }
-            resultConfigurations = Hbase11xHelper.doSplit(configuration, startRowkeyByte, endRowkeyByte,
-                    regionRanges);
+
+            resultConfigurations = new ArrayList<Configuration>();
+            List<byte[]> regionNames = new ArrayList<byte[]>();
+            for (HRegionLocation regionLocation : regionLocations) {
+                HRegionInfo regionInfo = regionLocation.getRegionInfo();
+                Pair<byte[][], byte[][]> regionRange = new Pair<byte[][], byte[][]>(
+                        new byte[][]{regionInfo.getStartKey()}, new byte[][]{regionInfo.getEndKey()});
+                for (Configuration regionConfiguration : Hbase11xHelper.doSplit(configuration, startRowkeyByte,
+                        endRowkeyByte, regionRange)) {
+                    resultConfigurations.add(regionConfiguration);
+                    regionNames.add(regionInfo.getRegionName());
+                }
+            }
+
+            if (Hbase11xHelper.needSubRegionSplit(configuration, resultConfigurations.size(), adviceNumber)) {
+                RegionSizeCalculator sizeCalculator = new RegionSizeCalculator(regionLocator, admin);
+                List<Long> regionSizes = new ArrayList<Long>(regionNames.size());
+                for (byte[] regionName : regionNames) {
+                    regionSizes.add(sizeCalculator.getRegionSize(regionName));
+                }
+                resultConfigurations = Hbase11xHelper.splitLargeRegions(resultConfigurations, regionSizes, adviceNumber);
+            }
 
             LOG.info("HBaseReader split job into {} tasks.", resultConfigurations.size());
             return resultConfigurations;
@@ -312,11 +347,104 @@ public class Hbase11xHelper {
             throw DataXException.asDataXException(Hbase11xReaderErrorCode.SPLIT_ERROR, "切分源头 Hbase 表失败.", e);
         }finally {
             Hbase11xHelper.closeRegionLocator(regionLocator);
+            Hbase11xHelper.closeAdmin(admin);
+            Hbase11xHelper.closeConnection(hConnection);
         }
     }
 
+    static boolean needSubRegionSplit(Configuration configuration, int regionTaskNumber, int adviceNumber) {
+        return configuration.getBool(Key.SUB_REGION_SPLIT, true) && regionTaskNumber > 0
+                && regionTaskNumber < adviceNumber;
+    }
+
+    /**
+     * region 个数少于 adviceNumber 时，按 region 大小把 adviceNumber 分摊到各个 region 上，
+     * 再在每个 region 的 rowkey 范围内插值出切分点，将大 region 切成多个 task，避免少数大 region 只能单通道读取
+     */
+    static List<Configuration> splitLargeRegions(List<Configuration> regionConfigurations, List<Long> regionSizes,
+                                                 int adviceNumber) {
+        long totalSize = 0;
+        for (Long regionSize : regionSizes) {
+            totalSize += regionSize;
+        }
 
-    private static List<Configuration> doSplit(Configuration config, byte[] startRowkeyByte,
+        List<Configuration> configurations = new ArrayList<Configuration>();
+        for (int i = 0; i < regionConfigurations.size(); i++) {
+            Configuration regionConfiguration = regionConfigurations.get(i);
+            int pieces;
+            if (totalSize <= 0) {
+                // 获取不到 region 大小时(如 region 都很小或者关闭了 RegionSizeCalculator)，平均分摊
+                pieces = (int) Math.ceil((double) adviceNumber / regionConfigurations.size());
+            } else {
+                pieces = (int) Math.round((double) adviceNumber * regionSizes.get(i) / totalSize);
+            }
+            if (pieces <= 1) {
+                configurations.add(regionConfiguration);
+                continue;
+            }
+
+            byte[] regionStartKey = Hbase11xHelper.convertInnerStartRowkey(regionConfiguration);
+            byte[] regionEndKey = Hbase11xHelper.convertInnerEndRowkey(regionConfiguration);
+            List<byte[]> splitKeys = Hbase11xHelper.getSplitKeys(regionStartKey, regionEndKey, pieces);
+
+            byte[] thisStartKey = regionStartKey;
+            for (int j = 0; j <= splitKeys.size(); j++) {
+                byte[] thisEndKey = j < splitKeys.size() ? splitKeys.get(j) : regionEndKey;
+                Configuration p = regionConfiguration.clone();
+                p.set(Key.START_ROWKEY, Bytes.toStringBinary(thisStartKey));
+                p.set(Key.END_ROWKEY, Bytes.toStringBinary(thisEndKey));
+                LOG.debug("sub region startRowkey:[{}], endRowkey:[{}] .", Bytes.toStringBinary(thisStartKey),
+                        Bytes.toStringBinary(thisEndKey));
+                configurations.add(p);
+                thisStartKey = thisEndKey;
+            }
+        }
+        return configurations;
+    }
+
+    /**
+     * 在 [startKey, endKey) 之间均匀插值得到 pieces - 1 个严格递增的切分点，空的 startKey/endKey 分别按最小/最大 rowkey 处理；
+     * 无法切分时返回空列表
+     */
+    static List<byte[]> getSplitKeys(byte[] startKey, byte[] endKey, int pieces) {
+        List<byte[]> splitKeys = new ArrayList<byte[]>();
+        byte[] lowerKey = startKey.length == 0 ? new byte[]{0x00} : startKey;
+        byte[] upperKey = endKey;
+        if (endKey.length == 0) {
+            upperKey = new byte[Math.max(lowerKey.length, 1)];
+            Arrays.fill(upperKey, (byte) 0xFF);
+        }
+        if (Bytes.compareTo(lowerKey, upperKey) >= 0) {
+            return splitKeys;
+        }
+
+        byte[][] points;
+        try {
+            points = Bytes.split(lowerKey, upperKey, pieces - 1);
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Can not split rowkey range [{}, {}), keep it as one task.", Bytes.toStringBinary(startKey),
+                    Bytes.toStringBinary(endKey));
+            return splitKeys;
+        }
+        if (points == null) {
+            return splitKeys;
+        }
+        // 首尾为 lowerKey 与 upperKey 本身，只取中间的切分点
+        byte[] lastKey = startKey;
+        for (int i = 1; i < points.length - 1; i++) {
+            byte[] point = points[i];
+            if (Bytes.compareTo(point, lastKey) <= 0
+                    || (endKey.length != 0 && Bytes.compareTo(point, endKey) >= 0)) {
+                continue;
+            }
+            splitKeys.add(point);
+            lastKey = point;
+        }
+        return splitKeys;
+    }
+
+
+    static List<Configuration> doSplit(Configuration config, byte[] startRowkeyByte,
                                                byte[] endRowkeyByte, Pair<byte[][], byte[][]> regionRanges) {
 
         List<Configuration> configurations = new ArrayList<Configuration>();
@@ -434,6 +562,10 @@ public class Hbase11xHelper {
         Boolean isBinaryRowkey = originalConfig.getBool(Constant.RANGE + "." + Key.IS_BINARY_ROWKEY,false);
         originalConfig.set(Key.IS_BINARY_ROWKEY, isBinaryRowkey);
 
+        if (Hbase11xSnapshotHelper.isSnapshotMode(originalConfig)) {
+            Hbase11xSnapshotHelper.validateParameter(originalConfig);
+        }
+
         //scan cache
         int scanCacheSize = originalConfig.getInt(Key.SCAN_CACHE_SIZE,Constant.DEFAULT_SCAN_CACHE_SIZE);
         originalConfig.set(Key.SCAN_CACHE_SIZE,scanCacheSize);
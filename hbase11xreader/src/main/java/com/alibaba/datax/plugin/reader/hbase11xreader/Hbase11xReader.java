@@ -25,15 +25,27 @@ public class Hbase11xReader extends Reader {
             Hbase11xHelper.validateParameter(this.originConfig);
         }
 
+        @Override
+        public void prepare() {
+            if (Hbase11xSnapshotHelper.isSnapshotMode(this.originConfig)) {
+                Hbase11xSnapshotHelper.prepareSnapshot(this.originConfig);
+            }
+        }
+
         @Override
         public List<Configuration> split(int adviceNumber) {
-            return Hbase11xHelper.split(this.originConfig);
+            if (Hbase11xSnapshotHelper.isSnapshotMode(this.originConfig)) {
+                return Hbase11xSnapshotHelper.split(this.originConfig, adviceNumber);
+            }
+            return Hbase11xHelper.split(this.originConfig, adviceNumber);
         }
 
 
         @Override
         public void destroy() {
-
+            if (Hbase11xSnapshotHelper.isSnapshotMode(this.originConfig)) {
+                Hbase11xSnapshotHelper.cleanSnapshot(this.originConfig);
+            }
         }
 
     }
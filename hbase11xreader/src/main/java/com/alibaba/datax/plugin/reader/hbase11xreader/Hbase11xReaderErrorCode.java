@@ -16,7 +16,9 @@ public enum Hbase11xReaderErrorCode implements ErrorCode {
     CLOSE_HBASE_CONNECTION_ERROR("HbaseReader-07", "关闭Hbase连接时出错."),
     CLOSE_HBASE_TABLE_ERROR("HbaseReader-08", "关闭Hbase 抽取表时出错."),
     CLOSE_HBASE_REGINLOCTOR_ERROR("HbaseReader-09", "关闭 Hbase RegionLocator时出错."),
-    CLOSE_HBASE_ADMIN_ERROR("HbaseReader-10", "关闭 Hbase admin时出错.")
+    CLOSE_HBASE_ADMIN_ERROR("HbaseReader-10", "关闭 Hbase admin时出错."),
+    PREPARE_SNAPSHOT_ERROR("HbaseReader-11", "准备 Hbase 表快照时出错."),
+    CLEAN_SNAPSHOT_ERROR("HbaseReader-12", "清理 Hbase 表快照时出错.")
     ;
 
     private final String code;
@@ -0,0 +1,295 @@
+package com.alibaba.datax.plugin.reader.hbase11xreader;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ClientSideRegionScanner;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.IsolationLevel;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.protobuf.generated.HBaseProtos;
+import org.apache.hadoop.hbase.protobuf.generated.SnapshotProtos;
+import org.apache.hadoop.hbase.snapshot.RestoreSnapshotHelper;
+import org.apache.hadoop.hbase.snapshot.SnapshotDescriptionUtils;
+import org.apache.hadoop.hbase.snapshot.SnapshotManifest;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.FSUtils;
+import org.apache.hadoop.hbase.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * snapshot 读取方式的工具类，参照 TableSnapshotInputFormat 的做法：
+ * Job 阶段创建(或使用已有的)表快照并恢复到临时目录，按快照中的 region 切分；
+ * Task 阶段在本地打开对应 region 的 HFile 进行扫描，不经过 RegionServer。
+ */
+public class Hbase11xSnapshotHelper {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Hbase11xSnapshotHelper.class);
+
+    public static boolean isSnapshotMode(Configuration configuration) {
+        return configuration.get(Key.SNAPSHOT) != null;
+    }
+
+    public static void validateParameter(Configuration originalConfig) {
+        String restoreDir = originalConfig.getNecessaryValue(Key.SNAPSHOT_RESTORE_DIR,
+                Hbase11xReaderErrorCode.REQUIRED_VALUE);
+
+        Map<String, String> hbaseConfigMap = JSON.parseObject(originalConfig.getString(Key.HBASE_CONFIG),
+                new TypeReference<Map<String, String>>() {});
+        if (hbaseConfigMap == null || StringUtils.isBlank(hbaseConfigMap.get(HConstants.HBASE_DIR))) {
+            throw DataXException.asDataXException(Hbase11xReaderErrorCode.REQUIRED_VALUE,
+                    "Hbasereader 使用 snapshot 方式读取时，需要在 hbaseConfig 中配置 hbase.rootdir，以便直接读取 HDFS 上的 HFile.");
+        }
+        checkRestoreDir(Hbase11xHelper.getHbaseConfiguration(originalConfig.getString(Key.HBASE_CONFIG)), restoreDir);
+        originalConfig.set(Key.SNAPSHOT_KEEP, originalConfig.getBool(Key.SNAPSHOT_KEEP, false));
+    }
+
+    /**
+     * restoreDir 需要与 hbase.rootdir 位于同一个文件系统，且不能是 hbase.rootdir 或其子目录，
+     * 否则恢复出的 region 目录会被 HBase 当作自身的数据目录处理
+     */
+    static void checkRestoreDir(org.apache.hadoop.conf.Configuration hConfiguration, String restoreDir) {
+        Path rootDir;
+        Path restorePath;
+        try {
+            rootDir = FSUtils.getRootDir(hConfiguration);
+            FileSystem fs = rootDir.getFileSystem(hConfiguration);
+            rootDir = fs.makeQualified(rootDir);
+            restorePath = fs.makeQualified(new Path(restoreDir));
+        } catch (IllegalArgumentException e) {
+            throw DataXException.asDataXException(Hbase11xReaderErrorCode.ILLEGAL_VALUE,
+                    String.format("Hbasereader 快照恢复目录 restoreDir [%s] 需要与 hbase.rootdir 位于同一个文件系统.", restoreDir), e);
+        } catch (IOException e) {
+            throw DataXException.asDataXException(Hbase11xReaderErrorCode.ILLEGAL_VALUE,
+                    String.format("Hbasereader 检查快照恢复目录 restoreDir [%s] 失败.", restoreDir), e);
+        }
+        for (Path path = restorePath; path != null; path = path.getParent()) {
+            if (path.equals(rootDir)) {
+                throw DataXException.asDataXException(Hbase11xReaderErrorCode.ILLEGAL_VALUE,
+                        String.format("Hbasereader 快照恢复目录 restoreDir [%s] 不能位于 hbase.rootdir [%s] 之下.",
+                                restorePath, rootDir));
+            }
+        }
+    }
+
+    /**
+     * 在 Job prepare 阶段调用：未指定快照名称时对表做一次快照，并将快照恢复到一个唯一的临时目录
+     */
+    public static void prepareSnapshot(Configuration originalConfig) {
+        org.apache.hadoop.conf.Configuration hConfiguration =
+                Hbase11xHelper.getHbaseConfiguration(originalConfig.getString(Key.HBASE_CONFIG));
+        String snapshotName = originalConfig.getString(Key.SNAPSHOT_NAME);
+        TableName hTableName = TableName.valueOf(originalConfig.getString(Key.TABLE));
+
+        Connection hConnection = Hbase11xHelper.getHbaseConnection(originalConfig.getString(Key.HBASE_CONFIG));
+        Admin admin = null;
+        try {
+            admin = hConnection.getAdmin();
+            if (StringUtils.isBlank(snapshotName)) {
+                Hbase11xHelper.checkHbaseTable(admin, hTableName);
+                snapshotName = Constant.SNAPSHOT_NAME_PREFIX + hTableName.getQualifierAsString()
+                        + "_" + System.currentTimeMillis();
+                LOG.info("Take snapshot [{}] of table [{}].", snapshotName, hTableName.getNameAsString());
+                admin.snapshot(snapshotName, hTableName);
+                originalConfig.set(Key.SNAPSHOT_NAME, snapshotName);
+                originalConfig.set(Key.SNAPSHOT_CREATED, true);
+            } else if (admin.listSnapshots(Pattern.quote(snapshotName)).isEmpty()) {
+                throw DataXException.asDataXException(Hbase11xReaderErrorCode.ILLEGAL_VALUE,
+                        String.format("Hbasereader 配置的快照 [%s] 不存在, 请检查您的配置.", snapshotName));
+            }
+
+            Path rootDir = FSUtils.getRootDir(hConfiguration);
+            FileSystem fs = rootDir.getFileSystem(hConfiguration);
+            Path restorePath = new Path(originalConfig.getString(Key.SNAPSHOT_RESTORE_DIR),
+                    UUID.randomUUID().toString());
+            LOG.info("Restore snapshot [{}] to [{}].", snapshotName, restorePath);
+            RestoreSnapshotHelper.copySnapshotForScanner(hConfiguration, fs, rootDir, restorePath, snapshotName);
+            originalConfig.set(Key.SNAPSHOT_RESTORE_PATH, restorePath.toString());
+        } catch (DataXException e) {
+            throw e;
+        } catch (Exception e) {
+            throw DataXException.asDataXException(Hbase11xReaderErrorCode.PREPARE_SNAPSHOT_ERROR, e);
+        } finally {
+            Hbase11xHelper.closeAdmin(admin);
+            Hbase11xHelper.closeConnection(hConnection);
+        }
+    }
+
+    public static List<Configuration> split(Configuration configuration, int adviceNumber) {
+        byte[] startRowkeyByte = Hbase11xHelper.convertUserStartRowkey(configuration);
+        byte[] endRowkeyByte = Hbase11xHelper.convertUserEndRowkey(configuration);
+
+        /* 如果用户配置了 startRowkey 和 endRowkey，需要确保：startRowkey <= endRowkey */
+        if (startRowkeyByte.length != 0 && endRowkeyByte.length != 0
+                && Bytes.compareTo(startRowkeyByte, endRowkeyByte) > 0) {
+            throw DataXException.asDataXException(Hbase11xReaderErrorCode.ILLEGAL_VALUE, "Hbasereader 中 startRowkey 不得大于 endRowkey.");
+        }
+
+        try {
+            SnapshotManifest manifest = openManifest(configuration);
+            List<HRegionInfo> regionInfos = getRegionInfos(manifest);
+            Map<String, Long> regionStoreFileSizes = getRegionStoreFileSizes(manifest);
+
+            List<Configuration> resultConfigurations = new ArrayList<Configuration>();
+            List<Long> regionSizes = new ArrayList<Long>();
+            for (HRegionInfo regionInfo : regionInfos) {
+                Pair<byte[][], byte[][]> regionRange = new Pair<byte[][], byte[][]>(
+                        new byte[][]{regionInfo.getStartKey()}, new byte[][]{regionInfo.getEndKey()});
+                List<Configuration> regionConfigurations = Hbase11xHelper.doSplit(configuration,
+                        startRowkeyByte, endRowkeyByte, regionRange);
+                for (Configuration regionConfiguration : regionConfigurations) {
+                    regionConfiguration.set(Key.SNAPSHOT_REGION, regionInfo.getEncodedName());
+                    regionSizes.add(regionStoreFileSizes.get(regionInfo.getEncodedName()));
+                }
+                resultConfigurations.addAll(regionConfigurations);
+            }
+
+            // 子 region 切分后仍落在同一个 region 内，task 仍按 snapshot.region 打开对应 region
+            if (Hbase11xHelper.needSubRegionSplit(configuration, resultConfigurations.size(), adviceNumber)) {
+                resultConfigurations = Hbase11xHelper.splitLargeRegions(resultConfigurations, regionSizes, adviceNumber);
+            }
+
+            LOG.info("HBaseReader split snapshot [{}] into {} tasks.", configuration.getString(Key.SNAPSHOT_NAME),
+                    resultConfigurations.size());
+            return resultConfigurations;
+        } catch (Exception e) {
+            throw DataXException.asDataXException(Hbase11xReaderErrorCode.SPLIT_ERROR, "切分源头 Hbase 表快照失败.", e);
+        }
+    }
+
+    /**
+     * 在 Task 中调用：在本地打开快照中当前 task 对应的 region，直接扫描其 HFile
+     */
+    public static ResultScanner getRegionScanner(Configuration configuration, Scan scan) throws IOException {
+        org.apache.hadoop.conf.Configuration hConfiguration =
+                Hbase11xHelper.getHbaseConfiguration(configuration.getString(Key.HBASE_CONFIG));
+        String regionName = configuration.getString(Key.SNAPSHOT_REGION);
+        Path restorePath = new Path(configuration.getString(Key.SNAPSHOT_RESTORE_PATH));
+        FileSystem fs = restorePath.getFileSystem(hConfiguration);
+
+        SnapshotManifest manifest = openManifest(configuration);
+        HTableDescriptor htd = manifest.getTableDescriptor();
+        HRegionInfo regionInfo = null;
+        for (HRegionInfo candidate : getRegionInfos(manifest)) {
+            if (candidate.getEncodedName().equals(regionName)) {
+                regionInfo = candidate;
+                break;
+            }
+        }
+        if (regionInfo == null) {
+            throw DataXException.asDataXException(Hbase11xReaderErrorCode.PREPAR_READ_ERROR,
+                    String.format("快照 [%s] 中不存在 region [%s].", configuration.getString(Key.SNAPSHOT_NAME), regionName));
+        }
+
+        // 快照中的文件不会再变化，无需 MVCC 可见性检查，与 TableSnapshotInputFormat 保持一致
+        scan.setIsolationLevel(IsolationLevel.READ_UNCOMMITTED);
+        return new ClientSideRegionScanner(hConfiguration, fs, restorePath, htd, regionInfo, scan, null);
+    }
+
+    /**
+     * 在 Job destroy 阶段调用：删除恢复目录，以及由 DataX 自动创建且无需保留的快照
+     */
+    public static void cleanSnapshot(Configuration originalConfig) {
+        String restorePath = originalConfig.getString(Key.SNAPSHOT_RESTORE_PATH);
+        boolean snapshotCreated = originalConfig.getBool(Key.SNAPSHOT_CREATED, false);
+        boolean keepSnapshot = originalConfig.getBool(Key.SNAPSHOT_KEEP, false);
+        try {
+            if (restorePath != null) {
+                org.apache.hadoop.conf.Configuration hConfiguration =
+                        Hbase11xHelper.getHbaseConfiguration(originalConfig.getString(Key.HBASE_CONFIG));
+                Path path = new Path(restorePath);
+                path.getFileSystem(hConfiguration).delete(path, true);
+                LOG.info("Deleted snapshot restore path [{}].", restorePath);
+            }
+            if (snapshotCreated && !keepSnapshot) {
+                String snapshotName = originalConfig.getString(Key.SNAPSHOT_NAME);
+                Connection hConnection = Hbase11xHelper.getHbaseConnection(originalConfig.getString(Key.HBASE_CONFIG));
+                Admin admin = null;
+                try {
+                    admin = hConnection.getAdmin();
+                    admin.deleteSnapshot(snapshotName);
+                    LOG.info("Deleted snapshot [{}].", snapshotName);
+                } finally {
+                    Hbase11xHelper.closeAdmin(admin);
+                    Hbase11xHelper.closeConnection(hConnection);
+                }
+            }
+        } catch (IOException e) {
+            throw DataXException.asDataXException(Hbase11xReaderErrorCode.CLEAN_SNAPSHOT_ERROR, e);
+        }
+    }
+
+    private static SnapshotManifest openManifest(Configuration configuration) throws IOException {
+        org.apache.hadoop.conf.Configuration hConfiguration =
+                Hbase11xHelper.getHbaseConfiguration(configuration.getString(Key.HBASE_CONFIG));
+        Path rootDir = FSUtils.getRootDir(hConfiguration);
+        FileSystem fs = rootDir.getFileSystem(hConfiguration);
+        Path snapshotDir = SnapshotDescriptionUtils.getCompletedSnapshotDir(
+                configuration.getString(Key.SNAPSHOT_NAME), rootDir);
+        HBaseProtos.SnapshotDescription snapshotDesc = SnapshotDescriptionUtils.readSnapshotInfo(fs, snapshotDir);
+        return SnapshotManifest.open(hConfiguration, fs, snapshotDir, snapshotDesc);
+    }
+
+    /**
+     * 快照 manifest 中记录了每个 storefile 的大小，据此得到各 region 的数据量，用于子 region 切分
+     */
+    private static Map<String, Long> getRegionStoreFileSizes(SnapshotManifest manifest) {
+        Map<String, Long> regionSizes = new HashMap<String, Long>();
+        for (SnapshotProtos.SnapshotRegionManifest regionManifest : manifest.getRegionManifests()) {
+            long regionSize = 0;
+            for (SnapshotProtos.SnapshotRegionManifest.FamilyFiles familyFiles : regionManifest.getFamilyFilesList()) {
+                for (SnapshotProtos.SnapshotRegionManifest.StoreFile storeFile : familyFiles.getStoreFilesList()) {
+                    if (storeFile.hasFileSize()) {
+                        regionSize += storeFile.getFileSize();
+                    }
+                }
+            }
+            regionSizes.put(HRegionInfo.convert(regionManifest.getRegionInfo()).getEncodedName(), regionSize);
+        }
+        return regionSizes;
+    }
+
+    private static List<HRegionInfo> getRegionInfos(SnapshotManifest manifest) {
+        List<SnapshotProtos.SnapshotRegionManifest> regionManifests = manifest.getRegionManifests();
+        if (regionManifests == null) {
+            throw DataXException.asDataXException(Hbase11xReaderErrorCode.SPLIT_ERROR, "快照中没有任何 region 信息.");
+        }
+        List<HRegionInfo> regionInfos = new ArrayList<HRegionInfo>(regionManifests.size());
+        for (SnapshotProtos.SnapshotRegionManifest regionManifest : regionManifests) {
+            HRegionInfo regionInfo = HRegionInfo.convert(regionManifest.getRegionInfo());
+            // 跳过已分裂的父 region，其数据已包含在子 region 中
+            if (regionInfo.isOffline() && (regionInfo.isSplit() || regionInfo.isSplitParent())) {
+                continue;
+            }
+            regionInfos.add(regionInfo);
+        }
+        Collections.sort(regionInfos, new Comparator<HRegionInfo>() {
+            @Override
+            public int compare(HRegionInfo o1, HRegionInfo o2) {
+                return Bytes.compareTo(o1.getStartKey(), o2.getStartKey());
+            }
+        });
+        return regionInfos;
+    }
+}
@@ -21,6 +21,8 @@ public abstract class HbaseAbstractTask {
     private byte[] endKey = null;
 
     protected Table htable;
+    protected com.alibaba.datax.common.util.Configuration configuration;
+    protected boolean isSnapshotMode;
     protected String encoding;
     protected int scanCacheSize;
     protected int  scanBatchSize;
@@ -32,7 +34,12 @@ public abstract class HbaseAbstractTask {
 
     public HbaseAbstractTask(com.alibaba.datax.common.util.Configuration configuration) {
 
-        this.htable = Hbase11xHelper.getTable(configuration);
+        this.configuration = configuration;
+        this.isSnapshotMode = Hbase11xSnapshotHelper.isSnapshotMode(configuration);
+        // snapshot 方式直接读取 HFile，不需要连接 RegionServer
+        if (!this.isSnapshotMode) {
+            this.htable = Hbase11xHelper.getTable(configuration);
+        }
 
         this.encoding = configuration.getString(Key.ENCODING,Constant.DEFAULT_ENCODING);
         this.startKey = Hbase11xHelper.convertInnerStartRowkey(configuration);
@@ -61,7 +68,11 @@ public abstract class HbaseAbstractTask {
         this.scan.setCacheBlocks(false);
         initScan(this.scan);
 
-        this.resultScanner = this.htable.getScanner(this.scan);
+        if (this.isSnapshotMode) {
+            this.resultScanner = Hbase11xSnapshotHelper.getRegionScanner(this.configuration, this.scan);
+        } else {
+            this.resultScanner = this.htable.getScanner(this.scan);
+        }
     }
 
     public void close()  {
@@ -74,6 +85,10 @@ public abstract class HbaseAbstractTask {
         try {
             result = resultScanner.next();
         } catch (IOException e) {
+            // snapshot 方式读取的是本地打开的 region，重建 scanner 无法恢复，直接抛出
+            if (this.isSnapshotMode) {
+                throw e;
+            }
             if (lastResult != null) {
                 this.scan.setStartRow(lastResult.getRow());
             }
@@ -48,4 +48,33 @@ public final class Key {
 
     public final static String SCAN_BATCH_SIZE = "scanBatchSize";
 
+    /**
+     * region 个数少于 adviceNumber(即 channel 数)时，是否按 region 大小把大 region 切分为多个 task，默认 true
+     */
+    public final static String SUB_REGION_SPLIT = "subRegionSplit";
+
+    /**
+     * 配置了 snapshot 时，不再经过 RegionServer 扫描，而是基于表快照直接读取 HDFS 上的 HFile
+     * <p/>
+     * snapshot.name 为已有快照名称，不配置时由 DataX 在 prepare 阶段自动创建并在结束后删除
+     * snapshot.restoreDir 为快照恢复(仅创建文件引用)的临时目录，不能位于 hbase.rootdir 之下，必填
+     * snapshot.keep 为 true 时，保留 DataX 自动创建的快照，默认 false
+     */
+    public final static String SNAPSHOT = "snapshot";
+
+    public final static String SNAPSHOT_NAME = "snapshot.name";
+
+    public final static String SNAPSHOT_RESTORE_DIR = "snapshot.restoreDir";
+
+    public final static String SNAPSHOT_KEEP = "snapshot.keep";
+
+    /**
+     * 以下为 DataX 内部回填的配置项，用户无需配置
+     */
+    public final static String SNAPSHOT_RESTORE_PATH = "snapshot.restorePath";
+
+    public final static String SNAPSHOT_CREATED = "snapshot.created";
+
+    public final static String SNAPSHOT_REGION = "snapshot.region";
+
 }
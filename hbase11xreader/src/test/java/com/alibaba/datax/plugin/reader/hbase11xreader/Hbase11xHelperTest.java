@@ -0,0 +1,71 @@
+package com.alibaba.datax.plugin.reader.hbase11xreader;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class Hbase11xHelperTest {
+
+    @Test
+    public void testSplitKeysInterpolated() {
+        // 0x10 ~ 0x50 均分为 4 段
+        assertSplitKeys(Hbase11xHelper.getSplitKeys(new byte[]{0x10}, new byte[]{0x50}, 4),
+                new byte[]{0x20}, new byte[]{0x30}, new byte[]{0x40});
+    }
+
+    @Test
+    public void testSplitKeysOfFirstAndLastRegion() {
+        // 空的 startKey/endKey 按 0x00 与 0xFF 插值, 255 / 4 = 63
+        assertSplitKeys(Hbase11xHelper.getSplitKeys(HConstants.EMPTY_BYTE_ARRAY, HConstants.EMPTY_BYTE_ARRAY, 4),
+                new byte[]{0x3F}, new byte[]{0x7E}, new byte[]{(byte) 0xBD});
+        // 最后一个 region 的上界补齐为与 startKey 等长的 0xFFFF
+        assertSplitKeys(Hbase11xHelper.getSplitKeys(new byte[]{0x10, 0x20}, HConstants.EMPTY_BYTE_ARRAY, 2),
+                new byte[]{(byte) 0x88, 0x0F});
+    }
+
+    @Test
+    public void testSplitKeysOfDifferentLength() {
+        // 较短的 key 在尾部补 0x00 后插值
+        assertSplitKeys(Hbase11xHelper.getSplitKeys(Bytes.toBytes("a"), new byte[]{'b', 0x00}, 2),
+                new byte[]{'a', (byte) 0x80});
+    }
+
+    @Test
+    public void testSplitKeysStrictlyInsideRange() {
+        byte[] startKey = Bytes.toBytes("row_0000");
+        byte[] endKey = Bytes.toBytes("row_9999");
+        List<byte[]> splitKeys = Hbase11xHelper.getSplitKeys(startKey, endKey, 10);
+        Assert.assertEquals(9, splitKeys.size());
+        byte[] lastKey = startKey;
+        for (byte[] splitKey : splitKeys) {
+            Assert.assertTrue(Bytes.toStringBinary(splitKey), Bytes.compareTo(lastKey, splitKey) < 0);
+            lastKey = splitKey;
+        }
+        Assert.assertTrue(Bytes.compareTo(lastKey, endKey) < 0);
+    }
+
+    @Test
+    public void testUnsplittableRange() {
+        Assert.assertTrue(Hbase11xHelper.getSplitKeys(new byte[]{0x10}, new byte[]{0x50}, 1).isEmpty());
+        Assert.assertTrue(Hbase11xHelper.getSplitKeys(new byte[]{0x50}, new byte[]{0x10}, 4).isEmpty());
+        Assert.assertTrue(Hbase11xHelper.getSplitKeys(new byte[]{(byte) 0xFF}, HConstants.EMPTY_BYTE_ARRAY, 4)
+                .isEmpty());
+    }
+
+    private static void assertSplitKeys(List<byte[]> actual, byte[]... expected) {
+        Assert.assertEquals(toStrings(Arrays.asList(expected)), toStrings(actual));
+    }
+
+    private static List<String> toStrings(List<byte[]> keys) {
+        List<String> result = new ArrayList<String>();
+        for (byte[] key : keys) {
+            result.add(Bytes.toStringBinary(key));
+        }
+        return result;
+    }
+}
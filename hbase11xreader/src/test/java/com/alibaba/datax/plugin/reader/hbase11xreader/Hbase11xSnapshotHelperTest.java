@@ -0,0 +1,286 @@
+package com.alibaba.datax.plugin.reader.hbase11xreader;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.FSUtils;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 在 HBase mini-cluster 上验证 snapshot 读取方式：快照切分、基于恢复目录的 region 扫描以及快照清理
+ */
+public class Hbase11xSnapshotHelperTest {
+
+    private static final HBaseTestingUtility UTIL = new HBaseTestingUtility();
+
+    private static final TableName TABLE = TableName.valueOf("datax_snapshot_test");
+
+    private static final byte[] FAMILY = Bytes.toBytes("cf");
+
+    private static final byte[] QUALIFIER = Bytes.toBytes("q");
+
+    private static final int ROWS = 100;
+
+    private static final String RESTORE_DIR = "/datax_snapshot_restore";
+
+    private static Connection connection;
+
+    private static Admin admin;
+
+    private static Map<String, String> hbaseConfig;
+
+    @BeforeClass
+    public static void setUpCluster() throws Exception {
+        UTIL.startMiniCluster();
+        connection = ConnectionFactory.createConnection(UTIL.getConfiguration());
+        admin = connection.getAdmin();
+
+        HTableDescriptor htd = new HTableDescriptor(TABLE);
+        htd.addFamily(new HColumnDescriptor(FAMILY));
+        admin.createTable(htd, new byte[][]{Bytes.toBytes(rowKey(ROWS / 2))});
+        Table table = connection.getTable(TABLE);
+        try {
+            List<Put> puts = new ArrayList<Put>();
+            for (int i = 0; i < ROWS; i++) {
+                puts.add(newPut(rowKey(i), "v" + i));
+            }
+            table.put(puts);
+        } finally {
+            table.close();
+        }
+        admin.flush(TABLE);
+
+        org.apache.hadoop.conf.Configuration conf = UTIL.getConfiguration();
+        hbaseConfig = new HashMap<String, String>();
+        hbaseConfig.put(HConstants.ZOOKEEPER_QUORUM, conf.get(HConstants.ZOOKEEPER_QUORUM));
+        hbaseConfig.put(HConstants.ZOOKEEPER_CLIENT_PORT, conf.get(HConstants.ZOOKEEPER_CLIENT_PORT));
+        hbaseConfig.put(HConstants.HBASE_DIR, FSUtils.getRootDir(conf).toString());
+        hbaseConfig.put("fs.defaultFS", conf.get("fs.defaultFS"));
+    }
+
+    @AfterClass
+    public static void tearDownCluster() throws Exception {
+        Hbase11xHelper.closeAdmin(admin);
+        Hbase11xHelper.closeConnection(connection);
+        UTIL.shutdownMiniCluster();
+    }
+
+    @Test
+    public void testSnapshotSplitScanAndClean() throws Exception {
+        Configuration config = newConfig();
+        Hbase11xSnapshotHelper.validateParameter(config);
+        Hbase11xSnapshotHelper.prepareSnapshot(config);
+        String snapshotName = config.getString(Key.SNAPSHOT_NAME);
+        Path restorePath = new Path(config.getString(Key.SNAPSHOT_RESTORE_PATH));
+        FileSystem fs = restorePath.getFileSystem(UTIL.getConfiguration());
+        try {
+            Assert.assertTrue(snapshotName.startsWith(Constant.SNAPSHOT_NAME_PREFIX));
+            Assert.assertTrue(config.getBool(Key.SNAPSHOT_CREATED));
+            Assert.assertEquals(RESTORE_DIR, restorePath.getParent().toUri().getPath());
+            Assert.assertTrue(fs.exists(restorePath));
+
+            // 快照之后的写入不可见
+            Table table = connection.getTable(TABLE);
+            try {
+                table.put(newPut("row_999", "late"));
+            } finally {
+                table.close();
+            }
+
+            // 每个 region 一个 task
+            List<Configuration> configs = Hbase11xSnapshotHelper.split(config, 1);
+            Assert.assertEquals(2, configs.size());
+            Set<String> regions = new HashSet<String>();
+            for (Configuration regionConfig : configs) {
+                regions.add(regionConfig.getString(Key.SNAPSHOT_REGION));
+            }
+            Assert.assertEquals(2, regions.size());
+            assertRows(readAll(configs), 0, ROWS);
+
+            // region 数少于 adviceNumber 时按 manifest 中的 HFile 大小继续切分, 数据不重不漏
+            List<Configuration> subConfigs = Hbase11xSnapshotHelper.split(config, 6);
+            Assert.assertTrue(String.valueOf(subConfigs.size()), subConfigs.size() > 2);
+            assertRows(readAll(subConfigs), 0, ROWS);
+
+            Hbase11xSnapshotHelper.cleanSnapshot(config);
+            Assert.assertFalse(fs.exists(restorePath));
+            Assert.assertTrue(admin.listSnapshots(Pattern.quote(snapshotName)).isEmpty());
+        } finally {
+            Table table = connection.getTable(TABLE);
+            try {
+                table.delete(new Delete(Bytes.toBytes("row_999")));
+            } finally {
+                table.close();
+            }
+        }
+    }
+
+    @Test
+    public void testExistingSnapshotKeptAndRangeApplied() throws Exception {
+        String snapshotName = "datax_existing_snapshot";
+        admin.snapshot(snapshotName, TABLE);
+        try {
+            Configuration config = newConfig();
+            config.set(Key.SNAPSHOT_NAME, snapshotName);
+            config.set(Key.START_ROWKEY, rowKey(20));
+            config.set(Key.END_ROWKEY, rowKey(80));
+            config.set(Key.IS_BINARY_ROWKEY, false);
+            Hbase11xSnapshotHelper.validateParameter(config);
+            Hbase11xSnapshotHelper.prepareSnapshot(config);
+            Assert.assertFalse(config.getBool(Key.SNAPSHOT_CREATED, false));
+
+            List<Configuration> configs = Hbase11xSnapshotHelper.split(config, 1);
+            Assert.assertEquals(2, configs.size());
+            assertRows(readAll(configs), 20, 80);
+
+            Path restorePath = new Path(config.getString(Key.SNAPSHOT_RESTORE_PATH));
+            FileSystem fs = restorePath.getFileSystem(UTIL.getConfiguration());
+            Hbase11xSnapshotHelper.cleanSnapshot(config);
+            Assert.assertFalse(fs.exists(restorePath));
+            // 用户指定的快照不删除
+            Assert.assertEquals(1, admin.listSnapshots(Pattern.quote(snapshotName)).size());
+        } finally {
+            admin.deleteSnapshot(snapshotName);
+        }
+    }
+
+    @Test
+    public void testMissingSnapshotRejected() {
+        Configuration config = newConfig();
+        config.set(Key.SNAPSHOT_NAME, "datax_not_exists");
+        try {
+            Hbase11xSnapshotHelper.prepareSnapshot(config);
+            Assert.fail();
+        } catch (DataXException e) {
+            Assert.assertEquals(Hbase11xReaderErrorCode.ILLEGAL_VALUE, e.getErrorCode());
+        }
+        Assert.assertNull(config.getString(Key.SNAPSHOT_RESTORE_PATH));
+    }
+
+    @Test
+    public void testUnknownRegionRejected() throws Exception {
+        Configuration config = newConfig();
+        Hbase11xSnapshotHelper.prepareSnapshot(config);
+        try {
+            Configuration regionConfig = Hbase11xSnapshotHelper.split(config, 1).get(0);
+            regionConfig.set(Key.SNAPSHOT_REGION, "not_a_region");
+            Hbase11xSnapshotHelper.getRegionScanner(regionConfig, new Scan());
+            Assert.fail();
+        } catch (DataXException e) {
+            Assert.assertEquals(Hbase11xReaderErrorCode.PREPAR_READ_ERROR, e.getErrorCode());
+        } finally {
+            Hbase11xSnapshotHelper.cleanSnapshot(config);
+        }
+    }
+
+    @Test
+    public void testRestoreDirUnderRootDirRejected() throws Exception {
+        String rootDir = hbaseConfig.get(HConstants.HBASE_DIR);
+        String rootPath = new Path(rootDir).toUri().getPath();
+        for (String restoreDir : new String[]{rootDir, rootDir + "/restore", rootPath + "/.tmp/restore"}) {
+            Configuration config = newConfig();
+            config.set(Key.SNAPSHOT_RESTORE_DIR, restoreDir);
+            try {
+                Hbase11xSnapshotHelper.validateParameter(config);
+                Assert.fail(restoreDir);
+            } catch (DataXException e) {
+                Assert.assertEquals(Hbase11xReaderErrorCode.ILLEGAL_VALUE, e.getErrorCode());
+            }
+        }
+
+        // 只是前缀相同的兄弟目录可以使用
+        Configuration config = newConfig();
+        config.set(Key.SNAPSHOT_RESTORE_DIR, rootPath + "_restore");
+        Hbase11xSnapshotHelper.validateParameter(config);
+
+        // 与 hbase.rootdir 不在同一个文件系统
+        config = newConfig();
+        config.set(Key.SNAPSHOT_RESTORE_DIR, "file:///tmp/datax_snapshot_restore");
+        try {
+            Hbase11xSnapshotHelper.validateParameter(config);
+            Assert.fail();
+        } catch (DataXException e) {
+            Assert.assertEquals(Hbase11xReaderErrorCode.ILLEGAL_VALUE, e.getErrorCode());
+        }
+    }
+
+    private static Configuration newConfig() {
+        Configuration config = Configuration.newDefault();
+        config.set(Key.HBASE_CONFIG, hbaseConfig);
+        config.set(Key.TABLE, TABLE.getNameAsString());
+        config.set(Key.SNAPSHOT_RESTORE_DIR, RESTORE_DIR);
+        return config;
+    }
+
+    /**
+     * 按 task 配置的 rowkey 范围扫描各自 region 的 HFile, 返回读到的 rowkey
+     */
+    private static List<String> readAll(List<Configuration> configs) throws IOException {
+        List<String> rows = new ArrayList<String>();
+        for (Configuration config : configs) {
+            Scan scan = new Scan();
+            scan.setStartRow(Hbase11xHelper.convertInnerStartRowkey(config));
+            scan.setStopRow(Hbase11xHelper.convertInnerEndRowkey(config));
+            ResultScanner scanner = Hbase11xSnapshotHelper.getRegionScanner(config, scan);
+            try {
+                Result result;
+                while ((result = scanner.next()) != null) {
+                    String row = Bytes.toString(result.getRow());
+                    Assert.assertEquals("v" + Integer.parseInt(row.substring("row_".length())),
+                            Bytes.toString(result.getValue(FAMILY, QUALIFIER)));
+                    rows.add(row);
+                }
+            } finally {
+                scanner.close();
+            }
+        }
+        return rows;
+    }
+
+    private static void assertRows(List<String> rows, int from, int to) {
+        Assert.assertEquals(to - from, rows.size());
+        Set<String> unique = new HashSet<String>(rows);
+        Assert.assertEquals(rows.size(), unique.size());
+        for (int i = from; i < to; i++) {
+            Assert.assertTrue(rowKey(i), unique.contains(rowKey(i)));
+        }
+    }
+
+    private static String rowKey(int i) {
+        return String.format("row_%03d", i);
+    }
+
+    private static Put newPut(String row, String value) {
+        Put put = new Put(Bytes.toBytes(row));
+        put.addColumn(FAMILY, QUALIFIER, Bytes.toBytes(value));
+        return put;
+    }
+}
@@ -0,0 +1,470 @@
+package com.alibaba.datax.plugin.writer.hbase11xwriter;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.regionserver.HStore;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * bulkLoad 模式下 task 端的写入: 把 Put 中的 cell 缓存在内存里, 超过 bulkLoadBufferSize 时排序后作为一个有序段
+ * 写到本地临时目录; task 结束时归并所有有序段, 按表当前的 region 边界和列族切分, 每个 (region, 列族)
+ * 只写一个 HFile 到 stagingDir/列族/ 下, 由 Job.post 统一 bulk load. 写入过程不经过 RegionServer 的 WAL 和 memstore.
+ * <p/>
+ * 未配置 versionColumn 的 cell 使用作业级别的统一时间戳. 同一个 task 中重复的 (rowkey, 列, 版本)
+ * 只保留最后写入的值; 不同 task 之间的重复值以 HBase 的 bulk load 顺序为准.
+ */
+public class BulkLoadHFileWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkLoadHFileWriter.class);
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    // 相同 key 时先取较早写出的有序段, 保证归并后最后一个是最后写入的值
+    private static final Comparator<RunReader> RUN_ORDER = new Comparator<RunReader>() {
+        @Override
+        public int compare(RunReader left, RunReader right) {
+            int result = KeyValue.COMPARATOR.compare(left.current, right.current);
+            return result != 0 ? result : Integer.compare(left.index, right.index);
+        }
+    };
+
+    private final org.apache.hadoop.conf.Configuration hConfiguration;
+
+    private final FileSystem fs;
+
+    private final Path jobDir;
+
+    private final FsPermission dirPermission;
+
+    private final byte[] jobTimestamp;
+
+    private final long bufferSize;
+
+    // 各列族的压缩、编码、块大小与 bloom 设置, 与表定义保持一致
+    private final Map<String, HColumnDescriptor> families;
+
+    // 除第一个空的 start key 外, 各个 region 的 start key
+    private final byte[][] regionStartKeys;
+
+    private final File localDir;
+
+    private final List<KeyValue> buffer = new ArrayList<KeyValue>();
+
+    private long bufferedBytes = 0;
+
+    // 本地临时目录, 第一次写出有序段时创建
+    private File runDir;
+
+    private final List<File> runFiles = new ArrayList<File>();
+
+    private final Map<String, StoreFile.Writer> openWriters = new TreeMap<String, StoreFile.Writer>();
+
+    private int currentRegion = 0;
+
+    private long writtenHFileCount = 0;
+
+    BulkLoadHFileWriter(org.apache.hadoop.conf.Configuration hConfiguration, FileSystem fs, Path jobDir,
+                        FsPermission dirPermission, long jobTimestamp, long bufferSize,
+                        Map<String, HColumnDescriptor> families, byte[][] regionStartKeys, File localDir) {
+        this.hConfiguration = hConfiguration;
+        this.fs = fs;
+        this.jobDir = jobDir;
+        this.dirPermission = dirPermission;
+        this.jobTimestamp = Bytes.toBytes(jobTimestamp);
+        this.bufferSize = bufferSize;
+        this.families = families;
+        this.regionStartKeys = regionStartKeys;
+        this.localDir = localDir;
+    }
+
+    /**
+     * 读取表的列族定义和当前的 region 边界
+     */
+    public static BulkLoadHFileWriter open(Configuration configuration) {
+        String hbaseConfig = configuration.getString(Key.HBASE_CONFIG);
+        String userTable = configuration.getString(Key.TABLE);
+        org.apache.hadoop.conf.Configuration hConfiguration = Hbase11xHelper.getHbaseConfiguration(hbaseConfig);
+        Path jobDir = new Path(configuration.getString(Key.BULK_LOAD_JOB_DIR));
+
+        TableName hTableName = TableName.valueOf(userTable);
+        Connection hConnection = Hbase11xHelper.getHbaseConnection(hbaseConfig);
+        Admin admin = null;
+        RegionLocator regionLocator = null;
+        FileSystem fs;
+        Map<String, HColumnDescriptor> families = new HashMap<String, HColumnDescriptor>();
+        byte[][] regionStartKeys;
+        try {
+            fs = jobDir.getFileSystem(hConfiguration);
+            admin = hConnection.getAdmin();
+            for (HColumnDescriptor family : admin.getTableDescriptor(hTableName).getColumnFamilies()) {
+                families.put(family.getNameAsString(), family);
+            }
+            regionLocator = hConnection.getRegionLocator(hTableName);
+            List<byte[]> boundaries = new ArrayList<byte[]>();
+            for (byte[] startKey : regionLocator.getStartKeys()) {
+                if (startKey.length > 0) {
+                    boundaries.add(startKey);
+                }
+            }
+            Collections.sort(boundaries, Bytes.BYTES_COMPARATOR);
+            regionStartKeys = boundaries.toArray(new byte[boundaries.size()][]);
+        } catch (IOException e) {
+            throw DataXException.asDataXException(Hbase11xWriterErrorCode.BULK_LOAD_ERROR,
+                    String.format("获取表[%s]的列族与region信息失败.", userTable), e);
+        } finally {
+            if (null != regionLocator) {
+                try {
+                    regionLocator.close();
+                } catch (IOException e) {
+                    LOG.warn("关闭 RegionLocator 失败.", e);
+                }
+            }
+            Hbase11xHelper.closeAdmin(admin);
+            Hbase11xHelper.closeConnection(hConnection);
+        }
+        LOG.info("bulkLoad 模式: 表[{}]当前有{}个region, HFile 输出目录[{}].", userTable,
+                regionStartKeys.length + 1, jobDir);
+        return new BulkLoadHFileWriter(hConfiguration, fs, jobDir,
+                Hbase11xHelper.getBulkLoadDirPermission(configuration),
+                configuration.getLong(Key.BULK_LOAD_TIMESTAMP),
+                configuration.getLong(Key.BULK_LOAD_BUFFER_SIZE, Constant.DEFAULT_BULK_LOAD_BUFFER_SIZE),
+                families, regionStartKeys,
+                new File(configuration.getString(Key.BULK_LOAD_LOCAL_DIR, System.getProperty("java.io.tmpdir"))));
+    }
+
+    /**
+     * @throws IllegalArgumentException put 中没有列或者列族不存在, 由调用方记为脏数据
+     */
+    public void write(Put put) throws IOException {
+        if (put.isEmpty()) {
+            throw new IllegalArgumentException("No columns to insert");
+        }
+        List<KeyValue> kvs = new ArrayList<KeyValue>(put.size());
+        for (Map.Entry<byte[], List<Cell>> entry : put.getFamilyCellMap().entrySet()) {
+            String family = Bytes.toString(entry.getKey());
+            if (!this.families.containsKey(family)) {
+                throw new IllegalArgumentException(String.format("列族[%s]在表中不存在", family));
+            }
+            for (Cell cell : entry.getValue()) {
+                KeyValue kv = KeyValueUtil.ensureKeyValue(cell);
+                if (kv.getTimestamp() == HConstants.LATEST_TIMESTAMP) {
+                    kv.updateLatestStamp(this.jobTimestamp);
+                }
+                kvs.add(kv);
+            }
+        }
+        for (KeyValue kv : kvs) {
+            this.buffer.add(kv);
+            this.bufferedBytes += kv.heapSize();
+        }
+        if (this.bufferedBytes >= this.bufferSize) {
+            spill();
+        }
+    }
+
+    /**
+     * 所有数据写入后调用: 只有一个有序段时直接从内存写 HFile, 否则归并本地的有序段后写 HFile,
+     * 保证每个 (region, 列族) 只生成一个 HFile
+     */
+    public void finish() throws IOException {
+        long start = System.currentTimeMillis();
+        if (this.runFiles.isEmpty()) {
+            sortBuffer();
+            writeHFiles(new BufferSource(this.buffer));
+        } else {
+            spill();
+            List<RunReader> readers = new ArrayList<RunReader>(this.runFiles.size());
+            try {
+                for (int i = 0; i < this.runFiles.size(); i++) {
+                    readers.add(new RunReader(i, this.runFiles.get(i)));
+                }
+                writeHFiles(new MergeSource(readers));
+            } finally {
+                for (RunReader reader : readers) {
+                    reader.close();
+                }
+            }
+        }
+        this.buffer.clear();
+        this.bufferedBytes = 0;
+        LOG.info("归并{}个有序段写出 HFile, 耗时 {} ms, 共 {} 个 HFile.", Math.max(1, this.runFiles.size()),
+                System.currentTimeMillis() - start, this.writtenHFileCount);
+    }
+
+    /**
+     * 关闭已经打开的 HFile 并删除本地有序段; 失败时残留的 HFile 由 Job 清理 staging 目录时删除
+     */
+    public void close() {
+        this.buffer.clear();
+        try {
+            closeWriters();
+        } catch (IOException e) {
+            LOG.warn("关闭 HFile 失败.", e);
+        }
+        if (null != this.runDir) {
+            for (File runFile : this.runFiles) {
+                if (runFile.exists() && !runFile.delete()) {
+                    LOG.warn("删除本地临时文件[{}]失败.", runFile.getAbsolutePath());
+                }
+            }
+            this.runFiles.clear();
+            if (!this.runDir.delete()) {
+                LOG.warn("删除本地临时目录[{}]失败.", this.runDir.getAbsolutePath());
+            }
+            this.runDir = null;
+        }
+    }
+
+    /**
+     * 把缓存的 cell 排序去重后写成本地的一个有序段
+     */
+    private void spill() throws IOException {
+        if (this.buffer.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int cellCount = this.buffer.size();
+        sortBuffer();
+        if (null == this.runDir) {
+            this.runDir = Files.createTempDirectory(this.localDir.toPath(), "datax_hbase_bulkload_").toFile();
+        }
+        File runFile = new File(this.runDir, String.format("run_%05d", this.runFiles.size()));
+        this.runFiles.add(runFile);
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(runFile), IO_BUFFER_SIZE));
+        try {
+            forEachLatest(new BufferSource(this.buffer), new KeyValueConsumer() {
+                @Override
+                public void accept(KeyValue kv) throws IOException {
+                    out.writeInt(kv.getLength());
+                    out.write(kv.getBuffer(), kv.getOffset(), kv.getLength());
+                }
+            });
+            // 长度为 0 表示有序段结束
+            out.writeInt(0);
+        } finally {
+            out.close();
+        }
+        this.buffer.clear();
+        this.bufferedBytes = 0;
+        LOG.info("写出 {} 个 cell 到本地有序段[{}], 耗时 {} ms.", cellCount, runFile.getAbsolutePath(),
+                System.currentTimeMillis() - start);
+    }
+
+    private void sortBuffer() {
+        // 稳定排序, 相同 key 的 cell 保持写入顺序
+        Collections.sort(this.buffer, KeyValue.COMPARATOR);
+    }
+
+    private void writeHFiles(KeyValueSource source) throws IOException {
+        this.currentRegion = 0;
+        forEachLatest(source, new KeyValueConsumer() {
+            @Override
+            public void accept(KeyValue kv) throws IOException {
+                append(kv);
+            }
+        });
+        closeWriters();
+    }
+
+    private void append(KeyValue kv) throws IOException {
+        // 已排序, region 只会向后移动
+        int rowRegion = this.currentRegion;
+        while (rowRegion < this.regionStartKeys.length
+                && Bytes.compareTo(this.regionStartKeys[rowRegion], 0, this.regionStartKeys[rowRegion].length,
+                kv.getRowArray(), kv.getRowOffset(), kv.getRowLength()) <= 0) {
+            rowRegion++;
+        }
+        if (rowRegion != this.currentRegion) {
+            closeWriters();
+            this.currentRegion = rowRegion;
+        }
+        getWriter(kv).append(kv);
+    }
+
+    /**
+     * 依次取出有序的 cell, 相同 key 的连续 cell 只把最后一个交给 consumer
+     */
+    private static void forEachLatest(KeyValueSource source, KeyValueConsumer consumer) throws IOException {
+        KeyValue pending = null;
+        KeyValue kv;
+        while (null != (kv = source.next())) {
+            if (null != pending && KeyValue.COMPARATOR.compare(pending, kv) != 0) {
+                consumer.accept(pending);
+            }
+            pending = kv;
+        }
+        if (null != pending) {
+            consumer.accept(pending);
+        }
+    }
+
+    private StoreFile.Writer getWriter(KeyValue kv) throws IOException {
+        String family = Bytes.toString(kv.getFamilyArray(), kv.getFamilyOffset(), kv.getFamilyLength());
+        StoreFile.Writer writer = this.openWriters.get(family);
+        if (null == writer) {
+            HColumnDescriptor familyDescriptor = this.families.get(family);
+            Path familyDir = new Path(this.jobDir, family);
+            if (!this.fs.exists(familyDir)) {
+                this.fs.mkdirs(familyDir);
+                // RegionServer 需要移动该目录下的文件
+                this.fs.setPermission(familyDir, this.dirPermission);
+            }
+            HFileContext fileContext = new HFileContextBuilder()
+                    .withCompression(familyDescriptor.getCompressionType())
+                    .withChecksumType(HStore.getChecksumType(this.hConfiguration))
+                    .withBytesPerCheckSum(HStore.getBytesPerChecksum(this.hConfiguration))
+                    .withBlockSize(familyDescriptor.getBlocksize())
+                    .withDataBlockEncoding(familyDescriptor.getDataBlockEncoding())
+                    .withIncludesTags(false)
+                    .build();
+            writer = new StoreFile.WriterBuilder(this.hConfiguration, new CacheConfig(this.hConfiguration), this.fs)
+                    .withOutputDir(familyDir)
+                    .withBloomType(familyDescriptor.getBloomFilterType())
+                    .withComparator(KeyValue.COMPARATOR)
+                    .withFileContext(fileContext)
+                    .build();
+            this.openWriters.put(family, writer);
+        }
+        return writer;
+    }
+
+    private void closeWriters() throws IOException {
+        IOException firstError = null;
+        for (StoreFile.Writer writer : this.openWriters.values()) {
+            try {
+                writer.appendFileInfo(StoreFile.BULKLOAD_TIME_KEY, Bytes.toBytes(System.currentTimeMillis()));
+                writer.appendFileInfo(StoreFile.MAJOR_COMPACTION_KEY, Bytes.toBytes(false));
+                writer.appendTrackedTimestampsToMetadata();
+                writer.close();
+                this.writtenHFileCount++;
+            } catch (IOException e) {
+                if (null == firstError) {
+                    firstError = e;
+                }
+            }
+        }
+        this.openWriters.clear();
+        if (null != firstError) {
+            throw firstError;
+        }
+    }
+
+    private interface KeyValueSource {
+        /**
+         * @return 下一个 cell, 没有时返回 null
+         */
+        KeyValue next() throws IOException;
+    }
+
+    private interface KeyValueConsumer {
+        void accept(KeyValue kv) throws IOException;
+    }
+
+    private static class BufferSource implements KeyValueSource {
+        private final List<KeyValue> kvs;
+        private int position = 0;
+
+        BufferSource(List<KeyValue> kvs) {
+            this.kvs = kvs;
+        }
+
+        @Override
+        public KeyValue next() {
+            return this.position < this.kvs.size() ? this.kvs.get(this.position++) : null;
+        }
+    }
+
+    private static class MergeSource implements KeyValueSource {
+        private final PriorityQueue<RunReader> queue;
+
+        MergeSource(List<RunReader> readers) throws IOException {
+            this.queue = new PriorityQueue<RunReader>(Math.max(1, readers.size()), RUN_ORDER);
+            for (RunReader reader : readers) {
+                if (reader.advance()) {
+                    this.queue.add(reader);
+                }
+            }
+        }
+
+        @Override
+        public KeyValue next() throws IOException {
+            RunReader reader = this.queue.poll();
+            if (null == reader) {
+                return null;
+            }
+            KeyValue kv = reader.current;
+            if (reader.advance()) {
+                this.queue.add(reader);
+            }
+            return kv;
+        }
+    }
+
+    private static class RunReader {
+        private final int index;
+        private final DataInputStream in;
+        private KeyValue current;
+
+        RunReader(int index, File runFile) throws IOException {
+            this.index = index;
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(runFile), IO_BUFFER_SIZE));
+        }
+
+        boolean advance() throws IOException {
+            int length = this.in.readInt();
+            if (length == 0) {
+                this.current = null;
+                return false;
+            }
+            byte[] bytes = new byte[length];
+            this.in.readFully(bytes);
+            this.current = new KeyValue(bytes, 0, length);
+            return true;
+        }
+
+        void close() {
+            try {
+                this.in.close();
+            } catch (IOException e) {
+                LOG.warn("关闭本地有序段失败.", e);
+            }
+        }
+    }
+}
@@ -5,4 +5,9 @@ public final class Constant {
     public static final String DEFAULT_DATA_FORMAT = "yyyy-MM-dd HH:mm:ss";
     public static final String DEFAULT_NULL_MODE = "skip";
     public static final long DEFAULT_WRITE_BUFFER_SIZE = 8 * 1024 * 1024;
+    /**
+     * 每个 task 各自缓存, 默认 1g 堆、5 个 channel 时合计约 160m
+     */
+    public static final long DEFAULT_BULK_LOAD_BUFFER_SIZE = 32 * 1024 * 1024;
+    public static final String DEFAULT_BULK_LOAD_DIR_PERMISSION = "770";
 }
@@ -6,22 +6,32 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.TypeReference;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 
 public class Hbase11xHelper {
 
     private static final Logger LOG = LoggerFactory.getLogger(Hbase11xHelper.class);
 
+    private static final String MAX_FILES_PER_REGION_PER_FAMILY = "hbase.mapreduce.bulkload.max.hfiles.perRegion.perFamily";
+
     public static org.apache.hadoop.conf.Configuration getHbaseConfiguration(String hbaseConfig) {
         if (StringUtils.isBlank(hbaseConfig)) {
             throw DataXException.asDataXException(Hbase11xWriterErrorCode.REQUIRED_VALUE, "读 Hbase 时需要配置hbaseConfig，其内容为 Hbase 连接信息，请联系 Hbase PE 获取该信息.");
@@ -145,6 +155,119 @@ public class Hbase11xHelper {
         }
     }
 
+    /**
+     * 为本次作业创建独立的 HFile 目录, 并确定未指定版本的 cell 统一使用的时间戳
+     */
+    public static void prepareBulkLoad(com.alibaba.datax.common.util.Configuration configuration) {
+        String hbaseConfig = configuration.getString(Key.HBASE_CONFIG);
+        String userTable = configuration.getString(Key.TABLE);
+        String stagingDir = configuration.getString(Key.STAGING_DIR);
+        String jobDirName = String.format("%s_%s_%s", userTable.replace(':', '_'),
+                new SimpleDateFormat("yyyyMMddHHmmss").format(new Date()),
+                UUID.randomUUID().toString().replace("-", "").substring(0, 8));
+        Path jobDir = new Path(stagingDir, jobDirName);
+        try {
+            FileSystem fs = jobDir.getFileSystem(Hbase11xHelper.getHbaseConfiguration(hbaseConfig));
+            fs.mkdirs(jobDir);
+            // bulk load 时由 RegionServer 把 HFile 移动到表目录下, 需要与 HBase 同组或同一用户
+            fs.setPermission(jobDir, getBulkLoadDirPermission(configuration));
+            jobDir = fs.makeQualified(jobDir);
+        } catch (IOException e) {
+            throw DataXException.asDataXException(Hbase11xWriterErrorCode.BULK_LOAD_ERROR,
+                    String.format("创建 HFile 目录[%s]失败, 请检查 stagingDir 配置及权限.", jobDir), e);
+        }
+        configuration.set(Key.BULK_LOAD_JOB_DIR, jobDir.toString());
+        configuration.set(Key.BULK_LOAD_TIMESTAMP, System.currentTimeMillis());
+        LOG.info(String.format("bulkLoad 模式, 本次作业的 HFile 目录为[%s].", jobDir));
+    }
+
+    /**
+     * 所有 task 成功后把生成的 HFile 加载到表中, 每个 HFile 对所在 region 原子可见
+     */
+    public static void bulkLoad(com.alibaba.datax.common.util.Configuration configuration) {
+        String hbaseConfig = configuration.getString(Key.HBASE_CONFIG);
+        String userTable = configuration.getString(Key.TABLE);
+        Path jobDir = new Path(configuration.getString(Key.BULK_LOAD_JOB_DIR));
+        TableName hTableName = TableName.valueOf(userTable);
+        org.apache.hadoop.conf.Configuration hConfiguration = Hbase11xHelper.getHbaseConfiguration(hbaseConfig);
+        org.apache.hadoop.hbase.client.Connection hConnection = Hbase11xHelper.getHbaseConnection(hbaseConfig);
+        org.apache.hadoop.hbase.client.Admin admin = null;
+        org.apache.hadoop.hbase.client.Table hTable = null;
+        RegionLocator regionLocator = null;
+        try {
+            long start = System.currentTimeMillis();
+            admin = hConnection.getAdmin();
+            hTable = hConnection.getTable(hTableName);
+            regionLocator = hConnection.getRegionLocator(hTableName);
+            raiseMaxHFilesPerRegionPerFamily(hConfiguration, jobDir);
+            LOG.info(String.format("HBasWriter begins to bulk load [%s] into table %s .", jobDir, userTable));
+            // 生成 HFile 之后 region 发生分裂时, LoadIncrementalHFiles 会按新的边界切分 HFile
+            new LoadIncrementalHFiles(hConfiguration).doBulkLoad(jobDir, admin, hTable, regionLocator);
+            LOG.info(String.format("bulk load finished, 耗时 %s ms.", System.currentTimeMillis() - start));
+        } catch (Exception e) {
+            throw DataXException.asDataXException(Hbase11xWriterErrorCode.BULK_LOAD_ERROR,
+                    String.format("bulk load [%s] 到表 %s 失败.", jobDir, userTable), e);
+        } finally {
+            if (null != regionLocator) {
+                try {
+                    regionLocator.close();
+                } catch (IOException e) {
+                    LOG.warn("关闭 RegionLocator 失败.", e);
+                }
+            }
+            Hbase11xHelper.closeTable(hTable);
+            Hbase11xHelper.closeAdmin(admin);
+            Hbase11xHelper.closeConnection(hConnection);
+        }
+    }
+
+    public static FsPermission getBulkLoadDirPermission(com.alibaba.datax.common.util.Configuration configuration) {
+        String permission = configuration.getString(Key.BULK_LOAD_DIR_PERMISSION, Constant.DEFAULT_BULK_LOAD_DIR_PERMISSION);
+        return new FsPermission(Short.parseShort(permission, 8));
+    }
+
+    /**
+     * 每个 task 对每个 (region, 列族) 最多生成一个 HFile, 一个列族目录下的文件数即为单个 region 文件数的上限.
+     * LoadIncrementalHFiles 在单个 region 单个列族的文件数超过
+     * hbase.mapreduce.bulkload.max.hfiles.perRegion.perFamily(默认 32) 时拒绝加载, 这里按实际文件数调大该值.
+     */
+    private static void raiseMaxHFilesPerRegionPerFamily(org.apache.hadoop.conf.Configuration hConfiguration,
+                                                         Path jobDir) throws IOException {
+        FileSystem fs = jobDir.getFileSystem(hConfiguration);
+        int maxFiles = 0;
+        for (FileStatus familyDir : fs.listStatus(jobDir)) {
+            if (familyDir.isDirectory()) {
+                maxFiles = Math.max(maxFiles, fs.listStatus(familyDir.getPath()).length);
+            }
+        }
+        int limit = hConfiguration.getInt(MAX_FILES_PER_REGION_PER_FAMILY, 32);
+        if (maxFiles > limit) {
+            LOG.info(String.format("列族目录下最多有 %s 个 HFile, 将 %s 由 %s 调整为 %s.", maxFiles,
+                    MAX_FILES_PER_REGION_PER_FAMILY, limit, maxFiles));
+            hConfiguration.setInt(MAX_FILES_PER_REGION_PER_FAMILY, maxFiles);
+        }
+    }
+
+    /**
+     * 删除本次作业的 HFile 目录, 作业失败时残留的 HFile 一并删除
+     */
+    public static void deleteBulkLoadDir(com.alibaba.datax.common.util.Configuration configuration) {
+        String jobDirStr = configuration.getString(Key.BULK_LOAD_JOB_DIR);
+        if (StringUtils.isBlank(jobDirStr)) {
+            return;
+        }
+        Path jobDir = new Path(jobDirStr);
+        try {
+            FileSystem fs = jobDir.getFileSystem(
+                    Hbase11xHelper.getHbaseConfiguration(configuration.getString(Key.HBASE_CONFIG)));
+            if (fs.exists(jobDir)) {
+                fs.delete(jobDir, true);
+            }
+        } catch (IOException e) {
+            LOG.warn(String.format("删除 HFile 目录[%s]失败, 请手动清理.", jobDir), e);
+        }
+    }
+
     public static void closeConnection(Connection hConnection){
         try {
             if(null != hConnection)
@@ -214,6 +337,28 @@ public class Hbase11xHelper {
         originalConfig.set(Key.WAL_FLAG, walFlag);
         long writeBufferSize = originalConfig.getLong(Key.WRITE_BUFFER_SIZE,Constant.DEFAULT_WRITE_BUFFER_SIZE);
         originalConfig.set(Key.WRITE_BUFFER_SIZE, writeBufferSize);
+
+        Boolean bulkLoad = originalConfig.getBool(Key.BULK_LOAD, false);
+        originalConfig.set(Key.BULK_LOAD, bulkLoad);
+        if (bulkLoad) {
+            originalConfig.getNecessaryValue(Key.STAGING_DIR, Hbase11xWriterErrorCode.REQUIRED_VALUE);
+            long bulkLoadBufferSize = originalConfig.getLong(Key.BULK_LOAD_BUFFER_SIZE, Constant.DEFAULT_BULK_LOAD_BUFFER_SIZE);
+            if (bulkLoadBufferSize <= 0) {
+                throw DataXException.asDataXException(Hbase11xWriterErrorCode.ILLEGAL_VALUE, "bulkLoadBufferSize 需要大于0.");
+            }
+            long maxMemory = Runtime.getRuntime().maxMemory();
+            if (bulkLoadBufferSize > maxMemory / 4) {
+                LOG.warn("bulkLoadBufferSize[{}] 超过了 JVM 最大堆[{}]的 1/4, 每个 channel 各自缓存, "
+                        + "请确保 channel 数 * bulkLoadBufferSize 不超过堆的 1/3, 否则可能 OOM.", bulkLoadBufferSize, maxMemory);
+            }
+            originalConfig.set(Key.BULK_LOAD_BUFFER_SIZE, bulkLoadBufferSize);
+            String dirPermission = originalConfig.getString(Key.BULK_LOAD_DIR_PERMISSION, Constant.DEFAULT_BULK_LOAD_DIR_PERMISSION);
+            if (!dirPermission.matches("[0-7]{3}")) {
+                throw DataXException.asDataXException(Hbase11xWriterErrorCode.ILLEGAL_VALUE,
+                        String.format("bulkLoadDirPermission 需要配置为三位八进制数, 如 770, 您配置的是[%s].", dirPermission));
+            }
+            originalConfig.set(Key.BULK_LOAD_DIR_PERMISSION, dirPermission);
+        }
     }
 
 
@@ -31,11 +31,16 @@ public abstract class HbaseAbstractTask {
     public String encoding;
     public Boolean walFlag;
     public BufferedMutator bufferedMutator;
+    public BulkLoadHFileWriter hfileWriter;
 
 
     public HbaseAbstractTask(com.alibaba.datax.common.util.Configuration configuration) {
         //this.htable = Hbase11xHelper.getTable(configuration);
-        this.bufferedMutator = Hbase11xHelper.getBufferedMutator(configuration);
+        if (configuration.getBool(Key.BULK_LOAD, false)) {
+            this.hfileWriter = BulkLoadHFileWriter.open(configuration);
+        } else {
+            this.bufferedMutator = Hbase11xHelper.getBufferedMutator(configuration);
+        }
         this.columns = configuration.getListConfiguration(Key.COLUMN);
         this.rowkeyColumn = configuration.getListConfiguration(Key.ROWKEY_COLUMN);
         this.versionColumn = configuration.getConfiguration(Key.VERSION_COLUMN);
@@ -57,7 +62,11 @@ public abstract class HbaseAbstractTask {
                 }
                 try {
                     //this.htable.put(put);
-                    this.bufferedMutator.mutate(put);
+                    if (null != this.hfileWriter) {
+                        this.hfileWriter.write(put);
+                    } else {
+                        this.bufferedMutator.mutate(put);
+                    }
                 } catch (IllegalArgumentException e) {
                     if(e.getMessage().equals("No columns to insert") && nullMode.equals(NullModeType.Skip)){
                         LOG.info(String.format("record is empty, 您配置nullMode为[skip],将会忽略这条记录,record[%s]", record.toString()));
@@ -68,11 +77,17 @@ public abstract class HbaseAbstractTask {
                     }
                 }
             }
+            if (null != this.hfileWriter) {
+                this.hfileWriter.finish();
+            }
         }catch (IOException e){
             throw DataXException.asDataXException(Hbase11xWriterErrorCode.PUT_HBASE_ERROR,e);
         }finally {
             //Hbase11xHelper.closeTable(this.htable);
             Hbase11xHelper.closeBufferedMutator(this.bufferedMutator);
+            if (null != this.hfileWriter) {
+                this.hfileWriter.close();
+            }
         }
     }
 
@@ -82,6 +97,9 @@ public abstract class HbaseAbstractTask {
     public void close()  {
         //Hbase11xHelper.closeTable(this);
         Hbase11xHelper.closeBufferedMutator(this.bufferedMutator);
+        if (null != this.hfileWriter) {
+            this.hfileWriter.close();
+        }
     }
 
 
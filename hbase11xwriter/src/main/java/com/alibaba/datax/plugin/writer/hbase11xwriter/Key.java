@@ -50,4 +50,36 @@ public final class Key {
 
     public static  final String WRITE_BUFFER_SIZE = "writeBufferSize";
 
+    /**
+     * 默认为 false, 为 true 时 task 生成 HFile, 由 job 在 post 阶段 bulk load 到表中
+     */
+    public static  final String BULK_LOAD = "bulkLoad";
+
+    /**
+     * bulkLoad 时存放 HFile 的目录, 需要与 HBase 在同一个 HDFS 上
+     */
+    public static  final String STAGING_DIR = "stagingDir";
+
+    /**
+     * bulkLoad 时每个 task 在内存中排序的数据量, 单位字节, 默认 128MB
+     */
+    public static  final String BULK_LOAD_BUFFER_SIZE = "bulkLoadBufferSize";
+
+    /**
+     * bulkLoad 时 task 写出排序结果的本地目录, 默认为 java.io.tmpdir
+     */
+    public static  final String BULK_LOAD_LOCAL_DIR = "bulkLoadLocalDir";
+
+    /**
+     * bulkLoad 时 HFile 目录的权限, 三位八进制数, 默认 770
+     */
+    public static  final String BULK_LOAD_DIR_PERMISSION = "bulkLoadDirPermission";
+
+    /**
+     * 内部使用: 本次作业的 HFile 目录与未指定版本时使用的时间戳
+     */
+    public static  final String BULK_LOAD_JOB_DIR = "bulkLoadJobDir";
+
+    public static  final String BULK_LOAD_TIMESTAMP = "bulkLoadTimestamp";
+
 }
@@ -0,0 +1,175 @@
+package com.alibaba.datax.plugin.writer.hbase11xwriter;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFile;
+import org.apache.hadoop.hbase.io.hfile.HFileScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class BulkLoadHFileWriterTest {
+
+    private static final String FAMILY = "cf";
+
+    private static final byte[] SPLIT_KEY = Bytes.toBytes("row_5");
+
+    // 本地文件系统会在同目录下生成 .crc 校验文件
+    private static final PathFilter VISIBLE = new PathFilter() {
+        @Override
+        public boolean accept(Path path) {
+            return !path.getName().startsWith(".");
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private org.apache.hadoop.conf.Configuration conf;
+
+    private FileSystem fs;
+
+    private Path jobDir;
+
+    private File localDir;
+
+    @Before
+    public void setUp() throws Exception {
+        this.conf = HBaseConfiguration.create();
+        this.fs = FileSystem.getLocal(this.conf);
+        this.jobDir = new Path(this.folder.newFolder("job").getAbsolutePath());
+        this.localDir = this.folder.newFolder("local");
+    }
+
+    @Test
+    public void testMergeRunsIntoOneHFilePerRegion() throws Exception {
+        // 每次写入都溢出一个有序段
+        BulkLoadHFileWriter writer = newWriter(1);
+        for (int i = 9; i >= 0; i--) {
+            writer.write(newPut("row_" + i, "v1"));
+        }
+        writer.write(newPut("row_3", "v2"));
+        writer.write(newPut("row_7", "v2"));
+        Assert.assertEquals(1, this.localDir.listFiles().length);
+        writer.finish();
+        writer.close();
+
+        assertHFiles();
+        Assert.assertEquals(0, this.localDir.listFiles().length);
+    }
+
+    @Test
+    public void testSingleRunWrittenFromMemory() throws Exception {
+        BulkLoadHFileWriter writer = newWriter(Constant.DEFAULT_BULK_LOAD_BUFFER_SIZE);
+        for (int i = 0; i < 10; i++) {
+            writer.write(newPut("row_" + i, "v1"));
+        }
+        writer.write(newPut("row_7", "v2"));
+        writer.write(newPut("row_3", "v2"));
+        writer.finish();
+        Assert.assertEquals(0, this.localDir.listFiles().length);
+        writer.close();
+
+        assertHFiles();
+    }
+
+    @Test
+    public void testEmptyPutRejected() throws Exception {
+        BulkLoadHFileWriter writer = newWriter(1);
+        try {
+            writer.write(new Put(Bytes.toBytes("row_0")));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("No columns to insert", e.getMessage());
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * row_0 ~ row_9 按 SPLIT_KEY 分属两个 region, 每个 region 一个 HFile, row_3 与 row_7 保留最后写入的 v2
+     */
+    private void assertHFiles() throws Exception {
+        Path familyDir = new Path(this.jobDir, FAMILY);
+        Assert.assertEquals(FsPermission.createImmutable((short) 0770), this.fs.getFileStatus(familyDir).getPermission());
+        FileStatus[] files = this.fs.listStatus(familyDir, VISIBLE);
+        Assert.assertEquals(2, files.length);
+
+        Map<String, String> values = new TreeMap<String, String>();
+        int lowerRegionFiles = 0;
+        for (FileStatus file : files) {
+            List<Cell> cells = readHFile(file.getPath());
+            Assert.assertFalse(cells.isEmpty());
+            boolean lowerRegion = Bytes.compareTo(CellUtil.cloneRow(cells.get(0)), SPLIT_KEY) < 0;
+            if (lowerRegion) {
+                lowerRegionFiles++;
+            }
+            byte[] previousRow = null;
+            for (Cell cell : cells) {
+                byte[] row = CellUtil.cloneRow(cell);
+                Assert.assertEquals(lowerRegion, Bytes.compareTo(row, SPLIT_KEY) < 0);
+                if (null != previousRow) {
+                    Assert.assertTrue(Bytes.compareTo(previousRow, row) < 0);
+                }
+                previousRow = row;
+                Assert.assertEquals(1000L, cell.getTimestamp());
+                values.put(Bytes.toString(row), Bytes.toString(CellUtil.cloneValue(cell)));
+            }
+        }
+        Assert.assertEquals(1, lowerRegionFiles);
+        Assert.assertEquals(10, values.size());
+        for (int i = 0; i < 10; i++) {
+            String expected = (i == 3 || i == 7) ? "v2" : "v1";
+            Assert.assertEquals(expected, values.get("row_" + i));
+        }
+    }
+
+    private List<Cell> readHFile(Path path) throws Exception {
+        HFile.Reader reader = HFile.createReader(this.fs, path, new CacheConfig(this.conf), this.conf);
+        try {
+            reader.loadFileInfo();
+            HFileScanner scanner = reader.getScanner(false, false);
+            List<Cell> cells = new ArrayList<Cell>();
+            if (scanner.seekTo()) {
+                do {
+                    cells.add(scanner.getKeyValue());
+                } while (scanner.next());
+            }
+            return cells;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private BulkLoadHFileWriter newWriter(long bufferSize) {
+        Map<String, HColumnDescriptor> families = new HashMap<String, HColumnDescriptor>();
+        families.put(FAMILY, new HColumnDescriptor(FAMILY));
+        return new BulkLoadHFileWriter(this.conf, this.fs, this.jobDir, new FsPermission((short) 0770), 1000L,
+                bufferSize, families, new byte[][]{SPLIT_KEY}, this.localDir);
+    }
+
+    private static Put newPut(String row, String value) {
+        Put put = new Put(Bytes.toBytes(row));
+        put.addColumn(Bytes.toBytes(FAMILY), Bytes.toBytes("q"), Bytes.toBytes(value));
+        return put;
+    }
+}
@@ -23,6 +23,8 @@ public class Constant {
 
     public static String QUERY_COLUMN_TYPE_TEMPLATE = "SELECT %s FROM %s LIMIT 1";
 
+    public static String QUERY_SAMPLE_TEMPLATE = "SELECT %s FROM %s TABLESAMPLE(%s)";
+
     public static String QUERY_SQL_PER_SPLIT = "querySqlPerSplit";
 
 }
@@ -173,6 +173,12 @@ public class HBase20SQLReaderHelper {
         String where = configuration.getString(Key.WHERE);
         boolean hasWhere = StringUtils.isNotBlank(where);
         if (querySql == null || querySql.isEmpty()) {
+            // 配置了采样比例时，根据采样得到的切分列分位点生成切分点
+            Double samplePercent = configuration.getDouble(Key.SAMPLE_PERCENT);
+            if ((splitPoints == null || splitPoints.isEmpty()) && samplePercent != null) {
+                LOG.info("Split according to sampled values of splitColumn...");
+                splitPoints = sampleSplitPoints(adviceNumber, samplePercent);
+            }
             // 如果splitPoints为空，则根据splitKey自动切分，不过这种切分方式无法保证数据均分，且只支持整形和字符型列
             if (splitPoints == null || splitPoints.isEmpty()) {
                 LOG.info("Split accoring min and max value of splitColumn...");
@@ -296,12 +302,12 @@ public class HBase20SQLReaderHelper {
             String splitCondition = null;
             for (int i = 0; i <= splitPoints.size(); i++) {
                 if (i == 0) {
-                    splitCondition = splitKey + " <= " + String.format(symbol, splitPoints.get(i));
+                    splitCondition = splitKey + " <= " + formatSplitPoint(symbol, splitPoints.get(i));
                 } else if (i == splitPoints.size()) {
-                    splitCondition = splitKey + " > " + String.format(symbol, splitPoints.get(i - 1));
+                    splitCondition = splitKey + " > " + formatSplitPoint(symbol, splitPoints.get(i - 1));
                 } else {
-                    splitCondition = splitKey + " > " + String.format(symbol, splitPoints.get(i - 1)) +
-                            " AND " + splitKey + " <= " + String.format(symbol, splitPoints.get(i));
+                    splitCondition = splitKey + " > " + formatSplitPoint(symbol, splitPoints.get(i - 1)) +
+                            " AND " + splitKey + " <= " + formatSplitPoint(symbol, splitPoints.get(i));
                 }
                 splitConditions.add(splitCondition);
             }
@@ -316,6 +322,67 @@ public class HBase20SQLReaderHelper {
 
     }
 
+    /**
+     * 把切分点拼进切分条件，字符串和时间类型的切分点以 '...' 形式出现，其中的单引号需要转义为两个单引号
+     */
+    static String formatSplitPoint(String symbol, Object point) {
+        String value = String.valueOf(point);
+        if (symbol.contains("'")) {
+            value = StringUtils.replace(value, "'", "''");
+        }
+        return String.format(symbol, value);
+    }
+
+    /**
+     * 通过 TABLESAMPLE 采样切分列，按 adviceNumber 取分位点作为切分点，采样值重复时会合并，因此切分数可能少于 adviceNumber
+     */
+    private List<Object> sampleSplitPoints(int adviceNumber, double samplePercent) {
+        if (samplePercent <= 0 || samplePercent > 100) {
+            throw DataXException.asDataXException(HBase20xSQLReaderErrorCode.ILLEGAL_VALUE,
+                    "您配置的采样比例samplePercent为" + samplePercent + "，取值范围应为(0, 100].");
+        }
+        String sampleSQL = String.format(Constant.QUERY_SAMPLE_TEMPLATE, splitKey, fullTableName, samplePercent);
+        String where = configuration.getString(Key.WHERE);
+        if (StringUtils.isNotBlank(where)) {
+            sampleSQL = String.format("%s WHERE (%s AND %s IS NOT NULL)", sampleSQL, where, splitKey);
+        } else {
+            sampleSQL = String.format("%s WHERE %s IS NOT NULL", sampleSQL, splitKey);
+        }
+        sampleSQL = sampleSQL + " ORDER BY " + splitKey;
+        LOG.info("Sample SQL: " + sampleSQL);
+
+        Statement statement = null;
+        ResultSet resultSet = null;
+        List<String> sampleValues = new ArrayList<String>();
+        try {
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery(sampleSQL);
+            while (resultSet.next()) {
+                sampleValues.add(resultSet.getString(1));
+            }
+        } catch (SQLException e) {
+            throw DataXException.asDataXException(HBase20xSQLReaderErrorCode.GET_TABLE_COLUMNTYPE_ERROR,
+                    "采样切分列失败，请检查服务或给定表和切分列是否正常，或者联系HBase管理员进行处理。", e);
+        } finally {
+            closeJdbc(null, statement, resultSet);
+        }
+
+        List<Object> sampledSplitPoints = new ArrayList<Object>();
+        if (sampleValues.isEmpty() || adviceNumber <= 1) {
+            return sampledSplitPoints;
+        }
+        String lastPoint = null;
+        for (int i = 1; i < adviceNumber; i++) {
+            String point = sampleValues.get((int) ((long) i * sampleValues.size() / adviceNumber));
+            if (lastPoint == null || !lastPoint.equals(point)) {
+                sampledSplitPoints.add(point);
+                lastPoint = point;
+            }
+        }
+        LOG.info("Sampled {} rows, got {} split points.", sampleValues.size(), sampledSplitPoints.size());
+        return sampledSplitPoints;
+    }
+
     private Pair<Object, Object> getPkRange(Configuration configuration) {
         String pkRangeSQL = String.format(Constant.QUERY_MIN_MAX_TEMPLATE, splitKey, splitKey, fullTableName);
         String where = configuration.getString(Key.WHERE);
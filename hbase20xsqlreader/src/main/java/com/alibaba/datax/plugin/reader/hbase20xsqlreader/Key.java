@@ -29,6 +29,11 @@ public class Key {
      * 【可选】读取数据时切分点
      */
     public static final String SPLIT_POINT = "splitPoint";
+    /**
+     * 【可选】未配置切分点时，按该百分比对表进行 TABLESAMPLE 采样(基于 Phoenix 统计信息中的 guidepost)，
+     * 根据切分列采样值的分位点生成切分点，避免按最大最小值均分时的数据倾斜
+     */
+    public static final String SAMPLE_PERCENT = "samplePercent";
     /**
      * 【可选】读取数据过滤条件配置
      */
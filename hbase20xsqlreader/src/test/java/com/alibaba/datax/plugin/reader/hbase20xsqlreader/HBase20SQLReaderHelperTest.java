@@ -0,0 +1,20 @@
+package com.alibaba.datax.plugin.reader.hbase20xsqlreader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HBase20SQLReaderHelperTest {
+
+    @Test
+    public void testQuotedSplitPointEscaped() {
+        Assert.assertEquals("'O''Brien'", HBase20SQLReaderHelper.formatSplitPoint("'%s'", "O'Brien"));
+        Assert.assertEquals("'x'' OR ''1''=''1'", HBase20SQLReaderHelper.formatSplitPoint("'%s'", "x' OR '1'='1"));
+        Assert.assertEquals("TO_DATE('2020-01-01')",
+                HBase20SQLReaderHelper.formatSplitPoint("TO_DATE('%s')", "2020-01-01"));
+    }
+
+    @Test
+    public void testNumericSplitPointUnchanged() {
+        Assert.assertEquals("100", HBase20SQLReaderHelper.formatSplitPoint("%s", 100L));
+    }
+}
@@ -0,0 +1,208 @@
+package com.alibaba.datax.plugin.writer.hdfswriter;
+
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+import com.alibaba.datax.common.util.Configuration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 把 writer 端的 column 配置预编译为逐列的类型转换计划, 每个 task 只解析一次字段类型,
+ * 转换结果写入复用的行缓冲区, 避免逐条记录创建 List 以及逐个字段 SupportHiveDataType.valueOf。
+ *
+ * 字段值按 SupportHiveDataType 转换, 转换失败的记录作为脏数据收集。
+ */
+public class ColumnConvertPlan {
+    private final SupportHiveDataType[] types;
+    private final String[] names;
+    private final String[] typeNames;
+    /**
+     * 输出列在源记录中的下标
+     */
+    private final int[] sourceIndexes;
+    private final int sourceColumnCount;
+    private final Object[] row;
+    private final List<Object> rowView;
+    private final StringBuilder lineBuilder = new StringBuilder(256);
+    /**
+     * 最近一次转换的记录实际输出的列数
+     */
+    private int outputLength;
+
+    private ColumnConvertPlan(SupportHiveDataType[] types, String[] names, String[] typeNames,
+                              int[] sourceIndexes, int sourceColumnCount) {
+        this.types = types;
+        this.names = names;
+        this.typeNames = typeNames;
+        this.sourceIndexes = sourceIndexes;
+        this.sourceColumnCount = sourceColumnCount;
+        this.row = new Object[types.length];
+        this.rowView = Arrays.asList(this.row);
+    }
+
+    public static ColumnConvertPlan compile(List<Configuration> columns) {
+        return compile(columns, Collections.<Integer>emptySet());
+    }
+
+    /**
+     * @param excludedIndexes 不写入文件的列下标, 如分区列
+     */
+    public static ColumnConvertPlan compile(List<Configuration> columns, Set<Integer> excludedIndexes) {
+        int size = columns.size() - excludedIndexes.size();
+        SupportHiveDataType[] types = new SupportHiveDataType[size];
+        String[] names = new String[size];
+        String[] typeNames = new String[size];
+        int[] sourceIndexes = new int[size];
+        int i = 0;
+        for (int sourceIndex = 0; sourceIndex < columns.size(); sourceIndex++) {
+            if (excludedIndexes.contains(sourceIndex)) {
+                continue;
+            }
+            sourceIndexes[i] = sourceIndex;
+            names[i] = columns.get(sourceIndex).getString(Key.NAME);
+            typeNames[i] = columns.get(sourceIndex).getString(Key.TYPE);
+            try {
+                types[i] = SupportHiveDataType.valueOf(typeNames[i].toUpperCase());
+            } catch (Exception e) {
+                // 与原有逻辑保持一致, 只有写入非空值时才报错
+                types[i] = null;
+            }
+            i++;
+        }
+        return new ColumnConvertPlan(types, names, typeNames, sourceIndexes, columns.size());
+    }
+
+    /**
+     * 按预编译的类型转换一条记录
+     *
+     * @return 转换后的行, 每次调用复用同一个 List; 脏数据返回 null
+     */
+    public List<Object> convert(Record record, TaskPluginCollector taskPluginCollector) {
+        int recordLength = record.getColumnNumber();
+        if (recordLength > this.sourceColumnCount) {
+            throw DataXException.asDataXException(HdfsWriterErrorCode.ILLEGAL_VALUE,
+                    String.format("源端记录的字段个数[%s]多于writer配置的column个数[%s].",
+                            recordLength, this.sourceColumnCount));
+        }
+        this.outputLength = 0;
+        for (int i = 0; i < this.types.length; i++) {
+            int sourceIndex = this.sourceIndexes[i];
+            if (sourceIndex >= recordLength) {
+                this.row[i] = null;
+                continue;
+            }
+            this.outputLength = i + 1;
+            Column column = record.getColumn(sourceIndex);
+            if (null == column.getRawData()) {
+                // warn: it's all ok if nullFormat is null
+                this.row[i] = null;
+                continue;
+            }
+            if (null == this.types[i]) {
+                throw DataXException.asDataXException(HdfsWriterErrorCode.ILLEGAL_VALUE,
+                        String.format("您的配置文件中的列配置信息有误. 因为DataX 不支持数据库写入这种字段类型. 字段名:[%s], 字段类型:[%s]. 请修改表中该字段的类型或者不同步该字段.",
+                                this.names[i], this.typeNames[i]));
+            }
+            try {
+                this.row[i] = convertColumn(this.types[i], column);
+            } catch (Exception e) {
+                // warn: 此处认为脏数据
+                String message = String.format(
+                        "字段类型转换错误：你目标字段为[%s]类型，实际字段值为[%s].",
+                        this.typeNames[i], column.getRawData().toString());
+                taskPluginCollector.collectDirtyRecord(record, message);
+                return null;
+            }
+        }
+        return this.rowView;
+    }
+
+    /**
+     * 转换一条记录并按分隔符拼接为一行文本, null 输出为空串
+     *
+     * @return 脏数据返回 null
+     */
+    public String convertToLine(Record record, char fieldDelimiter, TaskPluginCollector taskPluginCollector) {
+        List<Object> converted = convert(record, taskPluginCollector);
+        if (null == converted) {
+            return null;
+        }
+        this.lineBuilder.setLength(0);
+        for (int i = 0; i < this.outputLength; i++) {
+            if (i > 0) {
+                this.lineBuilder.append(fieldDelimiter);
+            }
+            if (null != this.row[i]) {
+                this.lineBuilder.append(this.row[i]);
+            }
+        }
+        return this.lineBuilder.toString();
+    }
+
+    /**
+     * 估算最近一次转换的记录未压缩时的大小, 用于按大小滚动文件
+     */
+    public long estimateRowSize() {
+        long size = 0;
+        for (int i = 0; i < this.outputLength; i++) {
+            Object value = this.row[i];
+            if (value instanceof String) {
+                size += ((String) value).length();
+            } else if (null != value) {
+                size += 8;
+            }
+        }
+        return size;
+    }
+
+    private static Object convertColumn(SupportHiveDataType type, Column column) {
+        switch (type) {
+            case TINYINT:
+                if (Column.Type.LONG == column.getType()) {
+                    return (byte) checkRange(column.asLong(), Byte.MIN_VALUE, Byte.MAX_VALUE);
+                }
+                return Byte.valueOf(column.getRawData().toString());
+            case SMALLINT:
+                if (Column.Type.LONG == column.getType()) {
+                    return (short) checkRange(column.asLong(), Short.MIN_VALUE, Short.MAX_VALUE);
+                }
+                return Short.valueOf(column.getRawData().toString());
+            case INT:
+                if (Column.Type.LONG == column.getType()) {
+                    return (int) checkRange(column.asLong(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+                }
+                return Integer.valueOf(column.getRawData().toString());
+            case BIGINT:
+                return column.asLong();
+            case FLOAT:
+                return Float.valueOf(column.getRawData().toString());
+            case DOUBLE:
+                return column.asDouble();
+            case STRING:
+            case VARCHAR:
+            case CHAR:
+                return column.asString();
+            case BOOLEAN:
+                return column.asBoolean();
+            case DATE:
+                return new java.sql.Date(column.asDate().getTime());
+            case TIMESTAMP:
+                return new java.sql.Timestamp(column.asDate().getTime());
+            default:
+                throw DataXException.asDataXException(HdfsWriterErrorCode.ILLEGAL_VALUE,
+                        String.format("DataX 不支持写入这种字段类型:[%s].", type));
+        }
+    }
+
+    private static long checkRange(long value, long min, long max) {
+        if (value < min || value > max) {
+            throw new NumberFormatException(String.format("Value out of range. Value:\"%s\"", value));
+        }
+        return value;
+    }
+}
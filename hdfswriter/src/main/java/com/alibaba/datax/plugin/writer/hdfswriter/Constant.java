@@ -4,4 +4,6 @@ public class Constant {
 
 	public static final String DEFAULT_ENCODING = "UTF-8";
 	public static final String DEFAULT_NULL_FORMAT = "\\N";
+	public static final int DEFAULT_MAX_OPEN_WRITERS = 16;
+	public static final String HIVE_DEFAULT_PARTITION = "__HIVE_DEFAULT_PARTITION__";
 }
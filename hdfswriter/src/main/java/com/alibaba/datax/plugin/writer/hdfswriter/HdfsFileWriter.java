@@ -0,0 +1,18 @@
+package com.alibaba.datax.plugin.writer.hdfswriter;
+
+import com.alibaba.datax.common.element.Record;
+
+import java.io.IOException;
+
+/**
+ * 单个HDFS文件的写入器, 由 {@link HdfsHelper} 按文件类型创建
+ */
+public interface HdfsFileWriter {
+
+    /**
+     * @return 写入数据量的估算值(字节, 未压缩), 脏数据返回 -1
+     */
+    long write(Record record) throws IOException;
+
+    void close() throws IOException;
+}
@@ -1,6 +1,5 @@
 package com.alibaba.datax.plugin.writer.hdfswriter;
 
-import com.alibaba.datax.common.element.Column;
 import com.alibaba.datax.common.element.Record;
 import com.alibaba.datax.common.exception.DataXException;
 import com.alibaba.datax.common.plugin.RecordReceiver;
@@ -13,25 +12,27 @@ import com.alibaba.fastjson.JSONObject;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
-import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.hadoop.fs.*;
-import org.apache.hadoop.hive.ql.io.orc.OrcOutputFormat;
+import org.apache.hadoop.hive.ql.io.orc.OrcFile;
 import org.apache.hadoop.hive.ql.io.orc.OrcSerde;
 //import org.apache.hadoop.hive.ql.io.parquet.MapredParquetOutputFormat;
 //import org.apache.hadoop.hive.ql.io.parquet.serde.ParquetHiveSerDe;
-import org.apache.hadoop.hive.ql.io.parquet.MapredParquetOutputFormat;
-import org.apache.hadoop.hive.ql.io.parquet.serde.ParquetHiveSerDe;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.io.ObjectWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.mapred.*;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import parquet.column.ParquetProperties.WriterVersion;
+import parquet.hadoop.ParquetOutputFormat;
+import parquet.hadoop.ParquetWriter;
+import parquet.hadoop.metadata.CompressionCodecName;
+import parquet.schema.MessageType;
+import parquet.schema.MessageTypeParser;
 import parquet.schema.OriginalType;
 import parquet.schema.PrimitiveType;
 import parquet.schema.Types;
@@ -161,6 +162,35 @@ public  class HdfsHelper {
         return files;
     }
 
+    /**
+     * 递归获取目录下的文件列表, 可按文件名前缀fileName__ 过滤
+     * @param dir
+     * @param fileName 为null时不过滤
+     * @return 文件全路径
+     */
+    public List<Path> hdfsDirListRecursive(String dir, String fileName){
+        Path path = new Path(dir);
+        List<Path> files = new ArrayList<Path>();
+        PathFilter pathFilter = null;
+        try {
+            if (null != fileName) {
+                pathFilter = new GlobFilter(fileName + "__*");
+            }
+            RemoteIterator<LocatedFileStatus> iterator = fileSystem.listFiles(path, true);
+            while (iterator.hasNext()) {
+                Path file = iterator.next().getPath();
+                if (null == pathFilter || pathFilter.accept(file)) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            String message = String.format("递归获取目录[%s]文件列表时发生网络IO异常,请检查您的网络是否正常！", dir);
+            LOG.error(message);
+            throw DataXException.asDataXException(HdfsWriterErrorCode.CONNECT_HDFS_IO_ERROR, e);
+        }
+        return files;
+    }
+
     public boolean isPathexists(String filePath) {
         Path path = new Path(filePath);
         boolean exist = false;
@@ -236,6 +266,10 @@ public  class HdfsHelper {
                     boolean renameTag = false;
                     long fileLen = fileSystem.getFileStatus(srcFilePah).getLen();
                     if(fileLen>0){
+                        //分区写入时目标分区目录可能不存在
+                        if(!fileSystem.exists(dstFilePah.getParent())){
+                            fileSystem.mkdirs(dstFilePah.getParent());
+                        }
                         renameTag = fileSystem.rename(srcFilePah,dstFilePah);
                         if(!renameTag){
                             String message = String.format("重命名文件[%s]失败,请检查您的网络是否正常！", srcFile);
@@ -284,16 +318,70 @@ public  class HdfsHelper {
     }
 
     /**
-     * 写textfile类型文件
+     * 按fileType写文件, 配置了滚动或分区时一个task会写出多个文件, 见 {@link RollingFileWriter}
      * @param lineReceiver
      * @param config
      * @param fileName
      * @param taskPluginCollector
      */
-    public void textFileStartWrite(RecordReceiver lineReceiver, Configuration config, String fileName,
-                                   TaskPluginCollector taskPluginCollector){
-        char fieldDelimiter = config.getChar(Key.FIELD_DELIMITER);
-        List<Configuration>  columns = config.getListConfiguration(Key.COLUMN);
+    public void fileStartWrite(RecordReceiver lineReceiver, Configuration config, String fileName,
+                               TaskPluginCollector taskPluginCollector){
+        try {
+            RollingFileWriter writer = new RollingFileWriter(this, config, fileName, taskPluginCollector);
+            boolean closed = false;
+            try {
+                Record record = null;
+                while ((record = lineReceiver.getFromReader()) != null) {
+                    writer.write(record);
+                }
+                closed = true;
+                writer.close();
+            } finally {
+                if (!closed) {
+                    // 写入失败时也要关闭已打开的文件, 关闭的异常不能覆盖写入的异常
+                    try {
+                        writer.close();
+                    } catch (IOException closeException) {
+                        LOG.warn(String.format("关闭文件[%s]失败: %s", fileName, closeException.getMessage()));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            String message = String.format("写文件文件[%s]时发生IO异常,请检查您的网络是否正常！", fileName);
+            LOG.error(message);
+            Path path = new Path(fileName);
+            deleteDir(path.getParent());
+            throw DataXException.asDataXException(HdfsWriterErrorCode.Write_FILE_IO_ERROR, e);
+        }
+    }
+
+    /**
+     * 按fileType打开一个文件写入器
+     * @param fileType TEXT, ORC, PARQUET
+     * @param config
+     * @param columns 写入文件的列, 不含分区列
+     * @param convertPlan
+     * @param fileName
+     * @param taskPluginCollector
+     */
+    public HdfsFileWriter openFileWriter(String fileType, Configuration config, List<Configuration> columns,
+                                         ColumnConvertPlan convertPlan, String fileName,
+                                         TaskPluginCollector taskPluginCollector) throws IOException {
+        if ("TEXT".equalsIgnoreCase(fileType)) {
+            return openTextFileWriter(config, convertPlan, fileName, taskPluginCollector);
+        } else if ("ORC".equalsIgnoreCase(fileType)) {
+            return openOrcFileWriter(config, columns, convertPlan, fileName, taskPluginCollector);
+        } else if ("PARQUET".equalsIgnoreCase(fileType)) {
+            return openParquetFileWriter(config, columns, convertPlan, fileName, taskPluginCollector);
+        }
+        throw DataXException.asDataXException(HdfsWriterErrorCode.ILLEGAL_VALUE,
+                String.format("HdfsWriter插件目前只支持ORC、TEXT、Parquet三种格式的文件, 不支持[%s]", fileType));
+    }
+
+    private HdfsFileWriter openTextFileWriter(Configuration config, final ColumnConvertPlan convertPlan,
+                                              String fileName, final TaskPluginCollector taskPluginCollector)
+            throws IOException {
+        final char fieldDelimiter = config.getChar(Key.FIELD_DELIMITER);
         String compress = config.getString(Key.COMPRESS,null);
 
         SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMddHHmm");
@@ -310,37 +398,26 @@ public  class HdfsHelper {
                 outFormat.setOutputCompressorClass(conf, codecClass);
             }
         }
-        try {
-            RecordWriter writer = outFormat.getRecordWriter(fileSystem, conf, outputPath.toString(), Reporter.NULL);
-            Record record = null;
-            while ((record = lineReceiver.getFromReader()) != null) {
-                MutablePair<Text, Boolean> transportResult = transportOneRecord(record, fieldDelimiter, columns, taskPluginCollector);
-                if (!transportResult.getRight()) {
-                    writer.write(NullWritable.get(),transportResult.getLeft());
+        final RecordWriter writer = outFormat.getRecordWriter(fileSystem, conf, outputPath.toString(), Reporter.NULL);
+        return new HdfsFileWriter() {
+            private final Text line = new Text();
+
+            @Override
+            public long write(Record record) throws IOException {
+                String convertedLine = convertPlan.convertToLine(record, fieldDelimiter, taskPluginCollector);
+                if (null == convertedLine) {
+                    return -1;
                 }
+                line.set(convertedLine);
+                writer.write(NullWritable.get(), line);
+                return line.getLength() + 1;
             }
-            writer.close(Reporter.NULL);
-        } catch (Exception e) {
-            String message = String.format("写文件文件[%s]时发生IO异常,请检查您的网络是否正常！", fileName);
-            LOG.error(message);
-            Path path = new Path(fileName);
-            deleteDir(path.getParent());
-            throw DataXException.asDataXException(HdfsWriterErrorCode.Write_FILE_IO_ERROR, e);
-        }
-    }
 
-    public static MutablePair<Text, Boolean> transportOneRecord(
-            Record record, char fieldDelimiter, List<Configuration> columnsConfiguration, TaskPluginCollector taskPluginCollector) {
-        MutablePair<List<Object>, Boolean> transportResultList =  transportOneRecord(record,columnsConfiguration,taskPluginCollector);
-        //保存<转换后的数据,是否是脏数据>
-        MutablePair<Text, Boolean> transportResult = new MutablePair<Text, Boolean>();
-        transportResult.setRight(false);
-        if(null != transportResultList){
-            Text recordResult = new Text(StringUtils.join(transportResultList.getLeft(), fieldDelimiter));
-            transportResult.setRight(transportResultList.getRight());
-            transportResult.setLeft(recordResult);
-        }
-        return transportResult;
+            @Override
+            public void close() throws IOException {
+                writer.close(Reporter.NULL);
+            }
+        };
     }
 
     public Class<? extends CompressionCodec>  getCompressCodec(String compress){
@@ -364,48 +441,40 @@ public  class HdfsHelper {
         return codecClass;
     }
 
-    /**
-     * 写orcfile类型文件
-     * @param lineReceiver
-     * @param config
-     * @param fileName
-     * @param taskPluginCollector
-     */
-    public void orcFileStartWrite(RecordReceiver lineReceiver, Configuration config, String fileName,
-                                  TaskPluginCollector taskPluginCollector){
-        List<Configuration>  columns = config.getListConfiguration(Key.COLUMN);
+    private HdfsFileWriter openOrcFileWriter(Configuration config, List<Configuration> columns,
+                                             final ColumnConvertPlan convertPlan, String fileName,
+                                             final TaskPluginCollector taskPluginCollector) throws IOException {
         String compress = config.getString(Key.COMPRESS, null);
         List<String> columnNames = getColumnNames(columns);
         List<ObjectInspector> columnTypeInspectors = getColumnTypeInspectors(columns);
         StructObjectInspector inspector = (StructObjectInspector)ObjectInspectorFactory
                 .getStandardStructObjectInspector(columnNames, columnTypeInspectors);
 
-        OrcSerde orcSerde = new OrcSerde();
-
-        FileOutputFormat outFormat = new OrcOutputFormat();
         if(!"NONE".equalsIgnoreCase(compress) && null != compress ) {
             Class<? extends CompressionCodec> codecClass = getCompressCodec(compress);
             if (null != codecClass) {
-                outFormat.setOutputCompressorClass(conf, codecClass);
+                FileOutputFormat.setOutputCompressorClass(conf, codecClass);
             }
         }
-        try {
-            RecordWriter writer = outFormat.getRecordWriter(fileSystem, conf, fileName, Reporter.NULL);
-            Record record = null;
-            while ((record = lineReceiver.getFromReader()) != null) {
-                MutablePair<List<Object>, Boolean> transportResult =  transportOneRecord(record,columns,taskPluginCollector);
-                if (!transportResult.getRight()) {
-                    writer.write(NullWritable.get(), orcSerde.serialize(transportResult.getLeft(), inspector));
+        // 直接使用ORC Writer按预编译的类型写入, 不再经过OrcSerde逐行包装
+        final org.apache.hadoop.hive.ql.io.orc.Writer writer = OrcFile.createWriter(new Path(fileName),
+                OrcFile.writerOptions(conf).fileSystem(fileSystem).inspector(inspector));
+        return new HdfsFileWriter() {
+            @Override
+            public long write(Record record) throws IOException {
+                List<Object> row = convertPlan.convert(record, taskPluginCollector);
+                if (null == row) {
+                    return -1;
                 }
+                writer.addRow(row);
+                return convertPlan.estimateRowSize();
             }
-            writer.close(Reporter.NULL);
-        } catch (Exception e) {
-            String message = String.format("写文件文件[%s]时发生IO异常,请检查您的网络是否正常！", fileName);
-            LOG.error(message);
-            Path path = new Path(fileName);
-            deleteDir(path.getParent());
-            throw DataXException.asDataXException(HdfsWriterErrorCode.Write_FILE_IO_ERROR, e);
-        }
+
+            @Override
+            public void close() throws IOException {
+                writer.close();
+            }
+        };
     }
 
     public List<String> getColumnNames(List<Configuration> columns){
@@ -489,87 +558,6 @@ public  class HdfsHelper {
         return orcSerde;
     }
 
-    public static MutablePair<List<Object>, Boolean> transportOneRecord(
-            Record record,List<Configuration> columnsConfiguration,
-            TaskPluginCollector taskPluginCollector){
-
-        MutablePair<List<Object>, Boolean> transportResult = new MutablePair<List<Object>, Boolean>();
-        transportResult.setRight(false);
-        List<Object> recordList = Lists.newArrayList();
-        int recordLength = record.getColumnNumber();
-        if (0 != recordLength) {
-            Column column;
-            for (int i = 0; i < recordLength; i++) {
-                column = record.getColumn(i);
-                //todo as method
-                if (null != column.getRawData()) {
-                    String rowData = column.getRawData().toString();
-                    SupportHiveDataType columnType = SupportHiveDataType.valueOf(
-                            columnsConfiguration.get(i).getString(Key.TYPE).toUpperCase());
-                    //根据writer端类型配置做类型转换
-                    try {
-                        switch (columnType) {
-                            case TINYINT:
-                                recordList.add(Byte.valueOf(rowData));
-                                break;
-                            case SMALLINT:
-                                recordList.add(Short.valueOf(rowData));
-                                break;
-                            case INT:
-                                recordList.add(Integer.valueOf(rowData));
-                                break;
-                            case BIGINT:
-                                recordList.add(column.asLong());
-                                break;
-                            case FLOAT:
-                                recordList.add(Float.valueOf(rowData));
-                                break;
-                            case DOUBLE:
-                                recordList.add(column.asDouble());
-                                break;
-                            case STRING:
-                            case VARCHAR:
-                            case CHAR:
-                                recordList.add(column.asString());
-                                break;
-                            case BOOLEAN:
-                                recordList.add(column.asBoolean());
-                                break;
-                            case DATE:
-                                recordList.add(new java.sql.Date(column.asDate().getTime()));
-                                break;
-                            case TIMESTAMP:
-                                recordList.add(new java.sql.Timestamp(column.asDate().getTime()));
-                                break;
-                            default:
-                                throw DataXException
-                                        .asDataXException(
-                                                HdfsWriterErrorCode.ILLEGAL_VALUE,
-                                                String.format(
-                                                        "您的配置文件中的列配置信息有误. 因为DataX 不支持数据库写入这种字段类型. 字段名:[%s], 字段类型:[%d]. 请修改表中该字段的类型或者不同步该字段.",
-                                                        columnsConfiguration.get(i).getString(Key.NAME),
-                                                        columnsConfiguration.get(i).getString(Key.TYPE)));
-                        }
-                    } catch (Exception e) {
-                        // warn: 此处认为脏数据
-                        String message = String.format(
-                                "字段类型转换错误：你目标字段为[%s]类型，实际字段值为[%s].",
-                                columnsConfiguration.get(i).getString(Key.TYPE), column.getRawData().toString());
-                        taskPluginCollector.collectDirtyRecord(record, message);
-                        transportResult.setRight(true);
-                        break;
-                    }
-                }else {
-                    // warn: it's all ok if nullFormat is null
-                    recordList.add(null);
-                }
-            }
-        }
-        transportResult.setLeft(recordList);
-        return transportResult;
-    }
-
-
     public static String generateParquetSchemaFromColumnAndType(List<Configuration> columns) {
         Map<String, ColumnTypeUtil.DecimalInfo> decimalColInfo = new HashMap<>(16);
         ColumnTypeUtil.DecimalInfo PARQUET_DEFAULT_DECIMAL_INFO = new ColumnTypeUtil.DecimalInfo(10, 2);
@@ -633,52 +621,44 @@ public  class HdfsHelper {
     }
 
 
-    /**
-     * 写parquet类型文件
-     *
-     * @param lineReceiver
-     * @param config
-     * @param fileName
-     * @param taskPluginCollector
-     */
-    public void parquetFileStartWrite(RecordReceiver lineReceiver, Configuration config, String fileName, TaskPluginCollector taskPluginCollector) {
-        List<Configuration> columns = config.getListConfiguration(Key.COLUMN);
+    private HdfsFileWriter openParquetFileWriter(Configuration config, List<Configuration> columns,
+                                                 final ColumnConvertPlan convertPlan, String fileName,
+                                                 final TaskPluginCollector taskPluginCollector) throws IOException {
         String compress = config.getString(Key.COMPRESS, null);
-        List<String> columnNames = getColumnNames(columns);
-        List<ObjectInspector> columnTypeInspectors = getColumnTypeInspectors(columns);
-        StructObjectInspector inspector = (StructObjectInspector) ObjectInspectorFactory
-                .getStandardStructObjectInspector(columnNames, columnTypeInspectors);
-
-        ParquetHiveSerDe parquetHiveSerDe = new ParquetHiveSerDe();
-
-        MapredParquetOutputFormat outFormat = new MapredParquetOutputFormat();
+        CompressionCodecName codecName = CompressionCodecName.UNCOMPRESSED;
         if (!"NONE".equalsIgnoreCase(compress) && null != compress) {
             Class<? extends CompressionCodec> codecClass = getCompressCodec(compress);
             if (null != codecClass) {
-                outFormat.setOutputCompressorClass(conf, codecClass);
+                codecName = CompressionCodecName.fromCompressionCodec(codecClass);
             }
         }
-        try {
-            Properties colProperties = new Properties();
-            colProperties.setProperty("columns", String.join(",", columnNames));
-            List<String> colType = Lists.newArrayList();
-            columns.forEach(c -> colType.add(c.getString(Key.TYPE)));
-            colProperties.setProperty("columns.types", String.join(",", colType));
-            RecordWriter writer = (RecordWriter) outFormat.getHiveRecordWriter(conf, new Path(fileName), ObjectWritable.class, true, colProperties, Reporter.NULL);
-            Record record = null;
-            while ((record = lineReceiver.getFromReader()) != null) {
-                MutablePair<List<Object>, Boolean> transportResult = transportOneRecord(record, columns, taskPluginCollector);
-                if (!transportResult.getRight()) {
-                    writer.write(null, parquetHiveSerDe.serialize(transportResult.getLeft(), inspector));
+        // 与 Hive 建表时的 Parquet schema 一致; 直接按预编译的类型写入, 不再经过 ParquetHiveSerDe 逐行序列化
+        MessageType schema = MessageTypeParser.parseMessageType(generateParquetSchemaFromColumnAndType(columns));
+        final ParquetWriter<List<Object>> writer = new ParquetWriter<List<Object>>(new Path(fileName),
+                new ParquetRowWriteSupport(schema), codecName,
+                conf.getInt(ParquetOutputFormat.BLOCK_SIZE, ParquetWriter.DEFAULT_BLOCK_SIZE),
+                conf.getInt(ParquetOutputFormat.PAGE_SIZE, ParquetWriter.DEFAULT_PAGE_SIZE),
+                conf.getInt(ParquetOutputFormat.DICTIONARY_PAGE_SIZE, ParquetWriter.DEFAULT_PAGE_SIZE),
+                conf.getBoolean(ParquetOutputFormat.ENABLE_DICTIONARY, ParquetWriter.DEFAULT_IS_DICTIONARY_ENABLED),
+                false,
+                WriterVersion.fromString(conf.get(ParquetOutputFormat.WRITER_VERSION,
+                        WriterVersion.PARQUET_1_0.toString())),
+                conf);
+        return new HdfsFileWriter() {
+            @Override
+            public long write(Record record) throws IOException {
+                List<Object> row = convertPlan.convert(record, taskPluginCollector);
+                if (null == row) {
+                    return -1;
                 }
+                writer.write(row);
+                return convertPlan.estimateRowSize();
             }
-            writer.close(Reporter.NULL);
-        } catch (Exception e) {
-            String message = String.format("写文件文件[%s]时发生IO异常,请检查您的网络是否正常！", fileName);
-            LOG.error(message);
-            Path path = new Path(fileName);
-            deleteDir(path.getParent());
-            throw DataXException.asDataXException(HdfsWriterErrorCode.Write_FILE_IO_ERROR, e);
-        }
+
+            @Override
+            public void close() throws IOException {
+                writer.close();
+            }
+        };
     }
 }
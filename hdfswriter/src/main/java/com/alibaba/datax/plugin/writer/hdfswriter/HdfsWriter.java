@@ -33,8 +33,14 @@ public class HdfsWriter extends Writer {
         private String fieldDelimiter;
         private String compress;
         private String encoding;
-        private HashSet<String> tmpFiles = new HashSet<String>();//临时文件全路径
-        private HashSet<String> endFiles = new HashSet<String>();//最终文件全路径
+        //临时文件与最终文件按相同顺序一一对应
+        private HashSet<String> tmpFiles = new LinkedHashSet<String>();//临时文件全路径
+        private HashSet<String> endFiles = new LinkedHashSet<String>();//最终文件全路径
+        private String tmpStorePath;
+        private String endStorePath;
+        //开启滚动或分区写入时, task写出的文件在post阶段从临时目录中获取
+        private boolean dynamicOutput;
+        private List<String> partitionBy;
 
         private HdfsHelper hdfsHelper = null;
 
@@ -80,6 +86,8 @@ public class HdfsWriter extends Writer {
                     eachColumnConf.getNecessaryValue(Key.TYPE, HdfsWriterErrorCode.COLUMN_REQUIRED_VALUE);
                 }
             }
+            // 滚动与分区配置校验
+            this.validateRollingParameter();
             // 写入模式校验
             this.writeMode = this.writerSliceConfig.getNecessaryValue(Key.WRITE_MODE, HdfsWriterErrorCode.REQUIRED_VALUE);
             writeMode = writeMode.toLowerCase().trim();
@@ -159,6 +167,32 @@ public class HdfsWriter extends Writer {
             }
         }
 
+        private void validateRollingParameter() {
+            for (String key : Arrays.asList(Key.MAX_FILE_SIZE, Key.MAX_FILE_ROWS, Key.ROLL_INTERVAL)) {
+                Long value = this.writerSliceConfig.getLong(key, 0L);
+                if (value < 0) {
+                    throw DataXException.asDataXException(HdfsWriterErrorCode.ILLEGAL_VALUE,
+                            String.format("您配置的[%s]值为[%s], 不能为负数.", key, value));
+                }
+            }
+            Integer maxOpenWriters = this.writerSliceConfig.getInt(Key.MAX_OPEN_WRITERS,
+                    com.alibaba.datax.plugin.writer.hdfswriter.Constant.DEFAULT_MAX_OPEN_WRITERS);
+            if (maxOpenWriters < 1) {
+                throw DataXException.asDataXException(HdfsWriterErrorCode.ILLEGAL_VALUE,
+                        String.format("您配置的maxOpenWriters值为[%s], 至少为1.", maxOpenWriters));
+            }
+            this.partitionBy = RollingFileWriter.getPartitionBy(this.writerSliceConfig);
+            Set<Integer> partitionIndexes = new HashSet<Integer>();
+            for (String partitionColumn : this.partitionBy) {
+                partitionIndexes.add(RollingFileWriter.indexOfColumn(this.columns, partitionColumn));
+            }
+            if (!partitionIndexes.isEmpty() && partitionIndexes.size() >= this.columns.size()) {
+                throw DataXException.asDataXException(HdfsWriterErrorCode.ILLEGAL_VALUE,
+                        "您配置的partitionBy包含了全部column, 至少需要保留一列写入文件.");
+            }
+            this.dynamicOutput = RollingFileWriter.isDynamicOutput(this.writerSliceConfig);
+        }
+
         @Override
         public void prepare() {
             //若路径已经存在，检查path是否是目录
@@ -169,7 +203,14 @@ public class HdfsWriter extends Writer {
                                     path));
                 }
                 //根据writeMode对目录下文件进行处理
-                Path[] existFilePaths = hdfsHelper.hdfsDirList(path,fileName);
+                Path[] existFilePaths;
+                if (this.partitionBy.isEmpty()) {
+                    existFilePaths = hdfsHelper.hdfsDirList(path,fileName);
+                } else {
+                    //分区写入时文件位于分区子目录下
+                    List<Path> partitionFiles = hdfsHelper.hdfsDirListRecursive(path, fileName);
+                    existFilePaths = partitionFiles.toArray(new Path[partitionFiles.size()]);
+                }
                 boolean isExistFile = false;
                 if(existFilePaths.length > 0){
                     isExistFile = true;
@@ -205,7 +246,33 @@ public class HdfsWriter extends Writer {
 
         @Override
         public void post() {
+            if (this.dynamicOutput) {
+                this.collectDynamicOutputFiles();
+                if (this.tmpFiles.isEmpty()) {
+                    hdfsHelper.deleteDir(new Path(this.tmpStorePath));
+                    return;
+                }
+            }
             hdfsHelper.renameFile(tmpFiles, endFiles);
+            if (this.dynamicOutput) {
+                //分区写入时临时目录下可能还有其他分区子目录
+                hdfsHelper.deleteDir(new Path(this.tmpStorePath));
+            }
+        }
+
+        /**
+         * 滚动或分区写入时task写出的文件数不确定, 从临时目录中获取全部文件并映射到目标目录的相同相对路径
+         */
+        private void collectDynamicOutputFiles() {
+            if (!hdfsHelper.isPathexists(this.tmpStorePath)) {
+                return;
+            }
+            for (Path tmpFile : hdfsHelper.hdfsDirListRecursive(this.tmpStorePath, null)) {
+                String tmpFilePath = tmpFile.toUri().getPath();
+                String relativePath = tmpFilePath.substring(this.tmpStorePath.length());
+                this.tmpFiles.add(tmpFile.toString());
+                this.endFiles.add(String.format("%s%s%s", defaultFS, this.endStorePath, relativePath));
+            }
         }
 
         @Override
@@ -232,6 +299,8 @@ public class HdfsWriter extends Writer {
             //最终存放路径
             String endStorePath = buildFilePath();
             this.path = endStorePath;
+            this.tmpStorePath = storePath;
+            this.endStorePath = endStorePath;
             for (int i = 0; i < mandatoryNumber; i++) {
                 // handle same file name
 
@@ -251,16 +320,18 @@ public class HdfsWriter extends Writer {
                 }
                 allFiles.add(endFullFileName);
 
-                //设置临时文件全路径和最终文件全路径
-                if("GZIP".equalsIgnoreCase(this.compress)){
-                    this.tmpFiles.add(fullFileName + ".gz");
-                    this.endFiles.add(endFullFileName + ".gz");
-                }else if("BZIP2".equalsIgnoreCase(compress)){
-                    this.tmpFiles.add(fullFileName + ".bz2");
-                    this.endFiles.add(endFullFileName + ".bz2");
-                }else{
-                    this.tmpFiles.add(fullFileName);
-                    this.endFiles.add(endFullFileName);
+                //设置临时文件全路径和最终文件全路径, 滚动或分区写入时在post阶段从临时目录获取
+                if(!this.dynamicOutput){
+                    if("GZIP".equalsIgnoreCase(this.compress)){
+                        this.tmpFiles.add(fullFileName + ".gz");
+                        this.endFiles.add(endFullFileName + ".gz");
+                    }else if("BZIP2".equalsIgnoreCase(compress)){
+                        this.tmpFiles.add(fullFileName + ".bz2");
+                        this.endFiles.add(endFullFileName + ".bz2");
+                    }else{
+                        this.tmpFiles.add(fullFileName);
+                        this.endFiles.add(endFullFileName);
+                    }
                 }
 
                 splitedTaskConfig
@@ -391,7 +462,6 @@ public class HdfsWriter extends Writer {
         private Configuration writerSliceConfig;
 
         private String defaultFS;
-        private String fileType;
         private String fileName;
 
         private HdfsHelper hdfsHelper = null;
@@ -401,7 +471,6 @@ public class HdfsWriter extends Writer {
             this.writerSliceConfig = this.getPluginJobConf();
 
             this.defaultFS = this.writerSliceConfig.getString(Key.DEFAULT_FS);
-            this.fileType = this.writerSliceConfig.getString(Key.FILE_TYPE);
             //得当的已经是绝对路径，eg：hdfs://10.101.204.12:9000/user/hive/warehouse/writer.db/text/test.textfile
             this.fileName = this.writerSliceConfig.getString(Key.FILE_NAME);
 
@@ -418,19 +487,9 @@ public class HdfsWriter extends Writer {
         public void startWrite(RecordReceiver lineReceiver) {
             LOG.info("begin do write...");
             LOG.info(String.format("write to file : [%s]", this.fileName));
-            if(fileType.equalsIgnoreCase("TEXT")){
-                //写TEXT FILE
-                hdfsHelper.textFileStartWrite(lineReceiver,this.writerSliceConfig, this.fileName,
-                        this.getTaskPluginCollector());
-            }else if(fileType.equalsIgnoreCase("ORC")){
-                //写ORC FILE
-                hdfsHelper.orcFileStartWrite(lineReceiver,this.writerSliceConfig, this.fileName,
-                        this.getTaskPluginCollector());
-            }else if(fileType.equalsIgnoreCase("PARQUET")){
-                //写PARQUET FILE
-                hdfsHelper.parquetFileStartWrite(lineReceiver,this.writerSliceConfig, this.fileName,
-                        this.getTaskPluginCollector());
-            }
+            //按fileType写TEXT、ORC、PARQUET FILE
+            hdfsHelper.fileStartWrite(lineReceiver,this.writerSliceConfig, this.fileName,
+                    this.getTaskPluginCollector());
             LOG.info("end do write");
         }
 
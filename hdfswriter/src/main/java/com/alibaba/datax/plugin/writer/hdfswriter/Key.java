@@ -46,4 +46,15 @@ public class Key {
 
     public static final String PARQUET_SCHEMA = "parquetSchema";
     public static final String PARQUET_MERGE_RESULT = "parquetMergeResult";
+
+    // 单个文件写入的数据量(字节, 未压缩估算值)达到该值时滚动生成新文件, 默认不滚动
+    public static final String MAX_FILE_SIZE = "maxFileSize";
+    // 单个文件写入的行数达到该值时滚动生成新文件, 默认不滚动
+    public static final String MAX_FILE_ROWS = "maxFileRows";
+    // 单个文件打开超过该时间(秒)后滚动生成新文件, 默认不滚动
+    public static final String ROLL_INTERVAL = "rollInterval";
+    // 按列值写入 col=value/ 分区目录, 分区列不写入文件
+    public static final String PARTITION_BY = "partitionBy";
+    // 分区写入时每个task同时打开的文件数上限
+    public static final String MAX_OPEN_WRITERS = "maxOpenWriters";
 }
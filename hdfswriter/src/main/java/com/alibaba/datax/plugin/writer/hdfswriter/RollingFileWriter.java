@@ -0,0 +1,212 @@
+package com.alibaba.datax.plugin.writer.hdfswriter;
+
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一个task内的文件写入调度:
+ * 1. 按 maxFileSize / maxFileRows / rollInterval 滚动生成新文件;
+ * 2. 配置 partitionBy 时按分区列的值把记录写入 col=value/ 子目录, 每个分区一个打开的文件,
+ *    打开的文件数超过 maxOpenWriters 时关闭最久未写入的文件。
+ *
+ * 未配置滚动和分区时只写一个文件, 文件名即split时分配的文件名, 与原有行为一致。
+ * 所有文件都写在task的临时目录下, 由Job在post阶段统一rename到目标目录。
+ */
+public class RollingFileWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(RollingFileWriter.class);
+
+    private final HdfsHelper hdfsHelper;
+    private final String fileType;
+    private final Configuration config;
+    private final List<Configuration> fileColumns;
+    private final ColumnConvertPlan convertPlan;
+    private final TaskPluginCollector taskPluginCollector;
+
+    private final String baseDir;
+    private final String baseFileName;
+    private final boolean dynamicOutput;
+    private final long maxFileSize;
+    private final long maxFileRows;
+    private final long rollIntervalMillis;
+    private final int maxOpenWriters;
+    private final List<String> partitionNames;
+    private final int[] partitionIndexes;
+
+    /**
+     * 按最近写入顺序排列, 用于淘汰最久未写入的文件
+     */
+    private final LinkedHashMap<String, OpenFile> openFiles = new LinkedHashMap<String, OpenFile>(16, 0.75f, true);
+    private int fileSequence = 0;
+
+    public RollingFileWriter(HdfsHelper hdfsHelper, Configuration config, String fileName,
+                             TaskPluginCollector taskPluginCollector) throws IOException {
+        this.hdfsHelper = hdfsHelper;
+        this.config = config;
+        this.fileType = config.getString(Key.FILE_TYPE).toUpperCase();
+        this.taskPluginCollector = taskPluginCollector;
+
+        Path basePath = new Path(fileName);
+        this.baseDir = basePath.getParent().toString();
+        this.baseFileName = basePath.getName();
+
+        this.maxFileSize = config.getLong(Key.MAX_FILE_SIZE, 0L);
+        this.maxFileRows = config.getLong(Key.MAX_FILE_ROWS, 0L);
+        this.rollIntervalMillis = config.getLong(Key.ROLL_INTERVAL, 0L) * 1000L;
+        this.maxOpenWriters = config.getInt(Key.MAX_OPEN_WRITERS, Constant.DEFAULT_MAX_OPEN_WRITERS);
+
+        List<Configuration> columns = config.getListConfiguration(Key.COLUMN);
+        this.partitionNames = getPartitionBy(config);
+        this.partitionIndexes = new int[this.partitionNames.size()];
+        Set<Integer> partitionIndexSet = new LinkedHashSet<Integer>();
+        for (int i = 0; i < this.partitionNames.size(); i++) {
+            this.partitionIndexes[i] = indexOfColumn(columns, this.partitionNames.get(i));
+            partitionIndexSet.add(this.partitionIndexes[i]);
+        }
+        this.fileColumns = new ArrayList<Configuration>();
+        for (int i = 0; i < columns.size(); i++) {
+            if (!partitionIndexSet.contains(i)) {
+                this.fileColumns.add(columns.get(i));
+            }
+        }
+        this.convertPlan = ColumnConvertPlan.compile(columns, partitionIndexSet);
+        this.dynamicOutput = isDynamicOutput(config);
+
+        if (!this.dynamicOutput) {
+            // 单文件模式下即使没有数据也创建文件, Job在post阶段按split时的文件名rename
+            this.openFiles.put("", new OpenFile(fileName, this.hdfsHelper.openFileWriter(this.fileType,
+                    this.config, this.fileColumns, this.convertPlan, fileName, this.taskPluginCollector)));
+        }
+    }
+
+    public void write(Record record) throws IOException {
+        String partitionPath = getPartitionPath(record);
+        OpenFile openFile = this.openFiles.get(partitionPath);
+        if (null == openFile) {
+            openFile = openFile(partitionPath);
+        }
+        long size = openFile.writer.write(record);
+        if (size < 0) {
+            return;
+        }
+        openFile.bytes += size;
+        openFile.rows++;
+        if (needRoll(openFile)) {
+            this.openFiles.remove(partitionPath);
+            closeFile(openFile);
+        }
+    }
+
+    public void close() throws IOException {
+        IOException firstException = null;
+        for (OpenFile openFile : this.openFiles.values()) {
+            try {
+                closeFile(openFile);
+            } catch (IOException e) {
+                if (null == firstException) {
+                    firstException = e;
+                }
+            }
+        }
+        this.openFiles.clear();
+        if (null != firstException) {
+            throw firstException;
+        }
+    }
+
+    private OpenFile openFile(String partitionPath) throws IOException {
+        String dir = StringUtils.isEmpty(partitionPath) ? this.baseDir : this.baseDir + Path.SEPARATOR + partitionPath;
+        String fileName = String.format("%s%s%s_%05d", dir, Path.SEPARATOR, this.baseFileName, this.fileSequence++);
+        LOG.info(String.format("open file [%s].", fileName));
+        OpenFile openFile = new OpenFile(fileName, this.hdfsHelper.openFileWriter(this.fileType, this.config,
+                this.fileColumns, this.convertPlan, fileName, this.taskPluginCollector));
+        this.openFiles.put(partitionPath, openFile);
+
+        if (this.openFiles.size() > this.maxOpenWriters) {
+            Iterator<Map.Entry<String, OpenFile>> eldest = this.openFiles.entrySet().iterator();
+            OpenFile evicted = eldest.next().getValue();
+            eldest.remove();
+            LOG.info(String.format("打开的文件数超过maxOpenWriters[%s], 关闭文件[%s].", this.maxOpenWriters, evicted.fileName));
+            closeFile(evicted);
+        }
+        return openFile;
+    }
+
+    private boolean needRoll(OpenFile openFile) {
+        if (!this.dynamicOutput) {
+            return false;
+        }
+        return (this.maxFileSize > 0 && openFile.bytes >= this.maxFileSize)
+                || (this.maxFileRows > 0 && openFile.rows >= this.maxFileRows)
+                || (this.rollIntervalMillis > 0 && System.currentTimeMillis() - openFile.openTime >= this.rollIntervalMillis);
+    }
+
+    private void closeFile(OpenFile openFile) throws IOException {
+        openFile.writer.close();
+        LOG.info(String.format("close file [%s], rows [%s], bytes [%s].", openFile.fileName, openFile.rows, openFile.bytes));
+    }
+
+    private String getPartitionPath(Record record) {
+        if (this.partitionIndexes.length == 0) {
+            return "";
+        }
+        List<String> values = new ArrayList<String>(this.partitionIndexes.length);
+        for (int partitionIndex : this.partitionIndexes) {
+            Column column = partitionIndex < record.getColumnNumber() ? record.getColumn(partitionIndex) : null;
+            String value = null == column || null == column.getRawData() ? null : column.asString();
+            values.add(StringUtils.isEmpty(value) ? Constant.HIVE_DEFAULT_PARTITION : value);
+        }
+        return FileUtils.makePartName(this.partitionNames, values);
+    }
+
+    public static boolean isDynamicOutput(Configuration config) {
+        return config.getLong(Key.MAX_FILE_SIZE, 0L) > 0
+                || config.getLong(Key.MAX_FILE_ROWS, 0L) > 0
+                || config.getLong(Key.ROLL_INTERVAL, 0L) > 0
+                || !getPartitionBy(config).isEmpty();
+    }
+
+    public static List<String> getPartitionBy(Configuration config) {
+        List<String> partitionBy = config.getList(Key.PARTITION_BY, String.class);
+        return null == partitionBy ? new ArrayList<String>() : partitionBy;
+    }
+
+    public static int indexOfColumn(List<Configuration> columns, String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (name.equalsIgnoreCase(columns.get(i).getString(Key.NAME))) {
+                return i;
+            }
+        }
+        throw DataXException.asDataXException(HdfsWriterErrorCode.ILLEGAL_VALUE,
+                String.format("您配置的partitionBy列[%s]不在column中.", name));
+    }
+
+    private static class OpenFile {
+        private final String fileName;
+        private final HdfsFileWriter writer;
+        private final long openTime = System.currentTimeMillis();
+        private long bytes;
+        private long rows;
+
+        private OpenFile(String fileName, HdfsFileWriter writer) {
+            this.fileName = fileName;
+            this.writer = writer;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.alibaba.datax.plugin.writer.hdfswriter;
+
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import parquet.example.data.Group;
+import parquet.hadoop.ParquetReader;
+import parquet.hadoop.ParquetWriter;
+import parquet.hadoop.example.GroupReadSupport;
+import parquet.io.api.Binary;
+import parquet.schema.MessageType;
+import parquet.schema.MessageTypeParser;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+public class ParquetRowWriteSupportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TimeZone defaultTimeZone;
+
+    @Before
+    public void setUp() {
+        this.defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Shanghai"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(this.defaultTimeZone);
+    }
+
+    @Test
+    public void testWriteAndReadBack() throws Exception {
+        List<Configuration> columns = new ArrayList<Configuration>();
+        for (String column : new String[]{"c_tinyint:tinyint", "c_int:int", "c_bigint:bigint", "c_float:float",
+                "c_double:double", "c_boolean:boolean", "c_string:string", "c_varchar:varchar",
+                "c_date:date"}) {
+            String[] nameAndType = column.split(":");
+            Configuration config = Configuration.newDefault();
+            config.set(Key.NAME, nameAndType[0]);
+            config.set(Key.TYPE, nameAndType[1]);
+            columns.add(config);
+        }
+        MessageType schema = MessageTypeParser.parseMessageType(
+                HdfsHelper.generateParquetSchemaFromColumnAndType(columns));
+
+        Path path = new Path(new File(this.folder.getRoot(), "rows.parquet").toURI());
+        ParquetWriter<List<Object>> writer = new ParquetWriter<List<Object>>(path,
+                new ParquetRowWriteSupport(schema));
+        try {
+            writer.write(Arrays.<Object>asList((byte) 1, 100, 10000000000L, 1.5f, 2.5d, true, "中文",
+                    "abc", java.sql.Date.valueOf("2020-01-01")));
+            writer.write(Arrays.<Object>asList(null, null, null, null, null, null, null, null, null));
+        } finally {
+            writer.close();
+        }
+
+        ParquetReader<Group> reader = new ParquetReader<Group>(path, new GroupReadSupport());
+        try {
+            Group group = reader.read();
+            Assert.assertEquals(1, group.getInteger("c_tinyint", 0));
+            Assert.assertEquals(100, group.getInteger("c_int", 0));
+            Assert.assertEquals(10000000000L, group.getLong("c_bigint", 0));
+            Assert.assertEquals(1.5f, group.getFloat("c_float", 0), 0f);
+            Assert.assertEquals(2.5d, group.getDouble("c_double", 0), 0d);
+            Assert.assertTrue(group.getBoolean("c_boolean", 0));
+            Assert.assertEquals("中文", group.getString("c_string", 0));
+            Assert.assertEquals("abc", group.getString("c_varchar", 0));
+            Assert.assertEquals(18262, group.getInteger("c_date", 0));
+
+            // null 值不写入字段
+            group = reader.read();
+            for (int i = 0; i < columns.size(); i++) {
+                Assert.assertEquals(0, group.getFieldRepetitionCount(i));
+            }
+            Assert.assertNull(reader.read());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testInt96UsesLocalTime() {
+        // 与 Hive 一致按本地时区拆分为 julian day 和当天纳秒
+        Timestamp timestamp = Timestamp.valueOf("2020-01-01 08:30:15.123456789");
+        ByteBuffer buffer = ByteBuffer.wrap(ParquetRowWriteSupport.toInt96(timestamp).getBytes())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        Assert.assertEquals(((8 * 60 + 30) * 60 + 15) * 1000000000L + 123456789L, buffer.getLong());
+        Assert.assertEquals(2458850, buffer.getInt());
+
+        // 本地 1970-01-01 零点在 UTC 仍是前一天, 按本地日期计算
+        Binary binary = ParquetRowWriteSupport.toInt96(Timestamp.valueOf("1970-01-01 00:00:00"));
+        buffer = ByteBuffer.wrap(binary.getBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        Assert.assertEquals(0L, buffer.getLong());
+        Assert.assertEquals(2440588, buffer.getInt());
+    }
+
+    @Test
+    public void testEpochDayUsesLocalDate() {
+        Assert.assertEquals(0, ParquetRowWriteSupport.toEpochDay(java.sql.Date.valueOf("1970-01-01")));
+        Assert.assertEquals(-1, ParquetRowWriteSupport.toEpochDay(java.sql.Date.valueOf("1969-12-31")));
+        Assert.assertEquals(18262, ParquetRowWriteSupport.toEpochDay(java.sql.Date.valueOf("2020-01-01")));
+    }
+}
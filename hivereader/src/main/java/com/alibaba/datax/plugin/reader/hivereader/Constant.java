@@ -12,5 +12,6 @@ public class Constant {
     public final static String FIELDDELIMITER_DEFAULT = "\\u0001";
     public final static String NULL_FORMAT_DEFAULT="\\N" ;
     public static final String TEXT = "TEXT";
+    public static final int CREATE_TEMP_TABLE_CONCURRENCY = 8;
     public static final String CSV = "CSV";
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.alibaba.datax.common.exception.DataXException;
 import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileStatus;
@@ -13,6 +14,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.ql.io.RCFile;
 import org.apache.hadoop.hive.ql.io.orc.OrcFile;
 import org.apache.hadoop.io.*;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -197,6 +199,47 @@ public class DFSUtil {
         }
     }
 
+    /**
+     * 读取文件的一段, 用于文件内部切分后的并行读取
+     *
+     * @param filepath 文件路径
+     * @param start    起始位置
+     * @param end      结束位置(包含), 小于0表示读到文件末尾
+     */
+    public InputStream getInputStream(String filepath, long start, long end) {
+        Path path = new Path(filepath);
+        try {
+            FileSystem fs = FileSystem.get(hadoopConf);
+            FSDataInputStream inputStream = fs.open(path);
+            if (start > 0) {
+                inputStream.seek(start);
+            }
+            if (end < 0) {
+                return inputStream;
+            }
+            return new BoundedInputStream(inputStream, end - start + 1);
+        } catch (IOException e) {
+            String message = String.format("读取文件 : [%s] 时出错,请确认文件：[%s]存在且配置的用户有权限读取", filepath, filepath);
+            throw DataXException.asDataXException(HiveReaderErrorCode.READ_FILE_ERROR, message, e);
+        }
+    }
+
+    public long getFileLength(String filepath) {
+        try {
+            FileSystem fs = FileSystem.get(hadoopConf);
+            return fs.getFileStatus(new Path(filepath)).getLen();
+        } catch (IOException e) {
+            String message = String.format("获取文件 : [%s] 的长度时出错,请确认文件存在且配置的用户有权限读取", filepath);
+            throw DataXException.asDataXException(HiveReaderErrorCode.READ_FILE_ERROR, message, e);
+        }
+    }
+
+    /**
+     * 开启了hive.exec.compress.output时临时表文件带压缩格式的扩展名, 这类文件不能按字节切分
+     */
+    public boolean isCompressedFile(String filepath) {
+        return null != new CompressionCodecFactory(hadoopConf).getCodec(new Path(filepath));
+    }
 
     /**
      * 输入的hdfs文件类型和用户输入的filetype做校验
@@ -5,6 +5,9 @@ import com.alibaba.datax.common.plugin.RecordSender;
 import com.alibaba.datax.common.spi.Reader;
 import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.datax.plugin.unstructuredstorage.reader.UnstructuredStorageReaderUtil;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.StartEndPair;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.FastDateFormat;
@@ -13,9 +16,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class HiveReader extends Reader {
 
@@ -37,6 +45,16 @@ public class HiveReader extends Reader {
 
         private static final Logger LOG = LoggerFactory.getLogger(Job.class);
         private Configuration readerOriginConfig = null;
+        private String username;
+        private String password;
+        private String hiveJdbcUrl;
+        private String tempDatabase;            //  临时表所在数据库
+        private String tempHdfsLocation;        //  临时表所在hdfs目录
+        private String hive_sql_set;
+        private String hive_fieldDelimiter;
+        private DFSUtil dfsUtil = null;
+        private List<String> tmpTableNames = new ArrayList<String>();
+        private List<String> tmpPaths = new ArrayList<String>();
 
         @Override
         public void init() {
@@ -44,7 +62,7 @@ public class HiveReader extends Reader {
             this.readerOriginConfig = super.getPluginJobConf();//获取配置文件信息{parameter 里面的参数}
             this.validate();
             LOG.info("init() ok and end...");
-            LOG.info("HiveReader流程说明[1:Reader的HiveQL导入临时表(TextFile无压缩的HDFS) ;2:临时表的HDFS到目标Writer;3:删除临时表]");
+            LOG.info("HiveReader流程说明[1:Reader的HiveQL导入临时表(TextFile无压缩的HDFS) ;2:临时表的HDFS文件切分后由多个task并行读取到目标Writer;3:删除临时表]");
         }
 
         private void validate() {
@@ -65,18 +83,104 @@ public class HiveReader extends Reader {
             }
         }
 
+        /**
+         * 每条hiveSql执行一次 create table as select, 多条sql并发执行, 结果文件在split阶段统一切分
+         */
+        @Override
+        public void prepare() {
+            this.hiveJdbcUrl = this.readerOriginConfig.getString(Key.HIVE_JDBC_URL);//获取hive jdbcUrl
+            this.username = this.readerOriginConfig.getString(Key.USERNAME, Constant.HIVE_JDBC_USERNAME);             //获取hive 用户名
+            this.password = this.readerOriginConfig.getString(Key.PASSWORD);                                         //获取hive 密码
+            this.tempDatabase = this.readerOriginConfig.getString(Key.TEMP_DATABASE, Constant.TEMP_DATABASE_DEFAULT);// 临时表的数据库
+            this.tempHdfsLocation = this.readerOriginConfig.getString(Key.TEMP_DATABASE_HDFS_LOCATION, Constant.TEMP_DATABSE_HDFS_LOCATION_DEFAULT.replace("{username}", this.username));// 临时表的数据库路径
+            this.hive_sql_set = this.readerOriginConfig.getString(Key.HIVE_SQL_SET, Constant.HIVE_SQL_SET_DEFAULT);
+            //  判断set语句的结尾是否是分号，不是给加一个
+            if (!this.hive_sql_set.trim().endsWith(";")) {
+                this.hive_sql_set = this.hive_sql_set + ";";
+            }
+            this.hive_fieldDelimiter = this.readerOriginConfig.getString(Key.FIELDDELIMITER, Constant.FIELDDELIMITER_DEFAULT);
+            //判断HDFS临时目录结尾是否是/，不是给加一个
+            if (!this.tempHdfsLocation.trim().endsWith("/")) {
+                this.tempHdfsLocation = this.tempHdfsLocation + "/";
+            }
+            this.dfsUtil = new DFSUtil(this.readerOriginConfig);//初始化工具类
+
+            List<String> sqls = this.readerOriginConfig.getList(Key.HIVE_SQL, String.class);
+            String tableNamePrefix = hiveTableName();
+            ExecutorService executor = Executors.newFixedThreadPool(
+                    Math.min(sqls.size(), Constant.CREATE_TEMP_TABLE_CONCURRENCY));
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(sqls.size());
+            try {
+                for (int i = 0; i < sqls.size(); i++) {
+                    String tableName = tableNamePrefix + "_" + i;
+                    //创建临时Hive表,指定存储地址
+                    final String hiveQueryCmd = this.hive_sql_set + " use " + this.tempDatabase + "; create table "
+                            + tableName + " ROW FORMAT DELIMITED FIELDS TERMINATED BY '" + this.hive_fieldDelimiter
+                            + "' STORED AS TEXTFILE "
+                            + " as " + sqls.get(i);
+                    LOG.info("hiveCmd ----> :" + hiveQueryCmd);
+
+                    // 先记录表名, 建表失败时已经创建的临时表也会在destroy中删除
+                    this.tmpTableNames.add(tableName);
+                    this.tmpPaths.add(this.tempHdfsLocation + tableName);//创建临时Hive表 存储地址
+                    //执行脚本,创建临时表
+                    results.add(executor.submit(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() {
+                            return HiveServer2ConnectUtil.execHiveSql(username, password, hiveQueryCmd, hiveJdbcUrl);
+                        }
+                    }));
+                }
+                // 等待所有建表语句结束后再报告失败, 避免删除临时表之后仍有建表语句在执行
+                DataXException firstError = null;
+                for (Future<Boolean> result : results) {
+                    DataXException error = null;
+                    try {
+                        if (!result.get()) {
+                            error = DataXException.asDataXException(HiveReaderErrorCode.SHELL_ERROR, "创建hive临时表脚本执行失败");
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw DataXException.asDataXException(HiveReaderErrorCode.SHELL_ERROR, "等待创建hive临时表时被中断", e);
+                    } catch (ExecutionException e) {
+                        error = DataXException.asDataXException(HiveReaderErrorCode.SHELL_ERROR, "创建hive临时表脚本执行失败", e.getCause());
+                    }
+                    if (null == firstError) {
+                        firstError = error;
+                    }
+                }
+                if (null != firstError) {
+                    throw firstError;
+                }
+            } finally {
+                executor.shutdown();
+            }
+            LOG.info("创建hive 临时表结束 end!!!");
+        }
+
+        /**
+         * 临时表的结果文件按64MB切分为多个分片, 与文件一起分配给adviceNumber个task并行读取
+         */
         @Override
         public List<Configuration> split(int adviceNumber) {
-            //按照Hive  sql的个数 获取配置文件的个数
             LOG.info("split() begin...");
-            List<String> sqls = this.readerOriginConfig.getList(Key.HIVE_SQL, String.class);
-            List<Configuration> readerSplitConfigs = new ArrayList<Configuration>();
-            Configuration splitedConfig = null;
-            for (String querySql : sqls) {
-                splitedConfig = this.readerOriginConfig.clone();
-                splitedConfig.set(Key.HIVE_SQL, querySql);
+            LOG.info("split(), start to getAllFiles...");
+            List<String> sourceFiles = new ArrayList<String>(this.dfsUtil.getAllFiles(this.tmpPaths, Constant.TEXT));
+            Collections.sort(sourceFiles);
+            LOG.info(String.format("您即将读取的文件数为: [%s], 列表为: [%s]",
+                    sourceFiles.size(),
+                    StringUtils.join(sourceFiles, ",")));
+
+            List<Configuration> readerSplitConfigs = new HiveSplitUtil(this.dfsUtil)
+                    .getSplitConfiguration(this.readerOriginConfig, sourceFiles, adviceNumber);
+            if (readerSplitConfigs.isEmpty()) {
+                // 查询结果为空时仍然保留一个task
+                Configuration splitedConfig = this.readerOriginConfig.clone();
+                splitedConfig.set(com.alibaba.datax.plugin.unstructuredstorage.reader.Key.SPLIT_SLICE_CONFIG,
+                        new ArrayList<StartEndPair>());
                 readerSplitConfigs.add(splitedConfig);
             }
+            LOG.info(String.format("split() ok and end, task number: [%s]", readerSplitConfigs.size()));
             return readerSplitConfigs;
         }
 
@@ -84,12 +188,44 @@ public class HiveReader extends Reader {
         @Override
         public void post() {
             LOG.info("任务执行完毕,hive reader post");
-
+            deleteTmpTables();
         }
 
+        /**
+         * 作业失败时不会执行post, 在这里删除已经创建的临时表
+         */
         @Override
         public void destroy() {
+            if (this.tmpTableNames.isEmpty()) {
+                return;
+            }
+            try {
+                deleteTmpTables();
+            } catch (Exception e) {
+                LOG.warn(String.format("删除hive临时表%s失败, 请手动清理.", this.tmpTableNames), e);
+            }
+        }
 
+        private void deleteTmpTables() {
+            for (String tableName : this.tmpTableNames) {
+                String hiveCmd = this.hive_sql_set + " use " + this.tempDatabase + "; drop table if exists " + tableName;
+                LOG.info("清空数据:hiveCmd ----> :" + hiveCmd);
+                //执行脚本,删除临时表
+                if (!HiveServer2ConnectUtil.execHiveSql(this.username, this.password, hiveCmd, this.hiveJdbcUrl)) {
+                    throw DataXException.asDataXException(HiveReaderErrorCode.SHELL_ERROR, "删除hive临时表脚本执行失败");
+                }
+            }
+            this.tmpTableNames.clear();
+        }
+
+        //创建hive临时表名称
+        private String hiveTableName() {
+
+            StringBuilder str = new StringBuilder();
+            FastDateFormat fdf = FastDateFormat.getInstance("yyyyMMddHHmmss");
+            str.append(Constant.TEMP_TABLE_NAME_PREFIX)
+                    .append(fdf.format(new Date()));
+            return str.toString().toLowerCase();
         }
     }
 
@@ -97,83 +233,44 @@ public class HiveReader extends Reader {
 
         private static final Logger LOG = LoggerFactory.getLogger(Task.class);
         private Configuration taskConfig;
-        private String hiveSql;
-        private String hiveJdbcUrl;
-        private String username;
-        private String password;
-        private String tmpPath;
-        private String tableName;
-        private String tempDatabase;            //  临时表所在数据库
-        private String tempHdfsLocation;        //  临时表所在hdfs目录
-        private String hive_sql_set;
         private String fieldDelimiter;
         private String nullFormat;
-        private String hive_fieldDelimiter;
         private DFSUtil dfsUtil = null;
-        private HashSet<String> sourceFiles;
+        private List<StartEndPair> allWorksForTask;
 
         @Override
         public void init() {
-            this.tableName = hiveTableName();
             //获取配置
             this.taskConfig = super.getPluginJobConf();//获取job 分割后的每一个任务单独的配置文件
-            this.hiveSql = taskConfig.getString(Key.HIVE_SQL);//获取hive sql
-            this.hiveJdbcUrl = taskConfig.getString(Key.HIVE_JDBC_URL);//获取hive jdbcUrl
-            this.username = taskConfig.getString(Key.USERNAME,Constant.HIVE_JDBC_USERNAME);             //获取hive 用户名
-            this.password = taskConfig.getString(Key.PASSWORD);                                         //获取hive 密码
-            this.tempDatabase = taskConfig.getString(Key.TEMP_DATABASE, Constant.TEMP_DATABASE_DEFAULT);// 临时表的数据库
-            this.tempHdfsLocation = taskConfig.getString(Key.TEMP_DATABASE_HDFS_LOCATION, Constant.TEMP_DATABSE_HDFS_LOCATION_DEFAULT.replace("{username}", this.username));// 临时表的数据库路径
-            this.hive_sql_set = taskConfig.getString(Key.HIVE_SQL_SET, Constant.HIVE_SQL_SET_DEFAULT);
-            //  判断set语句的结尾是否是分号，不是给加一个
-            if (!this.hive_sql_set.trim().endsWith(";")) {
-                this.hive_sql_set = this.hive_sql_set + ";";
-            }
             this.fieldDelimiter = taskConfig.getString(Key.FIELDDELIMITER, Constant.FIELDDELIMITER_DEFAULT);
-            this.hive_fieldDelimiter = this.fieldDelimiter;
             this.fieldDelimiter = StringEscapeUtils.unescapeJava(this.fieldDelimiter);
             this.taskConfig.set(Key.FIELDDELIMITER, this.fieldDelimiter);//设置hive 存储文件 hdfs默认的分隔符,传输时候会分隔
             this.nullFormat = taskConfig.getString(Key.NULL_FORMAT, Constant.NULL_FORMAT_DEFAULT);
             this.taskConfig.set(Key.NULL_FORMAT, this.nullFormat);
-            //判断HDFS临时目录结尾是否是/，不是给加一个
-            if (!this.tempHdfsLocation.trim().endsWith("/")) {
-                this.tempHdfsLocation = this.tempHdfsLocation + "/";
-            }
-            this.tmpPath = this.tempHdfsLocation + this.tableName;//创建临时Hive表 存储地址
+            this.allWorksForTask = JSON.parseObject(this.taskConfig.getString(
+                    com.alibaba.datax.plugin.unstructuredstorage.reader.Key.SPLIT_SLICE_CONFIG),
+                    new TypeReference<List<StartEndPair>>() {
+                    });
             this.dfsUtil = new DFSUtil(this.taskConfig);//初始化工具类
         }
 
         @Override
         public void prepare() {
-            //创建临时Hive表,指定存储地址
-            String hiveQueryCmd = this.hive_sql_set + " use " + this.tempDatabase + "; create table "
-                    + this.tableName + " ROW FORMAT DELIMITED FIELDS TERMINATED BY '" + this.hive_fieldDelimiter
-                    + "' STORED AS TEXTFILE "
-                    + " as " + this.hiveSql;
-            LOG.info("hiveCmd ----> :" + hiveQueryCmd);
-
-            //执行脚本,创建临时表
-            if (!HiveServer2ConnectUtil.execHiveSql(this.username, this.password, hiveQueryCmd, this.hiveJdbcUrl)) {
-                throw DataXException.asDataXException(HiveReaderErrorCode.SHELL_ERROR, "创建hive临时表脚本执行失败"); }
 
-            LOG.info("创建hive 临时表结束 end!!!");
-            LOG.info("prepare(), start to getAllFiles...");
-            List<String> path = new ArrayList<String>();
-            path.add(tmpPath);
-            this.sourceFiles = dfsUtil.getAllFiles(path, Constant.TEXT);
-            LOG.info(String.format("您即将读取的文件数为: [%s], 列表为: [%s]",
-                    this.sourceFiles.size(),
-                    StringUtils.join(this.sourceFiles, ",")));
         }
 
         @Override
         public void startRead(RecordSender recordSender) {
             //读取临时hive表的hdfs文件
             LOG.info("read start");
-            for (String sourceFile : this.sourceFiles) {
-                LOG.info(String.format("reading file : [%s]", sourceFile));
+            for (StartEndPair eachSlice : this.allWorksForTask) {
+                String sourceFile = eachSlice.getFilePath();
+                long start = eachSlice.getStart() == null ? 0L : eachSlice.getStart();
+                long end = eachSlice.getEnd() == null ? -1L : eachSlice.getEnd();
+                LOG.info(String.format("reading file : [%s], range: [start=%s, end=%s]", sourceFile, start, end));
 
                 //默认读取的是TEXT文件格式
-                InputStream inputStream = dfsUtil.getInputStream(sourceFile);
+                InputStream inputStream = dfsUtil.getInputStream(sourceFile, start, end);
                 UnstructuredStorageReaderUtil.readFromStream(inputStream, sourceFile, this.taskConfig,
                         recordSender, this.getTaskPluginCollector());
                 if (recordSender != null) {
@@ -187,32 +284,11 @@ public class HiveReader extends Reader {
         @Override
         public void post() {
             LOG.info("one task hive read post...");
-            deleteTmpTable();
-        }
-
-        private void deleteTmpTable() {
-
-            String hiveCmd = this.hive_sql_set + " use " + this.tempDatabase + "; drop table if exists " + this.tableName;
-            LOG.info("清空数据:hiveCmd ----> :" + hiveCmd);
-            //执行脚本,删除临时表
-            if (!HiveServer2ConnectUtil.execHiveSql(this.username, this.password, hiveCmd, this.hiveJdbcUrl)) {
-                throw DataXException.asDataXException(HiveReaderErrorCode.SHELL_ERROR, "删除hive临时表脚本执行失败");
-            }
         }
 
         @Override
         public void destroy() {
             LOG.info("hive read destroy...");
         }
-
-        //创建hive临时表名称
-        private String hiveTableName() {
-
-            StringBuilder str = new StringBuilder();
-            FastDateFormat fdf = FastDateFormat.getInstance("yyyyMMddHHmmss");
-            str.append(Constant.TEMP_TABLE_NAME_PREFIX)
-                    .append(fdf.format(new Date()));
-            return str.toString().toLowerCase();
-        }
     }
 }
\ No newline at end of file
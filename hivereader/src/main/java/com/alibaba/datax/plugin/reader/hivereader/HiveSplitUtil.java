@@ -0,0 +1,33 @@
+package com.alibaba.datax.plugin.reader.hivereader;
+
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.StartEndPair;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.UnstructuredSplitUtil;
+
+import java.io.InputStream;
+
+/**
+ * 临时表HDFS文件的内部切分, 复用 UnstructuredSplitUtil 中按换行符校准切分点的逻辑,
+ * 使一条hiveSql的结果可以由多个task并行读取
+ */
+public class HiveSplitUtil extends UnstructuredSplitUtil {
+    private final DFSUtil dfsUtil;
+
+    public HiveSplitUtil(DFSUtil dfsUtil) {
+        super(true);
+        this.dfsUtil = dfsUtil;
+    }
+
+    @Override
+    public Long getFileTotalLength(String filePath) {
+        // 压缩文件按长度0处理, 不做内部切分, 整个文件由一个task读取
+        if (this.dfsUtil.isCompressedFile(filePath)) {
+            return 0L;
+        }
+        return this.dfsUtil.getFileLength(filePath);
+    }
+
+    @Override
+    public InputStream getFileInputStream(StartEndPair startEndPair) {
+        return this.dfsUtil.getInputStream(startEndPair.getFilePath(), startEndPair.getStart(), startEndPair.getEnd());
+    }
+}
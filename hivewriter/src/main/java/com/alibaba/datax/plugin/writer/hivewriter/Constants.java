@@ -20,5 +20,12 @@ public class Constants {
     public final static String HIVE_TMP_DATABASE = "default";
     // 此默认值，暂无使用
     public static final String DEFAULT_NULL_FORMAT = "\\N";
+    public static final boolean DIRECT_WRITE_DEFAULT = false;
+    // 以.开头的目录会被hive和mapreduce当作隐藏目录忽略
+    public static final String DIRECT_STAGING_DIR_PREFIX = ".datax_staging_";
+    public static final String DIRECT_FILE_NAME_PREFIX = "datax_";
+    public static final String HIVE_DEFAULT_PARTITION = "__HIVE_DEFAULT_PARTITION__";
+    // 动态分区时一个task同时打开的文件数上限,超过时关闭最久未写入的文件
+    public static final int DIRECT_MAX_OPEN_WRITERS = 16;
 
 }
\ No newline at end of file
@@ -0,0 +1,263 @@
+package com.alibaba.datax.plugin.writer.hivewriter;
+
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.FileUtils;
+import org.apache.hadoop.hive.ql.io.orc.OrcFile;
+import org.apache.hadoop.hive.ql.io.orc.Writer;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * directWrite模式下task的写入: 按目标表的存储格式(textfile/orc)把记录写到staging目录下对应分区的子目录。
+ *
+ * 每个分区一个打开的文件, 同时打开的文件数超过上限时关闭最久未写入的文件, 该分区再次有数据时新开一个文件。
+ * 分区字段只用于确定目录, 不写入文件。
+ */
+public class DirectPartitionWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(DirectPartitionWriter.class);
+
+    private final HdfsHelper hdfsHelper;
+    private final TaskPluginCollector taskPluginCollector;
+    private final boolean orc;
+    private final String stagingPath;
+    private final String fileName;
+    private final String compress;
+    private final char fieldDelimiter;
+    private final String nullFormat;
+
+    private final List<Configuration> fileColumns;
+    private final SupportHiveDataType[] types;
+    private final int[] sourceIndexes;
+    private final Object[] row;
+    private final List<Object> rowView;
+    private final StringBuilder lineBuilder = new StringBuilder(256);
+
+    private final List<String> partitionNames = new ArrayList<String>();
+    /**
+     * 静态分区的值, 动态分区为null
+     */
+    private final String[] staticValues;
+    /**
+     * 动态分区字段在记录中的下标, 静态分区为-1
+     */
+    private final int[] dynamicIndexes;
+
+    private StructObjectInspector orcInspector;
+    private JobConf orcConf;
+
+    /**
+     * 按最近写入顺序排列, 用于淘汰最久未写入的文件
+     */
+    private final LinkedHashMap<String, PartitionFile> openFiles = new LinkedHashMap<String, PartitionFile>(16, 0.75f, true);
+    private int fileSequence = 0;
+
+    public DirectPartitionWriter(HdfsHelper hdfsHelper, Configuration config, TaskPluginCollector taskPluginCollector) {
+        this.hdfsHelper = hdfsHelper;
+        this.taskPluginCollector = taskPluginCollector;
+        this.orc = DirectWriteCommitter.FILE_TYPE_ORC.equals(config.getString(Key.DIRECT_FILE_TYPE));
+        this.stagingPath = config.getString(Key.DIRECT_STAGING_PATH);
+        this.fileName = config.getString(Key.DIRECT_FILE_NAME);
+        this.compress = config.getString(Key.COMPRESS, null);
+        this.fieldDelimiter = config.getChar(Key.DIRECT_FIELD_DELIMITER);
+        this.nullFormat = config.getString(Key.DIRECT_NULL_FORMAT);
+
+        this.fileColumns = config.getListConfiguration(Key.DIRECT_FILE_COLUMN);
+        this.types = new SupportHiveDataType[this.fileColumns.size()];
+        this.sourceIndexes = new int[this.fileColumns.size()];
+        List<String> columnNames = new ArrayList<String>();
+        for (int i = 0; i < this.fileColumns.size(); i++) {
+            Configuration fileColumn = this.fileColumns.get(i);
+            this.types[i] = SupportHiveDataType.valueOf(fileColumn.getString(Key.TYPE));
+            this.sourceIndexes[i] = fileColumn.getInt(Key.INDEX);
+            columnNames.add(fileColumn.getString(Key.NAME));
+        }
+        this.row = new Object[this.fileColumns.size()];
+        this.rowView = Arrays.asList(this.row);
+
+        List<Configuration> partitions = config.getListConfiguration(Key.DIRECT_PARTITION);
+        this.staticValues = new String[partitions.size()];
+        this.dynamicIndexes = new int[partitions.size()];
+        for (int i = 0; i < partitions.size(); i++) {
+            this.partitionNames.add(partitions.get(i).getString(Key.NAME));
+            this.staticValues[i] = partitions.get(i).getString(Key.VALUE);
+            this.dynamicIndexes[i] = partitions.get(i).getInt(Key.INDEX, -1);
+        }
+
+        if (this.orc) {
+            this.orcInspector = ObjectInspectorFactory.getStandardStructObjectInspector(columnNames,
+                    hdfsHelper.getColumnTypeInspectors(this.fileColumns));
+            // 目标表的orc.compress, orc.stripe.size等表属性
+            this.orcConf = new JobConf(hdfsHelper.conf);
+            Map<String, String> orcProperties = config.getMap(Key.DIRECT_ORC_PROPERTIES, String.class);
+            if (null != orcProperties) {
+                for (Map.Entry<String, String> entry : orcProperties.entrySet()) {
+                    this.orcConf.set(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    public void write(Record record) throws IOException {
+        if (!convert(record)) {
+            return;
+        }
+        String partitionName = getPartitionName(record);
+        PartitionFile partitionFile = this.openFiles.get(partitionName);
+        if (null == partitionFile) {
+            partitionFile = openFile(partitionName);
+        }
+        partitionFile.write();
+    }
+
+    public void close() throws IOException {
+        IOException firstException = null;
+        for (PartitionFile partitionFile : this.openFiles.values()) {
+            try {
+                partitionFile.close();
+            } catch (IOException e) {
+                if (null == firstException) {
+                    firstException = e;
+                }
+            }
+        }
+        this.openFiles.clear();
+        if (null != firstException) {
+            throw firstException;
+        }
+    }
+
+    /**
+     * 按目标表字段顺序转换一条记录
+     *
+     * @return 脏数据返回false
+     */
+    private boolean convert(Record record) {
+        int recordLength = record.getColumnNumber();
+        for (int i = 0; i < this.row.length; i++) {
+            int sourceIndex = this.sourceIndexes[i];
+            Column column = sourceIndex < recordLength ? record.getColumn(sourceIndex) : null;
+            if (null == column || null == column.getRawData()) {
+                this.row[i] = null;
+                continue;
+            }
+            try {
+                this.row[i] = HdfsHelper.convertColumn(column, this.types[i], this.fileColumns.get(i));
+            } catch (Exception e) {
+                // warn: 此处认为脏数据
+                String message = String.format(
+                        "字段类型转换错误：你目标字段为[%s]类型，实际字段值为[%s].",
+                        this.types[i], column.getRawData().toString());
+                this.taskPluginCollector.collectDirtyRecord(record, message);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String getPartitionName(Record record) {
+        if (this.partitionNames.isEmpty()) {
+            return "";
+        }
+        List<String> values = new ArrayList<String>(this.partitionNames.size());
+        for (int i = 0; i < this.partitionNames.size(); i++) {
+            if (this.dynamicIndexes[i] < 0) {
+                values.add(this.staticValues[i]);
+                continue;
+            }
+            int index = this.dynamicIndexes[i];
+            Column column = index < record.getColumnNumber() ? record.getColumn(index) : null;
+            String value = null == column || null == column.getRawData() ? null : column.asString();
+            values.add(StringUtils.isEmpty(value) ? Constants.HIVE_DEFAULT_PARTITION : value);
+        }
+        return FileUtils.makePartName(this.partitionNames, values);
+    }
+
+    private PartitionFile openFile(String partitionName) throws IOException {
+        String dir = StringUtils.isEmpty(partitionName) ? this.stagingPath : this.stagingPath + Path.SEPARATOR + partitionName;
+        String file = String.format("%s%s%s_%05d", dir, Path.SEPARATOR, this.fileName, this.fileSequence++);
+        LOG.info(String.format("write to file : [%s]", file));
+        PartitionFile partitionFile = this.orc ? new OrcPartitionFile(file) : new TextPartitionFile(file);
+        this.openFiles.put(partitionName, partitionFile);
+
+        if (this.openFiles.size() > Constants.DIRECT_MAX_OPEN_WRITERS) {
+            Iterator<Map.Entry<String, PartitionFile>> eldest = this.openFiles.entrySet().iterator();
+            PartitionFile evicted = eldest.next().getValue();
+            eldest.remove();
+            evicted.close();
+        }
+        return partitionFile;
+    }
+
+    private interface PartitionFile {
+        void write() throws IOException;
+
+        void close() throws IOException;
+    }
+
+    private class TextPartitionFile implements PartitionFile {
+        private final RecordWriter<NullWritable, Text> writer;
+        private final Text text = new Text();
+
+        @SuppressWarnings("unchecked")
+        private TextPartitionFile(String file) throws IOException {
+            this.writer = hdfsHelper.getTextRecordWriter(file, compress);
+        }
+
+        @Override
+        public void write() throws IOException {
+            lineBuilder.setLength(0);
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    lineBuilder.append(fieldDelimiter);
+                }
+                lineBuilder.append(null == row[i] ? nullFormat : row[i]);
+            }
+            this.text.set(lineBuilder.toString());
+            this.writer.write(NullWritable.get(), this.text);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.writer.close(Reporter.NULL);
+        }
+    }
+
+    private class OrcPartitionFile implements PartitionFile {
+        private final Writer writer;
+
+        private OrcPartitionFile(String file) throws IOException {
+            this.writer = OrcFile.createWriter(new Path(file), OrcFile.writerOptions(orcConf)
+                    .fileSystem(hdfsHelper.fileSystem).inspector(orcInspector));
+        }
+
+        @Override
+        public void write() throws IOException {
+            this.writer.addRow(rowView);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.writer.close();
+        }
+    }
+}
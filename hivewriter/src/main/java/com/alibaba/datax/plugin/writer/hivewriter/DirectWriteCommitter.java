@@ -0,0 +1,534 @@
+package com.alibaba.datax.plugin.writer.hivewriter;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.FastDateFormat;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.apache.hadoop.hive.common.FileUtils;
+import org.apache.hadoop.hive.common.StatsSetupConst;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.HiveMetaStoreClient;
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.TableType;
+import org.apache.hadoop.hive.metastore.Warehouse;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * directWrite模式下Job端的逻辑:
+ * 1. 通过metastore读取目标表的存储格式、字段、分区字段和location, 判断能否跳过临时表直接写入;
+ * 2. task按目标表的存储格式把文件写到表location下的隐藏staging目录, 按分区组织为 k1=v1/k2=v2/ 子目录;
+ * 3. post阶段把文件移动到最终的分区目录, 并通过metastore注册新分区。overwrite时分区中原有的文件先移动到备份目录,
+ *    全部文件移动和分区注册成功后才删除备份, 任何一步失败都会删除已移入的文件并把备份移回原处。
+ *
+ * 事务表、分桶表、视图以及textfile/orc之外的存储格式不支持直接写入, 回退到临时表 + INSERT...SELECT 的方式。
+ */
+public class DirectWriteCommitter {
+    private static final Logger LOG = LoggerFactory.getLogger(DirectWriteCommitter.class);
+
+    public static final String FILE_TYPE_TEXT = "TEXT";
+    public static final String FILE_TYPE_ORC = "ORC";
+
+    private static final String TEXT_INPUT_FORMAT = "org.apache.hadoop.mapred.TextInputFormat";
+    private static final String LAZY_SIMPLE_SERDE = "org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe";
+    private static final String ORC_INPUT_FORMAT = "org.apache.hadoop.hive.ql.io.orc.OrcInputFormat";
+    private static final String ORC_PROPERTY_PREFIX = "orc.";
+    private static final char DEFAULT_FIELD_DELIMITER = '\u0001';
+    private static final String BACKUP_DIR_SUFFIX = "_backup";
+
+    private final HdfsHelper hdfsHelper;
+    private final IMetaStoreClient client;
+    private final String databaseName;
+    private final String tableName;
+    private final boolean overwrite;
+
+    private Table table;
+    private String fileType;
+    /**
+     * 分区字段 -> 静态分区值, 动态分区的值为null
+     */
+    private LinkedHashMap<String, String> partitionSpec;
+    private Path tableLocation;
+    private Path stagingPath;
+
+    public DirectWriteCommitter(HdfsHelper hdfsHelper, Configuration conf) {
+        this(hdfsHelper, conf, createClient(hdfsHelper, conf));
+    }
+
+    DirectWriteCommitter(HdfsHelper hdfsHelper, Configuration conf, IMetaStoreClient client) {
+        this.hdfsHelper = hdfsHelper;
+        this.client = client;
+        this.databaseName = conf.getString(Key.DATABASE_NAME);
+        this.tableName = conf.getString(Key.TABLE_NAME);
+
+        String writeMode = conf.getString(Key.WRITE_MODE, Constants.WRITE_MODE_DEFAULT);
+        if ("overwrite".equals(writeMode)) {
+            this.overwrite = true;
+        } else if ("append".equals(writeMode)) {
+            this.overwrite = false;
+        } else {
+            String message = String.format("解析writeMode值错误,可选项为：\"overwrite\",\"append\".请检查writeMode是否填写正确: [%s]",
+                    "message:writeMode =" + writeMode);
+            LOG.error(message);
+            throw DataXException.asDataXException(HiveWriterErrorCode.ILLEGAL_VALUE, message);
+        }
+    }
+
+    private static IMetaStoreClient createClient(HdfsHelper hdfsHelper, Configuration conf) {
+        HiveConf hiveConf = new HiveConf(hdfsHelper.hadoopConf, DirectWriteCommitter.class);
+        String metastoreUris = conf.getString(Key.METASTORE_URIS);
+        if (StringUtils.isNotBlank(metastoreUris)) {
+            hiveConf.setVar(HiveConf.ConfVars.METASTOREURIS, metastoreUris);
+        }
+        try {
+            return new HiveMetaStoreClient(hiveConf);
+        } catch (Exception e) {
+            String message = String.format("连接hive metastore失败,请检查metastoreUris[%s]是否填写正确！", metastoreUris);
+            LOG.error(message);
+            throw DataXException.asDataXException(HiveWriterErrorCode.METASTORE_ERROR, e);
+        }
+    }
+
+    /**
+     * 读取目标表元数据
+     *
+     * @return 不支持直接写入的原因, 支持时返回null
+     */
+    public String checkSupported() {
+        try {
+            this.table = this.client.getTable(this.databaseName, this.tableName);
+        } catch (TException e) {
+            String message = String.format("从hive metastore获取表[%s.%s]的元数据失败！", this.databaseName, this.tableName);
+            LOG.error(message);
+            throw DataXException.asDataXException(HiveWriterErrorCode.METASTORE_ERROR, e);
+        }
+        if (TableType.VIRTUAL_VIEW.name().equals(this.table.getTableType())) {
+            return "目标表是视图";
+        }
+        Map<String, String> parameters = this.table.getParameters();
+        if (null != parameters && "true".equalsIgnoreCase(parameters.get(hive_metastoreConstants.TABLE_IS_TRANSACTIONAL))) {
+            return "目标表是事务表";
+        }
+        StorageDescriptor sd = this.table.getSd();
+        if (sd.getNumBuckets() > 0) {
+            return "目标表是分桶表";
+        }
+        if (TEXT_INPUT_FORMAT.equals(sd.getInputFormat())
+                && LAZY_SIMPLE_SERDE.equals(sd.getSerdeInfo().getSerializationLib())) {
+            this.fileType = FILE_TYPE_TEXT;
+        } else if (ORC_INPUT_FORMAT.equals(sd.getInputFormat())) {
+            this.fileType = FILE_TYPE_ORC;
+        } else {
+            return String.format("目标表的存储格式[%s]不是textfile或orc", sd.getInputFormat());
+        }
+        for (FieldSchema field : sd.getCols()) {
+            if (null == toSupportHiveDataType(field.getType())) {
+                return String.format("目标表字段[%s]的类型[%s]不支持直接写入", field.getName(), field.getType());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 根据目标表元数据生成task需要的写入参数
+     */
+    public void configure(Configuration conf) {
+        List<Configuration> columns = conf.getListConfiguration(Key.COLUMN);
+        StorageDescriptor sd = this.table.getSd();
+
+        List<Map<String, Object>> fileColumns = new ArrayList<Map<String, Object>>();
+        for (FieldSchema field : sd.getCols()) {
+            int index = indexOfColumn(columns, field.getName());
+            if (index < 0) {
+                throw DataXException.asDataXException(HiveWriterErrorCode.CONFIG_INVALID_EXCEPTION,
+                        String.format("目标表字段[%s]不在column配置中,directWrite模式需要配置目标表的全部字段.", field.getName()));
+            }
+            Map<String, Object> fileColumn = new HashMap<String, Object>();
+            fileColumn.put(Key.NAME, field.getName().toLowerCase());
+            fileColumn.put(Key.TYPE, toSupportHiveDataType(field.getType()).name());
+            fileColumn.put(Key.INDEX, index);
+            fileColumns.add(fileColumn);
+        }
+
+        this.partitionSpec = parsePartitionSpec(conf.getList(Key.PARTITION, String.class));
+        List<String> partitionKeys = getPartitionKeys();
+        if (!partitionKeys.equals(new ArrayList<String>(this.partitionSpec.keySet()))) {
+            throw DataXException.asDataXException(HiveWriterErrorCode.ILLEGAL_VALUE,
+                    String.format("partition配置的分区字段%s与目标表的分区字段%s不一致.", this.partitionSpec.keySet(), partitionKeys));
+        }
+        List<Map<String, Object>> partitions = new ArrayList<Map<String, Object>>();
+        for (Map.Entry<String, String> entry : this.partitionSpec.entrySet()) {
+            Map<String, Object> partition = new HashMap<String, Object>();
+            partition.put(Key.NAME, entry.getKey());
+            if (null != entry.getValue()) {
+                partition.put(Key.VALUE, entry.getValue());
+            } else {
+                int index = indexOfColumn(columns, entry.getKey());
+                if (index < 0) {
+                    throw DataXException.asDataXException(HiveWriterErrorCode.CONFIG_INVALID_EXCEPTION,
+                            String.format("动态分区字段[%s]不在column配置中.", entry.getKey()));
+                }
+                partition.put(Key.INDEX, index);
+            }
+            partitions.add(partition);
+        }
+
+        this.tableLocation = new Path(sd.getLocation());
+        this.stagingPath = new Path(this.tableLocation, Constants.DIRECT_STAGING_DIR_PREFIX
+                + FastDateFormat.getInstance("yyyyMMddHHmmss").format(new Date()) + "_"
+                + UUID.randomUUID().toString().replace("-", ""));
+
+        Map<String, String> serdeParameters = sd.getSerdeInfo().getParameters();
+        if (null == serdeParameters) {
+            serdeParameters = new HashMap<String, String>();
+        }
+        Map<String, String> orcProperties = new HashMap<String, String>();
+        if (null != this.table.getParameters()) {
+            for (Map.Entry<String, String> entry : this.table.getParameters().entrySet()) {
+                if (entry.getKey().startsWith(ORC_PROPERTY_PREFIX)) {
+                    orcProperties.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        conf.set(Key.DIRECT_FILE_TYPE, this.fileType);
+        conf.set(Key.DIRECT_STAGING_PATH, this.stagingPath.toString());
+        conf.set(Key.DIRECT_FIELD_DELIMITER, String.valueOf(getFieldDelimiter(serdeParameters)));
+        conf.set(Key.DIRECT_NULL_FORMAT, serdeParameters.containsKey(serdeConstants.SERIALIZATION_NULL_FORMAT)
+                ? serdeParameters.get(serdeConstants.SERIALIZATION_NULL_FORMAT) : Constants.DEFAULT_NULL_FORMAT);
+        conf.set(Key.DIRECT_ORC_PROPERTIES, orcProperties);
+        conf.set(Key.DIRECT_FILE_COLUMN, fileColumns);
+        conf.set(Key.DIRECT_PARTITION, partitions);
+        LOG.info(String.format("目标表[%s.%s]存储格式为[%s], 数据直接写入[%s], 分区[%s].", this.databaseName,
+                this.tableName, this.fileType, this.tableLocation, this.partitionSpec));
+    }
+
+    /**
+     * 把staging目录下的文件移动到最终的分区目录, 并在metastore中注册新分区
+     */
+    public void commit() {
+        List<String> partitionKeys = getPartitionKeys();
+        LinkedHashMap<String, List<Path>> filesByPartition = listStagingFiles();
+        if (partitionKeys.isEmpty()) {
+            if (!filesByPartition.containsKey("")) {
+                filesByPartition.put("", new ArrayList<Path>());
+            }
+        } else if (!this.partitionSpec.containsValue(null)) {
+            // 全部为静态分区时, 与INSERT OVERWRITE一致, 即使没有数据也清空并注册该分区
+            String partName = FileUtils.makePartName(partitionKeys, new ArrayList<String>(this.partitionSpec.values()));
+            if (!filesByPartition.containsKey(partName)) {
+                filesByPartition.put(partName, new ArrayList<Path>());
+            }
+        }
+
+        Path backupPath = new Path(this.tableLocation, this.stagingPath.getName() + BACKUP_DIR_SUFFIX);
+        // [原文件, 备份文件], 以及已移入目标目录的文件, 失败时按相反顺序撤销
+        List<Path[]> backups = new ArrayList<Path[]>();
+        List<Path> movedFiles = new ArrayList<Path>();
+        boolean succeeded = false;
+        List<Partition> newPartitions = new ArrayList<Partition>();
+        List<Partition> changedPartitions = new ArrayList<Partition>();
+        try {
+            for (Map.Entry<String, List<Path>> entry : filesByPartition.entrySet()) {
+                Path backupDir = entry.getKey().isEmpty() ? backupPath : new Path(backupPath, entry.getKey());
+                if (partitionKeys.isEmpty()) {
+                    commitFiles(this.tableLocation, entry.getValue(), backupDir, backups, movedFiles);
+                    continue;
+                }
+                List<String> values = new ArrayList<String>(Warehouse.makeSpecFromName(entry.getKey()).values());
+                Partition partition = getPartition(values);
+                Path targetDir = null == partition ? new Path(this.tableLocation, entry.getKey())
+                        : new Path(partition.getSd().getLocation());
+                commitFiles(targetDir, entry.getValue(), backupDir, backups, movedFiles);
+                if (null == partition) {
+                    newPartitions.add(newPartition(values, targetDir));
+                } else {
+                    clearStats(partition.getParameters());
+                    changedPartitions.add(partition);
+                }
+            }
+
+            if (!newPartitions.isEmpty()) {
+                LOG.info(String.format("注册新分区[%s]个.", newPartitions.size()));
+                this.client.add_partitions(newPartitions, true, false);
+            }
+            if (!changedPartitions.isEmpty()) {
+                this.client.alter_partitions(this.databaseName, this.tableName, changedPartitions);
+            }
+            if (partitionKeys.isEmpty()) {
+                clearStats(this.table.getParameters());
+                this.client.alter_table(this.databaseName, this.tableName, this.table);
+            }
+            succeeded = true;
+        } catch (IOException e) {
+            String message = String.format("移动文件到表[%s.%s]的目录时发生IO异常,请检查您的网络是否正常！", this.databaseName, this.tableName);
+            LOG.error(message);
+            throw DataXException.asDataXException(HiveWriterErrorCode.CONNECT_HDFS_IO_ERROR, e);
+        } catch (TException e) {
+            String message = String.format("在hive metastore中注册表[%s.%s]的分区失败！", this.databaseName, this.tableName);
+            LOG.error(message);
+            throw DataXException.asDataXException(HiveWriterErrorCode.METASTORE_ERROR, e);
+        } finally {
+            if (succeeded) {
+                deleteBackup(backupPath);
+            } else {
+                rollback(backupPath, backups, movedFiles);
+            }
+        }
+    }
+
+    public void cleanup() {
+        if (null != this.stagingPath) {
+            this.hdfsHelper.deleteDir(this.stagingPath);
+        }
+    }
+
+    public void close() {
+        this.client.close();
+    }
+
+    /**
+     * overwrite时先把目标目录中原有的文件移动到backupDir, 再把staging中的文件移入目标目录
+     */
+    private void commitFiles(Path targetDir, List<Path> files, Path backupDir,
+                             List<Path[]> backups, List<Path> movedFiles) throws IOException {
+        FileSystem fileSystem = this.hdfsHelper.fileSystem;
+        if (this.overwrite && fileSystem.exists(targetDir)) {
+            for (FileStatus status : fileSystem.listStatus(targetDir)) {
+                // 跳过本次及其它任务正在使用的staging目录
+                if (status.getPath().getName().startsWith(Constants.DIRECT_STAGING_DIR_PREFIX)) {
+                    continue;
+                }
+                fileSystem.mkdirs(backupDir);
+                Path backup = new Path(backupDir, status.getPath().getName());
+                LOG.info(String.format("start backup file [%s] to [%s].", status.getPath(), backup));
+                rename(status.getPath(), backup);
+                backups.add(new Path[]{status.getPath(), backup});
+            }
+        }
+        fileSystem.mkdirs(targetDir);
+        for (Path file : files) {
+            Path dstFile = new Path(targetDir, file.getName());
+            LOG.info(String.format("start rename file [%s] to file [%s].", file, dstFile));
+            rename(file, dstFile);
+            movedFiles.add(dstFile);
+        }
+    }
+
+    private void rename(Path src, Path dst) throws IOException {
+        if (!this.hdfsHelper.fileSystem.rename(src, dst)) {
+            String message = String.format("重命名文件[%s]为[%s]失败,请检查您的网络是否正常！", src, dst);
+            LOG.error(message);
+            throw DataXException.asDataXException(HiveWriterErrorCode.HDFS_RENAME_FILE_ERROR, message);
+        }
+    }
+
+    /**
+     * 删除已移入的文件, 把备份的文件移回原处; 无法完全恢复时保留备份目录, 由用户手动处理
+     */
+    private void rollback(Path backupPath, List<Path[]> backups, List<Path> movedFiles) {
+        FileSystem fileSystem = this.hdfsHelper.fileSystem;
+        LOG.warn(String.format("提交表[%s.%s]的数据失败, 开始回滚已移动的[%s]个文件和已备份的[%s]个文件.",
+                this.databaseName, this.tableName, movedFiles.size(), backups.size()));
+        for (Path file : movedFiles) {
+            try {
+                fileSystem.delete(file, false);
+            } catch (IOException e) {
+                LOG.warn(String.format("回滚时删除文件[%s]失败.", file), e);
+            }
+        }
+        boolean restored = true;
+        for (int i = backups.size() - 1; i >= 0; i--) {
+            Path original = backups.get(i)[0];
+            Path backup = backups.get(i)[1];
+            try {
+                if (!fileSystem.rename(backup, original)) {
+                    restored = false;
+                    LOG.error(String.format("回滚时把备份文件[%s]恢复为[%s]失败.", backup, original));
+                }
+            } catch (IOException e) {
+                restored = false;
+                LOG.error(String.format("回滚时把备份文件[%s]恢复为[%s]失败.", backup, original), e);
+            }
+        }
+        if (restored) {
+            deleteBackup(backupPath);
+        } else {
+            LOG.error(String.format("部分原有数据未能恢复, 备份保留在[%s], 请手动恢复.", backupPath));
+        }
+    }
+
+    /**
+     * 数据已经提交或已经恢复, 删除备份失败只留下一个隐藏目录, 不影响任务结果
+     */
+    private void deleteBackup(Path backupPath) {
+        try {
+            this.hdfsHelper.deleteDir(backupPath);
+        } catch (DataXException e) {
+            LOG.warn(String.format("删除备份目录[%s]失败, 请手动删除.", backupPath), e);
+        }
+    }
+
+    /**
+     * @return 分区名(k1=v1/k2=v2, 非分区表为空串) -> 该分区下的文件
+     */
+    private LinkedHashMap<String, List<Path>> listStagingFiles() {
+        LinkedHashMap<String, List<Path>> filesByPartition = new LinkedHashMap<String, List<Path>>();
+        if (!this.hdfsHelper.isPathexists(this.stagingPath.toString())) {
+            return filesByPartition;
+        }
+        String stagingRoot = this.stagingPath.toUri().getPath();
+        try {
+            RemoteIterator<LocatedFileStatus> files = this.hdfsHelper.fileSystem.listFiles(this.stagingPath, true);
+            while (files.hasNext()) {
+                Path file = files.next().getPath();
+                String parent = file.getParent().toUri().getPath();
+                String partName = parent.length() > stagingRoot.length() ? parent.substring(stagingRoot.length() + 1) : "";
+                List<Path> partitionFiles = filesByPartition.get(partName);
+                if (null == partitionFiles) {
+                    partitionFiles = new ArrayList<Path>();
+                    filesByPartition.put(partName, partitionFiles);
+                }
+                partitionFiles.add(file);
+            }
+        } catch (IOException e) {
+            String message = String.format("获取目录[%s]文件列表时发生网络IO异常,请检查您的网络是否正常！", this.stagingPath);
+            LOG.error(message);
+            throw DataXException.asDataXException(HiveWriterErrorCode.CONNECT_HDFS_IO_ERROR, e);
+        }
+        return filesByPartition;
+    }
+
+    private Partition getPartition(List<String> values) throws TException {
+        try {
+            return this.client.getPartition(this.databaseName, this.tableName, values);
+        } catch (NoSuchObjectException e) {
+            return null;
+        }
+    }
+
+    private Partition newPartition(List<String> values, Path location) {
+        StorageDescriptor sd = new StorageDescriptor(this.table.getSd());
+        sd.setLocation(location.toString());
+        int now = (int) (System.currentTimeMillis() / 1000);
+        Partition partition = new Partition();
+        partition.setDbName(this.databaseName);
+        partition.setTableName(this.tableName);
+        partition.setValues(values);
+        partition.setSd(sd);
+        partition.setCreateTime(now);
+        partition.setLastAccessTime(now);
+        partition.setParameters(new HashMap<String, String>());
+        return partition;
+    }
+
+    /**
+     * 数据变化后统计信息不再准确
+     */
+    private void clearStats(Map<String, String> parameters) {
+        if (null != parameters) {
+            parameters.remove(StatsSetupConst.COLUMN_STATS_ACCURATE);
+        }
+    }
+
+    private List<String> getPartitionKeys() {
+        List<String> partitionKeys = new ArrayList<String>();
+        if (null != this.table.getPartitionKeys()) {
+            for (FieldSchema field : this.table.getPartitionKeys()) {
+                partitionKeys.add(field.getName().toLowerCase());
+            }
+        }
+        return partitionKeys;
+    }
+
+    /**
+     * 解析partition配置, 如 ["dt='20230101'", "type"], 带值的为静态分区, 只有字段名的为动态分区
+     */
+    public static LinkedHashMap<String, String> parsePartitionSpec(List<String> partitions) {
+        LinkedHashMap<String, String> partitionSpec = new LinkedHashMap<String, String>();
+        if (null == partitions) {
+            return partitionSpec;
+        }
+        for (String partition : partitions) {
+            for (String each : StringUtils.split(partition, ',')) {
+                each = each.trim();
+                if (each.isEmpty()) {
+                    continue;
+                }
+                int equalIndex = each.indexOf('=');
+                if (equalIndex < 0) {
+                    partitionSpec.put(each.toLowerCase(), null);
+                } else {
+                    String value = each.substring(equalIndex + 1).trim();
+                    if (value.length() >= 2 && (value.charAt(0) == '\'' || value.charAt(0) == '"')
+                            && value.charAt(value.length() - 1) == value.charAt(0)) {
+                        value = value.substring(1, value.length() - 1);
+                    }
+                    partitionSpec.put(each.substring(0, equalIndex).trim().toLowerCase(), value);
+                }
+            }
+        }
+        return partitionSpec;
+    }
+
+    /**
+     * hive字段类型转为写入时使用的类型, 如 varchar(20) -> VARCHAR, 不支持时返回null
+     */
+    private static SupportHiveDataType toSupportHiveDataType(String hiveType) {
+        String baseType = hiveType.contains("(") ? hiveType.substring(0, hiveType.indexOf('(')) : hiveType;
+        try {
+            return SupportHiveDataType.valueOf(baseType.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 与LazySimpleSerDe一致: field.delim 缺省时使用 serialization.format, 值为数字时表示字节值
+     */
+    private static char getFieldDelimiter(Map<String, String> serdeParameters) {
+        String delimiter = serdeParameters.get(serdeConstants.FIELD_DELIM);
+        if (null == delimiter) {
+            delimiter = serdeParameters.get(serdeConstants.SERIALIZATION_FORMAT);
+        }
+        if (StringUtils.isEmpty(delimiter)) {
+            return DEFAULT_FIELD_DELIMITER;
+        }
+        try {
+            return (char) Byte.parseByte(delimiter);
+        } catch (NumberFormatException e) {
+            return delimiter.charAt(0);
+        }
+    }
+
+    private static int indexOfColumn(List<Configuration> columns, String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (name.equalsIgnoreCase(columns.get(i).getString(Key.NAME))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -295,22 +295,8 @@ public class HdfsHelper {
         List<Configuration> columns = config.getListConfiguration(Key.COLUMN);
         String compress = config.getString(Key.COMPRESS, null);
 
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMddHHmm");
-        String attempt = "attempt_" + dateFormat.format(new Date()) + "_0001_m_000000_0";
-        Path outputPath = new Path(fileName);
-        //todo 需要进一步确定TASK_ATTEMPT_ID
-        conf.set(JobContext.TASK_ATTEMPT_ID, attempt);
-        FileOutputFormat outFormat = new TextOutputFormat();
-        outFormat.setOutputPath(conf, outputPath);
-        outFormat.setWorkOutputPath(conf, outputPath);
-        if (null != compress) {
-            Class<? extends CompressionCodec> codecClass = getCompressCodec(compress);
-            if (null != codecClass) {
-                outFormat.setOutputCompressorClass(conf, codecClass);
-            }
-        }
         try {
-            RecordWriter writer = outFormat.getRecordWriter(fileSystem, conf, outputPath.toString(), Reporter.NULL);
+            RecordWriter writer = getTextRecordWriter(fileName, compress);
             Record record = null;
             while ((record = lineReceiver.getFromReader()) != null) {
                 MutablePair<Text, Boolean> transportResult = transportOneRecord(record, fieldDelimiter, columns, taskPluginCollector,config);
@@ -328,6 +314,32 @@ public class HdfsHelper {
         }
     }
 
+    /**
+     * 创建textfile的RecordWriter, 配置了compress时文件名会带上压缩格式的扩展名
+     *
+     * @param fileName
+     * @param compress
+     * @return
+     * @throws IOException
+     */
+    public RecordWriter getTextRecordWriter(String fileName, String compress) throws IOException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMddHHmm");
+        String attempt = "attempt_" + dateFormat.format(new Date()) + "_0001_m_000000_0";
+        Path outputPath = new Path(fileName);
+        //todo 需要进一步确定TASK_ATTEMPT_ID
+        conf.set(JobContext.TASK_ATTEMPT_ID, attempt);
+        FileOutputFormat outFormat = new TextOutputFormat();
+        outFormat.setOutputPath(conf, outputPath);
+        outFormat.setWorkOutputPath(conf, outputPath);
+        if (null != compress) {
+            Class<? extends CompressionCodec> codecClass = getCompressCodec(compress);
+            if (null != codecClass) {
+                outFormat.setOutputCompressorClass(conf, codecClass);
+            }
+        }
+        return outFormat.getRecordWriter(fileSystem, conf, outputPath.toString(), Reporter.NULL);
+    }
+
     public static MutablePair<Text, Boolean> transportOneRecord(
             Record record, char fieldDelimiter, List<Configuration> columnsConfiguration, TaskPluginCollector taskPluginCollector, Configuration config) {
         MutablePair<List<Object>, Boolean> transportResultList = transportOneRecord(record, columnsConfiguration, taskPluginCollector, config);
@@ -490,53 +502,11 @@ public class HdfsHelper {
                 column = record.getColumn(i);
                 //todo as method
                 if (null != column.getRawData()) {
-                    String rowData = column.getRawData().toString();
                     SupportHiveDataType columnType = SupportHiveDataType.valueOf(
                             columnsConfiguration.get(i).getString(Key.TYPE).toUpperCase());
                     //根据writer端类型配置做类型转换
                     try {
-                        switch (columnType) {
-                            case TINYINT:
-                                recordList.add(Byte.valueOf(rowData));
-                                break;
-                            case SMALLINT:
-                                recordList.add(Short.valueOf(rowData));
-                                break;
-                            case INT:
-                                recordList.add(Integer.valueOf(rowData));
-                                break;
-                            case BIGINT:
-                                recordList.add(column.asLong());
-                                break;
-                            case FLOAT:
-                                recordList.add(Float.valueOf(rowData));
-                                break;
-                            case DOUBLE:
-                                recordList.add(column.asDouble());
-                                break;
-                            case STRING:
-                            case VARCHAR:
-                            case CHAR:
-                                recordList.add(column.asString());
-                                break;
-                            case BOOLEAN:
-                                recordList.add(column.asBoolean());
-                                break;
-                            case DATE:
-                                recordList.add(new java.sql.Date(column.asDate().getTime()));
-                                break;
-                            case TIMESTAMP:
-                                recordList.add(new java.sql.Timestamp(column.asDate().getTime()));
-                                break;
-                            default:
-                                throw DataXException
-                                        .asDataXException(
-                                                HiveWriterErrorCode.ILLEGAL_VALUE,
-                                                String.format(
-                                                        "您的配置文件中的列配置信息有误. 因为DataX 不支持数据库写入这种字段类型. 字段名:[%s], 字段类型:[%d]. 请修改表中该字段的类型或者不同步该字段.",
-                                                        columnsConfiguration.get(i).getString(Key.NAME),
-                                                        columnsConfiguration.get(i).getString(Key.TYPE)));
-                        }
+                        recordList.add(convertColumn(column, columnType, columnsConfiguration.get(i)));
                     } catch (Exception e) {
                         // warn: 此处认为脏数据
                         String message = String.format(
@@ -563,4 +533,48 @@ public class HdfsHelper {
         transportResult.setLeft(recordList);
         return transportResult;
     }
+
+    /**
+     * 根据writer端类型配置做类型转换, 转换失败时抛出异常, 由调用方按脏数据处理
+     *
+     * @param column 非空字段
+     * @param columnType
+     * @param columnConfig
+     * @return
+     */
+    public static Object convertColumn(Column column, SupportHiveDataType columnType, Configuration columnConfig) {
+        String rowData = column.getRawData().toString();
+        switch (columnType) {
+            case TINYINT:
+                return Byte.valueOf(rowData);
+            case SMALLINT:
+                return Short.valueOf(rowData);
+            case INT:
+                return Integer.valueOf(rowData);
+            case BIGINT:
+                return column.asLong();
+            case FLOAT:
+                return Float.valueOf(rowData);
+            case DOUBLE:
+                return column.asDouble();
+            case STRING:
+            case VARCHAR:
+            case CHAR:
+                return column.asString();
+            case BOOLEAN:
+                return column.asBoolean();
+            case DATE:
+                return new java.sql.Date(column.asDate().getTime());
+            case TIMESTAMP:
+                return new java.sql.Timestamp(column.asDate().getTime());
+            default:
+                throw DataXException
+                        .asDataXException(
+                                HiveWriterErrorCode.ILLEGAL_VALUE,
+                                String.format(
+                                        "您的配置文件中的列配置信息有误. 因为DataX 不支持数据库写入这种字段类型. 字段名:[%s], 字段类型:[%s]. 请修改表中该字段的类型或者不同步该字段.",
+                                        columnConfig.getString(Key.NAME),
+                                        columnConfig.getString(Key.TYPE)));
+        }
+    }
 }
\ No newline at end of file
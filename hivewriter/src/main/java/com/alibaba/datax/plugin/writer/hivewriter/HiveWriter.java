@@ -1,5 +1,6 @@
 package com.alibaba.datax.plugin.writer.hivewriter;
 
+import com.alibaba.datax.common.element.Record;
 import com.alibaba.datax.common.exception.DataXException;
 import com.alibaba.datax.common.plugin.RecordReceiver;
 import com.alibaba.datax.common.spi.Writer;
@@ -10,10 +11,11 @@ import org.apache.commons.lang3.time.FastDateFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-//import java.util.UUID;
+import java.util.UUID;
 
 //import com.alibaba.datax.common.util.KeyUtil;
 //import com.alibaba.datax.common.util.ShellUtil;
@@ -29,6 +31,9 @@ public class HiveWriter extends Writer {
         private String tmpPath;
         private String tmpTableName;
         private String tempHdfsLocation;
+        private boolean directWrite = false;
+        private HdfsHelper hdfsHelper = null;
+        private DirectWriteCommitter directWriteCommitter = null;
 
         @Override
         public void init() {
@@ -60,6 +65,30 @@ public class HiveWriter extends Writer {
         @Override
         public void prepare() {
             this.tempHdfsLocation = this.conf.getString(Key.HIVE_DATABASE_TMP_LOCATION,Constants.HIVE_DATABASE_TMP_LOCATION);
+            if (this.conf.getBool(Key.DIRECT_WRITE, Constants.DIRECT_WRITE_DEFAULT)) {
+                prepareDirectWrite();
+            }
+        }
+
+        /**
+         * directWrite: 按目标表存储格式直接写入分区目录, 由metastore注册分区, 不再经过临时表和INSERT...SELECT
+         */
+        private void prepareDirectWrite() {
+            this.hdfsHelper = new HdfsHelper();
+            this.hdfsHelper.getFileSystem(this.conf.getString(Key.DEFAULT_FS), this.conf);
+            this.directWriteCommitter = new DirectWriteCommitter(this.hdfsHelper, this.conf);
+            String unsupportedReason = this.directWriteCommitter.checkSupported();
+            if (null != unsupportedReason) {
+                log.warn("{}, 不支持directWrite, 回退到临时表方式写入.", unsupportedReason);
+                this.directWriteCommitter.close();
+                this.directWriteCommitter = null;
+                this.conf.set(Key.DIRECT_WRITE, false);
+                return;
+            }
+            this.directWriteCommitter.configure(this.conf);
+            this.directWrite = true;
+            log.info("HiveWriter流程说明[1:Reader的数据按目标表存储格式写入目标表location下的staging目录;2:文件移动到目标分区目录;3:通过metastore注册分区]");
+            execHiveSql(Key.HIVE_PRESQL, Constants.HIVE_PRESQL_DEFAULT, "hive_preSql执行失败");
         }
 
         @Override
@@ -86,6 +115,11 @@ public class HiveWriter extends Writer {
                 List<String> partitions = this.conf.getList(Key.PARTITION, String.class);
                 String partitionInfo = StringUtils.join(partitions, ",");
                 splitedTaskConfig.set(Key.PARTITION, partitionInfo);
+                if (this.directWrite) {
+                    splitedTaskConfig.set(Key.DIRECT_FILE_NAME, Constants.DIRECT_FILE_NAME_PREFIX
+                            + FastDateFormat.getInstance("yyyyMMddHHmmss").format(new Date()) + "_"
+                            + UUID.randomUUID().toString().replace("-", ""));
+                }
 
                 configurations.add(splitedTaskConfig);
             }
@@ -94,12 +128,34 @@ public class HiveWriter extends Writer {
 
         @Override
         public void post() {
-
+            if (this.directWrite) {
+                this.directWriteCommitter.commit();
+                execHiveSql(Key.HIVE_POSTSQL, Constants.HIVE_POSTSQL_DEFAULT, "hive_postSql执行失败");
+            }
         }
 
         @Override
         public void destroy() {
+            if (null != this.directWriteCommitter) {
+                this.directWriteCommitter.cleanup();
+                this.directWriteCommitter.close();
+            }
+        }
 
+        private void execHiveSql(String sqlKey, String defaultSql, String errorMessage) {
+            String hiveSql = this.conf.getString(sqlKey, defaultSql);
+            if (StringUtils.isBlank(hiveSql) || "select 1".equals(StringUtils.removeEnd(hiveSql.trim(), ";"))) {
+                return;
+            }
+            String hiveSqlSet = this.conf.getString(Key.HIVE_SQL_SET, Constants.HIVE_SQL_SET_DEFAULT);
+            if (!hiveSqlSet.trim().endsWith(";")) {
+                hiveSqlSet = hiveSqlSet + ";";
+            }
+            log.info("hiveSql ----> :" + hiveSqlSet + hiveSql);
+            if (!HiveServer2ConnectUtil.execHiveSql(this.conf.getString(Key.USERNAME), this.conf.getString(Key.PASSWORD),
+                    hiveSqlSet + hiveSql, this.conf.getString(Key.HIVE_JDBC_URL))) {
+                throw DataXException.asDataXException(HiveWriterErrorCode.SHELL_ERROR, errorMessage);
+            }
         }
 
         private String hiveTableName() {
@@ -138,6 +194,7 @@ public class HiveWriter extends Writer {
         private String hive_target_table_compress_sql;
         private String hive_preSql;
         private String hive_postSql;
+        private boolean directWrite;
 
         @Override
         public void init() {
@@ -160,6 +217,7 @@ public class HiveWriter extends Writer {
             this.compress = this.conf.getString(Key.COMPRESS, Constants.COMPRESS_DEFAULT);
             this.hive_preSql = this.conf.getString(Key.HIVE_PRESQL, Constants.HIVE_PRESQL_DEFAULT);
             this.hive_postSql = this.conf.getString(Key.HIVE_POSTSQL, Constants.HIVE_POSTSQL_DEFAULT);
+            this.directWrite = this.conf.getBool(Key.DIRECT_WRITE, Constants.DIRECT_WRITE_DEFAULT);
             this.hive_fieldDelimiter = this.fieldDelimiter;
             this.fieldDelimiter = StringEscapeUtils.unescapeJava(this.fieldDelimiter);
             this.conf.set(Key.FIELD_DELIMITER, this.fieldDelimiter);//设置hive 存储文件 hdfs默认的分隔符,传输时候会分隔
@@ -182,6 +240,9 @@ public class HiveWriter extends Writer {
 
         @Override
         public void prepare() {
+            if (this.directWrite) {
+                return;
+            }
             //创建临时表
 
             List<Configuration> columns = this.conf.getListConfiguration(Key.COLUMN);
@@ -215,6 +276,10 @@ public class HiveWriter extends Writer {
 
         @Override
         public void startWrite(RecordReceiver lineReceiver) {
+            if (this.directWrite) {
+                directWrite(lineReceiver);
+                return;
+            }
             List<Configuration> columns = this.conf.getListConfiguration(Key.COLUMN);
 
             String columnsStr = hdfsHelper.getColumnName(columns);
@@ -267,10 +332,33 @@ public class HiveWriter extends Writer {
             LOG.info("end do write");
         }
 
+        /**
+         * 按目标表存储格式直接写入staging目录, 由Job在post阶段移动到分区目录并注册分区
+         */
+        private void directWrite(RecordReceiver lineReceiver) {
+            LOG.info("begin do direct write...");
+            DirectPartitionWriter writer = new DirectPartitionWriter(this.hdfsHelper, this.conf, this.getTaskPluginCollector());
+            try {
+                Record record;
+                while ((record = lineReceiver.getFromReader()) != null) {
+                    writer.write(record);
+                }
+                writer.close();
+            } catch (IOException e) {
+                String message = String.format("写文件到目录[%s]时发生IO异常,请检查您的网络是否正常！",
+                        this.conf.getString(Key.DIRECT_STAGING_PATH));
+                LOG.error(message);
+                throw DataXException.asDataXException(HiveWriterErrorCode.Write_FILE_IO_ERROR, e);
+            }
+            LOG.info("end do direct write");
+        }
+
         @Override
         public void post() {
             LOG.info("one task hive write post...end");
-            deleteTmpTable();
+            if (!this.directWrite) {
+                deleteTmpTable();
+            }
         }
 
         @Override
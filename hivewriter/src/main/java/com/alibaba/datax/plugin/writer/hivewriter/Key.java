@@ -40,6 +40,20 @@ public class Key {
     public static final String KERBEROS_KEYTAB_FILE_PATH = "kerberosKeytabFilePath";
     public static final String KERBEROS_PRINCIPAL = "kerberosPrincipal";
     public static final String HADOOP_CONFIG = "hadoopConfig";
+    public static final String DIRECT_WRITE = "directWrite";//跳过临时表,按目标表存储格式直接写入分区目录
+    public static final String METASTORE_URIS = "metastoreUris";//hive metastore地址,不配置时使用classpath下hive-site.xml
+
+    // directWrite模式下由Job解析目标表元数据后传递给Task的参数
+    public static final String DIRECT_FILE_TYPE = "directWriteMeta.fileType";
+    public static final String DIRECT_STAGING_PATH = "directWriteMeta.stagingPath";
+    public static final String DIRECT_FILE_NAME = "directWriteMeta.fileName";
+    public static final String DIRECT_FIELD_DELIMITER = "directWriteMeta.fieldDelimiter";
+    public static final String DIRECT_NULL_FORMAT = "directWriteMeta.nullFormat";
+    public static final String DIRECT_ORC_PROPERTIES = "directWriteMeta.orcProperties";
+    public static final String DIRECT_FILE_COLUMN = "directWriteMeta.column";//按目标表字段顺序排列的文件列
+    public static final String DIRECT_PARTITION = "directWriteMeta.partition";//按目标表分区字段顺序排列的分区
+    public static final String INDEX = "index";//文件列/动态分区列在column中的下标
+    public static final String VALUE = "value";//静态分区的值
 
 
 }
@@ -0,0 +1,224 @@
+package com.alibaba.datax.plugin.writer.hivewriter;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.SerDeInfo;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class DirectWriteCommitterTest {
+
+    private static final String PARTITION = "dt=20230101";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File tableDir;
+
+    private HdfsHelper hdfsHelper;
+
+    private FakeMetaStore metaStore;
+
+    private Path stagingPath;
+
+    @Before
+    public void setUp() throws Exception {
+        this.tableDir = this.folder.newFolder("warehouse", "t");
+        this.hdfsHelper = new HdfsHelper();
+        this.hdfsHelper.hadoopConf = new org.apache.hadoop.conf.Configuration();
+        this.hdfsHelper.fileSystem = FileSystem.getLocal(this.hdfsHelper.hadoopConf);
+        this.metaStore = new FakeMetaStore(newTable(this.tableDir));
+    }
+
+    @Test
+    public void testOverwriteReplacesPartitionFiles() throws Exception {
+        this.metaStore.existingPartitions.add(PARTITION);
+        write(new File(this.tableDir, PARTITION + "/old_0"), "old");
+
+        DirectWriteCommitter committer = newCommitter("overwrite");
+        write(new File(stagingDir(), PARTITION + "/new_0"), "new");
+        committer.commit();
+
+        Assert.assertEquals(Collections.singleton("new_0"), list(new File(this.tableDir, PARTITION)));
+        Assert.assertEquals(1, this.metaStore.alteredPartitions);
+        Assert.assertTrue(this.metaStore.addedPartitions.isEmpty());
+        assertNoBackup();
+    }
+
+    @Test
+    public void testFailedCommitRestoresOldFiles() throws Exception {
+        this.metaStore.existingPartitions.add(PARTITION);
+        this.metaStore.failAlterPartitions = true;
+        write(new File(this.tableDir, PARTITION + "/old_0"), "old");
+        write(new File(this.tableDir, PARTITION + "/old_1"), "old");
+
+        DirectWriteCommitter committer = newCommitter("overwrite");
+        write(new File(stagingDir(), PARTITION + "/new_0"), "new");
+        try {
+            committer.commit();
+            Assert.fail();
+        } catch (DataXException e) {
+            Assert.assertEquals(HiveWriterErrorCode.METASTORE_ERROR, e.getErrorCode());
+        }
+
+        File partitionDir = new File(this.tableDir, PARTITION);
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("old_0", "old_1")), list(partitionDir));
+        Assert.assertEquals("old", FileUtils.readFileToString(new File(partitionDir, "old_0"), StandardCharsets.UTF_8));
+        assertNoBackup();
+    }
+
+    @Test
+    public void testAppendRegistersNewPartition() throws Exception {
+        DirectWriteCommitter committer = newCommitter("append");
+        write(new File(stagingDir(), PARTITION + "/new_0"), "new");
+        committer.commit();
+
+        Assert.assertEquals(Collections.singleton("new_0"), list(new File(this.tableDir, PARTITION)));
+        Assert.assertEquals(1, this.metaStore.addedPartitions.size());
+        Partition partition = this.metaStore.addedPartitions.get(0);
+        Assert.assertEquals(Collections.singletonList("20230101"), partition.getValues());
+        Assert.assertEquals(new Path(this.tableDir.toURI().toString(), PARTITION),
+                new Path(partition.getSd().getLocation()));
+        assertNoBackup();
+    }
+
+    private DirectWriteCommitter newCommitter(String writeMode) {
+        Configuration conf = Configuration.newDefault();
+        conf.set(Key.DATABASE_NAME, "db");
+        conf.set(Key.TABLE_NAME, "t");
+        conf.set(Key.WRITE_MODE, writeMode);
+        conf.set(Key.COLUMN, Collections.singletonList(Collections.singletonMap(Key.NAME, "id")));
+        conf.set(Key.PARTITION, Collections.singletonList("dt='20230101'"));
+
+        DirectWriteCommitter committer = new DirectWriteCommitter(this.hdfsHelper, conf, this.metaStore.client());
+        Assert.assertNull(committer.checkSupported());
+        committer.configure(conf);
+        this.stagingPath = new Path(conf.getString(Key.DIRECT_STAGING_PATH));
+        return committer;
+    }
+
+    private File stagingDir() {
+        return new File(this.stagingPath.toUri().getPath());
+    }
+
+    private void assertNoBackup() {
+        for (String name : list(this.tableDir)) {
+            Assert.assertFalse(name, name.endsWith("_backup"));
+        }
+    }
+
+    private static void write(File file, String content) throws Exception {
+        FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+    }
+
+    private static Set<String> list(File dir) {
+        Set<String> names = new HashSet<String>();
+        for (String name : dir.list()) {
+            if (!name.endsWith(".crc")) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private static Table newTable(File tableDir) {
+        StorageDescriptor sd = new StorageDescriptor();
+        sd.setCols(Collections.singletonList(new FieldSchema("id", "string", null)));
+        sd.setLocation(tableDir.toURI().toString());
+        sd.setInputFormat("org.apache.hadoop.mapred.TextInputFormat");
+        sd.setSerdeInfo(new SerDeInfo(null, "org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe",
+                new HashMap<String, String>()));
+
+        Table table = new Table();
+        table.setDbName("db");
+        table.setTableName("t");
+        table.setTableType("MANAGED_TABLE");
+        table.setSd(sd);
+        table.setPartitionKeys(Collections.singletonList(new FieldSchema("dt", "string", null)));
+        table.setParameters(new HashMap<String, String>());
+        return table;
+    }
+
+    /**
+     * 只实现 DirectWriteCommitter 用到的接口, 分区位于表目录下的 k=v 子目录
+     */
+    private static class FakeMetaStore {
+        private final Table table;
+        private final Set<String> existingPartitions = new HashSet<String>();
+        private final List<Partition> addedPartitions = new ArrayList<Partition>();
+        private int alteredPartitions = 0;
+        private boolean failAlterPartitions = false;
+
+        FakeMetaStore(Table table) {
+            this.table = table;
+        }
+
+        IMetaStoreClient client() {
+            return (IMetaStoreClient) Proxy.newProxyInstance(IMetaStoreClient.class.getClassLoader(),
+                    new Class<?>[]{IMetaStoreClient.class}, new InvocationHandler() {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                            String name = method.getName();
+                            if ("getTable".equals(name)) {
+                                return table;
+                            } else if ("getPartition".equals(name)) {
+                                return getPartition((List<String>) args[2]);
+                            } else if ("add_partitions".equals(name)) {
+                                addedPartitions.addAll((List<Partition>) args[0]);
+                                return null;
+                            } else if ("alter_partitions".equals(name)) {
+                                if (failAlterPartitions) {
+                                    throw new MetaException("alter_partitions failed");
+                                }
+                                alteredPartitions += ((List<Partition>) args[2]).size();
+                                return null;
+                            } else if ("close".equals(name) || "alter_table".equals(name)) {
+                                return null;
+                            }
+                            throw new UnsupportedOperationException(name);
+                        }
+                    });
+        }
+
+        private Partition getPartition(List<String> values) throws NoSuchObjectException {
+            String partName = "dt=" + values.get(0);
+            if (!this.existingPartitions.contains(partName)) {
+                throw new NoSuchObjectException(partName);
+            }
+            StorageDescriptor sd = new StorageDescriptor(this.table.getSd());
+            sd.setLocation(new Path(this.table.getSd().getLocation(), partName).toString());
+            Partition partition = new Partition();
+            partition.setValues(values);
+            partition.setSd(sd);
+            partition.setParameters(new HashMap<String, String>());
+            return partition;
+        }
+    }
+}
@@ -17,5 +17,6 @@ public class Constant {
     public static final String INSERT_MODE = "upsert";
     public static final long DEFAULT_WRITE_BATCH_SIZE = 512L;
     public static final long DEFAULT_MUTATION_BUFFER_SPACE = 3072L;
+    public static final int DEFAULT_SESSION_NUM = 2;
 
 }
@@ -42,4 +42,5 @@ public class Key {
 
     public static  final String MUTATION_BUFFER_SPACE = "bufferSize";
     public static  final String SKIP_FAIL = "skipFail";
+    public static  final String SESSION_NUM = "sessionNum";
 }
@@ -17,10 +17,6 @@ import sun.rmi.runtime.Log;
 
 import java.nio.charset.Charset;
 import java.util.*;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -141,44 +137,6 @@ public class Kudu11xHelper {
         }
     }
 
-    public static ThreadPoolExecutor createRowAddThreadPool(int coreSize) {
-        return new ThreadPoolExecutor(coreSize,
-                coreSize,
-                60L,
-                TimeUnit.SECONDS,
-                new SynchronousQueue<Runnable>(),
-                new ThreadFactory() {
-                    private final ThreadGroup group = System.getSecurityManager() == null ? Thread.currentThread().getThreadGroup() : System.getSecurityManager().getThreadGroup();
-                    private final AtomicInteger threadNumber = new AtomicInteger(1);
-
-                    @Override
-                    public Thread newThread(Runnable r) {
-                        Thread t = new Thread(group, r,
-                                "pool-kudu_rows_add-thread-" + threadNumber.getAndIncrement(),
-                                0);
-                        if (t.isDaemon())
-                            t.setDaemon(false);
-                        if (t.getPriority() != Thread.NORM_PRIORITY)
-                            t.setPriority(Thread.NORM_PRIORITY);
-                        return t;
-                    }
-                }, new ThreadPoolExecutor.CallerRunsPolicy());
-    }
-
-    public static List<List<Configuration>> getColumnLists(List<Configuration> columns) {
-        int quota = 8;
-        int num = (columns.size() - 1) / quota + 1;
-        int gap = columns.size() / num;
-        List<List<Configuration>> columnLists = new ArrayList<>(num);
-        for (int j = 0; j < num - 1; j++) {
-            List<Configuration> destList = new ArrayList<>(columns.subList(j * gap, (j + 1) * gap));
-            columnLists.add(destList);
-        }
-        List<Configuration> destList = new ArrayList<>(columns.subList(gap * (num - 1), columns.size()));
-        columnLists.add(destList);
-        return columnLists;
-    }
-
     public static boolean isTableExists(Configuration configuration) {
         String tableName = configuration.getString(Key.TABLE);
         String kuduConfig = configuration.getString(Key.KUDU_CONFIG);
@@ -311,6 +269,13 @@ public class Kudu11xHelper {
         Long mutationBufferSpace = configuration.getLong(Key.MUTATION_BUFFER_SPACE, Constant.DEFAULT_MUTATION_BUFFER_SPACE);
         configuration.set(Key.MUTATION_BUFFER_SPACE, mutationBufferSpace);
 
+        Integer sessionNum = configuration.getInt(Key.SESSION_NUM, Constant.DEFAULT_SESSION_NUM);
+        if (sessionNum < 1) {
+            throw DataXException.asDataXException(Kudu11xWriterErrorcode.ILLEGAL_VALUE,
+                    String.format("\"sessionNum\" must be greater than 0, but got [%d].", sessionNum));
+        }
+        configuration.set(Key.SESSION_NUM, sessionNum);
+
         Boolean isSkipFail = configuration.getBool(Key.SKIP_FAIL, false);
         configuration.set(Key.SKIP_FAIL, isSkipFail);
         List<Configuration> columns = configuration.getListConfiguration(Key.COLUMN);
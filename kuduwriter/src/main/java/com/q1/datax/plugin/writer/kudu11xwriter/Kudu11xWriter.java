@@ -71,12 +71,8 @@ public class Kudu11xWriter extends Writer {
 
         @Override
         public void destroy() {
-            try {
-                if (kuduTaskProxy.session != null) {
-                    kuduTaskProxy.session.close();
-                }
-            }catch (Exception e){
-                LOG.warn("The \"kudu session\" was not stopped gracefully !");
+            if (kuduTaskProxy.sessions != null) {
+                kuduTaskProxy.closeSessions();
             }
             Kudu11xHelper.closeClient(kuduTaskProxy.kuduClient);
 
@@ -8,17 +8,16 @@ import com.alibaba.datax.common.plugin.TaskPluginCollector;
 import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.datax.common.util.RetryUtil;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.kudu.Schema;
 import org.apache.kudu.client.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author daizihao
@@ -28,43 +27,91 @@ public class KuduWriterTask {
     private final static Logger LOG = LoggerFactory.getLogger(KuduWriterTask.class);
 
     private List<Configuration> columns;
-    private List<List<Configuration>> columnLists;
-    private ThreadPoolExecutor pool;
-    private String encoding;
-    private Double batchSize;
+    /**
+     * 逐列的写入计划, 在构造时根据 column 配置与表结构计算一次
+     */
+    private int[] recordIndexes;
+    private int[] schemaIndexes;
+    private ColumnType[] types;
+    private int batchSize;
     private Boolean isUpsert;
     private Boolean isSkipFail;
     public KuduClient kuduClient;
-    public KuduSession session;
+    /**
+     * 多个 MANUAL_FLUSH session 轮流使用: 一个 session 接收新的写入时, 其余 session 在后台线程并行 flush
+     */
+    public List<KuduSession> sessions;
     private KuduTable table;
     private Integer primaryKeyIndexUntil;
+    private ExecutorService flushExecutor;
 
-    private final Object lock = new Object();
+    private static final class Batch {
+        private final KuduSession session;
+        private final Map<Operation, Record> records = new IdentityHashMap<>();
+        private Future<List<OperationResponse>> flushFuture;
+
+        private Batch(KuduSession session) {
+            this.session = session;
+        }
+    }
 
     public KuduWriterTask(Configuration configuration) {
+        this(configuration, Kudu11xHelper.getKuduClient(configuration.getString(Key.KUDU_CONFIG)));
+    }
+
+    KuduWriterTask(Configuration configuration, KuduClient kuduClient) {
         columns = configuration.getListConfiguration(Key.COLUMN);
-        columnLists = Kudu11xHelper.getColumnLists(columns);
-        pool = Kudu11xHelper.createRowAddThreadPool(columnLists.size());
 
-        this.encoding = configuration.getString(Key.ENCODING);
-        this.batchSize = configuration.getDouble(Key.WRITE_BATCH_SIZE);
+        this.batchSize = Math.max(1, configuration.getInt(Key.WRITE_BATCH_SIZE));
         this.isUpsert = !configuration.getString(Key.INSERT_MODE).equalsIgnoreCase("insert");
         this.isSkipFail = configuration.getBool(Key.SKIP_FAIL);
         long mutationBufferSpace = configuration.getLong(Key.MUTATION_BUFFER_SPACE);
+        int sessionNum = configuration.getInt(Key.SESSION_NUM);
 
-        this.kuduClient = Kudu11xHelper.getKuduClient(configuration.getString(Key.KUDU_CONFIG));
+        this.kuduClient = kuduClient;
         this.table = Kudu11xHelper.getKuduTable(configuration, kuduClient);
-        this.session = kuduClient.newSession();
-        session.setFlushMode(SessionConfiguration.FlushMode.MANUAL_FLUSH);
-        session.setMutationBufferSpace((int) mutationBufferSpace);
+        this.sessions = new ArrayList<>(sessionNum);
+        for (int i = 0; i < sessionNum; i++) {
+            KuduSession session = kuduClient.newSession();
+            session.setFlushMode(SessionConfiguration.FlushMode.MANUAL_FLUSH);
+            // 一个 batch 的操作必须能放进 session 的缓冲区
+            session.setMutationBufferSpace((int) Math.max(mutationBufferSpace, this.batchSize));
+            this.sessions.add(session);
+        }
+        this.flushExecutor = Executors.newFixedThreadPool(Math.max(1, sessionNum - 1), r -> {
+            Thread t = new Thread(r, "kudu-flush-" + table.getName());
+            t.setDaemon(true);
+            return t;
+        });
         this.primaryKeyIndexUntil = Kudu11xHelper.getPrimaryKeyIndexUntil(columns);
-//        tableName = configuration.getString(Key.TABLE);
+
+        Schema schema = table.getSchema();
+        this.recordIndexes = new int[columns.size()];
+        this.schemaIndexes = new int[columns.size()];
+        this.types = new ColumnType[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            Configuration col = columns.get(i);
+            String name = col.getString(Key.NAME);
+            this.types[i] = ColumnType.getByTypeName(col.getString(Key.TYPE, "string"));
+            this.recordIndexes[i] = col.getInt(Key.INDEX);
+            try {
+                this.schemaIndexes[i] = schema.getColumnIndex(name);
+            } catch (IllegalArgumentException e) {
+                throw DataXException.asDataXException(Kudu11xWriterErrorcode.ILLEGAL_VALUE,
+                        String.format("The column [%s] does not exist in kudu table [%s].", name, table.getName()));
+            }
+        }
     }
 
     public void startWriter(RecordReceiver lineReceiver, TaskPluginCollector taskPluginCollector) {
         LOG.info("kuduwriter began to write!");
         Record record;
-        LongAdder counter = new LongAdder();
+        List<Batch> batches = new ArrayList<>(sessions.size());
+        for (KuduSession session : sessions) {
+            batches.add(new Batch(session));
+        }
+        int current = 0;
+        Batch batch = batches.get(current);
         try {
             while ((record = lineReceiver.getFromReader()) != null) {
                 if (record.getColumnNumber() != columns.size()) {
@@ -72,7 +119,6 @@ public class KuduWriterTask {
                 }
                 boolean isDirtyRecord = false;
 
-
                 for (int i = 0; i < primaryKeyIndexUntil && !isDirtyRecord; i++) {
                     Column column = record.getColumn(i);
                     isDirtyRecord = StringUtils.isBlank(column.asString());
@@ -83,134 +129,138 @@ public class KuduWriterTask {
                     continue;
                 }
 
-                CountDownLatch countDownLatch = new CountDownLatch(columnLists.size());
-                Upsert upsert = table.newUpsert();
-                Insert insert = table.newInsert();
-                PartialRow row;
-                if (isUpsert) {
-                    //覆盖更新
-                    row = upsert.getRow();
-                } else {
-                    //增量更新
-                    row = insert.getRow();
-                }
-                List<Future<?>> futures = new ArrayList<>();
-                for (List<Configuration> columnList : columnLists) {
-                    Record finalRecord = record;
-                    Future<?> future = pool.submit(() -> {
-                        try {
-                            for (Configuration col : columnList) {
-                                String name = col.getString(Key.NAME);
-                                ColumnType type = ColumnType.getByTypeName(col.getString(Key.TYPE, "string"));
-                                Column column = finalRecord.getColumn(col.getInt(Key.INDEX));
-                                String rawData = column.asString();
-                                if (rawData == null) {
-                                    synchronized (lock) {
-                                        row.setNull(name);
-                                    }
-                                    continue;
-                                }
-                                switch (type) {
-                                    case INT:
-                                        synchronized (lock) {
-                                            row.addInt(name, Integer.parseInt(rawData));
-                                        }
-                                        break;
-                                    case LONG:
-                                    case BIGINT:
-                                        synchronized (lock) {
-                                            row.addLong(name, Long.parseLong(rawData));
-                                        }
-                                        break;
-                                    case FLOAT:
-                                        synchronized (lock) {
-                                            row.addFloat(name, Float.parseFloat(rawData));
-                                        }
-                                        break;
-                                    case DOUBLE:
-                                        synchronized (lock) {
-                                            row.addDouble(name, Double.parseDouble(rawData));
-                                        }
-                                        break;
-                                    case BOOLEAN:
-                                        synchronized (lock) {
-                                            row.addBoolean(name, Boolean.getBoolean(rawData));
-                                        }
-                                        break;
-                                    case STRING:
-                                    default:
-                                        synchronized (lock) {
-                                            row.addString(name, rawData);
-                                        }
-                                }
-                            }
-                        } finally {
-                            countDownLatch.countDown();
-                        }
-                    });
-                    futures.add(future);
-                }
-                countDownLatch.await();
-                for (Future<?> future : futures) {
-                    future.get();
-                }
+                //覆盖更新 or 增量更新
+                Operation operation = isUpsert ? table.newUpsert() : table.newInsert();
                 try {
-                    RetryUtil.executeWithRetry(() -> {
-                        if (isUpsert) {
-                            //覆盖更新
-                            session.apply(upsert);
-                        } else {
-                            //增量更新
-                            session.apply(insert);
-                        }
-                        //flush
-                        if (counter.longValue() > (batchSize * 0.8)) {
-                            session.flush();
-                            counter.reset();
-                        }
-                        counter.increment();
-                        return true;
-                    }, 5, 500L, true);
+                    fillRow(operation.getRow(), record);
+                } catch (Exception e) {
+                    taskPluginCollector.collectDirtyRecord(record, e);
+                    continue;
+                }
 
+                KuduSession session = batch.session;
+                try {
+                    RetryUtil.executeWithRetry(() -> session.apply(operation), 5, 500L, true);
                 } catch (Exception e) {
                     LOG.error("Record Write Failure!", e);
                     if (isSkipFail) {
                         LOG.warn("Since you have configured \"skipFail\" to be true, this record will be skipped !");
                         taskPluginCollector.collectDirtyRecord(record, e.getMessage());
+                        continue;
                     } else {
                         throw DataXException.asDataXException(Kudu11xWriterErrorcode.PUT_KUDU_ERROR, e.getMessage());
                     }
                 }
+                batch.records.put(operation, record);
+
+                if (batch.records.size() >= batchSize) {
+                    submitFlush(batch);
+                    current = (current + 1) % batches.size();
+                    batch = batches.get(current);
+                    // 轮到的 session 如果还在 flush, 等待其完成, 未完成的操作数因此不超过 sessionNum * batchSize
+                    awaitFlush(batch, taskPluginCollector);
+                }
+            }
+            submitFlush(batch);
+            for (Batch b : batches) {
+                awaitFlush(b, taskPluginCollector);
             }
+        } catch (DataXException e) {
+            LOG.error("write failure! the task will exit!");
+            throw e;
         } catch (Exception e) {
             LOG.error("write failure! the task will exit!");
             throw DataXException.asDataXException(Kudu11xWriterErrorcode.PUT_KUDU_ERROR, e.getMessage());
+        } finally {
+            flushExecutor.shutdownNow();
         }
-        AtomicInteger i = new AtomicInteger(10);
-        try {
-            while (i.get() > 0) {
-                if (session.hasPendingOperations()) {
-                    session.flush();
+    }
+
+    private void fillRow(PartialRow row, Record record) {
+        for (int i = 0; i < types.length; i++) {
+            int columnIndex = schemaIndexes[i];
+            Column column = record.getColumn(recordIndexes[i]);
+            String rawData = column.asString();
+            if (rawData == null) {
+                row.setNull(columnIndex);
+                continue;
+            }
+            switch (types[i]) {
+                case INT:
+                    row.addInt(columnIndex, Integer.parseInt(rawData));
                     break;
-                }
-                Thread.sleep(20L);
-                i.decrementAndGet();
+                case LONG:
+                case BIGINT:
+                    row.addLong(columnIndex, column.getType() == Column.Type.LONG ? column.asLong() : Long.parseLong(rawData));
+                    break;
+                case FLOAT:
+                    row.addFloat(columnIndex, Float.parseFloat(rawData));
+                    break;
+                case DOUBLE:
+                    row.addDouble(columnIndex, Double.parseDouble(rawData));
+                    break;
+                case BOOLEAN:
+                    row.addBoolean(columnIndex, Boolean.parseBoolean(rawData));
+                    break;
+                case STRING:
+                default:
+                    row.addString(columnIndex, rawData);
             }
-        } catch (Exception e) {
-            LOG.info("Waiting for data to be written to kudu...... " + i + "s");
+        }
+    }
 
+    private void submitFlush(Batch batch) {
+        if (batch.records.isEmpty() || batch.flushFuture != null) {
+            return;
+        }
+        KuduSession session = batch.session;
+        batch.flushFuture = flushExecutor.submit(session::flush);
+    }
+
+    /**
+     * 等待 batch 的 flush 结束, 把行级错误按操作找回对应的 record 记为脏数据
+     */
+    private void awaitFlush(Batch batch, TaskPluginCollector taskPluginCollector) throws InterruptedException {
+        if (batch.flushFuture == null) {
+            return;
+        }
+        try {
+            List<OperationResponse> responses = batch.flushFuture.get();
+            for (OperationResponse response : responses) {
+                if (!response.hasRowError()) {
+                    continue;
+                }
+                Record failed = batch.records.get(response.getOperation());
+                String message = response.getRowError().toString();
+                if (failed != null) {
+                    taskPluginCollector.collectDirtyRecord(failed, message);
+                } else {
+                    LOG.warn("kudu row error: {}", message);
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            LOG.error("kuduwriter flush error!", cause);
+            if (!isSkipFail) {
+                throw DataXException.asDataXException(Kudu11xWriterErrorcode.PUT_KUDU_ERROR, cause.getMessage());
+            }
+            LOG.warn("Since you have configured \"skipFail\" to be true, {} records of this batch will be skipped !", batch.records.size());
+            for (Record failed : batch.records.values()) {
+                taskPluginCollector.collectDirtyRecord(failed, cause.getMessage());
+            }
         } finally {
+            batch.flushFuture = null;
+            batch.records.clear();
+        }
+    }
+
+    public void closeSessions() {
+        for (KuduSession session : sessions) {
             try {
-                pool.shutdown();
-                //强制刷写
-                session.flush();
-            } catch (KuduException e) {
-                LOG.error("kuduwriter flush error! The results may be incomplete！");
-                throw DataXException.asDataXException(Kudu11xWriterErrorcode.PUT_KUDU_ERROR, e.getMessage());
+                session.close();
+            } catch (Exception e) {
+                LOG.warn("The \"kudu session\" was not stopped gracefully !");
             }
         }
-
     }
-
-
 }
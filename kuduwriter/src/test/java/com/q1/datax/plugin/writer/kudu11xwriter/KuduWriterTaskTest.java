@@ -0,0 +1,274 @@
+package com.q1.datax.plugin.writer.kudu11xwriter;
+
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.RecordReceiver;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.core.transport.record.DefaultRecord;
+import org.apache.kudu.ColumnSchema;
+import org.apache.kudu.Schema;
+import org.apache.kudu.Type;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduSession;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.Operation;
+import org.apache.kudu.client.OperationResponse;
+import org.apache.kudu.client.PartialRow;
+import org.apache.kudu.client.RowError;
+import org.apache.kudu.client.Upsert;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class KuduWriterTaskTest {
+
+    private static final String TABLE = "datax_kudu_test";
+
+    private KuduClient kuduClient;
+
+    /**
+     * 按创建顺序保存的 upsert 操作, 第 i 个操作对应第 i 条主键不为空的 record; flush 线程会并发读取
+     */
+    private final List<Operation> operations = new CopyOnWriteArrayList<Operation>();
+
+    /**
+     * flush 时返回行级错误的操作下标; 操作在写入过程中才创建, 因此按下标标记
+     */
+    private int[] failedIndexes = new int[0];
+
+    private final List<Record> dirtyRecords = new ArrayList<Record>();
+
+    private final List<String> dirtyMessages = new ArrayList<String>();
+
+    private RuntimeException flushFailure;
+
+    @Before
+    public void setUp() throws Exception {
+        Schema schema = new Schema(Arrays.asList(
+                new ColumnSchema.ColumnSchemaBuilder("id", Type.INT64).key(true).build(),
+                new ColumnSchema.ColumnSchemaBuilder("name", Type.STRING).nullable(true).build()));
+        KuduTable table = mock(KuduTable.class);
+        when(table.getName()).thenReturn(TABLE);
+        when(table.getSchema()).thenReturn(schema);
+        when(table.newUpsert()).thenAnswer(new Answer<Upsert>() {
+            @Override
+            public Upsert answer(InvocationOnMock invocation) {
+                Upsert upsert = mock(Upsert.class);
+                when(upsert.getRow()).thenReturn(mock(PartialRow.class));
+                operations.add(upsert);
+                return upsert;
+            }
+        });
+
+        this.kuduClient = mock(KuduClient.class);
+        when(this.kuduClient.tableExists(TABLE)).thenReturn(true);
+        when(this.kuduClient.openTable(TABLE)).thenReturn(table);
+        when(this.kuduClient.newSession()).thenAnswer(new Answer<KuduSession>() {
+            @Override
+            public KuduSession answer(InvocationOnMock invocation) throws Exception {
+                return newSession();
+            }
+        });
+    }
+
+    @Test
+    public void testRowErrorsMappedToRecords() {
+        List<Record> records = records(7);
+        // 主键为空的 record 在写入前即为脏数据, 不占用操作
+        records.add(3, record(new StringColumn(""), new StringColumn("blank")));
+
+        KuduWriterTask task = new KuduWriterTask(config(false), this.kuduClient);
+        Assert.assertEquals(2, task.sessions.size());
+        this.failedIndexes = new int[]{1, 4, 6};
+        task.startWriter(receiver(records), collector());
+
+        Assert.assertEquals(7, this.operations.size());
+        // 行级错误按操作对象找回各自的 record, 跨多个 session 与 batch
+        Assert.assertEquals(4, this.dirtyRecords.size());
+        Assert.assertSame(records.get(3), this.dirtyRecords.get(0));
+        Assert.assertEquals("primarykey field is null", this.dirtyMessages.get(0));
+        List<Long> failedIds = new ArrayList<Long>();
+        for (int i = 1; i < this.dirtyRecords.size(); i++) {
+            Record dirty = this.dirtyRecords.get(i);
+            Assert.assertTrue(records.contains(dirty));
+            failedIds.add(dirty.getColumn(0).asLong());
+            Assert.assertEquals("row error of " + dirty.getColumn(0).asLong(), this.dirtyMessages.get(i));
+        }
+        Collections.sort(failedIds);
+        Assert.assertEquals(Arrays.asList(1L, 4L, 6L), failedIds);
+    }
+
+    @Test
+    public void testFlushFailureSkipped() {
+        this.flushFailure = new RuntimeException("tablet unavailable");
+        List<Record> records = records(3);
+        new KuduWriterTask(config(true), this.kuduClient).startWriter(receiver(records), collector());
+
+        // skipFail 时整个 batch 的 record 记为脏数据
+        Assert.assertEquals(3, this.dirtyRecords.size());
+        Assert.assertTrue(this.dirtyRecords.containsAll(records));
+        for (String message : this.dirtyMessages) {
+            Assert.assertEquals("tablet unavailable", message);
+        }
+    }
+
+    @Test
+    public void testFlushFailureFailsTask() {
+        this.flushFailure = new RuntimeException("tablet unavailable");
+        try {
+            new KuduWriterTask(config(false), this.kuduClient).startWriter(receiver(records(3)), collector());
+            Assert.fail();
+        } catch (DataXException e) {
+            Assert.assertEquals(Kudu11xWriterErrorcode.PUT_KUDU_ERROR, e.getErrorCode());
+        }
+        Assert.assertTrue(this.dirtyRecords.isEmpty());
+    }
+
+    private boolean isFailed(Operation operation) {
+        int index = indexOf(operation);
+        for (int failed : this.failedIndexes) {
+            if (failed == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int indexOf(Operation operation) {
+        for (int i = 0; i < this.operations.size(); i++) {
+            if (this.operations.get(i) == operation) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 记录 apply 的操作, flush 时为每个操作返回响应, 被标记失败的操作带行级错误
+     */
+    private KuduSession newSession() throws Exception {
+        final KuduSession session = mock(KuduSession.class);
+        final List<Operation> pending = new ArrayList<Operation>();
+        doAnswer(new Answer<OperationResponse>() {
+            @Override
+            public OperationResponse answer(InvocationOnMock invocation) {
+                synchronized (pending) {
+                    pending.add((Operation) invocation.getArguments()[0]);
+                }
+                return null;
+            }
+        }).when(session).apply(any(Operation.class));
+        when(session.flush()).thenAnswer(new Answer<List<OperationResponse>>() {
+            @Override
+            public List<OperationResponse> answer(InvocationOnMock invocation) {
+                if (flushFailure != null) {
+                    throw flushFailure;
+                }
+                List<OperationResponse> responses = new ArrayList<OperationResponse>();
+                synchronized (pending) {
+                    for (Operation operation : pending) {
+                        responses.add(response(operation));
+                    }
+                    pending.clear();
+                }
+                return responses;
+            }
+        });
+        return session;
+    }
+
+    private OperationResponse response(Operation operation) {
+        OperationResponse response = mock(OperationResponse.class);
+        when(response.getOperation()).thenReturn(operation);
+        boolean failed = isFailed(operation);
+        when(response.hasRowError()).thenReturn(failed);
+        if (failed) {
+            RowError rowError = mock(RowError.class);
+            when(rowError.toString()).thenReturn("row error of " + indexOf(operation));
+            when(response.getRowError()).thenReturn(rowError);
+        }
+        return response;
+    }
+
+    /**
+     * batchSize 为 2, 2 个 session 轮流写入
+     */
+    private static Configuration config(boolean skipFail) {
+        Configuration config = Configuration.newDefault();
+        config.set(Key.TABLE, TABLE);
+        config.set(Key.COLUMN, Arrays.asList(
+                Configuration.from("{\"name\":\"id\",\"type\":\"long\",\"index\":0,\"primaryKey\":true}").getInternal(),
+                Configuration.from("{\"name\":\"name\",\"type\":\"string\",\"index\":1}").getInternal()));
+        config.set(Key.WRITE_BATCH_SIZE, 2);
+        config.set(Key.INSERT_MODE, "upsert");
+        config.set(Key.SKIP_FAIL, skipFail);
+        config.set(Key.MUTATION_BUFFER_SPACE, 1024L);
+        config.set(Key.SESSION_NUM, 2);
+        return config;
+    }
+
+    /**
+     * id 为 0 ~ count - 1
+     */
+    private static List<Record> records(int count) {
+        List<Record> records = new ArrayList<Record>();
+        for (int i = 0; i < count; i++) {
+            records.add(record(new LongColumn((long) i), new StringColumn("name-" + i)));
+        }
+        return records;
+    }
+
+    private static Record record(com.alibaba.datax.common.element.Column... columns) {
+        Record record = new DefaultRecord();
+        for (com.alibaba.datax.common.element.Column column : columns) {
+            record.addColumn(column);
+        }
+        return record;
+    }
+
+    private static RecordReceiver receiver(List<Record> records) {
+        final List<Record> queue = new ArrayList<Record>(records);
+        return new RecordReceiver() {
+            @Override
+            public Record getFromReader() {
+                return queue.isEmpty() ? null : queue.remove(0);
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+    }
+
+    private TaskPluginCollector collector() {
+        return new TaskPluginCollector() {
+            @Override
+            public void collectDirtyRecord(Record dirtyRecord, Throwable t, String errorMessage) {
+                synchronized (dirtyRecords) {
+                    dirtyRecords.add(dirtyRecord);
+                    dirtyMessages.add(errorMessage);
+                }
+            }
+
+            @Override
+            public void collectMessage(String key, String value) {
+            }
+        };
+    }
+}
@@ -73,6 +73,20 @@ public class KeyConstant {
      * 批量获取的记录数
      */
     public static final String BATCH_SIZE = "batchSize";
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /**
+     * 集合切分方式：splitVector(默认，无权限时自动改用 sample)、bucketAuto、sample、keyset
+     * keyset 在最小、最大 _id 之间插值切分点，_id 无法插值时退化为沿 _id 索引 skip，代价为 O(n)
+     */
+    public static final String SPLIT_STRATEGY = "splitStrategy";
+    public static final String SPLIT_STRATEGY_SPLIT_VECTOR = "splitVector";
+    public static final String SPLIT_STRATEGY_BUCKET_AUTO = "bucketAuto";
+    public static final String SPLIT_STRATEGY_SAMPLE = "sample";
+    public static final String SPLIT_STRATEGY_KEYSET = "keyset";
+    /**
+     * sample 切分时每个切分平均采样的 _id 个数
+     */
+    public static final int SAMPLES_PER_SPLIT = 100;
     /**
      * MongoDB的_id
      */
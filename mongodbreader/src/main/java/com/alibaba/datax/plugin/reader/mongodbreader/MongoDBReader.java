@@ -92,6 +92,7 @@ public class MongoDBReader extends Reader {
         private Object lowerBound = null;
         private Object upperBound = null;
         private boolean isObjectId = true;
+        private int batchSize = KeyConstant.DEFAULT_BATCH_SIZE;
 
         @Override
         public void startRead(RecordSender recordSender) {
@@ -120,7 +121,7 @@ public class MongoDBReader extends Reader {
                 Document queryFilter = Document.parse(query);
                 filter = new Document("$and", Arrays.asList(filter, queryFilter));
             }
-            dbCursor = col.find(filter).iterator();
+            dbCursor = col.find(filter).projection(buildProjection()).batchSize(batchSize).iterator();
             while (dbCursor.hasNext()) {
                 Document item = dbCursor.next();
                 Record record = recordSender.createRecord();
@@ -201,6 +202,29 @@ public class MongoDBReader extends Reader {
             this.lowerBound = readerSliceConfig.get(KeyConstant.LOWER_BOUND);
             this.upperBound = readerSliceConfig.get(KeyConstant.UPPER_BOUND);
             this.isObjectId = readerSliceConfig.getBool(KeyConstant.IS_OBJECTID);
+            this.batchSize = readerSliceConfig.getInt(KeyConstant.BATCH_SIZE, KeyConstant.DEFAULT_BATCH_SIZE);
+        }
+
+        /**
+         * 只取配置的列，减少网络传输；列名之间存在父子路径(如 a 与 a.b)时投影会冲突，此时读取整个文档
+         */
+        private Document buildProjection() {
+            Document projection = new Document();
+            List<String> columnNames = new ArrayList<String>();
+            Iterator columnItera = mongodbColumnMeta.iterator();
+            while (columnItera.hasNext()) {
+                JSONObject column = (JSONObject) columnItera.next();
+                columnNames.add(column.getString(KeyConstant.COLUMN_NAME));
+            }
+            for (String name : columnNames) {
+                for (String other : columnNames) {
+                    if (other.startsWith(name + ".")) {
+                        return null;
+                    }
+                }
+                projection.append(name, 1);
+            }
+            return projection;
         }
 
         @Override
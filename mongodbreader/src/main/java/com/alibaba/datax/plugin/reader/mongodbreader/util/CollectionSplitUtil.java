@@ -7,13 +7,19 @@ import com.alibaba.datax.plugin.reader.mongodbreader.MongoDBReaderErrorCode;
 import com.google.common.base.Strings;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import org.bson.Document;
 import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -23,6 +29,8 @@ import java.util.List;
  */
 public class CollectionSplitUtil {
 
+    private static final Logger LOG = LoggerFactory.getLogger(CollectionSplitUtil.class);
+
     public static List<Configuration> doSplit(
         Configuration originalSliceConfig, int adviceNumber, MongoClient mongoClient) {
 
@@ -39,7 +47,10 @@ public class CollectionSplitUtil {
 
         boolean isObjectId = isPrimaryIdObjectId(mongoClient, dbName, collName);
 
-        List<Range> rangeList = doSplitCollection(adviceNumber, mongoClient, dbName, collName, isObjectId);
+        String splitStrategy = originalSliceConfig.getString(KeyConstant.SPLIT_STRATEGY,
+            KeyConstant.SPLIT_STRATEGY_SPLIT_VECTOR);
+
+        List<Range> rangeList = doSplitCollection(adviceNumber, mongoClient, dbName, collName, isObjectId, splitStrategy);
         for(Range range : rangeList) {
             Configuration conf = originalSliceConfig.clone();
             conf.set(KeyConstant.LOWER_BOUND, range.lowerBound);
@@ -64,7 +75,8 @@ public class CollectionSplitUtil {
 
     // split the collection into multiple chunks, each chunk specifies a range
     private static List<Range> doSplitCollection(int adviceNumber, MongoClient mongoClient,
-                                                 String dbName, String collName, boolean isObjectId) {
+                                                 String dbName, String collName, boolean isObjectId,
+                                                 String splitStrategy) {
 
         MongoDatabase database = mongoClient.getDatabase(dbName);
         List<Range> rangeList = new ArrayList<Range>();
@@ -90,66 +102,71 @@ public class CollectionSplitUtil {
         int splitPointCount = adviceNumber - 1;
         int chunkDocCount = docCount / adviceNumber;
         ArrayList<Object> splitPoints = new ArrayList<Object>();
+        MongoCollection<Document> col = database.getCollection(collName);
 
-        // test if user has splitVector role(clusterManager)
-        boolean supportSplitVector = true;
-        try {
-            database.runCommand(new Document("splitVector", dbName + "." + collName)
-                .append("keyPattern", new Document(KeyConstant.MONGO_PRIMARY_ID, 1))
-                .append("force", true));
-        } catch (MongoCommandException e) {
-            if (e.getErrorCode() == KeyConstant.MONGO_UNAUTHORIZED_ERR_CODE ||
-                e.getErrorCode() == KeyConstant.MONGO_ILLEGALOP_ERR_CODE) {
-                supportSplitVector = false;
-            }
-        }
-
-        if (supportSplitVector) {
-            boolean forceMedianSplit = false;
-            int maxChunkSize = (docCount / splitPointCount - 1) * 2 * avgObjSize / (1024 * 1024);
-            //int maxChunkSize = (chunkDocCount - 1) * 2 * avgObjSize / (1024 * 1024);
-            if (maxChunkSize < 1) {
-                forceMedianSplit = true;
+        if (KeyConstant.SPLIT_STRATEGY_BUCKET_AUTO.equalsIgnoreCase(splitStrategy)) {
+            try {
+                splitPoints = doBucketAutoSplit(col, adviceNumber, isObjectId);
+            } catch (MongoException e) {
+                LOG.warn("Split collection by $bucketAuto failed, fall back to keyset split.", e);
+                splitPoints = doKeysetSplit(col, adviceNumber, chunkDocCount, isObjectId);
             }
-            if (!forceMedianSplit) {
-                result = database.runCommand(new Document("splitVector", dbName + "." + collName)
-                    .append("keyPattern", new Document(KeyConstant.MONGO_PRIMARY_ID, 1))
-                    .append("maxChunkSize", maxChunkSize)
-                    .append("maxSplitPoints", adviceNumber - 1));
-            } else {
-                result = database.runCommand(new Document("splitVector", dbName + "." + collName)
+        } else if (KeyConstant.SPLIT_STRATEGY_SAMPLE.equalsIgnoreCase(splitStrategy)) {
+            splitPoints = doSampleOrKeysetSplit(col, adviceNumber, docCount, chunkDocCount, isObjectId);
+        } else if (KeyConstant.SPLIT_STRATEGY_KEYSET.equalsIgnoreCase(splitStrategy)) {
+            splitPoints = doKeysetSplit(col, adviceNumber, chunkDocCount, isObjectId);
+        } else {
+            // test if user has splitVector role(clusterManager)
+            boolean supportSplitVector = true;
+            try {
+                database.runCommand(new Document("splitVector", dbName + "." + collName)
                     .append("keyPattern", new Document(KeyConstant.MONGO_PRIMARY_ID, 1))
                     .append("force", true));
-            }
-            ArrayList<Document> splitKeys = result.get("splitKeys", ArrayList.class);
-
-            for (int i = 0; i < splitKeys.size(); i++) {
-                Document splitKey = splitKeys.get(i);
-                Object id = splitKey.get(KeyConstant.MONGO_PRIMARY_ID);
-                if (isObjectId) {
-                    ObjectId oid = (ObjectId)id;
-                    splitPoints.add(oid.toHexString());
-                } else {
-                    splitPoints.add(id);
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == KeyConstant.MONGO_UNAUTHORIZED_ERR_CODE ||
+                    e.getErrorCode() == KeyConstant.MONGO_ILLEGALOP_ERR_CODE) {
+                    supportSplitVector = false;
                 }
             }
-        } else {
-            int skipCount = chunkDocCount;
-            MongoCollection<Document> col = database.getCollection(collName);
-
-            for (int i = 0; i < splitPointCount; i++) {
-                Document doc = col.find().skip(skipCount).limit(chunkDocCount).first();
-                Object id = doc.get(KeyConstant.MONGO_PRIMARY_ID);
-                if (isObjectId) {
-                    ObjectId oid = (ObjectId)id;
-                    splitPoints.add(oid.toHexString());
+
+            if (supportSplitVector) {
+                boolean forceMedianSplit = false;
+                int maxChunkSize = (docCount / splitPointCount - 1) * 2 * avgObjSize / (1024 * 1024);
+                //int maxChunkSize = (chunkDocCount - 1) * 2 * avgObjSize / (1024 * 1024);
+                if (maxChunkSize < 1) {
+                    forceMedianSplit = true;
+                }
+                if (!forceMedianSplit) {
+                    result = database.runCommand(new Document("splitVector", dbName + "." + collName)
+                        .append("keyPattern", new Document(KeyConstant.MONGO_PRIMARY_ID, 1))
+                        .append("maxChunkSize", maxChunkSize)
+                        .append("maxSplitPoints", adviceNumber - 1));
                 } else {
-                    splitPoints.add(id);
+                    result = database.runCommand(new Document("splitVector", dbName + "." + collName)
+                        .append("keyPattern", new Document(KeyConstant.MONGO_PRIMARY_ID, 1))
+                        .append("force", true));
+                }
+                ArrayList<Document> splitKeys = result.get("splitKeys", ArrayList.class);
+
+                for (int i = 0; i < splitKeys.size(); i++) {
+                    Document splitKey = splitKeys.get(i);
+                    addSplitPoint(splitPoints, splitKey.get(KeyConstant.MONGO_PRIMARY_ID), isObjectId);
                 }
-                skipCount += chunkDocCount;
+            } else {
+                // 没有 splitVector 权限时，不再使用 skip 逐段定位(O(n^2))，改为对 _id 采样
+                LOG.info("User has no splitVector privilege, split collection by sampling _id.");
+                splitPoints = doSampleOrKeysetSplit(col, adviceNumber, docCount, chunkDocCount, isObjectId);
             }
         }
 
+        return buildRanges(splitPoints);
+    }
+
+    /**
+     * 按切分点把 _id 划分为首尾相接的左闭右开区间，第一个区间以 "min" 开始，最后一个区间以 "max" 结束
+     */
+    static List<Range> buildRanges(List<Object> splitPoints) {
+        List<Range> rangeList = new ArrayList<Range>();
         Object lastObjectId = "min";
         for (Object splitPoint : splitPoints) {
             Range range = new Range();
@@ -165,6 +182,184 @@ public class CollectionSplitUtil {
 
         return rangeList;
     }
+    /**
+     * 用 $bucketAuto 按 _id 把集合分成 adviceNumber 个文档数相近的桶，取每个桶的下界作为切分点；需要 MongoDB 3.4 及以上
+     */
+    private static ArrayList<Object> doBucketAutoSplit(MongoCollection<Document> col, int adviceNumber,
+                                                       boolean isObjectId) {
+        ArrayList<Object> splitPoints = new ArrayList<Object>();
+        List<Document> pipeline = Arrays.asList(
+            new Document("$bucketAuto", new Document("groupBy", "$" + KeyConstant.MONGO_PRIMARY_ID)
+                .append("buckets", adviceNumber)));
+        MongoCursor<Document> cursor = col.aggregate(pipeline).allowDiskUse(true).iterator();
+        try {
+            boolean first = true;
+            while (cursor.hasNext()) {
+                Document bucket = cursor.next();
+                if (first) {
+                    first = false;
+                    continue;
+                }
+                Document bound = (Document) bucket.get(KeyConstant.MONGO_PRIMARY_ID);
+                addSplitPoint(splitPoints, bound.get("min"), isObjectId);
+            }
+        } finally {
+            cursor.close();
+        }
+        return splitPoints;
+    }
+
+    private static ArrayList<Object> doSampleOrKeysetSplit(MongoCollection<Document> col, int adviceNumber,
+                                                           int docCount, int chunkDocCount, boolean isObjectId) {
+        try {
+            return doSampleSplit(col, adviceNumber, docCount, isObjectId);
+        } catch (MongoException e) {
+            LOG.warn("Split collection by $sample failed, fall back to keyset split.", e);
+            return doKeysetSplit(col, adviceNumber, chunkDocCount, isObjectId);
+        }
+    }
+
+    /**
+     * 用 $sample 随机采样少量 _id，排序后按 adviceNumber 取分位点作为切分点；需要 MongoDB 3.2 及以上。
+     * 采样数较小时 WiredTiger 使用随机游标，不需要扫描整个集合
+     */
+    private static ArrayList<Object> doSampleSplit(MongoCollection<Document> col, int adviceNumber,
+                                                   int docCount, boolean isObjectId) {
+        int sampleSize = (int) Math.min((long) adviceNumber * KeyConstant.SAMPLES_PER_SPLIT, docCount);
+        List<Document> pipeline = Arrays.asList(
+            new Document("$sample", new Document("size", sampleSize)),
+            new Document("$project", new Document(KeyConstant.MONGO_PRIMARY_ID, 1)),
+            new Document("$sort", new Document(KeyConstant.MONGO_PRIMARY_ID, 1)));
+        List<Object> sampleIds = new ArrayList<Object>(sampleSize);
+        MongoCursor<Document> cursor = col.aggregate(pipeline).allowDiskUse(true).iterator();
+        try {
+            while (cursor.hasNext()) {
+                sampleIds.add(cursor.next().get(KeyConstant.MONGO_PRIMARY_ID));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return selectSampleSplitPoints(sampleIds, adviceNumber, isObjectId);
+    }
+
+    /**
+     * 从排好序的采样 _id 中按 adviceNumber 取分位点，相邻重复的分位点只保留一个
+     */
+    static ArrayList<Object> selectSampleSplitPoints(List<Object> sampleIds, int adviceNumber,
+                                                     boolean isObjectId) {
+        ArrayList<Object> splitPoints = new ArrayList<Object>();
+        Object lastId = null;
+        for (int i = 1; i < adviceNumber && !sampleIds.isEmpty(); i++) {
+            Object id = sampleIds.get((int) ((long) i * sampleIds.size() / adviceNumber));
+            // 采样值重复时合并切分点，避免出现空区间
+            if (lastId == null || !lastId.equals(id)) {
+                addSplitPoint(splitPoints, id, isObjectId);
+                lastId = id;
+            }
+        }
+        return splitPoints;
+    }
+
+    /**
+     * 按 _id 范围切分：先沿 _id 索引各取一次最小、最大 _id，再在两者之间等距插值得到切分点，
+     * 只需两次索引查询，不再使用 skip。ObjectId 按其中的秒级时间戳插值，整数 _id 按数值插值；
+     * _id 分布不均匀(例如写入集中在少数时间段)时各区间的文档数会有偏差，此时应使用 sample 或 bucketAuto。
+     * 其他类型的 _id 无法插值，退化为沿 _id 索引逐段 skip 定位切分点，需要扫描 O(n) 个索引项
+     */
+    static ArrayList<Object> doKeysetSplit(MongoCollection<Document> col, int adviceNumber,
+                                           int chunkDocCount, boolean isObjectId) {
+        ArrayList<Object> splitPoints = new ArrayList<Object>();
+        Document idIndex = new Document(KeyConstant.MONGO_PRIMARY_ID, 1);
+        Document minDoc = col.find().projection(idIndex).sort(idIndex).limit(1).first();
+        Document maxDoc = col.find().projection(idIndex)
+            .sort(new Document(KeyConstant.MONGO_PRIMARY_ID, -1)).limit(1).first();
+        if (minDoc == null || maxDoc == null) {
+            return splitPoints;
+        }
+        List<Object> rangeSplitPoints = interpolateSplitPoints(minDoc.get(KeyConstant.MONGO_PRIMARY_ID),
+            maxDoc.get(KeyConstant.MONGO_PRIMARY_ID), adviceNumber);
+        if (rangeSplitPoints != null) {
+            for (Object splitPoint : rangeSplitPoints) {
+                addSplitPoint(splitPoints, splitPoint, isObjectId);
+            }
+            return splitPoints;
+        }
+
+        LOG.info("_id of collection can not be interpolated, split collection by skipping on _id index.");
+        Object lastId = null;
+        for (int i = 1; i < adviceNumber; i++) {
+            Document filter = lastId == null ? new Document()
+                : new Document(KeyConstant.MONGO_PRIMARY_ID, new Document("$gte", lastId));
+            Document doc = col.find(filter)
+                .projection(idIndex)
+                .sort(idIndex)
+                .modifiers(new Document("$hint", idIndex))
+                .skip(chunkDocCount)
+                .limit(1)
+                .first();
+            if (doc == null) {
+                break;
+            }
+            lastId = doc.get(KeyConstant.MONGO_PRIMARY_ID);
+            addSplitPoint(splitPoints, lastId, isObjectId);
+        }
+        return splitPoints;
+    }
+
+    /**
+     * 在 (minId, maxId] 之间等距插值 adviceNumber - 1 个切分点，切分点严格递增且大于 minId；
+     * minId、maxId 不是同为 ObjectId 或同为整数时无法插值，返回 null
+     */
+    static List<Object> interpolateSplitPoints(Object minId, Object maxId, int adviceNumber) {
+        List<Object> splitPoints = new ArrayList<Object>();
+        if (minId instanceof ObjectId && maxId instanceof ObjectId) {
+            // ObjectId 以秒级时间戳开头，取该秒内最小的 ObjectId 作为切分点
+            List<BigInteger> seconds = interpolate(BigInteger.valueOf(((ObjectId) minId).getTimestamp()),
+                BigInteger.valueOf(((ObjectId) maxId).getTimestamp()), adviceNumber);
+            for (BigInteger second : seconds) {
+                splitPoints.add(new ObjectId(new Date(second.longValue() * 1000L), 0, (short) 0, 0));
+            }
+            return splitPoints;
+        }
+        if (isIntegral(minId) && isIntegral(maxId)) {
+            List<BigInteger> values = interpolate(BigInteger.valueOf(((Number) minId).longValue()),
+                BigInteger.valueOf(((Number) maxId).longValue()), adviceNumber);
+            for (BigInteger value : values) {
+                splitPoints.add(value.longValue());
+            }
+            return splitPoints;
+        }
+        return null;
+    }
+
+    private static boolean isIntegral(Object id) {
+        return id instanceof Integer || id instanceof Long;
+    }
+
+    private static List<BigInteger> interpolate(BigInteger min, BigInteger max, int adviceNumber) {
+        List<BigInteger> points = new ArrayList<BigInteger>();
+        BigInteger span = max.subtract(min);
+        BigInteger last = min;
+        for (int i = 1; i < adviceNumber && span.signum() > 0; i++) {
+            BigInteger point = min.add(span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(adviceNumber)));
+            // 范围小于 adviceNumber 时相邻切分点可能相同，合并以避免空区间
+            if (point.compareTo(last) > 0) {
+                points.add(point);
+                last = point;
+            }
+        }
+        return points;
+    }
+
+    private static void addSplitPoint(List<Object> splitPoints, Object id, boolean isObjectId) {
+        if (isObjectId) {
+            ObjectId oid = (ObjectId)id;
+            splitPoints.add(oid.toHexString());
+        } else {
+            splitPoints.add(id);
+        }
+    }
 }
 
 class Range {
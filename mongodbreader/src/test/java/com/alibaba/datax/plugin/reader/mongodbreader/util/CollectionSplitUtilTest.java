@@ -0,0 +1,164 @@
+package com.alibaba.datax.plugin.reader.mongodbreader.util;
+
+import com.alibaba.datax.plugin.reader.mongodbreader.KeyConstant;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CollectionSplitUtilTest {
+
+    private static final long BASE_SECONDS = 1500000000L;
+
+    @Test
+    public void testObjectIdSplitByRange() {
+        ObjectId minId = new ObjectId(new Date(BASE_SECONDS * 1000L), 1, (short) 1, 1);
+        ObjectId maxId = new ObjectId(new Date((BASE_SECONDS + 400) * 1000L), 1, (short) 1, 1);
+        FindIterable<Document> iterable = mockFindIterable();
+        when(iterable.first()).thenReturn(idDoc(minId), idDoc(maxId));
+
+        List<Object> splitPoints = CollectionSplitUtil.doKeysetSplit(mockCollection(iterable), 4, 1000, true);
+
+        // 只查询最小、最大 _id, 不再使用 skip
+        verify(iterable, times(2)).first();
+        verify(iterable, never()).skip(anyInt());
+        Assert.assertEquals(3, splitPoints.size());
+        for (int i = 0; i < splitPoints.size(); i++) {
+            ObjectId splitPoint = new ObjectId((String) splitPoints.get(i));
+            Assert.assertEquals(BASE_SECONDS + 100 * (i + 1), splitPoint.getTimestamp());
+            Assert.assertTrue(splitPoint.compareTo(minId) > 0);
+            Assert.assertTrue(splitPoint.compareTo(maxId) < 0);
+        }
+        assertRanges(CollectionSplitUtil.buildRanges(splitPoints), splitPoints);
+    }
+
+    @Test
+    public void testIntegralIdInterpolated() {
+        Assert.assertEquals(Arrays.<Object>asList(2L, 5L, 7L),
+            CollectionSplitUtil.interpolateSplitPoints(0, 10L, 4));
+        Assert.assertEquals(Arrays.<Object>asList(-5L, 0L, 5L),
+            CollectionSplitUtil.interpolateSplitPoints(-10, 10, 4));
+        // 跨越整个 long 范围时不会溢出
+        Assert.assertEquals(Collections.<Object>singletonList(-1L),
+            CollectionSplitUtil.interpolateSplitPoints(Long.MIN_VALUE, Long.MAX_VALUE, 2));
+    }
+
+    @Test
+    public void testSmallRangeDeduplicated() {
+        // 范围小于 adviceNumber 时合并相同的切分点
+        Assert.assertEquals(Collections.<Object>singletonList(1L),
+            CollectionSplitUtil.interpolateSplitPoints(0L, 2L, 5));
+        Assert.assertTrue(CollectionSplitUtil.interpolateSplitPoints(7L, 7L, 5).isEmpty());
+
+        ObjectId id = new ObjectId(new Date(BASE_SECONDS * 1000L), 1, (short) 1, 1);
+        ObjectId sameSecond = new ObjectId(new Date(BASE_SECONDS * 1000L), 1, (short) 1, 2);
+        Assert.assertTrue(CollectionSplitUtil.interpolateSplitPoints(id, sameSecond, 5).isEmpty());
+    }
+
+    @Test
+    public void testUninterpolatableId() {
+        Assert.assertNull(CollectionSplitUtil.interpolateSplitPoints("a", "z", 4));
+        Assert.assertNull(CollectionSplitUtil.interpolateSplitPoints(1.5d, 3.5d, 4));
+        Assert.assertNull(CollectionSplitUtil.interpolateSplitPoints(1L, new ObjectId(), 4));
+    }
+
+    @Test
+    public void testUninterpolatableIdFallBackToSkip() {
+        FindIterable<Document> iterable = mockFindIterable();
+        when(iterable.first()).thenReturn(idDoc("a"), idDoc("z"), idDoc("h"), idDoc("p"), null);
+
+        List<Object> splitPoints = CollectionSplitUtil.doKeysetSplit(mockCollection(iterable), 4, 100, false);
+
+        Assert.assertEquals(Arrays.<Object>asList("h", "p"), splitPoints);
+        verify(iterable, times(3)).skip(100);
+        assertRanges(CollectionSplitUtil.buildRanges(splitPoints), splitPoints);
+    }
+
+    @Test
+    public void testEmptyCollection() {
+        FindIterable<Document> iterable = mockFindIterable();
+        when(iterable.first()).thenReturn(null);
+
+        Assert.assertTrue(CollectionSplitUtil.doKeysetSplit(mockCollection(iterable), 4, 0, true).isEmpty());
+        verify(iterable, never()).skip(anyInt());
+    }
+
+    @Test
+    public void testSampleSplitPoints() {
+        List<Object> samples = Arrays.<Object>asList(1, 1, 1, 2, 3, 4, 5, 6);
+        Assert.assertEquals(Arrays.<Object>asList(1, 3, 5),
+            CollectionSplitUtil.selectSampleSplitPoints(samples, 4, false));
+        // 分位点重复时只保留一个
+        Assert.assertEquals(Collections.<Object>singletonList(1),
+            CollectionSplitUtil.selectSampleSplitPoints(Arrays.<Object>asList(1, 1, 1, 1, 2), 3, false));
+        Assert.assertTrue(CollectionSplitUtil.selectSampleSplitPoints(new ArrayList<Object>(), 3, false).isEmpty());
+
+        ObjectId id = new ObjectId();
+        Assert.assertEquals(Collections.<Object>singletonList(id.toHexString()),
+            CollectionSplitUtil.selectSampleSplitPoints(Arrays.<Object>asList(id, id), 2, true));
+    }
+
+    @Test
+    public void testRangesCoverWholeCollection() {
+        List<Range> ranges = CollectionSplitUtil.buildRanges(new ArrayList<Object>());
+        Assert.assertEquals(1, ranges.size());
+        Assert.assertEquals("min", ranges.get(0).lowerBound);
+        Assert.assertEquals("max", ranges.get(0).upperBound);
+
+        List<Object> splitPoints = Arrays.<Object>asList(10L, 20L, 30L);
+        assertRanges(CollectionSplitUtil.buildRanges(splitPoints), splitPoints);
+    }
+
+    /**
+     * 区间首尾相接: 从 "min" 开始, 依次以切分点为界, 以 "max" 结束
+     */
+    private static void assertRanges(List<Range> ranges, List<Object> splitPoints) {
+        Assert.assertEquals(splitPoints.size() + 1, ranges.size());
+        Object lastBound = "min";
+        for (int i = 0; i < ranges.size(); i++) {
+            Assert.assertEquals(lastBound, ranges.get(i).lowerBound);
+            lastBound = i < splitPoints.size() ? splitPoints.get(i) : "max";
+            Assert.assertEquals(lastBound, ranges.get(i).upperBound);
+        }
+    }
+
+    private static Document idDoc(Object id) {
+        return new Document(KeyConstant.MONGO_PRIMARY_ID, id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FindIterable<Document> mockFindIterable() {
+        FindIterable<Document> iterable = mock(FindIterable.class);
+        when(iterable.projection(any(Bson.class))).thenReturn(iterable);
+        when(iterable.sort(any(Bson.class))).thenReturn(iterable);
+        when(iterable.modifiers(any(Bson.class))).thenReturn(iterable);
+        when(iterable.skip(anyInt())).thenReturn(iterable);
+        when(iterable.limit(anyInt())).thenReturn(iterable);
+        return iterable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<Document> mockCollection(FindIterable<Document> iterable) {
+        MongoCollection<Document> col = mock(MongoCollection.class);
+        when(col.find()).thenReturn(iterable);
+        when(col.find(any(Bson.class))).thenReturn(iterable);
+        return col;
+    }
+}
@@ -0,0 +1,151 @@
+package com.alibaba.datax.plugin.writer.mongodbwriter;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.BsonNull;
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 流水线式的 bulkWrite: 每个批次提交给后台线程以 unordered 方式写入, 最多同时有 maxInFlightBatches
+ * 个批次未完成, Task 线程在等待写入返回的同时继续读取和转换下一批数据.
+ * <p/>
+ * 批次按提交顺序回收. 单条写入失败(如唯一键冲突)时 MongoDB 会继续写入同批次的其他文档,
+ * 返回的 BulkWriteError 按下标对应回原始 record, 在 Task 线程中记为脏数据;
+ * 网络异常、writeConcern 失败等整批失败的情况直接使 Task 失败.
+ */
+public class BulkWritePipeline {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkWritePipeline.class);
+
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+
+    private final MongoCollection<BsonDocument> collection;
+
+    // 为空时使用 insert, 否则按该业务主键 upsert
+    private final String replaceKey;
+
+    private final int maxInFlightBatches;
+
+    private final TaskPluginCollector taskPluginCollector;
+
+    private final ExecutorService executor;
+
+    private final Deque<InFlightBatch> inFlightBatches = new ArrayDeque<InFlightBatch>();
+
+    private long batchCount = 0;
+
+    private long failedRecordCount = 0;
+
+    public BulkWritePipeline(MongoCollection<BsonDocument> collection, String replaceKey,
+                             int maxInFlightBatches, TaskPluginCollector taskPluginCollector) {
+        this.collection = collection;
+        this.replaceKey = replaceKey;
+        this.maxInFlightBatches = maxInFlightBatches;
+        this.taskPluginCollector = taskPluginCollector;
+        this.executor = Executors.newFixedThreadPool(maxInFlightBatches, new ThreadFactoryBuilder()
+                .setNameFormat("mongodbwriter-bulk-%d").setDaemon(true).build());
+    }
+
+    /**
+     * 提交一个批次, 未完成的批次达到上限时先等待最早提交的批次完成
+     *
+     * @param records   与 documents 一一对应, 用于把写入失败的文档记为脏数据
+     */
+    public void submit(List<Record> records, List<BsonDocument> documents) {
+        while (this.inFlightBatches.size() >= this.maxInFlightBatches) {
+            awaitOldest();
+        }
+        final List<WriteModel<BsonDocument>> models = new ArrayList<WriteModel<BsonDocument>>(documents.size());
+        for (BsonDocument document : documents) {
+            if (null == this.replaceKey) {
+                models.add(new InsertOneModel<BsonDocument>(document));
+            } else {
+                BsonValue key = document.get(this.replaceKey);
+                BsonDocument query = new BsonDocument(this.replaceKey, null == key ? BsonNull.VALUE : key);
+                models.add(new ReplaceOneModel<BsonDocument>(query, document, UPSERT));
+            }
+        }
+        Future<List<BulkWriteError>> future = this.executor.submit(() -> {
+            try {
+                collection.bulkWrite(models, UNORDERED);
+                return Collections.<BulkWriteError>emptyList();
+            } catch (MongoBulkWriteException e) {
+                if (null != e.getWriteConcernError()) {
+                    throw e;
+                }
+                return e.getWriteErrors();
+            }
+        });
+        this.inFlightBatches.addLast(new InFlightBatch(records, future));
+        this.batchCount++;
+    }
+
+    /**
+     * 等待所有已提交的批次完成
+     */
+    public void flush() {
+        while (!this.inFlightBatches.isEmpty()) {
+            awaitOldest();
+        }
+        LOG.info("bulkWrite 共写入{}个批次, 其中{}条记录写入失败.", this.batchCount, this.failedRecordCount);
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private void awaitOldest() {
+        InFlightBatch batch = this.inFlightBatches.removeFirst();
+        List<BulkWriteError> writeErrors;
+        try {
+            writeErrors = batch.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw DataXException.asDataXException(MongoDBWriterErrorCode.BULK_WRITE_EXCEPTION,
+                    "等待bulkWrite返回时被中断.", e);
+        } catch (ExecutionException e) {
+            throw DataXException.asDataXException(MongoDBWriterErrorCode.BULK_WRITE_EXCEPTION,
+                    String.format("向集合[%s]写入%s条记录失败.", this.collection.getNamespace(), batch.records.size()),
+                    e.getCause());
+        }
+        for (BulkWriteError error : writeErrors) {
+            this.taskPluginCollector.collectDirtyRecord(batch.records.get(error.getIndex()),
+                    String.format("[%s] %s", error.getCode(), error.getMessage()));
+        }
+        this.failedRecordCount += writeErrors.size();
+    }
+
+    private static class InFlightBatch {
+        private final List<Record> records;
+        private final Future<List<BulkWriteError>> future;
+
+        InFlightBatch(List<Record> records, Future<List<BulkWriteError>> future) {
+            this.records = records;
+            this.future = future;
+        }
+    }
+}
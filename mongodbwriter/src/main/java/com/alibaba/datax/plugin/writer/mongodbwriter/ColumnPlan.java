@@ -0,0 +1,247 @@
+package com.alibaba.datax.plugin.writer.mongodbwriter;
+
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.BytesColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.google.common.base.Strings;
+import com.mongodb.BasicDBObject;
+import com.mongodb.MongoClient;
+import org.bson.BsonArray;
+import org.bson.BsonBinary;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+
+/**
+ * 根据 column 配置预先编译的转换计划: 列名、类型、数组分隔符等只在 Task 初始化时解析一次,
+ * 每条 record 直接转换为 BsonDocument, 写入时不再经过 BasicDBObject 按值类型查找编码器.
+ * <p/>
+ * 转换规则与逐列判断的实现保持一致: int 类型按原始值解析; StringColumn 可转为 ObjectId、数组或 json;
+ * 其余列的类型需与配置一致, 否则该条 record 记为脏数据.
+ */
+public class ColumnPlan {
+
+    private enum Kind {
+        INT, OBJECT_ID, ARRAY, JSON, LONG, DATE, DOUBLE, BOOL, BYTES, OTHER
+    }
+
+    private enum ItemKind {
+        DOUBLE, INT, LONG, BOOL, BYTES, STRING
+    }
+
+    private final Field[] fields;
+
+    public ColumnPlan(JSONArray columnMeta) {
+        if (null == columnMeta || columnMeta.isEmpty()) {
+            throw DataXException.asDataXException(MongoDBWriterErrorCode.ILLEGAL_VALUE,
+                    "您需要配置MongoDB的column.");
+        }
+        this.fields = new Field[columnMeta.size()];
+        for (int i = 0; i < columnMeta.size(); i++) {
+            this.fields[i] = new Field(i, columnMeta.getJSONObject(i));
+        }
+    }
+
+    public int size() {
+        return this.fields.length;
+    }
+
+    /**
+     * @throws Exception 任何一列转换失败时抛出, 由调用方把整条 record 记为脏数据
+     */
+    public BsonDocument encode(Record record) throws Exception {
+        BsonDocument document = new BsonDocument();
+        for (int i = 0; i < record.getColumnNumber(); i++) {
+            Field field = this.fields[i];
+            document.put(field.name, field.encode(record.getColumn(i)));
+        }
+        return document;
+    }
+
+    private static class Field {
+        private final int index;
+        private final String name;
+        private final String type;
+        private final Kind kind;
+        private final String splitter;
+        private final ItemKind itemKind;
+
+        Field(int index, JSONObject meta) {
+            this.index = index;
+            this.name = meta.getString(KeyConstant.COLUMN_NAME);
+            this.type = meta.getString(KeyConstant.COLUMN_TYPE);
+            if (Strings.isNullOrEmpty(this.name) || Strings.isNullOrEmpty(this.type)) {
+                throw DataXException.asDataXException(MongoDBWriterErrorCode.ILLEGAL_VALUE,
+                        String.format("column的第[%s]列需要配置name和type.", index));
+            }
+            this.kind = toKind(this.type.toLowerCase());
+            if (Kind.ARRAY == this.kind) {
+                this.splitter = meta.getString(KeyConstant.COLUMN_SPLITTER);
+                if (Strings.isNullOrEmpty(this.splitter)) {
+                    throw DataXException.asDataXException(MongoDBWriterErrorCode.ILLEGAL_VALUE,
+                            String.format("数组类型的列[%s]需要配置splitter.", this.name));
+                }
+                this.itemKind = toItemKind(meta.getString(KeyConstant.ITEM_TYPE));
+            } else {
+                this.splitter = null;
+                this.itemKind = null;
+            }
+        }
+
+        BsonValue encode(Column column) throws Exception {
+            //空记录处理
+            if (isEmpty(column)) {
+                if (Kind.ARRAY == this.kind) {
+                    return new BsonArray();
+                }
+                return null == column.getRawData() ? BsonNull.VALUE : new BsonString(column.asString());
+            }
+            if (Kind.INT == this.kind) {
+                //int是特殊类型, 其他类型按照保存时Column的类型进行处理
+                return new BsonInt32(Integer.parseInt(String.valueOf(column.getRawData())));
+            }
+            if (column instanceof StringColumn) {
+                //处理ObjectId和数组类型
+                switch (this.kind) {
+                    case OBJECT_ID:
+                        return new BsonObjectId(new ObjectId(column.asString()));
+                    case ARRAY:
+                        return encodeArray(column.asString());
+                    case JSON:
+                        return encodeJson(column.asString());
+                    default:
+                        return new BsonString(column.asString());
+                }
+            } else if (column instanceof LongColumn) {
+                checkKind(Kind.LONG);
+                return new BsonInt64(column.asLong());
+            } else if (column instanceof DateColumn) {
+                checkKind(Kind.DATE);
+                return new BsonDateTime(column.asDate().getTime());
+            } else if (column instanceof DoubleColumn) {
+                checkKind(Kind.DOUBLE);
+                return new BsonDouble(column.asDouble());
+            } else if (column instanceof BoolColumn) {
+                checkKind(Kind.BOOL);
+                return BsonBoolean.valueOf(column.asBoolean());
+            } else if (column instanceof BytesColumn) {
+                checkKind(Kind.BYTES);
+                return new BsonBinary(column.asBytes());
+            }
+            return new BsonString(column.asString());
+        }
+
+        private void checkKind(Kind expected) {
+            if (expected != this.kind) {
+                throw new IllegalArgumentException("record's [" + this.index + "] column's type should be: " + this.type);
+            }
+        }
+
+        private BsonArray encodeArray(String value) {
+            String[] items = value.split(this.splitter);
+            BsonArray array = new BsonArray();
+            for (String item : items) {
+                switch (this.itemKind) {
+                    case DOUBLE:
+                        array.add(new BsonDouble(Double.parseDouble(item)));
+                        break;
+                    case INT:
+                        array.add(new BsonInt32(Integer.parseInt(item)));
+                        break;
+                    case LONG:
+                        array.add(new BsonInt64(Long.parseLong(item)));
+                        break;
+                    case BOOL:
+                        array.add(BsonBoolean.valueOf(Boolean.parseBoolean(item)));
+                        break;
+                    case BYTES:
+                        array.add(new BsonInt32(Byte.parseByte(item)));
+                        break;
+                    default:
+                        array.add(new BsonString(item));
+                }
+            }
+            return array;
+        }
+
+        /**
+         * json 的解析结果可能是文档、数组或者单值, 借助 BasicDBObject 的编码器转换为 BsonValue
+         */
+        private BsonValue encodeJson(String value) {
+            Object mode = com.mongodb.util.JSON.parse(value);
+            BasicDBObject wrapper = new BasicDBObject(this.name, JSON.toJSON(mode));
+            return wrapper.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry()).get(this.name);
+        }
+
+        private static boolean isEmpty(Column column) {
+            Object rawData = column.getRawData();
+            if (null == rawData) {
+                return true;
+            }
+            if (column instanceof StringColumn) {
+                return ((String) rawData).isEmpty();
+            }
+            if (column instanceof BytesColumn) {
+                return ((byte[]) rawData).length == 0;
+            }
+            return false;
+        }
+
+        private static Kind toKind(String type) {
+            if (Column.Type.INT.name().equalsIgnoreCase(type)) {
+                return Kind.INT;
+            } else if (KeyConstant.isObjectIdType(type)) {
+                return Kind.OBJECT_ID;
+            } else if (KeyConstant.isArrayType(type)) {
+                return Kind.ARRAY;
+            } else if ("json".equals(type)) {
+                return Kind.JSON;
+            } else if (Column.Type.LONG.name().equalsIgnoreCase(type)) {
+                return Kind.LONG;
+            } else if (Column.Type.DATE.name().equalsIgnoreCase(type)) {
+                return Kind.DATE;
+            } else if (Column.Type.DOUBLE.name().equalsIgnoreCase(type)) {
+                return Kind.DOUBLE;
+            } else if (Column.Type.BOOL.name().equalsIgnoreCase(type)) {
+                return Kind.BOOL;
+            } else if (Column.Type.BYTES.name().equalsIgnoreCase(type)) {
+                return Kind.BYTES;
+            }
+            return Kind.OTHER;
+        }
+
+        private static ItemKind toItemKind(String itemType) {
+            if (Strings.isNullOrEmpty(itemType)) {
+                return ItemKind.STRING;
+            } else if (itemType.equalsIgnoreCase(Column.Type.DOUBLE.name())) {
+                return ItemKind.DOUBLE;
+            } else if (itemType.equalsIgnoreCase(Column.Type.INT.name())) {
+                return ItemKind.INT;
+            } else if (itemType.equalsIgnoreCase(Column.Type.LONG.name())) {
+                return ItemKind.LONG;
+            } else if (itemType.equalsIgnoreCase(Column.Type.BOOL.name())) {
+                return ItemKind.BOOL;
+            } else if (itemType.equalsIgnoreCase(Column.Type.BYTES.name())) {
+                return ItemKind.BYTES;
+            }
+            return ItemKind.STRING;
+        }
+    }
+}
@@ -61,6 +61,14 @@ public class KeyConstant {
      * 指定用来判断是否覆盖的 业务主键
      */
     public static final String UNIQUE_KEY = "replaceKey";
+    /**
+     * 每次 bulkWrite 的记录条数，默认为1000
+     */
+    public static final String BATCH_SIZE = "batchSize";
+    /**
+     * 同时未完成的 bulkWrite 批次数上限，默认为1
+     */
+    public static final String MAX_IN_FLIGHT_BATCHES = "maxInFlightBatches";
     /**
      * 判断是否为数组类型
      * @param type 数据类型
@@ -0,0 +1,262 @@
+package com.alibaba.datax.plugin.writer.mongodbwriter;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcernError;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BulkWritePipelineTest {
+
+    private MongoCollection<BsonDocument> collection;
+
+    private List<Record> dirtyRecords;
+
+    private List<String> dirtyMessages;
+
+    private TaskPluginCollector collector;
+
+    private BulkWritePipeline pipeline;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        this.collection = mock(MongoCollection.class);
+        when(this.collection.getNamespace()).thenReturn(new MongoNamespace("db", "coll"));
+        this.dirtyRecords = Collections.synchronizedList(new ArrayList<Record>());
+        this.dirtyMessages = Collections.synchronizedList(new ArrayList<String>());
+        this.collector = new TaskPluginCollector() {
+            @Override
+            public void collectDirtyRecord(Record dirtyRecord, Throwable t, String errorMessage) {
+                dirtyRecords.add(dirtyRecord);
+                dirtyMessages.add(errorMessage);
+            }
+
+            @Override
+            public void collectMessage(String key, String value) {
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        if (null != this.pipeline) {
+            this.pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void testWriteErrorsMappedToRecords() {
+        // 文档中带 dup 字段的写入报唯一键冲突, 同批次其他文档照常写入
+        final List<BsonDocument> written = Collections.synchronizedList(new ArrayList<BsonDocument>());
+        stubBulkWrite(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                List<WriteModel<BsonDocument>> models = models(invocation);
+                List<BulkWriteError> errors = new ArrayList<BulkWriteError>();
+                for (int i = 0; i < models.size(); i++) {
+                    BsonDocument document = ((InsertOneModel<BsonDocument>) models.get(i)).getDocument();
+                    if (document.containsKey("dup")) {
+                        errors.add(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), i));
+                    } else {
+                        written.add(document);
+                    }
+                }
+                if (!errors.isEmpty()) {
+                    throw new MongoBulkWriteException(mock(BulkWriteResult.class), errors, null, new ServerAddress());
+                }
+                return mock(BulkWriteResult.class);
+            }
+        });
+
+        this.pipeline = new BulkWritePipeline(this.collection, null, 2, this.collector);
+        List<Record> expectedDirty = new ArrayList<Record>();
+        for (int batch = 0; batch < 3; batch++) {
+            List<Record> records = new ArrayList<Record>();
+            List<BsonDocument> documents = new ArrayList<BsonDocument>();
+            for (int i = 0; i < 4; i++) {
+                Record record = ColumnPlanTest.record(new StringColumn(batch + "-" + i));
+                BsonDocument document = new BsonDocument("v", new BsonString(batch + "-" + i));
+                if (i == 1 || (batch == 2 && i == 3)) {
+                    document.put("dup", new BsonInt32(1));
+                    expectedDirty.add(record);
+                }
+                records.add(record);
+                documents.add(document);
+            }
+            this.pipeline.submit(records, documents);
+        }
+        this.pipeline.flush();
+
+        Assert.assertEquals(expectedDirty.size(), this.dirtyRecords.size());
+        for (int i = 0; i < expectedDirty.size(); i++) {
+            // 批次按提交顺序回收, 脏数据与原始 record 一一对应
+            Assert.assertSame(expectedDirty.get(i), this.dirtyRecords.get(i));
+            Assert.assertTrue(this.dirtyMessages.get(i), this.dirtyMessages.get(i).startsWith("[11000]"));
+        }
+        Assert.assertEquals(12 - expectedDirty.size(), written.size());
+    }
+
+    @Test
+    public void testReplaceKeyUpsert() {
+        final List<WriteModel<BsonDocument>> submitted = Collections.synchronizedList(
+                new ArrayList<WriteModel<BsonDocument>>());
+        stubBulkWrite(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                submitted.addAll(models(invocation));
+                return mock(BulkWriteResult.class);
+            }
+        });
+
+        this.pipeline = new BulkWritePipeline(this.collection, "k", 1, this.collector);
+        BsonDocument withKey = new BsonDocument("k", new BsonString("a")).append("v", new BsonInt32(1));
+        BsonDocument withoutKey = new BsonDocument("v", new BsonInt32(2));
+        List<Record> records = new ArrayList<Record>();
+        records.add(ColumnPlanTest.record());
+        records.add(ColumnPlanTest.record());
+        List<BsonDocument> documents = new ArrayList<BsonDocument>();
+        documents.add(withKey);
+        documents.add(withoutKey);
+        this.pipeline.submit(records, documents);
+        this.pipeline.flush();
+
+        Assert.assertEquals(2, submitted.size());
+        ReplaceOneModel<BsonDocument> first = (ReplaceOneModel<BsonDocument>) submitted.get(0);
+        Assert.assertEquals(new BsonDocument("k", new BsonString("a")), first.getFilter());
+        Assert.assertSame(withKey, first.getReplacement());
+        Assert.assertTrue(first.getOptions().isUpsert());
+        ReplaceOneModel<BsonDocument> second = (ReplaceOneModel<BsonDocument>) submitted.get(1);
+        Assert.assertEquals(new BsonDocument("k", BsonNull.VALUE), second.getFilter());
+        Assert.assertTrue(this.dirtyRecords.isEmpty());
+    }
+
+    @Test
+    public void testWriteConcernErrorFailsTask() {
+        stubBulkWrite(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                throw new MongoBulkWriteException(mock(BulkWriteResult.class),
+                        Collections.<BulkWriteError>emptyList(),
+                        new WriteConcernError(64, "waiting for replication timed out", new BsonDocument()),
+                        new ServerAddress());
+            }
+        });
+        assertBatchFails(MongoBulkWriteException.class);
+    }
+
+    @Test
+    public void testNetworkErrorFailsTask() {
+        stubBulkWrite(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                throw new MongoSocketReadException("connection reset", new ServerAddress());
+            }
+        });
+        assertBatchFails(MongoSocketReadException.class);
+    }
+
+    @Test
+    public void testInFlightBatchesBounded() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        stubBulkWrite(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Exception {
+                int current = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                }
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } finally {
+                    running.decrementAndGet();
+                }
+                return mock(BulkWriteResult.class);
+            }
+        });
+
+        this.pipeline = new BulkWritePipeline(this.collection, null, 2, this.collector);
+        Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                release.countDown();
+            }
+        });
+        releaser.start();
+        // 第 3 个批次提交时需等待最早的批次完成
+        for (int i = 0; i < 5; i++) {
+            this.pipeline.submit(Collections.singletonList(ColumnPlanTest.record()),
+                    Collections.singletonList(new BsonDocument("i", new BsonInt32(i))));
+        }
+        this.pipeline.flush();
+        releaser.join();
+        Assert.assertTrue(String.valueOf(maxRunning.get()), maxRunning.get() <= 2);
+        Assert.assertEquals(0, running.get());
+    }
+
+    private void assertBatchFails(Class<? extends Exception> causeType) {
+        this.pipeline = new BulkWritePipeline(this.collection, null, 1, this.collector);
+        this.pipeline.submit(Collections.singletonList(ColumnPlanTest.record()),
+                Collections.singletonList(new BsonDocument("v", new BsonInt32(1))));
+        try {
+            this.pipeline.flush();
+            Assert.fail();
+        } catch (DataXException e) {
+            Assert.assertEquals(MongoDBWriterErrorCode.BULK_WRITE_EXCEPTION, e.getErrorCode());
+            Assert.assertTrue(String.valueOf(e.getCause()), causeType.isInstance(e.getCause()));
+        }
+        // 整批失败不记为脏数据
+        Assert.assertTrue(this.dirtyRecords.isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubBulkWrite(Answer<Object> answer) {
+        doAnswer(answer).when(this.collection).bulkWrite(anyList(), any(BulkWriteOptions.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<WriteModel<BsonDocument>> models(InvocationOnMock invocation) {
+        return (List<WriteModel<BsonDocument>>) invocation.getArguments()[0];
+    }
+}
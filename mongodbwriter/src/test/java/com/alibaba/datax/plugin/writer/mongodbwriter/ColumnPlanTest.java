@@ -0,0 +1,172 @@
+package com.alibaba.datax.plugin.writer.mongodbwriter;
+
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.BytesColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import org.bson.BsonArray;
+import org.bson.BsonBinary;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ColumnPlanTest {
+
+    @Test
+    public void testInt() throws Exception {
+        ColumnPlan plan = plan("[{\"name\":\"a\",\"type\":\"int\"}]");
+        Assert.assertEquals(new BsonInt32(12), encode(plan, new StringColumn("12")).get("a"));
+        Assert.assertEquals(new BsonInt32(5), encode(plan, new LongColumn(5L)).get("a"));
+        assertFails(plan, new StringColumn("abc"));
+        assertFails(plan, new LongColumn(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testObjectId() throws Exception {
+        ColumnPlan plan = plan("[{\"name\":\"_id\",\"type\":\"objectid\"}]");
+        String hex = "5f1d7a0e9b1e8a3d4c2b1a09";
+        Assert.assertEquals(new BsonObjectId(new ObjectId(hex)), encode(plan, new StringColumn(hex)).get("_id"));
+        assertFails(plan, new StringColumn("not-an-object-id"));
+    }
+
+    @Test
+    public void testArrayItemType() throws Exception {
+        Assert.assertEquals(new BsonArray(Arrays.<BsonValue>asList(new BsonInt32(1), new BsonInt32(2))),
+                encodeArray("int", ",", "1,2"));
+        Assert.assertEquals(new BsonArray(Arrays.<BsonValue>asList(new BsonInt64(1L), new BsonInt64(10000000000L))),
+                encodeArray("long", ",", "1,10000000000"));
+        Assert.assertEquals(new BsonArray(Arrays.<BsonValue>asList(new BsonDouble(1.5d), new BsonDouble(2d))),
+                encodeArray("double", ",", "1.5,2"));
+        Assert.assertEquals(new BsonArray(Arrays.<BsonValue>asList(BsonBoolean.TRUE, BsonBoolean.FALSE)),
+                encodeArray("bool", ",", "true,no"));
+        Assert.assertEquals(new BsonArray(Arrays.<BsonValue>asList(new BsonInt32(7), new BsonInt32(-1))),
+                encodeArray("bytes", ",", "7,-1"));
+        // 未配置 itemtype 时为字符串, splitter 按正则处理
+        Assert.assertEquals(new BsonArray(Arrays.<BsonValue>asList(new BsonString("a"), new BsonString("b"))),
+                encodeArray(null, "\\|", "a|b"));
+        try {
+            encodeArray("int", ",", "1,x");
+            Assert.fail();
+        } catch (NumberFormatException expected) {
+        }
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        ColumnPlan plan = plan("[{\"name\":\"doc\",\"type\":\"json\"}]");
+        BsonValue document = encode(plan, new StringColumn("{\"a\":1,\"b\":[\"x\",\"y\"],\"c\":{\"d\":true}}")).get("doc");
+        Assert.assertTrue(document.isDocument());
+        Assert.assertEquals(new BsonInt32(1), document.asDocument().get("a"));
+        Assert.assertEquals(new BsonArray(Arrays.<BsonValue>asList(new BsonString("x"), new BsonString("y"))),
+                document.asDocument().get("b"));
+        Assert.assertEquals(BsonBoolean.TRUE, document.asDocument().getDocument("c").get("d"));
+
+        BsonValue array = encode(plan, new StringColumn("[1,2]")).get("doc");
+        Assert.assertEquals(new BsonArray(Arrays.<BsonValue>asList(new BsonInt32(1), new BsonInt32(2))), array);
+        assertFails(plan, new StringColumn("{broken"));
+    }
+
+    @Test
+    public void testEmptyValues() throws Exception {
+        ColumnPlan plan = plan("[{\"name\":\"s\",\"type\":\"string\"},{\"name\":\"l\",\"type\":\"long\"},"
+                + "{\"name\":\"arr\",\"type\":\"array\",\"splitter\":\",\"},{\"name\":\"b\",\"type\":\"bytes\"},"
+                + "{\"name\":\"i\",\"type\":\"int\"}]");
+        BsonDocument document = encode(plan, new StringColumn(""), new LongColumn((Long) null),
+                new StringColumn(""), new BytesColumn(new byte[0]), new StringColumn(null));
+        Assert.assertEquals(new BsonString(""), document.get("s"));
+        Assert.assertEquals(BsonNull.VALUE, document.get("l"));
+        Assert.assertEquals(new BsonArray(), document.get("arr"));
+        Assert.assertEquals(new BsonString(""), document.get("b"));
+        // int 列的空值不做解析
+        Assert.assertEquals(BsonNull.VALUE, document.get("i"));
+    }
+
+    @Test
+    public void testColumnTypes() throws Exception {
+        ColumnPlan plan = plan("[{\"name\":\"l\",\"type\":\"long\"},{\"name\":\"d\",\"type\":\"date\"},"
+                + "{\"name\":\"f\",\"type\":\"double\"},{\"name\":\"b\",\"type\":\"bool\"},"
+                + "{\"name\":\"bs\",\"type\":\"bytes\"},{\"name\":\"s\",\"type\":\"string\"}]");
+        BsonDocument document = encode(plan, new LongColumn(1L), new DateColumn(1000L), new DoubleColumn(1.5d),
+                new BoolColumn(true), new BytesColumn(new byte[]{1, 2}), new StringColumn("v"));
+        Assert.assertEquals(new BsonInt64(1L), document.get("l"));
+        Assert.assertEquals(new BsonDateTime(1000L), document.get("d"));
+        Assert.assertEquals(new BsonDouble(1.5d), document.get("f"));
+        Assert.assertEquals(BsonBoolean.TRUE, document.get("b"));
+        Assert.assertEquals(new BsonBinary(new byte[]{1, 2}), document.get("bs"));
+        Assert.assertEquals(new BsonString("v"), document.get("s"));
+
+        // 源端列类型与配置不一致时整条记录为脏数据
+        plan = plan("[{\"name\":\"s\",\"type\":\"string\"}]");
+        assertFails(plan, new LongColumn(1L));
+        // 源端列数少于配置时只写入已有的列
+        plan = plan("[{\"name\":\"a\",\"type\":\"string\"},{\"name\":\"b\",\"type\":\"string\"}]");
+        document = encode(plan, new StringColumn("x"));
+        Assert.assertEquals(1, document.size());
+    }
+
+    @Test
+    public void testIllegalConfig() {
+        for (String columns : new String[]{"[]", "[{\"name\":\"a\"}]", "[{\"type\":\"string\"}]",
+                "[{\"name\":\"a\",\"type\":\"array\"}]"}) {
+            try {
+                plan(columns);
+                Assert.fail(columns);
+            } catch (DataXException e) {
+                Assert.assertEquals(MongoDBWriterErrorCode.ILLEGAL_VALUE, e.getErrorCode());
+            }
+        }
+    }
+
+    private static BsonValue encodeArray(String itemType, String splitter, String value) throws Exception {
+        String meta = String.format("[{\"name\":\"arr\",\"type\":\"array\",\"splitter\":%s%s}]",
+                JSON.toJSONString(splitter), null == itemType ? "" : ",\"itemtype\":\"" + itemType + "\"");
+        return encode(plan(meta), new StringColumn(value)).get("arr");
+    }
+
+    private static void assertFails(ColumnPlan plan, Column column) {
+        try {
+            encode(plan, column);
+            Assert.fail();
+        } catch (Exception expected) {
+        }
+    }
+
+    private static ColumnPlan plan(String columns) {
+        return new ColumnPlan(JSON.parseArray(columns));
+    }
+
+    static BsonDocument encode(ColumnPlan plan, Column... columns) throws Exception {
+        return plan.encode(record(columns));
+    }
+
+    static Record record(Column... columns) {
+        Record record = mock(Record.class);
+        when(record.getColumnNumber()).thenReturn(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            when(record.getColumn(i)).thenReturn(columns[i]);
+        }
+        return record;
+    }
+}
@@ -8,6 +8,7 @@ import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.datax.plugin.rdbms.reader.CommonRdbmsReader;
 import com.alibaba.datax.plugin.rdbms.reader.Key;
 import com.alibaba.datax.plugin.rdbms.reader.Constant;
+import com.alibaba.datax.plugin.rdbms.reader.util.IncrementalWatermarkUtil;
 import com.alibaba.datax.plugin.reader.oceanbasev10reader.OceanBaseReader;
 import com.alibaba.datax.plugin.reader.oceanbasev10reader.util.ObReaderUtils;
 import com.alibaba.datax.plugin.reader.oceanbasev10reader.util.PartitionSplitUtil;
@@ -51,7 +52,9 @@ public class ReaderJob extends CommonRdbmsReader.Job {
         List<Configuration> list;
         // readByPartition is lower priority than splitPk.
         // and readByPartition only works in table mode.
+        // incremental mode generates per-table where, which only the splitPk path applies.
         if (!isSplitPkValid(originalConfig) &&
+                !IncrementalWatermarkUtil.isIncremental(originalConfig) &&
                 originalConfig.getBool(Constant.IS_TABLE_MODE) &&
                 originalConfig.getBool(ObReaderKey.READ_BY_PARTITION, false)) {
             LOG.info("try to split reader job by partition.");
@@ -58,28 +58,6 @@ public class OssSplitUtil extends UnstructuredSplitUtil {
         return inputStream;
     }
 
-    private Boolean canSplitSingleFile(Configuration jobConfig) {
-        Boolean enableInnerSplit = jobConfig.getBool(com.alibaba.datax.plugin.unstructuredstorage.reader.Key.ENABLE_INNER_SPLIT, true);
-        if (!enableInnerSplit) {
-            return false;
-        }
-
-        // 默认不切分
-        String fileFormat = jobConfig.getString(com.alibaba.datax.plugin.unstructuredstorage.reader.Key.FILE_FORMAT,
-                com.alibaba.datax.plugin.unstructuredstorage.reader.Constant.DEFAULT_FILE_FORMAT);
-        String compressType = jobConfig.getString(com.alibaba.datax.plugin.unstructuredstorage.reader.Key.COMPRESS);
-
-        // 如果不满足"是text格式且非压缩文件"，则直接返回false
-        if (! StringUtils.equalsIgnoreCase(fileFormat, com.alibaba.datax.plugin.unstructuredstorage.reader.Constant.FILE_FORMAT_TEXT) ||
-                ! StringUtils.isBlank(compressType)) {
-            return false;
-        }
-
-        // todo: 判断文件是否为软连接文件，如果为软连接文件，则不支持内部切分
-
-        return true;
-    }
-
     private boolean isGroupsBalance(List<Group> groups) {
         assert (groups != null);
 
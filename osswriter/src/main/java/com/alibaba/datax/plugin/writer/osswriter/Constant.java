@@ -13,4 +13,6 @@ public class Constant {
      * https://help.aliyun.com/document_detail/31993.html
      */
     public static final int MAX_BLOCK_SIZE = 10000;
+
+    public static final int DEFAULT_UPLOAD_CONCURRENCY = 3;
 }
@@ -25,6 +25,11 @@ public class Key {
 
     public static final String BLOCK_SIZE_IN_MB = "blockSizeInMB";
 
+    /**
+     * uploadConcurrency: 每个task同时上传的分块数
+     */
+    public static final String UPLOAD_CONCURRENCY = "uploadConcurrency";
+
     public static final String OSS_CONFIG = "oss";
     public static final String POSTGRESQL_CONFIG = "postgresql";
 
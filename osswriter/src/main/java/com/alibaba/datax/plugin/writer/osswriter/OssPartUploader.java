@@ -0,0 +1,227 @@
+package com.alibaba.datax.plugin.writer.osswriter;
+
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.PartETag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个task内的并发分块上传：task线程把数据编码进分块缓冲区后提交，由上传线程池并行执行uploadPart，
+ * 编码与网络等待重叠进行。
+ * <p/>
+ * 分块缓冲区最多创建 uploadConcurrency + 1 个并循环使用，全部在上传时task线程阻塞等待，
+ * 因此内存占用上限约为 (uploadConcurrency + 1) * blockSizeInMB。
+ * 任一分块上传失败后，下一次提交或 awaitAll 时把异常抛给task线程，由调用方 abort 整个分块上传。
+ */
+public class OssPartUploader {
+    private static final Logger LOG = LoggerFactory.getLogger(OssPartUploader.class);
+
+    private final OssWriterProxy ossWriterProxy;
+
+    private final int maxBufferCount;
+
+    private final int initialBufferSize;
+
+    private final BlockingQueue<PartBuffer> idleBuffers;
+
+    private int createdBufferCount = 0;
+
+    private final ExecutorService executor;
+
+    private final List<Future<Void>> pendingParts = new ArrayList<Future<Void>>();
+
+    private volatile boolean aborted = false;
+
+    public OssPartUploader(OssWriterProxy ossWriterProxy, int uploadConcurrency, long blockSizeInByte,
+                           final String threadName) {
+        this.ossWriterProxy = ossWriterProxy;
+        int concurrency = Math.max(1, uploadConcurrency);
+        this.maxBufferCount = concurrency + 1;
+        this.initialBufferSize = (int) Math.min(blockSizeInByte, Integer.MAX_VALUE - 8);
+        this.idleBuffers = new ArrayBlockingQueue<PartBuffer>(this.maxBufferCount);
+        final AtomicInteger threadIndex = new AtomicInteger(0);
+        this.executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread t = new Thread(r, threadName + "-" + threadIndex.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 取一个空的分块缓冲区，已创建的缓冲区都在上传时阻塞到有分块上传结束
+     */
+    public PartBuffer borrowBuffer() throws InterruptedException {
+        PartBuffer buffer = this.idleBuffers.poll();
+        if (buffer == null) {
+            if (this.createdBufferCount < this.maxBufferCount) {
+                this.createdBufferCount++;
+                return new PartBuffer(this.initialBufferSize);
+            }
+            buffer = this.idleBuffers.take();
+        }
+        buffer.reset();
+        return buffer;
+    }
+
+    public void releaseBuffer(PartBuffer buffer) {
+        if (buffer != null) {
+            this.idleBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * 异步上传一个分块, 上传结束后缓冲区自动归还; partETags 会被上传线程并发写入, 需要是线程安全的list
+     */
+    public void submitPart(final PartBuffer buffer, final int partNumber,
+                           final InitiateMultipartUploadResult currentInitiateMultipartUploadResult,
+                           final List<PartETag> partETags, final String currentObject) throws Exception {
+        try {
+            checkFinishedParts();
+        } catch (Exception e) {
+            releaseBuffer(buffer);
+            throw e;
+        }
+        this.pendingParts.add(this.executor.submit(() -> {
+            try {
+                if (!this.aborted) {
+                    this.ossWriterProxy.uploadOnePart(buffer.getBuffer(), buffer.size(), partNumber,
+                            currentInitiateMultipartUploadResult, partETags, currentObject);
+                }
+                return null;
+            } finally {
+                releaseBuffer(buffer);
+            }
+        }));
+    }
+
+    /**
+     * 等待当前已提交的分块全部上传完成，并把 partETags 按 part number 递增排序，之后才能 complete
+     */
+    public void awaitAll(List<PartETag> partETags) throws Exception {
+        try {
+            for (Future<Void> part : this.pendingParts) {
+                getResult(part);
+            }
+        } finally {
+            this.pendingParts.clear();
+        }
+        synchronized (partETags) {
+            Collections.sort(partETags, new Comparator<PartETag>() {
+                @Override
+                public int compare(PartETag o1, PartETag o2) {
+                    return o1.getPartNumber() - o2.getPartNumber();
+                }
+            });
+        }
+    }
+
+    /**
+     * 丢弃尚未开始的分块，等待正在上传的分块结束后 abort 整个分块上传，已上传的分块由OSS删除
+     */
+    public void abort(String currentObject, String uploadId) {
+        this.aborted = true;
+        try {
+            for (Future<Void> part : this.pendingParts) {
+                try {
+                    part.get();
+                } catch (Exception ignored) {
+                    // 上传失败的原因已经由调用方处理
+                }
+            }
+        } finally {
+            this.pendingParts.clear();
+            this.aborted = false;
+        }
+        if (uploadId != null) {
+            LOG.warn("abort multipart upload of object [{}], uploadId: {}", currentObject, uploadId);
+            this.ossWriterProxy.abortMultipartUpload(currentObject, uploadId);
+        }
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private void checkFinishedParts() throws Exception {
+        Iterator<Future<Void>> it = this.pendingParts.iterator();
+        while (it.hasNext()) {
+            Future<Void> part = it.next();
+            if (part.isDone()) {
+                it.remove();
+                getResult(part);
+            }
+        }
+    }
+
+    private static void getResult(Future<Void> part) throws Exception {
+        try {
+            part.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 可复用的分块缓冲区，上传时直接使用内部数组，不再 toByteArray 拷贝
+     */
+    public static class PartBuffer extends ByteArrayOutputStream {
+        PartBuffer(int initialSize) {
+            super(initialSize);
+        }
+
+        byte[] getBuffer() {
+            return this.buf;
+        }
+
+        /**
+         * 把字符直接编码进缓冲区，避免 toString().getBytes() 产生的中间 String 与 byte[]
+         */
+        public void write(CharSequence chars, CharsetEncoder encoder) throws CharacterCodingException {
+            CharBuffer in = CharBuffer.wrap(chars);
+            encoder.reset();
+            ByteBuffer out = ByteBuffer.wrap(this.buf, this.count, this.buf.length - this.count);
+            while (true) {
+                CoderResult result = encoder.encode(in, out, true);
+                if (result.isUnderflow()) {
+                    result = encoder.flush(out);
+                }
+                if (result.isUnderflow()) {
+                    break;
+                }
+                if (result.isOverflow()) {
+                    this.count = out.position();
+                    int expected = this.count + (int) (in.remaining() * encoder.averageBytesPerChar()) + 16;
+                    this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length << 1, expected));
+                    out = ByteBuffer.wrap(this.buf, this.count, this.buf.length - this.count);
+                    continue;
+                }
+                result.throwException();
+            }
+            this.count = out.position();
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.alibaba.datax.plugin.writer.osswriter;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -616,6 +619,8 @@ public class OssWriter extends Writer {
         private OssWriterProxy ossWriterProxy;
         private List<String> partition;
         private boolean generateEmptyFile;
+        private OssPartUploader partUploader;
+        private CharsetEncoder charsetEncoder;
 
         @Override
         public void init() {
@@ -689,6 +694,14 @@ public class OssWriter extends Writer {
             this.partition = this.writerSliceConfig.getList(Key.PARTITION, new ArrayList<>(), String.class);
             //是否生成空文件开关
             this.generateEmptyFile = this.writerSliceConfig.getBool(Key.GENERATE_EMPTY_FILE,true);
+            int uploadConcurrency = this.writerSliceConfig.getInt(Key.UPLOAD_CONCURRENCY,
+                    Constant.DEFAULT_UPLOAD_CONCURRENCY);
+            this.partUploader = new OssPartUploader(this.ossWriterProxy, uploadConcurrency, this.blockSizeInByte,
+                    String.format("oss-upload-%s-%s", this.getTaskGroupId(), this.getTaskId()));
+            // 与 String.getBytes 一致, 无法编码的字符替换为默认字符
+            this.charsetEncoder = Charset.forName(this.encoding).newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
         }
 
         @Override
@@ -797,9 +810,10 @@ public class OssWriter extends Writer {
             int currentPartNumber = 1;
             Map<String, String> meta;
 
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            OssPartUploader.PartBuffer partBuffer = null;
             long currentSize = 0;
             try {
+                partBuffer = this.partUploader.borrowBuffer();
                 // warn
                 boolean needInitMultipartTransform = true;
                 while ((record = lineReceiver.getFromReader()) != null) {
@@ -817,12 +831,13 @@ public class OssWriter extends Writer {
                         if (null != currentInitiateMultipartUploadResult) {
                             // 如果还有部分分库数据没有提交，则先提交
                             if (currentSize > 0) {
-                                this.ossWriterProxy.uploadOnePart(byteArrayOutputStream.toByteArray(), currentPartNumber,
+                                this.partUploader.submitPart(partBuffer, currentPartNumber,
                                         currentInitiateMultipartUploadResult, currentPartETags, currentObject);
                                 currentPartNumber++;
                                 currentSize = 0;
-                                byteArrayOutputStream.reset();
+                                partBuffer = this.partUploader.borrowBuffer();
                             }
+                            this.partUploader.awaitAll(currentPartETags);
                             // TODO 如果当前文件是空文件
                             String commitKey = currentInitiateMultipartUploadResult.getKey();
                             LOG.info(String.format(
@@ -843,7 +858,7 @@ public class OssWriter extends Writer {
                         currentInitiateMultipartUploadRequest = this.ossWriterProxy.getInitiateMultipartUploadRequest(currentObject);
                         currentInitiateMultipartUploadResult = this.ossWriterProxy.initiateMultipartUpload(
                                 currentInitiateMultipartUploadRequest);
-                        currentPartETags = new ArrayList<PartETag>();
+                        currentPartETags = Collections.synchronizedList(new ArrayList<PartETag>());
                         LOG.info(String.format("write to bucket: [%s] object: [%s] with oss uploadId: [%s]",
                                 this.bucket, currentObject, currentInitiateMultipartUploadResult.getUploadId()));
                         // warn
@@ -854,18 +869,18 @@ public class OssWriter extends Writer {
                     byte[] data;
                     if (column instanceof BytesColumn) {
                         data = column.asBytes();
-                        byteArrayOutputStream.write(data);
+                        partBuffer.write(data);
                         currentSize += data.length;
                     } else {
                         String message = "the type of column must be BytesColumn!";
                         throw DataXException.asDataXException(OssWriterErrorCode.Write_OBJECT_ERROR, message);
                     }
                     if (currentSize >= this.blockSizeInByte) {
-                        this.ossWriterProxy.uploadOnePart(byteArrayOutputStream.toByteArray(), currentPartNumber,
+                        this.partUploader.submitPart(partBuffer, currentPartNumber,
                                 currentInitiateMultipartUploadResult, currentPartETags, currentObject);
                         currentPartNumber++;
                         currentSize = 0;
-                        byteArrayOutputStream.reset();
+                        partBuffer = this.partUploader.borrowBuffer();
                     }
                 }
 
@@ -876,15 +891,19 @@ public class OssWriter extends Writer {
                             currentObject);
                     currentInitiateMultipartUploadResult = this.ossWriterProxy.initiateMultipartUpload(
                             currentInitiateMultipartUploadRequest);
-                    currentPartETags = new ArrayList<PartETag>();
+                    currentPartETags = Collections.synchronizedList(new ArrayList<PartETag>());
                 }
 
-                // warn: may be some data stall in byteArrayOutputStream
-                if (byteArrayOutputStream.size() > 0) {
-                    this.ossWriterProxy.uploadOnePart(byteArrayOutputStream.toByteArray(), currentPartNumber,
+                // warn: may be some data stall in partBuffer
+                if (partBuffer.size() > 0) {
+                    this.partUploader.submitPart(partBuffer, currentPartNumber,
                             currentInitiateMultipartUploadResult, currentPartETags, currentObject);
                     currentPartNumber++;
+                } else {
+                    this.partUploader.releaseBuffer(partBuffer);
                 }
+                partBuffer = null;
+                this.partUploader.awaitAll(currentPartETags);
 
                 // 避免重复提交
                 if (!StringUtils.equals(lastUploadId, currentInitiateMultipartUploadResult.getUploadId())) {
@@ -896,11 +915,15 @@ public class OssWriter extends Writer {
                     LOG.info(String.format("final object etag is:[%s]", completeMultipartUploadResult.getETag()));
                 }
             } catch (IOException e) {
+                abortUpload(currentInitiateMultipartUploadResult, lastUploadId);
                 // 脏数据UnstructuredStorageWriterUtil.transportOneRecord已经记录,header
                 // 都是字符串不认为有脏数据
                 throw DataXException.asDataXException(OssWriterErrorCode.Write_OBJECT_ERROR, e.getMessage(), e);
             } catch (Exception e) {
+                abortUpload(currentInitiateMultipartUploadResult, lastUploadId);
                 throw DataXException.asDataXException(OssWriterErrorCode.Write_OBJECT_ERROR, e.getMessage(), e);
+            } finally {
+                this.partUploader.releaseBuffer(partBuffer);
             }
             LOG.info("end do write");
         }
@@ -977,6 +1000,7 @@ public class OssWriter extends Writer {
                                 currentPartNumber++;
                                 sb.setLength(0);
                             }
+                            this.partUploader.awaitAll(currentPartETags);
                             // TODO 如果当前文件是空文件
                             String commitKey = currentInitiateMultipartUploadResult.getKey();
                             LOG.info(String.format(
@@ -995,7 +1019,7 @@ public class OssWriter extends Writer {
 
                         currentInitiateMultipartUploadRequest = this.ossWriterProxy.getInitiateMultipartUploadRequest(currentObject);
                         currentInitiateMultipartUploadResult = this.ossWriterProxy.initiateMultipartUpload(currentInitiateMultipartUploadRequest);
-                        currentPartETags = new ArrayList<PartETag>();
+                        currentPartETags = Collections.synchronizedList(new ArrayList<PartETag>());
                         LOG.info(String
                                 .format("write to bucket: [%s] object: [%s] with oss uploadId: [%s]",
                                         this.bucket, currentObject,
@@ -1030,7 +1054,7 @@ public class OssWriter extends Writer {
                     currentInitiateMultipartUploadRequest = new InitiateMultipartUploadRequest(
                             this.bucket, currentObject);
                     currentInitiateMultipartUploadResult = this.ossWriterProxy.initiateMultipartUpload(currentInitiateMultipartUploadRequest);
-                    currentPartETags = new ArrayList<PartETag>();
+                    currentPartETags = Collections.synchronizedList(new ArrayList<PartETag>());
                     // each object's header
                     if (null != this.header && !this.header.isEmpty()) {
                         unstructuredWriter.writeOneRecord(this.header);
@@ -1042,6 +1066,7 @@ public class OssWriter extends Writer {
                             currentInitiateMultipartUploadResult,
                             currentPartETags, currentObject);
                 }
+                this.partUploader.awaitAll(currentPartETags);
 
                 // 避免重复提交
                 if (!StringUtils.equals(lastUploadId, currentInitiateMultipartUploadResult.getUploadId())) {
@@ -1062,11 +1087,13 @@ public class OssWriter extends Writer {
                     }
                 }
             } catch (IOException e) {
+                abortUpload(currentInitiateMultipartUploadResult, lastUploadId);
                 // 脏数据UnstructuredStorageWriterUtil.transportOneRecord已经记录,header
                 // 都是字符串不认为有脏数据
                 throw DataXException.asDataXException(
                         OssWriterErrorCode.Write_OBJECT_ERROR, e.getMessage(), e);
             } catch (Exception e) {
+                abortUpload(currentInitiateMultipartUploadResult, lastUploadId);
                 throw DataXException.asDataXException(
                         OssWriterErrorCode.Write_OBJECT_ERROR, e.getMessage(), e);
             }
@@ -1123,6 +1150,7 @@ public class OssWriter extends Writer {
         /**
          * 对于同一个UploadID，该号码不但唯一标识这一块数据，也标识了这块数据在整个文件内的相对位置。
          * 如果你用同一个part号码，上传了新的数据，那么OSS上已有的这个号码的Part数据将被覆盖。
+         * 分块异步上传，complete 之前需要调用 partUploader.awaitAll。
          *
          * @throws Exception
          * */
@@ -1132,9 +1160,28 @@ public class OssWriter extends Writer {
                 final InitiateMultipartUploadResult currentInitiateMultipartUploadResult,
                 final List<PartETag> partETags, final String currentObject)
                 throws Exception {
-            final String encoding = this.encoding;
-            final byte[] byteArray = sw.toString().getBytes(encoding);
-            this.ossWriterProxy.uploadOnePart(byteArray, partNumber, currentInitiateMultipartUploadResult, partETags, currentObject);
+            OssPartUploader.PartBuffer partBuffer = this.partUploader.borrowBuffer();
+            try {
+                partBuffer.write(sw.getBuffer(), this.charsetEncoder);
+            } catch (Exception e) {
+                this.partUploader.releaseBuffer(partBuffer);
+                throw e;
+            }
+            this.partUploader.submitPart(partBuffer, partNumber, currentInitiateMultipartUploadResult, partETags, currentObject);
+        }
+
+        /**
+         * 写入失败时 abort 尚未 complete 的分块上传，避免在OSS上残留碎片
+         */
+        private void abortUpload(InitiateMultipartUploadResult currentInitiateMultipartUploadResult, String lastUploadId) {
+            String uploadId = null;
+            String commitKey = null;
+            if (null != currentInitiateMultipartUploadResult
+                    && !StringUtils.equals(lastUploadId, currentInitiateMultipartUploadResult.getUploadId())) {
+                uploadId = currentInitiateMultipartUploadResult.getUploadId();
+                commitKey = currentInitiateMultipartUploadResult.getKey();
+            }
+            this.partUploader.abort(commitKey, uploadId);
         }
 
         @Override
@@ -1159,6 +1206,9 @@ public class OssWriter extends Writer {
                 hdfsWriterTask.destroy();
                 return;
             }
+            if (this.partUploader != null) {
+                this.partUploader.shutdown();
+            }
             try {
                 // this.ossClient.shutdown();
             } catch (Exception e) {
@@ -83,27 +83,42 @@ public class OssWriterProxy {
             final List<PartETag> partETags,
             final String currentObject)
             throws Exception {
+        uploadOnePart(byteArray, byteArray.length, partNumber, currentInitiateMultipartUploadResult,
+                partETags, currentObject);
+    }
+
+    /**
+     * 上传 byteArray 的前 length 个字节，byteArray 可以是复用的缓冲区
+     */
+    public void uploadOnePart(
+            final byte[] byteArray,
+            final int length,
+            final int partNumber,
+            final InitiateMultipartUploadResult currentInitiateMultipartUploadResult,
+            final List<PartETag> partETags,
+            final String currentObject)
+            throws Exception {
         final String bucket = this.bucket;
         final OSSClient ossClient = this.ossClient;
         RetryUtil.executeWithRetry(new Callable<Boolean>() {
             @Override
             public Boolean call() throws Exception {
                 InputStream inputStream = new ByteArrayInputStream(
-                        byteArray);
+                        byteArray, 0, length);
                 // 创建UploadPartRequest，上传分块
                 UploadPartRequest uploadPartRequest = new UploadPartRequest();
                 uploadPartRequest.setBucketName(bucket);
                 uploadPartRequest.setKey(currentObject);
                 uploadPartRequest.setUploadId(currentInitiateMultipartUploadResult.getUploadId());
                 uploadPartRequest.setInputStream(inputStream);
-                uploadPartRequest.setPartSize(byteArray.length);
+                uploadPartRequest.setPartSize(length);
                 uploadPartRequest.setPartNumber(partNumber);
                 UploadPartResult uploadPartResult = ossClient
                         .uploadPart(uploadPartRequest);
                 partETags.add(uploadPartResult.getPartETag());
                 logger.info(String
                         .format("upload part [%s] size [%s] Byte has been completed.",
-                                partNumber, byteArray.length));
+                                partNumber, length));
                 IOUtils.closeQuietly(inputStream);
                 return true;
             }
@@ -0,0 +1,241 @@
+package com.alibaba.datax.plugin.writer.osswriter;
+
+import com.alibaba.datax.common.util.Configuration;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.PartETag;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class OssPartUploaderTest {
+
+    private static final String OBJECT = "dir/object";
+
+    private FakeOssWriterProxy proxy;
+
+    private OssPartUploader uploader;
+
+    private InitiateMultipartUploadResult upload;
+
+    @Before
+    public void setUp() {
+        this.proxy = new FakeOssWriterProxy();
+        this.upload = new InitiateMultipartUploadResult();
+        this.upload.setKey(OBJECT);
+        this.upload.setUploadId("upload-1");
+    }
+
+    @After
+    public void tearDown() {
+        if (this.uploader != null) {
+            this.uploader.shutdown();
+        }
+    }
+
+    @Test
+    public void testPartsUploadedAndSorted() throws Exception {
+        this.uploader = new OssPartUploader(this.proxy, 3, 16, "test-upload");
+        List<PartETag> partETags = Collections.synchronizedList(new ArrayList<PartETag>());
+        for (int partNumber = 1; partNumber <= 10; partNumber++) {
+            submit(partNumber, "part-" + partNumber, partETags);
+        }
+        this.uploader.awaitAll(partETags);
+
+        Assert.assertEquals(10, partETags.size());
+        for (int i = 0; i < partETags.size(); i++) {
+            Assert.assertEquals(i + 1, partETags.get(i).getPartNumber());
+            Assert.assertEquals("part-" + (i + 1), this.proxy.uploaded.get(i + 1));
+        }
+        Assert.assertTrue(this.proxy.aborted.isEmpty());
+    }
+
+    @Test
+    public void testFailureSurfacesAndAborts() throws Exception {
+        this.uploader = new OssPartUploader(this.proxy, 2, 16, "test-upload");
+        IOException error = new IOException("upload part failed");
+        this.proxy.failures.put(2, error);
+        List<PartETag> partETags = Collections.synchronizedList(new ArrayList<PartETag>());
+        try {
+            // 失败可能在提交第 3 个分块时抛出，也可能在 awaitAll 时抛出
+            for (int partNumber = 1; partNumber <= 3; partNumber++) {
+                submit(partNumber, "part-" + partNumber, partETags);
+            }
+            this.uploader.awaitAll(partETags);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertSame(error, e);
+        }
+        this.uploader.abort(OBJECT, this.upload.getUploadId());
+        Assert.assertEquals(Collections.singletonList(OBJECT + ":upload-1"), this.proxy.aborted);
+
+        // abort 之后可以继续上传下一个文件
+        this.proxy.failures.clear();
+        partETags = Collections.synchronizedList(new ArrayList<PartETag>());
+        submit(1, "next", partETags);
+        this.uploader.awaitAll(partETags);
+        Assert.assertEquals(1, partETags.size());
+        Assert.assertEquals("next", this.proxy.uploaded.get(1));
+    }
+
+    @Test
+    public void testFailureSurfacesOnNextSubmit() throws Exception {
+        this.uploader = new OssPartUploader(this.proxy, 1, 16, "test-upload");
+        IOException error = new IOException("upload part failed");
+        this.proxy.failures.put(1, error);
+        List<PartETag> partETags = Collections.synchronizedList(new ArrayList<PartETag>());
+        submit(1, "part-1", partETags);
+        Assert.assertTrue(this.proxy.finished.await(10, TimeUnit.SECONDS));
+
+        // 上传线程结束后 future 才会完成，失败最晚在下一次提交时抛出
+        try {
+            for (int partNumber = 2; partNumber <= 100; partNumber++) {
+                submit(partNumber, "part-" + partNumber, partETags);
+                Thread.sleep(10L);
+            }
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertSame(error, e);
+        }
+        this.uploader.abort(OBJECT, this.upload.getUploadId());
+        Assert.assertEquals(1, this.proxy.aborted.size());
+        assertAllBuffersIdle(2);
+    }
+
+    @Test
+    public void testAbortSkipsQueuedParts() throws Exception {
+        this.uploader = new OssPartUploader(this.proxy, 1, 16, "test-upload");
+        this.proxy.blocker = new CountDownLatch(1);
+        this.proxy.failures.put(1, new IOException("upload part failed"));
+        List<PartETag> partETags = Collections.synchronizedList(new ArrayList<PartETag>());
+        submit(1, "part-1", partETags);
+        submit(2, "part-2", partETags);
+
+        Thread aborter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                uploader.abort(OBJECT, upload.getUploadId());
+            }
+        });
+        aborter.start();
+        // abort 先标记再等待正在上传的分块
+        while (aborter.getState() != Thread.State.WAITING) {
+            Assert.assertTrue(aborter.isAlive());
+            Thread.sleep(1L);
+        }
+        this.proxy.blocker.countDown();
+        aborter.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(aborter.isAlive());
+
+        Assert.assertEquals(Collections.singletonList(1), this.proxy.attempted);
+        Assert.assertTrue(partETags.isEmpty());
+        Assert.assertEquals(Collections.singletonList(OBJECT + ":upload-1"), this.proxy.aborted);
+        assertAllBuffersIdle(2);
+    }
+
+    @Test
+    public void testAbortWithoutUploadId() throws Exception {
+        this.uploader = new OssPartUploader(this.proxy, 1, 16, "test-upload");
+        this.uploader.abort(null, null);
+        Assert.assertTrue(this.proxy.aborted.isEmpty());
+    }
+
+    @Test
+    public void testPartBufferEncodesChars() throws Exception {
+        OssPartUploader.PartBuffer buffer = new OssPartUploader.PartBuffer(1);
+        String text = "中文,abc\n";
+        for (int i = 0; i < 100; i++) {
+            buffer.write(text, StandardCharsets.UTF_8.newEncoder());
+        }
+        byte[] expected = new byte[0];
+        for (int i = 0; i < 100; i++) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            int offset = expected.length;
+            expected = Arrays.copyOf(expected, offset + bytes.length);
+            System.arraycopy(bytes, 0, expected, offset, bytes.length);
+        }
+        Assert.assertArrayEquals(expected, buffer.toByteArray());
+    }
+
+    private void submit(int partNumber, String content, List<PartETag> partETags) throws Exception {
+        OssPartUploader.PartBuffer buffer = this.uploader.borrowBuffer();
+        buffer.write(content.getBytes(StandardCharsets.UTF_8));
+        this.uploader.submitPart(buffer, partNumber, this.upload, partETags, OBJECT);
+    }
+
+    /**
+     * 所有缓冲区都已归还时，可以不阻塞地借出全部缓冲区
+     */
+    private void assertAllBuffersIdle(final int bufferCount) throws Exception {
+        Thread borrower = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < bufferCount; i++) {
+                        uploader.borrowBuffer();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        borrower.start();
+        borrower.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(borrower.isAlive());
+    }
+
+    private static class FakeOssWriterProxy extends OssWriterProxy {
+
+        private final Map<Integer, String> uploaded = new ConcurrentHashMap<Integer, String>();
+
+        private final Map<Integer, Exception> failures = new ConcurrentHashMap<Integer, Exception>();
+
+        private final List<Integer> attempted = Collections.synchronizedList(new ArrayList<Integer>());
+
+        private final List<String> aborted = Collections.synchronizedList(new ArrayList<String>());
+
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private volatile CountDownLatch blocker;
+
+        FakeOssWriterProxy() {
+            super(Configuration.newDefault(), null);
+        }
+
+        @Override
+        public void uploadOnePart(byte[] byteArray, int length, int partNumber,
+                                  InitiateMultipartUploadResult currentInitiateMultipartUploadResult,
+                                  List<PartETag> partETags, String currentObject) throws Exception {
+            this.attempted.add(partNumber);
+            try {
+                if (this.blocker != null) {
+                    this.blocker.await();
+                }
+                Exception failure = this.failures.get(partNumber);
+                if (failure != null) {
+                    throw failure;
+                }
+                this.uploaded.put(partNumber, new String(byteArray, 0, length, StandardCharsets.UTF_8));
+                partETags.add(new PartETag(partNumber, "etag-" + partNumber));
+            } finally {
+                this.finished.countDown();
+            }
+        }
+
+        @Override
+        public void abortMultipartUpload(String currentObject, String uploadId) {
+            this.aborted.add(currentObject + ":" + uploadId);
+        }
+    }
+}
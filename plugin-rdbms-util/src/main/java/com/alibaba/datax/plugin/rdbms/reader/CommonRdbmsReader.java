@@ -1,18 +1,15 @@
 package com.alibaba.datax.plugin.rdbms.reader;
 
-import com.alibaba.datax.common.element.BoolColumn;
-import com.alibaba.datax.common.element.BytesColumn;
-import com.alibaba.datax.common.element.DateColumn;
-import com.alibaba.datax.common.element.DoubleColumn;
-import com.alibaba.datax.common.element.LongColumn;
 import com.alibaba.datax.common.element.Record;
-import com.alibaba.datax.common.element.StringColumn;
 import com.alibaba.datax.common.exception.DataXException;
 import com.alibaba.datax.common.plugin.RecordSender;
 import com.alibaba.datax.common.plugin.TaskPluginCollector;
 import com.alibaba.datax.common.statistics.PerfRecord;
 import com.alibaba.datax.common.statistics.PerfTrace;
 import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.plugin.rdbms.reader.util.ColumnDecodePlan;
+import com.alibaba.datax.plugin.rdbms.reader.util.FetchPipeline;
+import com.alibaba.datax.plugin.rdbms.reader.util.IncrementalWatermarkUtil;
 import com.alibaba.datax.plugin.rdbms.reader.util.OriginalConfPretreatmentUtil;
 import com.alibaba.datax.plugin.rdbms.reader.util.PreCheckTask;
 import com.alibaba.datax.plugin.rdbms.reader.util.ReaderSplitUtil;
@@ -30,7 +27,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
-import java.sql.Types;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -104,7 +101,8 @@ public class CommonRdbmsReader {
         }
 
         public void post(Configuration originalConfig) {
-            // do nothing
+            // 所有task成功后才推进增量水位
+            IncrementalWatermarkUtil.saveWatermarks(originalConfig);
         }
 
         public void destroy(Configuration originalConfig) {
@@ -127,6 +125,11 @@ public class CommonRdbmsReader {
         private String password;
         private String jdbcUrl;
         private String mandatoryEncoding;
+        private boolean fetchPipeline;
+
+        // 按 ResultSetMetaData 计算的逐列转换计划, metaData 变化时重新计算
+        private ColumnDecodePlan decodePlan;
+        private ResultSetMetaData decodePlanMetaData;
 
         // 作为日志显示信息时，需要附带的通用信息。比如信息所对应的数据库连接等信息，针对哪个表做的操作
         private String basicMsg;
@@ -164,6 +167,7 @@ public class CommonRdbmsReader {
             }
 
             this.mandatoryEncoding = readerSliceConfig.getString(Key.MANDATORY_ENCODING, "");
+            this.fetchPipeline = readerSliceConfig.getBool(Key.FETCH_PIPELINE, false);
 
             basicMsg = String.format("jdbcUrl:[%s]", this.jdbcUrl);
 
@@ -203,15 +207,23 @@ public class CommonRdbmsReader {
                 allResultPerfRecord.start();
 
                 long rsNextUsedTime = 0;
-                long lastTime = System.nanoTime();
-                while (rs.next()) {
-                    rsNextUsedTime += (System.nanoTime() - lastTime);
-                    this.transportOneRecord(recordSender, rs,
-                            metaData, columnNumber, mandatoryEncoding, taskPluginCollector);
-                    lastTime = System.nanoTime();
+                if (this.fetchPipeline && supportFetchPipeline()) {
+                    rsNextUsedTime = this.readWithFetchPipeline(recordSender, rs,
+                            metaData, columnNumber, taskPluginCollector);
+                } else {
+                    long lastTime = System.nanoTime();
+                    while (rs.next()) {
+                        rsNextUsedTime += (System.nanoTime() - lastTime);
+                        this.transportOneRecord(recordSender, rs,
+                                metaData, columnNumber, mandatoryEncoding, taskPluginCollector);
+                        lastTime = System.nanoTime();
+                    }
                 }
 
                 allResultPerfRecord.end(rsNextUsedTime);
+                if (this.decodePlan != null) {
+                    LOG.info("Column decode cost of task[{}]: {}.", taskId, this.decodePlan.getCostSummary());
+                }
                 //目前大盘是依赖这个打印，而之前这个Finish read record是包含了sql查询和result next的全部时间
                 LOG.info("Finished read record by Sql: [{}\n] {}.",
                         querySql, basicMsg);
@@ -240,114 +252,84 @@ public class CommonRdbmsReader {
         }
         protected Record buildRecord(RecordSender recordSender,ResultSet rs, ResultSetMetaData metaData, int columnNumber, String mandatoryEncoding,
         		TaskPluginCollector taskPluginCollector) {
-        	Record record = recordSender.createRecord();
+            Object[] raw = null;
+            ColumnDecodePlan plan = null;
+            try {
+                plan = getDecodePlan(metaData, columnNumber, mandatoryEncoding);
+                raw = plan.fetch(rs);
+            } catch (Exception e) {
+                return collectDirtyRecord(recordSender.createRecord(), e, taskPluginCollector);
+            }
+            return decodeRecord(recordSender, plan, raw, taskPluginCollector);
+        }
 
+        /**
+         * 由 {@link ColumnDecodePlan} 取出的原始值构建 record, 转换失败时记为脏数据
+         */
+        protected Record decodeRecord(RecordSender recordSender, ColumnDecodePlan plan, Object[] raw,
+                                      TaskPluginCollector taskPluginCollector) {
+            Record record = recordSender.createRecord();
             try {
-                for (int i = 1; i <= columnNumber; i++) {
-                    switch (metaData.getColumnType(i)) {
-
-                    case Types.CHAR:
-                    case Types.NCHAR:
-                    case Types.VARCHAR:
-                    case Types.LONGVARCHAR:
-                    case Types.NVARCHAR:
-                    case Types.LONGNVARCHAR:
-                        String rawData;
-                        if(StringUtils.isBlank(mandatoryEncoding)){
-                            rawData = rs.getString(i);
-                        }else{
-                            rawData = new String((rs.getBytes(i) == null ? EMPTY_CHAR_ARRAY : 
-                                rs.getBytes(i)), mandatoryEncoding);
-                        }
-                        record.addColumn(new StringColumn(rawData));
-                        break;
-
-                    case Types.CLOB:
-                    case Types.NCLOB:
-                        record.addColumn(new StringColumn(rs.getString(i)));
-                        break;
-
-                    case Types.SMALLINT:
-                    case Types.TINYINT:
-                    case Types.INTEGER:
-                    case Types.BIGINT:
-                        record.addColumn(new LongColumn(rs.getString(i)));
-                        break;
-
-                    case Types.NUMERIC:
-                    case Types.DECIMAL:
-                        record.addColumn(new DoubleColumn(rs.getString(i)));
-                        break;
-
-                    case Types.FLOAT:
-                    case Types.REAL:
-                    case Types.DOUBLE:
-                        record.addColumn(new DoubleColumn(rs.getString(i)));
-                        break;
-
-                    case Types.TIME:
-                        record.addColumn(new DateColumn(rs.getTime(i)));
-                        break;
-
-                    // for mysql bug, see http://bugs.mysql.com/bug.php?id=35115
-                    case Types.DATE:
-                        if (metaData.getColumnTypeName(i).equalsIgnoreCase("year")) {
-                            record.addColumn(new LongColumn(rs.getInt(i)));
-                        } else {
-                            record.addColumn(new DateColumn(rs.getDate(i)));
-                        }
-                        break;
-
-                    case Types.TIMESTAMP:
-                        record.addColumn(new DateColumn(rs.getTimestamp(i)));
-                        break;
-
-                    case Types.BINARY:
-                    case Types.VARBINARY:
-                    case Types.BLOB:
-                    case Types.LONGVARBINARY:
-                        record.addColumn(new BytesColumn(rs.getBytes(i)));
-                        break;
-
-                    // warn: bit(1) -> Types.BIT 可使用BoolColumn
-                    // warn: bit(>1) -> Types.VARBINARY 可使用BytesColumn
-                    case Types.BOOLEAN:
-                    case Types.BIT:
-                        record.addColumn(new BoolColumn(rs.getBoolean(i)));
-                        break;
-
-                    case Types.NULL:
-                        String stringData = null;
-                        if(rs.getObject(i) != null) {
-                            stringData = rs.getObject(i).toString();
-                        }
-                        record.addColumn(new StringColumn(stringData));
-                        break;
-
-                    default:
-                        throw DataXException
-                                .asDataXException(
-                                        DBUtilErrorCode.UNSUPPORTED_TYPE,
-                                        String.format(
-                                                "您的配置文件中的列配置信息有误. 因为DataX 不支持数据库读取这种字段类型. 字段名:[%s], 字段名称:[%s], 字段Java类型:[%s]. 请尝试使用数据库函数将其转换datax支持的类型 或者不同步该字段 .",
-                                                metaData.getColumnName(i),
-                                                metaData.getColumnType(i),
-                                                metaData.getColumnClassName(i)));
-                    }
-                }
+                plan.decode(raw, record);
             } catch (Exception e) {
-                if (IS_DEBUG) {
-                    LOG.debug("read data " + record.toString()
-                            + " occur exception:", e);
-                }
-                //TODO 这里识别为脏数据靠谱吗？
-                taskPluginCollector.collectDirtyRecord(record, e);
-                if (e instanceof DataXException) {
-                    throw (DataXException) e;
-                }
+                collectDirtyRecord(record, e, taskPluginCollector);
             }
             return record;
         }
+
+        private Record collectDirtyRecord(Record record, Exception e, TaskPluginCollector taskPluginCollector) {
+            if (IS_DEBUG) {
+                LOG.debug("read data " + record.toString()
+                        + " occur exception:", e);
+            }
+            //TODO 这里识别为脏数据靠谱吗？
+            taskPluginCollector.collectDirtyRecord(record, e);
+            if (e instanceof DataXException) {
+                throw (DataXException) e;
+            }
+            return record;
+        }
+
+        protected ColumnDecodePlan getDecodePlan(ResultSetMetaData metaData, int columnNumber,
+                                                 String mandatoryEncoding) throws SQLException {
+            if (this.decodePlan == null || this.decodePlanMetaData != metaData
+                    || this.decodePlan.getColumnNumber() != columnNumber) {
+                this.decodePlan = ColumnDecodePlan.compile(metaData, columnNumber, mandatoryEncoding);
+                this.decodePlanMetaData = metaData;
+            }
+            return this.decodePlan;
+        }
+
+        /**
+         * 子类重写了 transportOneRecord/buildRecord 且依赖 ResultSet 时应返回 false, 此时忽略 fetchPipeline 配置
+         */
+        protected boolean supportFetchPipeline() {
+            return true;
+        }
+
+        /**
+         * 独立线程 fetch, 当前线程 decode 并发送; recordSender 不是线程安全的, 因此 decode 不再拆分到多个线程
+         *
+         * @return rs.next 的累计耗时(ns)
+         */
+        protected long readWithFetchPipeline(RecordSender recordSender, ResultSet rs, ResultSetMetaData metaData,
+                                             int columnNumber, TaskPluginCollector taskPluginCollector) throws Exception {
+            ColumnDecodePlan plan = getDecodePlan(metaData, columnNumber, this.mandatoryEncoding);
+            FetchPipeline pipeline = new FetchPipeline(rs, plan, Constant.FETCH_PIPELINE_BATCH_SIZE,
+                    Constant.FETCH_PIPELINE_QUEUE_SIZE, "rdbms-fetch-" + this.taskGroupId + "-" + this.taskId);
+            pipeline.start();
+            try {
+                List<Object[]> batch;
+                while ((batch = pipeline.nextBatch()) != null) {
+                    for (Object[] raw : batch) {
+                        recordSender.sendToWriter(decodeRecord(recordSender, plan, raw, taskPluginCollector));
+                    }
+                }
+            } finally {
+                pipeline.close();
+            }
+            return pipeline.getResultNextNanos();
+        }
     }
 
 }
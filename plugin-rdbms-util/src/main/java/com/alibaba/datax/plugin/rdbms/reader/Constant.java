@@ -27,4 +27,14 @@ public final class Constant {
 
     public static Integer SPLIT_FACTOR = 5;
 
+    public static final int FETCH_PIPELINE_BATCH_SIZE = 256;
+
+    public static final int FETCH_PIPELINE_QUEUE_SIZE = 8;
+
+    public static String INCREMENTAL_WATERMARK_MARK = "incrementalWatermark";
+
+    public static final String INCREMENTAL_STATE_DIR = "state";
+
+    public static final String INCREMENTAL_STATE_FILE_NAME = "rdbms_incremental_watermark.json";
+
 }
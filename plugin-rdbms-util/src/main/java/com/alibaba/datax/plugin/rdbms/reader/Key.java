@@ -55,4 +55,16 @@ public final class Key {
     public final static String REUSE_CONN = "reuseConn";
 
     public final static String PARTITION_NAME = "partitionName";
+
+    //默认值：false, 开启后由独立线程执行 rs.next 与取值, reader 线程只做类型转换
+    public final static String FETCH_PIPELINE = "fetchPipeline";
+
+    //增量抽取使用的单调递增字段(如自增id/更新时间), 配置后只读取上次水位之后的数据
+    public final static String INCREMENTAL_COLUMN = "incrementalColumn";
+
+    //增量水位状态文件, 默认: ${datax.home}/state/rdbms_incremental_watermark.json
+    public final static String INCREMENTAL_STATE_FILE = "incrementalStateFile";
+
+    //内部使用: 合并了增量区间的每张表的 where 条件, 与 connection[i].table 一一对应
+    public final static String INCREMENTAL_WHERE = "incrementalWhere";
 }
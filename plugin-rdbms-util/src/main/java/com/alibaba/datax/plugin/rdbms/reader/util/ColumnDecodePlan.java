@@ -0,0 +1,303 @@
+package com.alibaba.datax.plugin.rdbms.reader.util;
+
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.BytesColumn;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.plugin.rdbms.util.DBUtilErrorCode;
+import org.apache.commons.lang3.StringUtils;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * 根据 ResultSetMetaData 预先计算每一列的取值与转换方式, 逐行处理时不再查询 metaData。
+ * <p/>
+ * 处理分为两段: fetch 只调用 ResultSet 的 getter 取出原始值(驱动解析), 必须在持有游标的线程执行;
+ * decode 把原始值转换为 Column(字符集解码、数值解析等), 可以在另一个线程执行。
+ * 两段每隔 SAMPLE_INTERVAL 行按列采样一次耗时, 用于估算逐列的取值与转换开销。
+ * <p/>
+ * 转换语义与 CommonRdbmsReader.Task#buildRecord 原有实现一致: 某一列取值或转换失败时, 之前的列已加入 record, 由调用方记为脏数据。
+ */
+public class ColumnDecodePlan {
+    private static final int SAMPLE_INTERVAL = 1024;
+
+    private static final byte[] EMPTY_CHAR_ARRAY = new byte[0];
+
+    private enum Kind {
+        STRING, ENCODED_STRING, LONG, DOUBLE, TIME, YEAR, DATE, TIMESTAMP, BYTES, BOOL, OBJECT, UNSUPPORTED
+    }
+
+    /**
+     * fetch 阶段某一列取值失败, 该列及之后的列不再取值, decode 到这一列时抛出原异常
+     */
+    private static final class FetchFailure {
+        private final Exception cause;
+
+        private FetchFailure(Exception cause) {
+            this.cause = cause;
+        }
+    }
+
+    private final Kind[] kinds;
+
+    private final String[] columnNames;
+
+    private final String[] unsupportedMessages;
+
+    private final String mandatoryEncoding;
+
+    private final long[] fetchNanos;
+
+    private final long[] decodeNanos;
+
+    private long fetchRows = 0;
+
+    private long decodeRows = 0;
+
+    private long fetchSampledRows = 0;
+
+    private long decodeSampledRows = 0;
+
+    private ColumnDecodePlan(Kind[] kinds, String[] columnNames, String[] unsupportedMessages, String mandatoryEncoding) {
+        this.kinds = kinds;
+        this.columnNames = columnNames;
+        this.unsupportedMessages = unsupportedMessages;
+        this.mandatoryEncoding = mandatoryEncoding;
+        this.fetchNanos = new long[kinds.length];
+        this.decodeNanos = new long[kinds.length];
+    }
+
+    public static ColumnDecodePlan compile(ResultSetMetaData metaData, int columnNumber,
+                                           String mandatoryEncoding) throws SQLException {
+        Kind[] kinds = new Kind[columnNumber];
+        String[] columnNames = new String[columnNumber];
+        String[] unsupportedMessages = new String[columnNumber];
+        boolean encoded = StringUtils.isNotBlank(mandatoryEncoding);
+        for (int i = 0; i < columnNumber; i++) {
+            int index = i + 1;
+            columnNames[i] = metaData.getColumnName(index);
+            switch (metaData.getColumnType(index)) {
+                case Types.CHAR:
+                case Types.NCHAR:
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                case Types.NVARCHAR:
+                case Types.LONGNVARCHAR:
+                    kinds[i] = encoded ? Kind.ENCODED_STRING : Kind.STRING;
+                    break;
+
+                case Types.CLOB:
+                case Types.NCLOB:
+                    kinds[i] = Kind.STRING;
+                    break;
+
+                case Types.SMALLINT:
+                case Types.TINYINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                    kinds[i] = Kind.LONG;
+                    break;
+
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                case Types.FLOAT:
+                case Types.REAL:
+                case Types.DOUBLE:
+                    kinds[i] = Kind.DOUBLE;
+                    break;
+
+                case Types.TIME:
+                    kinds[i] = Kind.TIME;
+                    break;
+
+                // for mysql bug, see http://bugs.mysql.com/bug.php?id=35115
+                case Types.DATE:
+                    kinds[i] = metaData.getColumnTypeName(index).equalsIgnoreCase("year") ? Kind.YEAR : Kind.DATE;
+                    break;
+
+                case Types.TIMESTAMP:
+                    kinds[i] = Kind.TIMESTAMP;
+                    break;
+
+                case Types.BINARY:
+                case Types.VARBINARY:
+                case Types.BLOB:
+                case Types.LONGVARBINARY:
+                    kinds[i] = Kind.BYTES;
+                    break;
+
+                // warn: bit(1) -> Types.BIT 可使用BoolColumn
+                // warn: bit(>1) -> Types.VARBINARY 可使用BytesColumn
+                case Types.BOOLEAN:
+                case Types.BIT:
+                    kinds[i] = Kind.BOOL;
+                    break;
+
+                case Types.NULL:
+                    kinds[i] = Kind.OBJECT;
+                    break;
+
+                default:
+                    kinds[i] = Kind.UNSUPPORTED;
+                    unsupportedMessages[i] = String.format(
+                            "您的配置文件中的列配置信息有误. 因为DataX 不支持数据库读取这种字段类型. 字段名:[%s], 字段名称:[%s], 字段Java类型:[%s]. 请尝试使用数据库函数将其转换datax支持的类型 或者不同步该字段 .",
+                            metaData.getColumnName(index),
+                            metaData.getColumnType(index),
+                            metaData.getColumnClassName(index));
+                    break;
+            }
+        }
+        return new ColumnDecodePlan(kinds, columnNames, unsupportedMessages, mandatoryEncoding);
+    }
+
+    public int getColumnNumber() {
+        return this.kinds.length;
+    }
+
+    /**
+     * 从 ResultSet 当前行取出原始值, 不抛出异常, 取值失败记录在返回的数组中由 decode 抛出
+     */
+    public Object[] fetch(ResultSet rs) {
+        boolean sample = (this.fetchRows++ % SAMPLE_INTERVAL) == 0;
+        if (sample) {
+            this.fetchSampledRows++;
+        }
+        Object[] raw = new Object[this.kinds.length];
+        for (int i = 0; i < this.kinds.length; i++) {
+            long start = sample ? System.nanoTime() : 0L;
+            try {
+                raw[i] = fetchColumn(rs, i);
+            } catch (Exception e) {
+                raw[i] = new FetchFailure(e);
+                break;
+            }
+            if (sample) {
+                this.fetchNanos[i] += System.nanoTime() - start;
+            }
+        }
+        return raw;
+    }
+
+    /**
+     * 该行取值时抛出了 DataXException(如不支持的字段类型), decode 时会使 task 失败, fetch 无需继续
+     */
+    public static boolean isFatal(Object[] raw) {
+        for (int i = raw.length - 1; i >= 0; i--) {
+            if (raw[i] instanceof FetchFailure) {
+                return ((FetchFailure) raw[i]).cause instanceof DataXException;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把原始值逐列转换后加入 record; 失败时已转换的列保留在 record 中
+     */
+    public void decode(Object[] raw, Record record) throws Exception {
+        boolean sample = (this.decodeRows++ % SAMPLE_INTERVAL) == 0;
+        if (sample) {
+            this.decodeSampledRows++;
+        }
+        for (int i = 0; i < this.kinds.length; i++) {
+            Object value = raw[i];
+            if (value instanceof FetchFailure) {
+                throw ((FetchFailure) value).cause;
+            }
+            long start = sample ? System.nanoTime() : 0L;
+            decodeColumn(value, i, record);
+            if (sample) {
+                this.decodeNanos[i] += System.nanoTime() - start;
+            }
+        }
+    }
+
+    private Object fetchColumn(ResultSet rs, int i) throws Exception {
+        int index = i + 1;
+        switch (this.kinds[i]) {
+            case STRING:
+            case LONG:
+            case DOUBLE:
+                return rs.getString(index);
+            case ENCODED_STRING:
+            case BYTES:
+                return rs.getBytes(index);
+            case TIME:
+                return rs.getTime(index);
+            case YEAR:
+                return rs.getInt(index);
+            case DATE:
+                return rs.getDate(index);
+            case TIMESTAMP:
+                return rs.getTimestamp(index);
+            case BOOL:
+                return rs.getBoolean(index);
+            case OBJECT:
+                return rs.getObject(index);
+            default:
+                throw DataXException.asDataXException(DBUtilErrorCode.UNSUPPORTED_TYPE, this.unsupportedMessages[i]);
+        }
+    }
+
+    private void decodeColumn(Object value, int i, Record record) throws Exception {
+        switch (this.kinds[i]) {
+            case STRING:
+                record.addColumn(new StringColumn((String) value));
+                break;
+            case ENCODED_STRING:
+                record.addColumn(new StringColumn(new String(
+                        value == null ? EMPTY_CHAR_ARRAY : (byte[]) value, this.mandatoryEncoding)));
+                break;
+            case LONG:
+                record.addColumn(new LongColumn((String) value));
+                break;
+            case DOUBLE:
+                record.addColumn(new DoubleColumn((String) value));
+                break;
+            case TIME:
+                record.addColumn(new DateColumn((java.sql.Time) value));
+                break;
+            case YEAR:
+                record.addColumn(new LongColumn((Integer) value));
+                break;
+            case DATE:
+                record.addColumn(new DateColumn((java.sql.Date) value));
+                break;
+            case TIMESTAMP:
+                record.addColumn(new DateColumn((java.sql.Timestamp) value));
+                break;
+            case BYTES:
+                record.addColumn(new BytesColumn((byte[]) value));
+                break;
+            case BOOL:
+                record.addColumn(new BoolColumn((Boolean) value));
+                break;
+            case OBJECT:
+                record.addColumn(new StringColumn(value == null ? null : value.toString()));
+                break;
+            default:
+                throw DataXException.asDataXException(DBUtilErrorCode.UNSUPPORTED_TYPE, this.unsupportedMessages[i]);
+        }
+    }
+
+    /**
+     * 逐列平均耗时(采样), 单位纳秒; 需在 fetch 与 decode 都结束后调用
+     */
+    public String getCostSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("sampled rows fetch=").append(this.fetchSampledRows)
+                .append(", decode=").append(this.decodeSampledRows).append("; per column avg ns(fetch/decode):");
+        for (int i = 0; i < this.kinds.length; i++) {
+            sb.append(i == 0 ? " " : ", ").append(this.columnNames[i]).append('[').append(this.kinds[i]).append("]=")
+                    .append(this.fetchSampledRows == 0 ? 0 : this.fetchNanos[i] / this.fetchSampledRows).append('/')
+                    .append(this.decodeSampledRows == 0 ? 0 : this.decodeNanos[i] / this.decodeSampledRows);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,151 @@
+package com.alibaba.datax.plugin.rdbms.reader.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 独立的 fetch 线程执行 rs.next 与 {@link ColumnDecodePlan#fetch(ResultSet)}, 按批放入有界队列,
+ * reader 线程取出后 decode 并发送给 writer, 使网络等待与类型转换重叠。
+ * <p/>
+ * fetch 线程出错时在批次结束后抛给 reader 线程; reader 线程出错或结束时调用 close 停止 fetch 线程。
+ */
+public class FetchPipeline {
+    private static final Logger LOG = LoggerFactory.getLogger(FetchPipeline.class);
+
+    private static final List<Object[]> TERMINATOR = Collections.unmodifiableList(new ArrayList<Object[]>(0));
+
+    private static final long OFFER_TIMEOUT_MS = 100L;
+
+    private final ResultSet rs;
+
+    private final ColumnDecodePlan plan;
+
+    private final int batchSize;
+
+    private final BlockingQueue<List<Object[]>> queue;
+
+    private final ExecutorService executor;
+
+    private Future<?> future;
+
+    private volatile boolean stopped = false;
+
+    private volatile Throwable fetchError;
+
+    private volatile long resultNextNanos = 0;
+
+    public FetchPipeline(ResultSet rs, ColumnDecodePlan plan, int batchSize, int queueSize, String threadName) {
+        this.rs = rs;
+        this.plan = plan;
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new ArrayBlockingQueue<List<Object[]>>(Math.max(1, queueSize));
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat(threadName)
+                .setDaemon(true)
+                .build());
+    }
+
+    public void start() {
+        this.future = this.executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                fetchAll();
+            }
+        });
+    }
+
+    private void fetchAll() {
+        try {
+            List<Object[]> batch = new ArrayList<Object[]>(this.batchSize);
+            long rsNextUsedTime = 0;
+            long lastTime = System.nanoTime();
+            while (!this.stopped && this.rs.next()) {
+                rsNextUsedTime += (System.nanoTime() - lastTime);
+                Object[] raw = this.plan.fetch(this.rs);
+                batch.add(raw);
+                boolean fatal = ColumnDecodePlan.isFatal(raw);
+                if (batch.size() >= this.batchSize || fatal) {
+                    put(batch);
+                    batch = new ArrayList<Object[]>(this.batchSize);
+                }
+                if (fatal) {
+                    break;
+                }
+                lastTime = System.nanoTime();
+            }
+            this.resultNextNanos = rsNextUsedTime;
+            if (!batch.isEmpty()) {
+                put(batch);
+            }
+        } catch (Throwable e) {
+            this.fetchError = e;
+        } finally {
+            try {
+                put(TERMINATOR);
+            } catch (InterruptedException unused) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void put(List<Object[]> batch) throws InterruptedException {
+        while (!this.stopped) {
+            if (this.queue.offer(batch, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 下一批原始行, 全部读完时返回 null
+     */
+    public List<Object[]> nextBatch() throws Exception {
+        List<Object[]> batch = this.queue.take();
+        if (batch != TERMINATOR) {
+            return batch;
+        }
+        Throwable e = this.fetchError;
+        if (e instanceof Exception) {
+            throw (Exception) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return null;
+    }
+
+    /**
+     * rs.next 的累计耗时(ns), 在 close 之后读取
+     */
+    public long getResultNextNanos() {
+        return this.resultNextNanos;
+    }
+
+    /**
+     * 停止 fetch 线程并等待其退出, 之后才能关闭 ResultSet 所在的连接
+     */
+    public void close() {
+        this.stopped = true;
+        this.queue.clear();
+        try {
+            if (this.future != null) {
+                this.future.get();
+            }
+        } catch (Exception e) {
+            LOG.warn("等待 fetch 线程结束时出现异常: {}", e.getMessage());
+        } finally {
+            this.executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.alibaba.datax.plugin.rdbms.reader.util;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.plugin.rdbms.reader.Constant;
+import com.alibaba.datax.plugin.rdbms.reader.Key;
+import com.alibaba.datax.plugin.rdbms.util.DBUtil;
+import com.alibaba.datax.plugin.rdbms.util.DBUtilErrorCode;
+import com.alibaba.datax.plugin.rdbms.util.DataBaseType;
+import com.alibaba.datax.plugin.rdbms.util.RdbmsException;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 增量抽取：按单调递增的 incrementalColumn 只读取 (上次水位, 本次最大值] 区间内的数据。
+ * <ol>
+ * <li>init 时对每张表执行 SELECT MAX(incrementalColumn) ... WHERE incrementalColumn > 上次水位，与上次水位一起生成区间条件，
+ * 水位的大小比较都在数据库中完成，字符串字段按数据库自身的排序规则比较，
+ * 和用户配置的 where 合并后回写到 connection[i].incrementalWhere，split 时按表使用，与 splitPk 切分叠加</li>
+ * <li>作业成功结束后在 post 中把本次最大值写回状态文件；作业失败时水位不变，重跑会读取同一区间</li>
+ * </ol>
+ * 状态文件为本地 json 文件，key 为 jdbcUrl(去掉参数)/表名#列名，写入时加文件锁并整体替换。
+ */
+public final class IncrementalWatermarkUtil {
+    private static final Logger LOG = LoggerFactory
+            .getLogger(IncrementalWatermarkUtil.class);
+
+    private static final String VALUE_TYPE_NUMBER = "number";
+
+    private static final String VALUE_TYPE_TIMESTAMP = "timestamp";
+
+    private static final String VALUE_TYPE_STRING = "string";
+
+    private static final String STATE_WATERMARK = "watermark";
+
+    private static final String STATE_VALUE_TYPE = "valueType";
+
+    private static final String STATE_COLUMN = "column";
+
+    private static final String STATE_UPDATE_TIME = "updateTime";
+
+    private static final String STATE_KEY = "key";
+
+    private IncrementalWatermarkUtil() {
+    }
+
+    public static boolean isIncremental(Configuration originalConfig) {
+        return StringUtils.isNotBlank(originalConfig.getString(Key.INCREMENTAL_COLUMN, null));
+    }
+
+    /**
+     * 需在 jdbcUrl 选定、table 展开之后调用
+     */
+    public static void dealIncremental(Configuration originalConfig, DataBaseType dataBaseType) {
+        if (!isIncremental(originalConfig)) {
+            return;
+        }
+        boolean isTableMode = originalConfig.getBool(Constant.IS_TABLE_MODE);
+        if (!isTableMode) {
+            LOG.warn("您的配置有误. 由于您读取数据库表采用了querySql的方式, incrementalColumn 不会生效. 请在 querySql 中自行指定增量条件, 或者改用 table 方式.");
+            originalConfig.remove(Key.INCREMENTAL_COLUMN);
+            return;
+        }
+
+        String incrementalColumn = originalConfig.getString(Key.INCREMENTAL_COLUMN).trim();
+        String where = originalConfig.getString(Key.WHERE, null);
+        String username = originalConfig.getString(Key.USERNAME);
+        String password = originalConfig.getString(Key.PASSWORD);
+        File stateFile = getStateFile(originalConfig);
+        originalConfig.set(Key.INCREMENTAL_STATE_FILE, stateFile.getAbsolutePath());
+        JSONObject states = loadStates(stateFile);
+
+        List<Map<String, Object>> pendingWatermarks = new ArrayList<Map<String, Object>>();
+        List<Object> conns = originalConfig.getList(Constant.CONN_MARK, Object.class);
+        for (int i = 0, len = conns.size(); i < len; i++) {
+            Configuration connConf = Configuration.from(conns.get(i).toString());
+            String jdbcUrl = connConf.getString(Key.JDBC_URL);
+            List<String> tables = connConf.getList(Key.TABLE, String.class);
+
+            List<String> tableWheres = new ArrayList<String>();
+            Connection conn = DBUtil.getConnection(dataBaseType, jdbcUrl, username, password);
+            try {
+                for (String table : tables) {
+                    String stateKey = buildStateKey(jdbcUrl, table, incrementalColumn);
+                    JSONObject lastState = states.getJSONObject(stateKey);
+                    String lastWatermark = null == lastState ? null : lastState.getString(STATE_WATERMARK);
+                    String lastLiteral = null == lastWatermark ? null
+                            : toLiteral(dataBaseType, lastState.getString(STATE_VALUE_TYPE), lastWatermark);
+
+                    // 只取大于上次水位的最大值, 大小比较交给数据库, 与读取时的区间条件使用同一套排序规则
+                    String[] currentMax = queryMax(conn, dataBaseType, incrementalColumn, table, where,
+                            lastLiteral, username);
+                    String valueType = currentMax[0];
+                    String maxWatermark = currentMax[1];
+
+                    String range = buildRange(dataBaseType, valueType, incrementalColumn, lastLiteral, maxWatermark);
+                    if (null == maxWatermark) {
+                        // 没有新数据, 水位保持不变
+                        LOG.info("table:[{}] 没有新增数据, 增量水位保持为:[{}].", table, lastWatermark);
+                    } else {
+                        Map<String, Object> pending = new HashMap<String, Object>();
+                        pending.put(STATE_KEY, stateKey);
+                        pending.put(STATE_COLUMN, incrementalColumn);
+                        pending.put(STATE_VALUE_TYPE, valueType);
+                        pending.put(STATE_WATERMARK, maxWatermark);
+                        pendingWatermarks.add(pending);
+                        LOG.info("table:[{}] 增量区间:({}, {}].", table, lastWatermark, maxWatermark);
+                    }
+                    tableWheres.add(StringUtils.isBlank(where) ? range : String.format("(%s) AND (%s)", where, range));
+                }
+            } finally {
+                DBUtil.closeDBResources(null, null, conn);
+            }
+
+            originalConfig.set(String.format("%s[%d].%s", Constant.CONN_MARK, i, Key.INCREMENTAL_WHERE), tableWheres);
+        }
+        originalConfig.set(Constant.INCREMENTAL_WATERMARK_MARK, pendingWatermarks);
+    }
+
+    /**
+     * 作业成功后调用, 把本次读取到的最大值记录为新的水位
+     */
+    public static void saveWatermarks(Configuration originalConfig) {
+        if (!isIncremental(originalConfig)) {
+            return;
+        }
+        List<Map> pendingWatermarks = originalConfig.getList(Constant.INCREMENTAL_WATERMARK_MARK, Map.class);
+        if (null == pendingWatermarks || pendingWatermarks.isEmpty()) {
+            return;
+        }
+        File stateFile = getStateFile(originalConfig);
+        File lockFile = new File(stateFile.getAbsolutePath() + ".lock");
+        FileChannel lockChannel = null;
+        FileLock lock = null;
+        try {
+            lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lock = lockChannel.lock();
+
+            // 加锁后重新读取, 保留其他作业同时写入的水位
+            JSONObject states = loadStates(stateFile);
+            String updateTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+            for (Map pending : pendingWatermarks) {
+                JSONObject state = new JSONObject();
+                state.put(STATE_COLUMN, pending.get(STATE_COLUMN));
+                state.put(STATE_VALUE_TYPE, pending.get(STATE_VALUE_TYPE));
+                state.put(STATE_WATERMARK, pending.get(STATE_WATERMARK));
+                state.put(STATE_UPDATE_TIME, updateTime);
+                states.put(String.valueOf(pending.get(STATE_KEY)), state);
+            }
+
+            File tmpFile = new File(stateFile.getAbsolutePath() + ".tmp");
+            Files.write(tmpFile.toPath(),
+                    JSON.toJSONString(states, SerializerFeature.PrettyFormat).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmpFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LOG.info("已更新 {} 张表的增量水位, 状态文件:[{}].", pendingWatermarks.size(), stateFile.getAbsolutePath());
+        } catch (IOException e) {
+            throw DataXException.asDataXException(DBUtilErrorCode.INCREMENTAL_STATE_ERROR,
+                    String.format("写入增量水位状态文件:[%s] 失败.", stateFile.getAbsolutePath()), e);
+        } finally {
+            try {
+                if (null != lock) {
+                    lock.release();
+                }
+                if (null != lockChannel) {
+                    lockChannel.close();
+                }
+            } catch (IOException unused) {
+                LOG.warn("释放增量水位状态文件锁失败:[{}].", lockFile.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * @param lastLiteral 上次水位转换后的sql字面量, 第一次执行时为 null
+     * @param maxWatermark 大于上次水位的最大值, 没有新数据时为 null
+     */
+    static String buildRange(DataBaseType dataBaseType, String valueType, String incrementalColumn,
+                             String lastLiteral, String maxWatermark) {
+        if (null == maxWatermark) {
+            return "1 = 0";
+        }
+        String maxLiteral = toLiteral(dataBaseType, valueType, maxWatermark);
+        if (null == lastLiteral) {
+            return String.format("%s <= %s", incrementalColumn, maxLiteral);
+        }
+        return String.format("%s > %s AND %s <= %s", incrementalColumn, lastLiteral, incrementalColumn, maxLiteral);
+    }
+
+    private static File getStateFile(Configuration originalConfig) {
+        String stateFilePath = originalConfig.getString(Key.INCREMENTAL_STATE_FILE, null);
+        if (StringUtils.isBlank(stateFilePath)) {
+            String dataxHome = System.getProperty("datax.home");
+            if (StringUtils.isBlank(dataxHome)) {
+                throw DataXException.asDataXException(DBUtilErrorCode.REQUIRED_VALUE,
+                        "您配置了 incrementalColumn, 但未配置 incrementalStateFile 且无法获取 datax.home. 请配置增量水位状态文件的路径.");
+            }
+            stateFilePath = dataxHome + File.separator + Constant.INCREMENTAL_STATE_DIR
+                    + File.separator + Constant.INCREMENTAL_STATE_FILE_NAME;
+        }
+        File stateFile = new File(stateFilePath);
+        File parent = stateFile.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs() && !parent.exists()) {
+            throw DataXException.asDataXException(DBUtilErrorCode.INCREMENTAL_STATE_ERROR,
+                    String.format("创建增量水位状态文件目录:[%s] 失败.", parent.getAbsolutePath()));
+        }
+        return stateFile;
+    }
+
+    static JSONObject loadStates(File stateFile) {
+        if (!stateFile.exists()) {
+            return new JSONObject();
+        }
+        try {
+            String content = new String(Files.readAllBytes(stateFile.toPath()), StandardCharsets.UTF_8);
+            if (StringUtils.isBlank(content)) {
+                return new JSONObject();
+            }
+            return JSON.parseObject(content);
+        } catch (Exception e) {
+            throw DataXException.asDataXException(DBUtilErrorCode.INCREMENTAL_STATE_ERROR,
+                    String.format("读取增量水位状态文件:[%s] 失败, 请检查文件内容是否为合法的json.", stateFile.getAbsolutePath()), e);
+        }
+    }
+
+    static String buildStateKey(String jdbcUrl, String table, String incrementalColumn) {
+        // 同一个库的jdbcUrl参数可能会变化(如reader追加的参数), 不参与key
+        String url = StringUtils.substringBefore(jdbcUrl, "?");
+        return String.format("%s/%s#%s", url, table, incrementalColumn);
+    }
+
+    /**
+     * @param lastLiteral 上次水位的sql字面量, 不为 null 时只统计大于上次水位的数据
+     * @return [valueType, 最大值], 没有满足条件的数据时最大值为 null
+     */
+    static String[] queryMax(Connection conn, DataBaseType dataBaseType, String incrementalColumn,
+                             String table, String where, String lastLiteral, String username) {
+        List<String> conditions = new ArrayList<String>();
+        if (StringUtils.isNotBlank(where)) {
+            conditions.add(String.format("(%s)", where));
+        }
+        if (null != lastLiteral) {
+            conditions.add(String.format("%s > %s", incrementalColumn, lastLiteral));
+        }
+        String maxSql = String.format("SELECT MAX(%s) FROM %s", incrementalColumn, table);
+        if (!conditions.isEmpty()) {
+            maxSql = String.format("%s WHERE %s", maxSql, StringUtils.join(conditions, " AND "));
+        }
+        LOG.info("incremental max [sql={}] is running... ", maxSql);
+        ResultSet rs = null;
+        try {
+            try {
+                rs = DBUtil.query(conn, maxSql);
+            } catch (Exception e) {
+                throw RdbmsException.asQueryException(dataBaseType, e, maxSql, table, username);
+            }
+            int type = rs.getMetaData().getColumnType(1);
+            String valueType = getValueType(type);
+            if (null == valueType) {
+                throw DataXException.asDataXException(DBUtilErrorCode.ILLEGAL_VALUE,
+                        String.format("您配置的增量字段(incrementalColumn):%s 类型不支持. DataX 仅支持整数/小数、日期时间或者字符串类型的增量字段, 请检查您的配置并作出修改.",
+                                incrementalColumn));
+            }
+            String max = null;
+            if (DBUtil.asyncResultSetNext(rs)) {
+                if (VALUE_TYPE_TIMESTAMP.equals(valueType)) {
+                    Timestamp ts = rs.getTimestamp(1);
+                    max = null == ts ? null : ts.toString();
+                } else {
+                    max = rs.getString(1);
+                }
+            }
+            return new String[]{valueType, max};
+        } catch (DataXException e) {
+            throw e;
+        } catch (Exception e) {
+            throw DataXException.asDataXException(DBUtilErrorCode.SQL_EXECUTE_FAIL,
+                    String.format("获取表:%s 增量字段:%s 的最大值失败.", table, incrementalColumn), e);
+        } finally {
+            DBUtil.closeDBResources(rs, null, null);
+        }
+    }
+
+    private static String getValueType(int type) {
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return VALUE_TYPE_NUMBER;
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                return VALUE_TYPE_TIMESTAMP;
+            case Types.CHAR:
+            case Types.NCHAR:
+            case Types.VARCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGVARCHAR:
+                return VALUE_TYPE_STRING;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 水位值来自数据库或者本地状态文件, 拼接进 sql 前统一按类型校验/转义
+     */
+    static String toLiteral(DataBaseType dataBaseType, String valueType, String value) {
+        if (VALUE_TYPE_NUMBER.equals(valueType)) {
+            return new BigDecimal(value).toPlainString();
+        } else if (VALUE_TYPE_TIMESTAMP.equals(valueType)) {
+            String ts = Timestamp.valueOf(value).toString();
+            if (DataBaseType.Oracle == dataBaseType) {
+                return String.format("TO_TIMESTAMP('%s', 'YYYY-MM-DD HH24:MI:SS.FF')", ts);
+            }
+            return "'" + ts + "'";
+        }
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
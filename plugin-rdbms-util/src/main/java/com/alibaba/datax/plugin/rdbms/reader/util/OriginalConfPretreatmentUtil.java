@@ -31,6 +31,8 @@ public final class OriginalConfPretreatmentUtil {
         dealWhere(originalConfig);
 
         simplifyConf(originalConfig);
+
+        IncrementalWatermarkUtil.dealIncremental(originalConfig, DATABASE_TYPE);
     }
 
     public static void dealWhere(Configuration originalConfig) {
@@ -46,6 +46,7 @@ public final class ReaderSplitUtil {
             sliceConfig.set(CommonConstant.LOAD_BALANCE_RESOURCE_MARK, DataBaseType.parseIpFromJdbcUrl(jdbcUrl));
 
             sliceConfig.remove(Constant.CONN_MARK);
+            sliceConfig.remove(Constant.INCREMENTAL_WATERMARK_MARK);
 
             Configuration tempSlice;
 
@@ -58,6 +59,9 @@ public final class ReaderSplitUtil {
 
                 String splitPk = originalSliceConfig.getString(Key.SPLIT_PK, null);
 
+                // 增量抽取时每张表的 where 已经合并了各自的水位区间
+                List<String> tableWheres = connConf.getList(Key.INCREMENTAL_WHERE, String.class);
+
                 //最终切分份数不一定等于 eachTableShouldSplittedNumber
                 boolean needSplitTable = eachTableShouldSplittedNumber > 1
                         && StringUtils.isNotBlank(splitPk);
@@ -76,9 +80,13 @@ public final class ReaderSplitUtil {
                         eachTableShouldSplittedNumber = eachTableShouldSplittedNumber * splitFactor;
                     }
                     // 尝试对每个表，切分为eachTableShouldSplittedNumber 份
-                    for (String table : tables) {
+                    for (int j = 0; j < tables.size(); j++) {
+                        String table = tables.get(j);
                         tempSlice = sliceConfig.clone();
                         tempSlice.set(Key.TABLE, table);
+                        if (null != tableWheres) {
+                            tempSlice.set(Key.WHERE, tableWheres.get(j));
+                        }
 
                         List<Configuration> splittedSlices = SingleTableSplitUtil
                                 .splitSingleTable(tempSlice, eachTableShouldSplittedNumber);
@@ -86,11 +94,16 @@ public final class ReaderSplitUtil {
                         splittedConfigs.addAll(splittedSlices);
                     }
                 } else {
-                    for (String table : tables) {
+                    for (int j = 0; j < tables.size(); j++) {
+                        String table = tables.get(j);
+                        String tableWhere = null != tableWheres ? tableWheres.get(j) : where;
                         tempSlice = sliceConfig.clone();
                         tempSlice.set(Key.TABLE, table);
+                        if (null != tableWheres) {
+                            tempSlice.set(Key.WHERE, tableWhere);
+                        }
                         String queryColumn = HintUtil.buildQueryColumn(jdbcUrl, table, column);
-                        tempSlice.set(Key.QUERY_SQL, SingleTableSplitUtil.buildQuerySql(queryColumn, table, where));
+                        tempSlice.set(Key.QUERY_SQL, SingleTableSplitUtil.buildQuerySql(queryColumn, table, tableWhere));
                         splittedConfigs.add(tempSlice);
                     }
                 }
@@ -32,6 +32,8 @@ public final class DBUtil {
         }
     };
 
+    private static final Set<String> LOADED_DRIVERS = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
     private DBUtil() {
     }
 
@@ -295,7 +297,7 @@ public final class DBUtil {
      * <p/>
      * if connecting failed, try to connect for MAX_TRY_TIMES times
      * <p/>
-     * NOTE: In DataX, we don't need connection pool in fact
+     * NOTE: 需要在 preSql/写入/postSql/failover 之间复用连接时使用 {@link JdbcConnectionPool}
      */
     public static Connection getConnection(final DataBaseType dataBaseType,
                                            final String jdbcUrl, final String username, final String password) {
@@ -335,7 +337,7 @@ public final class DBUtil {
      * <p/>
      * if connecting failed, try to connect for MAX_TRY_TIMES times
      * <p/>
-     * NOTE: In DataX, we don't need connection pool in fact
+     * NOTE: 需要在 preSql/写入/postSql/failover 之间复用连接时使用 {@link JdbcConnectionPool}
      */
     public static Connection getConnectionWithoutRetry(final DataBaseType dataBaseType,
                                                        final String jdbcUrl, final String username, final String password) {
@@ -349,13 +351,13 @@ public final class DBUtil {
                 password, socketTimeout);
     }
 
-    private static synchronized Connection connect(DataBaseType dataBaseType,
-                                                   String url, String user, String pass) {
+    private static Connection connect(DataBaseType dataBaseType,
+                                      String url, String user, String pass) {
         return connect(dataBaseType, url, user, pass, String.valueOf(Constant.SOCKET_TIMEOUT_INSECOND * 1000));
     }
 
-    private static synchronized Connection connect(DataBaseType dataBaseType,
-                                                   String url, String user, String pass, String socketTimeout) {
+    private static Connection connect(DataBaseType dataBaseType,
+                                      String url, String user, String pass, String socketTimeout) {
 
         //ob10的处理
         if (url.startsWith(com.alibaba.datax.plugin.rdbms.writer.Constant.OB10_SPLIT_STRING)) {
@@ -384,11 +386,27 @@ public final class DBUtil {
         return connect(dataBaseType, url, prop);
     }
 
-    private static synchronized Connection connect(DataBaseType dataBaseType,
-                                                   String url, Properties prop) {
+    /**
+     * 只有驱动加载需要串行(部分驱动与 DriverManager 并发初始化时可能死锁), 建立连接本身不加锁, 各 task 可以并发连接
+     */
+    private static void loadDriver(DataBaseType dataBaseType) throws ClassNotFoundException {
+        String driverClassName = dataBaseType.getDriverClassName();
+        if (LOADED_DRIVERS.contains(driverClassName)) {
+            return;
+        }
+        synchronized (LOADED_DRIVERS) {
+            if (!LOADED_DRIVERS.contains(driverClassName)) {
+                Class.forName(driverClassName);
+                DriverManager.setLoginTimeout(Constant.TIMEOUT_SECONDS);
+                LOADED_DRIVERS.add(driverClassName);
+            }
+        }
+    }
+
+    private static Connection connect(DataBaseType dataBaseType,
+                                      String url, Properties prop) {
         try {
-            Class.forName(dataBaseType.getDriverClassName());
-            DriverManager.setLoginTimeout(Constant.TIMEOUT_SECONDS);
+            loadDriver(dataBaseType);
             return DriverManager.getConnection(url, prop);
         } catch (Exception e) {
             throw RdbmsException.asConnException(dataBaseType, e, prop.getProperty("user"), null);
@@ -62,6 +62,7 @@ public enum DBUtilErrorCode implements ErrorCode {
     READ_RECORD_FAIL("DBUtilErrorCode-07", "读取数据库数据失败. 请检查您的配置的 column/table/where/querySql或者向 DBA 寻求帮助."),
     TABLE_QUERYSQL_MIXED("DBUtilErrorCode-08", "您配置凌乱了. 不能同时既配置table又配置querySql"),
     TABLE_QUERYSQL_MISSING("DBUtilErrorCode-09", "您配置错误. table和querySql 应该并且只能配置一个."),
+    INCREMENTAL_STATE_ERROR("DBUtilErrorCode-17", "读写增量抽取水位状态文件失败."),
 
     // only for writer
     WRITE_DATA_ERROR("DBUtilErrorCode-05", "往您配置的写入表中写入数据时失败."),
@@ -0,0 +1,204 @@
+package com.alibaba.datax.plugin.rdbms.util;
+
+import com.alibaba.datax.common.util.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按 (数据库类型, jdbcUrl, username) 共享的连接池, 同一进程内的 preSql、写入、postSql 以及 task failover 重试可以复用已建立的连接。
+ * <p/>
+ * 建连不持有池的锁, 多个 task 可以并发建连; 空闲连接借出前用 isValid 校验, 失效的直接关闭后重新建连;
+ * session 配置(dealWithSessionConfig)对每个物理连接只执行一次。
+ * 归还时若连接仍处于事务中则回滚并恢复 autoCommit, 空闲连接超过 maxIdle 时直接关闭。
+ */
+public class JdbcConnectionPool implements ConnectionFactory {
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcConnectionPool.class);
+
+    private static final int VALIDATE_TIMEOUT_SECONDS = 3;
+
+    private static final ConcurrentMap<String, JdbcConnectionPool> POOLS = new ConcurrentHashMap<String, JdbcConnectionPool>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                closeAll();
+            }
+        }, "jdbc-connection-pool-shutdown"));
+    }
+
+    private final DataBaseType dataBaseType;
+
+    private final String jdbcUrl;
+
+    private final String username;
+
+    private final String password;
+
+    private final int maxIdle;
+
+    private final LinkedList<Connection> idleConnections = new LinkedList<Connection>();
+
+    /**
+     * 已经执行过 session 配置的物理连接
+     */
+    private final Set<Connection> sessionInitialized = Collections.newSetFromMap(new IdentityHashMap<Connection, Boolean>());
+
+    private boolean closed = false;
+
+    private JdbcConnectionPool(DataBaseType dataBaseType, String jdbcUrl, String username, String password, int maxIdle) {
+        this.dataBaseType = dataBaseType;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+        this.maxIdle = Math.max(0, maxIdle);
+    }
+
+    /**
+     * 获取 (dataBaseType, jdbcUrl, username) 对应的连接池, 不存在时创建; maxIdle 以第一次创建时为准
+     */
+    public static JdbcConnectionPool getInstance(DataBaseType dataBaseType, String jdbcUrl,
+                                                 String username, String password, int maxIdle) {
+        String key = dataBaseType.getTypeName() + "|" + jdbcUrl + "|" + username;
+        JdbcConnectionPool pool = POOLS.get(key);
+        if (pool == null) {
+            JdbcConnectionPool created = new JdbcConnectionPool(dataBaseType, jdbcUrl, username, password, maxIdle);
+            pool = POOLS.putIfAbsent(key, created);
+            if (pool == null) {
+                pool = created;
+                LOG.info("create jdbc connection pool for jdbcUrl:[{}], username:[{}], maxIdle:[{}].",
+                        jdbcUrl, username, maxIdle);
+            }
+        }
+        return pool;
+    }
+
+    @Override
+    public Connection getConnecttion() {
+        Connection connection = pollValidConnection();
+        return connection != null ? connection
+                : DBUtil.getConnection(this.dataBaseType, this.jdbcUrl, this.username, this.password);
+    }
+
+    @Override
+    public Connection getConnecttionWithoutRetry() {
+        Connection connection = pollValidConnection();
+        return connection != null ? connection
+                : DBUtil.getConnectionWithoutRetry(this.dataBaseType, this.jdbcUrl, this.username, this.password);
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "jdbcUrl:" + this.jdbcUrl;
+    }
+
+    /**
+     * 借出一个可用连接, 并保证该物理连接已经执行过 session 配置
+     */
+    public Connection getConnection(Configuration sessionConfig, String message) {
+        Connection connection = getConnecttion();
+        boolean needInit;
+        synchronized (this) {
+            needInit = !this.sessionInitialized.contains(connection);
+        }
+        if (needInit) {
+            try {
+                DBUtil.dealWithSessionConfig(connection, sessionConfig, this.dataBaseType, message);
+            } catch (RuntimeException e) {
+                DBUtil.closeDBResources(null, null, connection);
+                throw e;
+            }
+            synchronized (this) {
+                this.sessionInitialized.add(connection);
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * 归还连接; 连接已关闭或池已满时直接关闭
+     */
+    public void releaseConnection(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        boolean reusable;
+        try {
+            reusable = !connection.isClosed();
+            if (reusable && !connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOG.warn("归还连接时重置事务状态失败, 该连接将被关闭. 上下文信息:{}, 原因:{}", getConnectionInfo(), e.getMessage());
+            reusable = false;
+        }
+
+        synchronized (this) {
+            if (reusable && !this.closed && this.idleConnections.size() < this.maxIdle) {
+                this.idleConnections.addFirst(connection);
+                return;
+            }
+            this.sessionInitialized.remove(connection);
+        }
+        DBUtil.closeDBResources(null, null, connection);
+    }
+
+    private Connection pollValidConnection() {
+        while (true) {
+            Connection connection;
+            synchronized (this) {
+                connection = this.idleConnections.pollFirst();
+            }
+            if (connection == null) {
+                return null;
+            }
+            boolean valid;
+            try {
+                valid = connection.isValid(VALIDATE_TIMEOUT_SECONDS);
+            } catch (Throwable e) {
+                // 部分老驱动没有实现 isValid, 此时按可用处理, 出错由调用方的重试兜底
+                valid = !(e instanceof SQLException);
+            }
+            if (valid) {
+                return connection;
+            }
+            LOG.info("丢弃失效的空闲连接, 上下文信息:{}.", getConnectionInfo());
+            synchronized (this) {
+                this.sessionInitialized.remove(connection);
+            }
+            DBUtil.closeDBResources(null, null, connection);
+        }
+    }
+
+    private void close() {
+        List<Connection> toClose;
+        synchronized (this) {
+            this.closed = true;
+            toClose = new ArrayList<Connection>(this.idleConnections);
+            this.idleConnections.clear();
+            this.sessionInitialized.clear();
+        }
+        for (Connection connection : toClose) {
+            DBUtil.closeDBResources(null, null, connection);
+        }
+    }
+
+    public static void closeAll() {
+        for (JdbcConnectionPool pool : POOLS.values()) {
+            pool.close();
+        }
+        POOLS.clear();
+    }
+}
@@ -9,7 +9,9 @@ import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.datax.plugin.rdbms.util.DBUtil;
 import com.alibaba.datax.plugin.rdbms.util.DBUtilErrorCode;
 import com.alibaba.datax.plugin.rdbms.util.DataBaseType;
+import com.alibaba.datax.plugin.rdbms.util.JdbcConnectionPool;
 import com.alibaba.datax.plugin.rdbms.util.RdbmsException;
+import com.alibaba.datax.plugin.rdbms.writer.util.AdaptiveBatchSizer;
 import com.alibaba.datax.plugin.rdbms.writer.util.OriginalConfPretreatmentUtil;
 import com.alibaba.datax.plugin.rdbms.writer.util.WriterUtil;
 import org.apache.commons.lang3.StringUtils;
@@ -113,13 +115,15 @@ public class CommonRdbmsWriter {
                     // 说明有 preSql 配置，则此处删除掉
                     originalConfig.remove(Key.PRE_SQL);
 
-                    Connection conn = DBUtil.getConnection(dataBaseType,
+                    JdbcConnectionPool pool = WriterUtil.getConnectionPool(originalConfig, dataBaseType,
                             jdbcUrl, username, password);
+                    Connection conn = pool == null ? DBUtil.getConnection(dataBaseType,
+                            jdbcUrl, username, password) : pool.getConnecttion();
                     LOG.info("Begin to execute preSqls:[{}]. context info:{}.",
                             StringUtils.join(renderedPreSqls, ";"), jdbcUrl);
 
                     WriterUtil.executeSqls(conn, renderedPreSqls, jdbcUrl, dataBaseType);
-                    DBUtil.closeDBResources(null, null, conn);
+                    WriterUtil.releaseConnection(pool, conn);
                 }
             }
 
@@ -153,14 +157,16 @@ public class CommonRdbmsWriter {
                     // 说明有 postSql 配置，则此处删除掉
                     originalConfig.remove(Key.POST_SQL);
 
-                    Connection conn = DBUtil.getConnection(this.dataBaseType,
+                    JdbcConnectionPool pool = WriterUtil.getConnectionPool(originalConfig, this.dataBaseType,
                             jdbcUrl, username, password);
+                    Connection conn = pool == null ? DBUtil.getConnection(this.dataBaseType,
+                            jdbcUrl, username, password) : pool.getConnecttion();
 
                     LOG.info(
                             "Begin to execute postSqls:[{}]. context info:{}.",
                             StringUtils.join(renderedPostSqls, ";"), jdbcUrl);
                     WriterUtil.executeSqls(conn, renderedPostSqls, jdbcUrl, dataBaseType);
-                    DBUtil.closeDBResources(null, null, conn);
+                    WriterUtil.releaseConnection(pool, conn);
                 }
             }
         }
@@ -186,6 +192,14 @@ public class CommonRdbmsWriter {
         protected List<String> postSqls;
         protected int batchSize;
         protected int batchByteSize;
+        /**
+         * 未开启adaptiveBatch时为null
+         */
+        protected AdaptiveBatchSizer batchSizer;
+        /**
+         * 未开启connectionPool时为null
+         */
+        protected JdbcConnectionPool connectionPool;
         protected int columnNumber = 0;
         protected TaskPluginCollector taskPluginCollector;
 
@@ -231,6 +245,17 @@ public class CommonRdbmsWriter {
             this.postSqls = writerSliceConfig.getList(Key.POST_SQL, String.class);
             this.batchSize = writerSliceConfig.getInt(Key.BATCH_SIZE, Constant.DEFAULT_BATCH_SIZE);
             this.batchByteSize = writerSliceConfig.getInt(Key.BATCH_BYTE_SIZE, Constant.DEFAULT_BATCH_BYTE_SIZE);
+            if (writerSliceConfig.getBool(Key.ADAPTIVE_BATCH, false)) {
+                this.batchSizer = new AdaptiveBatchSizer(this.dataBaseType, this.batchSize,
+                        writerSliceConfig.getInt(Key.MIN_BATCH_SIZE, Constant.DEFAULT_MIN_BATCH_SIZE),
+                        writerSliceConfig.getInt(Key.MAX_BATCH_SIZE, this.batchSize * Constant.DEFAULT_MAX_BATCH_SIZE_FACTOR),
+                        writerSliceConfig.getLong(Key.TARGET_BATCH_LATENCY_MS, Constant.DEFAULT_TARGET_BATCH_LATENCY_MS),
+                        writerSliceConfig.getInt(Key.LOCK_RETRY_TIMES, Constant.DEFAULT_LOCK_RETRY_TIMES),
+                        writerSliceConfig.getLong(Key.LOCK_RETRY_INTERVAL_MS, Constant.DEFAULT_LOCK_RETRY_INTERVAL_MS));
+            }
+
+            this.connectionPool = WriterUtil.getConnectionPool(writerSliceConfig, this.dataBaseType,
+                    this.jdbcUrl, this.username, this.password);
 
             writeMode = writerSliceConfig.getString(Key.WRITE_MODE, "INSERT");
             emptyAsNull = writerSliceConfig.getBool(Key.EMPTY_AS_NULL, true);
@@ -242,11 +267,7 @@ public class CommonRdbmsWriter {
         }
 
         public void prepare(Configuration writerSliceConfig) {
-            Connection connection = DBUtil.getConnection(this.dataBaseType,
-                    this.jdbcUrl, username, password);
-
-            DBUtil.dealWithSessionConfig(connection, writerSliceConfig,
-                    this.dataBaseType, BASIC_MESSAGE);
+            Connection connection = getConnection(writerSliceConfig);
 
             int tableNumber = writerSliceConfig.getInt(
                     Constant.TABLE_NUMBER_MARK);
@@ -256,7 +277,7 @@ public class CommonRdbmsWriter {
                 WriterUtil.executeSqls(connection, this.preSqls, BASIC_MESSAGE, dataBaseType);
             }
 
-            DBUtil.closeDBResources(null, null, connection);
+            releaseConnection(connection);
         }
 
         public void startWriteWithConnection(RecordReceiver recordReceiver, TaskPluginCollector taskPluginCollector, Connection connection) {
@@ -287,7 +308,8 @@ public class CommonRdbmsWriter {
                     writeBuffer.add(record);
                     bufferBytes += record.getMemorySize();
 
-                    if (writeBuffer.size() >= batchSize || bufferBytes >= batchByteSize) {
+                    int currentBatchSize = this.batchSizer == null ? batchSize : this.batchSizer.getBatchSize();
+                    if (writeBuffer.size() >= currentBatchSize || bufferBytes >= batchByteSize) {
                         doBatchInsert(connection, writeBuffer);
                         writeBuffer.clear();
                         bufferBytes = 0;
@@ -304,18 +326,14 @@ public class CommonRdbmsWriter {
             } finally {
                 writeBuffer.clear();
                 bufferBytes = 0;
-                DBUtil.closeDBResources(null, null, connection);
+                releaseConnection(connection);
             }
         }
 
-        // TODO 改用连接池，确保每次获取的连接都是可用的（注意：连接可能需要每次都初始化其 session）
         public void startWrite(RecordReceiver recordReceiver,
                                Configuration writerSliceConfig,
                                TaskPluginCollector taskPluginCollector) {
-            Connection connection = DBUtil.getConnection(this.dataBaseType,
-                    this.jdbcUrl, username, password);
-            DBUtil.dealWithSessionConfig(connection, writerSliceConfig,
-                    this.dataBaseType, BASIC_MESSAGE);
+            Connection connection = getConnection(writerSliceConfig);
             startWriteWithConnection(recordReceiver, taskPluginCollector, connection);
         }
 
@@ -329,20 +347,46 @@ public class CommonRdbmsWriter {
                 return;
             }
 
-            Connection connection = DBUtil.getConnection(this.dataBaseType,
-                    this.jdbcUrl, username, password);
+            Connection connection = this.connectionPool == null
+                    ? DBUtil.getConnection(this.dataBaseType, this.jdbcUrl, username, password)
+                    : getConnection(writerSliceConfig);
 
             LOG.info("Begin to execute postSqls:[{}]. context info:{}.",
                     StringUtils.join(this.postSqls, ";"), BASIC_MESSAGE);
             WriterUtil.executeSqls(connection, this.postSqls, BASIC_MESSAGE, dataBaseType);
-            DBUtil.closeDBResources(null, null, connection);
+            releaseConnection(connection);
         }
 
         public void destroy(Configuration writerSliceConfig) {
         }
 
+        /**
+         * 获取已完成 session 配置的连接; 开启 connectionPool 时从连接池借出, 每个物理连接只配置一次 session
+         */
+        protected Connection getConnection(Configuration writerSliceConfig) {
+            if (this.connectionPool != null) {
+                return this.connectionPool.getConnection(writerSliceConfig, BASIC_MESSAGE);
+            }
+            Connection connection = DBUtil.getConnection(this.dataBaseType,
+                    this.jdbcUrl, username, password);
+            DBUtil.dealWithSessionConfig(connection, writerSliceConfig,
+                    this.dataBaseType, BASIC_MESSAGE);
+            return connection;
+        }
+
+        /**
+         * 开启 connectionPool 时归还连接, 否则直接关闭
+         */
+        protected void releaseConnection(Connection connection) {
+            WriterUtil.releaseConnection(this.connectionPool, connection);
+        }
+
         protected void doBatchInsert(Connection connection, List<Record> buffer)
                 throws SQLException {
+            if (this.batchSizer != null) {
+                doAdaptiveBatchInsert(connection, buffer);
+                return;
+            }
             PreparedStatement preparedStatement = null;
             try {
                 connection.setAutoCommit(false);
@@ -368,6 +412,78 @@ public class CommonRdbmsWriter {
             }
         }
 
+        /**
+         * 批量写入失败时回滚: 锁等待/死锁/超时类错误与数据无关, 把后续的批量减半并退避后整批重试;
+         * 其他错误二分重试, 只有单独写入仍失败的行才作为脏数据
+         */
+        protected void doAdaptiveBatchInsert(Connection connection, List<Record> buffer)
+                throws SQLException {
+            doAdaptiveBatchInsert(connection, buffer, 0);
+        }
+
+        private void doAdaptiveBatchInsert(Connection connection, List<Record> buffer, int retry)
+                throws SQLException {
+            connection.setAutoCommit(false);
+            PreparedStatement preparedStatement = connection
+                    .prepareStatement(this.writeRecordSql);
+            try {
+                long startTime = System.nanoTime();
+                try {
+                    if (buffer.size() == 1) {
+                        preparedStatement = fillPreparedStatement(preparedStatement, buffer.get(0));
+                        preparedStatement.execute();
+                    } else {
+                        for (Record record : buffer) {
+                            preparedStatement = fillPreparedStatement(
+                                    preparedStatement, record);
+                            preparedStatement.addBatch();
+                        }
+                        preparedStatement.executeBatch();
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    DBUtil.closeDBResources(preparedStatement, null);
+                    preparedStatement = null;
+                    if (this.batchSizer.isLockOrTimeout(e)) {
+                        this.batchSizer.onLockOrTimeout(e);
+                        if (retry >= this.batchSizer.getLockRetryTimes()) {
+                            throw e;
+                        }
+                        long interval = this.batchSizer.getRetryInterval(retry + 1);
+                        LOG.warn("回滚此次写入, [{}]ms后第[{}]次重试[{}]行. 因为锁等待/超时:{}",
+                                interval, retry + 1, buffer.size(), e.getMessage());
+                        Thread.sleep(interval);
+                        doAdaptiveBatchInsert(connection, buffer, retry + 1);
+                    } else if (buffer.size() == 1) {
+                        LOG.debug(e.toString());
+                        this.taskPluginCollector.collectDirtyRecord(buffer.get(0), e);
+                    } else {
+                        LOG.warn("回滚此次写入, 将[{}]行拆分为两半重试. 因为:{}", buffer.size(), e.getMessage());
+                        int middle = buffer.size() / 2;
+                        doAdaptiveBatchInsert(connection, buffer.subList(0, middle), 0);
+                        doAdaptiveBatchInsert(connection, buffer.subList(middle, buffer.size()), 0);
+                    }
+                    return;
+                }
+                if (buffer.size() > 1) {
+                    this.batchSizer.onSuccess(buffer.size(), System.nanoTime() - startTime);
+                }
+            } catch (SQLException e) {
+                throw e;
+            } catch (InterruptedException e) {
+                // 退避等待时被中断, 恢复中断状态后结束写入, 不再重试
+                Thread.currentThread().interrupt();
+                throw DataXException.asDataXException(DBUtilErrorCode.WRITE_DATA_ERROR,
+                        "锁等待重试的退避过程中写入线程被中断.", e);
+            } catch (Exception e) {
+                throw DataXException.asDataXException(
+                        DBUtilErrorCode.WRITE_DATA_ERROR, e);
+            } finally {
+                DBUtil.closeDBResources(preparedStatement, null);
+            }
+        }
+
         protected void doOneInsert(Connection connection, List<Record> buffer) {
             PreparedStatement preparedStatement = null;
             try {
@@ -8,6 +8,18 @@ public final class Constant {
 
     public static final int DEFAULT_BATCH_BYTE_SIZE = 32 * 1024 * 1024;
 
+    public static final int DEFAULT_MIN_BATCH_SIZE = 32;
+
+    public static final int DEFAULT_MAX_BATCH_SIZE_FACTOR = 4;
+
+    public static final long DEFAULT_TARGET_BATCH_LATENCY_MS = 1000L;
+
+    public static final int DEFAULT_LOCK_RETRY_TIMES = 3;
+
+    public static final long DEFAULT_LOCK_RETRY_INTERVAL_MS = 1000L;
+
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 16;
+
     public static String TABLE_NAME_PLACEHOLDER = "@table";
 
     public static String CONN_MARK = "connection";
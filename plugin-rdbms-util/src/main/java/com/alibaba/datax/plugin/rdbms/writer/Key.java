@@ -26,6 +26,30 @@ public final class Key {
     //默认值：32m
     public final static String BATCH_BYTE_SIZE = "batchByteSize";
 
+    //默认值：false, 开启后按executeBatch耗时动态调整batchSize, 失败批次二分定位脏数据
+    public final static String ADAPTIVE_BATCH = "adaptiveBatch";
+
+    //默认值：32
+    public final static String MIN_BATCH_SIZE = "minBatchSize";
+
+    //默认值：batchSize * 4
+    public final static String MAX_BATCH_SIZE = "maxBatchSize";
+
+    //默认值：1000
+    public final static String TARGET_BATCH_LATENCY_MS = "targetBatchLatencyMs";
+
+    //默认值：3, adaptiveBatch开启时锁等待/死锁/超时后整批重试的次数
+    public final static String LOCK_RETRY_TIMES = "lockRetryTimes";
+
+    //默认值：1000, 锁等待重试的初始间隔, 每次重试翻倍
+    public final static String LOCK_RETRY_INTERVAL_MS = "lockRetryIntervalMs";
+
+    //默认值：false, 开启后同一进程内按(jdbcUrl, username)复用连接, session 配置每个连接只执行一次
+    public final static String CONNECTION_POOL = "connectionPool";
+
+    //默认值：16
+    public final static String MAX_IDLE_CONNECTIONS = "maxIdleConnections";
+
     public final static String EMPTY_AS_NULL = "emptyAsNull";
 
     public final static String DB_NAME_PATTERN = "dbNamePattern";
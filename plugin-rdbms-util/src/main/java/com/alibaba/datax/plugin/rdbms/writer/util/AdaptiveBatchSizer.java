@@ -0,0 +1,186 @@
+package com.alibaba.datax.plugin.rdbms.writer.util;
+
+import com.alibaba.datax.plugin.rdbms.util.DataBaseType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按 executeBatch 耗时调整批量大小(AIMD): 耗时低于目标时每批增加固定步长, 超过目标或遇到锁等待/超时时减半。
+ * 只在整批写满时增大, 避免尾部的小批次把批量推高。
+ * 锁等待/超时类错误不代表数据有问题, 由调用方按 getRetryInterval 退避后整批重试, 最多 lockRetryTimes 次。
+ */
+public class AdaptiveBatchSizer {
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveBatchSizer.class);
+
+    /**
+     * 各数据库表示锁等待超时/死锁/资源忙的错误码, 与数据库相关, 不能混用:
+     * MySQL 1205(lock wait timeout), 1213(deadlock); Oracle ORA-00060(deadlock), ORA-00054/ORA-30006(resource busy);
+     * SQLServer 1222(lock request timeout), 1205(deadlock victim); DB2 -911(deadlock/timeout), -913(lock timeout)
+     */
+    private static final int[] MYSQL_LOCK_ERROR_CODES = new int[]{1205, 1213};
+
+    private static final int[] ORACLE_LOCK_ERROR_CODES = new int[]{60, 54, 30006};
+
+    private static final int[] SQLSERVER_LOCK_ERROR_CODES = new int[]{1222, 1205};
+
+    private static final int[] DB2_LOCK_ERROR_CODES = new int[]{-911, -913};
+
+    private static final int[] NO_LOCK_ERROR_CODES = new int[0];
+
+    /**
+     * PostgreSQL 不返回错误码, 使用 SQLState: 55P03(lock_not_available), 57014(statement_timeout 取消)
+     */
+    private static final String[] POSTGRESQL_LOCK_SQL_STATES = new String[]{"55P03", "57014"};
+
+    private static final String[] NO_LOCK_SQL_STATES = new String[0];
+
+    private final int minBatchSize;
+
+    private final int maxBatchSize;
+
+    private final int step;
+
+    private final long targetLatencyNanos;
+
+    private final int[] lockErrorCodes;
+
+    private final String[] lockSqlStates;
+
+    private final int lockRetryTimes;
+
+    private final long lockRetryIntervalMillis;
+
+    private int batchSize;
+
+    public AdaptiveBatchSizer(DataBaseType dataBaseType, int initialBatchSize, int minBatchSize, int maxBatchSize,
+                              long targetLatencyMillis, int lockRetryTimes, long lockRetryIntervalMillis) {
+        this.minBatchSize = Math.max(1, Math.min(minBatchSize, initialBatchSize));
+        this.maxBatchSize = Math.max(initialBatchSize, maxBatchSize);
+        this.step = Math.max(1, initialBatchSize / 8);
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.batchSize = initialBatchSize;
+        this.lockErrorCodes = lockErrorCodes(dataBaseType);
+        this.lockSqlStates = lockSqlStates(dataBaseType);
+        this.lockRetryTimes = Math.max(0, lockRetryTimes);
+        this.lockRetryIntervalMillis = Math.max(0, lockRetryIntervalMillis);
+        LOG.info("adaptive batch enabled, batchSize=[{}], range=[{}, {}], targetLatency=[{}ms].",
+                initialBatchSize, this.minBatchSize, this.maxBatchSize, targetLatencyMillis);
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public int getLockRetryTimes() {
+        return this.lockRetryTimes;
+    }
+
+    /**
+     * @param retry 第几次重试, 从1开始
+     * @return 指数退避的等待时间, 单位毫秒, 最长为 lockRetryIntervalMs 的 16 倍
+     */
+    public long getRetryInterval(int retry) {
+        return this.lockRetryIntervalMillis << Math.min(4, Math.max(0, retry - 1));
+    }
+
+    /**
+     * @param rows         本次成功提交的行数
+     * @param elapsedNanos executeBatch 与 commit 的耗时
+     */
+    public void onSuccess(int rows, long elapsedNanos) {
+        if (elapsedNanos > this.targetLatencyNanos) {
+            this.decrease("executeBatch耗时" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms超过目标");
+        } else if (rows >= this.batchSize && this.batchSize < this.maxBatchSize) {
+            this.batchSize = Math.min(this.maxBatchSize, this.batchSize + this.step);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("adaptive batchSize increased to [{}].", this.batchSize);
+            }
+        }
+    }
+
+    public void onLockOrTimeout(SQLException e) {
+        this.decrease("锁等待/超时: " + e.getMessage());
+    }
+
+    private void decrease(String reason) {
+        int before = this.batchSize;
+        this.batchSize = Math.max(this.minBatchSize, this.batchSize / 2);
+        if (before != this.batchSize) {
+            LOG.info("adaptive batchSize [{}] -> [{}], 因为{}.", before, this.batchSize, reason);
+        }
+    }
+
+    /**
+     * 判断是否为锁等待、死锁或超时一类的可重试错误, 会沿 getNextException 与 getCause 查找
+     */
+    public boolean isLockOrTimeout(SQLException e) {
+        Throwable current = e;
+        int depth = 0;
+        while (current != null && depth++ < 16) {
+            if (current instanceof SQLTimeoutException
+                    || current instanceof SQLTransactionRollbackException
+                    || current instanceof SQLTransientException) {
+                return true;
+            }
+            if (current instanceof SQLException) {
+                SQLException sqlException = (SQLException) current;
+                String sqlState = sqlException.getSQLState();
+                // 40xxx: transaction rollback(含死锁/序列化失败), HYT00/HYT01: timeout
+                if (sqlState != null && (sqlState.startsWith("40") || sqlState.startsWith("HYT"))) {
+                    return true;
+                }
+                for (String lockSqlState : this.lockSqlStates) {
+                    if (lockSqlState.equals(sqlState)) {
+                        return true;
+                    }
+                }
+                for (int code : this.lockErrorCodes) {
+                    if (sqlException.getErrorCode() == code) {
+                        return true;
+                    }
+                }
+                if (sqlException.getNextException() != null && sqlException.getNextException() != current) {
+                    current = sqlException.getNextException();
+                    continue;
+                }
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+
+    private static int[] lockErrorCodes(DataBaseType dataBaseType) {
+        switch (dataBaseType) {
+            case MySql:
+            case Tddl:
+            case DRDS:
+            case ADS:
+            case OceanBase:
+                return MYSQL_LOCK_ERROR_CODES;
+            case Oracle:
+                return ORACLE_LOCK_ERROR_CODES;
+            case SQLServer:
+                return SQLSERVER_LOCK_ERROR_CODES;
+            case DB2:
+                return DB2_LOCK_ERROR_CODES;
+            default:
+                return NO_LOCK_ERROR_CODES;
+        }
+    }
+
+    private static String[] lockSqlStates(DataBaseType dataBaseType) {
+        switch (dataBaseType) {
+            case PostgreSQL:
+            case KingbaseES:
+                return POSTGRESQL_LOCK_SQL_STATES;
+            default:
+                return NO_LOCK_SQL_STATES;
+        }
+    }
+}
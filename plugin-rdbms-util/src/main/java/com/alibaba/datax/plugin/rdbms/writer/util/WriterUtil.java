@@ -5,6 +5,7 @@ import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.datax.plugin.rdbms.util.DBUtil;
 import com.alibaba.datax.plugin.rdbms.util.DBUtilErrorCode;
 import com.alibaba.datax.plugin.rdbms.util.DataBaseType;
+import com.alibaba.datax.plugin.rdbms.util.JdbcConnectionPool;
 import com.alibaba.datax.plugin.rdbms.util.RdbmsException;
 import com.alibaba.datax.plugin.rdbms.writer.Constant;
 import com.alibaba.datax.plugin.rdbms.writer.Key;
@@ -108,6 +109,26 @@ public final class WriterUtil {
         }
     }
 
+    /**
+     * 配置了 connectionPool=true 时返回 (jdbcUrl, username) 对应的连接池, 否则返回 null
+     */
+    public static JdbcConnectionPool getConnectionPool(Configuration conf, DataBaseType dataBaseType,
+                                                       String jdbcUrl, String username, String password) {
+        if (!conf.getBool(Key.CONNECTION_POOL, false)) {
+            return null;
+        }
+        return JdbcConnectionPool.getInstance(dataBaseType, jdbcUrl, username, password,
+                conf.getInt(Key.MAX_IDLE_CONNECTIONS, Constant.DEFAULT_MAX_IDLE_CONNECTIONS));
+    }
+
+    public static void releaseConnection(JdbcConnectionPool pool, Connection conn) {
+        if (pool != null) {
+            pool.releaseConnection(conn);
+        } else {
+            DBUtil.closeDBResources(null, null, conn);
+        }
+    }
+
     public static String getWriteTemplate(List<String> columnHolders, List<String> valueHolders, String writeMode, DataBaseType dataBaseType, boolean forceUseUpdate) {
         boolean isWriteModeLegal = writeMode.trim().toLowerCase().startsWith("insert")
                 || writeMode.trim().toLowerCase().startsWith("replace")
@@ -0,0 +1,399 @@
+package com.alibaba.datax.plugin.rdbms.reader.util;
+
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.BytesColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.plugin.rdbms.util.DBUtilErrorCode;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class ColumnDecodePlanTest {
+
+    private static final int[] TYPES = {Types.VARCHAR, Types.NCHAR, Types.CLOB, Types.INTEGER, Types.BIGINT,
+            Types.DECIMAL, Types.DOUBLE, Types.TIME, Types.DATE, Types.DATE, Types.TIMESTAMP, Types.VARBINARY,
+            Types.BIT, Types.NULL};
+
+    private static final String[] TYPE_NAMES = {"VARCHAR", "NCHAR", "CLOB", "INT", "BIGINT",
+            "DECIMAL", "DOUBLE", "TIME", "DATE", "YEAR", "TIMESTAMP", "VARBINARY",
+            "BIT", "NULL"};
+
+    private static final long TIMESTAMP = 1600000000123L;
+
+    @Test
+    public void testSameRecordsAsLegacyBuildRecord() throws Exception {
+        assertSameAsLegacy(null);
+        assertSameAsLegacy("UTF-8");
+        assertSameAsLegacy("GBK");
+    }
+
+    @Test
+    public void testFetchFailureKeepsDecodedColumns() throws Exception {
+        SQLException failure = new SQLException("bad cell");
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[]{"a", 1L, failure, "never read"});
+        ResultSetMetaData metaData = metaData(new int[]{Types.VARCHAR, Types.INTEGER, Types.DOUBLE, Types.VARCHAR},
+                new String[]{"VARCHAR", "INT", "DOUBLE", "VARCHAR"});
+
+        ResultSet rs = resultSet(rows);
+        Assert.assertTrue(rs.next());
+        ListRecord legacy = new ListRecord();
+        try {
+            legacyBuildRecord(rs, metaData, 4, null, legacy);
+            Assert.fail();
+        } catch (SQLException e) {
+            Assert.assertSame(failure, e);
+        }
+
+        ColumnDecodePlan plan = ColumnDecodePlan.compile(metaData, 4, null);
+        Object[] raw = plan.fetch(rs);
+        Assert.assertFalse(ColumnDecodePlan.isFatal(raw));
+        ListRecord record = new ListRecord();
+        try {
+            plan.decode(raw, record);
+            Assert.fail();
+        } catch (SQLException e) {
+            Assert.assertSame(failure, e);
+        }
+        // 与原实现一致, 失败之前的列保留在 record 中, 由调用方记为脏数据
+        assertSameColumns(legacy, record);
+        Assert.assertEquals(2, record.getColumnNumber());
+    }
+
+    @Test
+    public void testConvertFailureSameAsLegacy() throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[]{"a", "not a number"});
+        ResultSetMetaData metaData = metaData(new int[]{Types.VARCHAR, Types.BIGINT}, new String[]{"VARCHAR", "BIGINT"});
+
+        ResultSet rs = resultSet(rows);
+        Assert.assertTrue(rs.next());
+        ListRecord legacy = new ListRecord();
+        Exception legacyError = null;
+        try {
+            legacyBuildRecord(rs, metaData, 2, null, legacy);
+        } catch (Exception e) {
+            legacyError = e;
+        }
+
+        ColumnDecodePlan plan = ColumnDecodePlan.compile(metaData, 2, null);
+        ListRecord record = new ListRecord();
+        Exception error = null;
+        try {
+            plan.decode(plan.fetch(rs), record);
+        } catch (Exception e) {
+            error = e;
+        }
+        Assert.assertNotNull(legacyError);
+        Assert.assertNotNull(error);
+        Assert.assertEquals(legacyError.getClass(), error.getClass());
+        assertSameColumns(legacy, record);
+    }
+
+    @Test
+    public void testUnsupportedTypeIsFatal() throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[]{"a", "array"});
+        ResultSetMetaData metaData = metaData(new int[]{Types.VARCHAR, Types.ARRAY}, new String[]{"VARCHAR", "ARRAY"});
+        ResultSet rs = resultSet(rows);
+        Assert.assertTrue(rs.next());
+
+        ColumnDecodePlan plan = ColumnDecodePlan.compile(metaData, 2, null);
+        Object[] raw = plan.fetch(rs);
+        Assert.assertTrue(ColumnDecodePlan.isFatal(raw));
+        ListRecord record = new ListRecord();
+        try {
+            plan.decode(raw, record);
+            Assert.fail();
+        } catch (DataXException e) {
+            Assert.assertEquals(DBUtilErrorCode.UNSUPPORTED_TYPE, e.getErrorCode());
+        }
+        Assert.assertEquals(1, record.getColumnNumber());
+        Assert.assertTrue(plan.getCostSummary().contains("c1[UNSUPPORTED]"));
+    }
+
+    private static void assertSameAsLegacy(String mandatoryEncoding) throws Exception {
+        List<Object[]> rows = rows(mandatoryEncoding);
+        ResultSetMetaData metaData = metaData(TYPES, TYPE_NAMES);
+        ColumnDecodePlan plan = ColumnDecodePlan.compile(metaData, TYPES.length, mandatoryEncoding);
+
+        ResultSet legacyRs = resultSet(rows);
+        ResultSet rs = resultSet(rows);
+        int count = 0;
+        while (legacyRs.next()) {
+            Assert.assertTrue(rs.next());
+            ListRecord legacy = new ListRecord();
+            legacyBuildRecord(legacyRs, metaData, TYPES.length, mandatoryEncoding, legacy);
+            ListRecord record = new ListRecord();
+            plan.decode(plan.fetch(rs), record);
+            assertSameColumns(legacy, record);
+            count++;
+        }
+        Assert.assertFalse(rs.next());
+        Assert.assertEquals(rows.size(), count);
+    }
+
+    /**
+     * 一行全部有值, 一行全部为 null; 字符串列在指定 mandatoryEncoding 时以该编码存储
+     */
+    private static List<Object[]> rows(String mandatoryEncoding) throws Exception {
+        Object text = StringUtils.isBlank(mandatoryEncoding) ? "中文abc"
+                : "中文abc".getBytes(mandatoryEncoding);
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[]{text, text, "clob", 42, -7L,
+                "12345.678", 0.25d, new java.sql.Time(TIMESTAMP), new java.sql.Date(TIMESTAMP), 2020,
+                new java.sql.Timestamp(TIMESTAMP), new byte[]{1, 2, 3},
+                true, 99L});
+        rows.add(new Object[TYPES.length]);
+        return rows;
+    }
+
+    /**
+     * 改造前 CommonRdbmsReader.Task#buildRecord 的逐列转换, 每个单元格都查询 metaData
+     */
+    private static void legacyBuildRecord(ResultSet rs, ResultSetMetaData metaData, int columnNumber,
+                                          String mandatoryEncoding, Record record) throws Exception {
+        for (int i = 1; i <= columnNumber; i++) {
+            switch (metaData.getColumnType(i)) {
+                case Types.CHAR:
+                case Types.NCHAR:
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                case Types.NVARCHAR:
+                case Types.LONGNVARCHAR:
+                    String rawData;
+                    if (StringUtils.isBlank(mandatoryEncoding)) {
+                        rawData = rs.getString(i);
+                    } else {
+                        rawData = new String((rs.getBytes(i) == null ? new byte[0] :
+                                rs.getBytes(i)), mandatoryEncoding);
+                    }
+                    record.addColumn(new StringColumn(rawData));
+                    break;
+
+                case Types.CLOB:
+                case Types.NCLOB:
+                    record.addColumn(new StringColumn(rs.getString(i)));
+                    break;
+
+                case Types.SMALLINT:
+                case Types.TINYINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                    record.addColumn(new LongColumn(rs.getString(i)));
+                    break;
+
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                case Types.FLOAT:
+                case Types.REAL:
+                case Types.DOUBLE:
+                    record.addColumn(new DoubleColumn(rs.getString(i)));
+                    break;
+
+                case Types.TIME:
+                    record.addColumn(new DateColumn(rs.getTime(i)));
+                    break;
+
+                case Types.DATE:
+                    if (metaData.getColumnTypeName(i).equalsIgnoreCase("year")) {
+                        record.addColumn(new LongColumn(rs.getInt(i)));
+                    } else {
+                        record.addColumn(new DateColumn(rs.getDate(i)));
+                    }
+                    break;
+
+                case Types.TIMESTAMP:
+                    record.addColumn(new DateColumn(rs.getTimestamp(i)));
+                    break;
+
+                case Types.BINARY:
+                case Types.VARBINARY:
+                case Types.BLOB:
+                case Types.LONGVARBINARY:
+                    record.addColumn(new BytesColumn(rs.getBytes(i)));
+                    break;
+
+                case Types.BOOLEAN:
+                case Types.BIT:
+                    record.addColumn(new BoolColumn(rs.getBoolean(i)));
+                    break;
+
+                case Types.NULL:
+                    String stringData = null;
+                    if (rs.getObject(i) != null) {
+                        stringData = rs.getObject(i).toString();
+                    }
+                    record.addColumn(new StringColumn(stringData));
+                    break;
+
+                default:
+                    throw DataXException.asDataXException(DBUtilErrorCode.UNSUPPORTED_TYPE, metaData.getColumnName(i));
+            }
+        }
+    }
+
+    private static void assertSameColumns(Record expected, Record actual) {
+        Assert.assertEquals(expected.getColumnNumber(), actual.getColumnNumber());
+        for (int i = 0; i < expected.getColumnNumber(); i++) {
+            Column left = expected.getColumn(i);
+            Column right = actual.getColumn(i);
+            String message = "column " + i;
+            Assert.assertEquals(message, left.getClass(), right.getClass());
+            Assert.assertEquals(message, left.getType(), right.getType());
+            Assert.assertEquals(message, left.getByteSize(), right.getByteSize());
+            if (left.getRawData() instanceof byte[]) {
+                Assert.assertArrayEquals(message, (byte[]) left.getRawData(), (byte[]) right.getRawData());
+            } else {
+                Assert.assertEquals(message, left.getRawData(), right.getRawData());
+            }
+        }
+    }
+
+    /**
+     * 列名为 c0, c1, ...
+     */
+    static ResultSetMetaData metaData(final int[] types, final String[] typeNames) {
+        return proxy(ResultSetMetaData.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if ("getColumnCount".equals(name)) {
+                    return types.length;
+                }
+                int index = (Integer) args[0] - 1;
+                if ("getColumnType".equals(name)) {
+                    return types[index];
+                } else if ("getColumnTypeName".equals(name)) {
+                    return typeNames[index];
+                } else if ("getColumnName".equals(name) || "getColumnLabel".equals(name)) {
+                    return "c" + index;
+                } else if ("getColumnClassName".equals(name)) {
+                    return Object.class.getName();
+                }
+                throw new UnsupportedOperationException(name);
+            }
+        });
+    }
+
+    /**
+     * 按行返回给定的值, getter 的转换与常见驱动一致; 值为 SQLException 时取该列抛出该异常
+     */
+    static ResultSet resultSet(final List<Object[]> rows) {
+        final int[] cursor = {-1};
+        return proxy(ResultSet.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+                String name = method.getName();
+                if ("next".equals(name)) {
+                    if (cursor[0] + 1 >= rows.size()) {
+                        cursor[0] = rows.size();
+                        return false;
+                    }
+                    cursor[0]++;
+                    return true;
+                } else if ("close".equals(name)) {
+                    return null;
+                }
+                Object value = rows.get(cursor[0])[(Integer) args[0] - 1];
+                if (value instanceof SQLException) {
+                    throw (SQLException) value;
+                }
+                if ("getString".equals(name)) {
+                    if (value instanceof byte[]) {
+                        return new String((byte[]) value, StandardCharsets.UTF_8);
+                    }
+                    return value == null ? null : value.toString();
+                } else if ("getBytes".equals(name)) {
+                    if (value == null || value instanceof byte[]) {
+                        return value;
+                    }
+                    return value.toString().getBytes(StandardCharsets.UTF_8);
+                } else if ("getInt".equals(name)) {
+                    return value == null ? 0 : ((Number) value).intValue();
+                } else if ("getBoolean".equals(name)) {
+                    return value != null && (Boolean) value;
+                } else if ("getTime".equals(name) || "getDate".equals(name) || "getTimestamp".equals(name)
+                        || "getObject".equals(name)) {
+                    return value;
+                }
+                throw new UnsupportedOperationException(name);
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    static class ListRecord implements Record {
+        private final List<Column> columns = new ArrayList<Column>();
+
+        @Override
+        public void addColumn(Column column) {
+            this.columns.add(column);
+        }
+
+        @Override
+        public void setColumn(int i, Column column) {
+            this.columns.set(i, column);
+        }
+
+        @Override
+        public Column getColumn(int i) {
+            return this.columns.get(i);
+        }
+
+        @Override
+        public int getColumnNumber() {
+            return this.columns.size();
+        }
+
+        @Override
+        public int getByteSize() {
+            int size = 0;
+            for (Column column : this.columns) {
+                size += column.getByteSize();
+            }
+            return size;
+        }
+
+        @Override
+        public int getMemorySize() {
+            return getByteSize();
+        }
+
+        @Override
+        public void setMeta(Map<String, String> meta) {
+        }
+
+        @Override
+        public Map<String, String> getMeta() {
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(this.columns.toArray());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.alibaba.datax.plugin.rdbms.reader.util;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.plugin.rdbms.util.DBUtilErrorCode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FetchPipelineTest {
+
+    private static final int ROWS = 10;
+
+    @Test(timeout = 10000)
+    public void testAllRowsInOrder() throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{i});
+        }
+        ColumnDecodePlan plan = longPlan();
+        // 队列容量为 1, fetch 线程需要等待 reader 线程取走后才能继续
+        FetchPipeline pipeline = new FetchPipeline(ColumnDecodePlanTest.resultSet(rows), plan, 3, 1,
+                "fetch-all-rows");
+        pipeline.start();
+        List<Long> values = new ArrayList<Long>();
+        try {
+            List<Object[]> batch;
+            while ((batch = pipeline.nextBatch()) != null) {
+                Assert.assertTrue(batch.size() <= 3);
+                for (Object[] raw : batch) {
+                    ColumnDecodePlanTest.ListRecord record = new ColumnDecodePlanTest.ListRecord();
+                    plan.decode(raw, record);
+                    values.add(record.getColumn(0).asLong());
+                }
+            }
+        } finally {
+            pipeline.close();
+        }
+        Assert.assertEquals(ROWS, values.size());
+        for (int i = 0; i < ROWS; i++) {
+            Assert.assertEquals(Long.valueOf(i), values.get(i));
+        }
+        assertThreadTerminated("fetch-all-rows");
+    }
+
+    @Test(timeout = 10000)
+    public void testFetchErrorPropagated() throws Exception {
+        SQLException failure = new SQLException("connection reset");
+        ResultSet rs = failingResultSet(4, failure);
+        FetchPipeline pipeline = new FetchPipeline(rs, longPlan(), 2, 4, "fetch-error");
+        pipeline.start();
+        int rows = 0;
+        try {
+            List<Object[]> batch;
+            while ((batch = pipeline.nextBatch()) != null) {
+                rows += batch.size();
+            }
+            Assert.fail();
+        } catch (SQLException e) {
+            // 出错之前已经凑满的批次先交给 reader 线程, 之后抛出 fetch 线程的原异常
+            Assert.assertSame(failure, e);
+            Assert.assertEquals(4, rows);
+        } finally {
+            pipeline.close();
+        }
+        assertThreadTerminated("fetch-error");
+    }
+
+    @Test(timeout = 10000)
+    public void testFetchErrorOfTypeErrorPropagated() throws Exception {
+        OutOfMemoryError failure = new OutOfMemoryError("fetch");
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenThrow(failure);
+        FetchPipeline pipeline = new FetchPipeline(rs, longPlan(), 2, 4, "fetch-oom");
+        pipeline.start();
+        try {
+            pipeline.nextBatch();
+            Assert.fail();
+        } catch (OutOfMemoryError e) {
+            Assert.assertSame(failure, e);
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFatalRowStopsFetch() throws Exception {
+        final AtomicInteger nextCalls = new AtomicInteger();
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenAnswer(new org.mockito.stubbing.Answer<Boolean>() {
+            @Override
+            public Boolean answer(org.mockito.invocation.InvocationOnMock invocation) {
+                nextCalls.incrementAndGet();
+                return true;
+            }
+        });
+        ColumnDecodePlan plan = ColumnDecodePlan.compile(ColumnDecodePlanTest.metaData(
+                new int[]{Types.ARRAY}, new String[]{"ARRAY"}), 1, null);
+        FetchPipeline pipeline = new FetchPipeline(rs, plan, 100, 4, "fetch-fatal");
+        pipeline.start();
+        try {
+            List<Object[]> batch = pipeline.nextBatch();
+            Assert.assertEquals(1, batch.size());
+            Assert.assertNull(pipeline.nextBatch());
+            try {
+                plan.decode(batch.get(0), new ColumnDecodePlanTest.ListRecord());
+                Assert.fail();
+            } catch (DataXException e) {
+                Assert.assertEquals(DBUtilErrorCode.UNSUPPORTED_TYPE, e.getErrorCode());
+            }
+        } finally {
+            pipeline.close();
+        }
+        // 不支持的字段类型会使 task 失败, fetch 线程不再继续读取
+        Assert.assertEquals(1, nextCalls.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testCloseStopsBlockedFetchThread() throws Exception {
+        // 无限的结果集: reader 线程提前结束时, 阻塞在队列上的 fetch 线程也能退出
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true);
+        when(rs.getString(anyInt())).thenReturn("1");
+        FetchPipeline pipeline = new FetchPipeline(rs, longPlan(), 2, 1, "fetch-close");
+        pipeline.start();
+        try {
+            Assert.assertEquals(2, pipeline.nextBatch().size());
+        } finally {
+            pipeline.close();
+        }
+        assertThreadTerminated("fetch-close");
+    }
+
+    private static ColumnDecodePlan longPlan() throws SQLException {
+        ResultSetMetaData metaData = ColumnDecodePlanTest.metaData(new int[]{Types.BIGINT}, new String[]{"BIGINT"});
+        return ColumnDecodePlan.compile(metaData, 1, null);
+    }
+
+    /**
+     * 先返回 rows 行, 之后 next 抛出 failure
+     */
+    private static ResultSet failingResultSet(final int rows, final SQLException failure) throws SQLException {
+        final AtomicInteger cursor = new AtomicInteger();
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenAnswer(new org.mockito.stubbing.Answer<Boolean>() {
+            @Override
+            public Boolean answer(org.mockito.invocation.InvocationOnMock invocation) throws SQLException {
+                if (cursor.incrementAndGet() > rows) {
+                    throw failure;
+                }
+                return true;
+            }
+        });
+        when(rs.getString(anyInt())).thenAnswer(new org.mockito.stubbing.Answer<String>() {
+            @Override
+            public String answer(org.mockito.invocation.InvocationOnMock invocation) {
+                return String.valueOf(cursor.get());
+            }
+        });
+        return rs;
+    }
+
+    /**
+     * close 之后 fetch 线程应当退出; 线程池 shutdownNow 后工作线程的退出是异步的, 因此轮询等待
+     */
+    private static void assertThreadTerminated(String threadName) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            boolean alive = false;
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (threadName.equals(thread.getName()) && thread.isAlive()) {
+                    alive = true;
+                }
+            }
+            if (!alive) {
+                return;
+            }
+            Thread.sleep(50L);
+        }
+        Assert.fail(threadName + " still alive");
+    }
+}
@@ -0,0 +1,209 @@
+package com.alibaba.datax.plugin.rdbms.reader.util;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.plugin.rdbms.reader.Constant;
+import com.alibaba.datax.plugin.rdbms.reader.Key;
+import com.alibaba.datax.plugin.rdbms.util.DBUtilErrorCode;
+import com.alibaba.datax.plugin.rdbms.util.DataBaseType;
+import com.alibaba.fastjson.JSONObject;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IncrementalWatermarkUtilTest {
+
+    private static final String URL = "jdbc:mysql://127.0.0.1:3306/db";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRange() {
+        // 第一次执行读取不大于当前最大值的全部数据
+        Assert.assertEquals("id <= 100",
+                IncrementalWatermarkUtil.buildRange(DataBaseType.MySql, "number", "id", null, "100"));
+        // 没有新数据
+        Assert.assertEquals("1 = 0",
+                IncrementalWatermarkUtil.buildRange(DataBaseType.MySql, "number", "id", null, null));
+        Assert.assertEquals("1 = 0",
+                IncrementalWatermarkUtil.buildRange(DataBaseType.MySql, "number", "id", "100", null));
+        // 左开右闭
+        Assert.assertEquals("id > 100 AND id <= 200",
+                IncrementalWatermarkUtil.buildRange(DataBaseType.MySql, "number", "id", "100", "200"));
+        Assert.assertEquals("gmt > '2020-01-01 00:00:00.0' AND gmt <= '2020-01-02 00:00:00.0'",
+                IncrementalWatermarkUtil.buildRange(DataBaseType.MySql, "timestamp", "gmt",
+                        "'2020-01-01 00:00:00.0'", "2020-01-02 00:00:00"));
+    }
+
+    @Test
+    public void testLiteral() {
+        Assert.assertEquals("1000", IncrementalWatermarkUtil.toLiteral(DataBaseType.MySql, "number", "1E+3"));
+        Assert.assertEquals("-1.50", IncrementalWatermarkUtil.toLiteral(DataBaseType.MySql, "number", "-1.50"));
+        Assert.assertEquals("'2020-01-02 03:04:05.123'",
+                IncrementalWatermarkUtil.toLiteral(DataBaseType.MySql, "timestamp", "2020-01-02 03:04:05.123"));
+        Assert.assertEquals("TO_TIMESTAMP('2020-01-02 03:04:05.0', 'YYYY-MM-DD HH24:MI:SS.FF')",
+                IncrementalWatermarkUtil.toLiteral(DataBaseType.Oracle, "timestamp", "2020-01-02 03:04:05"));
+        Assert.assertEquals("'O''Brien'", IncrementalWatermarkUtil.toLiteral(DataBaseType.MySql, "string", "O'Brien"));
+        Assert.assertEquals("'x'' OR ''1''=''1'",
+                IncrementalWatermarkUtil.toLiteral(DataBaseType.MySql, "string", "x' OR '1'='1"));
+        // 状态文件中没有记录类型时按字符串处理
+        Assert.assertEquals("'100'", IncrementalWatermarkUtil.toLiteral(DataBaseType.MySql, null, "100"));
+
+        // 被篡改的数值/时间水位不会拼接进 sql
+        try {
+            IncrementalWatermarkUtil.toLiteral(DataBaseType.MySql, "number", "1 OR 1=1");
+            Assert.fail();
+        } catch (NumberFormatException expected) {
+        }
+        try {
+            IncrementalWatermarkUtil.toLiteral(DataBaseType.MySql, "timestamp", "2020-01-01' OR '1'='1");
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testQueryMaxComparedByDatabase() throws Exception {
+        Statement stmt = mock(Statement.class);
+        Connection conn = mock(Connection.class);
+        when(conn.createStatement(anyInt(), anyInt())).thenReturn(stmt);
+        ResultSet rs = mockResultSet(Types.VARCHAR, null);
+        when(stmt.executeQuery(anyString())).thenReturn(rs);
+
+        String[] max = IncrementalWatermarkUtil.queryMax(conn, DataBaseType.MySql, "code", "t", "deleted = 0",
+                "'b'", "user");
+        Assert.assertEquals("string", max[0]);
+        Assert.assertNull(max[1]);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(stmt).executeQuery(sql.capture());
+        Assert.assertEquals("SELECT MAX(code) FROM t WHERE (deleted = 0) AND code > 'b'", sql.getValue());
+
+        // 第一次执行不带水位条件
+        stmt = mock(Statement.class);
+        conn = mock(Connection.class);
+        when(conn.createStatement(anyInt(), anyInt())).thenReturn(stmt);
+        rs = mockResultSet(Types.BIGINT, "100");
+        when(stmt.executeQuery(anyString())).thenReturn(rs);
+        max = IncrementalWatermarkUtil.queryMax(conn, DataBaseType.MySql, "id", "t", null, null, "user");
+        Assert.assertArrayEquals(new String[]{"number", "100"}, max);
+        sql = ArgumentCaptor.forClass(String.class);
+        verify(stmt).executeQuery(sql.capture());
+        Assert.assertEquals("SELECT MAX(id) FROM t", sql.getValue());
+    }
+
+    @Test
+    public void testUnsupportedColumnType() throws Exception {
+        Statement stmt = mock(Statement.class);
+        Connection conn = mock(Connection.class);
+        when(conn.createStatement(anyInt(), anyInt())).thenReturn(stmt);
+        ResultSet rs = mockResultSet(Types.BLOB, null);
+        when(stmt.executeQuery(anyString())).thenReturn(rs);
+        try {
+            IncrementalWatermarkUtil.queryMax(conn, DataBaseType.MySql, "data", "t", null, null, "user");
+            Assert.fail();
+        } catch (DataXException e) {
+            Assert.assertEquals(DBUtilErrorCode.ILLEGAL_VALUE, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testStateFileRoundTripAndMerge() throws Exception {
+        File stateFile = new File(this.folder.getRoot(), "state/watermark.json");
+        Configuration config = Configuration.newDefault();
+        config.set(Key.INCREMENTAL_COLUMN, "id");
+        config.set(Key.INCREMENTAL_STATE_FILE, stateFile.getAbsolutePath());
+
+        // 没有待更新的水位时不写文件
+        IncrementalWatermarkUtil.saveWatermarks(config);
+        Assert.assertFalse(stateFile.exists());
+
+        String keyA = IncrementalWatermarkUtil.buildStateKey(URL + "?useSSL=false", "a", "id");
+        String keyB = IncrementalWatermarkUtil.buildStateKey(URL, "b", "id");
+        Assert.assertEquals(URL + "/a#id", keyA);
+        List<Map<String, Object>> pending = new ArrayList<Map<String, Object>>();
+        pending.add(pending(keyA, "number", "100"));
+        config.set(Constant.INCREMENTAL_WATERMARK_MARK, pending);
+        IncrementalWatermarkUtil.saveWatermarks(config);
+
+        JSONObject states = IncrementalWatermarkUtil.loadStates(stateFile);
+        Assert.assertEquals(1, states.size());
+        Assert.assertEquals("100", states.getJSONObject(keyA).getString("watermark"));
+        Assert.assertEquals("number", states.getJSONObject(keyA).getString("valueType"));
+        Assert.assertEquals("id", states.getJSONObject(keyA).getString("column"));
+        Assert.assertNotNull(states.getJSONObject(keyA).getString("updateTime"));
+
+        // 另一个作业只更新 b, a 的水位保留
+        pending = new ArrayList<Map<String, Object>>();
+        pending.add(pending(keyB, "timestamp", "2020-01-01 00:00:00.0"));
+        config.set(Constant.INCREMENTAL_WATERMARK_MARK, pending);
+        IncrementalWatermarkUtil.saveWatermarks(config);
+
+        // 再次更新 a 时覆盖原来的水位
+        pending = new ArrayList<Map<String, Object>>();
+        pending.add(pending(keyA, "number", "200"));
+        config.set(Constant.INCREMENTAL_WATERMARK_MARK, pending);
+        IncrementalWatermarkUtil.saveWatermarks(config);
+
+        states = IncrementalWatermarkUtil.loadStates(stateFile);
+        Assert.assertEquals(2, states.size());
+        Assert.assertEquals("200", states.getJSONObject(keyA).getString("watermark"));
+        Assert.assertEquals("2020-01-01 00:00:00.0", states.getJSONObject(keyB).getString("watermark"));
+        Assert.assertFalse(new File(stateFile.getAbsolutePath() + ".tmp").exists());
+    }
+
+    @Test
+    public void testIllegalStateFile() throws Exception {
+        File stateFile = this.folder.newFile("broken.json");
+        Files.write(stateFile.toPath(), "{not json".getBytes(StandardCharsets.UTF_8));
+        try {
+            IncrementalWatermarkUtil.loadStates(stateFile);
+            Assert.fail();
+        } catch (DataXException e) {
+            Assert.assertEquals(DBUtilErrorCode.INCREMENTAL_STATE_ERROR, e.getErrorCode());
+        }
+        Assert.assertTrue(IncrementalWatermarkUtil.loadStates(new File(this.folder.getRoot(), "absent.json"))
+                .isEmpty());
+    }
+
+    private static Map<String, Object> pending(String key, String valueType, String watermark) {
+        Map<String, Object> pending = new HashMap<String, Object>();
+        pending.put("key", key);
+        pending.put("column", "id");
+        pending.put("valueType", valueType);
+        pending.put("watermark", watermark);
+        return pending;
+    }
+
+    private static ResultSet mockResultSet(int columnType, String max) throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnType(1)).thenReturn(columnType);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        // MAX 总是返回一行, 没有满足条件的数据时为 null
+        when(rs.next()).thenReturn(true, false);
+        when(rs.getString(1)).thenReturn(max);
+        return rs;
+    }
+}
@@ -0,0 +1,221 @@
+package com.alibaba.datax.plugin.rdbms.util;
+
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.plugin.rdbms.writer.Key;
+import com.alibaba.datax.plugin.rdbms.writer.util.WriterUtil;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JdbcConnectionPoolTest {
+
+    private static final String URL_PREFIX = "jdbc:dataxpool:";
+
+    private static final FakeDriver DRIVER = new FakeDriver();
+
+    private Configuration conf;
+
+    @BeforeClass
+    public static void registerDriver() throws SQLException {
+        DriverManager.registerDriver(DRIVER);
+    }
+
+    @AfterClass
+    public static void deregisterDriver() throws SQLException {
+        DriverManager.deregisterDriver(DRIVER);
+    }
+
+    @Before
+    public void setUp() {
+        DRIVER.connections.clear();
+        this.conf = Configuration.newDefault();
+        this.conf.set(Key.CONNECTION_POOL, true);
+    }
+
+    @After
+    public void tearDown() {
+        JdbcConnectionPool.closeAll();
+    }
+
+    @Test
+    public void testPoolDisabledByDefault() throws SQLException {
+        Assert.assertNull(WriterUtil.getConnectionPool(Configuration.newDefault(), DataBaseType.MySql,
+                URL_PREFIX + "db", "user", "pass"));
+
+        // 未开启连接池时归还即关闭
+        Connection connection = DBUtil.getConnection(DataBaseType.MySql, URL_PREFIX + "db", "user", "pass");
+        WriterUtil.releaseConnection(null, connection);
+        verify(connection).close();
+    }
+
+    @Test
+    public void testReuseWithinKey() throws SQLException {
+        JdbcConnectionPool pool = pool(URL_PREFIX + "db", "user");
+        Assert.assertSame(pool, pool(URL_PREFIX + "db", "user"));
+
+        Connection first = pool.getConnecttion();
+        WriterUtil.releaseConnection(pool, first);
+        Connection second = pool.getConnecttion();
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, DRIVER.connections.size());
+        verify(first, never()).close();
+
+        // 同时借出时各自建连
+        Connection third = pool.getConnecttionWithoutRetry();
+        Assert.assertNotSame(second, third);
+        Assert.assertEquals(2, DRIVER.connections.size());
+    }
+
+    @Test
+    public void testSeparatedAcrossKeys() throws SQLException {
+        JdbcConnectionPool pool = pool(URL_PREFIX + "db", "user");
+        JdbcConnectionPool otherUser = pool(URL_PREFIX + "db", "other");
+        JdbcConnectionPool otherUrl = pool(URL_PREFIX + "db2", "user");
+        Assert.assertNotSame(pool, otherUser);
+        Assert.assertNotSame(pool, otherUrl);
+        Assert.assertNotSame(pool, WriterUtil.getConnectionPool(this.conf, DataBaseType.PostgreSQL,
+                URL_PREFIX + "db", "user", "pass"));
+
+        Connection connection = pool.getConnecttion();
+        WriterUtil.releaseConnection(pool, connection);
+        // 其他 key 的连接池不会借出该连接
+        Assert.assertNotSame(connection, otherUser.getConnecttion());
+        Assert.assertNotSame(connection, otherUrl.getConnecttion());
+        Assert.assertEquals(3, DRIVER.connections.size());
+        Assert.assertSame(connection, pool.getConnecttion());
+    }
+
+    @Test
+    public void testRollbackBeforeReuse() throws SQLException {
+        JdbcConnectionPool pool = pool(URL_PREFIX + "db", "user");
+        Connection connection = pool.getConnecttion();
+        when(connection.getAutoCommit()).thenReturn(false);
+
+        WriterUtil.releaseConnection(pool, connection);
+        verify(connection).rollback();
+        verify(connection).setAutoCommit(true);
+        Assert.assertSame(connection, pool.getConnecttion());
+    }
+
+    @Test
+    public void testClosedOnReleaseAfterFailure() throws SQLException {
+        JdbcConnectionPool pool = pool(URL_PREFIX + "db", "user");
+        Connection connection = pool.getConnecttion();
+        // 写入失败后事务无法回滚, 该连接不能再放回池中
+        when(connection.getAutoCommit()).thenReturn(false);
+        doThrow(new SQLException("connection reset")).when(connection).rollback();
+
+        WriterUtil.releaseConnection(pool, connection);
+        verify(connection).close();
+        Connection next = pool.getConnecttion();
+        Assert.assertNotSame(connection, next);
+        Assert.assertEquals(2, DRIVER.connections.size());
+
+        // 已经关闭的连接同样不会放回
+        when(next.isClosed()).thenReturn(true);
+        WriterUtil.releaseConnection(pool, next);
+        Assert.assertNotSame(next, pool.getConnecttion());
+        Assert.assertEquals(3, DRIVER.connections.size());
+    }
+
+    @Test
+    public void testInvalidIdleConnectionDiscarded() throws SQLException {
+        JdbcConnectionPool pool = pool(URL_PREFIX + "db", "user");
+        Connection connection = pool.getConnecttion();
+        WriterUtil.releaseConnection(pool, connection);
+        when(connection.isValid(anyInt())).thenReturn(false);
+
+        Connection next = pool.getConnecttion();
+        Assert.assertNotSame(connection, next);
+        verify(connection).close();
+    }
+
+    @Test
+    public void testIdleConnectionsBoundedByMaxIdle() throws SQLException {
+        this.conf.set(Key.MAX_IDLE_CONNECTIONS, 1);
+        JdbcConnectionPool pool = pool(URL_PREFIX + "db", "user");
+        Connection first = pool.getConnecttion();
+        Connection second = pool.getConnecttion();
+        WriterUtil.releaseConnection(pool, first);
+        WriterUtil.releaseConnection(pool, second);
+        verify(first, never()).close();
+        verify(second).close();
+
+        // 关闭后空闲连接全部释放
+        JdbcConnectionPool.closeAll();
+        verify(first).close();
+    }
+
+    private JdbcConnectionPool pool(String jdbcUrl, String username) {
+        return WriterUtil.getConnectionPool(this.conf, DataBaseType.MySql, jdbcUrl, username, "pass");
+    }
+
+    /**
+     * 只接受 jdbc:dataxpool: 开头的 url, 每次建连返回一个新的 mock 连接
+     */
+    private static class FakeDriver implements Driver {
+        private final List<Connection> connections = Collections.synchronizedList(new ArrayList<Connection>());
+
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            Connection connection = mock(Connection.class);
+            when(connection.getAutoCommit()).thenReturn(true);
+            when(connection.isValid(anyInt())).thenReturn(true);
+            this.connections.add(connection);
+            return connection;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url != null && url.startsWith(URL_PREFIX);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        public Logger getParentLogger() {
+            return Logger.getLogger(FakeDriver.class.getName());
+        }
+    }
+}
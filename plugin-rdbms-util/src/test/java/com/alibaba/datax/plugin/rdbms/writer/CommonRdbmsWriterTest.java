@@ -0,0 +1,221 @@
+package com.alibaba.datax.plugin.rdbms.writer;
+
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+import com.alibaba.datax.plugin.rdbms.util.DBUtilErrorCode;
+import com.alibaba.datax.plugin.rdbms.util.DataBaseType;
+import com.alibaba.datax.plugin.rdbms.writer.util.AdaptiveBatchSizer;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CommonRdbmsWriterTest {
+
+    private static final int ROWS = 16;
+
+    private FakeDatabase database;
+
+    private List<String> dirtyValues;
+
+    private CommonRdbmsWriter.Task task;
+
+    @Before
+    public void setUp() {
+        this.database = new FakeDatabase();
+        this.dirtyValues = new ArrayList<String>();
+
+        this.task = new CommonRdbmsWriter.Task(DataBaseType.MySql);
+        this.task.writeRecordSql = "INSERT INTO t (id) VALUES(?)";
+        this.task.columnNumber = 1;
+        this.task.resultSetMetaData = ImmutableTriple.of(Collections.singletonList("id"),
+                Collections.singletonList(Types.BIGINT), Collections.singletonList("BIGINT"));
+        this.task.batchSizer = new AdaptiveBatchSizer(DataBaseType.MySql, ROWS, 1, ROWS * 4, 60000L, 3, 1L);
+        this.task.taskPluginCollector = new TaskPluginCollector() {
+            @Override
+            public void collectDirtyRecord(Record dirtyRecord, Throwable t, String errorMessage) {
+                dirtyValues.add(dirtyRecord.getColumn(0).asString());
+            }
+
+            @Override
+            public void collectMessage(String key, String value) {
+            }
+        };
+    }
+
+    @Test
+    public void testBisectKeepsValidRows() throws Exception {
+        this.database.badValues.addAll(Arrays.asList("5", "11"));
+
+        this.task.doBatchInsert(this.database.connection(), records());
+
+        Assert.assertEquals(Arrays.asList("5", "11"), this.dirtyValues);
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < ROWS; i++) {
+            if (i != 5 && i != 11) {
+                expected.add(String.valueOf(i));
+            }
+        }
+        Assert.assertEquals(expected, this.database.committed);
+        Assert.assertTrue(this.database.statements <= 2 * ROWS - 1);
+    }
+
+    @Test
+    public void testLockErrorRetriedWithoutBisect() throws Exception {
+        this.database.lockFailures = 2;
+
+        this.task.doBatchInsert(this.database.connection(), records());
+
+        Assert.assertTrue(this.dirtyValues.isEmpty());
+        Assert.assertEquals(ROWS, this.database.committed.size());
+        // 两次锁等待后整批重试成功, 没有拆分
+        Assert.assertEquals(3, this.database.statements);
+        Assert.assertTrue(this.task.batchSizer.getBatchSize() < ROWS);
+    }
+
+    @Test
+    public void testLockErrorFailsAfterRetries() {
+        this.database.lockFailures = Integer.MAX_VALUE;
+
+        try {
+            this.task.doBatchInsert(this.database.connection(), records());
+            Assert.fail();
+        } catch (SQLException e) {
+            Assert.assertEquals(1205, e.getErrorCode());
+        }
+        Assert.assertTrue(this.dirtyValues.isEmpty());
+        Assert.assertTrue(this.database.committed.isEmpty());
+        Assert.assertEquals(1 + 3, this.database.statements);
+    }
+
+    @Test
+    public void testInterruptDuringBackoff() throws Exception {
+        this.database.lockFailures = Integer.MAX_VALUE;
+
+        Thread.currentThread().interrupt();
+        try {
+            this.task.doBatchInsert(this.database.connection(), records());
+            Assert.fail();
+        } catch (DataXException e) {
+            Assert.assertEquals(DBUtilErrorCode.WRITE_DATA_ERROR, e.getErrorCode());
+            Assert.assertTrue(e.getCause() instanceof InterruptedException);
+            // 中断状态被保留, 且没有继续重试
+            Assert.assertTrue(Thread.interrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        Assert.assertEquals(1, this.database.statements);
+        Assert.assertTrue(this.database.committed.isEmpty());
+    }
+
+    private static List<Record> records() {
+        List<Record> records = new ArrayList<Record>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Record record = mock(Record.class);
+            when(record.getColumn(0)).thenReturn(new LongColumn(i));
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * 只支持单列写入的 JDBC 桩: values 中含 badValues 的语句报主键冲突, 前 lockFailures 条语句报锁等待超时
+     */
+    private static class FakeDatabase {
+        private final Set<String> badValues = new HashSet<String>();
+        private final List<String> committed = new ArrayList<String>();
+        private final List<String> uncommitted = new ArrayList<String>();
+        private int lockFailures = 0;
+        private int statements = 0;
+
+        Connection connection() {
+            return proxy(Connection.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    String name = method.getName();
+                    if ("prepareStatement".equals(name)) {
+                        return statement();
+                    } else if ("commit".equals(name)) {
+                        committed.addAll(uncommitted);
+                        uncommitted.clear();
+                    } else if ("rollback".equals(name)) {
+                        uncommitted.clear();
+                    }
+                    return defaultValue(method);
+                }
+            });
+        }
+
+        private PreparedStatement statement() {
+            final List<String> batch = new ArrayList<String>();
+            final String[] current = new String[1];
+            return proxy(PreparedStatement.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+                    String name = method.getName();
+                    if ("setString".equals(name)) {
+                        current[0] = (String) args[1];
+                    } else if ("addBatch".equals(name)) {
+                        batch.add(current[0]);
+                    } else if ("execute".equals(name)) {
+                        run(Collections.singletonList(current[0]));
+                        return false;
+                    } else if ("executeBatch".equals(name)) {
+                        run(batch);
+                        return new int[batch.size()];
+                    }
+                    return defaultValue(method);
+                }
+            });
+        }
+
+        private void run(List<String> values) throws SQLException {
+            this.statements++;
+            if (this.lockFailures > 0) {
+                this.lockFailures--;
+                throw new SQLException("Lock wait timeout exceeded", "HY000", 1205);
+            }
+            for (String value : values) {
+                if (this.badValues.contains(value)) {
+                    throw new SQLException("Duplicate entry '" + value + "'", "23000", 1062);
+                }
+            }
+            this.uncommitted.addAll(values);
+        }
+
+        private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+
+        private static Object defaultValue(Method method) {
+            Class<?> type = method.getReturnType();
+            if (type == boolean.class) {
+                return false;
+            } else if (type == int.class) {
+                return 0;
+            } else if (type == long.class) {
+                return 0L;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.alibaba.datax.plugin.rdbms.writer.util;
+
+import com.alibaba.datax.plugin.rdbms.util.DataBaseType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveBatchSizerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    @Test
+    public void testIncreaseOnlyOnFullFastBatch() {
+        AdaptiveBatchSizer sizer = newSizer(DataBaseType.MySql);
+        sizer.onSuccess(32, FAST);
+        Assert.assertEquals(64, sizer.getBatchSize());
+        sizer.onSuccess(64, FAST);
+        Assert.assertEquals(72, sizer.getBatchSize());
+        for (int i = 0; i < 100; i++) {
+            sizer.onSuccess(sizer.getBatchSize(), FAST);
+        }
+        Assert.assertEquals(128, sizer.getBatchSize());
+    }
+
+    @Test
+    public void testHalveOnSlowBatchAndLockError() {
+        AdaptiveBatchSizer sizer = newSizer(DataBaseType.MySql);
+        sizer.onSuccess(64, SLOW);
+        Assert.assertEquals(32, sizer.getBatchSize());
+        sizer.onLockOrTimeout(new SQLException("Lock wait timeout exceeded", "HY000", 1205));
+        Assert.assertEquals(16, sizer.getBatchSize());
+        for (int i = 0; i < 10; i++) {
+            sizer.onSuccess(16, SLOW);
+        }
+        Assert.assertEquals(8, sizer.getBatchSize());
+    }
+
+    @Test
+    public void testLockErrorCodesDependOnDatabase() {
+        SQLException oracleDeadlock = new SQLException("ORA-00060: deadlock detected", "61000", 60);
+        Assert.assertTrue(newSizer(DataBaseType.Oracle).isLockOrTimeout(oracleDeadlock));
+        Assert.assertFalse(newSizer(DataBaseType.MySql).isLockOrTimeout(oracleDeadlock));
+
+        SQLException mysqlDeadlock = new SQLException("Deadlock found", "HY000", 1213);
+        Assert.assertTrue(newSizer(DataBaseType.MySql).isLockOrTimeout(mysqlDeadlock));
+        Assert.assertTrue(newSizer(DataBaseType.DRDS).isLockOrTimeout(mysqlDeadlock));
+        Assert.assertFalse(newSizer(DataBaseType.Oracle).isLockOrTimeout(mysqlDeadlock));
+
+        SQLException sqlServerLockTimeout = new SQLException("Lock request time out period exceeded", "S0001", 1222);
+        Assert.assertTrue(newSizer(DataBaseType.SQLServer).isLockOrTimeout(sqlServerLockTimeout));
+        Assert.assertFalse(newSizer(DataBaseType.MySql).isLockOrTimeout(sqlServerLockTimeout));
+
+        SQLException postgresLockNotAvailable = new SQLException("could not obtain lock", "55P03", 0);
+        Assert.assertTrue(newSizer(DataBaseType.PostgreSQL).isLockOrTimeout(postgresLockNotAvailable));
+        Assert.assertFalse(newSizer(DataBaseType.MySql).isLockOrTimeout(postgresLockNotAvailable));
+    }
+
+    @Test
+    public void testGenericTransientErrors() {
+        AdaptiveBatchSizer sizer = newSizer(DataBaseType.RDBMS);
+        Assert.assertTrue(sizer.isLockOrTimeout(new SQLTimeoutException("timeout")));
+        Assert.assertTrue(sizer.isLockOrTimeout(new SQLException("serialization failure", "40001", 0)));
+        Assert.assertTrue(sizer.isLockOrTimeout(new SQLException("timeout expired", "HYT00", 0)));
+        Assert.assertFalse(sizer.isLockOrTimeout(new SQLException("Duplicate entry", "23000", 1062)));
+    }
+
+    @Test
+    public void testNestedException() {
+        AdaptiveBatchSizer sizer = newSizer(DataBaseType.MySql);
+        BatchUpdateException batchError = new BatchUpdateException("batch failed", "HY000", 0, new int[0]);
+        Assert.assertFalse(sizer.isLockOrTimeout(batchError));
+        batchError.setNextException(new SQLException("Deadlock found", "HY000", 1213));
+        Assert.assertTrue(sizer.isLockOrTimeout(batchError));
+
+        SQLException wrapped = new SQLException("write failed",
+                new SQLException("Lock wait timeout exceeded", "HY000", 1205));
+        Assert.assertTrue(sizer.isLockOrTimeout(wrapped));
+    }
+
+    @Test
+    public void testRetryIntervalBacksOffExponentially() {
+        AdaptiveBatchSizer sizer = newSizer(DataBaseType.MySql);
+        Assert.assertEquals(3, sizer.getLockRetryTimes());
+        Assert.assertEquals(100, sizer.getRetryInterval(1));
+        Assert.assertEquals(200, sizer.getRetryInterval(2));
+        Assert.assertEquals(400, sizer.getRetryInterval(3));
+        Assert.assertEquals(1600, sizer.getRetryInterval(10));
+    }
+
+    private static AdaptiveBatchSizer newSizer(DataBaseType dataBaseType) {
+        return new AdaptiveBatchSizer(dataBaseType, 64, 8, 128, 1000, 3, 100);
+    }
+}
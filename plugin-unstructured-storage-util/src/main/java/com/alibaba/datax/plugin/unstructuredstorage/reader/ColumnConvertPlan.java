@@ -0,0 +1,232 @@
+package com.alibaba.datax.plugin.unstructuredstorage.reader;
+
+import java.nio.charset.Charset;
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.RecordSender;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+
+/**
+ * 把 column 配置预编译为逐列的转换计划, 每个 task 只做一次类型解析和 index/value 校验,
+ * 逐行转换时只解码被引用的字段。转换语义与
+ * {@link UnstructuredStorageReaderUtil#transportOneRecord(RecordSender, List, String[], String, TaskPluginCollector)}
+ * 保持一致: 不支持的列类型与原来一样按行记为脏数据, 而不是让作业失败。
+ */
+public class ColumnConvertPlan {
+	private static final Logger LOG = LoggerFactory
+			.getLogger(ColumnConvertPlan.class);
+
+	/**
+	 * 为 null 表示未配置 column, 所有字段按 String 输出; 元素为 null 表示该列类型不支持
+	 */
+	private final UnstructuredStorageReaderUtil.Type[] types;
+
+	/**
+	 * 不支持的列类型的原始配置, 用于脏数据信息
+	 */
+	private final String[] unsupportedTypes;
+
+	/**
+	 * 常量列为 -1
+	 */
+	private final int[] indexes;
+
+	private final String[] constValues;
+
+	private final DateFormat[] dateFormats;
+
+	private final String nullFormat;
+
+	private final byte[] nullFormatBytes;
+
+	private ColumnConvertPlan(UnstructuredStorageReaderUtil.Type[] types,
+			String[] unsupportedTypes, int[] indexes, String[] constValues,
+			DateFormat[] dateFormats, String nullFormat, Charset charset) {
+		this.types = types;
+		this.unsupportedTypes = unsupportedTypes;
+		this.indexes = indexes;
+		this.constValues = constValues;
+		this.dateFormats = dateFormats;
+		this.nullFormat = nullFormat;
+		this.nullFormatBytes = null == nullFormat ? null : nullFormat
+				.getBytes(charset);
+	}
+
+	public static ColumnConvertPlan compile(List<ColumnEntry> columnConfigs,
+			String nullFormat, Charset charset) {
+		if (null == columnConfigs || columnConfigs.isEmpty()) {
+			return new ColumnConvertPlan(null, null, null, null, null,
+					nullFormat, charset);
+		}
+
+		int size = columnConfigs.size();
+		UnstructuredStorageReaderUtil.Type[] types = new UnstructuredStorageReaderUtil.Type[size];
+		String[] unsupportedTypes = new String[size];
+		int[] indexes = new int[size];
+		String[] constValues = new String[size];
+		DateFormat[] dateFormats = new DateFormat[size];
+		for (int i = 0; i < size; i++) {
+			ColumnEntry columnConfig = columnConfigs.get(i);
+			Integer columnIndex = columnConfig.getIndex();
+			String columnConst = columnConfig.getValue();
+			if (null == columnIndex && null == columnConst) {
+				throw DataXException.asDataXException(
+						UnstructuredStorageReaderErrorCode.NO_INDEX_VALUE,
+						"由于您配置了type, 则至少需要配置 index 或 value");
+			}
+			if (null != columnIndex && null != columnConst) {
+				throw DataXException.asDataXException(
+						UnstructuredStorageReaderErrorCode.MIXED_INDEX_VALUE,
+						"您混合配置了index, value, 每一列同时仅能选择其中一种");
+			}
+			try {
+				types[i] = UnstructuredStorageReaderUtil.Type
+						.valueOf(columnConfig.getType().toUpperCase());
+			} catch (Exception e) {
+				// 逐行转换时记为脏数据
+				unsupportedTypes[i] = columnConfig.getType();
+				LOG.warn(String.format("您配置的列类型暂不支持 : [%s], 该列所在的每一行都会作为脏数据",
+						columnConfig.getType()));
+			}
+			if (null != columnIndex) {
+				indexes[i] = columnIndex;
+			} else {
+				indexes[i] = -1;
+				// it's all ok if nullFormat is null
+				constValues[i] = columnConst.equals(nullFormat) ? null
+						: columnConst;
+			}
+			if (StringUtils.isNotBlank(columnConfig.getFormat())) {
+				dateFormats[i] = columnConfig.getDateFormat();
+			}
+		}
+		return new ColumnConvertPlan(types, unsupportedTypes, indexes,
+				constValues, dateFormats, nullFormat, charset);
+	}
+
+	public Record transportOneRecord(RecordSender recordSender,
+			DelimitedByteParser parser, TaskPluginCollector taskPluginCollector) {
+		Record record = recordSender.createRecord();
+
+		// 创建都为String类型column的record
+		if (null == this.types) {
+			int fieldCount = parser.getFieldCount();
+			for (int i = 0; i < fieldCount; i++) {
+				record.addColumn(new StringColumn(readField(parser, i)));
+			}
+			recordSender.sendToWriter(record);
+			return record;
+		}
+
+		try {
+			for (int i = 0; i < this.types.length; i++) {
+				String columnValue;
+				int columnIndex = this.indexes[i];
+				if (columnIndex >= 0) {
+					if (columnIndex >= parser.getFieldCount()) {
+						String message = String
+								.format("您尝试读取的列越界,源文件该行有 [%s] 列,您尝试读取第 [%s] 列, 数据详情[%s]",
+										parser.getFieldCount(), columnIndex + 1,
+										StringUtils.join(parser.getFields(), ","));
+						LOG.warn(message);
+						throw new IndexOutOfBoundsException(message);
+					}
+					columnValue = readField(parser, columnIndex);
+				} else {
+					columnValue = this.constValues[i];
+				}
+				record.addColumn(convert(i, columnValue));
+			}
+			recordSender.sendToWriter(record);
+		} catch (IllegalArgumentException iae) {
+			taskPluginCollector.collectDirtyRecord(record, iae.getMessage());
+		} catch (IndexOutOfBoundsException ioe) {
+			taskPluginCollector.collectDirtyRecord(record, ioe.getMessage());
+		} catch (Exception e) {
+			if (e instanceof DataXException) {
+				throw (DataXException) e;
+			}
+			// 每一种转换失败都是脏数据处理,包括数字格式 & 日期格式
+			taskPluginCollector.collectDirtyRecord(record, e.getMessage());
+		}
+		return record;
+	}
+
+	private String readField(DelimitedByteParser parser, int index) {
+		if (null != this.nullFormatBytes
+				&& parser.fieldEquals(index, this.nullFormatBytes)) {
+			return null;
+		}
+		return parser.getField(index);
+	}
+
+	private Column convert(int i, String columnValue) {
+		if (null == this.types[i]) {
+			throw new IllegalArgumentException(String.format(
+					"您配置的列类型暂不支持 : [%s]", this.unsupportedTypes[i]));
+		}
+		switch (this.types[i]) {
+		case STRING:
+			return new StringColumn(columnValue);
+		case LONG:
+			try {
+				return new LongColumn(columnValue);
+			} catch (Exception e) {
+				throw new IllegalArgumentException(String.format(
+						"类型转换错误, 无法将[%s] 转换为[%s]", columnValue, "LONG"));
+			}
+		case DOUBLE:
+			try {
+				return new DoubleColumn(columnValue);
+			} catch (Exception e) {
+				throw new IllegalArgumentException(String.format(
+						"类型转换错误, 无法将[%s] 转换为[%s]", columnValue, "DOUBLE"));
+			}
+		case BOOLEAN:
+			try {
+				return new BoolColumn(columnValue);
+			} catch (Exception e) {
+				throw new IllegalArgumentException(String.format(
+						"类型转换错误, 无法将[%s] 转换为[%s]", columnValue, "BOOLEAN"));
+			}
+		case DATE:
+			try {
+				if (null == columnValue) {
+					Date date = null;
+					return new DateColumn(date);
+				}
+				DateFormat format = this.dateFormats[i];
+				if (null != format) {
+					// 用户自己配置的格式转换, 脏数据行为出现变化
+					return new DateColumn(format.parse(columnValue));
+				}
+				// 框架尝试转换
+				return new DateColumn(new StringColumn(columnValue).asDate());
+			} catch (Exception e) {
+				throw new IllegalArgumentException(String.format(
+						"类型转换错误, 无法将[%s] 转换为[%s]", columnValue, "DATE"));
+			}
+		default:
+			String errorMessage = String.format("您配置的列类型暂不支持 : [%s]",
+					this.types[i]);
+			LOG.error(errorMessage);
+			throw DataXException.asDataXException(
+					UnstructuredStorageReaderErrorCode.NOT_SUPPORT_TYPE,
+					errorMessage);
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package com.alibaba.datax.plugin.unstructuredstorage.reader;
 
+import java.util.Arrays;
+import java.util.List;
+
 public class Constant {
 	public static final String DEFAULT_ENCODING = "UTF-8";
 
@@ -11,6 +14,19 @@ public class Constant {
 	
     public static final Integer DEFAULT_BUFFER_SIZE = 8192;
 
+	public static final boolean DEFAULT_BYTE_PARSER = false;
+
+	/**
+	 * 字节解析器的最小缓冲区: 64KB, 单条记录超过缓冲区时自动扩容
+	 */
+	public static final int DEFAULT_BYTE_PARSER_BUFFER_SIZE = 65536;
+
+	/**
+	 * 字节解析器支持的编码, 这些编码中多字节字符不会包含ASCII字节
+	 */
+	public static final List<String> BYTE_PARSER_CHARSETS = Arrays.asList(
+			"UTF-8", "US-ASCII", "ISO-8859-1");
+
 	public static final String FILE_FORMAT_CSV = "csv";
 
 	public static final String FILE_FORMAT_TEXT = "text";
@@ -0,0 +1,350 @@
+package com.alibaba.datax.plugin.unstructuredstorage.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * 直接在字节缓冲区上切分分隔符文本的解析器。
+ *
+ * 解析过程只记录每个字段在缓冲区中的起止位置, 只有真正被读取的字段才会按 encoding 解码为字符串。
+ * 要求 encoding 与 ASCII 兼容且多字节字符不会包含 ASCII 字节(如 UTF-8, ISO-8859-1),
+ * 分隔符与文本限定符都必须是 ASCII 字符。
+ *
+ * 语义与 CsvReader 默认配置保持一致: \r, \n, \r\n 均视为行结束; 文本限定符内的两个连续限定符表示一个限定符;
+ * 闭合限定符之后到分隔符之前的内容被丢弃; trimWhitespace 时去掉非限定字段首尾的空格和制表符。
+ */
+public class DelimitedByteParser {
+	private static final byte CR = '\r';
+
+	private static final byte LF = '\n';
+
+	private static final byte SPACE = ' ';
+
+	private static final byte TAB = '\t';
+
+	private static final int INITIAL_FIELD_CAPACITY = 32;
+
+	private final InputStream inputStream;
+
+	private final Charset charset;
+
+	private final byte delimiter;
+
+	/**
+	 * 文本限定符, 小于0表示不使用
+	 */
+	private final int qualifier;
+
+	private final boolean trimWhitespace;
+
+	private final boolean skipEmptyRecords;
+
+	private byte[] buffer;
+
+	private int position;
+
+	private int limit;
+
+	private boolean eof;
+
+	private int fieldCount;
+
+	private int[] fieldStarts = new int[INITIAL_FIELD_CAPACITY];
+
+	private int[] fieldEnds = new int[INITIAL_FIELD_CAPACITY];
+
+	private boolean[] fieldEscaped = new boolean[INITIAL_FIELD_CAPACITY];
+
+	private byte[] unescapeBuffer = new byte[256];
+
+	public DelimitedByteParser(InputStream inputStream, Charset charset,
+			char delimiter, int qualifier, boolean trimWhitespace,
+			boolean skipEmptyRecords, int bufferSize) {
+		this.inputStream = inputStream;
+		this.charset = charset;
+		this.delimiter = (byte) delimiter;
+		this.qualifier = qualifier;
+		this.trimWhitespace = trimWhitespace && !isWhitespace(this.delimiter);
+		this.skipEmptyRecords = skipEmptyRecords;
+		this.buffer = new byte[bufferSize];
+	}
+
+	/**
+	 * 跳过一个物理行, 与 BufferedReader.readLine() 的行为一致, 不识别文本限定符
+	 *
+	 * @return 被跳过的行, 没有数据时返回null
+	 */
+	public String skipLine() throws IOException {
+		while (true) {
+			if (this.position >= this.limit) {
+				if (this.eof) {
+					return null;
+				}
+				fill();
+				continue;
+			}
+			int p = this.position;
+			while (p < this.limit && this.buffer[p] != CR && this.buffer[p] != LF) {
+				p++;
+			}
+			if (p >= this.limit && !this.eof) {
+				fill();
+				continue;
+			}
+			if (p + 1 >= this.limit && p < this.limit && this.buffer[p] == CR
+					&& !this.eof) {
+				fill();
+				continue;
+			}
+			String line = new String(this.buffer, this.position, p
+					- this.position, this.charset);
+			if (p < this.limit) {
+				if (this.buffer[p] == CR && p + 1 < this.limit
+						&& this.buffer[p + 1] == LF) {
+					p++;
+				}
+				p++;
+			}
+			this.position = p;
+			return line;
+		}
+	}
+
+	/**
+	 * 解析下一条记录
+	 *
+	 * @return 没有更多记录时返回false
+	 */
+	public boolean nextRecord() throws IOException {
+		while (true) {
+			if (this.position >= this.limit) {
+				if (this.eof) {
+					this.fieldCount = 0;
+					return false;
+				}
+				fill();
+				continue;
+			}
+			int next = tokenize(this.position);
+			if (next < 0) {
+				// 当前记录跨越了缓冲区边界, 补充数据后从记录开头重新切分
+				fill();
+				continue;
+			}
+			boolean emptyRecord = isLineTerminator(this.buffer[this.position]);
+			this.position = next;
+			if (emptyRecord && this.skipEmptyRecords) {
+				continue;
+			}
+			return true;
+		}
+	}
+
+	public Charset getCharset() {
+		return this.charset;
+	}
+
+	public int getFieldCount() {
+		return this.fieldCount;
+	}
+
+	public String getField(int index) {
+		int start = this.fieldStarts[index];
+		int end = this.fieldEnds[index];
+		if (!this.fieldEscaped[index]) {
+			return new String(this.buffer, start, end - start, this.charset);
+		}
+		if (this.unescapeBuffer.length < end - start) {
+			this.unescapeBuffer = new byte[end - start];
+		}
+		int length = 0;
+		for (int i = start; i < end; i++) {
+			this.unescapeBuffer[length++] = this.buffer[i];
+			if (this.buffer[i] == this.qualifier) {
+				i++;
+			}
+		}
+		return new String(this.unescapeBuffer, 0, length, this.charset);
+	}
+
+	/**
+	 * 不解码直接比较字段内容, 用于 nullFormat 判断
+	 */
+	public boolean fieldEquals(int index, byte[] expected) {
+		if (this.fieldEscaped[index]) {
+			return getField(index).equals(new String(expected, this.charset));
+		}
+		int start = this.fieldStarts[index];
+		int length = this.fieldEnds[index] - start;
+		if (length != expected.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (this.buffer[start + i] != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public String[] getFields() {
+		String[] fields = new String[this.fieldCount];
+		for (int i = 0; i < this.fieldCount; i++) {
+			fields[i] = getField(i);
+		}
+		return fields;
+	}
+
+	/**
+	 * 从 start 开始切分一条记录
+	 *
+	 * @return 下一条记录的起始位置; 缓冲区内数据不足以确定记录结束时返回-1
+	 */
+	private int tokenize(int start) {
+		final byte[] buf = this.buffer;
+		final int lim = this.limit;
+		int p = start;
+		this.fieldCount = 0;
+
+		while (true) {
+			if (this.trimWhitespace) {
+				while (p < lim && isWhitespace(buf[p])) {
+					p++;
+				}
+				if (p >= lim && !this.eof) {
+					return -1;
+				}
+			}
+
+			int fieldStart;
+			int fieldEnd;
+			boolean escaped = false;
+			if (this.qualifier >= 0 && p < lim && buf[p] == this.qualifier) {
+				fieldStart = ++p;
+				while (true) {
+					if (p >= lim) {
+						if (!this.eof) {
+							return -1;
+						}
+						// 限定符未闭合, 一直读到文件结束
+						fieldEnd = p;
+						break;
+					}
+					if (buf[p] == this.qualifier) {
+						if (p + 1 >= lim && !this.eof) {
+							return -1;
+						}
+						if (p + 1 < lim && buf[p + 1] == this.qualifier) {
+							escaped = true;
+							p += 2;
+							continue;
+						}
+						fieldEnd = p++;
+						break;
+					}
+					p++;
+				}
+				// 丢弃闭合限定符之后, 分隔符之前的内容
+				while (p < lim && buf[p] != this.delimiter
+						&& !isLineTerminator(buf[p])) {
+					p++;
+				}
+				if (p >= lim && !this.eof) {
+					return -1;
+				}
+			} else {
+				fieldStart = p;
+				byte delim = this.delimiter;
+				while (p < lim) {
+					byte b = buf[p];
+					if (b == delim || b == LF || b == CR) {
+						break;
+					}
+					p++;
+				}
+				if (p >= lim && !this.eof) {
+					return -1;
+				}
+				fieldEnd = p;
+				if (this.trimWhitespace) {
+					while (fieldEnd > fieldStart && isWhitespace(buf[fieldEnd - 1])) {
+						fieldEnd--;
+					}
+				}
+			}
+			addField(fieldStart, fieldEnd, escaped);
+
+			if (p >= lim) {
+				return p;
+			}
+			byte b = buf[p];
+			if (b == this.delimiter) {
+				p++;
+				continue;
+			}
+			if (b == CR) {
+				if (p + 1 >= lim && !this.eof) {
+					return -1;
+				}
+				p++;
+				if (p < lim && buf[p] == LF) {
+					p++;
+				}
+				return p;
+			}
+			return p + 1;
+		}
+	}
+
+	private void addField(int start, int end, boolean escaped) {
+		if (this.fieldCount == this.fieldStarts.length) {
+			int capacity = this.fieldCount << 1;
+			int[] starts = new int[capacity];
+			int[] ends = new int[capacity];
+			boolean[] escapes = new boolean[capacity];
+			System.arraycopy(this.fieldStarts, 0, starts, 0, this.fieldCount);
+			System.arraycopy(this.fieldEnds, 0, ends, 0, this.fieldCount);
+			System.arraycopy(this.fieldEscaped, 0, escapes, 0, this.fieldCount);
+			this.fieldStarts = starts;
+			this.fieldEnds = ends;
+			this.fieldEscaped = escapes;
+		}
+		this.fieldStarts[this.fieldCount] = start;
+		this.fieldEnds[this.fieldCount] = end;
+		this.fieldEscaped[this.fieldCount] = escaped;
+		this.fieldCount++;
+	}
+
+	/**
+	 * 把未消费的数据移动到缓冲区头部并继续读入, 单条记录超过缓冲区大小时扩容
+	 */
+	private void fill() throws IOException {
+		if (this.position > 0) {
+			int remaining = this.limit - this.position;
+			System.arraycopy(this.buffer, this.position, this.buffer, 0, remaining);
+			this.limit = remaining;
+			this.position = 0;
+		}
+		if (this.limit == this.buffer.length) {
+			byte[] grown = new byte[this.buffer.length << 1];
+			System.arraycopy(this.buffer, 0, grown, 0, this.limit);
+			this.buffer = grown;
+		}
+		int read = this.inputStream.read(this.buffer, this.limit,
+				this.buffer.length - this.limit);
+		if (read < 0) {
+			this.eof = true;
+		} else {
+			this.limit += read;
+		}
+	}
+
+	private static boolean isLineTerminator(byte b) {
+		return b == LF || b == CR;
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == SPACE || b == TAB;
+	}
+}
@@ -28,6 +28,11 @@ public class Key {
 
 	public static final String CSV_READER_CONFIG = "csvReaderConfig";
 
+	/**
+	 * 是否直接在字节上切分分隔符文本, 不经过CsvReader
+	 */
+	public static final String BYTE_PARSER = "byteParser";
+
 	public static final String MARK_DONE_FILE_NAME = "markDoneFileName";
 
 	public static final String MARK_DOING_FILE_NAME = "markDoingFileName";
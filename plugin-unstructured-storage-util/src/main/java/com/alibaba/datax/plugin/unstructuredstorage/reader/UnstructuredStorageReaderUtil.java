@@ -18,12 +18,14 @@ import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.io.Charsets;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.io.compress.CompressionCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 import java.text.DateFormat;
 import java.util.*;
@@ -108,47 +110,41 @@ public class UnstructuredStorageReaderUtil {
 		}
 
 		BufferedReader reader = null;
+		InputStream decompressedStream = null;
 		int bufferSize = readerSliceConfig.getInt(Key.BUFFER_SIZE,
 				Constant.DEFAULT_BUFFER_SIZE);
 
 		// compress logic
 		try {
 			if (null == compress) {
-				reader = new BufferedReader(new InputStreamReader(inputStream,
-						encoding), bufferSize);
+				decompressedStream = inputStream;
 			} else {
 				// TODO compress
 				if ("lzo_deflate".equalsIgnoreCase(compress)) {
 					LzoInputStream lzoInputStream = new LzoInputStream(
 							inputStream, new LzoDecompressor1x_safe());
-					reader = new BufferedReader(new InputStreamReader(
-							lzoInputStream, encoding));
+					decompressedStream = lzoInputStream;
 				} else if ("lzo".equalsIgnoreCase(compress)) {
 					LzoInputStream lzopInputStream = new ExpandLzopInputStream(
 							inputStream);
-					reader = new BufferedReader(new InputStreamReader(
-							lzopInputStream, encoding));
+					decompressedStream = lzopInputStream;
 				} else if ("gzip".equalsIgnoreCase(compress)) {
 					CompressorInputStream compressorInputStream = new GzipCompressorInputStream(
 							inputStream);
-					reader = new BufferedReader(new InputStreamReader(
-							compressorInputStream, encoding), bufferSize);
+					decompressedStream = compressorInputStream;
 				} else if ("bzip2".equalsIgnoreCase(compress)) {
 					CompressorInputStream compressorInputStream = new BZip2CompressorInputStream(
 							inputStream);
-					reader = new BufferedReader(new InputStreamReader(
-							compressorInputStream, encoding), bufferSize);
+					decompressedStream = compressorInputStream;
 				} else if ("hadoop-snappy".equalsIgnoreCase(compress)) {
 					CompressionCodec snappyCodec = new SnappyCodec();
 					InputStream snappyInputStream = snappyCodec.createInputStream(
 							inputStream);
-					reader = new BufferedReader(new InputStreamReader(
-							snappyInputStream, encoding));
+					decompressedStream = snappyInputStream;
 				} else if ("framing-snappy".equalsIgnoreCase(compress)) {
 					InputStream snappyInputStream = new SnappyFramedInputStream(
 							inputStream);
-					reader = new BufferedReader(new InputStreamReader(
-							snappyInputStream, encoding));
+					decompressedStream = snappyInputStream;
 				}/* else if ("lzma".equalsIgnoreCase(compress)) {
 					CompressorInputStream compressorInputStream = new LZMACompressorInputStream(
 							inputStream);
@@ -198,8 +194,7 @@ public class UnstructuredStorageReaderUtil {
 				else if ("zip".equalsIgnoreCase(compress)) {
 					ZipCycleInputStream zipCycleInputStream = new ZipCycleInputStream(
 							inputStream);
-					reader = new BufferedReader(new InputStreamReader(
-							zipCycleInputStream, encoding), bufferSize);
+					decompressedStream = zipCycleInputStream;
 				} else {
 					throw DataXException
 							.asDataXException(
@@ -208,6 +203,17 @@ public class UnstructuredStorageReaderUtil {
 											"文件压缩格式 , 不支持您配置的文件压缩格式: [%s]", compress));
 				}
 			}
+			DelimitedByteParser byteParser = UnstructuredStorageReaderUtil
+					.createByteParser(decompressedStream, readerSliceConfig,
+							encoding, bufferSize);
+			if (null != byteParser) {
+				UnstructuredStorageReaderUtil.doReadFromStream(byteParser,
+						context, readerSliceConfig, recordSender,
+						taskPluginCollector);
+				return;
+			}
+			reader = new BufferedReader(new InputStreamReader(
+					decompressedStream, encoding), bufferSize);
 			UnstructuredStorageReaderUtil.doReadFromStream(reader, context,
 					readerSliceConfig, recordSender, taskPluginCollector);
 		} catch (UnsupportedEncodingException uee) {
@@ -229,6 +235,7 @@ public class UnstructuredStorageReaderUtil {
 					String.format("流读取错误 : [%s]", context), e);
 		} finally {
 			IOUtils.closeQuietly(reader);
+			IOUtils.closeQuietly(decompressedStream);
 		}
 
 	}
@@ -309,6 +316,118 @@ public class UnstructuredStorageReaderUtil {
 		}
 	}
 
+	/**
+	 * 使用 {@link DelimitedByteParser} 直接在字节上切分记录, column 配置预编译为 {@link ColumnConvertPlan}
+	 */
+	public static void doReadFromStream(DelimitedByteParser byteParser,
+										String context, Configuration readerSliceConfig,
+										RecordSender recordSender, TaskPluginCollector taskPluginCollector) {
+		Boolean skipHeader = readerSliceConfig.getBool(Key.SKIP_HEADER,
+				Constant.DEFAULT_SKIP_HEADER);
+		// warn: no default value '\N'
+		String nullFormat = readerSliceConfig.getString(Key.NULL_FORMAT);
+		List<ColumnEntry> column = UnstructuredStorageReaderUtil
+				.getListColumnEntry(readerSliceConfig, Key.COLUMN);
+		ColumnConvertPlan convertPlan = ColumnConvertPlan.compile(column,
+				nullFormat, byteParser.getCharset());
+
+		try {
+			if (skipHeader) {
+				String fetchLine = byteParser.skipLine();
+				LOG.info(String.format("Header line %s has been skiped.",
+						fetchLine));
+			}
+			while (byteParser.nextRecord()) {
+				convertPlan.transportOneRecord(recordSender, byteParser,
+						taskPluginCollector);
+			}
+		} catch (IOException ioe) {
+			throw DataXException.asDataXException(
+					UnstructuredStorageReaderErrorCode.READ_FILE_IO_ERROR,
+					String.format("读取文件错误 : [%s]", context), ioe);
+		} catch (DataXException e) {
+			throw e;
+		} catch (Exception e) {
+			throw DataXException.asDataXException(
+					UnstructuredStorageReaderErrorCode.RUNTIME_EXCEPTION,
+					String.format("运行时异常 : %s", e.getMessage()), e);
+		}
+	}
+
+	/**
+	 * 开启 byteParser 且配置可以由 {@link DelimitedByteParser} 处理时返回字节解析器, 否则返回null,
+	 * 由 CsvReader 按原有逻辑解析。要求 encoding 为 UTF-8, US-ASCII 或 ISO-8859-1, 分隔符与文本限定符为 ASCII 字符,
+	 * csvReaderConfig 中只包含字节解析器支持的配置项。
+	 */
+	public static DelimitedByteParser createByteParser(InputStream inputStream,
+			Configuration readerSliceConfig, String encoding, int bufferSize) {
+		if (!readerSliceConfig.getBool(Key.BYTE_PARSER,
+				Constant.DEFAULT_BYTE_PARSER)) {
+			return null;
+		}
+		Charset charset;
+		try {
+			charset = Charset.forName(encoding.trim());
+		} catch (Exception e) {
+			return null;
+		}
+		if (!Constant.BYTE_PARSER_CHARSETS.contains(charset.name())) {
+			LOG.warn(String.format("byteParser仅支持编码 %s, 您配置的编码为[%s], 使用CsvReader解析",
+					Constant.BYTE_PARSER_CHARSETS, encoding));
+			return null;
+		}
+
+		char fieldDelimiter = readerSliceConfig.getChar(Key.FIELD_DELIMITER,
+				Constant.DEFAULT_FIELD_DELIMITER);
+		char textQualifier = '"';
+		boolean useTextQualifier = true;
+		boolean trimWhitespace = true;
+		boolean skipEmptyRecords = true;
+		if (null != UnstructuredStorageReaderUtil.csvReaderConfigMap) {
+			for (Map.Entry<String, Object> entry : UnstructuredStorageReaderUtil.csvReaderConfigMap
+					.entrySet()) {
+				String name = entry.getKey();
+				String value = String.valueOf(entry.getValue());
+				if ("delimiter".equals(name) && StringUtils.isNotEmpty(value)) {
+					fieldDelimiter = value.charAt(0);
+				} else if ("textQualifier".equals(name)
+						&& StringUtils.isNotEmpty(value)) {
+					textQualifier = value.charAt(0);
+				} else if ("useTextQualifier".equals(name)) {
+					useTextQualifier = BooleanUtils.toBoolean(value);
+				} else if ("trimWhitespace".equals(name)) {
+					trimWhitespace = BooleanUtils.toBoolean(value);
+				} else if ("skipEmptyRecords".equals(name)) {
+					skipEmptyRecords = BooleanUtils.toBoolean(value);
+				} else if ("escapeMode".equals(name)
+						&& String.valueOf(CsvReader.ESCAPE_MODE_DOUBLED).equals(value)) {
+					continue;
+				} else if ("useComments".equals(name)
+						&& !BooleanUtils.toBoolean(value)) {
+					continue;
+				} else if (!"safetySwitch".equals(name)
+						&& !"captureRawRecord".equals(name)
+						&& !"caseSensitive".equals(name)
+						&& !"comment".equals(name)) {
+					LOG.warn(String.format("byteParser不支持csvReaderConfig配置项[%s=%s], 使用CsvReader解析",
+							name, value));
+					return null;
+				}
+			}
+		}
+		if (fieldDelimiter > 0x7F || '\r' == fieldDelimiter
+				|| '\n' == fieldDelimiter
+				|| (useTextQualifier && (textQualifier > 0x7F || textQualifier == fieldDelimiter))) {
+			LOG.warn(String.format("byteParser仅支持ASCII分隔符及文本限定符, 您配置的分隔符为[%s], 使用CsvReader解析",
+					fieldDelimiter));
+			return null;
+		}
+		return new DelimitedByteParser(inputStream, charset, fieldDelimiter,
+				useTextQualifier ? textQualifier : -1, trimWhitespace,
+				skipEmptyRecords, Math.max(bufferSize,
+						Constant.DEFAULT_BYTE_PARSER_BUFFER_SIZE));
+	}
+
 	public static Record transportOneRecord(RecordSender recordSender,
 											Configuration configuration,
 											TaskPluginCollector taskPluginCollector,
@@ -502,7 +621,7 @@ public class UnstructuredStorageReaderUtil {
 		return result;
 	}
 
-	private enum Type {
+	enum Type {
 		STRING, LONG, BOOLEAN, DOUBLE, DATE, ;
 	}
 
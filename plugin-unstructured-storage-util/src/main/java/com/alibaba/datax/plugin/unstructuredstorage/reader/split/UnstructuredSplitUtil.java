@@ -3,10 +3,13 @@ package com.alibaba.datax.plugin.unstructuredstorage.reader.split;
 import com.alibaba.datax.common.exception.DataXException;
 import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.datax.common.util.RangeSplitUtil;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.Constant;
 import com.alibaba.datax.plugin.unstructuredstorage.reader.Key;
 import com.alibaba.datax.plugin.unstructuredstorage.reader.UnstructuredStorageReaderErrorCode;
 import com.alibaba.fastjson.JSON;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
 import org.apache.commons.lang3.tuple.Triple;
 import org.slf4j.Logger;
@@ -33,6 +36,20 @@ public abstract class UnstructuredSplitUtil {
         this.needInnerSplit = needInnerSplit;
     }
 
+    /**
+     * 只有未压缩的 text 格式文件可以按换行符做文件内部切分; csv(默认格式)的字段中允许出现换行符, 压缩文件无法从中间读取, 均不做内部切分
+     */
+    public static boolean canSplitSingleFile(Configuration jobConfig) {
+        Boolean enableInnerSplit = jobConfig.getBool(Key.ENABLE_INNER_SPLIT, true);
+        if (!enableInnerSplit) {
+            return false;
+        }
+        String fileFormat = jobConfig.getString(Key.FILE_FORMAT, Constant.DEFAULT_FILE_FORMAT);
+        String compressType = jobConfig.getString(Key.COMPRESS);
+        // todo: 判断文件是否为软连接文件，如果为软连接文件，则不支持内部切分
+        return StringUtils.equalsIgnoreCase(fileFormat, Constant.FILE_FORMAT_TEXT) && StringUtils.isBlank(compressType);
+    }
+
     public List<Configuration> getSplitConfiguration(Configuration originConfiguration, List<String> sourceObjectList,
                                                      int adviceNumber) {
 
@@ -60,7 +77,14 @@ public abstract class UnstructuredSplitUtil {
                             startEndPair.getStart(), startEndPair.getEnd(), inputStream);
                     startEndInputStreamTripleList.add(startEndInputStreamTriple);
                 }
-                regulateSplitStartEndPairList.addAll(regulateSplitStartEndPair(startEndInputStreamTripleList, object));
+                try {
+                    regulateSplitStartEndPairList.addAll(regulateSplitStartEndPair(startEndInputStreamTripleList, object));
+                } finally {
+                    // 校准切分点时只用到了每个分块开头的部分字节，用完即关闭，避免连接/文件句柄泄漏
+                    for (Triple<Long, Long, InputStream> startEndInputStreamTriple : startEndInputStreamTripleList) {
+                        IOUtils.closeQuietly(startEndInputStreamTriple.getRight());
+                    }
+                }
             } else {
                 // 如果指定的Range无效(比如开始位置、结束位置为负数，大于文件大小)，则会下载整个文件；
                 StartEndPair startEndPair = new StartEndPair(0L, -1L, object);
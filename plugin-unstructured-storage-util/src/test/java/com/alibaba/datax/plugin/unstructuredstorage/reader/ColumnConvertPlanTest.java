@@ -0,0 +1,189 @@
+package com.alibaba.datax.plugin.unstructuredstorage.reader;
+
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.RecordSender;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+import com.alibaba.datax.core.transport.record.DefaultRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ColumnConvertPlanTest {
+
+	private static final String NULL_FORMAT = "\\N";
+
+	private static final String INPUT = "1,1.5,true,2020-01-02,abc\n"
+			+ "x,1.5,true,2020-01-02,abc\n"
+			+ "2,\\N,false,\\N,\\N\n"
+			+ "3,2.5\n"
+			+ "4,y,true,2020-01-02,abc\n"
+			+ "5,3.5,false,not-a-date,\n";
+
+	@Test
+	public void testSameAsStringArrayPath() throws Exception {
+		List<ColumnEntry> columns = Arrays.asList(
+				column(0, "long", null), column(1, "double", null), column(2, "boolean", null),
+				column(3, "date", "yyyy-MM-dd"), column(4, "string", null), constant("string", "const"),
+				constant("long", NULL_FORMAT));
+		Result expected = readByStringArray(columns);
+		Result actual = readByPlan(columns);
+		assertSameResult(expected, actual);
+		// 1、3(null)为正常数据, 其余为转换失败或者越界
+		Assert.assertEquals(2, actual.records.size());
+		Assert.assertEquals(4, actual.dirtyRecords.size());
+		Assert.assertEquals(Long.valueOf(1L), actual.records.get(0).getColumn(0).asLong());
+		Assert.assertEquals("const", actual.records.get(0).getColumn(5).asString());
+		Assert.assertNull(actual.records.get(0).getColumn(6).getRawData());
+		Assert.assertNull(actual.records.get(1).getColumn(1).getRawData());
+		Assert.assertNull(actual.records.get(1).getColumn(3).getRawData());
+		Assert.assertNull(actual.records.get(1).getColumn(4).getRawData());
+	}
+
+	@Test
+	public void testWithoutColumnAllString() throws Exception {
+		Result expected = readByStringArray(null);
+		Result actual = readByPlan(null);
+		assertSameResult(expected, actual);
+		Assert.assertEquals(6, actual.records.size());
+		Assert.assertEquals(2, actual.records.get(3).getColumnNumber());
+		Assert.assertNull(actual.records.get(2).getColumn(1).getRawData());
+	}
+
+	@Test
+	public void testUnsupportedTypeIsDirtyPerRecord() throws Exception {
+		List<ColumnEntry> columns = Arrays.asList(column(0, "long", null), column(1, "decimal", null));
+		Result expected = readByStringArray(columns);
+		// 与原来一样不会让作业失败, 每一行都记为脏数据
+		Result actual = readByPlan(columns);
+		assertSameResult(expected, actual);
+		Assert.assertTrue(actual.records.isEmpty());
+		Assert.assertEquals(6, actual.dirtyRecords.size());
+		Assert.assertTrue(actual.messages.get(0), actual.messages.get(0).contains("decimal"));
+		// 第 2 行在转换 long 列时已失败
+		Assert.assertTrue(actual.messages.get(1), actual.messages.get(1).contains("LONG"));
+	}
+
+	@Test
+	public void testIllegalColumnConfig() {
+		ColumnEntry neither = new ColumnEntry();
+		neither.setType("string");
+		assertCompileError(UnstructuredStorageReaderErrorCode.NO_INDEX_VALUE, neither);
+
+		ColumnEntry both = column(0, "string", null);
+		both.setValue("v");
+		assertCompileError(UnstructuredStorageReaderErrorCode.MIXED_INDEX_VALUE, both);
+	}
+
+	private static void assertCompileError(UnstructuredStorageReaderErrorCode errorCode, ColumnEntry column) {
+		try {
+			ColumnConvertPlan.compile(Arrays.asList(column), NULL_FORMAT, StandardCharsets.UTF_8);
+			Assert.fail();
+		} catch (DataXException e) {
+			Assert.assertEquals(errorCode, e.getErrorCode());
+		}
+	}
+
+	private static void assertSameResult(Result expected, Result actual) {
+		Assert.assertEquals(toStrings(expected.records), toStrings(actual.records));
+		Assert.assertEquals(toStrings(expected.dirtyRecords), toStrings(actual.dirtyRecords));
+	}
+
+	private static Result readByPlan(List<ColumnEntry> columns) throws IOException {
+		ColumnConvertPlan plan = ColumnConvertPlan.compile(columns, NULL_FORMAT, StandardCharsets.UTF_8);
+		DelimitedByteParser parser = new DelimitedByteParser(
+				new ByteArrayInputStream(INPUT.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8,
+				',', '"', true, true, 64);
+		Result result = new Result();
+		while (parser.nextRecord()) {
+			plan.transportOneRecord(result, parser, result.collector);
+		}
+		return result;
+	}
+
+	private static Result readByStringArray(List<ColumnEntry> columns) {
+		Result result = new Result();
+		for (String line : INPUT.split("\n")) {
+			UnstructuredStorageReaderUtil.transportOneRecord(result, columns, line.split(",", -1), NULL_FORMAT,
+					result.collector);
+		}
+		return result;
+	}
+
+	private static ColumnEntry column(int index, String type, String format) {
+		ColumnEntry column = new ColumnEntry();
+		column.setIndex(index);
+		column.setType(type);
+		column.setFormat(format);
+		return column;
+	}
+
+	private static ColumnEntry constant(String type, String value) {
+		ColumnEntry column = new ColumnEntry();
+		column.setType(type);
+		column.setValue(value);
+		return column;
+	}
+
+	private static List<String> toStrings(List<Record> records) {
+		List<String> result = new ArrayList<String>();
+		for (Record record : records) {
+			StringBuilder row = new StringBuilder();
+			for (int i = 0; i < record.getColumnNumber(); i++) {
+				Column column = record.getColumn(i);
+				row.append(column.getType()).append(':').append(column.getRawData()).append('|');
+			}
+			result.add(row.toString());
+		}
+		return result;
+	}
+
+	private static class Result implements RecordSender {
+		private final List<Record> records = new ArrayList<Record>();
+
+		private final List<Record> dirtyRecords = new ArrayList<Record>();
+
+		private final List<String> messages = new ArrayList<String>();
+
+		private final TaskPluginCollector collector = new TaskPluginCollector() {
+			@Override
+			public void collectDirtyRecord(Record dirtyRecord, Throwable t, String errorMessage) {
+				dirtyRecords.add(dirtyRecord);
+				messages.add(errorMessage);
+			}
+
+			@Override
+			public void collectMessage(String key, String value) {
+			}
+		};
+
+		@Override
+		public Record createRecord() {
+			return new DefaultRecord();
+		}
+
+		@Override
+		public void sendToWriter(Record record) {
+			this.records.add(record);
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void terminate() {
+		}
+
+		@Override
+		public void shutdown() {
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.alibaba.datax.plugin.unstructuredstorage.reader;
+
+import com.csvreader.CsvReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class DelimitedByteParserTest {
+
+	// 覆盖单条记录跨越缓冲区边界、缓冲区扩容等情况
+	private static final int[] BUFFER_SIZES = new int[]{1, 2, 3, 5, 8, 64 * 1024};
+
+	@Test
+	public void testLineTerminators() throws Exception {
+		assertParsed("a,b,c\nd,e,f\r\ng,h,i\rj,k,l",
+				row("a", "b", "c"), row("d", "e", "f"), row("g", "h", "i"), row("j", "k", "l"));
+	}
+
+	@Test
+	public void testQualifiedFields() throws Exception {
+		assertParsed("\"a,1\",\"b\"\"2\"\"\",\"c\r\nd\"\nx,\"\"\n",
+				row("a,1", "b\"2\"", "c\r\nd"), row("x", ""));
+	}
+
+	@Test
+	public void testContentAfterClosingQualifierDiscarded() throws Exception {
+		assertParsed("\"a\"xyz,b\n", row("a", "b"));
+	}
+
+	@Test
+	public void testUnclosedQualifierReadsToEnd() throws Exception {
+		assertParsed("x,\"abc\ndef", row("x", "abc\ndef"));
+	}
+
+	@Test
+	public void testTrimWhitespace() throws Exception {
+		assertParsed("  a ,\tb\t, \"c \" ,\n", ',', '"', true, true,
+				row("a", "b", "c ", ""));
+		assertParsed("  a ,\tb\t, c \n", ',', '"', false, true,
+				row("  a ", "\tb\t", " c "));
+		// 分隔符为空白字符时不去掉首尾空白
+		assertParsed(" a\t\tb \n", '\t', '"', true, true,
+				row(" a", "", "b "));
+	}
+
+	@Test
+	public void testEmptyRecords() throws Exception {
+		assertParsed("a\n\n\r\nb\n", ',', '"', true, true, row("a"), row("b"));
+		assertParsed("a\n\n\r\nb\n", ',', '"', true, false, row("a"), row(""), row(""), row("b"));
+	}
+
+	@Test
+	public void testWithoutQualifier() throws Exception {
+		assertParsed("\"a\",b\"\"c\n", ',', -1, true, true, row("\"a\"", "b\"\"c"));
+	}
+
+	@Test
+	public void testMultiByteCharacters() throws Exception {
+		assertParsed("中文,ü,\"日本語,テキスト\"\n", row("中文", "ü", "日本語,テキスト"));
+	}
+
+	@Test
+	public void testManyFields() throws Exception {
+		StringBuilder line = new StringBuilder();
+		String[] expected = new String[100];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = "f" + i;
+			line.append(i == 0 ? "" : "|").append(expected[i]);
+		}
+		assertParsed(line.toString(), '|', '"', true, true, expected);
+	}
+
+	@Test
+	public void testSkipLine() throws Exception {
+		for (int bufferSize : BUFFER_SIZES) {
+			DelimitedByteParser parser = newParser("h1,\"h2\r\na,b\rc,d", ',', '"', true, true, bufferSize);
+			Assert.assertEquals("h1,\"h2", parser.skipLine());
+			Assert.assertTrue(parser.nextRecord());
+			Assert.assertArrayEquals(row("a", "b"), parser.getFields());
+			Assert.assertEquals("c,d", parser.skipLine());
+			Assert.assertNull(parser.skipLine());
+			Assert.assertFalse(parser.nextRecord());
+		}
+	}
+
+	@Test
+	public void testFieldEquals() throws Exception {
+		byte[] nullFormat = "\\N".getBytes(StandardCharsets.UTF_8);
+		DelimitedByteParser parser = newParser("\\N,\"\\N\",x,\"a\"\"\"\n", ',', '"', true, true, 64);
+		Assert.assertTrue(parser.nextRecord());
+		Assert.assertTrue(parser.fieldEquals(0, nullFormat));
+		Assert.assertTrue(parser.fieldEquals(1, nullFormat));
+		Assert.assertFalse(parser.fieldEquals(2, nullFormat));
+		Assert.assertTrue(parser.fieldEquals(3, "a\"".getBytes(StandardCharsets.UTF_8)));
+		Assert.assertFalse(parser.fieldEquals(3, "a\"\"".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * 默认配置下与 CsvReader 的解析结果一致
+	 */
+	@Test
+	public void testSameAsCsvReader() throws Exception {
+		String[] inputs = new String[]{
+				"a,b,c\nd,e,f\r\ng,h,i\rj,k,l",
+				"\"a,1\",\"b\"\"2\"\"\",\"c\r\nd\"\nx,\"\"\n",
+				"  a ,\tb\t, \"c \" ,\n",
+				"a\n\n\r\nb\n",
+				"中文,ü,\"日本語,テキスト\"\n",
+				",,\n,\n"
+		};
+		for (String input : inputs) {
+			List<String[]> expected = new ArrayList<String[]>();
+			CsvReader csvReader = new CsvReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+					',', StandardCharsets.UTF_8);
+			try {
+				while (csvReader.readRecord()) {
+					expected.add(csvReader.getValues());
+				}
+			} finally {
+				csvReader.close();
+			}
+			assertParsed(input, ',', '"', true, true, expected.toArray(new String[expected.size()][]));
+		}
+	}
+
+	private static void assertParsed(String input, String[]... expected) throws IOException {
+		assertParsed(input, ',', '"', true, true, expected);
+	}
+
+	private static void assertParsed(String input, char delimiter, int qualifier, boolean trimWhitespace,
+			boolean skipEmptyRecords, String[]... expected) throws IOException {
+		for (int bufferSize : BUFFER_SIZES) {
+			DelimitedByteParser parser = newParser(input, delimiter, qualifier, trimWhitespace,
+					skipEmptyRecords, bufferSize);
+			List<String[]> records = new ArrayList<String[]>();
+			while (parser.nextRecord()) {
+				records.add(parser.getFields());
+			}
+			Assert.assertEquals("bufferSize=" + bufferSize, toString(Arrays.asList(expected)), toString(records));
+		}
+	}
+
+	private static DelimitedByteParser newParser(String input, char delimiter, int qualifier,
+			boolean trimWhitespace, boolean skipEmptyRecords, int bufferSize) {
+		Charset charset = StandardCharsets.UTF_8;
+		return new DelimitedByteParser(new ByteArrayInputStream(input.getBytes(charset)), charset, delimiter,
+				qualifier, trimWhitespace, skipEmptyRecords, bufferSize);
+	}
+
+	private static String[] row(String... fields) {
+		return fields;
+	}
+
+	private static String toString(List<String[]> records) {
+		StringBuilder result = new StringBuilder();
+		for (String[] record : records) {
+			result.append(Arrays.toString(record)).append('\n');
+		}
+		return result.toString();
+	}
+}
@@ -43,6 +43,12 @@ public class SubCommonRdbmsReader extends CommonRdbmsReader {
             super(dataBaseType);
         }
 
+        @Override
+        protected boolean supportFetchPipeline() {
+            // transportOneRecord 直接读取 ResultSet, 不能拆到 fetch 线程
+            return false;
+        }
+
         @Override
         protected Record transportOneRecord(RecordSender recordSender,
                 ResultSet rs, ResultSetMetaData metaData, int columnNumber,
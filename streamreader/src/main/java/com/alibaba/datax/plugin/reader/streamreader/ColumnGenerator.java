@@ -0,0 +1,281 @@
+package com.alibaba.datax.plugin.reader.streamreader;
+
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.BytesColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 可复现的列数据生成器, 通过 column 中的 generator 配置:
+ * <ul>
+ * <li>sequence: start + n * step, n 在所有 slice 间连续, 不重复</li>
+ * <li>uniform: [min, max] 均匀分布</li>
+ * <li>zipf: [min, max] 上的 Zipf 分布, min 出现的概率最大, 倾斜程度由 exponent 决定</li>
+ * <li>payload: 长度在 [minLength, maxLength] 之间的字符串/二进制, 长度按 lengthDistribution(uniform/zipf) 分布</li>
+ * <li>timestamp: 构造 record 时的 System.nanoTime(), 供 streamwriter 计算端到端延迟</li>
+ * </ul>
+ * 随机数来自按 seed 与 slice 序号派生的 SplittableRandom, 相同配置的多次运行产生相同的数据(timestamp 除外).
+ */
+public abstract class ColumnGenerator {
+
+    // payload 从预先生成的字符池中截取, 不再逐字符生成随机数
+    private static final int PAYLOAD_POOL_SIZE = 64 * 1024;
+
+    private static final byte[] ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    protected final String type;
+
+    protected final String prefix;
+
+    protected final SplittableRandom random;
+
+    protected ColumnGenerator(Configuration columnConfig, SplittableRandom random) {
+        this.type = columnConfig.getString(Constant.TYPE).toUpperCase();
+        this.prefix = columnConfig.getString(Constant.GENERATOR_PREFIX, "");
+        this.random = random;
+    }
+
+    public abstract Column next();
+
+    /**
+     * 数值类生成器的结果按列类型转换
+     */
+    protected Column toColumn(long value) {
+        switch (this.type) {
+            case "LONG":
+                return new LongColumn(value);
+            case "DOUBLE":
+                return new DoubleColumn(value);
+            case "DATE":
+                return new DateColumn(value);
+            case "BYTES":
+                return new BytesColumn((this.prefix + value).getBytes(StandardCharsets.UTF_8));
+            default:
+                return new StringColumn(this.prefix + value);
+        }
+    }
+
+    public static Column nullColumn(String typeName) {
+        switch (typeName.toUpperCase()) {
+            case "LONG":
+                return new LongColumn();
+            case "DOUBLE":
+                return new DoubleColumn();
+            case "DATE":
+                return new DateColumn();
+            case "BOOL":
+                return new BoolColumn();
+            case "BYTES":
+                return new BytesColumn();
+            default:
+                return new StringColumn();
+        }
+    }
+
+    /**
+     * 在 Job 端校验 generator 配置, 错误尽早暴露
+     */
+    public static void validate(Configuration columnConfig) {
+        String generator = columnConfig.getString(Constant.GENERATOR);
+        String type = columnConfig.getString(Constant.TYPE).toUpperCase();
+        if (Constant.GENERATOR_SEQUENCE.equalsIgnoreCase(generator)
+                || Constant.GENERATOR_UNIFORM.equalsIgnoreCase(generator)
+                || Constant.GENERATOR_ZIPF.equalsIgnoreCase(generator)) {
+            if ("BOOL".equals(type)) {
+                throw DataXException.asDataXException(StreamReaderErrorCode.ILLEGAL_VALUE,
+                        String.format("generator[%s]不支持类型[%s]", generator, type));
+            }
+            if (!Constant.GENERATOR_SEQUENCE.equalsIgnoreCase(generator)) {
+                long min = columnConfig.getLong(Constant.GENERATOR_MIN, 0L);
+                Long max = columnConfig.getLong(Constant.GENERATOR_MAX);
+                if (null == max || max < min) {
+                    throw DataXException.asDataXException(StreamReaderErrorCode.ILLEGAL_VALUE,
+                            String.format("generator[%s]需要配置max, 并且min需要小于等于max: %s, %s", generator, min, max));
+                }
+                // zipf 的元素个数 max - min + 1 需要能用 long 表示
+                if (Constant.GENERATOR_ZIPF.equalsIgnoreCase(generator) && max - min + 1 <= 0) {
+                    throw DataXException.asDataXException(StreamReaderErrorCode.ILLEGAL_VALUE,
+                            String.format("generator[zipf]的max - min需要小于%s: %s, %s", Long.MAX_VALUE, min, max));
+                }
+            }
+        } else if (Constant.GENERATOR_PAYLOAD.equalsIgnoreCase(generator)) {
+            if (!"STRING".equals(type) && !"BYTES".equals(type)) {
+                throw DataXException.asDataXException(StreamReaderErrorCode.ILLEGAL_VALUE,
+                        String.format("generator[payload]只支持string和bytes类型, 不支持类型[%s]", type));
+            }
+            int minLength = columnConfig.getInt(Constant.GENERATOR_MIN_LENGTH, 0);
+            Integer maxLength = columnConfig.getInt(Constant.GENERATOR_MAX_LENGTH);
+            if (null == maxLength || minLength < 0 || maxLength < minLength) {
+                throw DataXException.asDataXException(StreamReaderErrorCode.ILLEGAL_VALUE,
+                        String.format("generator[payload]需要配置maxLength, 并且0 <= minLength <= maxLength: %s, %s",
+                                minLength, maxLength));
+            }
+        } else if (Constant.GENERATOR_TIMESTAMP.equalsIgnoreCase(generator)) {
+            if (!"LONG".equals(type)) {
+                throw DataXException.asDataXException(StreamReaderErrorCode.ILLEGAL_VALUE,
+                        String.format("generator[timestamp]只支持long类型, 不支持类型[%s]", type));
+            }
+        } else {
+            throw DataXException.asDataXException(StreamReaderErrorCode.ILLEGAL_VALUE,
+                    String.format("不支持的generator[%s], 仅支持sequence/uniform/zipf/payload/timestamp", generator));
+        }
+        double exponent = columnConfig.getDouble(Constant.GENERATOR_EXPONENT, 1d);
+        if (exponent <= 0) {
+            throw DataXException.asDataXException(StreamReaderErrorCode.ILLEGAL_VALUE,
+                    String.format("generator的exponent需要大于0: %s", exponent));
+        }
+    }
+
+    public static ColumnGenerator create(Configuration columnConfig, SplittableRandom random,
+                                         long sliceIndex, long sliceRecordCount) {
+        String generator = columnConfig.getString(Constant.GENERATOR);
+        if (Constant.GENERATOR_SEQUENCE.equalsIgnoreCase(generator)) {
+            return new SequenceGenerator(columnConfig, random, sliceIndex, sliceRecordCount);
+        } else if (Constant.GENERATOR_UNIFORM.equalsIgnoreCase(generator)) {
+            return new UniformGenerator(columnConfig, random);
+        } else if (Constant.GENERATOR_ZIPF.equalsIgnoreCase(generator)) {
+            return new ZipfGenerator(columnConfig, random);
+        } else if (Constant.GENERATOR_PAYLOAD.equalsIgnoreCase(generator)) {
+            return new PayloadGenerator(columnConfig, random);
+        } else if (Constant.GENERATOR_TIMESTAMP.equalsIgnoreCase(generator)) {
+            return new TimestampGenerator(columnConfig, random);
+        }
+        throw DataXException.asDataXException(StreamReaderErrorCode.ILLEGAL_VALUE,
+                String.format("不支持的generator[%s]", generator));
+    }
+
+    private static class SequenceGenerator extends ColumnGenerator {
+        private final long step;
+        private long current;
+
+        SequenceGenerator(Configuration columnConfig, SplittableRandom random,
+                          long sliceIndex, long sliceRecordCount) {
+            super(columnConfig, random);
+            long start = columnConfig.getLong(Constant.GENERATOR_START, 0L);
+            this.step = columnConfig.getLong(Constant.GENERATOR_STEP, 1L);
+            // 每个 slice 使用各自的区间, 整个作业内的值不重复
+            this.current = start + sliceIndex * sliceRecordCount * this.step;
+        }
+
+        @Override
+        public Column next() {
+            long value = this.current;
+            this.current += this.step;
+            return toColumn(value);
+        }
+    }
+
+    private static class UniformGenerator extends ColumnGenerator {
+        private final long min;
+        private final long max;
+        // 区间内的元素个数, 超过 Long.MAX_VALUE 时溢出为非正数
+        private final long bound;
+
+        UniformGenerator(Configuration columnConfig, SplittableRandom random) {
+            super(columnConfig, random);
+            this.min = columnConfig.getLong(Constant.GENERATOR_MIN, 0L);
+            this.max = columnConfig.getLong(Constant.GENERATOR_MAX);
+            this.bound = this.max - this.min + 1;
+        }
+
+        @Override
+        public Column next() {
+            if ("DOUBLE".equals(this.type)) {
+                return new DoubleColumn(this.min + this.random.nextDouble() * ((double) this.max - this.min));
+            }
+            if (this.bound > 0) {
+                return toColumn(this.min + this.random.nextLong(this.bound));
+            }
+            // 区间超过 long 范围的一半, 直接在整个 long 上采样并拒绝区间外的值, 每次接受的概率不低于 1/2
+            long value;
+            do {
+                value = this.random.nextLong();
+            } while (value < this.min || value > this.max);
+            return toColumn(value);
+        }
+    }
+
+    private static class ZipfGenerator extends ColumnGenerator {
+        private final long min;
+        private final ZipfSampler sampler;
+
+        ZipfGenerator(Configuration columnConfig, SplittableRandom random) {
+            super(columnConfig, random);
+            this.min = columnConfig.getLong(Constant.GENERATOR_MIN, 0L);
+            long max = columnConfig.getLong(Constant.GENERATOR_MAX);
+            this.sampler = new ZipfSampler(max - this.min + 1,
+                    columnConfig.getDouble(Constant.GENERATOR_EXPONENT, 1d));
+        }
+
+        @Override
+        public Column next() {
+            return toColumn(this.min + this.sampler.sample(this.random) - 1);
+        }
+    }
+
+    private static class PayloadGenerator extends ColumnGenerator {
+        private final int minLength;
+        private final int maxLength;
+        private final ZipfSampler lengthSampler;
+        private final byte[] pool;
+
+        PayloadGenerator(Configuration columnConfig, SplittableRandom random) {
+            super(columnConfig, random);
+            this.minLength = columnConfig.getInt(Constant.GENERATOR_MIN_LENGTH, 0);
+            this.maxLength = columnConfig.getInt(Constant.GENERATOR_MAX_LENGTH);
+            if (Constant.GENERATOR_ZIPF.equalsIgnoreCase(
+                    columnConfig.getString(Constant.GENERATOR_LENGTH_DISTRIBUTION, Constant.GENERATOR_UNIFORM))) {
+                // 短的 payload 出现得多, 偶尔出现接近 maxLength 的大字段
+                this.lengthSampler = new ZipfSampler(this.maxLength - this.minLength + 1,
+                        columnConfig.getDouble(Constant.GENERATOR_EXPONENT, 1d));
+            } else {
+                this.lengthSampler = null;
+            }
+            this.pool = new byte[PAYLOAD_POOL_SIZE + this.maxLength];
+            for (int i = 0; i < this.pool.length; i++) {
+                this.pool[i] = ALPHANUMERIC[random.nextInt(ALPHANUMERIC.length)];
+            }
+        }
+
+        @Override
+        public Column next() {
+            int length;
+            if (null != this.lengthSampler) {
+                length = this.minLength + (int) this.lengthSampler.sample(this.random) - 1;
+            } else {
+                length = this.minLength + this.random.nextInt(this.maxLength - this.minLength + 1);
+            }
+            int offset = this.random.nextInt(PAYLOAD_POOL_SIZE);
+            if ("BYTES".equals(this.type)) {
+                return new BytesColumn(Arrays.copyOfRange(this.pool, offset, offset + length));
+            }
+            return new StringColumn(new String(this.pool, offset, length, StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    private static class TimestampGenerator extends ColumnGenerator {
+        TimestampGenerator(Configuration columnConfig, SplittableRandom random) {
+            super(columnConfig, random);
+        }
+
+        @Override
+        public Column next() {
+            return new LongColumn(System.nanoTime());
+        }
+    }
+
+    static boolean isGeneratorColumn(Configuration columnConfig) {
+        return StringUtils.isNotBlank(columnConfig.getString(Constant.GENERATOR));
+    }
+}
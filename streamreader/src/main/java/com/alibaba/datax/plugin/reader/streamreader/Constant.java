@@ -18,6 +18,28 @@ public class Constant {
     public static final String MIXUP_FUNCTION_PATTERN = "\\s*(.*)\\s*,\\s*(.*)\\s*";
     public static final String MIXUP_FUNCTION_PARAM1 = "mixupParam1";
     public static final String MIXUP_FUNCTION_PARAM2 = "mixupParam2";
+
+    // 列数据生成器, 见 ColumnGenerator
+    public static final String GENERATOR = "generator";
+    public static final String GENERATOR_SEQUENCE = "sequence";
+    public static final String GENERATOR_UNIFORM = "uniform";
+    public static final String GENERATOR_ZIPF = "zipf";
+    public static final String GENERATOR_PAYLOAD = "payload";
+    public static final String GENERATOR_TIMESTAMP = "timestamp";
+    public static final String GENERATOR_START = "start";
+    public static final String GENERATOR_STEP = "step";
+    public static final String GENERATOR_MIN = "min";
+    public static final String GENERATOR_MAX = "max";
+    public static final String GENERATOR_EXPONENT = "exponent";
+    public static final String GENERATOR_PREFIX = "prefix";
+    public static final String GENERATOR_MIN_LENGTH = "minLength";
+    public static final String GENERATOR_MAX_LENGTH = "maxLength";
+    public static final String GENERATOR_LENGTH_DISTRIBUTION = "lengthDistribution";
+
+    // 该列为null的比例, 0到1之间
+    public static final String NULL_RATIO = "nullRatio";
+
+    public static final String SLICE_INDEX = "sliceIndex";
     
     
 }
@@ -9,4 +9,9 @@ public class Key {
 
     public static final String SLICE_RECORD_COUNT = "sliceRecordCount";
 
+    /**
+     * generator 使用的随机种子, 不配置时使用当前时间并打印到日志, 便于复现
+     */
+    public static final String SEED = "seed";
+
 }
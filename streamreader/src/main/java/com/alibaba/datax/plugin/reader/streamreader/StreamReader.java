@@ -18,6 +18,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.SplittableRandom;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -47,6 +48,13 @@ public class StreamReader extends Reader {
 						"参数[sliceRecordCount]不能小于1.");
 			}
 
+			if (null == this.originalConfig.getLong(Key.SEED)) {
+				long seed = System.currentTimeMillis();
+				this.originalConfig.set(Key.SEED, seed);
+				if (this.originalConfig.getBool(Constant.HAVE_MIXUP_FUNCTION, false)) {
+					LOG.info(String.format("未配置seed, 本次使用的seed为[%s], 配置相同的seed可以复现generator生成的数据", seed));
+				}
+			}
 		}
 
 		private void dealColumn(Configuration originalConfig) {
@@ -60,12 +68,15 @@ public class StreamReader extends Reader {
 			List<String> dealedColumns = new ArrayList<String>();
 			for (JSONObject eachColumn : columns) {
 				Configuration eachColumnConfig = Configuration.from(eachColumn);
-				try {
-                    this.parseMixupFunctions(eachColumnConfig);
-                } catch (Exception e) {
-                    throw DataXException.asDataXException(StreamReaderErrorCode.NOT_SUPPORT_TYPE,
-                            String.format("解析混淆函数失败[%s]", e.getMessage()), e);
-                }
+				boolean isGeneratorColumn = ColumnGenerator.isGeneratorColumn(eachColumnConfig);
+				if (!isGeneratorColumn) {
+					try {
+						this.parseMixupFunctions(eachColumnConfig);
+					} catch (Exception e) {
+						throw DataXException.asDataXException(StreamReaderErrorCode.NOT_SUPPORT_TYPE,
+								String.format("解析混淆函数失败[%s]", e.getMessage()), e);
+					}
+				}
 				
 				String typeName = eachColumnConfig.getString(Constant.TYPE);
 				if (StringUtils.isBlank(typeName)) {
@@ -87,6 +98,19 @@ public class StreamReader extends Reader {
 								String.format("不支持类型[%s]", typeName));
 					}
 				}
+
+				if (isGeneratorColumn) {
+					ColumnGenerator.validate(eachColumnConfig);
+					// 每条record的值都不同, 与混淆函数一样需要逐条构造
+					this.originalConfig.set(Constant.HAVE_MIXUP_FUNCTION, true);
+				}
+				double nullRatio = eachColumnConfig.getDouble(Constant.NULL_RATIO, 0d);
+				if (nullRatio < 0 || nullRatio > 1) {
+					throw DataXException.asDataXException(StreamReaderErrorCode.ILLEGAL_VALUE,
+							String.format("参数[nullRatio]需要在0到1之间: %s", nullRatio));
+				} else if (nullRatio > 0) {
+					this.originalConfig.set(Constant.HAVE_MIXUP_FUNCTION, true);
+				}
 				dealedColumns.add(eachColumnConfig.toJSON());
 			}
 
@@ -176,7 +200,9 @@ public class StreamReader extends Reader {
 			List<Configuration> configurations = new ArrayList<Configuration>();
 
 			for (int i = 0; i < adviceNumber; i++) {
-				configurations.add(this.originalConfig.clone());
+				Configuration sliceConfig = this.originalConfig.clone();
+				sliceConfig.set(Constant.SLICE_INDEX, i);
+				configurations.add(sliceConfig);
 			}
 			return configurations;
 		}
@@ -195,7 +221,15 @@ public class StreamReader extends Reader {
 
 		private Configuration readerSliceConfig;
 
-		private List<String> columns;
+		// 列配置只解析一次, 不在每条record上重复解析json
+		private List<Configuration> columns;
+
+		// 与 columns 一一对应, 非 generator 列为 null
+		private ColumnGenerator[] generators;
+
+		private double[] nullRatios;
+
+		private SplittableRandom nullRandom;
 
 		private long sliceRecordCount;
 		
@@ -205,13 +239,32 @@ public class StreamReader extends Reader {
 		@Override
 		public void init() {
 			this.readerSliceConfig = super.getPluginJobConf();
-			this.columns = this.readerSliceConfig.getList(Key.COLUMN,
+			List<String> columnStrs = this.readerSliceConfig.getList(Key.COLUMN,
 					String.class);
 
 			this.sliceRecordCount = this.readerSliceConfig
 					.getLong(Key.SLICE_RECORD_COUNT);
             this.haveMixupFunction = this.readerSliceConfig.getBool(
                     Constant.HAVE_MIXUP_FUNCTION, false);
+
+			long sliceIndex = this.readerSliceConfig.getLong(Constant.SLICE_INDEX, 0L);
+			long seed = this.readerSliceConfig.getLong(Key.SEED, 0L);
+			// 每个slice的随机序列只由seed和slice序号决定, 与调度顺序无关
+			SplittableRandom sliceRandom = new SplittableRandom(seed + sliceIndex * 0x9E3779B97F4A7C15L);
+			this.nullRandom = sliceRandom.split();
+
+			this.columns = new ArrayList<Configuration>(columnStrs.size());
+			this.generators = new ColumnGenerator[columnStrs.size()];
+			this.nullRatios = new double[columnStrs.size()];
+			for (int i = 0; i < columnStrs.size(); i++) {
+				Configuration eachColumnConfig = Configuration.from(columnStrs.get(i));
+				this.columns.add(eachColumnConfig);
+				if (ColumnGenerator.isGeneratorColumn(eachColumnConfig)) {
+					this.generators[i] = ColumnGenerator.create(eachColumnConfig, sliceRandom.split(),
+							sliceIndex, this.sliceRecordCount);
+				}
+				this.nullRatios[i] = eachColumnConfig.getDouble(Constant.NULL_RATIO, 0d);
+			}
 		}
 
 		@Override
@@ -220,7 +273,8 @@ public class StreamReader extends Reader {
 
 		@Override
 		public void startRead(RecordSender recordSender) {
-			Record oneRecord = buildOneRecord(recordSender, this.columns);
+			// 常量列只构造一次; 逐条构造时不能预先多取一次, 否则 sequence 会跳过第一个值
+			Record oneRecord = this.haveMixupFunction ? null : buildOneRecord(recordSender, this.columns);
 			while (this.sliceRecordCount > 0) {
                 if (this.haveMixupFunction) {
                     oneRecord = buildOneRecord(recordSender, this.columns);
@@ -307,7 +361,7 @@ public class StreamReader extends Reader {
 		}
 
 		private Record buildOneRecord(RecordSender recordSender,
-				List<String> columns) {
+				List<Configuration> columns) {
 			if (null == recordSender) {
 				throw new IllegalArgumentException(
 						"参数[recordSender]不能为空.");
@@ -320,9 +374,15 @@ public class StreamReader extends Reader {
 
 			Record record = recordSender.createRecord();
 			try {
-				for (String eachColumn : columns) {
-					Configuration eachColumnConfig = Configuration.from(eachColumn);
-					record.addColumn(this.buildOneColumn(eachColumnConfig));
+				for (int i = 0, len = columns.size(); i < len; i++) {
+					Configuration eachColumnConfig = columns.get(i);
+					if (this.nullRatios[i] > 0 && this.nullRandom.nextDouble() < this.nullRatios[i]) {
+						record.addColumn(ColumnGenerator.nullColumn(eachColumnConfig.getString(Constant.TYPE)));
+					} else if (null != this.generators[i]) {
+						record.addColumn(this.generators[i].next());
+					} else {
+						record.addColumn(this.buildOneColumn(eachColumnConfig));
+					}
 				}
 			} catch (Exception e) {
 				throw DataXException.asDataXException(StreamReaderErrorCode.ILLEGAL_VALUE,
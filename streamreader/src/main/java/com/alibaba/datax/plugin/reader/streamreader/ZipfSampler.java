@@ -0,0 +1,90 @@
+package com.alibaba.datax.plugin.reader.streamreader;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zipf 分布采样, 返回 [1, numberOfElements], 1 出现的概率最大.
+ * 使用 rejection-inversion 算法(Hörmann & Derflinger), 不需要按元素个数预先计算概率表,
+ * 每次采样平均只需要常数次 log/exp, 元素个数可以很大.
+ */
+public class ZipfSampler {
+
+    private final long numberOfElements;
+
+    private final double exponent;
+
+    private final double hIntegralX1;
+
+    private final double hIntegralNumberOfElements;
+
+    private final double s;
+
+    public ZipfSampler(long numberOfElements, double exponent) {
+        if (numberOfElements < 1) {
+            throw new IllegalArgumentException("numberOfElements 必须大于0");
+        }
+        if (exponent <= 0) {
+            throw new IllegalArgumentException("exponent 必须大于0");
+        }
+        this.numberOfElements = numberOfElements;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1d;
+        this.hIntegralNumberOfElements = hIntegral(numberOfElements + 0.5);
+        this.s = 2d - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    public long sample(SplittableRandom random) {
+        while (true) {
+            double u = this.hIntegralNumberOfElements
+                    + random.nextDouble() * (this.hIntegralX1 - this.hIntegralNumberOfElements);
+            double x = hIntegralInverse(u);
+            long k = (long) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > this.numberOfElements) {
+                k = this.numberOfElements;
+            }
+            if (k - x <= this.s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1d - this.exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-this.exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1d - this.exponent);
+        if (t < -1d) {
+            // 浮点误差导致 t 略小于 -1 时修正, 避免 log1p 返回 NaN
+            t = -1d;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    /**
+     * log(1 + x) / x, x 接近 0 时用泰勒展开
+     */
+    private static double helper1(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.log1p(x) / x;
+        }
+        return 1d - x * (0.5 - x * (1d / 3d - 0.25 * x));
+    }
+
+    /**
+     * (exp(x) - 1) / x, x 接近 0 时用泰勒展开
+     */
+    private static double helper2(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.expm1(x) / x;
+        }
+        return 1d + x * 0.5 * (1d + x / 3d * (1d + 0.25 * x));
+    }
+}
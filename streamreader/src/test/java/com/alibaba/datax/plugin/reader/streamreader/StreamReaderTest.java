@@ -0,0 +1,141 @@
+package com.alibaba.datax.plugin.reader.streamreader;
+
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.RecordSender;
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.core.transport.record.DefaultRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class StreamReaderTest {
+
+    private static final String COLUMNS = "["
+            + "{\"type\":\"long\",\"generator\":\"sequence\",\"start\":100,\"step\":2},"
+            + "{\"type\":\"long\",\"generator\":\"uniform\",\"min\":-5,\"max\":5},"
+            + "{\"type\":\"string\",\"generator\":\"zipf\",\"min\":1,\"max\":1000,\"prefix\":\"k_\"},"
+            + "{\"type\":\"string\",\"generator\":\"payload\",\"minLength\":1,\"maxLength\":20,\"nullRatio\":0.2}"
+            + "]";
+
+    @Test
+    public void testSameSeedSameDataPerSlice() {
+        List<List<String>> first = read(COLUMNS, 3, 50, 12345L, false);
+        // slice 的执行顺序不影响每个 slice 的数据
+        List<List<String>> second = read(COLUMNS, 3, 50, 12345L, true);
+        Assert.assertEquals(first, second);
+        Assert.assertNotEquals(first.get(0), first.get(1));
+        Assert.assertNotEquals(first, read(COLUMNS, 3, 50, 54321L, false));
+    }
+
+    @Test
+    public void testSequenceContinuousAcrossSlices() {
+        List<List<String>> slices = read(COLUMNS, 3, 50, 1L, true);
+        Set<Long> values = new HashSet<Long>();
+        for (List<String> slice : slices) {
+            for (String row : slice) {
+                long value = Long.parseLong(row.split("\\|")[0]);
+                Assert.assertEquals(0, value % 2);
+                values.add(value);
+            }
+        }
+        Assert.assertEquals(150, values.size());
+        for (long i = 0; i < 150; i++) {
+            Assert.assertTrue(values.contains(100 + i * 2));
+        }
+    }
+
+    @Test
+    public void testUniformFullLongRange() {
+        String columns = "[{\"type\":\"long\",\"generator\":\"uniform\",\"min\":" + Long.MIN_VALUE
+                + ",\"max\":" + Long.MAX_VALUE + "},"
+                + "{\"type\":\"long\",\"generator\":\"uniform\",\"min\":-1,\"max\":" + Long.MAX_VALUE + "},"
+                + "{\"type\":\"double\",\"generator\":\"uniform\",\"min\":" + Long.MIN_VALUE
+                + ",\"max\":" + Long.MAX_VALUE + "}]";
+        Set<String> distinct = new HashSet<String>();
+        for (String row : read(columns, 1, 1000, 9L, false).get(0)) {
+            String[] values = row.split("\\|");
+            distinct.add(values[0]);
+            Assert.assertTrue(row, Long.parseLong(values[1]) >= -1L);
+            Assert.assertFalse(row, Double.isNaN(Double.parseDouble(values[2])));
+        }
+        Assert.assertTrue(distinct.size() > 990);
+    }
+
+    @Test
+    public void testZipfRangeOverflowRejected() {
+        String columns = "[{\"type\":\"long\",\"generator\":\"zipf\",\"min\":" + Long.MIN_VALUE
+                + ",\"max\":" + Long.MAX_VALUE + "}]";
+        try {
+            read(columns, 1, 1, 1L, false);
+            Assert.fail();
+        } catch (DataXException e) {
+            Assert.assertEquals(StreamReaderErrorCode.ILLEGAL_VALUE, e.getErrorCode());
+        }
+    }
+
+    /**
+     * @return 每个 slice 的数据, 每条 record 的各列以 | 连接
+     */
+    private static List<List<String>> read(String columns, int sliceNumber, long sliceRecordCount, long seed,
+                                           boolean reverse) {
+        Configuration jobConf = Configuration.from("{\"column\":" + columns + "}");
+        jobConf.set(Key.SLICE_RECORD_COUNT, sliceRecordCount);
+        jobConf.set(Key.SEED, seed);
+        StreamReader.Job job = new StreamReader.Job();
+        job.setPluginJobConf(jobConf);
+        job.init();
+
+        List<Configuration> sliceConfs = job.split(sliceNumber);
+        List<List<String>> result = new ArrayList<List<String>>();
+        for (int i = 0; i < sliceNumber; i++) {
+            result.add(null);
+        }
+        for (int i = 0; i < sliceNumber; i++) {
+            int slice = reverse ? sliceNumber - 1 - i : i;
+            StreamReader.Task task = new StreamReader.Task();
+            task.setPluginJobConf(sliceConfs.get(slice));
+            task.init();
+            CollectingRecordSender recordSender = new CollectingRecordSender();
+            task.startRead(recordSender);
+            result.set(slice, recordSender.rows);
+        }
+        return result;
+    }
+
+    private static class CollectingRecordSender implements RecordSender {
+        private final List<String> rows = new ArrayList<String>();
+
+        @Override
+        public Record createRecord() {
+            return new DefaultRecord();
+        }
+
+        @Override
+        public void sendToWriter(Record record) {
+            StringBuilder row = new StringBuilder();
+            for (int i = 0; i < record.getColumnNumber(); i++) {
+                Column column = record.getColumn(i);
+                row.append(i == 0 ? "" : "|").append(column.getRawData());
+            }
+            this.rows.add(row.toString());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void terminate() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
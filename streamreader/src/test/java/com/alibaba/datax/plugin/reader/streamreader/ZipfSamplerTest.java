@@ -0,0 +1,68 @@
+package com.alibaba.datax.plugin.reader.streamreader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+public class ZipfSamplerTest {
+
+    @Test
+    public void testFrequencyFollowsZipf() {
+        int n = 10;
+        int samples = 200000;
+        ZipfSampler sampler = new ZipfSampler(n, 1d);
+        SplittableRandom random = new SplittableRandom(42L);
+        long[] counts = new long[n + 1];
+        for (int i = 0; i < samples; i++) {
+            long k = sampler.sample(random);
+            Assert.assertTrue(String.valueOf(k), k >= 1 && k <= n);
+            counts[(int) k]++;
+        }
+
+        double harmonic = 0;
+        for (int k = 1; k <= n; k++) {
+            harmonic += 1d / k;
+        }
+        for (int k = 1; k <= n; k++) {
+            double expected = 1d / k / harmonic;
+            Assert.assertEquals("k=" + k, expected, (double) counts[k] / samples, 0.01);
+        }
+    }
+
+    @Test
+    public void testSameSeedSameSequence() {
+        ZipfSampler sampler = new ZipfSampler(1000000L, 1.2d);
+        SplittableRandom first = new SplittableRandom(7L);
+        SplittableRandom second = new SplittableRandom(7L);
+        SplittableRandom other = new SplittableRandom(8L);
+        boolean differs = false;
+        for (int i = 0; i < 1000; i++) {
+            long value = sampler.sample(first);
+            Assert.assertEquals(value, sampler.sample(second));
+            differs |= value != sampler.sample(other);
+        }
+        Assert.assertTrue(differs);
+    }
+
+    @Test
+    public void testBoundaries() {
+        SplittableRandom random = new SplittableRandom(1L);
+        ZipfSampler single = new ZipfSampler(1L, 1d);
+        ZipfSampler huge = new ZipfSampler(Long.MAX_VALUE, 0.5d);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(1L, single.sample(random));
+            Assert.assertTrue(huge.sample(random) >= 1L);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoElements() {
+        new ZipfSampler(0L, 1d);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalExponent() {
+        new ZipfSampler(10L, 0d);
+    }
+}
@@ -13,4 +13,18 @@ public class Key {
 
     public static final String SLEEP_TIME = "sleepTime";
 
+    /**
+     * 校验模式: 不输出数据, 统计记录数与顺序无关的校验和
+     */
+    public static final String VERIFY = "verify";
+
+    /**
+     * 记录构造时间(System.nanoTime())的列序号, 用于统计端到端延迟, 默认不统计
+     */
+    public static final String LATENCY_COLUMN = "latencyColumn";
+
+    public static final String EXPECTED_RECORD_COUNT = "expectedRecordCount";
+
+    public static final String EXPECTED_CHECKSUM = "expectedChecksum";
+
 }
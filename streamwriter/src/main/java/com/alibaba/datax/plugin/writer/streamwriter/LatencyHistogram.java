@@ -0,0 +1,101 @@
+package com.alibaba.datax.plugin.writer.streamwriter;
+
+/**
+ * 固定内存的延迟直方图: 小于16的值精确计数, 更大的值按2的幂分段, 每段再等分为8个桶,
+ * 相对误差不超过12.5%. 记录一次只做一次数组自增, 可以在写入的热路径上使用.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 16;
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int MIN_EXPONENT = 4;
+
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (63 - MIN_EXPONENT) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+
+    private long totalCount = 0;
+
+    private long sum = 0;
+
+    private long max = 0;
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.counts[bucketIndex(value)]++;
+        this.totalCount++;
+        this.sum += value;
+        if (value > this.max) {
+            this.max = value;
+        }
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.totalCount += other.totalCount;
+        this.sum += other.sum;
+        this.max = Math.max(this.max, other.max);
+    }
+
+    public long getTotalCount() {
+        return this.totalCount;
+    }
+
+    public long getMax() {
+        return this.max;
+    }
+
+    public long getMean() {
+        return 0 == this.totalCount ? 0 : this.sum / this.totalCount;
+    }
+
+    /**
+     * @param percentile 0到100之间
+     * @return 对应桶的上界, 不超过实际最大值
+     */
+    public long getPercentile(double percentile) {
+        if (0 == this.totalCount) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100d * this.totalCount);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + MIN_EXPONENT;
+        int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lower = (SUB_BUCKETS + subBucket) * width;
+        return lower + width - 1;
+    }
+}
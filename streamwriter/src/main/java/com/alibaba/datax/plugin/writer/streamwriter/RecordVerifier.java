@@ -0,0 +1,140 @@
+package com.alibaba.datax.plugin.writer.streamwriter;
+
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.Record;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * verify 模式下的校验: 对每条 record 计算64位哈希, 以求和的方式累加为与顺序无关的校验和,
+ * 同一份数据无论经过多少个 channel、以什么顺序到达, 记录数和校验和都相同.
+ * 配置了 latencyColumn 时, 该列是 streamreader timestamp generator 写入的 System.nanoTime(),
+ * 不参与校验和, 用于统计从构造 record 到 writer 收到的延迟(reader 与 writer 需在同一进程内).
+ * <p/>
+ * 各个 task 在 post 时把结果合并到进程内的作业汇总中, 由 Job.post 输出并与期望值比较.
+ */
+public class RecordVerifier {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final long NULL_HASH = 0x9E3779B97F4A7C15L;
+
+    private static RecordVerifier jobVerifier = new RecordVerifier(-1);
+
+    private final int latencyColumn;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private long recordCount = 0;
+
+    private long checksum = 0;
+
+    public RecordVerifier(int latencyColumn) {
+        this.latencyColumn = latencyColumn;
+    }
+
+    public void verify(Record record) {
+        long hash = FNV_OFFSET;
+        for (int i = 0, len = record.getColumnNumber(); i < len; i++) {
+            Column column = record.getColumn(i);
+            if (i == this.latencyColumn) {
+                if (null != column && null != column.getRawData()) {
+                    this.latency.record(System.nanoTime() - column.asLong());
+                }
+                continue;
+            }
+            hash = (hash ^ hashColumn(column)) * FNV_PRIME;
+        }
+        this.recordCount++;
+        this.checksum += mix(hash);
+    }
+
+    public long getRecordCount() {
+        return this.recordCount;
+    }
+
+    public String getChecksum() {
+        return String.format("%016x", this.checksum);
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("记录数:[%s], 校验和:[%s]", this.recordCount, getChecksum()));
+        if (this.latency.getTotalCount() > 0) {
+            sb.append(String.format(", 延迟(us) mean:[%s] p50:[%s] p99:[%s] p999:[%s] max:[%s]",
+                    toMicros(this.latency.getMean()), toMicros(this.latency.getPercentile(50)),
+                    toMicros(this.latency.getPercentile(99)), toMicros(this.latency.getPercentile(99.9)),
+                    toMicros(this.latency.getMax())));
+        }
+        return sb.toString();
+    }
+
+    public static synchronized void resetJobVerifier() {
+        jobVerifier = new RecordVerifier(-1);
+    }
+
+    public static synchronized void mergeToJob(RecordVerifier taskVerifier) {
+        jobVerifier.recordCount += taskVerifier.recordCount;
+        jobVerifier.checksum += taskVerifier.checksum;
+        jobVerifier.latency.merge(taskVerifier.latency);
+    }
+
+    public static synchronized RecordVerifier getJobVerifier() {
+        return jobVerifier;
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static long hashColumn(Column column) {
+        if (null == column || null == column.getRawData()) {
+            return NULL_HASH;
+        }
+        long typeHash = (column.getType().ordinal() + 1) * FNV_PRIME;
+        switch (column.getType()) {
+            case LONG:
+                BigInteger value = column.asBigInteger();
+                return typeHash ^ (value.bitLength() < 64 ? value.longValue() : hashString(value.toString()));
+            case DATE:
+                return typeHash ^ column.asLong();
+            case BOOL:
+                return typeHash ^ (column.asBoolean() ? 1L : 2L);
+            case BYTES:
+                return typeHash ^ hashBytes(column.asBytes());
+            default:
+                return typeHash ^ hashString(column.asString());
+        }
+    }
+
+    private static long hashString(String value) {
+        long hash = FNV_OFFSET;
+        for (int i = 0, len = value.length(); i < len; i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long hashBytes(byte[] value) {
+        long hash = FNV_OFFSET;
+        for (byte b : value) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * murmur3 的 fmix64, 使相近的 record 哈希在求和前充分分散
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb3fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -79,6 +79,9 @@ public class StreamWriter extends Writer {
 
         @Override
         public void prepare() {
+            if (this.originalConfig.getBool(Key.VERIFY, false)) {
+                RecordVerifier.resetJobVerifier();
+            }
         }
 
         @Override
@@ -93,6 +96,23 @@ public class StreamWriter extends Writer {
 
         @Override
         public void post() {
+            if (!this.originalConfig.getBool(Key.VERIFY, false)) {
+                return;
+            }
+            RecordVerifier jobVerifier = RecordVerifier.getJobVerifier();
+            LOG.info("StreamWriter 校验结果: {}", jobVerifier.summary());
+
+            Long expectedRecordCount = this.originalConfig.getLong(Key.EXPECTED_RECORD_COUNT);
+            if (null != expectedRecordCount && expectedRecordCount != jobVerifier.getRecordCount()) {
+                throw DataXException.asDataXException(StreamWriterErrorCode.VERIFY_FAILED,
+                        String.format("期望的记录数为[%s], 实际写入[%s].", expectedRecordCount, jobVerifier.getRecordCount()));
+            }
+            String expectedChecksum = this.originalConfig.getString(Key.EXPECTED_CHECKSUM);
+            if (StringUtils.isNotBlank(expectedChecksum)
+                    && !expectedChecksum.trim().equalsIgnoreCase(jobVerifier.getChecksum())) {
+                throw DataXException.asDataXException(StreamWriterErrorCode.VERIFY_FAILED,
+                        String.format("期望的校验和为[%s], 实际为[%s].", expectedChecksum, jobVerifier.getChecksum()));
+            }
         }
 
         @Override
@@ -117,6 +137,7 @@ public class StreamWriter extends Writer {
         private long recordNumBeforSleep;
         private long sleepTime;
 
+        private RecordVerifier verifier;
 
 
         @Override
@@ -137,6 +158,9 @@ public class StreamWriter extends Writer {
             if(sleepTime <0) {
                 throw DataXException.asDataXException(StreamWriterErrorCode.CONFIG_INVALID_EXCEPTION, "sleep 不能为负值");
             }
+            if (this.writerSliceConfig.getBool(Key.VERIFY, false)) {
+                this.verifier = new RecordVerifier(this.writerSliceConfig.getInt(Key.LATENCY_COLUMN, -1));
+            }
 
         }
 
@@ -148,7 +172,12 @@ public class StreamWriter extends Writer {
         public void startWrite(RecordReceiver recordReceiver) {
 
 
-                if(StringUtils.isNoneBlank(path) && StringUtils.isNoneBlank(fileName)) {
+                if (null != this.verifier) {
+                    Record record;
+                    while ((record = recordReceiver.getFromReader()) != null) {
+                        this.verifier.verify(record);
+                    }
+                } else if(StringUtils.isNoneBlank(path) && StringUtils.isNoneBlank(fileName)) {
                     writeToFile(recordReceiver,path, fileName, recordNumBeforSleep, sleepTime);
                 } else {
                     try {
@@ -208,6 +237,10 @@ public class StreamWriter extends Writer {
 
         @Override
         public void post() {
+            if (null != this.verifier) {
+                LOG.info("task 校验结果: {}", this.verifier.summary());
+                RecordVerifier.mergeToJob(this.verifier);
+            }
         }
 
         @Override
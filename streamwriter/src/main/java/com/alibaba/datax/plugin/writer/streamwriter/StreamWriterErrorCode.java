@@ -6,7 +6,8 @@ public enum StreamWriterErrorCode implements ErrorCode {
     RUNTIME_EXCEPTION("StreamWriter-00", "运行时异常"),
     ILLEGAL_VALUE("StreamWriter-01", "您填写的参数值不合法."),
     CONFIG_INVALID_EXCEPTION("StreamWriter-02", "您的参数配置错误."),
-    SECURITY_NOT_ENOUGH("TxtFileWriter-03", "您缺少权限执行相应的文件写入操作.");
+    SECURITY_NOT_ENOUGH("TxtFileWriter-03", "您缺少权限执行相应的文件写入操作."),
+    VERIFY_FAILED("StreamWriter-04", "写入的数据与期望的记录数或校验和不一致.");
 
 
 
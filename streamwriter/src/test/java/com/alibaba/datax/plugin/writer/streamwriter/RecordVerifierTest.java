@@ -0,0 +1,111 @@
+package com.alibaba.datax.plugin.writer.streamwriter;
+
+import com.alibaba.datax.common.element.BytesColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.core.transport.record.DefaultRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class RecordVerifierTest {
+
+    @Test
+    public void testChecksumIndependentOfOrderAndChannels() {
+        List<Record> records = newRecords(1000);
+        RecordVerifier ordered = new RecordVerifier(-1);
+        for (Record record : records) {
+            ordered.verify(record);
+        }
+
+        // 打乱顺序后分给 3 个 task, 合并后的结果一致
+        List<Record> shuffled = new ArrayList<Record>(records);
+        Collections.shuffle(shuffled, new Random(3L));
+        RecordVerifier.resetJobVerifier();
+        RecordVerifier[] tasks = new RecordVerifier[]{new RecordVerifier(-1), new RecordVerifier(-1),
+                new RecordVerifier(-1)};
+        for (int i = 0; i < shuffled.size(); i++) {
+            tasks[i % tasks.length].verify(shuffled.get(i));
+        }
+        for (RecordVerifier task : tasks) {
+            RecordVerifier.mergeToJob(task);
+        }
+
+        Assert.assertEquals(1000, RecordVerifier.getJobVerifier().getRecordCount());
+        Assert.assertEquals(ordered.getChecksum(), RecordVerifier.getJobVerifier().getChecksum());
+        RecordVerifier.resetJobVerifier();
+        Assert.assertEquals(0, RecordVerifier.getJobVerifier().getRecordCount());
+    }
+
+    @Test
+    public void testChecksumDetectsChanges() {
+        String expected = checksum(newRecord(new LongColumn(1L), new StringColumn("a")));
+        Assert.assertEquals(expected, checksum(newRecord(new LongColumn(1L), new StringColumn("a"))));
+        // 值、列顺序、类型、null 与空串的变化都会改变校验和
+        Assert.assertNotEquals(expected, checksum(newRecord(new LongColumn(2L), new StringColumn("a"))));
+        Assert.assertNotEquals(expected, checksum(newRecord(new StringColumn("a"), new LongColumn(1L))));
+        Assert.assertNotEquals(expected, checksum(newRecord(new StringColumn("1"), new StringColumn("a"))));
+        Assert.assertNotEquals(checksum(newRecord(new StringColumn(null))), checksum(newRecord(new StringColumn(""))));
+        // 丢失一条或重复一条记录
+        RecordVerifier verifier = new RecordVerifier(-1);
+        verifier.verify(newRecord(new LongColumn(1L), new StringColumn("a")));
+        verifier.verify(newRecord(new LongColumn(1L), new StringColumn("a")));
+        Assert.assertNotEquals(expected, verifier.getChecksum());
+    }
+
+    @Test
+    public void testLargeLongAndBytes() {
+        BigInteger big = BigInteger.ONE.shiftLeft(70);
+        Assert.assertNotEquals(checksum(newRecord(new LongColumn(big))),
+                checksum(newRecord(new LongColumn(big.add(BigInteger.ONE)))));
+        Assert.assertNotEquals(checksum(newRecord(new BytesColumn(new byte[]{1, 2}))),
+                checksum(newRecord(new BytesColumn(new byte[]{2, 1}))));
+    }
+
+    @Test
+    public void testLatencyColumnExcluded() {
+        RecordVerifier verifier = new RecordVerifier(1);
+        verifier.verify(newRecord(new LongColumn(1L), new LongColumn(System.nanoTime())));
+        verifier.verify(newRecord(new LongColumn(1L), new LongColumn(System.nanoTime() - 1000000L)));
+        RecordVerifier expected = new RecordVerifier(-1);
+        expected.verify(newRecord(new LongColumn(1L)));
+        expected.verify(newRecord(new LongColumn(1L)));
+        Assert.assertEquals(expected.getChecksum(), verifier.getChecksum());
+        Assert.assertTrue(verifier.summary(), verifier.summary().contains("p99"));
+    }
+
+    private static List<Record> newRecords(int count) {
+        List<Record> records = new ArrayList<Record>();
+        for (int i = 0; i < count; i++) {
+            records.add(newRecord(new LongColumn((long) i), new StringColumn("row-" + i),
+                    new DoubleColumn(i + 0.5d), new DateColumn(1600000000000L + i),
+                    new BytesColumn(("b" + i).getBytes(StandardCharsets.UTF_8)),
+                    i % 10 == 0 ? new StringColumn(null) : new StringColumn("")));
+        }
+        return records;
+    }
+
+    private static Record newRecord(Column... columns) {
+        Record record = new DefaultRecord();
+        for (Column column : columns) {
+            record.addColumn(column);
+        }
+        return record;
+    }
+
+    private static String checksum(Record record) {
+        RecordVerifier verifier = new RecordVerifier(-1);
+        verifier.verify(record);
+        return verifier.getChecksum();
+    }
+}
@@ -6,4 +6,8 @@ package com.alibaba.datax.plugin.reader.txtfilereader;
 public class Constant {
 	public static final String SOURCE_FILES = "sourceFiles";
 
+	public static final int DEFAULT_READ_BUFFER_SIZE = 4 * 1024 * 1024;
+
+	public static final int SPLIT_PROBE_BUFFER_SIZE = 64 * 1024;
+
 }
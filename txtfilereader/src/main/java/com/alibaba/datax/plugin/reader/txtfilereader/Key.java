@@ -5,4 +5,9 @@ package com.alibaba.datax.plugin.reader.txtfilereader;
  */
 public class Key {
 	public static final String PATH = "path";
+
+	/**
+	 * 读取文件时 FileChannel 每次读入的字节数, 默认 4MB
+	 */
+	public static final String READ_BUFFER_SIZE = "readBufferSize";
 }
@@ -6,6 +6,10 @@ import com.alibaba.datax.common.spi.Reader;
 import com.alibaba.datax.common.util.Configuration;
 import com.alibaba.datax.plugin.unstructuredstorage.reader.UnstructuredStorageReaderErrorCode;
 import com.alibaba.datax.plugin.unstructuredstorage.reader.UnstructuredStorageReaderUtil;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.StartEndPair;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.UnstructuredSplitUtil;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
 import com.google.common.collect.Sets;
 
 import org.apache.commons.io.Charsets;
@@ -16,8 +20,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
@@ -224,6 +227,14 @@ public class TxtFileReader extends Reader {
                                         this.originConfig.getString(Key.PATH)));
             }
 
+			// 未压缩的text文件可以按换行符切分为多个字节区间, 大文件的读取可以随channel数扩展
+			if (UnstructuredSplitUtil.canSplitSingleFile(this.originConfig)) {
+				readerSplitConfigs = new TxtFileSplitUtil().getSplitConfiguration(
+						this.originConfig, this.sourceFiles, adviceNumber);
+				LOG.debug("split() ok and end...");
+				return readerSplitConfigs;
+			}
+
 			List<List<String>> splitedSourceFiles = this.splitSourceFiles(
 					this.sourceFiles, splitNumber);
 			for (List<String> files : splitedSourceFiles) {
@@ -368,13 +379,34 @@ public class TxtFileReader extends Reader {
 		private static Logger LOG = LoggerFactory.getLogger(Task.class);
 
 		private Configuration readerSliceConfig;
-		private List<String> sourceFiles;
+		private List<StartEndPair> allWorksForTask;
+		private boolean originSkipHeader;
+		private int readBufferSize;
 
 		@Override
 		public void init() {
 			this.readerSliceConfig = this.getPluginJobConf();
-			this.sourceFiles = this.readerSliceConfig.getList(
-					Constant.SOURCE_FILES, String.class);
+			this.readBufferSize = this.readerSliceConfig.getInt(
+					Key.READ_BUFFER_SIZE, Constant.DEFAULT_READ_BUFFER_SIZE);
+			this.originSkipHeader = this.readerSliceConfig.getBool(
+					com.alibaba.datax.plugin.unstructuredstorage.reader.Key.SKIP_HEADER,
+					com.alibaba.datax.plugin.unstructuredstorage.reader.Constant.DEFAULT_SKIP_HEADER);
+
+			String allWorksForTaskStr = this.readerSliceConfig
+					.getString(com.alibaba.datax.plugin.unstructuredstorage.reader.Key.SPLIT_SLICE_CONFIG);
+			if (StringUtils.isNotBlank(allWorksForTaskStr)) {
+				this.allWorksForTask = JSON.parseObject(allWorksForTaskStr,
+						new TypeReference<List<StartEndPair>>() {
+						});
+			} else {
+				// 未做文件内部切分时, 每个文件整体读取
+				this.allWorksForTask = new ArrayList<StartEndPair>();
+				List<String> sourceFiles = this.readerSliceConfig.getList(
+						Constant.SOURCE_FILES, String.class);
+				for (String fileName : sourceFiles) {
+					this.allWorksForTask.add(new StartEndPair(0L, -1L, fileName));
+				}
+			}
 		}
 
 		@Override
@@ -395,22 +427,35 @@ public class TxtFileReader extends Reader {
 		@Override
 		public void startRead(RecordSender recordSender) {
 			LOG.debug("start read source files...");
-			for (String fileName : this.sourceFiles) {
-				LOG.info(String.format("reading file : [%s]", fileName));
+			for (StartEndPair eachSlice : this.allWorksForTask) {
+				String fileName = eachSlice.getFilePath();
+				long start = eachSlice.getStart() == null ? 0L : eachSlice.getStart();
+				long end = eachSlice.getEnd() == null ? -1L : eachSlice.getEnd();
+				LOG.info(String.format("reading file : [%s], range: [start=%s, end=%s]",
+						fileName, start, end));
+				// 只有从文件头开始读取的分片才需要跳过表头
+				this.readerSliceConfig.set(
+						com.alibaba.datax.plugin.unstructuredstorage.reader.Key.SKIP_HEADER,
+						this.originSkipHeader && 0L == start);
 				InputStream inputStream;
 				try {
-					inputStream = new FileInputStream(fileName);
-					UnstructuredStorageReaderUtil.readFromStream(inputStream,
-							fileName, this.readerSliceConfig, recordSender,
-							this.getTaskPluginCollector());
-					recordSender.flush();
-				} catch (FileNotFoundException e) {
+					inputStream = new FileRangeInputStream(fileName, start,
+							end, this.readBufferSize);
+				} catch (IOException e) {
 					// warn: sock 文件无法read,能影响所有文件的传输,需要用户自己保证
 					String message = String
 							.format("找不到待读取的文件 : [%s]", fileName);
 					LOG.error(message);
 					throw DataXException.asDataXException(
-							TxtFileReaderErrorCode.OPEN_FILE_ERROR, message);
+							TxtFileReaderErrorCode.OPEN_FILE_ERROR, message, e);
+				}
+				try {
+					UnstructuredStorageReaderUtil.readFromStream(inputStream,
+							fileName, this.readerSliceConfig, recordSender,
+							this.getTaskPluginCollector());
+					recordSender.flush();
+				} finally {
+					IOUtils.closeQuietly(inputStream);
 				}
 			}
 			LOG.debug("end read source files...");
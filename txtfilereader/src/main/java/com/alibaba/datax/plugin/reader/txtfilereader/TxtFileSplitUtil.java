@@ -0,0 +1,38 @@
+package com.alibaba.datax.plugin.reader.txtfilereader;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.StartEndPair;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.UnstructuredSplitUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 本地文件的内部切分, 复用 UnstructuredSplitUtil 中按换行符校准切分点的逻辑
+ */
+public class TxtFileSplitUtil extends UnstructuredSplitUtil {
+
+	public TxtFileSplitUtil() {
+		super(true);
+	}
+
+	@Override
+	public Long getFileTotalLength(String filePath) {
+		return new File(filePath).length();
+	}
+
+	@Override
+	public InputStream getFileInputStream(StartEndPair startEndPair) {
+		try {
+			// 切分时只需要向后找到第一个换行符, 不需要大块缓冲
+			return new FileRangeInputStream(startEndPair.getFilePath(),
+					startEndPair.getStart(), startEndPair.getEnd(),
+					Constant.SPLIT_PROBE_BUFFER_SIZE);
+		} catch (IOException e) {
+			throw DataXException.asDataXException(
+					TxtFileReaderErrorCode.OPEN_FILE_ERROR,
+					String.format("打开文件失败 : [%s]", startEndPair.getFilePath()), e);
+		}
+	}
+}
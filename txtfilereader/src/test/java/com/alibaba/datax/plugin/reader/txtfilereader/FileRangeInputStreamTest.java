@@ -0,0 +1,93 @@
+package com.alibaba.datax.plugin.reader.txtfilereader;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+public class FileRangeInputStreamTest {
+
+	private static final String CONTENT = "0123456789abcdefghij";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private String fileName;
+
+	@Before
+	public void setUp() throws IOException {
+		File file = this.folder.newFile("range.txt");
+		FileUtils.writeStringToFile(file, CONTENT, StandardCharsets.UTF_8);
+		this.fileName = file.getAbsolutePath();
+	}
+
+	@Test
+	public void testClosedRange() throws IOException {
+		// 缓冲区小于区间长度, 需要多次定位读取
+		Assert.assertEquals("3456789", read(3, 9, 2));
+		Assert.assertEquals("3456789", read(3, 9, 1024));
+		Assert.assertEquals("0", read(0, 0, 2));
+	}
+
+	@Test
+	public void testUnboundedRangeReadsToEnd() throws IOException {
+		Assert.assertEquals(CONTENT, read(0, -1, 3));
+		Assert.assertEquals("fghij", read(15, -1, 3));
+		// 结束位置超过文件大小时读到文件末尾
+		Assert.assertEquals("fghij", read(15, 100, 3));
+		Assert.assertEquals("", read(20, -1, 3));
+		Assert.assertEquals("", read(30, 40, 3));
+	}
+
+	@Test
+	public void testSingleByteRead() throws IOException {
+		InputStream in = new FileRangeInputStream(this.fileName, 8, 10, 2);
+		try {
+			Assert.assertEquals('8', in.read());
+			Assert.assertEquals('9', in.read());
+			Assert.assertEquals('a', in.read());
+			Assert.assertEquals(-1, in.read());
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void testSkipAndAvailable() throws IOException {
+		InputStream in = new FileRangeInputStream(this.fileName, 2, 15, 4);
+		try {
+			Assert.assertEquals(14, in.available());
+			Assert.assertEquals('2', in.read());
+			// 缓冲区内跳过
+			Assert.assertEquals(2, in.skip(2));
+			Assert.assertEquals('5', in.read());
+			// 跨出缓冲区跳过
+			Assert.assertEquals(5, in.skip(5));
+			Assert.assertEquals('b', in.read());
+			Assert.assertEquals(4, in.available());
+			// 不会跳过区间结束位置
+			Assert.assertEquals(4, in.skip(100));
+			Assert.assertEquals(0, in.available());
+			Assert.assertEquals(-1, in.read());
+		} finally {
+			in.close();
+		}
+	}
+
+	private String read(long start, long end, int bufferSize) throws IOException {
+		InputStream in = new FileRangeInputStream(this.fileName, start, end, bufferSize);
+		try {
+			return IOUtils.toString(in, StandardCharsets.UTF_8);
+		} finally {
+			in.close();
+		}
+	}
+}
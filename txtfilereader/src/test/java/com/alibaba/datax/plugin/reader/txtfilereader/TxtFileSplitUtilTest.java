@@ -0,0 +1,150 @@
+package com.alibaba.datax.plugin.reader.txtfilereader;
+
+import com.alibaba.datax.common.util.Configuration;
+import com.alibaba.datax.plugin.unstructuredstorage.reader.split.StartEndPair;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class TxtFileSplitUtilTest {
+
+	// 37 字节一行, 与 64MB 的分块大小不对齐
+	private static final byte[] LINE = "0123456789abcdefghijklmnopqrstuvwxyz\n".getBytes(StandardCharsets.UTF_8);
+
+	private static final long FILE_SIZE = 130L * 1024 * 1024 / LINE.length * LINE.length;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRangesAlignedToNewlines() throws Exception {
+		String bigFile = writeLines(this.folder.newFile("big.txt"), FILE_SIZE);
+		File small = this.folder.newFile("small.txt");
+		FileUtils.writeByteArrayToFile(small, LINE);
+		String smallFile = small.getAbsolutePath();
+
+		List<Configuration> configs = new TxtFileSplitUtil().getSplitConfiguration(
+				Configuration.newDefault(), Arrays.asList(bigFile, smallFile), 2);
+		Assert.assertEquals(2, configs.size());
+
+		List<StartEndPair> ranges = new ArrayList<StartEndPair>();
+		for (Configuration config : configs) {
+			for (StartEndPair range : JSON.parseObject(
+					config.getString(com.alibaba.datax.plugin.unstructuredstorage.reader.Key.SPLIT_SLICE_CONFIG),
+					new TypeReference<List<StartEndPair>>() {
+					})) {
+				if (smallFile.equals(range.getFilePath())) {
+					// 小于分块大小的文件整体读取
+					Assert.assertEquals(0L, range.getStart().longValue());
+					Assert.assertEquals(-1L, range.getEnd().longValue());
+				} else {
+					ranges.add(range);
+				}
+			}
+		}
+		// 130MB 切为 3 个 64MB 的分块
+		Assert.assertEquals(3, ranges.size());
+		Collections.sort(ranges, new Comparator<StartEndPair>() {
+			@Override
+			public int compare(StartEndPair left, StartEndPair right) {
+				return left.getStart().compareTo(right.getStart());
+			}
+		});
+
+		long expectedStart = 0;
+		for (StartEndPair range : ranges) {
+			Assert.assertEquals(bigFile, range.getFilePath());
+			Assert.assertEquals(expectedStart, range.getStart().longValue());
+			Assert.assertEquals(0, range.getStart() % LINE.length);
+			Assert.assertEquals(LINE.length - 1, range.getEnd() % LINE.length);
+
+			InputStream in = new FileRangeInputStream(bigFile, range.getStart(), range.getEnd(),
+					Constant.DEFAULT_READ_BUFFER_SIZE);
+			long[] stats;
+			try {
+				stats = readLines(in);
+			} finally {
+				in.close();
+			}
+			// 读到的都是完整的行, 结束位置之后的数据不会读出
+			Assert.assertEquals(range.getEnd() - range.getStart() + 1, stats[0]);
+			Assert.assertEquals(stats[0] / LINE.length, stats[1]);
+			expectedStart = range.getEnd() + 1;
+		}
+		// 各区间首尾相接, 覆盖整个文件
+		Assert.assertEquals(FILE_SIZE, expectedStart);
+	}
+
+	@Test
+	public void testSmallFileNotSplit() throws Exception {
+		String file = writeLines(this.folder.newFile("small.txt"), 1000L * LINE.length);
+		List<Configuration> configs = new TxtFileSplitUtil().getSplitConfiguration(
+				Configuration.newDefault(), Collections.singletonList(file), 4);
+		Assert.assertEquals(1, configs.size());
+		List<StartEndPair> ranges = JSON.parseObject(
+				configs.get(0).getString(com.alibaba.datax.plugin.unstructuredstorage.reader.Key.SPLIT_SLICE_CONFIG),
+				new TypeReference<List<StartEndPair>>() {
+				});
+		Assert.assertEquals(1, ranges.size());
+		Assert.assertEquals(0L, ranges.get(0).getStart().longValue());
+		Assert.assertEquals(-1L, ranges.get(0).getEnd().longValue());
+	}
+
+	/**
+	 * @return {读到的字节数, 完整的行数}, 每一行都需要与 LINE 相同
+	 */
+	private static long[] readLines(InputStream in) throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		long bytes = 0;
+		long lines = 0;
+		int n;
+		while ((n = in.read(buffer)) != -1) {
+			for (int i = 0; i < n; i++) {
+				Assert.assertEquals(LINE[(int) (bytes % LINE.length)], buffer[i]);
+				bytes++;
+				if (buffer[i] == '\n') {
+					lines++;
+				}
+			}
+		}
+		return new long[]{bytes, lines};
+	}
+
+	/**
+	 * 以 LINE 重复写满 size 个字节, size 需要是 LINE 长度的整数倍
+	 */
+	private static String writeLines(File file, long size) throws IOException {
+		byte[] chunk = new byte[LINE.length * 1024];
+		for (int i = 0; i < chunk.length; i++) {
+			chunk[i] = LINE[i % LINE.length];
+		}
+		OutputStream out = new FileOutputStream(file);
+		try {
+			long remaining = size;
+			while (remaining > 0) {
+				int n = (int) Math.min(chunk.length, remaining);
+				out.write(chunk, 0, n);
+				remaining -= n;
+			}
+		} finally {
+			out.close();
+		}
+		return file.getAbsolutePath();
+	}
+}